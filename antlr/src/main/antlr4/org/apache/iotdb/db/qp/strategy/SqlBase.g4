@@ -181,6 +181,7 @@ compressor
     | PAA
     | PLA
     | LZ4
+    | ZSTD
     ;
 
 attributeClause
@@ -1159,6 +1160,10 @@ LZ4
    : L Z '4' 
    ;
 
+ZSTD
+   : Z S T D
+   ;
+
 LATEST
     : L A T E S T
     ;
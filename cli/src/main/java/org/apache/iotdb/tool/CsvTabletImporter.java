@@ -0,0 +1,658 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tool;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import me.tongfei.progressbar.ProgressBar;
+import org.apache.iotdb.rpc.IoTDBConnectionException;
+import org.apache.iotdb.rpc.StatementExecutionException;
+import org.apache.iotdb.session.pool.SessionPool;
+import org.apache.iotdb.tsfile.exception.write.WriteProcessException;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.common.Path;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.BitMap;
+import org.apache.iotdb.tsfile.write.TsFileWriter;
+import org.apache.iotdb.tsfile.write.record.Tablet;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+
+/**
+ * Import a CSV file by tablets. A reader thread streams the lines to several workers, every
+ * worker parses the lines into the tablets of the devices, and a full tablet is written into the
+ * TabletSink of the worker, i.e., inserted into IoTDB by a SessionPool or written into TsFiles.
+ * The CSV file has the same format as that of ImportCsv.
+ */
+public class CsvTabletImporter {
+
+  /**
+   * the number of lines handed to a worker at a time
+   */
+  private static final int LINES_PER_TASK = 4096;
+  private static final List<String> END_OF_FILE = Collections.emptyList();
+  private static final long PROGRESS_REPORT_INTERVAL_MS = 1000;
+
+  /**
+   * the time formats written by ExportCsv, with '-', '/' or '.' between the fields of the date
+   */
+  private static final DateTimeFormatter TIME_FORMATTER = new DateTimeFormatterBuilder()
+      .appendPattern("uuuu-MM-dd")
+      .optionalStart().appendLiteral('T').optionalEnd()
+      .optionalStart().appendLiteral(' ').optionalEnd()
+      .appendPattern("HH:mm:ss")
+      .optionalStart().appendFraction(ChronoField.NANO_OF_SECOND, 0, 9, true).optionalEnd()
+      .optionalStart().appendOffset("+HH:MM", "Z").optionalEnd()
+      .optionalStart().appendOffset("+HHMM", "Z").optionalEnd()
+      .toFormatter();
+
+  /**
+   * where the tablets of a worker are written, it is used by the worker only.
+   */
+  public interface TabletSink extends Closeable {
+
+    /**
+     * @param storageGroup the storage group of the device of the tablet
+     * @throws WriteProcessException if the rows of the tablet are rejected, the import goes on
+     * @throws IOException           if the tablets cannot be written any more, the import stops
+     */
+    void write(Tablet tablet, String storageGroup) throws IOException, WriteProcessException;
+  }
+
+  public interface TabletSinkFactory {
+
+    TabletSink create(File csvFile, int workerIndex) throws IOException;
+  }
+
+  public interface SchemaResolver {
+
+    /**
+     * @return the schema of the timeseries whose measurementId is the last node of the path, or
+     * null if the timeseries does not exist
+     */
+    MeasurementSchema getSchema(String path) throws IOException;
+
+    /**
+     * @return the storage group of the device, it is called after the schemas of the timeseries of
+     * the device are got
+     */
+    String getStorageGroup(String deviceId) throws IOException;
+  }
+
+  private final int threadNum;
+  private final int tabletSize;
+  private final ZoneId zoneId;
+  private final TabletSinkFactory sinkFactory;
+
+  private final AtomicLong importedRowNum = new AtomicLong();
+  private final AtomicLong importedPointNum = new AtomicLong();
+  private final AtomicLong failedLineNum = new AtomicLong();
+
+  /**
+   * @param threadNum  the number of the workers parsing and writing the lines
+   * @param tabletSize the max number of rows of a tablet
+   */
+  public CsvTabletImporter(int threadNum, int tabletSize, ZoneId zoneId,
+      TabletSinkFactory sinkFactory) {
+    this.threadNum = threadNum;
+    this.tabletSize = tabletSize;
+    this.zoneId = zoneId;
+    this.sinkFactory = sinkFactory;
+  }
+
+  /**
+   * insert the tablets into IoTDB by the pool, whose size decides how many connections are used.
+   */
+  public static TabletSinkFactory toSessionPool(SessionPool pool) {
+    return (csvFile, workerIndex) -> new TabletSink() {
+      @Override
+      public void write(Tablet tablet, String storageGroup)
+          throws IOException, WriteProcessException {
+        try {
+          pool.insertTablet(tablet, false);
+        } catch (IoTDBConnectionException e) {
+          throw new IOException(e);
+        } catch (StatementExecutionException e) {
+          throw new WriteProcessException(e.getMessage());
+        }
+      }
+
+      @Override
+      public void close() {
+        // the pool is closed by its owner
+      }
+    };
+  }
+
+  /**
+   * write the tablets into TsFiles under the directory, which can be loaded into IoTDB by the
+   * "load" statement. Every worker writes its own files, one for each storage group, and a new
+   * file is started if the rows of a device are not after those already in the file.
+   */
+  public static TabletSinkFactory toTsFiles(File targetDirectory) {
+    AtomicLong version = new AtomicLong();
+    return (csvFile, workerIndex) -> new TsFileSink(targetDirectory, version);
+  }
+
+  /**
+   * import a CSV file, the lines that cannot be imported are written into the errorWriter.
+   *
+   * @return whether all the lines are imported
+   */
+  @SuppressWarnings("squid:S3776") // Suppress high Cognitive Complexity warning
+  public boolean importFile(File csvFile, SchemaResolver schemaResolver, BufferedWriter errorWriter)
+      throws IOException {
+    importedRowNum.set(0);
+    importedPointNum.set(0);
+    failedLineNum.set(0);
+    long startTime = System.currentTimeMillis();
+
+    try (BufferedReader reader = new BufferedReader(new FileReader(csvFile));
+        ProgressBar progressBar = new ProgressBar("Import from: " + csvFile.getName(),
+            csvFile.length())) {
+      String header = reader.readLine();
+      if (header == null) {
+        System.out.println("The CSV file " + csvFile.getName() + " is empty");
+        return false;
+      }
+      List<DeviceColumns> devices = parseHeader(header, csvFile, schemaResolver, errorWriter);
+      if (devices.isEmpty()) {
+        return false;
+      }
+      int columnNum = splitLine(header).size();
+      progressBar.stepBy(header.length() + 1L);
+
+      BlockingQueue<List<String>> queue = new ArrayBlockingQueue<>(threadNum * 2);
+      AtomicInteger workerIndex = new AtomicInteger();
+      ExecutorService workerPool = Executors.newFixedThreadPool(threadNum, r -> {
+        Thread thread = new Thread(r, "ImportCsv-worker-" + workerIndex.getAndIncrement());
+        thread.setDaemon(true);
+        return thread;
+      });
+      List<Future<Void>> workers = new ArrayList<>(threadNum);
+      try {
+        for (int i = 0; i < threadNum; i++) {
+          workers.add(workerPool.submit(new Worker(sinkFactory.create(csvFile, i), queue, devices,
+              columnNum, errorWriter)));
+        }
+        boolean finished = readLines(reader, queue, workers, progressBar, startTime);
+        for (int i = 0; i < threadNum && finished; i++) {
+          finished = offer(queue, END_OF_FILE, workers);
+        }
+        waitWorkers(workers);
+      } finally {
+        workerPool.shutdownNow();
+      }
+    }
+
+    long costTime = Math.max(System.currentTimeMillis() - startTime, 1);
+    System.out.println(String.format("Import from %s finished: %d rows and %d points are imported, "
+            + "%d lines failed, it costs %dms, %d points/s", csvFile.getName(), importedRowNum.get(),
+        importedPointNum.get(), failedLineNum.get(), costTime,
+        importedPointNum.get() * 1000 / costTime));
+    return failedLineNum.get() == 0;
+  }
+
+  private List<DeviceColumns> parseHeader(String header, File csvFile,
+      SchemaResolver schemaResolver, BufferedWriter errorWriter) throws IOException {
+    List<String> columns = splitLine(header);
+    if (columns.size() <= 1) {
+      System.out.println("The CSV file " + csvFile.getName() + " illegal, please check first line");
+      return Collections.emptyList();
+    }
+    Map<String, DeviceColumns> devices = new LinkedHashMap<>();
+    for (int i = 1; i < columns.size(); i++) {
+      String path = columns.get(i).trim();
+      MeasurementSchema schema = schemaResolver.getSchema(path);
+      if (schema == null) {
+        String errorInfo = String.format("Database cannot find %s in %s, stop import!", path,
+            csvFile.getAbsolutePath());
+        System.out.println(errorInfo);
+        writeError(errorWriter, errorInfo);
+        return Collections.emptyList();
+      }
+      String deviceId = path.substring(0, path.lastIndexOf('.'));
+      devices.computeIfAbsent(deviceId, DeviceColumns::new).add(i, schema);
+    }
+    for (DeviceColumns device : devices.values()) {
+      device.storageGroup = schemaResolver.getStorageGroup(device.deviceId);
+    }
+    return new ArrayList<>(devices.values());
+  }
+
+  /**
+   * @return whether all the lines are handed to the workers, it is false if a worker stops
+   */
+  private boolean readLines(BufferedReader reader, BlockingQueue<List<String>> queue,
+      List<Future<Void>> workers, ProgressBar progressBar, long startTime) throws IOException {
+    List<String> lines = new ArrayList<>(LINES_PER_TASK);
+    long readBytes = 0;
+    long lastReportTime = startTime;
+    String line;
+    while ((line = reader.readLine()) != null) {
+      lines.add(line);
+      readBytes += line.length() + 1L;
+      if (lines.size() < LINES_PER_TASK) {
+        continue;
+      }
+      if (!offer(queue, lines, workers)) {
+        return false;
+      }
+      lines = new ArrayList<>(LINES_PER_TASK);
+      progressBar.stepBy(readBytes);
+      readBytes = 0;
+
+      long currentTime = System.currentTimeMillis();
+      if (currentTime - lastReportTime >= PROGRESS_REPORT_INTERVAL_MS) {
+        progressBar.setExtraMessage(String.format("%d points/s",
+            importedPointNum.get() * 1000 / (currentTime - startTime)));
+        lastReportTime = currentTime;
+      }
+    }
+    if (!lines.isEmpty() && !offer(queue, lines, workers)) {
+      return false;
+    }
+    progressBar.stepBy(readBytes);
+    return true;
+  }
+
+  /**
+   * @return false if a worker stops before the lines are taken
+   */
+  private static boolean offer(BlockingQueue<List<String>> queue, List<String> lines,
+      List<Future<Void>> workers) throws IOException {
+    try {
+      while (!queue.offer(lines, 100, TimeUnit.MILLISECONDS)) {
+        for (Future<Void> worker : workers) {
+          if (worker.isDone()) {
+            return false;
+          }
+        }
+      }
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted when importing", e);
+    }
+  }
+
+  private static void waitWorkers(List<Future<Void>> workers) throws IOException {
+    IOException exception = null;
+    for (Future<Void> worker : workers) {
+      try {
+        worker.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted when importing", e);
+      } catch (ExecutionException e) {
+        if (exception == null) {
+          exception = e.getCause() instanceof IOException ? (IOException) e.getCause()
+              : new IOException(e.getCause());
+        }
+      }
+    }
+    if (exception != null) {
+      throw exception;
+    }
+  }
+
+  private void writeError(BufferedWriter errorWriter, String errorInfo) throws IOException {
+    synchronized (errorWriter) {
+      errorWriter.write(errorInfo);
+      errorWriter.newLine();
+    }
+  }
+
+  /**
+   * split a line by commas that are not quoted by ' or ", the quotes are kept.
+   */
+  static List<String> splitLine(String line) {
+    List<String> fields = new ArrayList<>();
+    char quote = 0;
+    int start = 0;
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '\'' || c == '"') {
+        quote = c;
+      } else if (c == ',') {
+        fields.add(line.substring(start, i));
+        start = i + 1;
+      }
+    }
+    fields.add(line.substring(start));
+    return fields;
+  }
+
+  static long parseTime(String time, ZoneId zoneId) {
+    String str = time.trim();
+    try {
+      return Long.parseLong(str);
+    } catch (NumberFormatException e) {
+      // not a number, parse it as a date time
+    }
+    if (str.length() > 10) {
+      char[] chars = str.toCharArray();
+      // yyyy/MM/dd and yyyy.MM.dd are parsed as yyyy-MM-dd
+      chars[4] = '-';
+      chars[7] = '-';
+      str = new String(chars);
+    }
+    TemporalAccessor dateTime = TIME_FORMATTER.parse(str);
+    if (dateTime.isSupported(ChronoField.OFFSET_SECONDS)) {
+      return OffsetDateTime.from(dateTime).toInstant().toEpochMilli();
+    }
+    return LocalDateTime.from(dateTime).atZone(zoneId).toInstant().toEpochMilli();
+  }
+
+  static Object parseValue(String value, TSDataType dataType) {
+    switch (dataType) {
+      case BOOLEAN:
+        if ("true".equalsIgnoreCase(value)) {
+          return true;
+        } else if ("false".equalsIgnoreCase(value)) {
+          return false;
+        }
+        throw new IllegalArgumentException(value + " is not a boolean");
+      case INT32:
+        return Integer.parseInt(value);
+      case INT64:
+        return Long.parseLong(value);
+      case FLOAT:
+        return Float.parseFloat(value);
+      case DOUBLE:
+        return Double.parseDouble(value);
+      case TEXT:
+        if (value.length() >= 2 && (value.charAt(0) == '\'' || value.charAt(0) == '"')
+            && value.charAt(value.length() - 1) == value.charAt(0)) {
+          value = value.substring(1, value.length() - 1);
+        }
+        return Binary.valueOf(value);
+      default:
+        throw new IllegalArgumentException("Data type " + dataType + " is not supported");
+    }
+  }
+
+  /**
+   * the columns of a device in the CSV file.
+   */
+  private static class DeviceColumns {
+
+    private final String deviceId;
+    private String storageGroup;
+    private final List<Integer> columnIndexes = new ArrayList<>();
+    private final List<MeasurementSchema> schemas = new ArrayList<>();
+
+    private DeviceColumns(String deviceId) {
+      this.deviceId = deviceId;
+    }
+
+    private void add(int columnIndex, MeasurementSchema schema) {
+      columnIndexes.add(columnIndex);
+      schemas.add(schema);
+    }
+  }
+
+  private class Worker implements java.util.concurrent.Callable<Void> {
+
+    private final TabletSink sink;
+    private final BlockingQueue<List<String>> queue;
+    private final List<DeviceColumns> devices;
+    private final int columnNum;
+    private final BufferedWriter errorWriter;
+    private final Tablet[] tablets;
+    private final Object[] values;
+
+    private Worker(TabletSink sink, BlockingQueue<List<String>> queue,
+        List<DeviceColumns> devices, int columnNum, BufferedWriter errorWriter) {
+      this.sink = sink;
+      this.queue = queue;
+      this.devices = devices;
+      this.columnNum = columnNum;
+      this.errorWriter = errorWriter;
+      this.tablets = new Tablet[devices.size()];
+      for (int i = 0; i < tablets.length; i++) {
+        tablets[i] = new Tablet(devices.get(i).deviceId, devices.get(i).schemas, tabletSize);
+        tablets[i].initBitMaps();
+      }
+      this.values = new Object[columnNum];
+    }
+
+    @Override
+    public Void call() throws IOException, InterruptedException {
+      try (TabletSink tabletSink = sink) {
+        List<String> lines;
+        while ((lines = queue.take()) != END_OF_FILE) {
+          for (String line : lines) {
+            importLine(line);
+          }
+        }
+        for (int i = 0; i < tablets.length; i++) {
+          if (tablets[i].rowSize > 0) {
+            writeTablet(i);
+          }
+        }
+        return null;
+      }
+    }
+
+    private void importLine(String line) throws IOException {
+      long time;
+      try {
+        List<String> fields = splitLine(line);
+        if (fields.size() < columnNum) {
+          throw new IllegalArgumentException("it is not complete");
+        }
+        time = parseTime(fields.get(0), zoneId);
+        Arrays.fill(values, null);
+        for (DeviceColumns device : devices) {
+          for (int i = 0; i < device.columnIndexes.size(); i++) {
+            int columnIndex = device.columnIndexes.get(i);
+            String field = fields.get(columnIndex);
+            if (!field.isEmpty()) {
+              values[columnIndex] = parseValue(field, device.schemas.get(i).getType());
+            }
+          }
+        }
+      } catch (RuntimeException e) {
+        failedLineNum.incrementAndGet();
+        writeError(errorWriter, String.format("error input line, because %s: %s",
+            e.getMessage(), line));
+        return;
+      }
+
+      for (int i = 0; i < devices.size(); i++) {
+        addRow(i, time);
+      }
+    }
+
+    private void addRow(int deviceIndex, long time) throws IOException {
+      DeviceColumns device = devices.get(deviceIndex);
+      boolean hasValue = false;
+      for (int columnIndex : device.columnIndexes) {
+        hasValue |= values[columnIndex] != null;
+      }
+      if (!hasValue) {
+        return;
+      }
+      Tablet tablet = tablets[deviceIndex];
+      int row = tablet.rowSize++;
+      tablet.addTimestamp(row, time);
+      for (int i = 0; i < device.columnIndexes.size(); i++) {
+        tablet.addValue(device.schemas.get(i).getMeasurementId(), row,
+            values[device.columnIndexes.get(i)]);
+      }
+      if (tablet.rowSize == tablet.getMaxRowNumber()) {
+        writeTablet(deviceIndex);
+      }
+    }
+
+    private void writeTablet(int deviceIndex) throws IOException {
+      Tablet tablet = tablets[deviceIndex];
+      try {
+        sink.write(tablet, devices.get(deviceIndex).storageGroup);
+        importedRowNum.addAndGet(tablet.rowSize);
+        importedPointNum.addAndGet(countPoints(tablet));
+      } catch (WriteProcessException e) {
+        failedLineNum.addAndGet(tablet.rowSize);
+        writeError(errorWriter, String.format("Cannot import %d rows of %s from %d to %d, because %s",
+            tablet.rowSize, tablet.deviceId, tablet.timestamps[0],
+            tablet.timestamps[tablet.rowSize - 1], e.getMessage()));
+      }
+      tablet.reset();
+    }
+
+    private long countPoints(Tablet tablet) {
+      long pointNum = 0;
+      for (int i = 0; i < tablet.getSchemas().size(); i++) {
+        for (int row = 0; row < tablet.rowSize; row++) {
+          if (!tablet.isNull(i, row)) {
+            pointNum++;
+          }
+        }
+      }
+      return pointNum;
+    }
+  }
+
+  /**
+   * writes the tablets of a worker into TsFiles, one file for each storage group.
+   */
+  private static class TsFileSink implements TabletSink {
+
+    private final File targetDirectory;
+    private final AtomicLong version;
+    private final Map<String, TsFileWriter> writers = new HashMap<>();
+    /**
+     * the last time of every device in the current file of its storage group
+     */
+    private final Map<String, Long> lastTimes = new HashMap<>();
+
+    private TsFileSink(File targetDirectory, AtomicLong version) {
+      this.targetDirectory = targetDirectory;
+      this.version = version;
+    }
+
+    @Override
+    public void write(Tablet tablet, String storageGroup)
+        throws IOException, WriteProcessException {
+      sortTablet(tablet);
+      TsFileWriter writer = writers.get(storageGroup);
+      Long lastTime = lastTimes.get(tablet.deviceId);
+      if (writer != null && lastTime != null && tablet.timestamps[0] <= lastTime) {
+        // the rows are not after those in the file, so they are written into a new file
+        writer.close();
+        writers.remove(storageGroup);
+        lastTimes.keySet().removeIf(deviceId -> deviceId.startsWith(storageGroup + "."));
+        writer = null;
+      }
+      if (writer == null) {
+        // the file is named like those of IoTDB, so that it can be loaded
+        File file = new File(targetDirectory,
+            System.currentTimeMillis() + "-" + version.incrementAndGet() + "-0.tsfile");
+        writer = new TsFileWriter(file);
+        writers.put(storageGroup, writer);
+      }
+      if (!lastTimes.containsKey(tablet.deviceId)) {
+        for (MeasurementSchema schema : tablet.getSchemas()) {
+          writer.registerTimeseries(new Path(tablet.deviceId, schema.getMeasurementId()), schema);
+        }
+      }
+      writer.write(tablet);
+      lastTimes.put(tablet.deviceId, tablet.timestamps[tablet.rowSize - 1]);
+    }
+
+    private void sortTablet(Tablet tablet) {
+      boolean sorted = true;
+      for (int i = 1; i < tablet.rowSize && sorted; i++) {
+        sorted = tablet.timestamps[i - 1] <= tablet.timestamps[i];
+      }
+      if (sorted) {
+        return;
+      }
+      Integer[] index = new Integer[tablet.rowSize];
+      for (int i = 0; i < index.length; i++) {
+        index[i] = i;
+      }
+      Arrays.sort(index, Comparator.comparingLong(i -> tablet.timestamps[i]));
+      Arrays.sort(tablet.timestamps, 0, tablet.rowSize);
+      for (int i = 0; i < tablet.values.length; i++) {
+        Object column = tablet.values[i];
+        Object sortedColumn = Array.newInstance(column.getClass().getComponentType(),
+            Array.getLength(column));
+        BitMap sortedBitMap = new BitMap(tablet.getMaxRowNumber());
+        for (int row = 0; row < index.length; row++) {
+          Array.set(sortedColumn, row, Array.get(column, index[row]));
+          if (tablet.isNull(i, index[row])) {
+            sortedBitMap.mark(row);
+          }
+        }
+        tablet.values[i] = sortedColumn;
+        tablet.bitMaps[i] = sortedBitMap;
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      IOException exception = null;
+      for (TsFileWriter writer : writers.values()) {
+        try {
+          writer.close();
+        } catch (IOException e) {
+          exception = e;
+        }
+      }
+      writers.clear();
+      if (exception != null) {
+        throw exception;
+      }
+    }
+  }
+}
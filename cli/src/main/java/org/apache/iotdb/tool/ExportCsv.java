@@ -32,6 +32,7 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
 import java.time.Instant;
+import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -48,6 +49,9 @@ import org.apache.iotdb.cli.AbstractCli;
 import org.apache.iotdb.exception.ArgsErrorException;
 import org.apache.iotdb.jdbc.Config;
 import org.apache.iotdb.jdbc.IoTDBConnection;
+import org.apache.iotdb.rpc.IoTDBConnectionException;
+import org.apache.iotdb.rpc.StatementExecutionException;
+import org.apache.iotdb.session.pool.SessionPool;
 import org.apache.thrift.TException;
 
 /**
@@ -66,6 +70,29 @@ public class ExportCsv extends AbstractCsvTool {
   private static final String SQL_FILE_ARGS = "s";
   private static final String SQL_FILE_NAME = "sqlfile";
 
+  private static final String PATH_PREFIX_ARGS = "pp";
+  private static final String PATH_PREFIX_NAME = "pathPrefix";
+
+  private static final String MODE_ARGS = "m";
+  private static final String MODE_NAME = "mode";
+  private static final String CSV_MODE = "csv";
+  private static final String TSFILE_MODE = "tsfile";
+
+  private static final String THREAD_NUM_ARGS = "tn";
+  private static final String THREAD_NUM_NAME = "threadNum";
+
+  private static final String START_TIME_ARGS = "st";
+  private static final String START_TIME_NAME = "startTime";
+
+  private static final String END_TIME_ARGS = "et";
+  private static final String END_TIME_NAME = "endTime";
+
+  private static final String RANGE_NUM_ARGS = "rn";
+  private static final String RANGE_NUM_NAME = "rangeNum";
+
+  private static final String COMPRESS_ARGS = "c";
+  private static final String COMPRESS_NAME = "compress";
+
   private static final String TSFILEDB_CLI_PREFIX = "ExportCsv";
 
   private static final String DUMP_FILE_NAME_DEFAULT = "dump";
@@ -116,6 +143,10 @@ public class ExportCsv extends AbstractCsvTool {
       if (!checkTimeFormat()) {
         return;
       }
+      if (commandLine.hasOption(PATH_PREFIX_ARGS)) {
+        exportInParallel(commandLine);
+        return;
+      }
       Class.forName(Config.JDBC_DRIVER_NAME);
 
       String sqlFile = commandLine.getOptionValue(SQL_FILE_ARGS);
@@ -145,6 +176,8 @@ public class ExportCsv extends AbstractCsvTool {
       System.out.println("Failed to operate on file, because " + e.getMessage());
     } catch (ArgsErrorException e) {
       System.out.println("Invalid args: " + e.getMessage());
+    } catch (IoTDBConnectionException | StatementExecutionException e) {
+      System.out.println("Encounter an error when exporting data, error is: " + e.getMessage());
     } finally {
       reader.close();
       if (connection != null) {
@@ -170,6 +203,63 @@ public class ExportCsv extends AbstractCsvTool {
     }
   }
 
+  /**
+   * export the timeseries under the path prefix by parallel raw data queries, which are split by
+   * device and time range.
+   */
+  private static void exportInParallel(CommandLine commandLine)
+      throws ArgsErrorException, IOException, IoTDBConnectionException,
+      StatementExecutionException {
+    String pathPrefix = commandLine.getOptionValue(PATH_PREFIX_ARGS);
+    String mode = commandLine.getOptionValue(MODE_ARGS, CSV_MODE);
+    if (!CSV_MODE.equals(mode) && !TSFILE_MODE.equals(mode)) {
+      throw new ArgsErrorException("Unknown mode " + mode + ", it should be " + CSV_MODE
+          + " or " + TSFILE_MODE);
+    }
+    zoneId = timeZoneID == null ? ZoneId.systemDefault() : ZoneId.of(timeZoneID);
+    int threadNum;
+    int rangeNum;
+    Long startTime = null;
+    Long endTime = null;
+    try {
+      threadNum = Integer.parseInt(commandLine.getOptionValue(THREAD_NUM_ARGS,
+          String.valueOf(Runtime.getRuntime().availableProcessors())));
+      rangeNum = Integer.parseInt(commandLine.getOptionValue(RANGE_NUM_ARGS, "1"));
+      if (commandLine.hasOption(START_TIME_ARGS)) {
+        startTime = CsvTabletImporter.parseTime(commandLine.getOptionValue(START_TIME_ARGS),
+            zoneId);
+      }
+      if (commandLine.hasOption(END_TIME_ARGS)) {
+        endTime = CsvTabletImporter.parseTime(commandLine.getOptionValue(END_TIME_ARGS), zoneId);
+      }
+    } catch (RuntimeException e) {
+      throw new ArgsErrorException("Illegal number or time: " + e.getMessage());
+    }
+    if (threadNum <= 0 || rangeNum <= 0) {
+      throw new ArgsErrorException("The number of threads and time ranges should be positive");
+    }
+    File directory = new File(targetDirectory);
+    if (!directory.exists() && !directory.mkdirs()) {
+      throw new IOException("Cannot create the target directory " + targetDirectory);
+    }
+
+    System.out.println("Start to export data under " + pathPrefix + " by " + threadNum
+        + " threads");
+    SessionPool pool = new SessionPool(host, Integer.parseInt(port), username, password,
+        threadNum, zoneId);
+    try {
+      ParallelExporter exporter = new ParallelExporter(pool, threadNum, zoneId, timeFormat);
+      if (TSFILE_MODE.equals(mode)) {
+        exporter.exportTsFiles(pathPrefix, startTime, endTime, rangeNum, directory);
+      } else {
+        exporter.exportCsv(pathPrefix, startTime, endTime, rangeNum, directory, targetFile,
+            commandLine.hasOption(COMPRESS_ARGS));
+      }
+    } finally {
+      pool.close();
+    }
+  }
+
   /**
    * commandline option create.
    *
@@ -221,6 +311,43 @@ public class ExportCsv extends AbstractCsvTool {
         .desc("Time Zone eg. +08:00 or -01:00 (optional)").build();
     options.addOption(opTimeZone);
 
+    Option opPathPrefix = Option.builder(PATH_PREFIX_ARGS).longOpt(PATH_PREFIX_NAME)
+        .argName(PATH_PREFIX_NAME).hasArg()
+        .desc("Export the timeseries under the path prefix in parallel instead of the result of "
+            + "SQL statements, e.g., root.sg (optional)").build();
+    options.addOption(opPathPrefix);
+
+    Option opMode = Option.builder(MODE_ARGS).longOpt(MODE_NAME).argName(MODE_NAME).hasArg()
+        .desc("csv: export into CSV files, tsfile: export into TsFiles, which can be loaded by "
+            + "the load statement (optional, csv by default, only with -pp)").build();
+    options.addOption(opMode);
+
+    Option opThreadNum = Option.builder(THREAD_NUM_ARGS).longOpt(THREAD_NUM_NAME)
+        .argName(THREAD_NUM_NAME).hasArg()
+        .desc("Number of threads and connections exporting the data (optional, the number of "
+            + "CPU cores by default, only with -pp)").build();
+    options.addOption(opThreadNum);
+
+    Option opStartTime = Option.builder(START_TIME_ARGS).longOpt(START_TIME_NAME)
+        .argName(START_TIME_NAME).hasArg()
+        .desc("Start time of the data, inclusive (optional, only with -pp)").build();
+    options.addOption(opStartTime);
+
+    Option opEndTime = Option.builder(END_TIME_ARGS).longOpt(END_TIME_NAME)
+        .argName(END_TIME_NAME).hasArg()
+        .desc("End time of the data, exclusive (optional, only with -pp)").build();
+    options.addOption(opEndTime);
+
+    Option opRangeNum = Option.builder(RANGE_NUM_ARGS).longOpt(RANGE_NUM_NAME)
+        .argName(RANGE_NUM_NAME).hasArg()
+        .desc("Number of time ranges every device is split into, each of them is exported into "
+            + "a CSV file (optional, 1 by default, only with -pp)").build();
+    options.addOption(opRangeNum);
+
+    Option opCompress = Option.builder(COMPRESS_ARGS).longOpt(COMPRESS_NAME).hasArg(false)
+        .desc("Compress the CSV files by gzip (optional, only with -pp)").build();
+    options.addOption(opCompress);
+
     Option opHelp = Option.builder(HELP_ARGS).longOpt(HELP_ARGS).hasArg(false)
         .desc("Display help information")
         .build();
@@ -35,6 +35,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import jline.console.ConsoleReader;
 import me.tongfei.progressbar.ProgressBar;
 import org.apache.commons.cli.CommandLine;
@@ -49,6 +50,12 @@ import org.apache.iotdb.exception.ArgsErrorException;
 import org.apache.iotdb.jdbc.Config;
 import org.apache.iotdb.jdbc.IoTDBConnection;
 import org.apache.iotdb.rpc.TSStatusCode;
+import org.apache.iotdb.session.pool.SessionPool;
+import org.apache.iotdb.tool.CsvTabletImporter.SchemaResolver;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
 import org.apache.thrift.TException;
 
 /**
@@ -59,6 +66,25 @@ public class ImportCsv extends AbstractCsvTool {
   private static final String FILE_NAME = "file or folder";
   private static final String FILE_SUFFIX = "csv";
 
+  private static final String MODE_ARGS = "m";
+  private static final String MODE_NAME = "mode";
+  private static final String SQL_MODE = "sql";
+  private static final String TABLET_MODE = "tablet";
+  private static final String TSFILE_MODE = "tsfile";
+
+  private static final String THREAD_NUM_ARGS = "tn";
+  private static final String THREAD_NUM_NAME = "threadNum";
+
+  private static final String CONNECTION_NUM_ARGS = "cn";
+  private static final String CONNECTION_NUM_NAME = "connectionNum";
+
+  private static final String TABLET_SIZE_ARGS = "ts";
+  private static final String TABLET_SIZE_NAME = "tabletSize";
+  private static final int DEFAULT_TABLET_SIZE = 1024;
+
+  private static final String TARGET_DIR_ARGS = "td";
+  private static final String TARGET_DIR_NAME = "targetDirectory";
+
   private static final String TSFILEDB_CLI_PREFIX = "ImportCsv";
   private static final String ERROR_INFO_STR = "csvInsertError.error";
 
@@ -73,6 +99,13 @@ public class ImportCsv extends AbstractCsvTool {
   private static int count;
   private static Statement statement;
 
+  private static String mode = SQL_MODE;
+  private static int threadNum = Runtime.getRuntime().availableProcessors();
+  private static int connectionNum = threadNum;
+  private static int tabletSize = DEFAULT_TABLET_SIZE;
+  private static String targetDirectory;
+  private static CsvTabletImporter tabletImporter;
+
   /**
    * create the commandline options.
    *
@@ -113,6 +146,35 @@ public class ImportCsv extends AbstractCsvTool {
         .desc("Time Zone eg. +08:00 or -01:00 (optional)").build();
     options.addOption(opTimeZone);
 
+    Option opMode = Option.builder(MODE_ARGS).longOpt(MODE_NAME).argName(MODE_NAME).hasArg()
+        .desc("sql: insert by SQL statements, tablet: insert by tablets in parallel, "
+            + "tsfile: write TsFiles into the target directory in parallel, which can be loaded "
+            + "later (optional, sql by default)").build();
+    options.addOption(opMode);
+
+    Option opThreadNum = Option.builder(THREAD_NUM_ARGS).longOpt(THREAD_NUM_NAME)
+        .argName(THREAD_NUM_NAME).hasArg()
+        .desc("Number of threads parsing the lines in tablet or tsfile mode "
+            + "(optional, the number of CPU cores by default)").build();
+    options.addOption(opThreadNum);
+
+    Option opConnectionNum = Option.builder(CONNECTION_NUM_ARGS).longOpt(CONNECTION_NUM_NAME)
+        .argName(CONNECTION_NUM_NAME).hasArg()
+        .desc("Number of connections inserting the tablets in tablet mode "
+            + "(optional, the number of threads by default)").build();
+    options.addOption(opConnectionNum);
+
+    Option opTabletSize = Option.builder(TABLET_SIZE_ARGS).longOpt(TABLET_SIZE_NAME)
+        .argName(TABLET_SIZE_NAME).hasArg()
+        .desc("Max number of rows of a tablet in tablet or tsfile mode (optional, "
+            + DEFAULT_TABLET_SIZE + " by default)").build();
+    options.addOption(opTabletSize);
+
+    Option opTargetDir = Option.builder(TARGET_DIR_ARGS).longOpt(TARGET_DIR_NAME)
+        .argName(TARGET_DIR_NAME).hasArg()
+        .desc("Directory of the TsFiles in tsfile mode (required in tsfile mode)").build();
+    options.addOption(opTargetDir);
+
     return options;
   }
 
@@ -212,6 +274,66 @@ public class ImportCsv extends AbstractCsvTool {
     }
   }
 
+  /**
+   * import a CSV file by the tabletImporter, the lines that cannot be imported are written into
+   * the error file.
+   */
+  private static void loadDataByTablets(File file, int index) {
+    File errorFile = new File(errorInsertInfo + index);
+    System.out.println("Start to import data from: " + file.getName());
+    boolean success = false;
+    try (BufferedWriter bw = new BufferedWriter(new FileWriter(errorFile))) {
+      bw.write("From " + file.getAbsolutePath());
+      bw.newLine();
+      bw.newLine();
+      success = tabletImporter.importFile(file, new JdbcSchemaResolver(), bw);
+    } catch (IOException e) {
+      System.out.println("Cannot import " + file.getName() + " because: " + e.getMessage());
+    } finally {
+      try {
+        if (success) {
+          FileUtils.forceDelete(errorFile);
+        } else {
+          System.out.println("Some lines in " + file.getAbsolutePath() + " are not imported, "
+              + "please check " + errorFile.getAbsolutePath() + " for more information");
+        }
+      } catch (IOException e) {
+        System.out.println("Close file error because: " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * get the schemas of the timeseries in the CSV file by "show timeseries".
+   */
+  private static class JdbcSchemaResolver implements SchemaResolver {
+
+    private final Map<String, String> deviceToStorageGroup = new ConcurrentHashMap<>();
+
+    @Override
+    public MeasurementSchema getSchema(String path) throws IOException {
+      try (Statement showStatement = connection.createStatement();
+          ResultSet resultSet = showStatement.executeQuery("show timeseries " + path)) {
+        if (!resultSet.next()) {
+          return null;
+        }
+        // the columns are timeseries, alias, storage group, dataType, encoding and compression
+        String deviceId = path.substring(0, path.lastIndexOf('.'));
+        deviceToStorageGroup.put(deviceId, resultSet.getString(3));
+        return new MeasurementSchema(path.substring(path.lastIndexOf('.') + 1),
+            TSDataType.valueOf(resultSet.getString(4)), TSEncoding.valueOf(resultSet.getString(5)),
+            CompressionType.valueOf(resultSet.getString(6)));
+      } catch (SQLException e) {
+        throw new IOException("Cannot get the schema of " + path, e);
+      }
+    }
+
+    @Override
+    public String getStorageGroup(String deviceId) {
+      return deviceToStorageGroup.get(deviceId);
+    }
+  }
+
   private static void executeSqls(BufferedWriter bw, List<String> tmp, long startTime, File file)
       throws IOException {
     try {
@@ -453,8 +575,30 @@ public class ImportCsv extends AbstractCsvTool {
     }
   }
 
-  private static void parseSpecialParams(CommandLine commandLine) {
+  private static void parseSpecialParams(CommandLine commandLine) throws ArgsErrorException {
     timeZoneID = commandLine.getOptionValue(TIME_ZONE_ARGS);
+    mode = commandLine.getOptionValue(MODE_ARGS, SQL_MODE);
+    if (!SQL_MODE.equals(mode) && !TABLET_MODE.equals(mode) && !TSFILE_MODE.equals(mode)) {
+      throw new ArgsErrorException("Unknown mode " + mode + ", it should be one of "
+          + SQL_MODE + ", " + TABLET_MODE + " and " + TSFILE_MODE);
+    }
+    try {
+      threadNum = Integer.parseInt(commandLine.getOptionValue(THREAD_NUM_ARGS,
+          String.valueOf(threadNum)));
+      connectionNum = Integer.parseInt(commandLine.getOptionValue(CONNECTION_NUM_ARGS,
+          String.valueOf(threadNum)));
+      tabletSize = Integer.parseInt(commandLine.getOptionValue(TABLET_SIZE_ARGS,
+          String.valueOf(DEFAULT_TABLET_SIZE)));
+    } catch (NumberFormatException e) {
+      throw new ArgsErrorException("Illegal number: " + e.getMessage());
+    }
+    if (threadNum <= 0 || connectionNum <= 0 || tabletSize <= 0) {
+      throw new ArgsErrorException("The number of threads, connections and the size of tablets "
+          + "should be positive");
+    }
+    if (TSFILE_MODE.equals(mode)) {
+      targetDirectory = checkRequiredArg(TARGET_DIR_ARGS, TARGET_DIR_NAME, commandLine);
+    }
   }
 
   public static void importCsvFromFile(String ip, String port, String username,
@@ -474,11 +618,27 @@ public class ImportCsv extends AbstractCsvTool {
       timeZoneID = timeZone;
       setTimeZone();
 
-      File file = new File(filename);
-      if (file.isFile()) {
-        importFromSingleFile(file);
-      } else if (file.isDirectory()) {
-        importFromDirectory(file);
+      if (TABLET_MODE.equals(mode)) {
+        SessionPool pool = new SessionPool(ip, Integer.parseInt(port), username, password,
+            connectionNum, zoneId);
+        try {
+          tabletImporter = new CsvTabletImporter(threadNum, tabletSize, zoneId,
+              CsvTabletImporter.toSessionPool(pool));
+          importFromFile(new File(filename));
+        } finally {
+          pool.close();
+        }
+      } else if (TSFILE_MODE.equals(mode)) {
+        File directory = new File(targetDirectory);
+        if (!directory.exists() && !directory.mkdirs()) {
+          System.out.println("Cannot create the target directory " + targetDirectory);
+          return;
+        }
+        tabletImporter = new CsvTabletImporter(threadNum, tabletSize, zoneId,
+            CsvTabletImporter.toTsFiles(directory));
+        importFromFile(new File(filename));
+      } else {
+        importFromFile(new File(filename));
       }
 
     } catch (ClassNotFoundException e) {
@@ -497,9 +657,25 @@ public class ImportCsv extends AbstractCsvTool {
     }
   }
 
+  private static void importFromFile(File file) {
+    if (file.isFile()) {
+      importFromSingleFile(file);
+    } else if (file.isDirectory()) {
+      importFromDirectory(file);
+    }
+  }
+
+  private static void loadData(File file, int index) {
+    if (SQL_MODE.equals(mode)) {
+      loadDataFromCSV(file, index);
+    } else {
+      loadDataByTablets(file, index);
+    }
+  }
+
   private static void importFromSingleFile(File file) {
     if (file.getName().endsWith(FILE_SUFFIX)) {
-      loadDataFromCSV(file, 1);
+      loadData(file, 1);
     } else {
       System.out.println("File "+ file.getName() +"  should ends with '.csv' if you want to import");
     }
@@ -515,7 +691,7 @@ public class ImportCsv extends AbstractCsvTool {
     for (File subFile : files) {
       if (subFile.isFile()) {
         if (subFile.getName().endsWith(FILE_SUFFIX)) {
-          loadDataFromCSV(subFile, i);
+          loadData(subFile, i);
           i++;
         } else {
           System.out.println("File " + file.getName() + " should ends with '.csv' if you want to import");
@@ -0,0 +1,517 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tool;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+import me.tongfei.progressbar.ProgressBar;
+import org.apache.iotdb.cli.AbstractCli;
+import org.apache.iotdb.rpc.IoTDBConnectionException;
+import org.apache.iotdb.rpc.StatementExecutionException;
+import org.apache.iotdb.session.SessionDataSet.DataBlock;
+import org.apache.iotdb.session.pool.SessionDataSetWrapper;
+import org.apache.iotdb.session.pool.SessionPool;
+import org.apache.iotdb.tool.CsvTabletImporter.TabletSink;
+import org.apache.iotdb.tool.CsvTabletImporter.TabletSinkFactory;
+import org.apache.iotdb.tsfile.exception.write.WriteProcessException;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.read.common.Field;
+import org.apache.iotdb.tsfile.read.common.RowRecord;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.BitMap;
+import org.apache.iotdb.tsfile.write.record.Tablet;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+
+/**
+ * Export the timeseries under a path prefix in parallel. The export is split by device and time
+ * range, and every split is queried by a raw data query and streamed block by block into a CSV
+ * shard, which is gzipped optionally, or into the TsFiles of the worker, which can be loaded by
+ * the "load" statement elsewhere.
+ */
+public class ParallelExporter {
+
+  private static final String TIME_COLUMN = "Time";
+
+  private final SessionPool pool;
+  private final int threadNum;
+  private final ZoneId zoneId;
+  private final String timeFormat;
+
+  private final AtomicLong exportedRowNum = new AtomicLong();
+  private final AtomicLong exportedPointNum = new AtomicLong();
+
+  /**
+   * @param pool       its size should be at least threadNum, as every worker holds a session
+   *                   while streaming a split
+   * @param timeFormat the time format of CSV files, the same as that of ExportCsv
+   */
+  public ParallelExporter(SessionPool pool, int threadNum, ZoneId zoneId, String timeFormat) {
+    this.pool = pool;
+    this.threadNum = threadNum;
+    this.zoneId = zoneId;
+    this.timeFormat = timeFormat;
+  }
+
+  /**
+   * the timeseries of a device to be exported.
+   */
+  static class DeviceSchema {
+
+    private final String deviceId;
+    private final String storageGroup;
+    private final List<MeasurementSchema> schemas = new ArrayList<>();
+
+    DeviceSchema(String deviceId, String storageGroup) {
+      this.deviceId = deviceId;
+      this.storageGroup = storageGroup;
+    }
+
+    List<String> getPaths() {
+      List<String> paths = new ArrayList<>(schemas.size());
+      for (MeasurementSchema schema : schemas) {
+        paths.add(deviceId + "." + schema.getMeasurementId());
+      }
+      return paths;
+    }
+  }
+
+  /**
+   * a device in a time range [startTime, endTime).
+   */
+  private static class Split {
+
+    private final DeviceSchema device;
+    private final int rangeIndex;
+    private final long startTime;
+    private final long endTime;
+
+    private Split(DeviceSchema device, int rangeIndex, long startTime, long endTime) {
+      this.device = device;
+      this.rangeIndex = rangeIndex;
+      this.startTime = startTime;
+      this.endTime = endTime;
+    }
+  }
+
+  /**
+   * writes the splits of a worker, the blocks of a split are read by nextBlock().
+   */
+  private interface SplitWriter extends Closeable {
+
+    void write(Split split, SessionDataSetWrapper dataSet)
+        throws IOException, IoTDBConnectionException, StatementExecutionException,
+        WriteProcessException;
+
+    @Override
+    default void close() throws IOException {
+      // nothing to close by default
+    }
+  }
+
+  private interface SplitWriterFactory {
+
+    SplitWriter create(int workerIndex) throws IOException;
+  }
+
+  /**
+   * export the timeseries into CSV files named {prefix}_{device}_{range}.csv, or .csv.gz if they
+   * are compressed. A split without any data has no file.
+   *
+   * @param startTime the start time of the export, inclusive, or null for the min time of data
+   * @param endTime   the end time of the export, exclusive, or null for the max time of data
+   * @param rangeNum  the number of time ranges every device is split into
+   */
+  public void exportCsv(String pathPrefix, Long startTime, Long endTime, int rangeNum,
+      File targetDirectory, String prefix, boolean compress)
+      throws IOException, IoTDBConnectionException, StatementExecutionException {
+    List<Split> splits = createSplits(pathPrefix, startTime, endTime, rangeNum);
+    export(splits, workerIndex -> (split, dataSet) -> {
+      String fileName = String.format("%s_%s_%d.csv%s", prefix, split.device.deviceId,
+          split.rangeIndex, compress ? ".gz" : "");
+      File file = new File(targetDirectory, fileName);
+      long rowNum = 0;
+      OutputStream outputStream = new FileOutputStream(file);
+      if (compress) {
+        outputStream = new GZIPOutputStream(outputStream, 64 * 1024);
+      }
+      try (BufferedWriter writer = new BufferedWriter(
+          new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 64 * 1024)) {
+        writer.write(TIME_COLUMN);
+        for (String path : split.device.getPaths()) {
+          writer.write(',');
+          writer.write(path);
+        }
+        writer.newLine();
+        DataBlock block;
+        while ((block = nextBlock(dataSet)) != null) {
+          writeCsvRows(block, writer);
+          rowNum += block.getRowSize();
+        }
+      }
+      if (rowNum == 0) {
+        Files.delete(file.toPath());
+      }
+    });
+  }
+
+  /**
+   * export the timeseries into TsFiles, every worker writes its own files, one for each storage
+   * group.
+   *
+   * @see #exportCsv(String, Long, Long, int, File, String, boolean)
+   */
+  public void exportTsFiles(String pathPrefix, Long startTime, Long endTime, int rangeNum,
+      File targetDirectory)
+      throws IOException, IoTDBConnectionException, StatementExecutionException {
+    // the splits of a worker are in time order, so the data of a device in a file is in order
+    List<Split> splits = createSplits(pathPrefix, startTime, endTime, rangeNum);
+    TabletSinkFactory sinkFactory = CsvTabletImporter.toTsFiles(targetDirectory);
+    export(splits, workerIndex -> {
+      TabletSink sink = sinkFactory.create(targetDirectory, workerIndex);
+      return new SplitWriter() {
+        @Override
+        public void write(Split split, SessionDataSetWrapper dataSet)
+            throws IOException, IoTDBConnectionException, StatementExecutionException,
+            WriteProcessException {
+          DataBlock block;
+          while ((block = nextBlock(dataSet)) != null) {
+            sink.write(toTablet(split.device, block), split.device.storageGroup);
+          }
+        }
+
+        @Override
+        public void close() throws IOException {
+          sink.close();
+        }
+      };
+    });
+  }
+
+  private void export(List<Split> splits, SplitWriterFactory writerFactory) throws IOException {
+    exportedRowNum.set(0);
+    exportedPointNum.set(0);
+    long startTime = System.currentTimeMillis();
+    Queue<Split> queue = new ConcurrentLinkedQueue<>(splits);
+    AtomicInteger threadIndex = new AtomicInteger();
+    ExecutorService workerPool = Executors.newFixedThreadPool(threadNum, r -> {
+      Thread thread = new Thread(r, "ExportCsv-worker-" + threadIndex.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    });
+    try (ProgressBar progressBar = new ProgressBar("Export", splits.size())) {
+      List<Future<Void>> workers = new ArrayList<>(threadNum);
+      for (int i = 0; i < threadNum; i++) {
+        int workerIndex = i;
+        // the writer is created by its worker, so that it is always closed by the worker
+        workers.add(workerPool.submit(() -> {
+          try (SplitWriter writer = writerFactory.create(workerIndex)) {
+            Split split;
+            while ((split = queue.poll()) != null) {
+              exportSplit(split, writer);
+              synchronized (progressBar) {
+                progressBar.step();
+                progressBar.setExtraMessage(String.format("%d points/s",
+                    exportedPointNum.get() * 1000
+                        / Math.max(System.currentTimeMillis() - startTime, 1)));
+              }
+            }
+          } catch (Exception e) {
+            // stop the other workers
+            queue.clear();
+            throw e;
+          }
+          return null;
+        }));
+      }
+      waitWorkers(workers);
+    } finally {
+      workerPool.shutdownNow();
+    }
+    long costTime = Math.max(System.currentTimeMillis() - startTime, 1);
+    System.out.println(String.format("Export finished: %d splits, %d rows and %d points are "
+            + "exported, it costs %dms, %d points/s", splits.size(), exportedRowNum.get(),
+        exportedPointNum.get(), costTime, exportedPointNum.get() * 1000 / costTime));
+  }
+
+  private void exportSplit(Split split, SplitWriter writer)
+      throws IOException, IoTDBConnectionException, StatementExecutionException,
+      WriteProcessException {
+    SessionDataSetWrapper dataSet = pool
+        .executeRawDataQuery(split.device.getPaths(), split.startTime, split.endTime);
+    try {
+      // the next block is fetched while the current one is written
+      dataSet.setPrefetch(true);
+      writer.write(split, dataSet);
+    } finally {
+      pool.closeResultSet(dataSet);
+    }
+  }
+
+  /**
+   * @return the next block of the data set, or null if there is no more data
+   */
+  private DataBlock nextBlock(SessionDataSetWrapper dataSet)
+      throws IoTDBConnectionException, StatementExecutionException {
+    DataBlock block = dataSet.nextBlock();
+    if (block != null) {
+      exportedRowNum.addAndGet(block.getRowSize());
+      long pointNum = 0;
+      for (int i = 0; i < block.getColumnNames().size(); i++) {
+        for (int row = 0; row < block.getRowSize(); row++) {
+          if (!block.isNull(i, row)) {
+            pointNum++;
+          }
+        }
+      }
+      exportedPointNum.addAndGet(pointNum);
+    }
+    return block;
+  }
+
+  private static void waitWorkers(List<Future<Void>> workers) throws IOException {
+    IOException exception = null;
+    for (Future<Void> worker : workers) {
+      try {
+        worker.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted when exporting", e);
+      } catch (ExecutionException e) {
+        if (exception == null) {
+          exception = e.getCause() instanceof IOException ? (IOException) e.getCause()
+              : new IOException(e.getCause());
+        }
+      }
+    }
+    if (exception != null) {
+      throw exception;
+    }
+  }
+
+  private List<Split> createSplits(String pathPrefix, Long startTime, Long endTime, int rangeNum)
+      throws IoTDBConnectionException, StatementExecutionException {
+    List<DeviceSchema> devices = getDevices(pathPrefix);
+    long start = startTime == null ? Long.MIN_VALUE : startTime;
+    long end = endTime == null ? Long.MAX_VALUE : endTime;
+    if (rangeNum > 1 && (startTime == null || endTime == null) && !devices.isEmpty()) {
+      long[] timeRange = getTimeRange(pathPrefix);
+      start = startTime == null ? timeRange[0] : startTime;
+      end = endTime == null ? timeRange[1] + 1 : endTime;
+    }
+    long[] bounds = splitTimeRange(start, end, rangeNum);
+    // in time order, so that every worker exports the time ranges of a device in order
+    List<Split> splits = new ArrayList<>(devices.size() * (bounds.length - 1));
+    for (int i = 0; i < bounds.length - 1; i++) {
+      for (DeviceSchema device : devices) {
+        splits.add(new Split(device, i, bounds[i], bounds[i + 1]));
+      }
+    }
+    return splits;
+  }
+
+  /**
+   * @return the bounds of the time ranges, the i-th range is [bounds[i], bounds[i + 1])
+   */
+  static long[] splitTimeRange(long startTime, long endTime, int rangeNum) {
+    if (endTime <= startTime) {
+      return new long[]{startTime, startTime};
+    }
+    // the length may overflow long if the range is not bounded
+    double length = ((double) endTime - startTime) / rangeNum;
+    long step = Math.max((long) Math.ceil(length), 1);
+    List<Long> bounds = new ArrayList<>(rangeNum + 1);
+    bounds.add(startTime);
+    long bound = startTime;
+    while (bounds.size() < rangeNum && (double) endTime - bound > step) {
+      bound += step;
+      bounds.add(bound);
+    }
+    bounds.add(endTime);
+    long[] result = new long[bounds.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = bounds.get(i);
+    }
+    return result;
+  }
+
+  private List<DeviceSchema> getDevices(String pathPrefix)
+      throws IoTDBConnectionException, StatementExecutionException {
+    Map<String, DeviceSchema> devices = new LinkedHashMap<>();
+    SessionDataSetWrapper dataSet = pool.executeQueryStatement("show timeseries " + pathPrefix);
+    try {
+      while (dataSet.hasNext()) {
+        // the columns are timeseries, alias, storage group, dataType, encoding and compression
+        List<Field> fields = dataSet.next().getFields();
+        String path = fields.get(0).getStringValue();
+        int separator = path.lastIndexOf('.');
+        String deviceId = path.substring(0, separator);
+        devices.computeIfAbsent(deviceId,
+            k -> new DeviceSchema(deviceId, fields.get(2).getStringValue()))
+            .schemas.add(new MeasurementSchema(path.substring(separator + 1),
+            TSDataType.valueOf(fields.get(3).getStringValue()),
+            TSEncoding.valueOf(fields.get(4).getStringValue()),
+            CompressionType.valueOf(fields.get(5).getStringValue())));
+      }
+    } finally {
+      pool.closeResultSet(dataSet);
+    }
+    return new ArrayList<>(devices.values());
+  }
+
+  /**
+   * @return the min and the max time of the data under the path prefix
+   */
+  private long[] getTimeRange(String pathPrefix)
+      throws IoTDBConnectionException, StatementExecutionException {
+    long[] timeRange = new long[]{Long.MAX_VALUE, Long.MIN_VALUE};
+    SessionDataSetWrapper dataSet = pool
+        .executeQueryStatement("select min_time(*), max_time(*) from " + pathPrefix);
+    try {
+      while (dataSet.hasNext()) {
+        RowRecord record = dataSet.next();
+        List<String> columnNames = dataSet.getColumnNames();
+        for (int i = 0; i < record.getFields().size(); i++) {
+          Field field = record.getFields().get(i);
+          if (field == null || field.getDataType() == null) {
+            continue;
+          }
+          // the column names may begin with the time column
+          String columnName = columnNames.get(columnNames.size() - record.getFields().size() + i);
+          if (columnName.startsWith("min_time")) {
+            timeRange[0] = Math.min(timeRange[0], field.getLongV());
+          } else {
+            timeRange[1] = Math.max(timeRange[1], field.getLongV());
+          }
+        }
+      }
+    } finally {
+      pool.closeResultSet(dataSet);
+    }
+    if (timeRange[0] > timeRange[1]) {
+      // no data
+      return new long[]{0, -1};
+    }
+    return timeRange;
+  }
+
+  private void writeCsvRows(DataBlock block, BufferedWriter writer) throws IOException {
+    long[] timestamps = block.getTimestamps();
+    List<TSDataType> types = block.getColumnTypes();
+    for (int row = 0; row < block.getRowSize(); row++) {
+      writer.write(formatTime(timestamps[row]));
+      for (int i = 0; i < types.size(); i++) {
+        writer.write(',');
+        if (!block.isNull(i, row)) {
+          writeValue(writer, types.get(i), block.getColumn(i), row);
+        }
+      }
+      writer.newLine();
+    }
+  }
+
+  private static void writeValue(BufferedWriter writer, TSDataType type, Object column, int row)
+      throws IOException {
+    switch (type) {
+      case BOOLEAN:
+        writer.write(String.valueOf(((boolean[]) column)[row]));
+        break;
+      case INT32:
+        writer.write(String.valueOf(((int[]) column)[row]));
+        break;
+      case INT64:
+        writer.write(String.valueOf(((long[]) column)[row]));
+        break;
+      case FLOAT:
+        writer.write(String.valueOf(((float[]) column)[row]));
+        break;
+      case DOUBLE:
+        writer.write(String.valueOf(((double[]) column)[row]));
+        break;
+      case TEXT:
+        writer.write('\'');
+        writer.write(((Binary[]) column)[row].getStringValue());
+        writer.write('\'');
+        break;
+      default:
+        throw new IOException("Data type " + type + " is not supported");
+    }
+  }
+
+  String formatTime(long time) {
+    switch (timeFormat) {
+      case "default":
+        return AbstractCli.parseLongToDateWithPrecision(DateTimeFormatter.ISO_OFFSET_DATE_TIME,
+            time, zoneId, "ms");
+      case "timestamp":
+      case "long":
+      case "number":
+        return String.valueOf(time);
+      default:
+        return ZonedDateTime.ofInstant(Instant.ofEpochMilli(time), zoneId)
+            .format(DateTimeFormatter.ofPattern(timeFormat));
+    }
+  }
+
+  /**
+   * wrap a block as a tablet of the device, the columns are shared rather than copied.
+   */
+  private static Tablet toTablet(DeviceSchema device, DataBlock block) {
+    Tablet tablet = new Tablet(device.deviceId, device.schemas, 0);
+    tablet.timestamps = block.getTimestamps();
+    tablet.rowSize = block.getRowSize();
+    tablet.values = new Object[device.schemas.size()];
+    tablet.bitMaps = new BitMap[device.schemas.size()];
+    for (int i = 0; i < tablet.values.length; i++) {
+      tablet.values[i] = block.getColumn(i);
+      tablet.bitMaps[i] = new BitMap(tablet.rowSize);
+      for (int row = 0; row < tablet.rowSize; row++) {
+        if (block.isNull(i, row)) {
+          tablet.bitMaps[i].mark(row);
+        }
+      }
+    }
+    return tablet;
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.apache.commons.io.FileUtils;
+import org.apache.iotdb.tool.CsvTabletImporter.SchemaResolver;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.read.ReadOnlyTsFile;
+import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
+import org.apache.iotdb.tsfile.read.common.Field;
+import org.apache.iotdb.tsfile.read.common.Path;
+import org.apache.iotdb.tsfile.read.common.RowRecord;
+import org.apache.iotdb.tsfile.read.expression.QueryExpression;
+import org.apache.iotdb.tsfile.read.query.dataset.QueryDataSet;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CsvTabletImporterTest {
+
+  private static final ZoneId ZONE_ID = ZoneId.of("+08:00");
+
+  private File directory;
+
+  private final SchemaResolver schemaResolver = new SchemaResolver() {
+    private final Map<String, MeasurementSchema> schemas = new HashMap<>();
+
+    {
+      schemas.put("root.sg.d1.s1",
+          new MeasurementSchema("s1", TSDataType.INT32, TSEncoding.RLE, CompressionType.SNAPPY));
+      schemas.put("root.sg.d1.s2",
+          new MeasurementSchema("s2", TSDataType.TEXT, TSEncoding.PLAIN, CompressionType.SNAPPY));
+      schemas.put("root.sg.d2.s1",
+          new MeasurementSchema("s1", TSDataType.DOUBLE, TSEncoding.GORILLA,
+              CompressionType.SNAPPY));
+    }
+
+    @Override
+    public MeasurementSchema getSchema(String path) {
+      return schemas.get(path);
+    }
+
+    @Override
+    public String getStorageGroup(String deviceId) {
+      return "root.sg";
+    }
+  };
+
+  @Before
+  public void setUp() throws IOException {
+    directory = new File("target" + File.separator + "CsvTabletImporterTest");
+    FileUtils.deleteDirectory(directory);
+    assertTrue(directory.mkdirs());
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(directory);
+  }
+
+  @Test
+  public void testSplitLine() {
+    assertEquals(Arrays.asList("1", "'a,b'", "", "\"c,'d\""),
+        CsvTabletImporter.splitLine("1,'a,b',,\"c,'d\""));
+  }
+
+  @Test
+  public void testParseTime() {
+    assertEquals(1000L, CsvTabletImporter.parseTime("1000", ZONE_ID));
+    assertEquals(1000L, CsvTabletImporter.parseTime("1970-01-01T08:00:01+08:00", ZONE_ID));
+    assertEquals(1001L, CsvTabletImporter.parseTime("1970/01/01 08:00:01.001", ZONE_ID));
+    assertEquals(1000L, CsvTabletImporter.parseTime("1970.01.01 00:00:01+0000", ZONE_ID));
+  }
+
+  @Test
+  public void testImportToTsFiles() throws IOException {
+    File csvFile = new File(directory, "data.csv");
+    Map<String, Map<Long, String>> expected = new TreeMap<>();
+    List<String> lines = new ArrayList<>();
+    lines.add("Time,root.sg.d1.s1,root.sg.d1.s2,root.sg.d2.s1");
+    // the rows are not in order, and some of them have null values
+    for (long time = 100; time > 0; time--) {
+      String s1 = time % 3 == 0 ? "" : String.valueOf(time);
+      String s2 = time % 4 == 0 ? "" : "'text," + time + "'";
+      String d2s1 = time % 5 == 0 ? "" : time + ".5";
+      lines.add(time + "," + s1 + "," + s2 + "," + d2s1);
+      if (!s1.isEmpty()) {
+        expected.computeIfAbsent("root.sg.d1.s1", k -> new TreeMap<>()).put(time, s1);
+      }
+      if (!s2.isEmpty()) {
+        expected.computeIfAbsent("root.sg.d1.s2", k -> new TreeMap<>())
+            .put(time, s2.substring(1, s2.length() - 1));
+      }
+      if (!d2s1.isEmpty()) {
+        expected.computeIfAbsent("root.sg.d2.s1", k -> new TreeMap<>()).put(time, d2s1);
+      }
+    }
+    lines.add("101,abc,x,1.0");
+    FileUtils.writeLines(csvFile, lines);
+
+    File tsFileDirectory = new File(directory, "tsfile");
+    assertTrue(tsFileDirectory.mkdirs());
+    CsvTabletImporter importer = new CsvTabletImporter(3, 7, ZONE_ID,
+        CsvTabletImporter.toTsFiles(tsFileDirectory));
+    StringWriter errors = new StringWriter();
+    try (BufferedWriter errorWriter = new BufferedWriter(errors)) {
+      assertFalse(importer.importFile(csvFile, schemaResolver, errorWriter));
+    }
+    assertTrue(errors.toString().contains("101,abc,x,1.0"));
+
+    File[] tsFiles = tsFileDirectory.listFiles();
+    assertNotNull(tsFiles);
+    Map<String, Map<Long, String>> actual = new TreeMap<>();
+    for (File tsFile : tsFiles) {
+      assertTrue(tsFile.getName().matches("\\d+-\\d+-0\\.tsfile"));
+      readTsFile(tsFile, actual);
+    }
+    assertEquals(expected, actual);
+  }
+
+  private void readTsFile(File tsFile, Map<String, Map<Long, String>> result) throws IOException {
+    try (TsFileSequenceReader reader = new TsFileSequenceReader(tsFile.getPath());
+        ReadOnlyTsFile readOnlyTsFile = new ReadOnlyTsFile(reader)) {
+      for (String device : reader.getAllDevices()) {
+        for (String measurement : reader.readDeviceMetadata(device).keySet()) {
+          Path path = new Path(device, measurement);
+          QueryDataSet dataSet = readOnlyTsFile
+              .query(QueryExpression.create(Arrays.asList(path), null));
+          Map<Long, String> values = result.computeIfAbsent(path.getFullPath(),
+              k -> new TreeMap<>());
+          while (dataSet.hasNext()) {
+            RowRecord record = dataSet.next();
+            Field field = record.getFields().get(0);
+            if (field != null && field.getDataType() != null) {
+              assertTrue(values.put(record.getTimestamp(), field.getStringValue()) == null);
+            }
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,411 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.commons.io.FileUtils;
+import org.apache.iotdb.rpc.IoTDBConnectionException;
+import org.apache.iotdb.rpc.RpcUtils;
+import org.apache.iotdb.rpc.StatementExecutionException;
+import org.apache.iotdb.service.rpc.thrift.TSFetchResultsResp;
+import org.apache.iotdb.service.rpc.thrift.TSIService;
+import org.apache.iotdb.service.rpc.thrift.TSQueryDataSet;
+import org.apache.iotdb.session.SessionDataSet;
+import org.apache.iotdb.session.pool.SessionDataSetWrapper;
+import org.apache.iotdb.session.pool.SessionPool;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.read.ReadOnlyTsFile;
+import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
+import org.apache.iotdb.tsfile.read.common.Field;
+import org.apache.iotdb.tsfile.read.common.Path;
+import org.apache.iotdb.tsfile.read.common.RowRecord;
+import org.apache.iotdb.tsfile.read.expression.QueryExpression;
+import org.apache.iotdb.tsfile.read.query.dataset.QueryDataSet;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelExporterTest {
+
+  private static final ZoneId ZONE_ID = ZoneId.of("+08:00");
+  /**
+   * the number of the rows in a fetch of the stub, so that a split is read in several blocks
+   */
+  private static final int FETCH_SIZE = 16;
+
+  private File directory;
+  private ExecutorService prefetchExecutor;
+  private StubSessionPool pool;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = new File("target" + File.separator + "ParallelExporterTest");
+    FileUtils.deleteDirectory(directory);
+    assertTrue(directory.mkdirs());
+    prefetchExecutor = Executors.newCachedThreadPool();
+    pool = new StubSessionPool(prefetchExecutor);
+    // root.sg.d2 has no data in [50, 100)
+    for (long time = 0; time < 100; time++) {
+      if (time % 3 != 0) {
+        pool.put("root.sg.d1.s1", time, (int) time);
+      }
+      if (time % 4 != 0) {
+        pool.put("root.sg.d1.s2", time, "text" + time);
+      }
+      if (time < 50 && time % 5 != 0) {
+        pool.put("root.sg.d2.s1", time, time + 0.5);
+      }
+    }
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    pool.close();
+    prefetchExecutor.shutdownNow();
+    FileUtils.deleteDirectory(directory);
+  }
+
+  @Test
+  public void testSplitTimeRange() {
+    assertArrayEquals(new long[]{0, 25, 50, 75, 100}, ParallelExporter.splitTimeRange(0, 100, 4));
+    assertArrayEquals(new long[]{0, 34, 68, 100}, ParallelExporter.splitTimeRange(0, 100, 3));
+    // a range is never empty
+    assertArrayEquals(new long[]{0, 1, 2, 3}, ParallelExporter.splitTimeRange(0, 3, 10));
+    assertArrayEquals(new long[]{Long.MIN_VALUE, Long.MAX_VALUE},
+        ParallelExporter.splitTimeRange(Long.MIN_VALUE, Long.MAX_VALUE, 1));
+    assertEquals(5, ParallelExporter.splitTimeRange(Long.MIN_VALUE, Long.MAX_VALUE, 4).length);
+    // no data
+    assertArrayEquals(new long[]{0, 0}, ParallelExporter.splitTimeRange(0, 0, 4));
+  }
+
+  @Test
+  public void testFormatTime() {
+    ZoneId zoneId = ZoneId.of("+08:00");
+    assertEquals("1000", new ParallelExporter(null, 1, zoneId, "long").formatTime(1000));
+    assertEquals("1970-01-01T08:00:01.000+08:00",
+        new ParallelExporter(null, 1, zoneId, "default").formatTime(1000));
+    assertEquals("1970-01-01 08:00:01.000",
+        new ParallelExporter(null, 1, zoneId, "yyyy-MM-dd HH:mm:ss.SSS").formatTime(1000));
+  }
+
+  @Test
+  public void testExportCsv()
+      throws IOException, IoTDBConnectionException, StatementExecutionException {
+    new ParallelExporter(pool, 2, ZONE_ID, "long")
+        .exportCsv("root.sg", 0L, 100L, 2, directory, "dump", false);
+
+    // the split of root.sg.d2 in [50, 100) has no file
+    File[] csvFiles = directory.listFiles();
+    assertNotNull(csvFiles);
+    Set<String> fileNames = new TreeSet<>();
+    Map<String, Map<Long, String>> actual = new TreeMap<>();
+    for (File csvFile : csvFiles) {
+      fileNames.add(csvFile.getName());
+      readCsvFile(csvFile, actual);
+    }
+    assertEquals(new TreeSet<>(Arrays.asList("dump_root.sg.d1_0.csv", "dump_root.sg.d1_1.csv",
+        "dump_root.sg.d2_0.csv")), fileNames);
+    assertEquals(pool.getExpected(), actual);
+    assertTrue(pool.allResultSetsClosed());
+  }
+
+  @Test
+  public void testExportTsFiles()
+      throws IOException, IoTDBConnectionException, StatementExecutionException {
+    new ParallelExporter(pool, 2, ZONE_ID, "long")
+        .exportTsFiles("root.sg", 0L, 100L, 2, directory);
+
+    File[] tsFiles = directory.listFiles();
+    assertNotNull(tsFiles);
+    Map<String, Map<Long, String>> actual = new TreeMap<>();
+    for (File tsFile : tsFiles) {
+      assertTrue(tsFile.getName().matches("\\d+-\\d+-0\\.tsfile"));
+      readTsFile(tsFile, actual);
+    }
+    assertEquals(pool.getExpected(), actual);
+    assertTrue(pool.allResultSetsClosed());
+  }
+
+  @Test
+  public void testExportFailure() throws IoTDBConnectionException, StatementExecutionException {
+    // the CSV files cannot be created
+    File targetDirectory = new File(directory, "notExist");
+    try {
+      new ParallelExporter(pool, 2, ZONE_ID, "long")
+          .exportCsv("root.sg", 0L, 100L, 2, targetDirectory, "dump", false);
+      fail();
+    } catch (IOException e) {
+      // expected
+    }
+    assertTrue(pool.allResultSetsClosed());
+  }
+
+  private void readCsvFile(File csvFile, Map<String, Map<Long, String>> result)
+      throws IOException {
+    List<String> lines = FileUtils.readLines(csvFile, StandardCharsets.UTF_8);
+    String[] header = lines.get(0).split(",", -1);
+    assertEquals("Time", header[0]);
+    for (String line : lines.subList(1, lines.size())) {
+      String[] values = line.split(",", -1);
+      assertEquals(header.length, values.length);
+      for (int i = 1; i < values.length; i++) {
+        if (values[i].isEmpty()) {
+          continue;
+        }
+        String value = values[i].startsWith("'")
+            ? values[i].substring(1, values[i].length() - 1) : values[i];
+        assertTrue(result.computeIfAbsent(header[i], k -> new TreeMap<>())
+            .put(Long.parseLong(values[0]), value) == null);
+      }
+    }
+  }
+
+  private void readTsFile(File tsFile, Map<String, Map<Long, String>> result) throws IOException {
+    try (TsFileSequenceReader reader = new TsFileSequenceReader(tsFile.getPath());
+        ReadOnlyTsFile readOnlyTsFile = new ReadOnlyTsFile(reader)) {
+      for (String device : reader.getAllDevices()) {
+        for (String measurement : reader.readDeviceMetadata(device).keySet()) {
+          Path path = new Path(device, measurement);
+          QueryDataSet dataSet = readOnlyTsFile
+              .query(QueryExpression.create(Arrays.asList(path), null));
+          Map<Long, String> values = result.computeIfAbsent(path.getFullPath(),
+              k -> new TreeMap<>());
+          while (dataSet.hasNext()) {
+            RowRecord record = dataSet.next();
+            Field field = record.getFields().get(0);
+            if (field != null && field.getDataType() != null) {
+              assertTrue(values.put(record.getTimestamp(), field.getStringValue()) == null);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * answers "show timeseries" and the raw data queries from the data in memory, every result set
+   * is fetched in blocks of FETCH_SIZE rows by a stub client.
+   */
+  private static class StubSessionPool extends SessionPool {
+
+    private final ExecutorService prefetchExecutor;
+    private final Map<String, MeasurementSchema> schemas = new LinkedHashMap<>();
+    private final Map<String, TreeMap<Long, Object>> data = new TreeMap<>();
+    private final Map<SessionDataSetWrapper, SessionDataSet> openedResultSets =
+        new ConcurrentHashMap<>();
+    private final Set<SessionDataSetWrapper> closedResultSets = ConcurrentHashMap.newKeySet();
+
+    private StubSessionPool(ExecutorService prefetchExecutor) {
+      super("127.0.0.1", 6667, "root", "root", 2);
+      this.prefetchExecutor = prefetchExecutor;
+      schemas.put("root.sg.d1.s1",
+          new MeasurementSchema("s1", TSDataType.INT32, TSEncoding.RLE, CompressionType.SNAPPY));
+      schemas.put("root.sg.d1.s2",
+          new MeasurementSchema("s2", TSDataType.TEXT, TSEncoding.PLAIN, CompressionType.SNAPPY));
+      schemas.put("root.sg.d2.s1",
+          new MeasurementSchema("s1", TSDataType.DOUBLE, TSEncoding.GORILLA,
+              CompressionType.SNAPPY));
+    }
+
+    private void put(String path, long time, Object value) {
+      data.computeIfAbsent(path, k -> new TreeMap<>()).put(time, value);
+    }
+
+    private Map<String, Map<Long, String>> getExpected() {
+      Map<String, Map<Long, String>> expected = new TreeMap<>();
+      for (Map.Entry<String, TreeMap<Long, Object>> entry : data.entrySet()) {
+        Map<Long, String> values = expected.computeIfAbsent(entry.getKey(), k -> new TreeMap<>());
+        entry.getValue().forEach((time, value) -> values.put(time, String.valueOf(value)));
+      }
+      return expected;
+    }
+
+    private boolean allResultSetsClosed() {
+      return !openedResultSets.isEmpty()
+          && openedResultSets.keySet().equals(closedResultSets);
+    }
+
+    @Override
+    public SessionDataSetWrapper executeQueryStatement(String sql) {
+      assertEquals("show timeseries root.sg", sql);
+      List<String> columnNames = Arrays.asList("timeseries", "alias", "storage group",
+          "dataType", "encoding", "compression");
+      List<TSDataType> types = Collections.nCopies(columnNames.size(), TSDataType.TEXT);
+      List<Long> times = new ArrayList<>();
+      List<Object[]> rows = new ArrayList<>();
+      for (Map.Entry<String, MeasurementSchema> entry : schemas.entrySet()) {
+        MeasurementSchema schema = entry.getValue();
+        times.add(0L);
+        rows.add(new Object[]{entry.getKey(), null, "root.sg", schema.getType().name(),
+            schema.getEncodingType().name(), schema.getCompressor().name()});
+      }
+      return createResultSet(sql, columnNames, types, times, rows, true);
+    }
+
+    @Override
+    public SessionDataSetWrapper executeRawDataQuery(List<String> paths, long startTime,
+        long endTime) {
+      List<TSDataType> types = new ArrayList<>();
+      Set<Long> timeSet = new TreeSet<>();
+      for (String path : paths) {
+        types.add(schemas.get(path).getType());
+        timeSet.addAll(data.get(path).subMap(startTime, endTime).keySet());
+      }
+      List<Long> times = new ArrayList<>(timeSet);
+      List<Object[]> rows = new ArrayList<>();
+      for (long time : times) {
+        Object[] row = new Object[paths.size()];
+        for (int i = 0; i < row.length; i++) {
+          row[i] = data.get(paths.get(i)).get(time);
+        }
+        rows.add(row);
+      }
+      return createResultSet("raw data query", paths, types, times, rows, false);
+    }
+
+    @Override
+    public void closeResultSet(SessionDataSetWrapper wrapper) {
+      if (closedResultSets.add(wrapper)) {
+        try {
+          openedResultSets.get(wrapper).closeOperationHandle();
+        } catch (IoTDBConnectionException | StatementExecutionException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    }
+
+    private SessionDataSetWrapper createResultSet(String sql, List<String> columnNames,
+        List<TSDataType> types, List<Long> times, List<Object[]> rows, boolean ignoreTimeStamp) {
+      Queue<TSQueryDataSet> blocks = new ConcurrentLinkedQueue<>();
+      for (int start = 0; start < rows.size(); start += FETCH_SIZE) {
+        int end = Math.min(start + FETCH_SIZE, rows.size());
+        blocks.add(encode(types, times.subList(start, end), rows.subList(start, end)));
+      }
+      List<String> typeNames = new ArrayList<>(types.size());
+      for (TSDataType type : types) {
+        typeNames.add(type.name());
+      }
+      TSQueryDataSet firstBlock = blocks.poll();
+      SessionDataSet dataSet = new SessionDataSet(sql, columnNames, typeNames, null, 0,
+          createClient(blocks), 0, firstBlock, ignoreTimeStamp, prefetchExecutor);
+      SessionDataSetWrapper wrapper = new SessionDataSetWrapper(dataSet, null, this);
+      openedResultSets.put(wrapper, dataSet);
+      return wrapper;
+    }
+
+    private static TSIService.Iface createClient(Queue<TSQueryDataSet> blocks) {
+      return (TSIService.Iface) Proxy.newProxyInstance(TSIService.Iface.class.getClassLoader(),
+          new Class[]{TSIService.Iface.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+              case "fetchResults":
+                TSQueryDataSet block = blocks.poll();
+                TSFetchResultsResp resp = new TSFetchResultsResp(RpcUtils.SUCCESS_STATUS,
+                    block != null, true);
+                if (block != null) {
+                  resp.setQueryDataSet(block);
+                }
+                return resp;
+              case "closeOperation":
+                return RpcUtils.SUCCESS_STATUS;
+              default:
+                throw new UnsupportedOperationException(method.getName());
+            }
+          });
+    }
+
+    /**
+     * encode the rows like the server, the bit of a row in the bitmap of a column is set if its
+     * value is not null.
+     */
+    private static TSQueryDataSet encode(List<TSDataType> types, List<Long> times,
+        List<Object[]> rows) {
+      ByteBuffer timeBuffer = ByteBuffer.allocate(times.size() * Long.BYTES);
+      for (long time : times) {
+        timeBuffer.putLong(time);
+      }
+      timeBuffer.flip();
+      List<ByteBuffer> valueList = new ArrayList<>(types.size());
+      List<ByteBuffer> bitmapList = new ArrayList<>(types.size());
+      try {
+        for (int i = 0; i < types.size(); i++) {
+          ByteArrayOutputStream valueStream = new ByteArrayOutputStream();
+          DataOutputStream valueOutput = new DataOutputStream(valueStream);
+          byte[] bitmap = new byte[(rows.size() + 7) / 8];
+          for (int row = 0; row < rows.size(); row++) {
+            Object value = rows.get(row)[i];
+            if (value == null) {
+              continue;
+            }
+            bitmap[row / 8] |= 0x80 >>> (row % 8);
+            switch (types.get(i)) {
+              case INT32:
+                valueOutput.writeInt((int) value);
+                break;
+              case DOUBLE:
+                valueOutput.writeDouble((double) value);
+                break;
+              case TEXT:
+                byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+                valueOutput.writeInt(bytes.length);
+                valueOutput.write(bytes);
+                break;
+              default:
+                throw new UnsupportedOperationException(types.get(i).name());
+            }
+          }
+          valueList.add(ByteBuffer.wrap(valueStream.toByteArray()));
+          bitmapList.add(ByteBuffer.wrap(bitmap));
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+      return new TSQueryDataSet(timeBuffer, valueList, bitmapList);
+    }
+  }
+}
@@ -92,7 +92,7 @@ namespace CompressionType{
 
     enum CompressionType
     {
-        UNCOMPRESSED, SNAPPY, GZIP, LZO, SDT, PAA, PLA, LZ4
+        UNCOMPRESSED, SNAPPY, GZIP, LZO, SDT, PAA, PLA, LZ4, ZSTD
     };
 }
 namespace TSDataType{
@@ -92,6 +92,16 @@ public class TsFileSequenceRead {
               }
             }
             break;
+          case MetaMarker.TIME_CHUNK_HEADER:
+          case MetaMarker.VALUE_CHUNK_HEADER:
+            // the pages of an aligned device are read by ChunkReader with the time chunk
+            System.out.println("\t[Aligned Chunk]");
+            System.out.println("\tposition: " + reader.position());
+            ChunkHeader alignedHeader = reader.readChunkHeader(marker);
+            System.out.println("\tMeasurement: " + alignedHeader.getMeasurementID());
+            System.out.println("\tpages: " + alignedHeader.getNumOfPages());
+            reader.position(reader.position() + alignedHeader.getDataSize());
+            break;
           case MetaMarker.CHUNK_GROUP_FOOTER:
             System.out.println("Chunk Group Footer position: " + reader.position());
             ChunkGroupFooter chunkGroupFooter = reader.readChunkGroupFooter();
@@ -20,25 +20,39 @@ package org.apache.iotdb.flink;
 
 import com.google.common.base.Preconditions;
 import org.apache.flink.configuration.Configuration;
+import org.apache.flink.runtime.state.FunctionInitializationContext;
+import org.apache.flink.runtime.state.FunctionSnapshotContext;
+import org.apache.flink.streaming.api.checkpoint.CheckpointedFunction;
 import org.apache.flink.streaming.api.functions.sink.RichSinkFunction;
 import org.apache.iotdb.session.pool.SessionPool;
 import org.apache.iotdb.tsfile.common.constant.TsFileConstant;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.write.record.Tablet;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * The `IoTDBSink` allows flink jobs to write events into IoTDB timeseries. By default send only one
  * event after another, but you can change to batch by invoking `withBatchSize(int)`.
  *
+ * When batching, the events are buffered in a tablet per device, which is sent when it has
+ * `batchSize` rows or every `flushIntervalMs`. The tablets are sent asynchronously, and at most
+ * `maxInFlightFlushes` of them are being sent at the same time, otherwise `invoke` waits. All the
+ * buffered events are sent when a checkpoint is taken, so the sink is at-least-once.
+ *
  * @param <IN> the input data type
  */
-public class IoTDBSink<IN> extends RichSinkFunction<IN> {
+public class IoTDBSink<IN> extends RichSinkFunction<IN> implements CheckpointedFunction {
 
   private static final long serialVersionUID = 1L;
   private static final Logger LOG = LoggerFactory.getLogger(IoTDBSink.class);
@@ -48,16 +62,32 @@ public class IoTDBSink<IN> extends RichSinkFunction<IN> {
   private Map<String, IoTDBOptions.TimeseriesOption> timeseriesOptionMap;
   private transient SessionPool pool;
   private transient ScheduledExecutorService scheduledExecutor;
+  private transient ExecutorService flushExecutor;
 
   private int batchSize = 0;
   private int flushIntervalMs = 3000;
-  private List<Event> batchList;
   private int sessionPoolSize = 2;
+  private int maxInFlightFlushes = 2;
+
+  /**
+   * device -> the tablet buffering the events of the device
+   */
+  private final Map<String, Tablet> tablets;
+
+  /**
+   * the permits of the tablets being sent
+   */
+  private transient Semaphore inFlightFlushes;
+
+  /**
+   * the first error of sending a tablet asynchronously, which fails the next invoke or checkpoint
+   */
+  private transient AtomicReference<Exception> flushError;
 
   public IoTDBSink(IoTDBOptions options, IoTSerializationSchema<IN> schema) {
     this.options = options;
     this.serializationSchema = schema;
-    this.batchList = new LinkedList<>();
+    this.tablets = new HashMap<>();
     this.timeseriesOptionMap = new HashMap<>();
     for (IoTDBOptions.TimeseriesOption timeseriesOption : options.getTimeseriesOptionList()) {
       timeseriesOptionMap.put(timeseriesOption.getPath(), timeseriesOption);
@@ -83,8 +113,14 @@ public class IoTDBSink<IN> extends RichSinkFunction<IN> {
     }
   }
 
+  /**
+   * start the threads sending the tablets and the timer flushing them, if batching is enabled.
+   */
   void initScheduler() {
     if (batchSize > 0) {
+      inFlightFlushes = new Semaphore(maxInFlightFlushes);
+      flushError = new AtomicReference<>();
+      flushExecutor = Executors.newFixedThreadPool(maxInFlightFlushes);
       scheduledExecutor = Executors.newSingleThreadScheduledExecutor();
       scheduledExecutor.scheduleAtFixedRate(() -> {
         try {
@@ -108,22 +144,47 @@ public class IoTDBSink<IN> extends RichSinkFunction<IN> {
       return;
     }
 
+    convertText(event.getDevice(), event.getMeasurements(), event.getValues());
     if (batchSize > 0) {
-      synchronized (batchList) {
-        batchList.add(event);
-        if (batchList.size() >= batchSize) {
-          flush();
+      checkFlushError();
+      synchronized (tablets) {
+        Tablet tablet = tablets.get(event.getDevice());
+        if (tablet != null && !hasSameSchema(tablet, event)) {
+          // the measurements of the device changed, so the events buffered are sent first
+          flush(tablets.remove(event.getDevice()));
+          tablet = null;
+        }
+        if (tablet == null) {
+          tablet = createTablet(event);
+          tablets.put(event.getDevice(), tablet);
+        }
+        addRow(tablet, event);
+        if (tablet.rowSize >= batchSize) {
+          flush(tablets.remove(event.getDevice()));
         }
-        return;
       }
+      return;
     }
 
-    convertText(event.getDevice(), event.getMeasurements(), event.getValues());
     pool.insertRecord(event.getDevice(), event.getTimestamp(), event.getMeasurements(),
         event.getTypes(), event.getValues());
     LOG.debug("send event successfully");
   }
 
+  @Override
+  public void snapshotState(FunctionSnapshotContext context) throws Exception {
+    if (batchSize > 0) {
+      flush();
+      waitForInFlightFlushes();
+      checkFlushError();
+    }
+  }
+
+  @Override
+  public void initializeState(FunctionInitializationContext context) {
+    // nothing is kept in the state, as the buffered events are sent before a checkpoint is taken
+  }
+
   public IoTDBSink<IN> withBatchSize(int batchSize) {
     Preconditions.checkArgument(batchSize >= 0);
     this.batchSize = batchSize;
@@ -142,18 +203,32 @@ public class IoTDBSink<IN> extends RichSinkFunction<IN> {
     return this;
   }
 
+  /**
+   * @param maxInFlightFlushes the max number of tablets being sent at the same time, it should not
+   * be larger than the session pool size
+   */
+  public IoTDBSink<IN> withMaxInFlightFlushes(int maxInFlightFlushes) {
+    Preconditions.checkArgument(maxInFlightFlushes > 0);
+    this.maxInFlightFlushes = maxInFlightFlushes;
+    return this;
+  }
+
   @Override
   public void close() throws Exception {
+    if (scheduledExecutor != null) {
+      scheduledExecutor.shutdown();
+    }
     if (pool != null) {
       try {
         flush();
+        waitForInFlightFlushes();
       } catch (Exception e) {
         LOG.error("flush error", e);
       }
       pool.close();
     }
-    if (scheduledExecutor != null) {
-      scheduledExecutor.shutdown();
+    if (flushExecutor != null) {
+      flushExecutor.shutdown();
     }
   }
 
@@ -171,29 +246,88 @@ public class IoTDBSink<IN> extends RichSinkFunction<IN> {
     }
   }
 
-  private void flush() throws Exception {
+  private boolean hasSameSchema(Tablet tablet, Event event) {
+    List<MeasurementSchema> schemas = tablet.getSchemas();
+    if (schemas.size() != event.getMeasurements().size()) {
+      return false;
+    }
+    for (int i = 0; i < schemas.size(); i++) {
+      if (!schemas.get(i).getMeasurementId().equals(event.getMeasurements().get(i))
+          || schemas.get(i).getType() != event.getTypes().get(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private Tablet createTablet(Event event) {
+    List<MeasurementSchema> schemas = new ArrayList<>();
+    for (int i = 0; i < event.getMeasurements().size(); i++) {
+      schemas.add(new MeasurementSchema(event.getMeasurements().get(i), event.getTypes().get(i)));
+    }
+    return new Tablet(event.getDevice(), schemas, batchSize);
+  }
+
+  private void addRow(Tablet tablet, Event event) {
+    int row = tablet.rowSize++;
+    tablet.addTimestamp(row, event.getTimestamp());
+    for (int i = 0; i < event.getMeasurements().size(); i++) {
+      Object value = event.getValues().get(i);
+      if (value instanceof String) {
+        value = new Binary((String) value);
+      }
+      tablet.addValue(event.getMeasurements().get(i), row, value);
+    }
+  }
+
+  /**
+   * send all the buffered tablets asynchronously.
+   */
+  private void flush() throws InterruptedException {
     if (batchSize > 0) {
-      synchronized (batchList) {
-        if (batchList.size() > 0) {
-          List<String> deviceIds = new ArrayList<>();
-          List<Long> timestamps = new ArrayList<>();
-          List<List<String>> measurementsList = new ArrayList<>();
-          List<List<TSDataType>> typesList = new ArrayList<>();
-          List<List<Object>> valuesList = new ArrayList<>();
-
-          for (Event event : batchList) {
-            convertText(event.getDevice(), event.getMeasurements(), event.getValues());
-            deviceIds.add(event.getDevice());
-            timestamps.add(event.getTimestamp());
-            measurementsList.add(event.getMeasurements());
-            typesList.add(event.getTypes());
-            valuesList.add(event.getValues());
-          }
-          pool.insertRecords(deviceIds, timestamps, measurementsList, typesList, valuesList);
-          LOG.debug("send event successfully");
-          batchList.clear();
+      synchronized (tablets) {
+        for (Tablet tablet : tablets.values()) {
+          flush(tablet);
         }
+        tablets.clear();
       }
     }
   }
+
+  /**
+   * send a tablet asynchronously, waiting if maxInFlightFlushes tablets are being sent.
+   */
+  private void flush(Tablet tablet) throws InterruptedException {
+    inFlightFlushes.acquire();
+    try {
+      flushExecutor.submit(() -> {
+        try {
+          pool.insertTablet(tablet);
+          LOG.debug("send event successfully");
+        } catch (Exception e) {
+          LOG.error("send tablet of {} error", tablet.deviceId, e);
+          flushError.compareAndSet(null, e);
+        } finally {
+          inFlightFlushes.release();
+        }
+      });
+    } catch (RuntimeException e) {
+      inFlightFlushes.release();
+      throw e;
+    }
+  }
+
+  private void waitForInFlightFlushes() throws InterruptedException {
+    if (inFlightFlushes != null) {
+      inFlightFlushes.acquire(maxInFlightFlushes);
+      inFlightFlushes.release(maxInFlightFlushes);
+    }
+  }
+
+  private void checkFlushError() throws Exception {
+    Exception e = flushError.getAndSet(null);
+    if (e != null) {
+      throw new Exception("Failed to send the events to IoTDB", e);
+    }
+  }
 }
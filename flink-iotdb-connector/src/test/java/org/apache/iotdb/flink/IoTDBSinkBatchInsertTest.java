@@ -20,14 +20,16 @@ package org.apache.iotdb.flink;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 
 import com.google.common.collect.Lists;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import org.apache.iotdb.session.pool.SessionPool;
+import org.apache.iotdb.tsfile.write.record.Tablet;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -43,6 +45,7 @@ public class IoTDBSinkBatchInsertTest {
         Lists.newArrayList(new IoTDBOptions.TimeseriesOption("root.sg.D01.temperature")));
     ioTDBSink = new IoTDBSink(options, new DefaultIoTSerializationSchema());
     ioTDBSink.withBatchSize(3);
+    ioTDBSink.initScheduler();
 
     pool = mock(SessionPool.class);
     ioTDBSink.setSessionPool(pool);
@@ -78,8 +81,7 @@ public class IoTDBSinkBatchInsertTest {
     tuple.put("values", "37.1");
     ioTDBSink.invoke(tuple, null);
 
-    verify(pool).insertRecords(any(List.class), any(List.class), any(List.class), any(List.class),
-        any(List.class));
+    verify(pool, timeout(1000)).insertTablet(any(Tablet.class));
 
     tuple = new HashMap();
     tuple.put("device", "root.sg.D01");
@@ -104,8 +106,34 @@ public class IoTDBSinkBatchInsertTest {
     verifyZeroInteractions(pool);
 
     ioTDBSink.close();
-    verify(pool).insertRecords(any(List.class), any(List.class), any(List.class), any(List.class),
-        any(List.class));
+    verify(pool).insertTablet(any(Tablet.class));
     verify(pool).close();
   }
+
+  @Test
+  public void testSnapshotState() throws Exception {
+    Map<String, String> tuple = new HashMap();
+    tuple.put("device", "root.sg.D01");
+    tuple.put("timestamp", "1581861293000");
+    tuple.put("measurements", "temperature");
+    tuple.put("types", "DOUBLE");
+    tuple.put("values", "36.5");
+    ioTDBSink.invoke(tuple, null);
+
+    tuple = new HashMap();
+    tuple.put("device", "root.sg.D02");
+    tuple.put("timestamp", "1581861293000");
+    tuple.put("measurements", "temperature");
+    tuple.put("types", "DOUBLE");
+    tuple.put("values", "37.2");
+    ioTDBSink.invoke(tuple, null);
+    verifyZeroInteractions(pool);
+
+    // the tablets of both devices are sent before the checkpoint is taken
+    ioTDBSink.snapshotState(null);
+    verify(pool, times(2)).insertTablet(any(Tablet.class));
+
+    ioTDBSink.snapshotState(null);
+    verifyZeroInteractions(pool);
+  }
 }
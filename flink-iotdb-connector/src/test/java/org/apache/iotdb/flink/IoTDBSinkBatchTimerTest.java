@@ -25,9 +25,9 @@ import static org.mockito.Mockito.verifyZeroInteractions;
 
 import com.google.common.collect.Lists;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import org.apache.iotdb.session.pool.SessionPool;
+import org.apache.iotdb.tsfile.write.record.Tablet;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -62,8 +62,7 @@ public class IoTDBSinkBatchTimerTest {
 
     Thread.sleep(2500);
 
-    verify(pool).insertRecords(any(List.class), any(List.class), any(List.class), any(List.class),
-        any(List.class));
+    verify(pool).insertTablet(any(Tablet.class));
 
     Thread.sleep(1000);
 
@@ -41,9 +41,13 @@ public enum ThreadName {
   SYNC_CLIENT("Sync-Client"),
   SYNC_SERVER("Sync-Server"),
   SYNC_MONITOR("Sync-Monitor"),
+  SYNC_FILE_TRANSFER("Sync-File-Transfer"),
   LOAD_TSFILE("Load TsFile"),
   TIME_COST_STATSTIC("TIME_COST_STATSTIC"),
-  QUERY_SERVICE("Query-ServerServiceImpl");
+  QUERY_SERVICE("Query-ServerServiceImpl"),
+  CHUNK_PREFETCH_SERVICE("Chunk-Prefetch-ServerServiceImpl"),
+  RESULT_READ_AHEAD_SERVICE("Result-Read-Ahead-ServerServiceImpl"),
+  MQTT_INGESTION_SERVICE("MQTT-Ingestion-ServerServiceImpl");
 
   private String name;
 
@@ -26,11 +26,13 @@ import java.util.regex.Pattern;
 import org.apache.iotdb.db.conf.directories.DirectoryManager;
 import org.apache.iotdb.db.engine.merge.selector.MergeFileStrategy;
 import org.apache.iotdb.db.engine.compaction.CompactionStrategy;
+import org.apache.iotdb.db.engine.storagegroup.timeindex.TimeIndexLevel;
 import org.apache.iotdb.db.exception.LoadConfigurationException;
 import org.apache.iotdb.db.metadata.MManager;
 import org.apache.iotdb.db.service.TSServiceImpl;
 import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
 import org.apache.iotdb.tsfile.common.constant.TsFileConstant;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
 import org.apache.iotdb.tsfile.fileSystem.FSType;
@@ -98,6 +100,29 @@ public class IoTDBConfig {
    */
   private int mqttMaxMessageSize = 1048576;
 
+  /**
+   * the number of threads inserting the mqtt messages, if it is 0, the messages are inserted by
+   * the broker handler threads.
+   */
+  private int mqttIngestionThreadNum = Runtime.getRuntime().availableProcessors();
+
+  /**
+   * the max number of mqtt messages inserted by an ingestion thread at once.
+   */
+  private int mqttIngestionBatchSize = 1000;
+
+  /**
+   * the max time in ms an mqtt message waits in an ingestion thread for more messages to be
+   * inserted with.
+   */
+  private long mqttIngestionBatchLingerMs = 10;
+
+  /**
+   * the max number of mqtt payloads waiting in an ingestion thread, the broker handler threads
+   * block when it is reached.
+   */
+  private int mqttIngestionQueueSize = 10000;
+
 
   /**
    * Rpc binding address.
@@ -141,6 +166,12 @@ public class IoTDBConfig {
 
   private volatile int maxQueryDeduplicatedPathNum = 1000;
 
+  /**
+   * When the memory for reading is exhausted, a new query waits at most this time (in ms) for
+   * memory released by other queries before it is executed anyway. 0 means never wait.
+   */
+  private int maxWaitingTimeWhenQueryBlockedInMs = 10000;
+
   /**
    * Ratio of memory allocated for buffered arrays
    */
@@ -301,6 +332,13 @@ public class IoTDBConfig {
    */
   private int mergePagePointNumberThreshold = 100;
 
+  /**
+   * Works when the compaction_strategy is LEVEL_COMPACTION.
+   * When the number of chunk metadata a compaction keeps in memory reaches this, they are spilled
+   * to a temp file beside the target file. When <= 0, they are never spilled.
+   */
+  private int mergeChunkMetadataSpillThreshold = 100000;
+
   /**
    * LEVEL_COMPACTION, NO_COMPACTION
    */
@@ -340,6 +378,25 @@ public class IoTDBConfig {
    */
   private int unseqLevelNum = 1;
 
+  /**
+   * Works when the compaction_strategy is LEVEL_COMPACTION.
+   * Whether to rewrite cold data with coldDataCompressor and the encoding that takes the least
+   * space for each chunk when compacting it. Data is cold when it is merged to the highest level,
+   * or when all of it is older than coldDataAgeThresholdInMs.
+   */
+  private boolean enableColdDataRecompression = false;
+
+  /**
+   * The compressor of cold data.
+   */
+  private CompressionType coldDataCompressor = CompressionType.GZIP;
+
+  /**
+   * Data older than this is cold no matter which level it is merged to. Unit: millis.
+   * When <= 0, only the data merged to the highest level is cold.
+   */
+  private long coldDataAgeThresholdInMs = -1;
+
   /**
    * whether to cache meta data(ChunkMetaData and TsFileMetaData) or not.
    */
@@ -360,11 +417,63 @@ public class IoTDBConfig {
    */
   private long allocateMemoryForChunkCache = allocateMemoryForRead / 10;
 
+  /**
+   * Whether the series reader reads the upcoming chunks of sequence files into the chunk cache
+   * asynchronously.
+   */
+  private boolean enableChunkPrefetch = false;
+
+  /**
+   * How many chunks ahead of the current one are read asynchronously by one series reader.
+   */
+  private int chunkPrefetchNum = 4;
+
+  /**
+   * How many threads read chunks ahead for all queries. When <= 0, use CPU core number.
+   */
+  private int chunkPrefetchThread = Runtime.getRuntime().availableProcessors();
+
+  /**
+   * Chunks of the same file whose offsets are within this range (in byte) are read ahead with one
+   * read.
+   */
+  private int chunkPrefetchCoalesceSize = 1024 * 1024;
+
+  /**
+   * How many threads produce the next result blocks of queries whose clients ask for read ahead.
+   * When <= 0, use CPU core number.
+   */
+  private int resultReadAheadThread = Runtime.getRuntime().availableProcessors();
+
   /**
    * Whether to enable Last cache
    */
   private boolean lastCacheEnable = true;
 
+  /**
+   * Whether to cache the results of GROUP BY time intervals that are only covered by sealed
+   * TsFiles, so that repeated GROUP BY queries only recompute the intervals with new data.
+   */
+  private boolean enableGroupByResultCache = false;
+
+  /**
+   * Memory (in byte) used by the cached GROUP BY results.
+   */
+  private long groupByResultCacheSize = 64L * 1024 * 1024;
+
+  /**
+   * The time index kept in memory for each closed TsFile. FILE_TIME_INDEX only keeps the time range
+   * of the whole file and loads the times of each device from the .resource file when needed, which
+   * saves memory when there are many devices and files.
+   */
+  private TimeIndexLevel timeIndexLevel = TimeIndexLevel.DEVICE_TIME_INDEX;
+
+  /**
+   * Memory (in byte) used by the cached times of each device of the closed TsFiles, which only
+   * works when timeIndexLevel is FILE_TIME_INDEX.
+   */
+  private long deviceTimeIndexCacheSize = 64L * 1024 * 1024;
+
   /**
    * The statMonitor writes statistics info into IoTDB every backLoopPeriodSec secs. The default
    * value is 5s.
@@ -395,7 +504,8 @@ public class IoTDBConfig {
   private int mRemoteSchemaCacheSize = 100000;
 
   /**
-   * Is external sort enable.
+   * Is external sort enable. If enabled, the pages merged by a query are also written into
+   * temporary files when the memory for reading is exhausted.
    */
   private boolean enableExternalSort = true;
 
@@ -453,6 +563,20 @@ public class IoTDBConfig {
    */
   private boolean chunkBufferPoolEnable = false;
 
+  /**
+   * Whether to select the encoding of each chunk when flushing a memtable. The first
+   * adaptiveEncodingSampleSize points of the chunk are encoded by every lossless encoding of the
+   * data type, and the one that takes the least space is used instead of the encoding of the
+   * series.
+   */
+  private boolean enableAdaptiveEncoding = false;
+
+  /**
+   * The number of points of a chunk encoded by each candidate encoding when selecting the
+   * encoding of the chunk, both for adaptive encoding and cold data recompression.
+   */
+  private int adaptiveEncodingSampleSize = 4096;
+
   /**
    * Switch of watermark function
    */
@@ -1213,6 +1337,22 @@ public class IoTDBConfig {
     this.chunkBufferPoolEnable = chunkBufferPoolEnable;
   }
 
+  public boolean isEnableAdaptiveEncoding() {
+    return enableAdaptiveEncoding;
+  }
+
+  public void setEnableAdaptiveEncoding(boolean enableAdaptiveEncoding) {
+    this.enableAdaptiveEncoding = enableAdaptiveEncoding;
+  }
+
+  public int getAdaptiveEncodingSampleSize() {
+    return adaptiveEncodingSampleSize;
+  }
+
+  public void setAdaptiveEncodingSampleSize(int adaptiveEncodingSampleSize) {
+    this.adaptiveEncodingSampleSize = adaptiveEncodingSampleSize;
+  }
+
   public long getMergeMemoryBudget() {
     return mergeMemoryBudget;
   }
@@ -1429,6 +1569,14 @@ public class IoTDBConfig {
     this.mergePagePointNumberThreshold = mergePagePointNumberThreshold;
   }
 
+  public int getMergeChunkMetadataSpillThreshold() {
+    return mergeChunkMetadataSpillThreshold;
+  }
+
+  public void setMergeChunkMetadataSpillThreshold(int mergeChunkMetadataSpillThreshold) {
+    this.mergeChunkMetadataSpillThreshold = mergeChunkMetadataSpillThreshold;
+  }
+
   public MergeFileStrategy getMergeFileStrategy() {
     return mergeFileStrategy;
   }
@@ -1488,6 +1636,30 @@ public class IoTDBConfig {
     this.unseqLevelNum = unseqLevelNum;
   }
 
+  public boolean isEnableColdDataRecompression() {
+    return enableColdDataRecompression;
+  }
+
+  public void setEnableColdDataRecompression(boolean enableColdDataRecompression) {
+    this.enableColdDataRecompression = enableColdDataRecompression;
+  }
+
+  public CompressionType getColdDataCompressor() {
+    return coldDataCompressor;
+  }
+
+  public void setColdDataCompressor(CompressionType coldDataCompressor) {
+    this.coldDataCompressor = coldDataCompressor;
+  }
+
+  public long getColdDataAgeThresholdInMs() {
+    return coldDataAgeThresholdInMs;
+  }
+
+  public void setColdDataAgeThresholdInMs(long coldDataAgeThresholdInMs) {
+    this.coldDataAgeThresholdInMs = coldDataAgeThresholdInMs;
+  }
+
   public int getMergeChunkSubThreadNum() {
     return mergeChunkSubThreadNum;
   }
@@ -1537,6 +1709,46 @@ public class IoTDBConfig {
     this.allocateMemoryForChunkMetaDataCache = allocateMemoryForChunkMetaDataCache;
   }
 
+  public boolean isEnableChunkPrefetch() {
+    return enableChunkPrefetch;
+  }
+
+  public void setEnableChunkPrefetch(boolean enableChunkPrefetch) {
+    this.enableChunkPrefetch = enableChunkPrefetch;
+  }
+
+  public int getChunkPrefetchNum() {
+    return chunkPrefetchNum;
+  }
+
+  public void setChunkPrefetchNum(int chunkPrefetchNum) {
+    this.chunkPrefetchNum = chunkPrefetchNum;
+  }
+
+  public int getChunkPrefetchThread() {
+    return chunkPrefetchThread;
+  }
+
+  void setChunkPrefetchThread(int chunkPrefetchThread) {
+    this.chunkPrefetchThread = chunkPrefetchThread;
+  }
+
+  public int getChunkPrefetchCoalesceSize() {
+    return chunkPrefetchCoalesceSize;
+  }
+
+  public void setChunkPrefetchCoalesceSize(int chunkPrefetchCoalesceSize) {
+    this.chunkPrefetchCoalesceSize = chunkPrefetchCoalesceSize;
+  }
+
+  public int getResultReadAheadThread() {
+    return resultReadAheadThread;
+  }
+
+  void setResultReadAheadThread(int resultReadAheadThread) {
+    this.resultReadAheadThread = resultReadAheadThread;
+  }
+
   public long getAllocateMemoryForChunkCache() {
     return allocateMemoryForChunkCache;
   }
@@ -1553,6 +1765,38 @@ public class IoTDBConfig {
     this.lastCacheEnable = lastCacheEnable;
   }
 
+  public boolean isEnableGroupByResultCache() {
+    return enableGroupByResultCache;
+  }
+
+  public void setEnableGroupByResultCache(boolean enableGroupByResultCache) {
+    this.enableGroupByResultCache = enableGroupByResultCache;
+  }
+
+  public long getGroupByResultCacheSize() {
+    return groupByResultCacheSize;
+  }
+
+  public void setGroupByResultCacheSize(long groupByResultCacheSize) {
+    this.groupByResultCacheSize = groupByResultCacheSize;
+  }
+
+  public TimeIndexLevel getTimeIndexLevel() {
+    return timeIndexLevel;
+  }
+
+  public void setTimeIndexLevel(TimeIndexLevel timeIndexLevel) {
+    this.timeIndexLevel = timeIndexLevel;
+  }
+
+  public long getDeviceTimeIndexCacheSize() {
+    return deviceTimeIndexCacheSize;
+  }
+
+  public void setDeviceTimeIndexCacheSize(long deviceTimeIndexCacheSize) {
+    this.deviceTimeIndexCacheSize = deviceTimeIndexCacheSize;
+  }
+
   public boolean isEnableWatermark() {
     return enableWatermark;
   }
@@ -1946,6 +2190,38 @@ public class IoTDBConfig {
     this.mqttMaxMessageSize = mqttMaxMessageSize;
   }
 
+  public int getMqttIngestionThreadNum() {
+    return mqttIngestionThreadNum;
+  }
+
+  public void setMqttIngestionThreadNum(int mqttIngestionThreadNum) {
+    this.mqttIngestionThreadNum = mqttIngestionThreadNum;
+  }
+
+  public int getMqttIngestionBatchSize() {
+    return mqttIngestionBatchSize;
+  }
+
+  public void setMqttIngestionBatchSize(int mqttIngestionBatchSize) {
+    this.mqttIngestionBatchSize = mqttIngestionBatchSize;
+  }
+
+  public long getMqttIngestionBatchLingerMs() {
+    return mqttIngestionBatchLingerMs;
+  }
+
+  public void setMqttIngestionBatchLingerMs(long mqttIngestionBatchLingerMs) {
+    this.mqttIngestionBatchLingerMs = mqttIngestionBatchLingerMs;
+  }
+
+  public int getMqttIngestionQueueSize() {
+    return mqttIngestionQueueSize;
+  }
+
+  public void setMqttIngestionQueueSize(int mqttIngestionQueueSize) {
+    this.mqttIngestionQueueSize = mqttIngestionQueueSize;
+  }
+
   public int getTagAttributeTotalSize() {
     return tagAttributeTotalSize;
   }
@@ -2006,6 +2282,14 @@ public class IoTDBConfig {
     this.maxQueryDeduplicatedPathNum = maxQueryDeduplicatedPathNum;
   }
 
+  public int getMaxWaitingTimeWhenQueryBlocked() {
+    return maxWaitingTimeWhenQueryBlockedInMs;
+  }
+
+  public void setMaxWaitingTimeWhenQueryBlocked(int maxWaitingTimeWhenQueryBlocked) {
+    this.maxWaitingTimeWhenQueryBlockedInMs = maxWaitingTimeWhenQueryBlocked;
+  }
+
   public int getWaitingTimeWhenInsertBlocked() {
     return waitingTimeWhenInsertBlockedInMs;
   }
@@ -101,6 +101,7 @@ public class IoTDBConstant {
   public static final String SYNC_FOLDER_NAME = "sync";
   public static final String QUERY_FOLDER_NAME = "query";
   public static final String TRACING_FOLDER_NAME = "tracing";
+  public static final String UPLOAD_FOLDER_NAME = "upload";
   public static final String TRACING_LOG = "tracing.txt";
 
   // mqtt  
@@ -110,4 +111,8 @@ public class IoTDBConstant {
   public static final String MQTT_HANDLER_POOL_SIZE_NAME = "mqtt_handler_pool_size";
   public static final String MQTT_PAYLOAD_FORMATTER_NAME = "mqtt_payload_formatter";
   public static final String MQTT_MAX_MESSAGE_SIZE = "mqtt_max_message_size";
+  public static final String MQTT_INGESTION_THREAD_NUM = "mqtt_ingestion_thread_num";
+  public static final String MQTT_INGESTION_BATCH_SIZE = "mqtt_ingestion_batch_size";
+  public static final String MQTT_INGESTION_BATCH_LINGER_MS = "mqtt_ingestion_batch_linger_ms";
+  public static final String MQTT_INGESTION_QUEUE_SIZE = "mqtt_ingestion_queue_size";
 }
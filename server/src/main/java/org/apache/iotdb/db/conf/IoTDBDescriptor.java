@@ -33,9 +33,11 @@ import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 import org.apache.iotdb.db.conf.directories.DirectoryManager;
 import org.apache.iotdb.db.engine.compaction.CompactionStrategy;
+import org.apache.iotdb.db.engine.storagegroup.timeindex.TimeIndexLevel;
 import org.apache.iotdb.db.exception.query.QueryProcessException;
 import org.apache.iotdb.db.utils.FilePathUtils;
 import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
 import org.apache.iotdb.tsfile.fileSystem.FSType;
@@ -219,6 +221,46 @@ public class IoTDBDescriptor {
       conf.setEnableLastCache(Boolean.parseBoolean(properties.getProperty("enable_last_cache",
           Boolean.toString(conf.isLastCacheEnabled()))));
 
+      conf.setEnableGroupByResultCache(Boolean.parseBoolean(properties
+          .getProperty("enable_group_by_result_cache",
+              Boolean.toString(conf.isEnableGroupByResultCache()))));
+
+      conf.setGroupByResultCacheSize(Long.parseLong(properties
+          .getProperty("group_by_result_cache_size",
+              Long.toString(conf.getGroupByResultCacheSize()))));
+
+      conf.setTimeIndexLevel(TimeIndexLevel.valueOf(properties
+          .getProperty("time_index_level", conf.getTimeIndexLevel().toString())));
+
+      conf.setDeviceTimeIndexCacheSize(Long.parseLong(properties
+          .getProperty("device_time_index_cache_size",
+              Long.toString(conf.getDeviceTimeIndexCacheSize()))));
+
+      conf.setEnableChunkPrefetch(Boolean.parseBoolean(properties
+          .getProperty("enable_chunk_prefetch", Boolean.toString(conf.isEnableChunkPrefetch()))));
+
+      conf.setChunkPrefetchNum(Integer.parseInt(properties
+          .getProperty("chunk_prefetch_num", Integer.toString(conf.getChunkPrefetchNum()))));
+
+      conf.setChunkPrefetchThread(Integer.parseInt(properties
+          .getProperty("chunk_prefetch_thread", Integer.toString(conf.getChunkPrefetchThread()))));
+
+      if (conf.getChunkPrefetchThread() <= 0) {
+        conf.setChunkPrefetchThread(Runtime.getRuntime().availableProcessors());
+      }
+
+      conf.setChunkPrefetchCoalesceSize(Integer.parseInt(properties
+          .getProperty("chunk_prefetch_coalesce_size",
+              Integer.toString(conf.getChunkPrefetchCoalesceSize()))));
+
+      conf.setResultReadAheadThread(Integer.parseInt(properties
+          .getProperty("result_read_ahead_thread",
+              Integer.toString(conf.getResultReadAheadThread()))));
+
+      if (conf.getResultReadAheadThread() <= 0) {
+        conf.setResultReadAheadThread(Runtime.getRuntime().availableProcessors());
+      }
+
       initMemoryAllocate(properties);
 
       loadWALProps(properties);
@@ -291,6 +333,10 @@ public class IoTDBDescriptor {
           .getProperty("max_waiting_time_when_insert_blocked",
               Integer.toString(conf.getMaxWaitingTimeWhenInsertBlocked()))));
 
+      conf.setMaxWaitingTimeWhenQueryBlocked(Integer.parseInt(properties
+          .getProperty("max_waiting_time_when_query_blocked",
+              Integer.toString(conf.getMaxWaitingTimeWhenQueryBlocked()))));
+
       conf.setEstimatedSeriesSize(Integer.parseInt(properties
           .getProperty("estimated_series_size",
               Integer.toString(conf.getEstimatedSeriesSize()))));
@@ -303,6 +349,10 @@ public class IoTDBDescriptor {
           .getProperty("merge_page_point_number",
               Integer.toString(conf.getMergePagePointNumberThreshold()))));
 
+      conf.setMergeChunkMetadataSpillThreshold(Integer.parseInt(properties
+          .getProperty("merge_chunk_metadata_spill_threshold",
+              Integer.toString(conf.getMergeChunkMetadataSpillThreshold()))));
+
       conf.setCompactionStrategy(CompactionStrategy.valueOf(properties
           .getProperty("compaction_strategy",
               conf.getCompactionStrategy().toString())));
@@ -327,6 +377,17 @@ public class IoTDBDescriptor {
           .getProperty("unseq_file_num_in_each_level",
               Integer.toString(conf.getUnseqFileNumInEachLevel()))));
 
+      conf.setEnableColdDataRecompression(Boolean.parseBoolean(properties
+          .getProperty("enable_cold_data_recompression",
+              Boolean.toString(conf.isEnableColdDataRecompression()))));
+
+      conf.setColdDataCompressor(CompressionType.valueOf(properties
+          .getProperty("cold_data_compressor", conf.getColdDataCompressor().toString())));
+
+      conf.setColdDataAgeThresholdInMs(Long.parseLong(properties
+          .getProperty("cold_data_age_threshold_in_ms",
+              Long.toString(conf.getColdDataAgeThresholdInMs()))));
+
       conf.setSyncEnable(Boolean
           .parseBoolean(properties.getProperty("is_sync_enable",
               Boolean.toString(conf.isSyncEnable()))));
@@ -369,6 +430,14 @@ public class IoTDBDescriptor {
             .parseBoolean(properties.getProperty("chunk_buffer_pool_enable")));
       }
 
+      conf.setEnableAdaptiveEncoding(Boolean.parseBoolean(properties
+          .getProperty("enable_adaptive_encoding",
+              Boolean.toString(conf.isEnableAdaptiveEncoding()))));
+
+      conf.setAdaptiveEncodingSampleSize(Integer.parseInt(properties
+          .getProperty("adaptive_encoding_sample_size",
+              Integer.toString(conf.getAdaptiveEncodingSampleSize()))));
+
       conf.setEnableExternalSort(Boolean.parseBoolean(properties
           .getProperty("enable_external_sort", Boolean.toString(conf.isEnableExternalSort()))));
       conf.setExternalSortThreshold(Integer.parseInt(properties
@@ -537,6 +606,22 @@ public class IoTDBDescriptor {
         conf.setMqttMaxMessageSize(
             Integer.parseInt(properties.getProperty(IoTDBConstant.MQTT_MAX_MESSAGE_SIZE)));
       }
+      if (properties.getProperty(IoTDBConstant.MQTT_INGESTION_THREAD_NUM) != null) {
+        conf.setMqttIngestionThreadNum(
+            Integer.parseInt(properties.getProperty(IoTDBConstant.MQTT_INGESTION_THREAD_NUM)));
+      }
+      if (properties.getProperty(IoTDBConstant.MQTT_INGESTION_BATCH_SIZE) != null) {
+        conf.setMqttIngestionBatchSize(
+            Integer.parseInt(properties.getProperty(IoTDBConstant.MQTT_INGESTION_BATCH_SIZE)));
+      }
+      if (properties.getProperty(IoTDBConstant.MQTT_INGESTION_BATCH_LINGER_MS) != null) {
+        conf.setMqttIngestionBatchLingerMs(
+            Long.parseLong(properties.getProperty(IoTDBConstant.MQTT_INGESTION_BATCH_LINGER_MS)));
+      }
+      if (properties.getProperty(IoTDBConstant.MQTT_INGESTION_QUEUE_SIZE) != null) {
+        conf.setMqttIngestionQueueSize(
+            Integer.parseInt(properties.getProperty(IoTDBConstant.MQTT_INGESTION_QUEUE_SIZE)));
+      }
 
       conf.setAuthorizerProvider(properties.getProperty("authorizer_provider_class",
           "org.apache.iotdb.db.auth.authorizer.LocalFileAuthorizer"));
@@ -689,6 +774,12 @@ public class IoTDBDescriptor {
     TSFileDescriptor.getInstance().getConfig().setCompressor(properties
         .getProperty("compressor",
             TSFileDescriptor.getInstance().getConfig().getCompressor().toString()));
+    TSFileDescriptor.getInstance().getConfig().setGzipCompressionLevel(Integer.parseInt(properties
+        .getProperty("gzip_compression_level", Integer
+            .toString(TSFileDescriptor.getInstance().getConfig().getGzipCompressionLevel()))));
+    TSFileDescriptor.getInstance().getConfig().setZstdCompressionLevel(Integer.parseInt(properties
+        .getProperty("zstd_compression_level", Integer
+            .toString(TSFileDescriptor.getInstance().getConfig().getZstdCompressionLevel()))));
     TSFileDescriptor.getInstance().getConfig().setMaxDegreeOfIndexNode(Integer.parseInt(properties
         .getProperty("max_degree_of_index_node", Integer
             .toString(TSFileDescriptor.getInstance().getConfig().getMaxDegreeOfIndexNode()))));
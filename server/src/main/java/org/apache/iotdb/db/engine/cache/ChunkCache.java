@@ -20,6 +20,8 @@
 package org.apache.iotdb.db.engine.cache;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -87,7 +89,7 @@ public class ChunkCache {
     if (!CACHE_ENABLE) {
       Chunk chunk = reader.readMemChunk(chunkMetaData);
       return new Chunk(chunk.getHeader(), chunk.getData().duplicate(),
-          chunk.getDeleteIntervalList());
+          chunk.getDeleteIntervalList(), chunk.getTimeChunk());
     }
 
     cacheRequestNum.incrementAndGet();
@@ -121,7 +123,48 @@ public class ChunkCache {
     if (config.isDebugOn()) {
       DEBUG_LOGGER.info("get chunk from cache whose meta data is: " + chunkMetaData);
     }
-    return new Chunk(chunk.getHeader(), chunk.getData().duplicate(), chunk.getDeleteIntervalList());
+    return new Chunk(chunk.getHeader(), chunk.getData().duplicate(), chunk.getDeleteIntervalList(),
+        chunk.getTimeChunk());
+  }
+
+  /**
+   * Read the chunks which are not cached yet with one read and put them into the cache, so that
+   * the following get() of them hits the cache.
+   *
+   * @param chunkMetadataList chunk meta data of the same file sorted by the offset of chunk header
+   */
+  public void prefetch(List<ChunkMetadata> chunkMetadataList, TsFileSequenceReader reader)
+      throws IOException {
+    if (!CACHE_ENABLE) {
+      return;
+    }
+
+    List<ChunkMetadata> chunkMetadataToRead = new ArrayList<>(chunkMetadataList.size());
+    lock.readLock().lock();
+    try {
+      for (ChunkMetadata chunkMetadata : chunkMetadataList) {
+        if (!lruCache.containsKey(chunkMetadata)) {
+          chunkMetadataToRead.add(chunkMetadata);
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    if (chunkMetadataToRead.isEmpty()) {
+      return;
+    }
+
+    List<Chunk> chunks = reader.readMemChunks(chunkMetadataToRead);
+    lock.writeLock().lock();
+    try {
+      for (int i = 0; i < chunks.size(); i++) {
+        if (!lruCache.containsKey(chunkMetadataToRead.get(i))) {
+          lruCache.put(chunkMetadataToRead.get(i), chunks.get(i));
+        }
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
   }
 
   private void printCacheLog(boolean isHit) {
@@ -35,6 +35,7 @@ import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
 import org.apache.iotdb.tsfile.file.metadata.TimeseriesMetadata;
 import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
 import org.apache.iotdb.tsfile.read.common.Path;
+import org.apache.iotdb.tsfile.read.filter.basic.Filter;
 import org.apache.iotdb.tsfile.utils.RamUsageEstimator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -107,6 +108,20 @@ public class ChunkMetadataCache {
    */
   public List<ChunkMetadata> get(String filePath, Path seriesPath,
       TimeseriesMetadata timeseriesMetadata) throws IOException {
+    return get(filePath, seriesPath, timeseriesMetadata, null);
+  }
+
+  /**
+   * get {@link ChunkMetadata} that may satisfy the time filter. THREAD SAFE.
+   * <p>
+   * If the whole list is not cached and the series has a ChunkMetadataIndex, only the
+   * ChunkMetadata overlapping the time range of the filter are read from the file, and they are not
+   * cached because they are not the whole list of the series.
+   *
+   * @param timeFilter the filter of the query, may be null
+   */
+  public List<ChunkMetadata> get(String filePath, Path seriesPath,
+      TimeseriesMetadata timeseriesMetadata, Filter timeFilter) throws IOException {
     if (timeseriesMetadata == null) {
       return Collections.emptyList();
     }
@@ -114,7 +129,7 @@ public class ChunkMetadataCache {
       // bloom filter part
       TsFileSequenceReader tsFileReader = FileReaderManager.getInstance().get(filePath, true);
       // If timeseries isn't included in the tsfile, empty list is returned.
-      return tsFileReader.readChunkMetaDataList(timeseriesMetadata);
+      return tsFileReader.readChunkMetaDataList(timeseriesMetadata, timeFilter);
     }
 
     AccountableString key = new AccountableString(filePath + IoTDBConstant.PATH_SEPARATOR
@@ -133,6 +148,10 @@ public class ChunkMetadataCache {
     if (chunkMetadataList != null) {
       printCacheLog(true);
       cacheHitNum.incrementAndGet();
+    } else if (timeFilter != null && timeseriesMetadata.hasChunkMetadataIndex()) {
+      printCacheLog(false);
+      TsFileSequenceReader tsFileReader = FileReaderManager.getInstance().get(filePath, true);
+      return tsFileReader.readChunkMetaDataList(timeseriesMetadata, timeFilter);
     } else {
       printCacheLog(false);
       TsFileSequenceReader tsFileReader = FileReaderManager.getInstance().get(filePath, true);
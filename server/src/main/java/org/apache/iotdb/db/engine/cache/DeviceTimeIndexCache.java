@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.db.engine.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.engine.storagegroup.timeindex.DeviceTimeIndex;
+import org.apache.iotdb.db.utils.TestOnly;
+import org.apache.iotdb.tsfile.fileSystem.FSFactoryProducer;
+import org.apache.iotdb.tsfile.utils.RamUsageEstimator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class caches the device-level time indexes of the closed TsFiles that only keep a
+ * FileTimeIndex in memory. The key is the path of the .resource file that an index is loaded
+ * from. The caching strategy is LRU and the cache is bounded by memory.
+ */
+public class DeviceTimeIndexCache {
+
+  private static final Logger logger = LoggerFactory.getLogger(DeviceTimeIndexCache.class);
+  private static final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+
+  private static final int INITIAL_CAPACITY = 128;
+  private static final float LOAD_FACTOR_MAP = 0.75f;
+  private static final float RETAIN_PERCENT = 0.9f;
+  // map entry and the size of the index
+  private static final int ENTRY_OVERHEAD = 48;
+
+  private final LinkedHashMap<String, CachedIndex> lruCache = new LinkedHashMap<>(
+      INITIAL_CAPACITY, LOAD_FACTOR_MAP, true);
+
+  private final long maxMemory;
+  private final long retainMemory;
+  private long usedMemory;
+
+  private final AtomicLong cacheHitNum = new AtomicLong();
+  private final AtomicLong cacheRequestNum = new AtomicLong();
+
+  private DeviceTimeIndexCache() {
+    maxMemory = config.getDeviceTimeIndexCacheSize();
+    retainMemory = (long) (maxMemory * RETAIN_PERCENT);
+    logger.info("DeviceTimeIndexCache size = {}", maxMemory);
+  }
+
+  public static DeviceTimeIndexCache getInstance() {
+    return DeviceTimeIndexCacheHolder.INSTANCE;
+  }
+
+  /**
+   * @return the device-level time index of the .resource file, which is read from the file if it
+   * is not cached
+   */
+  public DeviceTimeIndex get(String resourceFilePath) throws IOException {
+    cacheRequestNum.incrementAndGet();
+    synchronized (this) {
+      CachedIndex cachedIndex = lruCache.get(resourceFilePath);
+      if (cachedIndex != null) {
+        cacheHitNum.incrementAndGet();
+        return cachedIndex.index;
+      }
+    }
+    // the file is read without the lock, so loading different files does not block each other
+    DeviceTimeIndex index;
+    try (InputStream inputStream = FSFactoryProducer.getFSFactory()
+        .getBufferedInputStream(resourceFilePath)) {
+      if (inputStream == null) {
+        throw new IOException("Cannot open the resource file " + resourceFilePath);
+      }
+      index = DeviceTimeIndex.deserialize(inputStream);
+    }
+    put(resourceFilePath, index);
+    return index;
+  }
+
+  public synchronized void put(String resourceFilePath, DeviceTimeIndex index) {
+    CachedIndex cachedIndex = new CachedIndex(index,
+        RamUsageEstimator.sizeOf(resourceFilePath) + index.calculateRamSize() + ENTRY_OVERHEAD);
+    CachedIndex old = lruCache.put(resourceFilePath, cachedIndex);
+    if (old != null) {
+      usedMemory -= old.ramSize;
+    }
+    usedMemory += cachedIndex.ramSize;
+    if (usedMemory > maxMemory) {
+      Iterator<Entry<String, CachedIndex>> iterator = lruCache.entrySet().iterator();
+      while (usedMemory > retainMemory && iterator.hasNext()) {
+        usedMemory -= iterator.next().getValue().ramSize;
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * remove the index of a .resource file that is rewritten, moved or deleted.
+   */
+  public synchronized void remove(String resourceFilePath) {
+    CachedIndex old = lruCache.remove(resourceFilePath);
+    if (old != null) {
+      usedMemory -= old.ramSize;
+    }
+  }
+
+  public synchronized void clear() {
+    lruCache.clear();
+    usedMemory = 0;
+  }
+
+  public double calculateHitRatio() {
+    if (cacheRequestNum.get() != 0) {
+      return cacheHitNum.get() * 1.0 / cacheRequestNum.get();
+    } else {
+      return 0;
+    }
+  }
+
+  public synchronized long getUsedMemory() {
+    return usedMemory;
+  }
+
+  @TestOnly
+  public synchronized int size() {
+    return lruCache.size();
+  }
+
+  private static class CachedIndex {
+
+    private final DeviceTimeIndex index;
+    private final long ramSize;
+
+    private CachedIndex(DeviceTimeIndex index, long ramSize) {
+      this.index = index;
+      this.ramSize = ramSize;
+    }
+  }
+
+  /**
+   * singleton pattern.
+   */
+  private static class DeviceTimeIndexCacheHolder {
+
+    private static final DeviceTimeIndexCache INSTANCE = new DeviceTimeIndexCache();
+  }
+}
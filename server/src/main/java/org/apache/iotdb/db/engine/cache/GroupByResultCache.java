@@ -0,0 +1,384 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.engine.querycontext.QueryDataSource;
+import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
+import org.apache.iotdb.db.metadata.PartialPath;
+import org.apache.iotdb.db.utils.TestOnly;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class caches the aggregation results of GROUP BY time intervals. A result is cached with
+ * the TsFiles its interval overlaps, and it is only reused while the interval still overlaps
+ * exactly these files, so new unsequence files and merges make it stale. Intervals overlapping an
+ * unsealed TsFile (i.e., a memtable) are never cached, and deletions remove the results of the
+ * deleted intervals. The caching strategy is LRU and the cache is bounded by memory.
+ */
+public class GroupByResultCache {
+
+  private static final Logger logger = LoggerFactory.getLogger(GroupByResultCache.class);
+  private static final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+
+  private static final int INITIAL_CAPACITY = 128;
+  private static final float LOAD_FACTOR_MAP = 0.75f;
+  private static final float RETAIN_PERCENT = 0.9f;
+  // map entry, key and value objects
+  private static final int ENTRY_OVERHEAD = 160;
+
+  private final LinkedHashMap<BucketKey, BucketResult> lruCache = new LinkedHashMap<>(
+      INITIAL_CAPACITY, LOAD_FACTOR_MAP, true);
+
+  private final long maxMemory;
+  private final long retainMemory;
+  private long usedMemory;
+
+  /**
+   * increased by each deletion, so that a query which started before a deletion does not put the
+   * results read before the deletion into the cache
+   */
+  private final AtomicLong version = new AtomicLong();
+
+  private final AtomicLong cacheHitNum = new AtomicLong();
+  private final AtomicLong cacheRequestNum = new AtomicLong();
+
+  private GroupByResultCache() {
+    maxMemory = config.getGroupByResultCacheSize();
+    retainMemory = (long) (maxMemory * RETAIN_PERCENT);
+    if (config.isEnableGroupByResultCache()) {
+      logger.info("GroupByResultCache size = {}", maxMemory);
+    }
+  }
+
+  public static GroupByResultCache getInstance() {
+    return GroupByResultCacheHolder.INSTANCE;
+  }
+
+  public boolean isEnabled() {
+    return config.isEnableGroupByResultCache();
+  }
+
+  public long getVersion() {
+    return version.get();
+  }
+
+  /**
+   * @return the cached result of the aggregation of the path in [startTime, endTime), or null if it
+   * is not cached or the files of the interval have changed since it was cached
+   */
+  public synchronized BucketResult get(PartialPath path, String aggregation, long startTime,
+      long endTime, String[] files) {
+    cacheRequestNum.incrementAndGet();
+    BucketKey key = new BucketKey(path, aggregation, startTime, endTime);
+    BucketResult result = lruCache.get(key);
+    if (result == null) {
+      return null;
+    }
+    if (!Arrays.equals(result.files, files)) {
+      usedMemory -= result.ramSize;
+      lruCache.remove(key);
+      return null;
+    }
+    cacheHitNum.incrementAndGet();
+    return result;
+  }
+
+  /**
+   * Cache the result of the aggregation of the path in [startTime, endTime) if no deletion happened
+   * since queryVersion.
+   */
+  public synchronized void put(PartialPath path, String aggregation, long startTime, long endTime,
+      String[] files, Object result, long queryVersion) {
+    if (queryVersion != version.get()) {
+      return;
+    }
+    BucketKey key = new BucketKey(path, aggregation, startTime, endTime);
+    BucketResult bucketResult = new BucketResult(files, result);
+    bucketResult.ramSize = estimateSize(key, bucketResult);
+    BucketResult old = lruCache.put(key, bucketResult);
+    if (old != null) {
+      usedMemory -= old.ramSize;
+    }
+    usedMemory += bucketResult.ramSize;
+    if (usedMemory > maxMemory) {
+      Iterator<Entry<BucketKey, BucketResult>> iterator = lruCache.entrySet().iterator();
+      while (usedMemory > retainMemory && iterator.hasNext()) {
+        usedMemory -= iterator.next().getValue().ramSize;
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Remove the cached results of the series of the device that match the path pattern and whose
+   * intervals overlap [startTime, endTime].
+   */
+  public synchronized void remove(PartialPath device, PartialPath pathPattern, long startTime,
+      long endTime) {
+    version.incrementAndGet();
+    if (lruCache.isEmpty()) {
+      return;
+    }
+    String deviceId = device.getFullPath();
+    Iterator<Entry<BucketKey, BucketResult>> iterator = lruCache.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Entry<BucketKey, BucketResult> entry = iterator.next();
+      BucketKey key = entry.getKey();
+      if (key.startTime <= endTime && startTime < key.endTime
+          && deviceId.equals(key.path.getDevice()) && pathPattern.matchFullPath(key.path)) {
+        usedMemory -= entry.getValue().ramSize;
+        iterator.remove();
+      }
+    }
+  }
+
+  public synchronized void clear() {
+    version.incrementAndGet();
+    lruCache.clear();
+    usedMemory = 0;
+  }
+
+  public double calculateHitRatio() {
+    if (cacheRequestNum.get() != 0) {
+      return cacheHitNum.get() * 1.0 / cacheRequestNum.get();
+    } else {
+      return 0;
+    }
+  }
+
+  public synchronized long getUsedMemory() {
+    return usedMemory;
+  }
+
+  @TestOnly
+  public synchronized int size() {
+    return lruCache.size();
+  }
+
+  /**
+   * @return the paths of the TsFiles that may contain data of the device in [startTime, endTime),
+   * or null if any of them is unsealed, in which case the interval should not be cached
+   */
+  public static String[] getSealedFiles(QueryDataSource dataSource, String device, long startTime,
+      long endTime) {
+    return indexSealedFiles(dataSource, device).getFiles(startTime, endTime);
+  }
+
+  /**
+   * Index the time ranges of the TsFiles of a device once, so that the files of each interval of a
+   * series are found without scanning all the TsFiles again.
+   */
+  public static SealedFileIndex indexSealedFiles(QueryDataSource dataSource, String device) {
+    List<FileRange> ranges = new ArrayList<>();
+    collectFileRanges(dataSource.getSeqResources(), device, ranges);
+    collectFileRanges(dataSource.getUnseqResources(), device, ranges);
+    return new SealedFileIndex(ranges);
+  }
+
+  private static void collectFileRanges(List<TsFileResource> resources, String device,
+      List<FileRange> ranges) {
+    for (TsFileResource resource : resources) {
+      long fileStartTime = resource.getOrDefaultStartTime(device, Long.MAX_VALUE);
+      if (fileStartTime == Long.MAX_VALUE) {
+        // no data of the device
+        continue;
+      }
+      ranges.add(new FileRange(ranges.size(), resource.getTsFilePath(), fileStartTime,
+          resource.getOrDefaultEndTime(device, Long.MIN_VALUE), resource.isClosed()));
+    }
+  }
+
+  /**
+   * The time ranges of the TsFiles of a device, sorted by their start times.
+   */
+  public static class SealedFileIndex {
+
+    private final FileRange[] ranges;
+    /**
+     * maxEndTimes[i] is the max end time of ranges[0..i], so the ranges before the first one
+     * whose value reaches the start time of an interval all end before the interval.
+     */
+    private final long[] maxEndTimes;
+    /**
+     * the index of the first unsealed file in ranges, or ranges.length if all files are sealed
+     */
+    private final int firstUnsealedIndex;
+
+    private SealedFileIndex(List<FileRange> rangeList) {
+      // the sort is stable, files with the same start time keep the order of the data source
+      rangeList.sort(Comparator.comparingLong(range -> range.startTime));
+      ranges = rangeList.toArray(new FileRange[0]);
+      maxEndTimes = new long[ranges.length];
+      int unsealedIndex = ranges.length;
+      long maxEndTime = Long.MIN_VALUE;
+      for (int i = 0; i < ranges.length; i++) {
+        maxEndTime = Math.max(maxEndTime, ranges[i].endTime);
+        maxEndTimes[i] = maxEndTime;
+        if (!ranges[i].isClosed && unsealedIndex == ranges.length) {
+          unsealedIndex = i;
+        }
+      }
+      firstUnsealedIndex = unsealedIndex;
+    }
+
+    /**
+     * @return the paths of the TsFiles that may contain data of the device in [startTime,
+     * endTime), in the order of the data source, or null if any of them is unsealed
+     */
+    public String[] getFiles(long startTime, long endTime) {
+      // the files starting before endTime
+      int end = firstIndex(index -> ranges[index].startTime >= endTime);
+      if (firstUnsealedIndex < end) {
+        // the end time of an unsealed file is unknown
+        return null;
+      }
+      List<FileRange> overlapped = new ArrayList<>();
+      int begin = firstIndex(index -> maxEndTimes[index] >= startTime);
+      for (int i = begin; i < end; i++) {
+        if (ranges[i].endTime >= startTime) {
+          overlapped.add(ranges[i]);
+        }
+      }
+      overlapped.sort(Comparator.comparingInt(range -> range.order));
+      String[] files = new String[overlapped.size()];
+      for (int i = 0; i < files.length; i++) {
+        files[i] = overlapped.get(i).path;
+      }
+      return files;
+    }
+
+    /**
+     * @return the first index whose condition holds, the condition must be monotonic
+     */
+    private int firstIndex(IntPredicate condition) {
+      int low = 0;
+      int high = ranges.length;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (condition.test(mid)) {
+          high = mid;
+        } else {
+          low = mid + 1;
+        }
+      }
+      return low;
+    }
+  }
+
+  private static class FileRange {
+
+    /**
+     * the position of the file in the data source, sequence files first
+     */
+    private final int order;
+    private final String path;
+    private final long startTime;
+    private final long endTime;
+    private final boolean isClosed;
+
+    private FileRange(int order, String path, long startTime, long endTime, boolean isClosed) {
+      this.order = order;
+      this.path = path;
+      this.startTime = startTime;
+      this.endTime = endTime;
+      this.isClosed = isClosed;
+    }
+  }
+
+  private static long estimateSize(BucketKey key, BucketResult result) {
+    // the path is stored both as the full path and as nodes
+    long size = ENTRY_OVERHEAD + 4L * key.path.getFullPath().length()
+        + 8L * key.path.getNodeLength() + 8L * result.files.length;
+    if (result.result instanceof Binary) {
+      size += ((Binary) result.result).getLength();
+    }
+    return size;
+  }
+
+  private static class BucketKey {
+
+    private final PartialPath path;
+    private final String aggregation;
+    private final long startTime;
+    private final long endTime;
+
+    private BucketKey(PartialPath path, String aggregation, long startTime, long endTime) {
+      this.path = path;
+      this.aggregation = aggregation;
+      this.startTime = startTime;
+      this.endTime = endTime;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      BucketKey that = (BucketKey) o;
+      return startTime == that.startTime && endTime == that.endTime
+          && path.equals(that.path) && aggregation.equals(that.aggregation);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(path, aggregation, startTime, endTime);
+    }
+  }
+
+  public static class BucketResult {
+
+    private final String[] files;
+    private final Object result;
+    private long ramSize;
+
+    private BucketResult(String[] files, Object result) {
+      this.files = files;
+      this.result = result;
+    }
+
+    public Object getResult() {
+      return result;
+    }
+  }
+
+  /**
+   * singleton pattern.
+   */
+  private static class GroupByResultCacheHolder {
+
+    private static final GroupByResultCache INSTANCE = new GroupByResultCache();
+  }
+}
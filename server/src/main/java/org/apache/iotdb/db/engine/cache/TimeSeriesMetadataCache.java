@@ -98,15 +98,23 @@ public class TimeSeriesMetadataCache {
     return TimeSeriesMetadataCache.TimeSeriesMetadataCacheHolder.INSTANCE;
   }
 
-  @SuppressWarnings("squid:S1860") // Suppress synchronize warning
   public TimeseriesMetadata get(TimeSeriesMetadataCacheKey key, Set<String> allSensors)
       throws IOException {
+    return get(key, allSensors,
+        BloomFilter.hash(key.device + IoTDBConstant.PATH_SEPARATOR + key.measurement));
+  }
+
+  /**
+   * @param pathHash the hash of the path of the key computed by BloomFilter.hash(), which is
+   *                 computed once for all the files in a query
+   */
+  @SuppressWarnings("squid:S1860") // Suppress synchronize warning
+  public TimeseriesMetadata get(TimeSeriesMetadataCacheKey key, Set<String> allSensors,
+      long pathHash) throws IOException {
     if (!CACHE_ENABLE) {
       // bloom filter part
       TsFileSequenceReader reader = FileReaderManager.getInstance().get(key.filePath, true);
-      BloomFilter bloomFilter = reader.readBloomFilter();
-      if (bloomFilter != null && !bloomFilter
-          .contains(key.device + IoTDBConstant.PATH_SEPARATOR + key.measurement)) {
+      if (isFilteredByBloomFilter(reader, key, pathHash)) {
         return null;
       }
       return reader.readTimeseriesMetadata(new Path(key.device, key.measurement));
@@ -142,9 +150,7 @@ public class TimeSeriesMetadataCache {
           printCacheLog(false);
           // bloom filter part
           TsFileSequenceReader reader = FileReaderManager.getInstance().get(key.filePath, true);
-          BloomFilter bloomFilter = reader.readBloomFilter();
-          if (bloomFilter != null && !bloomFilter
-              .contains(key.device + IoTDBConstant.PATH_SEPARATOR + key.measurement)) {
+          if (isFilteredByBloomFilter(reader, key, pathHash)) {
 
             if (config.isDebugOn()) {
               DEBUG_LOGGER.info("TimeSeries meta data " + key + " is filter by bloomFilter!");
@@ -181,6 +187,15 @@ public class TimeSeriesMetadataCache {
     }
   }
 
+  /**
+   * @return true if the bloom filter of the file shows that the path of the key is not in it
+   */
+  private boolean isFilteredByBloomFilter(TsFileSequenceReader reader,
+      TimeSeriesMetadataCacheKey key, long pathHash) throws IOException {
+    BloomFilter bloomFilter = reader.readBloomFilter();
+    return bloomFilter != null && !bloomFilter
+        .contains(key.device + IoTDBConstant.PATH_SEPARATOR + key.measurement, pathHash);
+  }
 
   private void printCacheLog(boolean isHit) {
     if (!logger.isDebugEnabled()) {
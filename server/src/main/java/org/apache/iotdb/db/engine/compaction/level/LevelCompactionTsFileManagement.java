@@ -72,6 +72,10 @@ public class LevelCompactionTsFileManagement extends TsFileManagement {
       .isEnableUnseqCompaction();
   private final boolean isForceFullMerge = IoTDBDescriptor.getInstance().getConfig()
       .isForceFullMerge();
+  private final boolean enableColdDataRecompression = IoTDBDescriptor.getInstance().getConfig()
+      .isEnableColdDataRecompression();
+  private final long coldDataAgeThresholdInMs = IoTDBDescriptor.getInstance().getConfig()
+      .getColdDataAgeThresholdInMs();
   // First map is partition list; Second list is level list; Third list is file list in level;
   private final Map<Long, List<TreeSet<TsFileResource>>> sequenceTsFileResources = new ConcurrentSkipListMap<>();
   private final Map<Long, List<List<TsFileResource>>> unSequenceTsFileResources = new ConcurrentSkipListMap<>();
@@ -332,9 +336,14 @@ public class LevelCompactionTsFileManagement extends TsFileManagement {
             writer.close();
             TsFileResource targetTsFileResource = getTsFileResource(targetFile, isSeq);
             long timePartition = targetTsFileResource.getTimePartition();
+            List<TsFileResource> sourceTsFileResources = getTsFileList(isSeq);
+            // recompress the target as the merge before the crash did
+            boolean recompress = isColdData(sourceTsFileResources,
+                getMergeLevel(new File(targetFile)), isSeq ? seqLevelNum : unseqLevelNum);
             CompactionUtils
-                .merge(targetTsFileResource, getTsFileList(isSeq), storageGroupName,
-                    new CompactionLogger(storageGroupDir, storageGroupName), deviceSet, isSeq);
+                .merge(targetTsFileResource, sourceTsFileResources, storageGroupName,
+                    new CompactionLogger(storageGroupDir, storageGroupName), deviceSet, isSeq,
+                    recompress);
             if (isSeq) {
               for (TreeSet<TsFileResource> currMergeFile : sequenceTsFileResources
                   .get(timePartition)) {
@@ -368,13 +377,15 @@ public class LevelCompactionTsFileManagement extends TsFileManagement {
               if (isSeq) {
                 CompactionUtils
                     .merge(targetResource, sourceTsFileResources, storageGroupName,
-                        new CompactionLogger(storageGroupDir, storageGroupName), deviceSet, true);
+                        new CompactionLogger(storageGroupDir, storageGroupName), deviceSet, true,
+                        isColdData(sourceTsFileResources, level + 1, seqLevelNum));
                 deleteLevelFiles(timePartition, sourceTsFileResources);
                 sequenceTsFileResources.get(timePartition).get(level + 1).add(targetResource);
               } else {
                 CompactionUtils
                     .merge(targetResource, sourceTsFileResources, storageGroupName,
-                        new CompactionLogger(storageGroupDir, storageGroupName), deviceSet, false);
+                        new CompactionLogger(storageGroupDir, storageGroupName), deviceSet, false,
+                        isColdData(sourceTsFileResources, level + 1, unseqLevelNum));
                 deleteLevelFiles(timePartition, sourceTsFileResources);
                 unSequenceTsFileResources.get(timePartition).get(level + 1).add(targetResource);
               }
@@ -485,7 +496,7 @@ public class LevelCompactionTsFileManagement extends TsFileManagement {
             TsFileResource newResource = new TsFileResource(newLevelFile);
             CompactionUtils
                 .merge(newResource, toMergeTsFiles, storageGroupName, compactionLogger,
-                    new HashSet<>(), sequence);
+                    new HashSet<>(), sequence, isColdData(toMergeTsFiles, i + 1, currMaxLevel));
             logger.info(
                 "{} [Compaction] merged level-{}'s {} TsFiles to next level, and start to delete old files",
                 storageGroupName, i, toMergeTsFiles.size());
@@ -562,6 +573,30 @@ public class LevelCompactionTsFileManagement extends TsFileManagement {
     return Integer.parseInt(mergeLevelStr);
   }
 
+  /**
+   * Data is cold if it is merged to the highest level or all of it is older than
+   * coldDataAgeThresholdInMs, then it is recompressed when cold data recompression is enabled.
+   */
+  private boolean isColdData(List<TsFileResource> sourceFiles, int targetLevel,
+      int currMaxLevel) {
+    if (!enableColdDataRecompression) {
+      return false;
+    }
+    if (targetLevel >= currMaxLevel - 1) {
+      return true;
+    }
+    if (coldDataAgeThresholdInMs <= 0) {
+      return false;
+    }
+    long timeLowerBound = System.currentTimeMillis() - coldDataAgeThresholdInMs;
+    for (TsFileResource sourceFile : sourceFiles) {
+      if (sourceFile.stillLives(timeLowerBound)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   private TsFileResource getTsFileResource(String filePath, boolean isSeq) throws IOException {
     if (isSeq) {
       for (List<TreeSet<TsFileResource>> tsFileResourcesWithLevel : sequenceTsFileResources
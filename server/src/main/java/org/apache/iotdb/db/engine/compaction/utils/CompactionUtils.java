@@ -24,6 +24,7 @@ import static org.apache.iotdb.db.utils.MergeUtils.writeTVPair;
 import com.google.common.util.concurrent.RateLimiter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -36,7 +37,10 @@ import java.util.TreeMap;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.engine.merge.manage.MergeManager;
 import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
+import org.apache.iotdb.tsfile.encoding.encoder.EncodingSelector.Sampler;
 import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
 import org.apache.iotdb.tsfile.read.TimeValuePair;
 import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
 import org.apache.iotdb.tsfile.read.common.Chunk;
@@ -57,26 +61,44 @@ public class CompactionUtils {
   private static final Logger logger = LoggerFactory.getLogger(CompactionUtils.class);
   private static final int MERGE_PAGE_POINT_NUM = IoTDBDescriptor.getInstance().getConfig()
       .getMergePagePointNumberThreshold();
-
   private CompactionUtils() {
     throw new IllegalStateException("Utility class");
   }
 
+  /**
+   * @return the chunks appended as one, or null if they are not encoded or compressed in the same
+   * way or any of them is a value chunk of an aligned device, so their pages cannot be appended
+   */
   private static Pair<ChunkMetadata, Chunk> readByAppendMerge(
       Map<TsFileSequenceReader, List<ChunkMetadata>> readerChunkMetadataMap) throws IOException {
-    ChunkMetadata newChunkMetadata = null;
-    Chunk newChunk = null;
+    List<ChunkMetadata> chunkMetadataList = new ArrayList<>();
+    List<Chunk> chunkList = new ArrayList<>();
     for (Entry<TsFileSequenceReader, List<ChunkMetadata>> entry : readerChunkMetadataMap
         .entrySet()) {
       for (ChunkMetadata chunkMetadata : entry.getValue()) {
         Chunk chunk = entry.getKey().readMemChunk(chunkMetadata);
-        if (newChunkMetadata == null) {
-          newChunkMetadata = chunkMetadata;
-          newChunk = chunk;
-        } else {
-          newChunkMetadata.mergeChunkMetadata(chunkMetadata);
-          newChunk.mergeChunk(chunk);
+        if (chunk.getTimeChunk() != null) {
+          return null;
+        }
+        if (!chunkList.isEmpty() && (
+            chunkList.get(0).getHeader().getEncodingType() != chunk.getHeader().getEncodingType()
+                || chunkList.get(0).getHeader().getCompressionType() != chunk.getHeader()
+                .getCompressionType())) {
+          return null;
         }
+        chunkMetadataList.add(chunkMetadata);
+        chunkList.add(chunk);
+      }
+    }
+    ChunkMetadata newChunkMetadata = null;
+    Chunk newChunk = null;
+    for (int i = 0; i < chunkList.size(); i++) {
+      if (newChunkMetadata == null) {
+        newChunkMetadata = chunkMetadataList.get(i);
+        newChunk = chunkList.get(i);
+      } else {
+        newChunkMetadata.mergeChunkMetadata(chunkMetadataList.get(i));
+        newChunk.mergeChunk(chunkList.get(i));
       }
     }
     return new Pair<>(newChunkMetadata, newChunk);
@@ -108,10 +130,8 @@ public class CompactionUtils {
   }
 
   private static long writeByAppendMerge(long maxVersion, String device,
-      RateLimiter compactionWriteRateLimiter,
-      Map<TsFileSequenceReader, List<ChunkMetadata>> readerChunkMetadatasMap,
+      RateLimiter compactionWriteRateLimiter, Pair<ChunkMetadata, Chunk> chunkPair,
       TsFileResource targetResource, RestorableTsFileIOWriter writer) throws IOException {
-    Pair<ChunkMetadata, Chunk> chunkPair = readByAppendMerge(readerChunkMetadatasMap);
     ChunkMetadata newChunkMetadata = chunkPair.left;
     Chunk newChunk = chunkPair.right;
     if (newChunkMetadata != null && newChunk != null) {
@@ -129,7 +149,8 @@ public class CompactionUtils {
   private static long writeByDeserializeMerge(long maxVersion, String device,
       RateLimiter compactionRateLimiter,
       Entry<String, Map<TsFileSequenceReader, List<ChunkMetadata>>> entry,
-      TsFileResource targetResource, RestorableTsFileIOWriter writer) throws IOException {
+      TsFileResource targetResource, RestorableTsFileIOWriter writer, boolean recompress)
+      throws IOException {
     Map<Long, TimeValuePair> timeValuePairMap = new TreeMap<>();
     maxVersion = readByDeserializeMerge(entry.getValue(), maxVersion, timeValuePairMap);
     Iterator<List<ChunkMetadata>> chunkMetadataListIterator = entry.getValue().values()
@@ -141,8 +162,16 @@ public class CompactionUtils {
     if (chunkMetadataList.isEmpty()) {
       return maxVersion;
     }
-    IChunkWriter chunkWriter = new ChunkWriterImpl(
-        new MeasurementSchema(entry.getKey(), chunkMetadataList.get(0).getDataType()));
+    TSDataType dataType = chunkMetadataList.get(0).getDataType();
+    MeasurementSchema schema;
+    if (recompress) {
+      schema = new MeasurementSchema(entry.getKey(), dataType,
+          selectEncoding(dataType, timeValuePairMap.values()),
+          IoTDBDescriptor.getInstance().getConfig().getColdDataCompressor());
+    } else {
+      schema = new MeasurementSchema(entry.getKey(), dataType);
+    }
+    IChunkWriter chunkWriter = new ChunkWriterImpl(schema);
     for (TimeValuePair timeValuePair : timeValuePairMap.values()) {
       writeTVPair(timeValuePair, chunkWriter);
       targetResource.updateStartTime(device, timeValuePair.getTimestamp());
@@ -155,6 +184,41 @@ public class CompactionUtils {
     return maxVersion;
   }
 
+  /**
+   * Select the encoding that takes the least space for the points of a chunk. The points are
+   * passed to the selector one by one, which only keeps the encoded sample of each candidate.
+   */
+  static TSEncoding selectEncoding(TSDataType dataType, Collection<TimeValuePair> points)
+      throws IOException {
+    Sampler sampler = new Sampler(dataType,
+        IoTDBDescriptor.getInstance().getConfig().getAdaptiveEncodingSampleSize());
+    for (TimeValuePair point : points) {
+      switch (dataType) {
+        case TEXT:
+          sampler.put(point.getValue().getBinary());
+          break;
+        case DOUBLE:
+          sampler.put(point.getValue().getDouble());
+          break;
+        case BOOLEAN:
+          sampler.put(point.getValue().getBoolean());
+          break;
+        case INT64:
+          sampler.put(point.getValue().getLong());
+          break;
+        case INT32:
+          sampler.put(point.getValue().getInt());
+          break;
+        case FLOAT:
+          sampler.put(point.getValue().getFloat());
+          break;
+        default:
+          throw new UnsupportedOperationException("Unknown data type " + dataType);
+      }
+    }
+    return sampler.select();
+  }
+
   private static Set<String> getTsFileDevicesSet(List<TsFileResource> subLevelResources,
       Map<String, TsFileSequenceReader> tsFileSequenceReaderMap, String storageGroup)
       throws IOException {
@@ -177,13 +241,17 @@ public class CompactionUtils {
    * @param storageGroup the storage group name
    * @param compactionLogger the logger
    * @param devices the devices to be skipped(used by recover)
+   * @param recompress whether to rewrite the data with the cold data compressor and the encoding
+   * that takes the least space for each chunk
    */
   @SuppressWarnings("squid:S3776") // Suppress high Cognitive Complexity warning
   public static void merge(TsFileResource targetResource,
       List<TsFileResource> tsFileResources, String storageGroup,
       CompactionLogger compactionLogger,
-      Set<String> devices, boolean sequence) throws IOException {
+      Set<String> devices, boolean sequence, boolean recompress) throws IOException {
     RestorableTsFileIOWriter writer = new RestorableTsFileIOWriter(targetResource.getTsFile());
+    writer.enableChunkMetadataSpill(
+        IoTDBDescriptor.getInstance().getConfig().getMergeChunkMetadataSpillThreshold());
     Map<String, TsFileSequenceReader> tsFileSequenceReaderMap = new HashMap<>();
     RateLimiter compactionWriteRateLimiter = MergeManager.getINSTANCE().getMergeWriteRateLimiter();
     Set<String> tsFileDevicesMap = getTsFileDevicesSet(tsFileResources, tsFileSequenceReaderMap,
@@ -228,7 +296,7 @@ public class CompactionUtils {
             .entrySet()) {
           maxVersion = writeByDeserializeMerge(maxVersion, device, compactionWriteRateLimiter,
               entry,
-              targetResource, writer);
+              targetResource, writer, recompress);
         }
         writer.endChunkGroup();
         writer.writeVersion(maxVersion);
@@ -246,17 +314,22 @@ public class CompactionUtils {
               }
             }
           }
-          if (isPageEnoughLarge) {
+          Pair<ChunkMetadata, Chunk> chunkPair = null;
+          if (isPageEnoughLarge && !recompress) {
+            // chunks encoded in different ways cannot be appended
+            chunkPair = readByAppendMerge(readerChunkMetadatasMap);
+          }
+          if (chunkPair != null) {
             logger.debug("{} [Compaction] page enough large, use append merge", storageGroup);
             // append page in chunks, so we do not have to deserialize a chunk
             maxVersion = writeByAppendMerge(maxVersion, device, compactionWriteRateLimiter,
-                readerChunkMetadatasMap, targetResource, writer);
+                chunkPair, targetResource, writer);
           } else {
-            logger
-                .debug("{} [Compaction] page too small, use deserialize merge", storageGroup);
+            logger.debug("{} [Compaction] page too small, recompress or different encodings, "
+                + "use deserialize merge", storageGroup);
             // we have to deserialize chunks to merge pages
             maxVersion = writeByDeserializeMerge(maxVersion, device, compactionWriteRateLimiter,
-                entry, targetResource, writer);
+                entry, targetResource, writer, recompress);
           }
         }
         writer.endChunkGroup();
@@ -299,4 +372,4 @@ public class CompactionUtils {
           }
         });
   }
-}
\ No newline at end of file
+}
@@ -19,18 +19,29 @@
 package org.apache.iotdb.db.engine.flush;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.engine.flush.pool.FlushSubTaskPoolManager;
+import org.apache.iotdb.db.engine.memtable.AlignedWritableMemChunk;
 import org.apache.iotdb.db.engine.memtable.IMemTable;
 import org.apache.iotdb.db.engine.memtable.IWritableMemChunk;
 import org.apache.iotdb.db.exception.runtime.FlushRunTimeException;
+import org.apache.iotdb.db.utils.datastructure.AlignedTVList;
 import org.apache.iotdb.db.utils.datastructure.TVList;
+import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
+import org.apache.iotdb.tsfile.encoding.encoder.EncodingSelector;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
 import org.apache.iotdb.tsfile.utils.Pair;
+import org.apache.iotdb.tsfile.write.chunk.AlignedChunkGroupWriterImpl;
 import org.apache.iotdb.tsfile.write.chunk.ChunkWriterImpl;
+import org.apache.iotdb.tsfile.write.chunk.IChunkGroupWriter;
 import org.apache.iotdb.tsfile.write.chunk.IChunkWriter;
 import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
 import org.apache.iotdb.tsfile.write.writer.RestorableTsFileIOWriter;
@@ -42,6 +53,7 @@ public class MemTableFlushTask {
   private static final Logger logger = LoggerFactory.getLogger(MemTableFlushTask.class);
   private static final FlushSubTaskPoolManager subTaskPoolManager = FlushSubTaskPoolManager
       .getInstance();
+  private static final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
   private final Future<?> encodingTaskFuture;
   private final Future<?> ioTaskFuture;
   private RestorableTsFileIOWriter writer;
@@ -95,6 +107,21 @@ public class MemTableFlushTask {
       }
       encodingTaskQueue.add(new EndChunkGroupIoTask());
     }
+    for (Map.Entry<String, AlignedWritableMemChunk> entry : memTable.getAlignedMemChunkMap()
+        .entrySet()) {
+      AlignedWritableMemChunk alignedMemChunk = entry.getValue();
+      if (alignedMemChunk.count() == 0) {
+        // all the values are deleted
+        continue;
+      }
+      long startTime = System.currentTimeMillis();
+      AlignedTVList tvList = alignedMemChunk.getSortedTVList();
+      sortTime += System.currentTimeMillis() - startTime;
+      encodingTaskQueue.add(new StartFlushGroupIOTask(entry.getKey()));
+      encodingTaskQueue.add(
+          new AlignedEncodingTask(entry.getKey(), alignedMemChunk.getSchemas(), tvList));
+      encodingTaskQueue.add(new EndChunkGroupIoTask());
+    }
     noMoreEncodingTask = true;
     logger.debug(
         "Storage group {} memtable {}, flushing into disk: data sort time cost {} ms.",
@@ -160,6 +187,42 @@ public class MemTableFlushTask {
       }
     }
 
+    /**
+     * write the rows of an aligned device into one time chunk and a value chunk per measurement.
+     * The rows of the same time are merged, where the last value that is not null of every
+     * measurement is kept, and a row whose values are all null is skipped.
+     */
+    private IChunkGroupWriter writeAlignedDevice(AlignedEncodingTask task) throws IOException {
+      AlignedChunkGroupWriterImpl groupWriter = new AlignedChunkGroupWriterImpl(task.deviceId);
+      int pageSize = TSFileDescriptor.getInstance().getConfig().getPageSizeInByte();
+      for (MeasurementSchema schema : task.schemas) {
+        groupWriter.tryToAddSeriesWriter(schema, pageSize);
+      }
+      AlignedTVList tvList = task.tvList;
+      int columnNum = tvList.getColumnNum();
+      Object[] values = new Object[columnNum];
+      boolean hasValue = false;
+      for (int i = 0; i < tvList.size(); i++) {
+        int rowIndex = tvList.getRowIndex(i);
+        for (int column = 0; column < columnNum; column++) {
+          if (!tvList.isNull(column, rowIndex)) {
+            values[column] = tvList.getValue(column, rowIndex);
+            hasValue = true;
+          }
+        }
+        long time = tvList.getTime(i);
+        if (i + 1 < tvList.size() && time == tvList.getTime(i + 1)) {
+          continue;
+        }
+        if (hasValue) {
+          groupWriter.write(time, values);
+          values = new Object[columnNum];
+          hasValue = false;
+        }
+      }
+      return groupWriter;
+    }
+
     @SuppressWarnings("squid:S135")
     @Override
     public void run() {
@@ -187,10 +250,24 @@ public class MemTableFlushTask {
         } else {
           if (task instanceof StartFlushGroupIOTask || task instanceof EndChunkGroupIoTask) {
             ioTaskQueue.add(task);
+          } else if (task instanceof AlignedEncodingTask) {
+            long starTime = System.currentTimeMillis();
+            try {
+              ioTaskQueue.add(writeAlignedDevice((AlignedEncodingTask) task));
+            } catch (IOException e) {
+              logger.error("Storage group {} memtable {}, encoding task meets error.",
+                  storageGroup, memTable.getVersion(), e);
+              throw new FlushRunTimeException(e);
+            }
+            memSerializeTime += System.currentTimeMillis() - starTime;
           } else {
             long starTime = System.currentTimeMillis();
             Pair<TVList, MeasurementSchema> encodingMessage = (Pair<TVList, MeasurementSchema>) task;
-            IChunkWriter seriesWriter = new ChunkWriterImpl(encodingMessage.right);
+            MeasurementSchema schema = encodingMessage.right;
+            if (config.isEnableAdaptiveEncoding()) {
+              schema = selectEncoding(encodingMessage.left, schema);
+            }
+            IChunkWriter seriesWriter = new ChunkWriterImpl(schema);
             writeOneSeries(encodingMessage.left, seriesWriter, encodingMessage.right.getType());
             ioTaskQueue.add(seriesWriter);
             memSerializeTime += System.currentTimeMillis() - starTime;
@@ -204,6 +281,38 @@ public class MemTableFlushTask {
     }
   };
 
+  /**
+   * Select the encoding that takes the least space for the chunk of a series. FLOAT and DOUBLE
+   * series using RLE or TS_2DIFF keep their encoding as the precision is part of their schema, and
+   * so do series with overwritten points, whose sampled values are not exactly the written ones.
+   */
+  private MeasurementSchema selectEncoding(TVList tvList, MeasurementSchema schema) {
+    TSDataType dataType = schema.getType();
+    TSEncoding encoding = schema.getEncodingType();
+    if ((dataType == TSDataType.FLOAT || dataType == TSDataType.DOUBLE)
+        && (encoding == TSEncoding.RLE || encoding == TSEncoding.TS_2DIFF)) {
+      return schema;
+    }
+    for (int i = 1; i < tvList.size(); i++) {
+      if (tvList.getTime(i) == tvList.getTime(i - 1)) {
+        return schema;
+      }
+    }
+    try {
+      TSEncoding selectedEncoding = EncodingSelector
+          .select(dataType, tvList, config.getAdaptiveEncodingSampleSize());
+      if (selectedEncoding == encoding) {
+        return schema;
+      }
+      return new MeasurementSchema(schema.getMeasurementId(), dataType, selectedEncoding,
+          schema.getCompressor(), schema.getProps());
+    } catch (IOException e) {
+      logger.warn("Storage group {} memtable {}, cannot select the encoding of {}, use {}",
+          storageGroup, memTable.getVersion(), schema.getMeasurementId(), encoding, e);
+      return schema;
+    }
+  }
+
   @SuppressWarnings("squid:S135")
   private Runnable ioTask = () -> {
     long ioTime = 0;
@@ -234,6 +343,8 @@ public class MemTableFlushTask {
           } else if (ioMessage instanceof IChunkWriter) {
             ChunkWriterImpl chunkWriter = (ChunkWriterImpl) ioMessage;
             chunkWriter.writeToFileWriter(this.writer);
+          } else if (ioMessage instanceof IChunkGroupWriter) {
+            ((IChunkGroupWriter) ioMessage).flushToFileWriter(this.writer);
           } else {
             this.writer.endChunkGroup();
           }
@@ -256,6 +367,19 @@ public class MemTableFlushTask {
     }
   }
 
+  static class AlignedEncodingTask {
+
+    private final String deviceId;
+    private final List<MeasurementSchema> schemas;
+    private final AlignedTVList tvList;
+
+    AlignedEncodingTask(String deviceId, List<MeasurementSchema> schemas, AlignedTVList tvList) {
+      this.deviceId = deviceId;
+      this.schemas = schemas;
+      this.tvList = tvList;
+    }
+  }
+
   static class StartFlushGroupIOTask {
 
     private final String deviceId;
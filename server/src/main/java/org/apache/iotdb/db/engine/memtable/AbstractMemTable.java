@@ -37,16 +37,23 @@ import org.apache.iotdb.db.qp.physical.crud.InsertRowPlan;
 import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
 import org.apache.iotdb.db.rescon.TVListAllocator;
 import org.apache.iotdb.db.utils.MemUtils;
+import org.apache.iotdb.db.utils.datastructure.AlignedTVList;
 import org.apache.iotdb.db.utils.datastructure.TVList;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
 import org.apache.iotdb.tsfile.read.common.TimeRange;
+import org.apache.iotdb.tsfile.utils.BitMap;
 import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
 
 public abstract class AbstractMemTable implements IMemTable {
 
   private final Map<String, Map<String, IWritableMemChunk>> memTableMap;
 
+  /**
+   * deviceId -> the data of an aligned device, a device is either in memTableMap or here
+   */
+  private final Map<String, AlignedWritableMemChunk> alignedMemChunkMap;
+
   private long version = Long.MAX_VALUE;
 
   private List<Modification> modifications = new ArrayList<>();
@@ -83,10 +90,13 @@ public abstract class AbstractMemTable implements IMemTable {
 
   public AbstractMemTable() {
     this.memTableMap = new HashMap<>();
+    this.alignedMemChunkMap = new HashMap<>();
   }
 
-  public AbstractMemTable(Map<String, Map<String, IWritableMemChunk>> memTableMap) {
+  public AbstractMemTable(Map<String, Map<String, IWritableMemChunk>> memTableMap,
+      Map<String, AlignedWritableMemChunk> alignedMemChunkMap) {
     this.memTableMap = memTableMap;
+    this.alignedMemChunkMap = alignedMemChunkMap;
   }
 
   @Override
@@ -94,6 +104,11 @@ public abstract class AbstractMemTable implements IMemTable {
     return memTableMap;
   }
 
+  @Override
+  public Map<String, AlignedWritableMemChunk> getAlignedMemChunkMap() {
+    return alignedMemChunkMap;
+  }
+
   /**
    * check whether the given seriesPath is within this memtable.
    *
@@ -119,9 +134,35 @@ public abstract class AbstractMemTable implements IMemTable {
 
   protected abstract IWritableMemChunk genMemSeries(MeasurementSchema schema);
 
+  /**
+   * The data of a device is written into an AlignedWritableMemChunk if the first plan of the
+   * device in this memtable is an aligned InsertTabletPlan, and so is all its data after that.
+   *
+   * @return the aligned chunk of the device, or null if the device is not aligned in this memtable
+   */
+  private AlignedWritableMemChunk getAlignedMemChunk(String deviceId, boolean isAlignedPlan) {
+    AlignedWritableMemChunk memChunk = alignedMemChunkMap.get(deviceId);
+    if (memChunk == null && isAlignedPlan && !memTableMap.containsKey(deviceId)) {
+      memChunk = new AlignedWritableMemChunk(new AlignedTVList());
+      alignedMemChunkMap.put(deviceId, memChunk);
+    }
+    return memChunk;
+  }
+
+  private void updateSeriesNumber(int increment) {
+    seriesNumber += increment;
+    totalPointsNumThreshold += (long) avgSeriesPointNumThreshold * increment;
+  }
+
   @Override
   public void insert(InsertRowPlan insertRowPlan) {
     updatePlanIndexes(insertRowPlan.getIndex());
+    AlignedWritableMemChunk alignedMemChunk = getAlignedMemChunk(
+        insertRowPlan.getDeviceId().getFullPath(), false);
+    if (alignedMemChunk != null) {
+      insertAligned(insertRowPlan, alignedMemChunk);
+      return;
+    }
     for (int i = 0; i < insertRowPlan.getValues().length; i++) {
 
       if (insertRowPlan.getValues()[i] == null) {
@@ -139,6 +180,23 @@ public abstract class AbstractMemTable implements IMemTable {
     totalPointsNum += insertRowPlan.getMeasurements().length - insertRowPlan.getFailedMeasurementNumber();
   }
 
+  private void insertAligned(InsertRowPlan insertRowPlan, AlignedWritableMemChunk memChunk) {
+    MeasurementSchema[] schemas = new MeasurementSchema[insertRowPlan.getValues().length];
+    for (int i = 0; i < insertRowPlan.getValues().length; i++) {
+      if (insertRowPlan.getValues()[i] == null) {
+        continue;
+      }
+      schemas[i] = insertRowPlan.getMeasurementMNodes()[i].getSchema();
+      memSize += MemUtils.getRecordSize(schemas[i].getType(), insertRowPlan.getValues()[i],
+          disableMemControl);
+    }
+    int columnNum = memChunk.getColumnNum();
+    memChunk.write(insertRowPlan.getTime(), insertRowPlan.getMeasurements(), schemas,
+        insertRowPlan.getValues());
+    updateSeriesNumber(memChunk.getColumnNum() - columnNum);
+    totalPointsNum += insertRowPlan.getMeasurements().length - insertRowPlan.getFailedMeasurementNumber();
+  }
+
   @Override
   public void insertTablet(InsertTabletPlan insertTabletPlan, int start, int end)
       throws WriteProcessException {
@@ -157,6 +215,14 @@ public abstract class AbstractMemTable implements IMemTable {
   @Override
   public void write(String deviceId, String measurement, MeasurementSchema schema, long insertTime,
       Object objectValue) {
+    AlignedWritableMemChunk alignedMemChunk = getAlignedMemChunk(deviceId, false);
+    if (alignedMemChunk != null) {
+      int columnNum = alignedMemChunk.getColumnNum();
+      alignedMemChunk.write(insertTime, new String[]{measurement}, new MeasurementSchema[]{schema},
+          new Object[]{objectValue});
+      updateSeriesNumber(alignedMemChunk.getColumnNum() - columnNum);
+      return;
+    }
     IWritableMemChunk memSeries = createIfNotExistAndGet(deviceId, measurement, schema);
     memSeries.write(insertTime, objectValue);
   }
@@ -164,19 +230,36 @@ public abstract class AbstractMemTable implements IMemTable {
   @Override
   public void write(InsertTabletPlan insertTabletPlan, int start, int end) {
     updatePlanIndexes(insertTabletPlan.getIndex());
+    AlignedWritableMemChunk alignedMemChunk = getAlignedMemChunk(
+        insertTabletPlan.getDeviceId().getFullPath(), insertTabletPlan.isAligned());
+    if (alignedMemChunk != null) {
+      int columnNum = alignedMemChunk.getColumnNum();
+      alignedMemChunk.write(insertTabletPlan, start, end);
+      updateSeriesNumber(alignedMemChunk.getColumnNum() - columnNum);
+      return;
+    }
     for (int i = 0; i < insertTabletPlan.getMeasurements().length; i++) {
       if (insertTabletPlan.getColumns()[i] == null) {
         continue;
       }
+      BitMap bitMap = insertTabletPlan.getBitMaps() == null ? null
+          : insertTabletPlan.getBitMaps()[i];
+      if (bitMap != null && bitMap.isAllMarked(start, end)) {
+        // all the values of the measurement in the range are null
+        continue;
+      }
       IWritableMemChunk memSeries = createIfNotExistAndGet(insertTabletPlan.getDeviceId().getFullPath(),
           insertTabletPlan.getMeasurements()[i], insertTabletPlan.getMeasurementMNodes()[i].getSchema());
-      memSeries.write(insertTabletPlan.getTimes(), insertTabletPlan.getColumns()[i],
+      memSeries.write(insertTabletPlan.getTimes(), insertTabletPlan.getColumns()[i], bitMap,
           insertTabletPlan.getDataTypes()[i], start, end);
     }
   }
 
   @Override
   public boolean checkIfChunkDoesNotExist(String deviceId, String measurement) {
+    if (alignedMemChunkMap.containsKey(deviceId)) {
+      return !alignedMemChunkMap.get(deviceId).containsMeasurement(measurement);
+    }
     if (!memTableMap.containsKey(deviceId)) {
       return true;
     }
@@ -186,6 +269,10 @@ public abstract class AbstractMemTable implements IMemTable {
 
   @Override
   public int getCurrentChunkPointNum(String deviceId, String measurement) {
+    if (alignedMemChunkMap.containsKey(deviceId)) {
+      // all the measurements of an aligned device have a value or a null in every row
+      return alignedMemChunkMap.get(deviceId).getTVList().size();
+    }
     Map<String, IWritableMemChunk> memSeries = memTableMap.get(deviceId);
     IWritableMemChunk memChunk = memSeries.get(measurement);
     return memChunk.getTVList().size();
@@ -207,6 +294,9 @@ public abstract class AbstractMemTable implements IMemTable {
         sum += writableMemChunk.count();
       }
     }
+    for (AlignedWritableMemChunk alignedMemChunk : alignedMemChunkMap.values()) {
+      sum += alignedMemChunk.count();
+    }
     return sum;
   }
 
@@ -226,6 +316,7 @@ public abstract class AbstractMemTable implements IMemTable {
   @Override
   public void clear() {
     memTableMap.clear();
+    alignedMemChunkMap.clear();
     modifications.clear();
     memSize = 0;
     seriesNumber = 0;
@@ -237,19 +328,23 @@ public abstract class AbstractMemTable implements IMemTable {
 
   @Override
   public boolean isEmpty() {
-    return memTableMap.isEmpty();
+    return memTableMap.isEmpty() && alignedMemChunkMap.isEmpty();
   }
 
   @Override
   public ReadOnlyMemChunk query(String deviceId, String measurement, TSDataType dataType,
       TSEncoding encoding, Map<String, String> props, long timeLowerBound)
       throws IOException, QueryProcessException, MetadataException {
-    if (!checkPath(deviceId, measurement)) {
+    TVList chunkCopy;
+    AlignedWritableMemChunk alignedMemChunk = alignedMemChunkMap.get(deviceId);
+    if (alignedMemChunk != null && alignedMemChunk.containsMeasurement(measurement)) {
+      chunkCopy = alignedMemChunk.getColumnTVList(measurement);
+    } else if (checkPath(deviceId, measurement)) {
+      chunkCopy = memTableMap.get(deviceId).get(measurement).getTVList().clone();
+    } else {
       return null;
     }
     List<TimeRange> deletionList = constructDeletionList(deviceId, measurement, timeLowerBound);
-    IWritableMemChunk memChunk = memTableMap.get(deviceId).get(measurement);
-    TVList chunkCopy = memChunk.getTVList().clone();
 
     chunkCopy.setDeletionList(deletionList);
     return new ReadOnlyMemChunk(measurement, dataType, encoding, chunkCopy, props, getVersion());
@@ -274,6 +369,11 @@ public abstract class AbstractMemTable implements IMemTable {
 
   @Override
   public void delete(PartialPath originalPath, PartialPath devicePath, long startTimestamp, long endTimestamp) {
+    AlignedWritableMemChunk alignedMemChunk = alignedMemChunkMap.get(devicePath.getFullPath());
+    if (alignedMemChunk != null) {
+      deleteAligned(originalPath, devicePath, startTimestamp, endTimestamp, alignedMemChunk);
+      return;
+    }
     Map<String, IWritableMemChunk> deviceMap = memTableMap.get(devicePath.getFullPath());
     if (deviceMap == null) {
       return;
@@ -294,6 +394,26 @@ public abstract class AbstractMemTable implements IMemTable {
     }
   }
 
+  /**
+   * the deleted values of an aligned device are set to null, and the device is removed if all its
+   * measurements are deleted without a time range.
+   */
+  private void deleteAligned(PartialPath originalPath, PartialPath devicePath,
+      long startTimestamp, long endTimestamp, AlignedWritableMemChunk alignedMemChunk) {
+    boolean allDeleted = true;
+    for (MeasurementSchema schema : alignedMemChunk.getSchemas()) {
+      String measurementId = schema.getMeasurementId();
+      if (originalPath.matchFullPath(devicePath.concatNode(measurementId))) {
+        totalPointsNum -= alignedMemChunk.delete(measurementId, startTimestamp, endTimestamp);
+      } else {
+        allDeleted = false;
+      }
+    }
+    if (allDeleted && startTimestamp == Long.MIN_VALUE && endTimestamp == Long.MAX_VALUE) {
+      alignedMemChunkMap.remove(devicePath.getFullPath());
+    }
+  }
+
   @Override
   public void delete(Deletion deletion) {
     this.modifications.add(deletion);
@@ -329,6 +449,9 @@ public abstract class AbstractMemTable implements IMemTable {
         TVListAllocator.getInstance().release(subEntry.getValue().getTVList());
       }
     }
+    for (AlignedWritableMemChunk alignedMemChunk : alignedMemChunkMap.values()) {
+      TVListAllocator.getInstance().release(alignedMemChunk.getTVList());
+    }
   }
 
   @Override
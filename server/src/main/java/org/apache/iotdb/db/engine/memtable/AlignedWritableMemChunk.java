@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.memtable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
+import org.apache.iotdb.db.utils.datastructure.AlignedTVList;
+import org.apache.iotdb.db.utils.datastructure.TVList;
+import org.apache.iotdb.tsfile.utils.BitMap;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+
+/**
+ * AlignedWritableMemChunk keeps all the measurements of an aligned device in a memtable with one
+ * AlignedTVList, so the times of a tablet are kept once instead of once for every measurement. A
+ * measurement first written after some rows has null values in those rows.
+ */
+public class AlignedWritableMemChunk {
+
+  private List<MeasurementSchema> schemas = new ArrayList<>();
+
+  /**
+   * measurementId -> the column of the measurement in the list
+   */
+  private Map<String, Integer> columns = new HashMap<>();
+
+  private AlignedTVList list;
+
+  public AlignedWritableMemChunk(AlignedTVList list) {
+    this.list = list;
+  }
+
+  private int getOrAddColumn(MeasurementSchema schema) {
+    return columns.computeIfAbsent(schema.getMeasurementId(), measurementId -> {
+      schemas.add(schema);
+      return list.addColumn(schema.getType());
+    });
+  }
+
+  /**
+   * write a row, the measurements whose values are null are written as null.
+   */
+  public void write(long insertTime, String[] measurements, MeasurementSchema[] measurementSchemas,
+      Object[] values) {
+    for (int i = 0; i < measurements.length; i++) {
+      if (values[i] != null) {
+        getOrAddColumn(measurementSchemas[i]);
+      }
+    }
+    Object[] rowValues = new Object[list.getColumnNum()];
+    for (int i = 0; i < measurements.length; i++) {
+      if (values[i] != null) {
+        rowValues[columns.get(measurements[i])] = values[i];
+      }
+    }
+    list.putAlignedValue(insertTime, rowValues);
+  }
+
+  /**
+   * write the rows in [start, end) of a tablet, the measurements that are not in the tablet or
+   * failed are written as null.
+   */
+  public void write(InsertTabletPlan insertTabletPlan, int start, int end) {
+    String[] measurements = insertTabletPlan.getMeasurements();
+    Object[] planColumns = insertTabletPlan.getColumns();
+    for (int i = 0; i < measurements.length; i++) {
+      if (planColumns[i] != null) {
+        getOrAddColumn(insertTabletPlan.getMeasurementMNodes()[i].getSchema());
+      }
+    }
+    Object[] listColumns = new Object[list.getColumnNum()];
+    BitMap[] listBitMaps = new BitMap[list.getColumnNum()];
+    for (int i = 0; i < measurements.length; i++) {
+      if (planColumns[i] == null) {
+        continue;
+      }
+      int column = columns.get(measurements[i]);
+      listColumns[column] = planColumns[i];
+      listBitMaps[column] =
+          insertTabletPlan.getBitMaps() == null ? null : insertTabletPlan.getBitMaps()[i];
+    }
+    list.putAlignedValues(insertTabletPlan.getTimes(), listColumns, listBitMaps, start, end);
+  }
+
+  public boolean containsMeasurement(String measurementId) {
+    return columns.containsKey(measurementId);
+  }
+
+  /**
+   * @return the schemas of the measurements in the order of the columns of the list
+   */
+  public List<MeasurementSchema> getSchemas() {
+    return schemas;
+  }
+
+  public int getColumnNum() {
+    return schemas.size();
+  }
+
+  /**
+   * @return the values of a measurement that are not null, as a TVList of its data type
+   */
+  public TVList getColumnTVList(String measurementId) {
+    return list.getColumnTVList(columns.get(measurementId));
+  }
+
+  public synchronized AlignedTVList getSortedTVList() {
+    list.sort();
+    return list;
+  }
+
+  public AlignedTVList getTVList() {
+    return list;
+  }
+
+  /**
+   * @return the number of values that are not null
+   */
+  public long count() {
+    long count = 0;
+    for (int column = 0; column < list.getColumnNum(); column++) {
+      count += list.getValueCount(column);
+    }
+    return count;
+  }
+
+  /**
+   * @return how many points are deleted
+   */
+  public int delete(String measurementId, long lowerBound, long upperBound) {
+    return list.delete(columns.get(measurementId), lowerBound, upperBound);
+  }
+}
@@ -43,6 +43,11 @@ public interface IMemTable {
 
   Map<String, Map<String, IWritableMemChunk>> getMemTableMap();
 
+  /**
+   * @return deviceId -> the data of an aligned device, whose measurements share one time column
+   */
+  Map<String, AlignedWritableMemChunk> getAlignedMemChunkMap();
+
   void write(String deviceId, String measurement, MeasurementSchema schema,
       long insertTime, Object objectValue);
 
@@ -21,6 +21,7 @@ package org.apache.iotdb.db.engine.memtable;
 import org.apache.iotdb.db.utils.datastructure.TVList;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.BitMap;
 import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
 
 public interface IWritableMemChunk {
@@ -37,25 +38,28 @@ public interface IWritableMemChunk {
 
   void putBoolean(long t, boolean v);
 
-  void putLongs(long[] t, long[] v, int start, int end);
+  void putLongs(long[] t, long[] v, BitMap bitMap, int start, int end);
 
-  void putInts(long[] t, int[] v, int start, int end);
+  void putInts(long[] t, int[] v, BitMap bitMap, int start, int end);
 
-  void putFloats(long[] t, float[] v, int start, int end);
+  void putFloats(long[] t, float[] v, BitMap bitMap, int start, int end);
 
-  void putDoubles(long[] t, double[] v, int start, int end);
+  void putDoubles(long[] t, double[] v, BitMap bitMap, int start, int end);
 
-  void putBinaries(long[] t, Binary[] v, int start, int end);
+  void putBinaries(long[] t, Binary[] v, BitMap bitMap, int start, int end);
 
-  void putBooleans(long[] t, boolean[] v, int start, int end);
+  void putBooleans(long[] t, boolean[] v, BitMap bitMap, int start, int end);
 
 
   void write(long insertTime, Object objectValue);
 
   /**
-   * [start, end)
+   * [start, end), the rows marked in bitMap are skipped
+   *
+   * @param bitMap the null values of the rows, or null if no value is null
    */
-  void write(long[] times, Object valueList, TSDataType dataType, int start, int end);
+  void write(long[] times, Object valueList, BitMap bitMap, TSDataType dataType, int start,
+      int end);
 
   long count();
 
@@ -32,8 +32,9 @@ public class PrimitiveMemTable extends AbstractMemTable {
   public PrimitiveMemTable(boolean enableMemControl) {
     this.disableMemControl = !enableMemControl;
   }
-  public PrimitiveMemTable(Map<String, Map<String, IWritableMemChunk>> memTableMap) {
-    super(memTableMap);
+  public PrimitiveMemTable(Map<String, Map<String, IWritableMemChunk>> memTableMap,
+      Map<String, AlignedWritableMemChunk> alignedMemChunkMap) {
+    super(memTableMap, alignedMemChunkMap);
   }
 
   @Override
@@ -45,7 +46,7 @@ public class PrimitiveMemTable extends AbstractMemTable {
   public IMemTable copy() {
     Map<String, Map<String, IWritableMemChunk>> newMap = new HashMap<>(getMemTableMap());
 
-    return new PrimitiveMemTable(newMap);
+    return new PrimitiveMemTable(newMap, new HashMap<>(getAlignedMemChunkMap()));
   }
 
   @Override
@@ -22,6 +22,7 @@ import org.apache.iotdb.db.utils.datastructure.TVList;
 import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.BitMap;
 import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
 
 public class WritableMemChunk implements IWritableMemChunk {
@@ -61,31 +62,32 @@ public class WritableMemChunk implements IWritableMemChunk {
   }
 
   @Override
-  public void write(long[] times, Object valueList, TSDataType dataType, int start, int end) {
+  public void write(long[] times, Object valueList, BitMap bitMap, TSDataType dataType, int start,
+      int end) {
     switch (dataType) {
       case BOOLEAN:
         boolean[] boolValues = (boolean[]) valueList;
-        putBooleans(times, boolValues, start, end);
+        putBooleans(times, boolValues, bitMap, start, end);
         break;
       case INT32:
         int[] intValues = (int[]) valueList;
-        putInts(times, intValues, start, end);
+        putInts(times, intValues, bitMap, start, end);
         break;
       case INT64:
         long[] longValues = (long[]) valueList;
-        putLongs(times, longValues, start, end);
+        putLongs(times, longValues, bitMap, start, end);
         break;
       case FLOAT:
         float[] floatValues = (float[]) valueList;
-        putFloats(times, floatValues, start, end);
+        putFloats(times, floatValues, bitMap, start, end);
         break;
       case DOUBLE:
         double[] doubleValues = (double[]) valueList;
-        putDoubles(times, doubleValues, start, end);
+        putDoubles(times, doubleValues, bitMap, start, end);
         break;
       case TEXT:
         Binary[] binaryValues = (Binary[]) valueList;
-        putBinaries(times, binaryValues, start, end);
+        putBinaries(times, binaryValues, bitMap, start, end);
         break;
       default:
         throw new UnSupportedDataTypeException("Unsupported data type:" + dataType);
@@ -123,33 +125,33 @@ public class WritableMemChunk implements IWritableMemChunk {
   }
 
   @Override
-  public void putLongs(long[] t, long[] v, int start, int end) {
-    list.putLongs(t, v, start, end);
+  public void putLongs(long[] t, long[] v, BitMap bitMap, int start, int end) {
+    list.putLongs(t, v, bitMap, start, end);
   }
 
   @Override
-  public void putInts(long[] t, int[] v, int start, int end) {
-    list.putInts(t, v, start, end);
+  public void putInts(long[] t, int[] v, BitMap bitMap, int start, int end) {
+    list.putInts(t, v, bitMap, start, end);
   }
 
   @Override
-  public void putFloats(long[] t, float[] v, int start, int end) {
-    list.putFloats(t, v, start, end);
+  public void putFloats(long[] t, float[] v, BitMap bitMap, int start, int end) {
+    list.putFloats(t, v, bitMap, start, end);
   }
 
   @Override
-  public void putDoubles(long[] t, double[] v, int start, int end) {
-    list.putDoubles(t, v, start, end);
+  public void putDoubles(long[] t, double[] v, BitMap bitMap, int start, int end) {
+    list.putDoubles(t, v, bitMap, start, end);
   }
 
   @Override
-  public void putBinaries(long[] t, Binary[] v, int start, int end) {
-    list.putBinaries(t, v, start, end);
+  public void putBinaries(long[] t, Binary[] v, BitMap bitMap, int start, int end) {
+    list.putBinaries(t, v, bitMap, start, end);
   }
 
   @Override
-  public void putBooleans(long[] t, boolean[] v, int start, int end) {
-    list.putBooleans(t, v, start, end);
+  public void putBooleans(long[] t, boolean[] v, BitMap bitMap, int start, int end) {
+    list.putBooleans(t, v, bitMap, start, end);
   }
 
   @Override
@@ -48,6 +48,7 @@ import org.apache.iotdb.db.conf.IoTDBConstant;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.conf.directories.DirectoryManager;
 import org.apache.iotdb.db.engine.StorageEngine;
+import org.apache.iotdb.db.engine.cache.GroupByResultCache;
 import org.apache.iotdb.db.engine.compaction.CompactionMergeTaskPoolManager;
 import org.apache.iotdb.db.engine.compaction.TsFileManagement;
 import org.apache.iotdb.db.engine.compaction.level.LevelCompactionTsFileManagement;
@@ -94,6 +95,7 @@ import org.apache.iotdb.tsfile.read.filter.basic.Filter;
 import org.apache.iotdb.tsfile.utils.Pair;
 import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
 import org.apache.iotdb.tsfile.write.writer.RestorableTsFileIOWriter;
+import org.apache.iotdb.tsfile.write.writer.TsFileIOWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -355,10 +357,8 @@ public class StorageGroupProcessor {
     for (TsFileResource resource : tsFileManagement.getTsFileList(true)) {
       long timePartitionId = resource.getTimePartition();
       Map<String, Long> endTimeMap = new HashMap<>();
-      for (Entry<String, Integer> entry : resource.getDeviceToIndexMap().entrySet()) {
-        String deviceId = entry.getKey();
-        int index = entry.getValue();
-        long endTime = resource.getEndTime(index);
+      for (String deviceId : resource.getDevices()) {
+        long endTime = resource.getEndTime(deviceId);
         endTimeMap.put(deviceId, endTime);
       }
       latestTimeForEachDevice.computeIfAbsent(timePartitionId, l -> new HashMap<>())
@@ -367,6 +367,10 @@ public class StorageGroupProcessor {
           .computeIfAbsent(timePartitionId, id -> new HashMap<>())
           .putAll(endTimeMap);
       globalLatestFlushedTimeForEachDevice.putAll(endTimeMap);
+      resource.degradeTimeIndex();
+    }
+    for (TsFileResource resource : tsFileManagement.getTsFileList(false)) {
+      resource.degradeTimeIndex();
     }
   }
 
@@ -388,17 +392,15 @@ public class StorageGroupProcessor {
         storageGroupSysDir.getPath());
     long currentVersion = versionController.currVersion();
     for (TsFileResource resource : upgradeSeqFileList) {
-      for (Entry<String, Integer> entry : resource.getDeviceToIndexMap().entrySet()) {
-        String deviceId = entry.getKey();
-        int index = entry.getValue();
-        long endTime = resource.getEndTime(index);
+      for (String deviceId : resource.getDevices()) {
+        long endTime = resource.getEndTime(deviceId);
         long endTimePartitionId = StorageEngine.getTimePartition(endTime);
         latestTimeForEachDevice.computeIfAbsent(endTimePartitionId, l -> new HashMap<>())
             .put(deviceId, endTime);
         globalLatestFlushedTimeForEachDevice.put(deviceId, endTime);
 
         // set all the covered partition's LatestFlushedTime to Long.MAX_VALUE
-        long partitionId = StorageEngine.getTimePartition(resource.getStartTime(index));
+        long partitionId = StorageEngine.getTimePartition(resource.getStartTime(deviceId));
         while (partitionId <= endTimePartitionId) {
           partitionLatestFlushedTimeForEachDevice.computeIfAbsent(partitionId, l -> new HashMap<>())
               .put(deviceId, Long.MAX_VALUE);
@@ -519,6 +521,9 @@ public class StorageGroupProcessor {
             // the process was interrupted before the merged files could be named
             continueFailedRenames(partitionFolder, MERGE_SUFFIX);
 
+            // the metadata temp files of the writers, the merges and the compactions that crashed
+            deleteMetadataTempFiles(partitionFolder);
+
             Collections.addAll(tsFiles,
                 fsFactory.listFilesBySuffix(partitionFolder.getAbsolutePath(), TSFILE_SUFFIX));
           }
@@ -555,6 +560,20 @@ public class StorageGroupProcessor {
     }
   }
 
+  private void deleteMetadataTempFiles(File partitionFolder) {
+    for (String suffix : new String[]{TsFileIOWriter.CHUNK_METADATA_TEMP_FILE_SUFFIX,
+        TsFileIOWriter.TIMESERIES_METADATA_TEMP_FILE_SUFFIX}) {
+      File[] files = fsFactory.listFilesBySuffix(partitionFolder.getAbsolutePath(), suffix);
+      if (files != null) {
+        for (File tempFile : files) {
+          if (!tempFile.delete()) {
+            logger.warn("Cannot delete the metadata temp file {}", tempFile);
+          }
+        }
+      }
+    }
+  }
+
   private void recoverTsFiles(List<TsFileResource> tsFiles, boolean isSeq) {
     for (int i = 0; i < tsFiles.size(); i++) {
       TsFileResource tsFileResource = tsFiles.get(i);
@@ -852,16 +871,21 @@ public class StorageGroupProcessor {
       if (plan.getColumns()[i] == null) {
         continue;
       }
+      TimeValuePair lastTimeValuePair = plan.composeLastTimeValuePair(i);
+      if (lastTimeValuePair == null) {
+        // all the values of the measurement are null
+        continue;
+      }
       // Update cached last value with high priority
       if (mNodes[i] != null) {
         // in stand alone version, the seriesPath is not needed, just use measurementMNodes[i] to update last cache
         IoTDB.metaManager.updateLastCache(null,
-            plan.composeLastTimeValuePair(i), true, latestFlushedTime, mNodes[i]);
+            lastTimeValuePair, true, latestFlushedTime, mNodes[i]);
       } else {
         // measurementMNodes[i] is null, use the path to update remote cache
         IoTDB.metaManager
             .updateLastCache(plan.getDeviceId().concatNode(plan.getMeasurements()[i]),
-                plan.composeLastTimeValuePair(i), true, latestFlushedTime, null);
+                lastTimeValuePair, true, latestFlushedTime, null);
       }
     }
   }
@@ -1439,6 +1463,19 @@ public class StorageGroupProcessor {
    */
   private boolean isTsFileResourceSatisfied(TsFileResource tsFileResource, String deviceId,
       Filter timeFilter, boolean isSeq) {
+    if (tsFileResource.hasFileTimeIndex()) {
+      // check the time range of the whole file first, so that the times of the devices are not
+      // loaded for the files out of the query
+      long fileEndTime = tsFileResource.getFileEndTime();
+      if (!isAlive(fileEndTime) || timeFilter != null && !timeFilter
+          .satisfyStartEndTime(tsFileResource.getFileStartTime(), fileEndTime)) {
+        if (config.isDebugOn()) {
+          DEBUG_LOGGER.info("Path: {} file {} is not satisfied because of the file time range!",
+              deviceId, tsFileResource);
+        }
+        return false;
+      }
+    }
     if (!tsFileResource.containsDevice(deviceId)) {
       if (config.isDebugOn()) {
         DEBUG_LOGGER.info("Path: {} file {} is not satisfied because of no device!", deviceId,
@@ -1447,9 +1484,8 @@ public class StorageGroupProcessor {
       return false;
     }
 
-    int deviceIndex = tsFileResource.getDeviceToIndexMap().get(deviceId);
-    long startTime = tsFileResource.getStartTime(deviceIndex);
-    long endTime = tsFileResource.isClosed() || !isSeq ? tsFileResource.getEndTime(deviceIndex)
+    long startTime = tsFileResource.getStartTime(deviceId);
+    long endTime = tsFileResource.isClosed() || !isSeq ? tsFileResource.getEndTime(deviceId)
         : Long.MAX_VALUE;
 
     if (!isAlive(endTime)) {
@@ -1506,6 +1542,10 @@ public class StorageGroupProcessor {
         }
         // delete Last cache record if necessary
         tryToDeleteLastCache(device, path, startTime, endTime);
+        // delete the cached GROUP BY results of the deleted time range
+        if (GroupByResultCache.getInstance().isEnabled()) {
+          GroupByResultCache.getInstance().remove(device, path, startTime, endTime);
+        }
       }
 
       // write log to impacted working TsFileProcessors
@@ -1624,8 +1664,7 @@ public class StorageGroupProcessor {
    */
   private void updateEndTimeMap(TsFileProcessor tsFileProcessor) {
     TsFileResource resource = tsFileProcessor.getTsFileResource();
-    for (Entry<String, Integer> startTime : resource.getDeviceToIndexMap().entrySet()) {
-      String deviceId = startTime.getKey();
+    for (String deviceId : resource.getDevices()) {
       resource.forceUpdateEndTime(deviceId,
           latestTimeForEachDevice.get(tsFileProcessor.getTimeRangeId()).get(deviceId));
     }
@@ -1751,9 +1790,9 @@ public class StorageGroupProcessor {
     List<TsFileResource> upgradedResources = tsFileResource.getUpgradedResources();
     for (TsFileResource resource : upgradedResources) {
       long partitionId = resource.getTimePartition();
-      resource.getDeviceToIndexMap().forEach((device, index) ->
+      resource.getDevices().forEach(device ->
           updateNewlyFlushedPartitionLatestFlushedTimeForEachDevice(partitionId, device,
-              resource.getEndTime(index))
+              resource.getEndTime(device))
       );
     }
     insertLock.writeLock().lock();
@@ -1972,8 +2011,8 @@ public class StorageGroupProcessor {
    */
   private int compareTsFileDevices(TsFileResource fileA, TsFileResource fileB) {
     boolean hasPre = false, hasSubsequence = false;
-    for (String device : fileA.getDeviceToIndexMap().keySet()) {
-      if (!fileB.getDeviceToIndexMap().containsKey(device)) {
+    for (String device : fileA.getDevices()) {
+      if (!fileB.containsDevice(device)) {
         continue;
       }
       long startTimeA = fileA.getStartTime(device);
@@ -2131,10 +2170,8 @@ public class StorageGroupProcessor {
    * @UsedBy sync module, load external tsfile module.
    */
   private void updateLatestTimeMap(TsFileResource newTsFileResource) {
-    for (Entry<String, Integer> entry : newTsFileResource.getDeviceToIndexMap().entrySet()) {
-      String device = entry.getKey();
-      int index = entry.getValue();
-      long endTime = newTsFileResource.getEndTime(index);
+    for (String device : newTsFileResource.getDevices()) {
+      long endTime = newTsFileResource.getEndTime(device);
       long timePartitionId = StorageEngine.getTimePartition(endTime);
       if (!latestTimeForEachDevice.computeIfAbsent(timePartitionId, id -> new HashMap<>())
           .containsKey(device)
@@ -929,9 +929,8 @@ public class TsFileProcessor {
       // get in memory data
       if (!readOnlyMemChunks.isEmpty() || !chunkMetadataList.isEmpty()) {
         tsfileResourcesForQuery.add(new TsFileResource(tsFileResource.getTsFile(),
-            tsFileResource.getDeviceToIndexMap(),
-            tsFileResource.getStartTimes(), tsFileResource.getEndTimes(), readOnlyMemChunks,
-            chunkMetadataList, tsFileResource));
+            tsFileResource.getTimeIndex(), readOnlyMemChunks, chunkMetadataList,
+            tsFileResource));
       }
     } catch (QueryProcessException e) {
       logger.error("{}: {} get ReadOnlyMemChunk has error", storageGroupName,
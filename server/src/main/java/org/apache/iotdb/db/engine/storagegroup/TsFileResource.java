@@ -26,27 +26,26 @@ import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Random;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import org.apache.iotdb.db.conf.IoTDBConfig;
 import org.apache.iotdb.db.conf.IoTDBConstant;
-import org.apache.iotdb.db.engine.StorageEngine;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.engine.cache.DeviceTimeIndexCache;
 import org.apache.iotdb.db.engine.modification.ModificationFile;
 import org.apache.iotdb.db.engine.querycontext.ReadOnlyMemChunk;
 import org.apache.iotdb.db.engine.storagegroup.StorageGroupProcessor.UpgradeTsFileResourceCallBack;
+import org.apache.iotdb.db.engine.storagegroup.timeindex.DeviceTimeIndex;
+import org.apache.iotdb.db.engine.storagegroup.timeindex.FileTimeIndex;
+import org.apache.iotdb.db.engine.storagegroup.timeindex.ITimeIndex;
+import org.apache.iotdb.db.engine.storagegroup.timeindex.TimeIndexLevel;
 import org.apache.iotdb.db.engine.upgrade.UpgradeTask;
 import org.apache.iotdb.db.exception.PartitionViolationException;
-import org.apache.iotdb.db.rescon.CachedStringPool;
 import org.apache.iotdb.db.service.UpgradeSevice;
-import org.apache.iotdb.db.utils.FilePathUtils;
 import org.apache.iotdb.db.utils.UpgradeUtils;
 import org.apache.iotdb.tsfile.common.constant.TsFileConstant;
 import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
@@ -55,7 +54,6 @@ import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.statistics.Statistics;
 import org.apache.iotdb.tsfile.fileSystem.FSFactoryProducer;
 import org.apache.iotdb.tsfile.fileSystem.fsFactory.FSFactory;
-import org.apache.iotdb.tsfile.utils.RamUsageEstimator;
 import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -63,8 +61,7 @@ import org.slf4j.LoggerFactory;
 public class TsFileResource {
 
   private static final Logger logger = LoggerFactory.getLogger(TsFileResource.class);
-  private static Map<String, String> cachedDevicePool = CachedStringPool.getInstance()
-      .getCachedPool();
+  private static final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
 
   // tsfile
   private File file;
@@ -72,23 +69,12 @@ public class TsFileResource {
   public static final String RESOURCE_SUFFIX = ".resource";
   static final String TEMP_SUFFIX = ".temp";
   private static final String CLOSING_SUFFIX = ".closing";
-  protected static final int INIT_ARRAY_SIZE = 64;
 
   /**
-   * start times array.
+   * the start times and end times of the devices, which is a DeviceTimeIndex unless the file is
+   * closed and degraded to a FileTimeIndex, see degradeTimeIndex()
    */
-  protected long[] startTimes;
-
-  /**
-   * end times array. The values in this array are Long.MIN_VALUE if it's an unsealed sequence
-   * tsfile
-   */
-  protected long[] endTimes;
-
-  /**
-   * device -> index of start times array and end times array
-   */
-  protected Map<String, Integer> deviceToIndex;
+  protected volatile ITimeIndex timeIndex;
 
   public TsFileProcessor getProcessor() {
     return processor;
@@ -171,9 +157,10 @@ public class TsFileResource {
 
   public TsFileResource(TsFileResource other) throws IOException {
     this.file = other.file;
-    this.deviceToIndex = other.deviceToIndex;
-    this.startTimes = other.startTimes;
-    this.endTimes = other.endTimes;
+    // the copy may be moved to another path without the .resource file, e.g., as a hardlink, so
+    // it keeps the times of each device in memory
+    this.timeIndex = other.timeIndex instanceof FileTimeIndex
+        ? ((FileTimeIndex) other.timeIndex).getDeviceTimeIndex() : other.timeIndex;
     this.processor = other.processor;
     this.modFile = other.modFile;
     this.closed = other.closed;
@@ -192,11 +179,7 @@ public class TsFileResource {
    */
   public TsFileResource(File file) {
     this.file = file;
-    this.deviceToIndex = new ConcurrentHashMap<>();
-    this.startTimes = new long[INIT_ARRAY_SIZE];
-    this.endTimes = new long[INIT_ARRAY_SIZE];
-    initTimes(startTimes, Long.MAX_VALUE);
-    initTimes(endTimes, Long.MIN_VALUE);
+    this.timeIndex = new DeviceTimeIndex();
   }
 
   /**
@@ -204,25 +187,18 @@ public class TsFileResource {
    */
   public TsFileResource(File file, TsFileProcessor processor) {
     this.file = file;
-    this.deviceToIndex = new ConcurrentHashMap<>();
-    this.startTimes = new long[INIT_ARRAY_SIZE];
-    this.endTimes = new long[INIT_ARRAY_SIZE];
-    initTimes(startTimes, Long.MAX_VALUE);
-    initTimes(endTimes, Long.MIN_VALUE);
+    this.timeIndex = new DeviceTimeIndex();
     this.processor = processor;
   }
 
   /**
    * unsealed TsFile
    */
-  public TsFileResource(File file, Map<String, Integer> deviceToIndex, long[] startTimes,
-      long[] endTimes, List<ReadOnlyMemChunk> readOnlyMemChunk,
+  public TsFileResource(File file, ITimeIndex timeIndex, List<ReadOnlyMemChunk> readOnlyMemChunk,
       List<ChunkMetadata> chunkMetadataList, TsFileResource originTsFileResource)
       throws IOException {
     this.file = file;
-    this.deviceToIndex = deviceToIndex;
-    this.startTimes = startTimes;
-    this.endTimes = endTimes;
+    this.timeIndex = timeIndex;
     this.chunkMetadataList = chunkMetadataList;
     this.readOnlyMemChunk = readOnlyMemChunk;
     this.originTsFileResource = originTsFileResource;
@@ -261,23 +237,10 @@ public class TsFileResource {
     }
   }
 
-  protected void initTimes(long[] times, long defaultTime) {
-    Arrays.fill(times, defaultTime);
-  }
-
   public void serialize() throws IOException {
     try (OutputStream outputStream = fsFactory.getBufferedOutputStream(
         file + RESOURCE_SUFFIX + TEMP_SUFFIX)) {
-      ReadWriteIOUtils.write(this.deviceToIndex.size(), outputStream);
-      for (Entry<String, Integer> entry : this.deviceToIndex.entrySet()) {
-        ReadWriteIOUtils.write(entry.getKey(), outputStream);
-        ReadWriteIOUtils.write(startTimes[entry.getValue()], outputStream);
-      }
-      ReadWriteIOUtils.write(this.deviceToIndex.size(), outputStream);
-      for (Entry<String, Integer> entry : this.deviceToIndex.entrySet()) {
-        ReadWriteIOUtils.write(entry.getKey(), outputStream);
-        ReadWriteIOUtils.write(endTimes[entry.getValue()], outputStream);
-      }
+      timeIndex.serialize(outputStream);
 
       if (historicalVersions != null) {
         ReadWriteIOUtils.write(this.historicalVersions.size(), outputStream);
@@ -303,28 +266,7 @@ public class TsFileResource {
   public void deserialize() throws IOException {
     try (InputStream inputStream = fsFactory.getBufferedInputStream(
         file + RESOURCE_SUFFIX)) {
-      int size = ReadWriteIOUtils.readInt(inputStream);
-      Map<String, Integer> deviceMap = new HashMap<>();
-      long[] startTimesArray = new long[size];
-      long[] endTimesArray = new long[size];
-      for (int i = 0; i < size; i++) {
-        String path = ReadWriteIOUtils.readString(inputStream);
-        long time = ReadWriteIOUtils.readLong(inputStream);
-        // To reduce the String number in memory,
-        // use the deviceId from memory instead of the deviceId read from disk
-        String cachedPath = cachedDevicePool.computeIfAbsent(path, k -> k);
-        deviceMap.put(cachedPath, i);
-        startTimesArray[i] = time;
-      }
-      size = ReadWriteIOUtils.readInt(inputStream);
-      for (int i = 0; i < size; i++) {
-        ReadWriteIOUtils.readString(inputStream); // String path
-        long time = ReadWriteIOUtils.readLong(inputStream);
-        endTimesArray[i] = time;
-      }
-      this.startTimes = startTimesArray;
-      this.endTimes = endTimesArray;
-      this.deviceToIndex = deviceMap;
+      this.timeIndex = DeviceTimeIndex.deserialize(inputStream);
 
       if (inputStream.available() > 0) {
         int versionSize = ReadWriteIOUtils.readInt(inputStream);
@@ -350,17 +292,11 @@ public class TsFileResource {
   }
 
   public void updateStartTime(String device, long time) {
-    long startTime = getStartTime(device);
-    if (time < startTime) {
-      putStartTime(device, time);
-    }
+    getDeviceTimeIndexForUpdate().updateStartTime(device, time);
   }
 
   public void updateEndTime(String device, long time) {
-    long endTime = getEndTime(device);
-    if (time > endTime) {
-      putEndTime(device, time);
-    }
+    getDeviceTimeIndexForUpdate().updateEndTime(device, time);
   }
 
   public boolean resourceFileExists() {
@@ -387,11 +323,15 @@ public class TsFileResource {
   }
 
   public void setFile(File file) {
+    if (timeIndex instanceof FileTimeIndex) {
+      // the .resource file may not be moved with the file
+      getDeviceTimeIndexForUpdate();
+    }
     this.file = file;
   }
 
   boolean containsDevice(String deviceId) {
-    return deviceToIndex.containsKey(deviceId);
+    return timeIndex.containsDevice(deviceId);
   }
 
   public File getTsFile() {
@@ -407,25 +347,11 @@ public class TsFileResource {
   }
 
   public long getStartTime(String deviceId) {
-    if (!deviceToIndex.containsKey(deviceId)) {
-      return Long.MAX_VALUE;
-    }
-    return startTimes[deviceToIndex.get(deviceId)];
-  }
-
-  public long getStartTime(int index) {
-    return startTimes[index];
+    return timeIndex.getStartTime(deviceId);
   }
 
   public long getEndTime(String deviceId) {
-    if (!deviceToIndex.containsKey(deviceId)) {
-      return Long.MIN_VALUE;
-    }
-    return endTimes[deviceToIndex.get(deviceId)];
-  }
-
-  public long getEndTime(int index) {
-    return endTimes[index];
+    return timeIndex.getEndTime(deviceId);
   }
 
   public long getOrDefaultStartTime(String deviceId, long defaultTime) {
@@ -439,71 +365,103 @@ public class TsFileResource {
   }
 
   public void putStartTime(String deviceId, long startTime) {
-    int index;
-    if (containsDevice(deviceId)) {
-      index = deviceToIndex.get(deviceId);
-    } else {
-      index = deviceToIndex.size();
-      deviceToIndex.put(deviceId, index);
-      if (startTimes.length <= index) {
-        startTimes = enLargeArray(startTimes, Long.MAX_VALUE);
-        endTimes = enLargeArray(endTimes, Long.MIN_VALUE);
-      }
-    }
-    startTimes[index] = startTime;
+    getDeviceTimeIndexForUpdate().putStartTime(deviceId, startTime);
   }
 
   public void putEndTime(String deviceId, long endTime) {
-    int index;
-    if (containsDevice(deviceId)) {
-      index = deviceToIndex.get(deviceId);
-    } else {
-      index = deviceToIndex.size();
-      deviceToIndex.put(deviceId, index);
-      if (endTimes.length <= index) {
-        startTimes = enLargeArray(startTimes, Long.MAX_VALUE);
-        endTimes = enLargeArray(endTimes, Long.MIN_VALUE);
-      }
-    }
-    endTimes[index] = endTime;
+    getDeviceTimeIndexForUpdate().putEndTime(deviceId, endTime);
   }
 
-  private long[] enLargeArray(long[] array, long defaultValue) {
-    long[] tmp = new long[(int) (array.length * 1.5)];
-    initTimes(tmp, defaultValue);
-    System.arraycopy(array, 0, tmp, 0, array.length);
-    return tmp;
+  /**
+   * @return the minimum start time of the devices in the file
+   */
+  public long getFileStartTime() {
+    return timeIndex.getMinStartTime();
   }
 
-  public Map<String, Integer> getDeviceToIndexMap() {
-    return deviceToIndex;
+  /**
+   * @return the maximum end time of the devices in the file
+   */
+  public long getFileEndTime() {
+    return timeIndex.getMaxEndTime();
+  }
+
+  public Set<String> getDevices() {
+    return timeIndex.getDevices();
   }
 
-  public long[] getStartTimes() {
-    return startTimes;
+  public ITimeIndex getTimeIndex() {
+    return timeIndex;
   }
 
-  public long[] getEndTimes() {
-    return endTimes;
+  /**
+   * @return whether only the time range of the whole file is in memory, in which case the time
+   * range should be checked before the times of a device, so that the times of the devices are
+   * only loaded for the files that may be queried
+   */
+  public boolean hasFileTimeIndex() {
+    return timeIndex instanceof FileTimeIndex;
   }
 
   public void clearEndTimes() {
-    endTimes = new long[endTimes.length];
-    initTimes(endTimes, Long.MIN_VALUE);
+    getDeviceTimeIndexForUpdate().clearEndTimes();
   }
 
   public boolean areEndTimesEmpty() {
-    for (long endTime : endTimes) {
-      if (endTime != -1) {
-        return false;
-      }
+    return getDeviceTimeIndex().areEndTimesEmpty();
+  }
+
+  /**
+   * @return the device-level time index, which is loaded from the .resource file or
+   * DeviceTimeIndexCache if the file only has a FileTimeIndex
+   */
+  private DeviceTimeIndex getDeviceTimeIndex() {
+    ITimeIndex index = timeIndex;
+    if (index instanceof DeviceTimeIndex) {
+      return (DeviceTimeIndex) index;
+    }
+    try {
+      return ((FileTimeIndex) index).getDeviceTimeIndex();
+    } catch (IOException e) {
+      throw new IllegalStateException(
+          String.format("Cannot load the time index of %s", file), e);
     }
-    return true;
   }
 
-  private void trimStartEndTimes() {
-    startTimes = Arrays.copyOfRange(startTimes, 0, deviceToIndex.size());
-    endTimes = Arrays.copyOfRange(endTimes, 0, deviceToIndex.size());
+  /**
+   * @return the device-level time index, which is loaded and kept in memory again if the file only
+   * has a FileTimeIndex, as the times are going to be changed or the .resource file is going to
+   * be moved
+   */
+  private DeviceTimeIndex getDeviceTimeIndexForUpdate() {
+    ITimeIndex index = timeIndex;
+    if (index instanceof DeviceTimeIndex) {
+      return (DeviceTimeIndex) index;
+    }
+    DeviceTimeIndex deviceTimeIndex = getDeviceTimeIndex();
+    DeviceTimeIndexCache.getInstance().remove(((FileTimeIndex) index).getResourceFilePath());
+    timeIndex = deviceTimeIndex;
+    return deviceTimeIndex;
+  }
+
+  /**
+   * Keep only the time range of the whole file in memory if the file is closed and the time index
+   * level is FILE_TIME_INDEX. The times of each device are put into DeviceTimeIndexCache, so they
+   * are not read from the .resource file again until they are evicted.
+   */
+  public void degradeTimeIndex() {
+    if (!closed || config.getTimeIndexLevel() != TimeIndexLevel.FILE_TIME_INDEX
+        || !(timeIndex instanceof DeviceTimeIndex) || !resourceFileExists()) {
+      return;
+    }
+    DeviceTimeIndex deviceTimeIndex = (DeviceTimeIndex) timeIndex;
+    if (deviceTimeIndex.getDevices().isEmpty()) {
+      return;
+    }
+    String resourceFilePath = file.getPath() + RESOURCE_SUFFIX;
+    DeviceTimeIndexCache.getInstance().put(resourceFilePath, deviceTimeIndex);
+    timeIndex = new FileTimeIndex(resourceFilePath, deviceTimeIndex.getMinStartTime(),
+        deviceTimeIndex.getMaxEndTime());
   }
 
   public boolean isClosed() {
@@ -518,7 +476,10 @@ public class TsFileResource {
     }
     processor = null;
     chunkMetadataList = null;
-    trimStartEndTimes();
+    if (timeIndex instanceof DeviceTimeIndex) {
+      ((DeviceTimeIndex) timeIndex).trimStartEndTimes();
+    }
+    degradeTimeIndex();
   }
 
   TsFileProcessor getUnsealedFileProcessor() {
@@ -586,15 +547,27 @@ public class TsFileResource {
    */
   public void remove() {
     file.delete();
+    removeCachedTimeIndex();
     fsFactory.getFile(file.getPath() + RESOURCE_SUFFIX).delete();
     fsFactory.getFile(file.getPath() + ModificationFile.FILE_SUFFIX).delete();
   }
 
   public void removeResourceFile() {
+    removeCachedTimeIndex();
     fsFactory.getFile(file.getPath() + RESOURCE_SUFFIX).delete();
   }
 
+  private void removeCachedTimeIndex() {
+    if (timeIndex instanceof FileTimeIndex) {
+      DeviceTimeIndexCache.getInstance()
+          .remove(((FileTimeIndex) timeIndex).getResourceFilePath());
+    }
+  }
+
   void moveTo(File targetDir) {
+    if (timeIndex instanceof FileTimeIndex) {
+      getDeviceTimeIndexForUpdate();
+    }
     fsFactory.moveFile(file, fsFactory.getFile(targetDir, file.getName()));
     fsFactory.moveFile(fsFactory.getFile(file.getPath() + RESOURCE_SUFFIX),
         fsFactory.getFile(targetDir, file.getName() + RESOURCE_SUFFIX));
@@ -647,24 +620,7 @@ public class TsFileResource {
    * check if any of the device lives over the given time bound
    */
   public boolean stillLives(long timeLowerBound) {
-    if (timeLowerBound == Long.MAX_VALUE) {
-      return true;
-    }
-    for (long endTime : endTimes) {
-      // the file cannot be deleted if any device still lives
-      if (endTime >= timeLowerBound) {
-        return true;
-      }
-    }
-    return false;
-  }
-
-  protected void setStartTimes(long[] startTimes) {
-    this.startTimes = startTimes;
-  }
-
-  protected void setEndTimes(long[] endTimes) {
-    this.endTimes = endTimes;
+    return timeIndex.stillLives(timeLowerBound);
   }
 
   /**
@@ -736,14 +692,10 @@ public class TsFileResource {
   }
 
   /**
-   * make sure Either the deviceToIndex is not empty Or the path contains a partition folder
+   * make sure Either the time index is not empty Or the path contains a partition folder
    */
   public long getTimePartition() {
-    if (deviceToIndex != null && !deviceToIndex.isEmpty()) {
-      return StorageEngine.getTimePartition(startTimes[deviceToIndex.values().iterator().next()]);
-    }
-    String[] splits = FilePathUtils.splitTsFilePath(this);
-    return Long.parseLong(splits[splits.length - 2]);
+    return timeIndex.getTimePartition(file.getAbsolutePath());
   }
 
   /**
@@ -753,27 +705,7 @@ public class TsFileResource {
    * @throws PartitionViolationException if the data of the file cross partitions or it is empty
    */
   public long getTimePartitionWithCheck() throws PartitionViolationException {
-    long partitionId = -1;
-    for (Long startTime : startTimes) {
-      long p = StorageEngine.getTimePartition(startTime);
-      if (partitionId == -1) {
-        partitionId = p;
-      } else {
-        if (partitionId != p) {
-          throw new PartitionViolationException(this);
-        }
-      }
-    }
-    for (Long endTime : endTimes) {
-      long p = StorageEngine.getTimePartition(endTime);
-      if (partitionId == -1) {
-        partitionId = p;
-      } else {
-        if (partitionId != p) {
-          throw new PartitionViolationException(this);
-        }
-      }
-    }
+    long partitionId = getDeviceTimeIndex().getTimePartitionWithCheck();
     if (partitionId == -1) {
       throw new PartitionViolationException(this);
     }
@@ -838,8 +770,7 @@ public class TsFileResource {
    * @return initial resource map size
    */
   public long calculateRamSize() {
-    return RamUsageEstimator.sizeOf(deviceToIndex) + RamUsageEstimator.sizeOf(startTimes) + 
-        RamUsageEstimator.sizeOf(endTimes);
+    return timeIndex.calculateRamSize();
   }
 
   /**
@@ -848,24 +779,12 @@ public class TsFileResource {
    * @return ramIncrement
    */
   public long estimateRamIncrement(String deviceToBeChecked) {
-    long ramIncrement = 0L;
-    if (!containsDevice(deviceToBeChecked)) {
-      // 80 is the Map.Entry header ram size
-      if (deviceToIndex.isEmpty()) {
-        ramIncrement += 80;
-      }
-      // Map.Entry ram size
-      ramIncrement += RamUsageEstimator.sizeOf(deviceToBeChecked) + 16;
-      // if needs to extend the startTimes and endTimes arrays
-      if (deviceToIndex.size() >= startTimes.length) {
-        ramIncrement += startTimes.length * Long.BYTES;
-      }
-    }
-    return ramIncrement;
+    return getDeviceTimeIndex().estimateRamIncrement(deviceToBeChecked);
   }
 
   public void delete() throws IOException {
     if (file.exists()) {
+      removeCachedTimeIndex();
       Files.delete(file.toPath());
       Files.delete(FSFactoryProducer.getFSFactory()
           .getFile(file.toPath() + TsFileResource.RESOURCE_SUFFIX).toPath());
@@ -0,0 +1,301 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.db.engine.storagegroup.timeindex;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.iotdb.db.engine.StorageEngine;
+import org.apache.iotdb.db.rescon.CachedStringPool;
+import org.apache.iotdb.db.utils.FilePathUtils;
+import org.apache.iotdb.tsfile.utils.RamUsageEstimator;
+import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
+
+/**
+ * DeviceTimeIndex keeps the start time and end time of every device of a TsFile.
+ */
+public class DeviceTimeIndex implements ITimeIndex {
+
+  private static Map<String, String> cachedDevicePool = CachedStringPool.getInstance()
+      .getCachedPool();
+
+  protected static final int INIT_ARRAY_SIZE = 64;
+
+  /**
+   * start times array.
+   */
+  protected long[] startTimes;
+
+  /**
+   * end times array. The values in this array are Long.MIN_VALUE if it's an unsealed sequence
+   * tsfile
+   */
+  protected long[] endTimes;
+
+  /**
+   * device -> index of start times array and end times array
+   */
+  protected Map<String, Integer> deviceToIndex;
+
+  public DeviceTimeIndex() {
+    this.deviceToIndex = new ConcurrentHashMap<>();
+    this.startTimes = new long[INIT_ARRAY_SIZE];
+    this.endTimes = new long[INIT_ARRAY_SIZE];
+    initTimes(startTimes, Long.MAX_VALUE);
+    initTimes(endTimes, Long.MIN_VALUE);
+  }
+
+  public DeviceTimeIndex(Map<String, Integer> deviceToIndex, long[] startTimes,
+      long[] endTimes) {
+    this.deviceToIndex = deviceToIndex;
+    this.startTimes = startTimes;
+    this.endTimes = endTimes;
+  }
+
+  @Override
+  public void serialize(OutputStream outputStream) throws IOException {
+    ReadWriteIOUtils.write(deviceToIndex.size(), outputStream);
+    for (Entry<String, Integer> entry : deviceToIndex.entrySet()) {
+      ReadWriteIOUtils.write(entry.getKey(), outputStream);
+      ReadWriteIOUtils.write(startTimes[entry.getValue()], outputStream);
+    }
+    ReadWriteIOUtils.write(deviceToIndex.size(), outputStream);
+    for (Entry<String, Integer> entry : deviceToIndex.entrySet()) {
+      ReadWriteIOUtils.write(entry.getKey(), outputStream);
+      ReadWriteIOUtils.write(endTimes[entry.getValue()], outputStream);
+    }
+  }
+
+  /**
+   * read the start times and end times written by {@link #serialize(OutputStream)}.
+   */
+  public static DeviceTimeIndex deserialize(InputStream inputStream) throws IOException {
+    int size = ReadWriteIOUtils.readInt(inputStream);
+    Map<String, Integer> deviceMap = new HashMap<>();
+    long[] startTimesArray = new long[size];
+    long[] endTimesArray = new long[size];
+    for (int i = 0; i < size; i++) {
+      String path = ReadWriteIOUtils.readString(inputStream);
+      long time = ReadWriteIOUtils.readLong(inputStream);
+      // To reduce the String number in memory,
+      // use the deviceId from memory instead of the deviceId read from disk
+      String cachedPath = cachedDevicePool.computeIfAbsent(path, k -> k);
+      deviceMap.put(cachedPath, i);
+      startTimesArray[i] = time;
+    }
+    size = ReadWriteIOUtils.readInt(inputStream);
+    for (int i = 0; i < size; i++) {
+      ReadWriteIOUtils.readString(inputStream); // String path
+      long time = ReadWriteIOUtils.readLong(inputStream);
+      endTimesArray[i] = time;
+    }
+    return new DeviceTimeIndex(deviceMap, startTimesArray, endTimesArray);
+  }
+
+  @Override
+  public Set<String> getDevices() {
+    return deviceToIndex.keySet();
+  }
+
+  @Override
+  public boolean containsDevice(String deviceId) {
+    return deviceToIndex.containsKey(deviceId);
+  }
+
+  @Override
+  public long getStartTime(String deviceId) {
+    Integer index = deviceToIndex.get(deviceId);
+    return index == null ? Long.MAX_VALUE : startTimes[index];
+  }
+
+  @Override
+  public long getEndTime(String deviceId) {
+    Integer index = deviceToIndex.get(deviceId);
+    return index == null ? Long.MIN_VALUE : endTimes[index];
+  }
+
+  @Override
+  public long getMinStartTime() {
+    long minStartTime = Long.MAX_VALUE;
+    for (int index : deviceToIndex.values()) {
+      minStartTime = Math.min(minStartTime, startTimes[index]);
+    }
+    return minStartTime;
+  }
+
+  @Override
+  public long getMaxEndTime() {
+    long maxEndTime = Long.MIN_VALUE;
+    for (int index : deviceToIndex.values()) {
+      maxEndTime = Math.max(maxEndTime, endTimes[index]);
+    }
+    return maxEndTime;
+  }
+
+  @Override
+  public boolean stillLives(long timeLowerBound) {
+    if (timeLowerBound == Long.MAX_VALUE) {
+      return true;
+    }
+    for (long endTime : endTimes) {
+      // the file cannot be deleted if any device still lives
+      if (endTime >= timeLowerBound) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * make sure Either the deviceToIndex is not empty Or the path contains a partition folder
+   *
+   * @param tsFilePath the absolute path of the TsFile
+   */
+  @Override
+  public long getTimePartition(String tsFilePath) {
+    if (!deviceToIndex.isEmpty()) {
+      return StorageEngine.getTimePartition(startTimes[deviceToIndex.values().iterator().next()]);
+    }
+    String[] splits = FilePathUtils.splitTsFilePath(tsFilePath);
+    return Long.parseLong(splits[splits.length - 2]);
+  }
+
+  /**
+   * @return the time partition of all the start times and end times, or -1 if they cross
+   * partitions or the index is empty
+   */
+  public long getTimePartitionWithCheck() {
+    long partitionId = -1;
+    for (long[] times : new long[][]{startTimes, endTimes}) {
+      for (long time : times) {
+        long p = StorageEngine.getTimePartition(time);
+        if (partitionId == -1) {
+          partitionId = p;
+        } else if (partitionId != p) {
+          return -1;
+        }
+      }
+    }
+    return partitionId;
+  }
+
+  @Override
+  public long calculateRamSize() {
+    return RamUsageEstimator.sizeOf(deviceToIndex) + RamUsageEstimator.sizeOf(startTimes)
+        + RamUsageEstimator.sizeOf(endTimes);
+  }
+
+  /**
+   * Calculate the ram increment when the device is inserted
+   *
+   * @return ramIncrement
+   */
+  public long estimateRamIncrement(String deviceToBeChecked) {
+    long ramIncrement = 0L;
+    if (!containsDevice(deviceToBeChecked)) {
+      // 80 is the Map.Entry header ram size
+      if (deviceToIndex.isEmpty()) {
+        ramIncrement += 80;
+      }
+      // Map.Entry ram size
+      ramIncrement += RamUsageEstimator.sizeOf(deviceToBeChecked) + 16;
+      // if needs to extend the startTimes and endTimes arrays
+      if (deviceToIndex.size() >= startTimes.length) {
+        ramIncrement += startTimes.length * Long.BYTES;
+      }
+    }
+    return ramIncrement;
+  }
+
+  public void updateStartTime(String deviceId, long time) {
+    if (time < getStartTime(deviceId)) {
+      putStartTime(deviceId, time);
+    }
+  }
+
+  public void updateEndTime(String deviceId, long time) {
+    if (time > getEndTime(deviceId)) {
+      putEndTime(deviceId, time);
+    }
+  }
+
+  public void putStartTime(String deviceId, long startTime) {
+    startTimes[getDeviceIndex(deviceId)] = startTime;
+  }
+
+  public void putEndTime(String deviceId, long endTime) {
+    endTimes[getDeviceIndex(deviceId)] = endTime;
+  }
+
+  private int getDeviceIndex(String deviceId) {
+    int index;
+    if (containsDevice(deviceId)) {
+      index = deviceToIndex.get(deviceId);
+    } else {
+      index = deviceToIndex.size();
+      deviceToIndex.put(deviceId, index);
+      if (startTimes.length <= index) {
+        startTimes = enLargeArray(startTimes, Long.MAX_VALUE);
+        endTimes = enLargeArray(endTimes, Long.MIN_VALUE);
+      }
+    }
+    return index;
+  }
+
+  private long[] enLargeArray(long[] array, long defaultValue) {
+    long[] tmp = new long[(int) (array.length * 1.5)];
+    initTimes(tmp, defaultValue);
+    System.arraycopy(array, 0, tmp, 0, array.length);
+    return tmp;
+  }
+
+  protected void initTimes(long[] times, long defaultTime) {
+    Arrays.fill(times, defaultTime);
+  }
+
+  /**
+   * shrink the arrays to the number of devices, which is called when the file is closed and no
+   * device will be added.
+   */
+  public void trimStartEndTimes() {
+    startTimes = Arrays.copyOfRange(startTimes, 0, deviceToIndex.size());
+    endTimes = Arrays.copyOfRange(endTimes, 0, deviceToIndex.size());
+  }
+
+  public void clearEndTimes() {
+    endTimes = new long[endTimes.length];
+    initTimes(endTimes, Long.MIN_VALUE);
+  }
+
+  public boolean areEndTimesEmpty() {
+    for (long endTime : endTimes) {
+      if (endTime != -1) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.db.engine.storagegroup.timeindex;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Set;
+import org.apache.iotdb.db.engine.StorageEngine;
+import org.apache.iotdb.db.engine.cache.DeviceTimeIndexCache;
+import org.apache.iotdb.db.utils.FilePathUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * FileTimeIndex only keeps the start time and end time of a whole closed TsFile, so that the
+ * files out of the time range of a query are skipped without knowing their devices. The times of
+ * each device are loaded from the .resource file of the TsFile when they are needed, and they are
+ * cached in {@link DeviceTimeIndexCache}, which evicts them under memory pressure.
+ */
+public class FileTimeIndex implements ITimeIndex {
+
+  private static final Logger logger = LoggerFactory.getLogger(FileTimeIndex.class);
+
+  // the object header, the reference and the two longs
+  private static final long RAM_SIZE = 48;
+
+  private final String resourceFilePath;
+
+  private final long startTime;
+
+  private final long endTime;
+
+  public FileTimeIndex(String resourceFilePath, long startTime, long endTime) {
+    this.resourceFilePath = resourceFilePath;
+    this.startTime = startTime;
+    this.endTime = endTime;
+  }
+
+  /**
+   * @return the times of each device, which are loaded from the .resource file if they are not
+   * cached
+   */
+  public DeviceTimeIndex getDeviceTimeIndex() throws IOException {
+    return DeviceTimeIndexCache.getInstance().get(resourceFilePath);
+  }
+
+  public String getResourceFilePath() {
+    return resourceFilePath;
+  }
+
+  /**
+   * The per-device accessors of ITimeIndex cannot throw IOException, so a failure of loading the
+   * times is rethrown unchecked to fail the caller, instead of answering with partial devices.
+   *
+   * @return the times of each device
+   */
+  private DeviceTimeIndex loadDeviceTimeIndex() {
+    try {
+      return getDeviceTimeIndex();
+    } catch (IOException e) {
+      logger.error("Cannot load the device time index from {}", resourceFilePath, e);
+      throw new UncheckedIOException(
+          "Cannot load the device time index from " + resourceFilePath, e);
+    }
+  }
+
+  @Override
+  public void serialize(OutputStream outputStream) throws IOException {
+    getDeviceTimeIndex().serialize(outputStream);
+  }
+
+  @Override
+  public Set<String> getDevices() {
+    return loadDeviceTimeIndex().getDevices();
+  }
+
+  @Override
+  public boolean containsDevice(String deviceId) {
+    return loadDeviceTimeIndex().containsDevice(deviceId);
+  }
+
+  @Override
+  public long getStartTime(String deviceId) {
+    return loadDeviceTimeIndex().getStartTime(deviceId);
+  }
+
+  @Override
+  public long getEndTime(String deviceId) {
+    return loadDeviceTimeIndex().getEndTime(deviceId);
+  }
+
+  @Override
+  public long getMinStartTime() {
+    return startTime;
+  }
+
+  @Override
+  public long getMaxEndTime() {
+    return endTime;
+  }
+
+  @Override
+  public boolean stillLives(long timeLowerBound) {
+    return timeLowerBound == Long.MAX_VALUE || endTime >= timeLowerBound;
+  }
+
+  @Override
+  public long getTimePartition(String tsFilePath) {
+    if (startTime != Long.MAX_VALUE) {
+      return StorageEngine.getTimePartition(startTime);
+    }
+    String[] splits = FilePathUtils.splitTsFilePath(tsFilePath);
+    return Long.parseLong(splits[splits.length - 2]);
+  }
+
+  @Override
+  public long calculateRamSize() {
+    return RAM_SIZE;
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.db.engine.storagegroup.timeindex;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Set;
+
+/**
+ * The time index of a TsFile, which tells the devices in the file and their start times and end
+ * times.
+ */
+public interface ITimeIndex {
+
+  /**
+   * serialize the start times and end times of the devices in the format of the .resource file
+   */
+  void serialize(OutputStream outputStream) throws IOException;
+
+  Set<String> getDevices();
+
+  boolean containsDevice(String deviceId);
+
+  /**
+   * @return the start time of the device, or Long.MAX_VALUE if the device is not in the file
+   */
+  long getStartTime(String deviceId);
+
+  /**
+   * @return the end time of the device, or Long.MIN_VALUE if the device is not in the file
+   */
+  long getEndTime(String deviceId);
+
+  /**
+   * @return the minimum start time of all the devices
+   */
+  long getMinStartTime();
+
+  /**
+   * @return the maximum end time of all the devices
+   */
+  long getMaxEndTime();
+
+  /**
+   * @return whether any of the devices lives over the given time bound
+   */
+  boolean stillLives(long timeLowerBound);
+
+  /**
+   * @return the time partition of the file, which is read from the path of the file if it has no
+   * device
+   */
+  long getTimePartition(String tsFilePath);
+
+  /**
+   * @return the memory used by this index
+   */
+  long calculateRamSize();
+}
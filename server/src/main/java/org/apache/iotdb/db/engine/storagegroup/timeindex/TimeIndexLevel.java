@@ -0,0 +1,35 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.db.engine.storagegroup.timeindex;
+
+/**
+ * The time index kept in memory for each closed TsFile.
+ */
+public enum TimeIndexLevel {
+  /**
+   * the start time and end time of each device, which are always in memory
+   */
+  DEVICE_TIME_INDEX,
+  /**
+   * only the start time and end time of the whole file are in memory, the times of each device
+   * are loaded from the .resource file when needed and cached in DeviceTimeIndexCache
+   */
+  FILE_TIME_INDEX
+}
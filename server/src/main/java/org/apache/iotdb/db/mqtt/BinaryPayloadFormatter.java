@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.mqtt;
+
+import io.netty.buffer.ByteBuf;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.BitMap;
+
+/**
+ * The binary payload formatter, which reads typed values without any text parsing. A payload is a
+ * sequence of device blocks, and all the numbers are big-endian:
+ * <pre>
+ * device block:
+ *   device: unsigned short length + UTF-8 bytes
+ *   measurement number n: unsigned short
+ *   n * (measurement: unsigned short length + UTF-8 bytes,
+ *        data type: byte of TSDataType.serialize())
+ *   row number m: int
+ *   m * (timestamp: long, null bitmap: (n + 7) / 8 bytes, the value of every non-null measurement)
+ * value:
+ *   BOOLEAN: byte, INT32: int, INT64: long, FLOAT: float, DOUBLE: double,
+ *   TEXT: int length + UTF-8 bytes
+ * </pre>
+ * Bit i of the null bitmap is bit (i % 8) of byte (i / 8), and it is set if measurement i has no
+ * value in the row. A payload that is truncated or has a bad length is rejected as a whole.
+ */
+public class BinaryPayloadFormatter implements PayloadFormatter {
+
+    @Override
+    public List<Message> format(ByteBuf payload) {
+        if (payload == null) {
+            return null;
+        }
+        List<Message> ret = new ArrayList<>();
+        while (payload.isReadable()) {
+            readDeviceBlock(payload, ret);
+        }
+        return ret;
+    }
+
+    private void readDeviceBlock(ByteBuf payload, List<Message> ret) {
+        String device = readString(payload, payload.readUnsignedShort());
+        int measurementNum = payload.readUnsignedShort();
+        List<String> measurements = new ArrayList<>(measurementNum);
+        List<TSDataType> dataTypes = new ArrayList<>(measurementNum);
+        for (int i = 0; i < measurementNum; i++) {
+            measurements.add(readString(payload, payload.readUnsignedShort()));
+            dataTypes.add(TSDataType.deserialize(payload.readByte()));
+        }
+        // the lists are shared by all the rows of the block, and must not be modified
+        measurements = Collections.unmodifiableList(measurements);
+        dataTypes = Collections.unmodifiableList(dataTypes);
+
+        int rowNum = payload.readInt();
+        byte[] nullBits = new byte[BitMap.getSizeOfBytes(measurementNum)];
+        if (rowNum < 0) {
+            throw new IllegalArgumentException("The row number " + rowNum + " is negative");
+        }
+        // every row has at least a timestamp and a null bitmap
+        checkReadable(payload, (long) rowNum * (Long.BYTES + nullBits.length));
+        BitMap nulls = new BitMap(measurementNum, nullBits);
+        for (int row = 0; row < rowNum; row++) {
+            Message message = new Message();
+            message.setDevice(device);
+            message.setTimestamp(payload.readLong());
+            message.setMeasurements(measurements);
+            message.setDataTypes(dataTypes);
+            payload.readBytes(nullBits);
+            Object[] values = new Object[measurementNum];
+            for (int i = 0; i < measurementNum; i++) {
+                if (!nulls.isMarked(i)) {
+                    values[i] = readValue(payload, dataTypes.get(i));
+                }
+            }
+            message.setTypedValues(Arrays.asList(values));
+            ret.add(message);
+        }
+    }
+
+    private Object readValue(ByteBuf payload, TSDataType dataType) {
+        switch (dataType) {
+            case BOOLEAN:
+                return payload.readByte() != 0;
+            case INT32:
+                return payload.readInt();
+            case INT64:
+                return payload.readLong();
+            case FLOAT:
+                return payload.readFloat();
+            case DOUBLE:
+                return payload.readDouble();
+            case TEXT:
+                int length = payload.readInt();
+                if (length < 0) {
+                    throw new IllegalArgumentException(
+                            "The text length " + length + " is negative");
+                }
+                checkReadable(payload, length);
+                byte[] bytes = new byte[length];
+                payload.readBytes(bytes);
+                return new Binary(bytes);
+            default:
+                throw new IllegalArgumentException("Unsupported data type " + dataType);
+        }
+    }
+
+    private String readString(ByteBuf payload, int length) {
+        checkReadable(payload, length);
+        String value = payload.toString(payload.readerIndex(), length, StandardCharsets.UTF_8);
+        payload.skipBytes(length);
+        return value;
+    }
+
+    /**
+     * check a length read from the payload before anything is allocated for it.
+     */
+    private static void checkReadable(ByteBuf payload, long length) {
+        if (length > payload.readableBytes()) {
+            throw new IllegalArgumentException(String.format(
+                    "The payload is truncated, %d bytes are expected but only %d are left", length,
+                    payload.readableBytes()));
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "binary";
+    }
+}
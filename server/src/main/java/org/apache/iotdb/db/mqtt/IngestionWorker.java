@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.mqtt;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An IngestionWorker formats the payloads submitted by the broker threads and inserts the messages
+ * in micro-batches, so that the broker threads are not blocked by the insertions, and the messages
+ * of a device are mostly inserted together by InsertTabletPlans. A batch is inserted when it has
+ * batchSize messages, or lingerMs after its first message arrives.
+ */
+class IngestionWorker implements Runnable {
+    private static final Logger LOG = LoggerFactory.getLogger(IngestionWorker.class);
+
+    /**
+     * submitted to stop the worker, it is compared by reference.
+     */
+    private static final ByteBuf STOP = Unpooled.buffer(0);
+
+    private final BlockingQueue<ByteBuf> payloads;
+    private final PayloadFormatter payloadFormat;
+    private final MessageInserter inserter;
+    private final int batchSize;
+    private final long lingerMs;
+
+    IngestionWorker(PayloadFormatter payloadFormat, MessageInserter inserter, int queueSize,
+            int batchSize, long lingerMs) {
+        this.payloads = new ArrayBlockingQueue<>(queueSize);
+        this.payloadFormat = payloadFormat;
+        this.inserter = inserter;
+        this.batchSize = batchSize;
+        this.lingerMs = lingerMs;
+    }
+
+    /**
+     * add a payload to the worker, blocking while the queue of the worker is full, so that the
+     * publishers are slowed down instead of the messages being piled up in memory.
+     */
+    void submit(ByteBuf payload) throws InterruptedException {
+        payloads.put(payload);
+    }
+
+    /**
+     * let the worker exit after it inserts the payloads submitted before.
+     */
+    void stop() throws InterruptedException {
+        payloads.put(STOP);
+    }
+
+    @Override
+    public void run() {
+        List<Message> batch = new ArrayList<>();
+        long deadline = Long.MAX_VALUE;
+        try {
+            while (true) {
+                ByteBuf payload = batch.isEmpty() ? payloads.take()
+                        : payloads.poll(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+                if (payload == STOP) {
+                    break;
+                }
+                if (payload != null) {
+                    if (batch.isEmpty()) {
+                        deadline = System.currentTimeMillis() + lingerMs;
+                    }
+                    format(payload, batch);
+                }
+                if (!batch.isEmpty()
+                        && (batch.size() >= batchSize || System.currentTimeMillis() >= deadline)) {
+                    flush(batch);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.warn("The MQTT ingestion worker is interrupted, {} messages are inserted before exiting",
+                    batch.size());
+        }
+        flush(batch);
+    }
+
+    private void format(ByteBuf payload, List<Message> batch) {
+        try {
+            List<Message> messages = payloadFormat.format(payload);
+            if (messages != null) {
+                batch.addAll(messages);
+            }
+        } catch (RuntimeException e) {
+            LOG.warn("meet error when formatting the payload with {}, because ",
+                    payloadFormat.getName(), e);
+        }
+    }
+
+    private void flush(List<Message> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            inserter.insert(batch);
+        } catch (RuntimeException e) {
+            LOG.warn("meet error when inserting {} messages, because ", batch.size(), e);
+        } finally {
+            batch.clear();
+        }
+    }
+}
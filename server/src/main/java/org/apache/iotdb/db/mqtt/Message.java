@@ -19,6 +19,7 @@
 package org.apache.iotdb.db.mqtt;
 
 import java.util.List;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 
 /**
  * Message describes the information sometime sent from the devices.
@@ -28,6 +29,15 @@ public class Message {
     private Long timestamp;
     private List<String> measurements;
     private List<String> values;
+    /**
+     * the data types of the measurements, null if the types are inferred from the string values
+     */
+    private List<TSDataType> dataTypes;
+    /**
+     * the values in their data types, used instead of values when dataTypes is set. A null value
+     * means the measurement has no value at the timestamp.
+     */
+    private List<Object> typedValues;
 
     public String getDevice() {
         return device;
@@ -61,6 +71,22 @@ public class Message {
         this.values = values;
     }
 
+    public List<TSDataType> getDataTypes() {
+        return dataTypes;
+    }
+
+    public void setDataTypes(List<TSDataType> dataTypes) {
+        this.dataTypes = dataTypes;
+    }
+
+    public List<Object> getTypedValues() {
+        return typedValues;
+    }
+
+    public void setTypedValues(List<Object> typedValues) {
+        this.typedValues = typedValues;
+    }
+
     @Override
     public String toString() {
         return "Message{" +
@@ -68,6 +94,8 @@ public class Message {
                 ", timestamp=" + timestamp +
                 ", measurements=" + measurements +
                 ", values=" + values +
+                ", dataTypes=" + dataTypes +
+                ", typedValues=" + typedValues +
                 '}';
     }
 }
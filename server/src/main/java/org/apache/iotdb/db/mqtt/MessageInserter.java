@@ -0,0 +1,284 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.mqtt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.exception.StorageEngineException;
+import org.apache.iotdb.db.exception.metadata.IllegalPathException;
+import org.apache.iotdb.db.exception.metadata.StorageGroupNotSetException;
+import org.apache.iotdb.db.exception.query.QueryProcessException;
+import org.apache.iotdb.db.metadata.PartialPath;
+import org.apache.iotdb.db.qp.executor.IPlanExecutor;
+import org.apache.iotdb.db.qp.physical.PhysicalPlan;
+import org.apache.iotdb.db.qp.physical.crud.InsertRowPlan;
+import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
+import org.apache.iotdb.db.utils.CommonUtils;
+import org.apache.iotdb.db.utils.TypeInferenceUtils;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.BitMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * MessageInserter inserts a batch of messages. The messages of a device with the same measurements
+ * are inserted by one InsertTabletPlan, and a message that is the only one of its device and
+ * measurements is inserted by an InsertRowPlan. If the InsertTabletPlan cannot be built or fails,
+ * e.g., the string values of a measurement are inferred to different types, or a timeseries is
+ * registered with another type, the messages are inserted one by one by InsertRowPlans instead.
+ */
+public class MessageInserter {
+    private static final Logger LOG = LoggerFactory.getLogger(MessageInserter.class);
+
+    private IPlanExecutor executor;
+
+    public MessageInserter(IPlanExecutor executor) {
+        this.executor = executor;
+    }
+
+    public void insert(List<Message> messages) {
+        // (device, measurements, data types) -> messages
+        Map<List<Object>, List<Message>> groups = new LinkedHashMap<>();
+        for (Message message : messages) {
+            if (message == null) {
+                continue;
+            }
+            if (message.getDevice() == null || message.getTimestamp() == null
+                    || message.getMeasurements() == null) {
+                LOG.warn("ignore the message without device, timestamp or measurements: {}", message);
+                continue;
+            }
+            groups.computeIfAbsent(
+                    Arrays.asList(message.getDevice(), message.getMeasurements(), message.getDataTypes()),
+                    k -> new ArrayList<>()).add(message);
+        }
+
+        for (List<Message> group : groups.values()) {
+            if (group.size() == 1) {
+                insertRow(group.get(0));
+            } else {
+                insertTablet(group);
+            }
+        }
+    }
+
+    private void insertTablet(List<Message> group) {
+        Message first = group.get(0);
+        try {
+            if (executeNonQuery(toTabletPlan(group))) {
+                return;
+            }
+        } catch (Exception e) {
+            LOG.debug("cannot insert {} messages of device {}, measurements {} as a tablet, insert "
+                    + "them one by one, because ", group.size(), first.getDevice(),
+                    first.getMeasurements(), e);
+        }
+        for (Message message : group) {
+            insertRow(message);
+        }
+    }
+
+    private InsertTabletPlan toTabletPlan(List<Message> group)
+            throws QueryProcessException, IllegalPathException {
+        // an InsertTabletPlan requires the times to be sorted
+        group.sort(Comparator.comparingLong(Message::getTimestamp));
+        Message first = group.get(0);
+        int rowCount = group.size();
+        int columnCount = first.getMeasurements().size();
+        for (Message message : group) {
+            int valueCount = message.getDataTypes() != null ? message.getTypedValues().size()
+                    : message.getValues().size();
+            if (valueCount != columnCount) {
+                throw new QueryProcessException(String.format(
+                        "%d values are given for %d measurements at time %d",
+                        valueCount, columnCount, message.getTimestamp()));
+            }
+        }
+
+        TSDataType[] dataTypes = first.getDataTypes() != null
+                ? first.getDataTypes().toArray(new TSDataType[0]) : inferDataTypes(group, columnCount);
+        long[] times = new long[rowCount];
+        Object[] columns = new Object[columnCount];
+        BitMap[] bitMaps = new BitMap[columnCount];
+        boolean hasNull = false;
+        for (int i = 0; i < columnCount; i++) {
+            columns[i] = createColumn(dataTypes[i], rowCount);
+        }
+        for (int row = 0; row < rowCount; row++) {
+            Message message = group.get(row);
+            times[row] = message.getTimestamp();
+            for (int i = 0; i < columnCount; i++) {
+                Object value = getValue(message, i, dataTypes[i]);
+                if (value == null) {
+                    if (bitMaps[i] == null) {
+                        bitMaps[i] = new BitMap(rowCount);
+                    }
+                    bitMaps[i].mark(row);
+                    hasNull = true;
+                } else {
+                    setValue(columns[i], dataTypes[i], row, value);
+                }
+            }
+        }
+
+        InsertTabletPlan plan = new InsertTabletPlan(new PartialPath(first.getDevice()),
+                first.getMeasurements().toArray(new String[0]));
+        plan.setDataTypes(dataTypes);
+        plan.setTimes(times);
+        plan.setColumns(columns);
+        if (hasNull) {
+            plan.setBitMaps(bitMaps);
+        }
+        plan.setRowCount(rowCount);
+        return plan;
+    }
+
+    /**
+     * infer the type of every measurement from its string values, which must all be inferred to
+     * the same type.
+     */
+    private TSDataType[] inferDataTypes(List<Message> group, int columnCount)
+            throws QueryProcessException {
+        TSDataType[] dataTypes = new TSDataType[columnCount];
+        for (Message message : group) {
+            for (int i = 0; i < columnCount; i++) {
+                String value = message.getValues().get(i);
+                if (value == null) {
+                    continue;
+                }
+                TSDataType dataType = TypeInferenceUtils.getPredictedDataType(value, true);
+                if (dataTypes[i] == null) {
+                    dataTypes[i] = dataType;
+                } else if (dataTypes[i] != dataType) {
+                    throw new QueryProcessException(String.format(
+                            "the values of %s are inferred to both %s and %s",
+                            message.getMeasurements().get(i), dataTypes[i], dataType));
+                }
+            }
+        }
+        for (int i = 0; i < columnCount; i++) {
+            if (dataTypes[i] == null) {
+                throw new QueryProcessException(
+                        "all the values of " + group.get(0).getMeasurements().get(i) + " are null");
+            }
+        }
+        return dataTypes;
+    }
+
+    private Object getValue(Message message, int index, TSDataType dataType)
+            throws QueryProcessException {
+        if (message.getDataTypes() != null) {
+            return message.getTypedValues().get(index);
+        }
+        String value = message.getValues().get(index);
+        return value == null ? null : CommonUtils.parseValue(dataType, value);
+    }
+
+    private Object createColumn(TSDataType dataType, int rowCount) throws QueryProcessException {
+        switch (dataType) {
+            case BOOLEAN:
+                return new boolean[rowCount];
+            case INT32:
+                return new int[rowCount];
+            case INT64:
+                return new long[rowCount];
+            case FLOAT:
+                return new float[rowCount];
+            case DOUBLE:
+                return new double[rowCount];
+            case TEXT:
+                return new Binary[rowCount];
+            default:
+                throw new QueryProcessException("Unsupported data type:" + dataType);
+        }
+    }
+
+    private void setValue(Object column, TSDataType dataType, int row, Object value) {
+        switch (dataType) {
+            case BOOLEAN:
+                ((boolean[]) column)[row] = (boolean) value;
+                break;
+            case INT32:
+                ((int[]) column)[row] = (int) value;
+                break;
+            case INT64:
+                ((long[]) column)[row] = (long) value;
+                break;
+            case FLOAT:
+                ((float[]) column)[row] = (float) value;
+                break;
+            case DOUBLE:
+                ((double[]) column)[row] = (double) value;
+                break;
+            default:
+                ((Binary[]) column)[row] = (Binary) value;
+                break;
+        }
+    }
+
+    private void insertRow(Message message) {
+        boolean typed = message.getDataTypes() != null;
+        List<String> measurements = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        List<TSDataType> dataTypes = new ArrayList<>();
+        List<?> messageValues = typed ? message.getTypedValues() : message.getValues();
+        for (int i = 0; i < message.getMeasurements().size() && i < messageValues.size(); i++) {
+            // a row has no null value, the measurement is just left out
+            if (messageValues.get(i) != null) {
+                measurements.add(message.getMeasurements().get(i));
+                values.add(messageValues.get(i));
+                dataTypes.add(typed ? message.getDataTypes().get(i) : null);
+            }
+        }
+
+        InsertRowPlan plan = new InsertRowPlan();
+        plan.setTime(message.getTimestamp());
+        plan.setMeasurements(measurements.toArray(new String[0]));
+        plan.setValues(values.toArray(new Object[0]));
+        plan.setDataTypes(dataTypes.toArray(new TSDataType[0]));
+        plan.setNeedInferType(!typed);
+
+        boolean status = false;
+        try {
+            plan.setDeviceId(new PartialPath(message.getDevice()));
+            status = executeNonQuery(plan);
+        } catch (Exception e) {
+            LOG.warn(
+                "meet error when inserting device {}, measurements {}, at time {}, because ",
+                message.getDevice(), message.getMeasurements(), message.getTimestamp(), e);
+        }
+
+        LOG.debug("event process result: {}", status);
+    }
+
+    private boolean executeNonQuery(PhysicalPlan plan)
+        throws QueryProcessException, StorageGroupNotSetException, StorageEngineException {
+        if (IoTDBDescriptor.getInstance().getConfig().isReadOnly()) {
+            throw new QueryProcessException(
+                    "Current system mode is read-only, does not support non-query operation");
+        }
+        return executor.processNonQuery(plan);
+    }
+}
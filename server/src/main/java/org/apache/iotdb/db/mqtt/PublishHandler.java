@@ -20,43 +20,57 @@ package org.apache.iotdb.db.mqtt;
 import io.moquette.interception.AbstractInterceptHandler;
 import io.moquette.interception.messages.InterceptPublishMessage;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.mqtt.MqttQoS;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.iotdb.db.concurrent.IoTDBThreadPoolFactory;
+import org.apache.iotdb.db.concurrent.ThreadName;
 import org.apache.iotdb.db.conf.IoTDBConfig;
-import org.apache.iotdb.db.conf.IoTDBDescriptor;
-import org.apache.iotdb.db.exception.StorageEngineException;
-import org.apache.iotdb.db.exception.metadata.IllegalPathException;
-import org.apache.iotdb.db.exception.metadata.StorageGroupNotSetException;
 import org.apache.iotdb.db.exception.query.QueryProcessException;
-import org.apache.iotdb.db.metadata.PartialPath;
 import org.apache.iotdb.db.qp.executor.IPlanExecutor;
 import org.apache.iotdb.db.qp.executor.PlanExecutor;
-import org.apache.iotdb.db.qp.physical.PhysicalPlan;
-import org.apache.iotdb.db.qp.physical.crud.InsertRowPlan;
-import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * PublishHandler handle the messages from MQTT clients.
+ * PublishHandler inserts the messages published to the broker. If mqtt_ingestion_thread_num is
+ * positive, the payloads are handed over to the ingestion workers and the broker thread returns
+ * at once, the payloads of a topic always go to the same worker so they are inserted in order.
+ * Otherwise, the messages are inserted by the broker thread.
  */
 public class PublishHandler extends AbstractInterceptHandler {
     private static final Logger LOG = LoggerFactory.getLogger(PublishHandler.class);
 
-    private IPlanExecutor executor;
     private PayloadFormatter payloadFormat;
+    private MessageInserter inserter;
+    private IngestionWorker[] workers;
+    private ExecutorService workerPool;
 
     public PublishHandler(IoTDBConfig config) {
         this.payloadFormat = PayloadFormatManager.getPayloadFormat(config.getMqttPayloadFormatter());
         try {
-            this.executor = new PlanExecutor();
+            this.inserter = new MessageInserter(new PlanExecutor());
         } catch (QueryProcessException e) {
             throw new RuntimeException(e);
         }
+        int workerNum = config.getMqttIngestionThreadNum();
+        if (workerNum > 0) {
+            workers = new IngestionWorker[workerNum];
+            workerPool = IoTDBThreadPoolFactory
+                    .newFixedThreadPool(workerNum, ThreadName.MQTT_INGESTION_SERVICE.getName());
+            for (int i = 0; i < workerNum; i++) {
+                workers[i] = new IngestionWorker(payloadFormat, inserter,
+                        config.getMqttIngestionQueueSize(), config.getMqttIngestionBatchSize(),
+                        config.getMqttIngestionBatchLingerMs());
+                workerPool.submit(workers[i]);
+            }
+        }
     }
 
     protected PublishHandler(IPlanExecutor executor, PayloadFormatter payloadFormat) {
-        this.executor = executor;
+        this.inserter = new MessageInserter(executor);
         this.payloadFormat = payloadFormat;
     }
 
@@ -76,44 +90,45 @@ public class PublishHandler extends AbstractInterceptHandler {
         LOG.debug("Receive publish message. clientId: {}, username: {}, qos: {}, topic: {}, payload: {}",
                 clientId, username, qos, topic, payload);
 
+        if (workers != null) {
+            IngestionWorker worker = workers[Math.floorMod(topic.hashCode(), workers.length)];
+            try {
+                // the payload is copied, as the broker releases it after onPublish returns
+                worker.submit(Unpooled.copiedBuffer(payload));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LOG.warn("Interrupted when submitting the message of topic {} from client {}",
+                        topic, clientId);
+            }
+            return;
+        }
+
         List<Message> events = payloadFormat.format(payload);
         if (events == null) {
             return;
         }
+        inserter.insert(events);
+    }
 
-        // since device ids from messages maybe different, so we use the InsertPlan not InsertTabletPlan.
-        for (Message event : events) {
-            if (event == null) {
-                continue;
+    /**
+     * stop the ingestion workers after they insert the messages submitted before.
+     */
+    public void stop() {
+        if (workers == null) {
+            return;
+        }
+        try {
+            for (IngestionWorker worker : workers) {
+                worker.stop();
             }
-
-            InsertRowPlan plan = new InsertRowPlan();
-            plan.setTime(event.getTimestamp());
-            plan.setMeasurements(event.getMeasurements().toArray(new String[event.getMeasurements().size()]));
-            plan.setValues(event.getValues().toArray(new Object[event.getValues().size()]));
-            plan.setDataTypes(new TSDataType[event.getValues().size()]);
-            plan.setNeedInferType(true);
-
-            boolean status = false;
-            try {
-                plan.setDeviceId(new PartialPath(event.getDevice()));
-                status = executeNonQuery(plan);
-            } catch (Exception e) {
-                LOG.warn(
-                    "meet error when inserting device {}, measurements {}, at time {}, because ",
-                    event.getDevice(), event.getMeasurements(), event.getTimestamp(), e);
+            workerPool.shutdown();
+            if (!workerPool.awaitTermination(1, TimeUnit.MINUTES)) {
+                LOG.warn("The MQTT ingestion workers do not finish in 1 minute");
+                workerPool.shutdownNow();
             }
-
-            LOG.debug("event process result: {}", status);
-        }
-    }
-
-    private boolean executeNonQuery(PhysicalPlan plan)
-        throws QueryProcessException, StorageGroupNotSetException, StorageEngineException {
-        if (IoTDBDescriptor.getInstance().getConfig().isReadOnly()) {
-            throw new QueryProcessException(
-                    "Current system mode is read-only, does not support non-query operation");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            workerPool.shutdownNow();
         }
-        return executor.processNonQuery(plan);
     }
 }
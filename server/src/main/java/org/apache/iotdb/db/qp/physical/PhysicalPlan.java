@@ -195,6 +195,15 @@ public abstract class PhysicalPlan {
           plan = new InsertTabletPlan();
           plan.deserialize(buffer);
           break;
+        case BATCHINSERT_WITH_BITMAPS:
+          plan = new InsertTabletPlan();
+          ((InsertTabletPlan) plan).deserialize(buffer, true);
+          break;
+        case ALIGNED_BATCHINSERT:
+          plan = new InsertTabletPlan();
+          ((InsertTabletPlan) plan).setAligned(true);
+          ((InsertTabletPlan) plan).deserialize(buffer, true);
+          break;
         case DELETE:
           plan = new DeletePlan();
           plan.deserialize(buffer);
@@ -299,7 +308,7 @@ public abstract class PhysicalPlan {
     REVOKE_WATERMARK_EMBEDDING, CREATE_ROLE, DELETE_ROLE, CREATE_USER, REVOKE_USER_ROLE, REVOKE_ROLE_PRIVILEGE,
     REVOKE_USER_PRIVILEGE, GRANT_ROLE_PRIVILEGE, GRANT_USER_PRIVILEGE, GRANT_USER_ROLE, MODIFY_PASSWORD, DELETE_USER,
     DELETE_STORAGE_GROUP, SHOW_TIMESERIES, DELETE_TIMESERIES, LOAD_CONFIGURATION, MULTI_CREATE_TIMESERIES,
-    ALTER_TIMESERIES, FLUSH
+    ALTER_TIMESERIES, FLUSH, BATCHINSERT_WITH_BITMAPS, ALIGNED_BATCHINSERT
   }
 
   public long getIndex() {
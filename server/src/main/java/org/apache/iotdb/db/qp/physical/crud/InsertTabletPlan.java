@@ -34,6 +34,7 @@ import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.read.TimeValuePair;
 import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.BitMap;
 import org.apache.iotdb.tsfile.utils.BytesUtils;
 import org.apache.iotdb.tsfile.utils.TsPrimitiveType;
 import org.apache.iotdb.tsfile.utils.TsPrimitiveType.TsBinary;
@@ -52,6 +53,11 @@ public class InsertTabletPlan extends InsertPlan {
 
   private Object[] columns;
   private ByteBuffer valueBuffer;
+  // the null values of each column, bitMaps is null if no value is null, and the bitmap of a column
+  // is null if no value of the column is null
+  private BitMap[] bitMaps;
+  // whether the measurements of the device share one time column in the memtable
+  private boolean isAligned = false;
   private int rowCount = 0;
   // indicate whether this plan has been set 'start' or 'end' in order to support plan transmission without data loss in cluster version
   boolean isExecuting = false;
@@ -69,6 +75,7 @@ public class InsertTabletPlan extends InsertPlan {
   private List<Integer> range;
 
   private List<Object> failedColumns;
+  private List<BitMap> failedBitMaps;
 
 
   public InsertTabletPlan() {
@@ -137,9 +144,23 @@ public class InsertTabletPlan extends InsertPlan {
     return ret;
   }
 
+  /**
+   * A plan with bitmaps is serialized as BATCHINSERT_WITH_BITMAPS, so a plan without them keeps the
+   * layout of BATCHINSERT and the plans in the WAL of older versions can still be replayed. An
+   * aligned plan is serialized as ALIGNED_BATCHINSERT, which has the layout of
+   * BATCHINSERT_WITH_BITMAPS.
+   */
+  private PhysicalPlanType getPlanType() {
+    if (isAligned) {
+      return PhysicalPlanType.ALIGNED_BATCHINSERT;
+    }
+    return bitMaps == null ? PhysicalPlanType.BATCHINSERT
+        : PhysicalPlanType.BATCHINSERT_WITH_BITMAPS;
+  }
+
   @Override
   public void serialize(DataOutputStream stream) throws IOException {
-    int type = PhysicalPlanType.BATCHINSERT.ordinal();
+    int type = getPlanType().ordinal();
     stream.writeByte((byte) type);
 
     putString(stream, deviceId.getFullPath());
@@ -199,13 +220,36 @@ public class InsertTabletPlan extends InsertPlan {
       stream.write(valueBuffer.array());
       valueBuffer = null;
     }
+    if (bitMaps != null || isAligned) {
+      writeBitMaps(stream);
+    }
 
     stream.writeLong(index);
   }
 
+  /**
+   * write the bitmaps of the serialized rows in the format read by
+   * QueryDataSetUtils.readBitMapsFromBuffer().
+   */
+  private void writeBitMaps(DataOutputStream stream) throws IOException {
+    int curStart = isExecuting ? start : 0;
+    int curEnd = isExecuting ? end : rowCount;
+    for (int i = 0; i < measurements.length; i++) {
+      if (measurements[i] == null) {
+        continue;
+      }
+      if (bitMaps == null || bitMaps[i] == null || bitMaps[i].isAllUnmarked(curStart, curEnd)) {
+        stream.writeByte(BytesUtils.boolToByte(false));
+      } else {
+        stream.writeByte(BytesUtils.boolToByte(true));
+        stream.write(bitMaps[i].getRegion(curStart, curEnd).getByteArray());
+      }
+    }
+  }
+
   @Override
   public void serialize(ByteBuffer buffer) {
-    int type = PhysicalPlanType.BATCHINSERT.ordinal();
+    int type = getPlanType().ordinal();
     buffer.put((byte) type);
 
     putString(buffer, deviceId.getFullPath());
@@ -263,10 +307,29 @@ public class InsertTabletPlan extends InsertPlan {
       buffer.put(valueBuffer.array());
       valueBuffer = null;
     }
+    if (bitMaps != null || isAligned) {
+      writeBitMaps(buffer);
+    }
 
     buffer.putLong(index);
   }
 
+  private void writeBitMaps(ByteBuffer buffer) {
+    int curStart = isExecuting ? start : 0;
+    int curEnd = isExecuting ? end : rowCount;
+    for (int i = 0; i < measurements.length; i++) {
+      if (measurements[i] == null) {
+        continue;
+      }
+      if (bitMaps == null || bitMaps[i] == null || bitMaps[i].isAllUnmarked(curStart, curEnd)) {
+        buffer.put(BytesUtils.boolToByte(false));
+      } else {
+        buffer.put(BytesUtils.boolToByte(true));
+        buffer.put(bitMaps[i].getRegion(curStart, curEnd).getByteArray());
+      }
+    }
+  }
+
   private void serializeValues(DataOutputStream outputStream) throws IOException {
     for (int i = 0; i < measurements.length; i++) {
       if (measurements[i] == null) {
@@ -323,6 +386,11 @@ public class InsertTabletPlan extends InsertPlan {
       case TEXT:
         Binary[] binaryValues = (Binary[]) column;
         for (int j = curStart; j < curEnd; j++) {
+          if (binaryValues[j] == null) {
+            // a null value is serialized as an empty binary
+            buffer.putInt(0);
+            continue;
+          }
           buffer.putInt(binaryValues[j].getLength());
           buffer.put(binaryValues[j].getValues());
         }
@@ -371,6 +439,11 @@ public class InsertTabletPlan extends InsertPlan {
       case TEXT:
         Binary[] binaryValues = (Binary[]) column;
         for (int j = curStart; j < curEnd; j++) {
+          if (binaryValues[j] == null) {
+            // a null value is serialized as an empty binary
+            outputStream.writeInt(0);
+            continue;
+          }
           outputStream.writeInt(binaryValues[j].getLength());
           outputStream.write(binaryValues[j].getValues());
         }
@@ -393,6 +466,14 @@ public class InsertTabletPlan extends InsertPlan {
 
   @Override
   public void deserialize(ByteBuffer buffer) throws IllegalPathException {
+    deserialize(buffer, false);
+  }
+
+  /**
+   * @param withBitMaps whether the plan is serialized as BATCHINSERT_WITH_BITMAPS or
+   * ALIGNED_BATCHINSERT
+   */
+  public void deserialize(ByteBuffer buffer, boolean withBitMaps) throws IllegalPathException {
     this.deviceId = new PartialPath(readString(buffer));
 
     int measurementSize = buffer.getInt();
@@ -412,6 +493,9 @@ public class InsertTabletPlan extends InsertPlan {
     times = QueryDataSetUtils.readTimesFromBuffer(buffer, rows);
 
     columns = QueryDataSetUtils.readValuesFromBuffer(buffer, dataTypes, measurementSize, rows);
+    if (withBitMaps) {
+      bitMaps = QueryDataSetUtils.readBitMapsFromBuffer(buffer, measurementSize, rows);
+    }
     this.index = buffer.getLong();
   }
 
@@ -434,6 +518,22 @@ public class InsertTabletPlan extends InsertPlan {
     columns[index] = column;
   }
 
+  public BitMap[] getBitMaps() {
+    return bitMaps;
+  }
+
+  public void setBitMaps(BitMap[] bitMaps) {
+    this.bitMaps = bitMaps;
+  }
+
+  public boolean isAligned() {
+    return isAligned;
+  }
+
+  public void setAligned(boolean aligned) {
+    isAligned = aligned;
+  }
+
   public long getMinTime() {
     if (minTime != null) {
       return minTime;
@@ -460,41 +560,54 @@ public class InsertTabletPlan extends InsertPlan {
     return tmpMaxTime;
   }
 
+  /**
+   * @return the time and the value of the last row whose value of the measurement is not null, or
+   * null if all the values of the measurement are null
+   */
   public TimeValuePair composeLastTimeValuePair(int measurementIndex) {
     if (measurementIndex >= columns.length) {
       return null;
     }
+    int lastIndex = rowCount - 1;
+    if (bitMaps != null && bitMaps[measurementIndex] != null) {
+      while (lastIndex >= 0 && bitMaps[measurementIndex].isMarked(lastIndex)) {
+        lastIndex--;
+      }
+      if (lastIndex < 0) {
+        return null;
+      }
+    }
     TsPrimitiveType value;
     switch (dataTypes[measurementIndex]) {
       case INT32:
         int[] intValues = (int[]) columns[measurementIndex];
-        value = new TsInt(intValues[rowCount - 1]);
+        value = new TsInt(intValues[lastIndex]);
         break;
       case INT64:
         long[] longValues = (long[]) columns[measurementIndex];
-        value = new TsLong(longValues[rowCount - 1]);
+        value = new TsLong(longValues[lastIndex]);
         break;
       case FLOAT:
         float[] floatValues = (float[]) columns[measurementIndex];
-        value = new TsFloat(floatValues[rowCount - 1]);
+        value = new TsFloat(floatValues[lastIndex]);
         break;
       case DOUBLE:
         double[] doubleValues = (double[]) columns[measurementIndex];
-        value = new TsDouble(doubleValues[rowCount - 1]);
+        value = new TsDouble(doubleValues[lastIndex]);
         break;
       case BOOLEAN:
         boolean[] boolValues = (boolean[]) columns[measurementIndex];
-        value = new TsBoolean(boolValues[rowCount - 1]);
+        value = new TsBoolean(boolValues[lastIndex]);
         break;
       case TEXT:
         Binary[] binaryValues = (Binary[]) columns[measurementIndex];
-        value = new TsBinary(binaryValues[rowCount - 1]);
+        value = new TsBinary(binaryValues[lastIndex]);
         break;
       default:
         throw new UnSupportedDataTypeException(
             String.format(DATATYPE_UNSUPPORTED, dataTypes[measurementIndex]));
     }
-    return new TimeValuePair(times[rowCount - 1], value);
+    return new TimeValuePair(times[lastIndex], value);
   }
 
   public long[] getTimes() {
@@ -532,6 +645,13 @@ public class InsertTabletPlan extends InsertPlan {
     }
     failedColumns.add(columns[index]);
     columns[index] = null;
+    if (bitMaps != null) {
+      if (failedBitMaps == null) {
+        failedBitMaps = new ArrayList<>();
+      }
+      failedBitMaps.add(bitMaps[index]);
+      bitMaps[index] = null;
+    }
   }
 
 
@@ -543,6 +663,10 @@ public class InsertTabletPlan extends InsertPlan {
     // TODO anything else?
     columns = failedColumns.toArray(new Object[0]);
     failedColumns = null;
+    if (failedBitMaps != null) {
+      bitMaps = failedBitMaps.toArray(new BitMap[0]);
+      failedBitMaps = null;
+    }
     return this;
   }
 
@@ -27,6 +27,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import org.apache.iotdb.db.engine.modification.Modification;
 import org.apache.iotdb.db.engine.modification.ModificationFile;
 import org.apache.iotdb.db.metadata.PartialPath;
+import org.apache.iotdb.tsfile.utils.BloomFilter;
 import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
 
 /**
@@ -45,6 +46,11 @@ public class QueryContext {
    * Modifications, and we do not want it to create multiple copies within a query.
    */
   private Map<String, List<Modification>> fileModCache = new HashMap<>();
+  /**
+   * The key is the full path of a timeseries and the value is its hash used to check the bloom
+   * filters of TsFiles, so that a timeseries is hashed once for all the files in a query.
+   */
+  private Map<String, Long> pathHashCache = new ConcurrentHashMap<>();
 
   private long queryId;
 
@@ -57,6 +63,13 @@ public class QueryContext {
     this.queryId = queryId;
   }
 
+  /**
+   * @return the hash of 'path' for checking the bloom filters of TsFiles, see BloomFilter.hash()
+   */
+  public long getPathHash(PartialPath path) {
+    return pathHashCache.computeIfAbsent(path.getFullPath(), BloomFilter::hash);
+  }
+
   /**
    * Find the modifications of timeseries 'path' in 'modFile'. If they are not in the cache, read
    * them from 'modFile' and put then into the cache.
@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicLong;
 import org.apache.iotdb.db.conf.IoTDBConfig;
 import org.apache.iotdb.db.conf.IoTDBConstant;
@@ -39,6 +40,7 @@ import org.apache.iotdb.db.exception.query.QueryProcessException;
 import org.apache.iotdb.db.metadata.PartialPath;
 import org.apache.iotdb.db.query.context.QueryContext;
 import org.apache.iotdb.db.query.externalsort.serialize.IExternalSortFileDeserializer;
+import org.apache.iotdb.db.query.reader.chunk.ChunkPrefetcher;
 import org.apache.iotdb.tsfile.read.expression.impl.SingleSeriesExpression;
 import org.apache.iotdb.tsfile.read.filter.basic.Filter;
 import org.slf4j.Logger;
@@ -74,19 +76,34 @@ public class QueryResourceManager {
    */
   private final Map<Long, List<IExternalSortFileDeserializer>> externalSortFileMap;
 
+  /**
+   * Record the chunk prefetchers of the series readers, which are cancelled when the query ends.
+   * <p>
+   * Key: query job id. Value: chunk prefetchers of the series readers of the query job.
+   */
+  private final Map<Long, List<ChunkPrefetcher>> chunkPrefetcherMap;
+
+  /**
+   * Memory currently held by each query job, including the estimation applied when the query id
+   * is assigned and the memory of batch data buffered for the query afterwards.
+   */
   private final Map<Long, Long> queryIdEstimatedMemoryMap;
 
   // current total free memory for reading process(not including the cache memory)
   private final AtomicLong totalFreeMemoryForRead;
 
+  // queries blocked for lack of memory wait on this monitor until memory is put back
+  private final Object freeMemoryMonitor = new Object();
+
   // estimated size for one point memory size, the unit is byte
-  private static final long POINT_ESTIMATED_SIZE = 16L;
+  public static final long POINT_ESTIMATED_SIZE = 16L;
 
   private static final IoTDBConfig CONFIG = IoTDBDescriptor.getInstance().getConfig();
 
   private QueryResourceManager() {
     filePathsManager = new QueryFileManager();
     externalSortFileMap = new ConcurrentHashMap<>();
+    chunkPrefetcherMap = new ConcurrentHashMap<>();
     queryIdEstimatedMemoryMap = new ConcurrentHashMap<>();
     totalFreeMemoryForRead = new AtomicLong(
         IoTDBDescriptor.getInstance().getConfig().getAllocateMemoryForReadWithoutCache());
@@ -97,29 +114,104 @@ public class QueryResourceManager {
   }
 
   public int getMaxDeduplicatedPathNum(int fetchSize) {
-    return Math.min((int) ((totalFreeMemoryForRead.get() / fetchSize) / POINT_ESTIMATED_SIZE),
+    // if queries may wait for memory, the limitation is the whole memory for reading rather than
+    // the memory which is free at this moment
+    long memory = CONFIG.getMaxWaitingTimeWhenQueryBlocked() > 0
+        ? CONFIG.getAllocateMemoryForReadWithoutCache()
+        : Math.max(totalFreeMemoryForRead.get(), 0);
+    return Math.min((int) ((memory / fetchSize) / POINT_ESTIMATED_SIZE),
         CONFIG.getMaxQueryDeduplicatedPathNum());
   }
 
   /**
    * Register a new query. When a query request is created firstly, this method must be invoked.
+   * If the estimated memory of a data query can not be applied, the query waits at most
+   * IoTDBConfig.getMaxWaitingTimeWhenQueryBlocked() for other queries to put back their memory.
    */
   public long assignQueryId(boolean isDataQuery, int fetchSize, int deduplicatedPathNum) {
     long queryId = queryIdAtom.incrementAndGet();
     if (isDataQuery) {
       filePathsManager.addQueryId(queryId);
+      long estimatedMemoryUsage = 0;
       if (deduplicatedPathNum > 0) {
-        long estimatedMemoryUsage =
-            (long) deduplicatedPathNum * POINT_ESTIMATED_SIZE * (long) fetchSize;
+        estimatedMemoryUsage = applyMemory(
+            (long) deduplicatedPathNum * POINT_ESTIMATED_SIZE * (long) fetchSize);
+      }
+      queryIdEstimatedMemoryMap.put(queryId, estimatedMemoryUsage);
+    }
+    return queryId;
+  }
+
+  /**
+   * @return the applied memory, or 0 if the memory is still not enough after waiting
+   */
+  private long applyMemory(long estimatedMemoryUsage) {
+    long maxWaitingTime = CONFIG.getMaxWaitingTimeWhenQueryBlocked();
+    long startTime = System.currentTimeMillis();
+    synchronized (freeMemoryMonitor) {
+      while (true) {
         // apply the memory successfully
         if (totalFreeMemoryForRead.addAndGet(-estimatedMemoryUsage) >= 0) {
-          queryIdEstimatedMemoryMap.put(queryId, estimatedMemoryUsage);
-        } else {
-          totalFreeMemoryForRead.addAndGet(estimatedMemoryUsage);
+          return estimatedMemoryUsage;
+        }
+        totalFreeMemoryForRead.addAndGet(estimatedMemoryUsage);
+        long remainingTime = maxWaitingTime - (System.currentTimeMillis() - startTime);
+        if (remainingTime <= 0) {
+          if (maxWaitingTime > 0) {
+            logger.warn("The memory for reading is still not enough after waiting {}ms, "
+                + "the query will be executed without applying {} bytes", maxWaitingTime,
+                estimatedMemoryUsage);
+          }
+          return 0;
+        }
+        try {
+          freeMemoryMonitor.wait(remainingTime);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return 0;
         }
       }
     }
-    return queryId;
+  }
+
+  /**
+   * Account the memory of data buffered by a query job, e.g., the batch data in the blocking
+   * queues of a raw data query. The memory is always accounted even if it exceeds the free
+   * memory, so that the caller should stop buffering more data when false is returned.
+   *
+   * @return true if there is still free memory for reading after the allocation, false if the
+   * memory is exhausted or the query has already ended
+   */
+  public boolean allocateMemory(long queryId, long memory) {
+    boolean[] hasFreeMemory = new boolean[1];
+    queryIdEstimatedMemoryMap.computeIfPresent(queryId, (id, allocated) -> {
+      hasFreeMemory[0] = totalFreeMemoryForRead.addAndGet(-memory) >= 0;
+      return allocated + memory;
+    });
+    return hasFreeMemory[0];
+  }
+
+  /**
+   * Put back the memory allocated by allocateMemory(). Memory of a query that has already ended
+   * has been put back in endQuery() and is ignored here.
+   */
+  public void releaseMemory(long queryId, long memory) {
+    if (queryIdEstimatedMemoryMap.computeIfPresent(queryId, (id, allocated) -> {
+      totalFreeMemoryForRead.addAndGet(memory);
+      return allocated - memory;
+    }) != null) {
+      notifyMemoryReleased();
+    }
+  }
+
+  public boolean hasFreeMemory() {
+    return totalFreeMemoryForRead.get() > 0;
+  }
+
+  private void notifyMemoryReleased() {
+    synchronized (freeMemoryMonitor) {
+      freeMemoryMonitor.notifyAll();
+    }
   }
 
   public Map<Long, Integer> getChunkNumMap() {
@@ -141,6 +233,18 @@ public class QueryResourceManager {
     externalSortFileMap.computeIfAbsent(queryId, x -> new ArrayList<>()).add(deserializer);
   }
 
+  /**
+   * register the chunk prefetcher of a series reader, so that it is cancelled when the query
+   * ends.
+   *
+   * @param queryId         query job id
+   * @param chunkPrefetcher chunk prefetcher of a series reader of the query job
+   */
+  public void registerChunkPrefetcher(long queryId, ChunkPrefetcher chunkPrefetcher) {
+    chunkPrefetcherMap.computeIfAbsent(queryId, x -> new CopyOnWriteArrayList<>())
+        .add(chunkPrefetcher);
+  }
+
   public QueryDataSource getQueryDataSource(PartialPath selectedPath,
       QueryContext context, Filter filter) throws StorageEngineException, QueryProcessException {
 
@@ -199,10 +303,17 @@ public class QueryResourceManager {
       externalSortFileMap.remove(queryId);
     }
 
+    // stop reading chunks ahead for the query
+    List<ChunkPrefetcher> chunkPrefetchers = chunkPrefetcherMap.remove(queryId);
+    if (chunkPrefetchers != null) {
+      chunkPrefetchers.forEach(ChunkPrefetcher::cancel);
+    }
+
     // put back the memory usage
     Long estimatedMemoryUsage = queryIdEstimatedMemoryMap.remove(queryId);
-    if (estimatedMemoryUsage != null) {
+    if (estimatedMemoryUsage != null && estimatedMemoryUsage != 0) {
       totalFreeMemoryForRead.addAndGet(estimatedMemoryUsage);
+      notifyMemoryReleased();
     }
 
     // remove usage of opened file paths of current thread
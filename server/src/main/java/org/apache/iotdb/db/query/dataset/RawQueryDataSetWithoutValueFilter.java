@@ -29,6 +29,7 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import org.apache.iotdb.db.concurrent.WrappedRunnable;
 import org.apache.iotdb.db.metadata.PartialPath;
+import org.apache.iotdb.db.query.control.QueryResourceManager;
 import org.apache.iotdb.db.query.pool.QueryTaskPoolManager;
 import org.apache.iotdb.db.query.reader.series.ManagedSeriesReader;
 import org.apache.iotdb.db.tools.watermark.WatermarkEncoder;
@@ -50,12 +51,14 @@ public class RawQueryDataSetWithoutValueFilter extends QueryDataSet {
 
   private static class ReadTask extends WrappedRunnable {
 
+    private final long queryId;
     private final ManagedSeriesReader reader;
     private final String pathName;
     private BlockingQueue<BatchData> blockingQueue;
 
-    public ReadTask(ManagedSeriesReader reader,
+    public ReadTask(long queryId, ManagedSeriesReader reader,
         BlockingQueue<BatchData> blockingQueue, String pathName) {
+      this.queryId = queryId;
       this.reader = reader;
       this.blockingQueue = blockingQueue;
       this.pathName = pathName;
@@ -74,12 +77,15 @@ public class RawQueryDataSetWithoutValueFilter extends QueryDataSet {
             if (batchData.isEmpty()) {
               continue;
             }
+            boolean hasFreeMemory = QUERY_RESOURCE_MANAGER
+                .allocateMemory(queryId, estimateMemory(batchData));
             blockingQueue.put(batchData);
-            // if the queue also has free space, just submit another itself
-            if (blockingQueue.remainingCapacity() > 0) {
+            // if the queue also has free space and the memory for reading is not exhausted,
+            // just submit another itself
+            if (blockingQueue.remainingCapacity() > 0 && hasFreeMemory) {
               TASK_POOL_MANAGER.submit(this);
             }
-            // the queue has no more space
+            // the queue or the memory has no more space
             // remove itself from the QueryTaskPoolManager
             else {
               reader.setManagedByQueryManager(false);
@@ -144,21 +150,28 @@ public class RawQueryDataSetWithoutValueFilter extends QueryDataSet {
 
   private static final QueryTaskPoolManager TASK_POOL_MANAGER = QueryTaskPoolManager.getInstance();
 
+  private static final QueryResourceManager QUERY_RESOURCE_MANAGER = QueryResourceManager
+      .getInstance();
+
   private static final Logger LOGGER = LoggerFactory
       .getLogger(RawQueryDataSetWithoutValueFilter.class);
 
+  private final long queryId;
+
 
   /**
    * constructor of EngineDataSetWithoutValueFilter.
    *
+   * @param queryId   query job id, the memory of buffered batch data is accounted to it
    * @param paths     paths in List structure
    * @param dataTypes time series data type
    * @param readers   readers in List(IPointReader) structure
    */
-  public RawQueryDataSetWithoutValueFilter(List<PartialPath> paths, List<TSDataType> dataTypes,
-      List<ManagedSeriesReader> readers, boolean ascending)
+  public RawQueryDataSetWithoutValueFilter(long queryId, List<PartialPath> paths,
+      List<TSDataType> dataTypes, List<ManagedSeriesReader> readers, boolean ascending)
       throws IOException, InterruptedException {
     super(new ArrayList<>(paths), dataTypes, ascending);
+    this.queryId = queryId;
     this.seriesReaderList = readers;
     blockingQueueArray = new BlockingQueue[readers.size()];
     for (int i = 0; i < seriesReaderList.size(); i++) {
@@ -177,7 +190,8 @@ public class RawQueryDataSetWithoutValueFilter extends QueryDataSet {
       reader.setHasRemaining(true);
       reader.setManagedByQueryManager(true);
       TASK_POOL_MANAGER
-          .submit(new ReadTask(reader, blockingQueueArray[i], paths.get(i).getFullPath()));
+          .submit(new ReadTask(queryId, reader, blockingQueueArray[i],
+              paths.get(i).getFullPath()));
     }
     for (int i = 0; i < seriesReaderList.size(); i++) {
       fillCache(i);
@@ -359,6 +373,11 @@ public class RawQueryDataSetWithoutValueFilter extends QueryDataSet {
 
   private void fillCache(int seriesIndex) throws IOException, InterruptedException {
     BatchData batchData = blockingQueueArray[seriesIndex].take();
+    // the previous batch data has been consumed, put back its memory
+    if (cachedBatchDataArray[seriesIndex] != null) {
+      QUERY_RESOURCE_MANAGER
+          .releaseMemory(queryId, estimateMemory(cachedBatchDataArray[seriesIndex]));
+    }
     // no more batch data in this time series queue
     if (batchData instanceof SignalBatchData) {
       noMoreDataInQueueArray[seriesIndex] = true;
@@ -376,22 +395,29 @@ public class RawQueryDataSetWithoutValueFilter extends QueryDataSet {
       cachedBatchDataArray[seriesIndex] = batchData;
 
       synchronized (seriesReaderList.get(seriesIndex)) {
-        // we only need to judge whether to submit another task when the queue is not full
-        if (blockingQueueArray[seriesIndex].remainingCapacity() > 0) {
+        // we only need to judge whether to submit another task when the queue is not full,
+        // and the memory for reading is not exhausted unless the queue has been drained
+        if (blockingQueueArray[seriesIndex].remainingCapacity() > 0
+            && (blockingQueueArray[seriesIndex].isEmpty()
+            || QUERY_RESOURCE_MANAGER.hasFreeMemory())) {
           ManagedSeriesReader reader = seriesReaderList.get(seriesIndex);
           // if the reader isn't being managed and still has more data,
           // that means this read task leave the pool before because the queue has no more space
           // now we should submit it again
           if (!reader.isManagedByQueryManager() && reader.hasRemaining()) {
             reader.setManagedByQueryManager(true);
-            TASK_POOL_MANAGER.submit(new ReadTask(reader, blockingQueueArray[seriesIndex],
-                paths.get(seriesIndex).getFullPath()));
+            TASK_POOL_MANAGER.submit(new ReadTask(queryId, reader,
+                blockingQueueArray[seriesIndex], paths.get(seriesIndex).getFullPath()));
           }
         }
       }
     }
   }
 
+  private static long estimateMemory(BatchData batchData) {
+    return batchData.length() * QueryResourceManager.POINT_ESTIMATED_SIZE;
+  }
+
   private void putPBOSToBuffer(PublicBAOS[] bitmapBAOSList, List<ByteBuffer> bitmapBufferList,
       int tsIndex) {
     ByteBuffer bitmapBuffer = ByteBuffer.allocate(bitmapBAOSList[tsIndex].size());
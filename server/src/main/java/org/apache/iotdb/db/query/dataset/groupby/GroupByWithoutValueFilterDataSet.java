@@ -28,13 +28,19 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.stream.Collectors;
 import org.apache.iotdb.db.engine.StorageEngine;
+import org.apache.iotdb.db.engine.cache.GroupByResultCache;
+import org.apache.iotdb.db.engine.cache.GroupByResultCache.BucketResult;
+import org.apache.iotdb.db.engine.cache.GroupByResultCache.SealedFileIndex;
+import org.apache.iotdb.db.engine.querycontext.QueryDataSource;
 import org.apache.iotdb.db.engine.storagegroup.StorageGroupProcessor;
 import org.apache.iotdb.db.exception.StorageEngineException;
 import org.apache.iotdb.db.exception.query.QueryProcessException;
 import org.apache.iotdb.db.metadata.PartialPath;
+import org.apache.iotdb.db.qp.physical.crud.GroupByTimeFillPlan;
 import org.apache.iotdb.db.qp.physical.crud.GroupByTimePlan;
 import org.apache.iotdb.db.query.aggregation.AggregateResult;
 import org.apache.iotdb.db.query.context.QueryContext;
+import org.apache.iotdb.db.query.control.QueryResourceManager;
 import org.apache.iotdb.db.query.factory.AggregateResultFactory;
 import org.apache.iotdb.db.query.filter.TsFileFilter;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
@@ -42,7 +48,10 @@ import org.apache.iotdb.tsfile.read.common.Path;
 import org.apache.iotdb.tsfile.read.common.RowRecord;
 import org.apache.iotdb.tsfile.read.expression.IExpression;
 import org.apache.iotdb.tsfile.read.expression.impl.GlobalTimeExpression;
+import org.apache.iotdb.tsfile.read.filter.GroupByFilter;
+import org.apache.iotdb.tsfile.read.filter.TimeFilter;
 import org.apache.iotdb.tsfile.read.filter.basic.Filter;
+import org.apache.iotdb.tsfile.read.filter.factory.FilterFactory;
 import org.apache.iotdb.tsfile.utils.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -65,6 +74,22 @@ public class GroupByWithoutValueFilterDataSet extends GroupByEngineDataSet {
    */
   private Map<PartialPath, List<Integer>> resultIndexes = new HashMap<>();
 
+  private List<String> deduplicatedAggregations;
+  private AggregateResult[] aggregateResults;
+
+  /**
+   * path -> the TsFiles of the path indexed by time, only for the paths whose results are read from
+   * and put into GroupByResultCache, null if the cache is not used
+   */
+  private Map<PartialPath, SealedFileIndex> sealedFileIndexes;
+  /**
+   * path -> results of the leading intervals that are read from GroupByResultCache
+   */
+  private Map<PartialPath, List<Object[]>> cachedResults;
+  private long cacheVersion;
+  // index of the current interval
+  private int intervalIndex = 0;
+
   public GroupByWithoutValueFilterDataSet() {
   }
 
@@ -87,30 +112,141 @@ public class GroupByWithoutValueFilterDataSet extends GroupByEngineDataSet {
       timeFilter = ((GlobalTimeExpression) expression).getFilter();
     }
 
+    // init resultIndexes, group result indexes by path
+    for (int i = 0; i < paths.size(); i++) {
+      resultIndexes.computeIfAbsent((PartialPath) paths.get(i), k -> new ArrayList<>()).add(i);
+    }
+    deduplicatedAggregations = groupByTimePlan.getDeduplicatedAggregations();
+    aggregateResults = new AggregateResult[paths.size()];
+    boolean useResultCache = canUseResultCache(groupByTimePlan, timeFilter);
+    if (useResultCache) {
+      sealedFileIndexes = new HashMap<>();
+      cachedResults = new HashMap<>();
+      cacheVersion = GroupByResultCache.getInstance().getVersion();
+    }
+
     List<StorageGroupProcessor> list = StorageEngine.getInstance()
         .mergeLock(paths.stream().map(p -> (PartialPath) p).collect(Collectors.toList()));
     try {
-      // init resultIndexes, group result indexes by path
-      for (int i = 0; i < paths.size(); i++) {
-        PartialPath path = (PartialPath) paths.get(i);
-        if (!pathExecutors.containsKey(path)) {
-          //init GroupByExecutor
-          pathExecutors.put(path,
-              getGroupByExecutor(path, groupByTimePlan.getAllMeasurementsInDevice(path.getDevice()),
-                  dataTypes.get(i), context, timeFilter, null, groupByTimePlan.isAscending()));
-          resultIndexes.put(path, new ArrayList<>());
+      for (Entry<PartialPath, List<Integer>> entry : resultIndexes.entrySet()) {
+        PartialPath path = entry.getKey();
+        List<Integer> indexes = entry.getValue();
+        TSDataType dataType = dataTypes.get(indexes.get(0));
+        Set<String> allSensors = groupByTimePlan.getAllMeasurementsInDevice(path.getDevice());
+        //init GroupByExecutor
+        GroupByExecutor executor;
+        if (useResultCache) {
+          executor = getCachedGroupByExecutor(path, indexes, allSensors, dataType, context,
+              timeFilter);
+        } else {
+          executor = getGroupByExecutor(path, allSensors, dataType, context, timeFilter, null,
+              groupByTimePlan.isAscending());
+        }
+        pathExecutors.put(path, executor);
+        for (int i : indexes) {
+          AggregateResult aggrResult = AggregateResultFactory
+              .getAggrResultByName(deduplicatedAggregations.get(i), dataTypes.get(i), ascending);
+          aggregateResults[i] = aggrResult;
+          executor.addAggregateResult(aggrResult);
         }
-        resultIndexes.get(path).add(i);
-        AggregateResult aggrResult = AggregateResultFactory
-            .getAggrResultByName(groupByTimePlan.getDeduplicatedAggregations().get(i),
-                dataTypes.get(i), ascending);
-        pathExecutors.get(path).addAggregateResult(aggrResult);
       }
     } finally {
       StorageEngine.getInstance().mergeUnLock(list);
     }
   }
 
+  /**
+   * The results of an interval only depend on the interval when the query only has the time filter
+   * of GROUP BY, and the results of sealed files do not change with time when there is no TTL.
+   * GROUP BY with fill peeks previous intervals through the executors, so it is not supported.
+   */
+  protected boolean canUseResultCache(GroupByTimePlan groupByTimePlan, Filter timeFilter) {
+    return GroupByResultCache.getInstance().isEnabled()
+        && !(groupByTimePlan instanceof GroupByTimeFillPlan)
+        && timeFilter instanceof GroupByFilter;
+  }
+
+  /**
+   * Read the results of the leading intervals from GroupByResultCache until the first interval that
+   * is not cached, and create an executor which only reads the data from that interval on.
+   */
+  private GroupByExecutor getCachedGroupByExecutor(PartialPath path, List<Integer> indexes,
+      Set<String> allSensors, TSDataType dataType, QueryContext context, Filter timeFilter)
+      throws StorageEngineException, QueryProcessException {
+    QueryDataSource dataSource = QueryResourceManager.getInstance()
+        .getQueryDataSource(path, context, timeFilter);
+    if (dataSource.getDataTTL() != Long.MAX_VALUE) {
+      return new LocalGroupByExecutor(path, allSensors, dataType, context, dataSource, timeFilter,
+          null, ascending);
+    }
+    SealedFileIndex sealedFileIndex = GroupByResultCache
+        .indexSealedFiles(dataSource, path.getDevice());
+    sealedFileIndexes.put(path, sealedFileIndex);
+
+    List<Object[]> pathCachedResults = new ArrayList<>();
+    long intervalStartTime = curStartTime;
+    long intervalEndTime = curEndTime;
+    while (ascending ? intervalStartTime < endTime : intervalStartTime >= startTime) {
+      Object[] intervalResults = getCachedResults(path, indexes, sealedFileIndex,
+          intervalStartTime, intervalEndTime);
+      if (intervalResults == null) {
+        break;
+      }
+      pathCachedResults.add(intervalResults);
+      intervalStartTime += ascending ? slidingStep : -slidingStep;
+      intervalEndTime = Math.min(intervalStartTime + interval, endTime);
+    }
+    cachedResults.put(path, pathCachedResults);
+
+    Filter executorFilter = timeFilter;
+    if (!pathCachedResults.isEmpty()) {
+      executorFilter = FilterFactory.and(timeFilter, ascending ? TimeFilter.gtEq(intervalStartTime)
+          : TimeFilter.lt(intervalEndTime));
+    }
+    return new LocalGroupByExecutor(path, allSensors, dataType, context, dataSource,
+        executorFilter, null, ascending);
+  }
+
+  /**
+   * @return the cached results of all aggregations of the path in [intervalStartTime,
+   * intervalEndTime), or null if any of them is not cached
+   */
+  private Object[] getCachedResults(PartialPath path, List<Integer> indexes,
+      SealedFileIndex sealedFileIndex, long intervalStartTime, long intervalEndTime) {
+    String[] files = sealedFileIndex.getFiles(intervalStartTime, intervalEndTime);
+    if (files == null) {
+      return null;
+    }
+    Object[] intervalResults = new Object[indexes.size()];
+    for (int i = 0; i < indexes.size(); i++) {
+      BucketResult bucketResult = GroupByResultCache.getInstance()
+          .get(path, deduplicatedAggregations.get(indexes.get(i)), intervalStartTime,
+              intervalEndTime, files);
+      if (bucketResult == null) {
+        return null;
+      }
+      intervalResults[i] = bucketResult.getResult();
+    }
+    return intervalResults;
+  }
+
+  private void putCachedResults(PartialPath path, List<AggregateResult> results) {
+    SealedFileIndex sealedFileIndex = sealedFileIndexes.get(path);
+    if (sealedFileIndex == null) {
+      return;
+    }
+    String[] files = sealedFileIndex.getFiles(curStartTime, curEndTime);
+    if (files == null) {
+      return;
+    }
+    List<Integer> indexes = resultIndexes.get(path);
+    for (int i = 0; i < results.size(); i++) {
+      GroupByResultCache.getInstance()
+          .put(path, deduplicatedAggregations.get(indexes.get(i)), curStartTime, curEndTime, files,
+              results.get(i).getResult(), cacheVersion);
+    }
+  }
+
   @Override
   protected RowRecord nextWithoutConstraint() throws IOException {
     if (!hasCachedTimeInterval) {
@@ -125,28 +261,43 @@ public class GroupByWithoutValueFilterDataSet extends GroupByEngineDataSet {
       record = new RowRecord(curEndTime - 1);
     }
 
-    AggregateResult[] fields = new AggregateResult[paths.size()];
+    Object[] fields = new Object[paths.size()];
 
     try {
       for (Entry<PartialPath, GroupByExecutor> pathToExecutorEntry : pathExecutors.entrySet()) {
+        PartialPath path = pathToExecutorEntry.getKey();
+        List<Integer> indexes = resultIndexes.get(path);
+        List<Object[]> pathCachedResults = cachedResults == null ? null : cachedResults.get(path);
+        if (pathCachedResults != null && intervalIndex < pathCachedResults.size()) {
+          Object[] intervalResults = pathCachedResults.get(intervalIndex);
+          for (int i = 0; i < intervalResults.length; i++) {
+            fields[indexes.get(i)] = intervalResults[i];
+          }
+          continue;
+        }
+
         GroupByExecutor executor = pathToExecutorEntry.getValue();
         List<AggregateResult> aggregations = executor.calcResult(curStartTime, curEndTime);
         for (int i = 0; i < aggregations.size(); i++) {
-          int resultIndex = resultIndexes.get(pathToExecutorEntry.getKey()).get(i);
-          fields[resultIndex] = aggregations.get(i);
+          int resultIndex = indexes.get(i);
+          fields[resultIndex] = aggregations.get(i).getResult();
+        }
+        if (sealedFileIndexes != null) {
+          putCachedResults(path, aggregations);
         }
       }
     } catch (QueryProcessException e) {
       logger.error("GroupByWithoutValueFilterDataSet execute has error", e);
       throw new IOException(e.getMessage(), e);
     }
+    intervalIndex++;
 
-    for (AggregateResult res : fields) {
-      if (res == null) {
+    for (int i = 0; i < fields.length; i++) {
+      if (aggregateResults[i] == null) {
         record.addField(null);
         continue;
       }
-      record.addField(res.getResult(), res.getResultDataType());
+      record.addField(fields[i], aggregateResults[i].getResultDataType());
     }
     return record;
   }
@@ -59,8 +59,15 @@ public class LocalGroupByExecutor implements GroupByExecutor {
   public LocalGroupByExecutor(PartialPath path, Set<String> allSensors, TSDataType dataType,
       QueryContext context, Filter timeFilter, TsFileFilter fileFilter, boolean ascending)
       throws StorageEngineException, QueryProcessException {
-    queryDataSource = QueryResourceManager.getInstance()
-        .getQueryDataSource(path, context, timeFilter);
+    this(path, allSensors, dataType, context,
+        QueryResourceManager.getInstance().getQueryDataSource(path, context, timeFilter),
+        timeFilter, fileFilter, ascending);
+  }
+
+  public LocalGroupByExecutor(PartialPath path, Set<String> allSensors, TSDataType dataType,
+      QueryContext context, QueryDataSource queryDataSource, Filter timeFilter,
+      TsFileFilter fileFilter, boolean ascending) {
+    this.queryDataSource = queryDataSource;
     // update filter by TTL
     timeFilter = queryDataSource.updateFilterUsingTTL(timeFilter);
     this.reader = new SeriesAggregateReader(path, allSensors, dataType, context, queryDataSource,
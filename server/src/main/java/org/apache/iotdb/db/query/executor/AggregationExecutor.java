@@ -22,7 +22,9 @@ package org.apache.iotdb.db.query.executor;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -31,6 +33,7 @@ import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.engine.StorageEngine;
 import org.apache.iotdb.db.engine.querycontext.QueryDataSource;
 import org.apache.iotdb.db.engine.storagegroup.StorageGroupProcessor;
+import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
 import org.apache.iotdb.db.exception.StorageEngineException;
 import org.apache.iotdb.db.exception.query.QueryProcessException;
 import org.apache.iotdb.db.metadata.PartialPath;
@@ -47,8 +50,10 @@ import org.apache.iotdb.db.query.reader.series.IReaderByTimestamp;
 import org.apache.iotdb.db.query.reader.series.SeriesAggregateReader;
 import org.apache.iotdb.db.query.reader.series.SeriesReaderByTimestamp;
 import org.apache.iotdb.db.query.timegenerator.ServerTimeGenerator;
+import org.apache.iotdb.db.utils.FileLoaderUtils;
 import org.apache.iotdb.db.utils.FilePathUtils;
 import org.apache.iotdb.db.utils.QueryUtils;
+import org.apache.iotdb.tsfile.file.metadata.TimeseriesMetadata;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.statistics.Statistics;
 import org.apache.iotdb.tsfile.read.common.BatchData;
@@ -103,9 +108,10 @@ public class AggregationExecutor {
     List<StorageGroupProcessor> list = StorageEngine.getInstance()
         .mergeLock(new ArrayList<>(pathToAggrIndexesMap.keySet()));
     try {
-      for (Map.Entry<PartialPath, List<Integer>> entry : pathToAggrIndexesMap.entrySet()) {
-        aggregateOneSeries(entry, aggregateResultList,
-            aggregationPlan.getAllMeasurementsInDevice(entry.getKey().getDevice()), timeFilter,
+      for (List<Map.Entry<PartialPath, List<Integer>>> deviceSeries : groupSeriesByDevice(
+          pathToAggrIndexesMap).values()) {
+        aggregateOneDevice(deviceSeries, aggregateResultList, aggregationPlan
+                .getAllMeasurementsInDevice(deviceSeries.get(0).getKey().getDevice()), timeFilter,
             context);
       }
     } finally {
@@ -116,26 +122,93 @@ public class AggregationExecutor {
   }
 
   /**
-   * get aggregation result for one series
+   * get aggregation results for all series of one device. The TsFiles of the device that are
+   * closed, not overlapped by other TsFiles and totally selected by the time filter are aggregated
+   * only from the statistics in their TimeseriesMetadata, which are loaded for all measurements of
+   * the device at once. Only the other TsFiles, and the TsFiles with deletions of a series, are
+   * read by series readers.
    *
-   * @param pathToAggrIndexes entry of path to aggregation indexes map
-   * @param timeFilter        time filter
-   * @param context           query context
+   * @param deviceSeries entries of path to aggregation indexes map of the device
    */
-  protected void aggregateOneSeries(
-      Map.Entry<PartialPath, List<Integer>> pathToAggrIndexes,
-      AggregateResult[] aggregateResultList, Set<String> measurements,
-      Filter timeFilter, QueryContext context)
+  protected void aggregateOneDevice(List<Map.Entry<PartialPath, List<Integer>>> deviceSeries,
+      AggregateResult[] aggregateResultList, Set<String> measurements, Filter timeFilter,
+      QueryContext context) throws IOException, QueryProcessException, StorageEngineException {
+    PartialPath firstSeries = deviceSeries.get(0).getKey();
+    QueryDataSource deviceDataSource = QueryResourceManager.getInstance()
+        .getQueryDataSource(firstSeries, context, timeFilter);
+    List<TsFileResource> statisticsFiles = getStatisticsOnlyFiles(deviceDataSource,
+        firstSeries.getDevice(), deviceDataSource.updateFilterUsingTTL(timeFilter));
+    boolean allClosed = true;
+    for (TsFileResource resource : deviceDataSource.getSeqResources()) {
+      allClosed = allClosed && resource.isClosed();
+    }
+    for (TsFileResource resource : deviceDataSource.getUnseqResources()) {
+      allClosed = allClosed && resource.isClosed();
+    }
+
+    for (Map.Entry<PartialPath, List<Integer>> entry : deviceSeries) {
+      PartialPath seriesPath = entry.getKey();
+      QueryDataSource queryDataSource;
+      if (seriesPath == firstSeries || allClosed) {
+        // the closed TsFiles of all series in a device are the same
+        queryDataSource = new QueryDataSource(seriesPath,
+            new ArrayList<>(deviceDataSource.getSeqResources()),
+            new ArrayList<>(deviceDataSource.getUnseqResources()));
+        queryDataSource.setDataTTL(deviceDataSource.getDataTTL());
+      } else {
+        // the memtable data in an unsealed TsFile are different for each series
+        queryDataSource = QueryResourceManager.getInstance()
+            .getQueryDataSource(seriesPath, context, timeFilter);
+      }
+      aggregateOneSeries(entry, aggregateResultList, measurements, timeFilter, context,
+          queryDataSource, statisticsFiles);
+    }
+  }
+
+  /**
+   * @return the TsFiles of the device that are closed, totally selected by the time filter and not
+   * overlapped by other TsFiles of the device, sorted by time
+   */
+  private static List<TsFileResource> getStatisticsOnlyFiles(QueryDataSource dataSource,
+      String device, Filter timeFilter) {
+    List<TsFileResource> resources = new ArrayList<>(dataSource.getSeqResources());
+    resources.addAll(dataSource.getUnseqResources());
+    resources.sort(Comparator.comparingLong(resource -> resource.getStartTime(device)));
+
+    List<TsFileResource> statisticsFiles = new ArrayList<>();
+    long maxEndTime = Long.MIN_VALUE;
+    for (int i = 0; i < resources.size(); i++) {
+      TsFileResource resource = resources.get(i);
+      long startTime = resource.getStartTime(device);
+      // the end time of an unsealed file is unknown
+      long endTime = resource.isClosed() ? resource.getEndTime(device) : Long.MAX_VALUE;
+      boolean overlapped = startTime <= maxEndTime
+          || (i + 1 < resources.size() && endTime >= resources.get(i + 1).getStartTime(device));
+      maxEndTime = Math.max(maxEndTime, endTime);
+      if (resource.isClosed() && !overlapped
+          && (timeFilter == null || timeFilter.containStartEndTime(startTime, endTime))) {
+        statisticsFiles.add(resource);
+      }
+    }
+    return statisticsFiles;
+  }
+
+  /**
+   * get aggregation result for one series, the results in statisticsFiles are calculated from the
+   * statistics of their TimeseriesMetadata, and the results in other files of queryDataSource are
+   * calculated by series readers and merged.
+   */
+  @SuppressWarnings("squid:S107")
+  private void aggregateOneSeries(Map.Entry<PartialPath, List<Integer>> pathToAggrIndexes,
+      AggregateResult[] aggregateResultList, Set<String> measurements, Filter timeFilter,
+      QueryContext context, QueryDataSource queryDataSource, List<TsFileResource> statisticsFiles)
       throws IOException, QueryProcessException, StorageEngineException {
+    PartialPath seriesPath = pathToAggrIndexes.getKey();
+    TSDataType tsDataType = dataTypes.get(pathToAggrIndexes.getValue().get(0));
     List<AggregateResult> ascAggregateResultList = new ArrayList<>();
     List<AggregateResult> descAggregateResultList = new ArrayList<>();
     boolean[] isAsc = new boolean[aggregateResultList.length];
-
-    PartialPath seriesPath = pathToAggrIndexes.getKey();
-    TSDataType tsDataType = dataTypes.get(pathToAggrIndexes.getValue().get(0));
-
     for (int i : pathToAggrIndexes.getValue()) {
-      // construct AggregateResult
       AggregateResult aggregateResult = AggregateResultFactory
           .getAggrResultByName(aggregations.get(i), tsDataType);
       if (aggregateResult.isAscending()) {
@@ -145,8 +218,50 @@ public class AggregationExecutor {
         descAggregateResultList.add(aggregateResult);
       }
     }
-    aggregateOneSeries(seriesPath, measurements, context, timeFilter, tsDataType,
-        ascAggregateResultList, descAggregateResultList, null);
+
+    // aggregate from the statistics of the TimeseriesMetadata in time order
+    List<Statistics> statisticsList = new ArrayList<>();
+    Set<TsFileResource> aggregatedFiles = new HashSet<>();
+    for (TsFileResource resource : statisticsFiles) {
+      TimeseriesMetadata timeseriesMetadata = FileLoaderUtils
+          .loadTimeSeriesMetadata(resource, seriesPath, context, timeFilter, measurements);
+      if (timeseriesMetadata == null) {
+        aggregatedFiles.add(resource);
+      } else if (!timeseriesMetadata.isModified()) {
+        statisticsList.add(timeseriesMetadata.getStatistics());
+        aggregatedFiles.add(resource);
+      }
+    }
+    for (Statistics statistics : statisticsList) {
+      for (AggregateResult aggregateResult : ascAggregateResultList) {
+        aggregateResult.updateResultFromStatistics(statistics);
+      }
+    }
+    for (int i = statisticsList.size() - 1; i >= 0; i--) {
+      for (AggregateResult aggregateResult : descAggregateResultList) {
+        aggregateResult.updateResultFromStatistics(statisticsList.get(i));
+      }
+    }
+
+    // read the other files and merge the results
+    if (queryDataSource.getSeqResources().size() + queryDataSource.getUnseqResources().size()
+        > aggregatedFiles.size()) {
+      List<AggregateResult> ascReadResultList = new ArrayList<>();
+      List<AggregateResult> descReadResultList = new ArrayList<>();
+      for (int i : pathToAggrIndexes.getValue()) {
+        AggregateResult readResult = AggregateResultFactory
+            .getAggrResultByName(aggregations.get(i), tsDataType);
+        if (isAsc[i]) {
+          ascReadResultList.add(readResult);
+        } else {
+          descReadResultList.add(readResult);
+        }
+      }
+      aggregateOneSeries(seriesPath, measurements, context, queryDataSource, timeFilter,
+          tsDataType, ascReadResultList, descReadResultList, aggregatedFiles::contains);
+      mergeResults(ascAggregateResultList, ascReadResultList);
+      mergeResults(descAggregateResultList, descReadResultList);
+    }
 
     int ascIndex = 0;
     int descIndex = 0;
@@ -156,6 +271,15 @@ public class AggregationExecutor {
     }
   }
 
+  private static void mergeResults(List<AggregateResult> results,
+      List<AggregateResult> anotherResults) {
+    for (int i = 0; i < results.size(); i++) {
+      if (anotherResults.get(i).getResult() != null) {
+        results.get(i).merge(anotherResults.get(i));
+      }
+    }
+  }
+
   @SuppressWarnings("squid:S107")
   public static void aggregateOneSeries(PartialPath seriesPath, Set<String> measurements,
       QueryContext context, Filter timeFilter,
@@ -166,6 +290,16 @@ public class AggregationExecutor {
     // construct series reader without value filter
     QueryDataSource queryDataSource = QueryResourceManager.getInstance()
         .getQueryDataSource(seriesPath, context, timeFilter);
+    aggregateOneSeries(seriesPath, measurements, context, queryDataSource, timeFilter, tsDataType,
+        ascAggregateResultList, descAggregateResultList, fileFilter);
+  }
+
+  @SuppressWarnings("squid:S107")
+  private static void aggregateOneSeries(PartialPath seriesPath, Set<String> measurements,
+      QueryContext context, QueryDataSource queryDataSource, Filter timeFilter,
+      TSDataType tsDataType, List<AggregateResult> ascAggregateResultList,
+      List<AggregateResult> descAggregateResultList, TsFileFilter fileFilter)
+      throws IOException, QueryProcessException {
     if (fileFilter != null) {
       QueryUtils.filterQueryDataSource(queryDataSource, fileFilter);
     }
@@ -428,4 +562,20 @@ public class AggregationExecutor {
     }
     return pathToAggrIndexesMap;
   }
+
+  /**
+   * Group the series by their devices, so that all series of a device are aggregated together.
+   *
+   * @param pathToAggrIndexesMap path to aggregation indexes map
+   * @return device to the entries of pathToAggrIndexesMap of the device
+   */
+  private Map<String, List<Map.Entry<PartialPath, List<Integer>>>> groupSeriesByDevice(
+      Map<PartialPath, List<Integer>> pathToAggrIndexesMap) {
+    Map<String, List<Map.Entry<PartialPath, List<Integer>>>> deviceToSeries = new HashMap<>();
+    for (Map.Entry<PartialPath, List<Integer>> entry : pathToAggrIndexesMap.entrySet()) {
+      deviceToSeries.computeIfAbsent(entry.getKey().getDevice(), key -> new ArrayList<>())
+          .add(entry);
+    }
+    return deviceToSeries;
+  }
 }
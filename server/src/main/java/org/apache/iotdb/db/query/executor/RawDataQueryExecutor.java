@@ -67,8 +67,9 @@ public class RawDataQueryExecutor {
 
     List<ManagedSeriesReader> readersOfSelectedSeries = initManagedSeriesReader(context);
     try {
-      return new RawQueryDataSetWithoutValueFilter(queryPlan.getDeduplicatedPaths(),
-          queryPlan.getDeduplicatedDataTypes(), readersOfSelectedSeries, queryPlan.isAscending());
+      return new RawQueryDataSetWithoutValueFilter(context.getQueryId(),
+          queryPlan.getDeduplicatedPaths(), queryPlan.getDeduplicatedDataTypes(),
+          readersOfSelectedSeries, queryPlan.isAscending());
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
       throw new StorageEngineException(e.getMessage());
@@ -52,4 +52,15 @@ public interface ExternalSortJobEngine {
   ExternalSortJob createJob(long queryId, List<ChunkReaderWrap> timeValuePairReaderList)
       throws IOException;
 
+  /**
+   * Write all the points of a reader into a temporary file, which is deleted when the returned
+   * reader is closed or the query ends, so that the memory of the points can be released while
+   * they wait to be merged.
+   *
+   * @param queryId query job id
+   * @param reader a reader that has at least one point
+   * @return a reader of the points in the temporary file
+   */
+  IPointReader spill(long queryId, IPointReader reader) throws IOException;
+
 }
@@ -21,6 +21,7 @@ package org.apache.iotdb.db.query.externalsort;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import org.apache.commons.io.FileUtils;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
@@ -114,6 +115,12 @@ public class SimpleExternalSortEngine implements ExternalSortJobEngine {
     return new ExternalSortJob(ret);
   }
 
+  @Override
+  public IPointReader spill(long queryId, IPointReader reader) throws IOException {
+    String tmpFilePath = queryDir + scheduler.genJobId() + "_spill";
+    return new LineMerger(queryId, tmpFilePath).merge(Collections.singletonList(reader));
+  }
+
   String getQueryDir() {
     return queryDir;
   }
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.db.query.reader.chunk;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Future;
+import org.apache.iotdb.db.query.pool.ChunkPrefetchPoolManager;
+import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * ChunkPrefetcher reads the upcoming chunks of a series reader into ChunkCache asynchronously.
+ * Chunk metadata is added in the order the chunks will be consumed, and each time a chunk is
+ * consumed, the following chunks are read ahead until prefetchNum chunks are read ahead but not
+ * consumed. Chunks of the same file whose offsets are within coalesceSize are read with one read.
+ * <p>
+ * Only chunks on disk are read ahead. The prefetcher is registered in QueryResourceManager, which
+ * cancels it when the query is released, so the methods are synchronized.
+ */
+public class ChunkPrefetcher {
+
+  private static final Logger logger = LoggerFactory.getLogger(ChunkPrefetcher.class);
+
+  private final int prefetchNum;
+  private final int coalesceSize;
+
+  // chunks that will be read ahead, in the order they will be consumed
+  private final LinkedList<ChunkMetadata> pendingChunkMetadata = new LinkedList<>();
+  // chunks that have been read ahead (or are being read) but not consumed yet
+  private final Set<ChunkMetadata> prefetchedChunkMetadata = new HashSet<>();
+  // tasks reading chunks ahead that may not be done yet
+  private final List<Future<?>> prefetchTasks = new ArrayList<>();
+  private boolean cancelled = false;
+
+  public ChunkPrefetcher(int prefetchNum, int coalesceSize) {
+    this.prefetchNum = prefetchNum;
+    this.coalesceSize = coalesceSize;
+  }
+
+  /**
+   * @param chunkMetadataList chunk metadata in the order that the chunks will be consumed
+   */
+  public synchronized void addChunkMetadata(List<ChunkMetadata> chunkMetadataList) {
+    if (cancelled) {
+      return;
+    }
+    for (ChunkMetadata chunkMetadata : chunkMetadataList) {
+      if (chunkMetadata.getChunkLoader() instanceof DiskChunkLoader) {
+        pendingChunkMetadata.add(chunkMetadata);
+      }
+    }
+  }
+
+  /**
+   * Called when a chunk is loaded or skipped by the series reader, then read the following
+   * chunks ahead.
+   */
+  public synchronized void consume(ChunkMetadata chunkMetadata) {
+    if (cancelled) {
+      return;
+    }
+    if (!prefetchedChunkMetadata.remove(chunkMetadata)) {
+      pendingChunkMetadata.remove(chunkMetadata);
+    }
+    prefetch();
+  }
+
+  /**
+   * Called when the query is released. Nothing is read ahead any more and the tasks not started
+   * yet are cancelled. Running tasks are not interrupted, because interrupting a thread reading a
+   * FileChannel closes the channel, which is shared with other queries by FileReaderManager.
+   */
+  public synchronized void cancel() {
+    cancelled = true;
+    pendingChunkMetadata.clear();
+    prefetchedChunkMetadata.clear();
+    for (Future<?> prefetchTask : prefetchTasks) {
+      prefetchTask.cancel(false);
+    }
+    prefetchTasks.clear();
+  }
+
+  public synchronized boolean isCancelled() {
+    return cancelled;
+  }
+
+  private void prefetch() {
+    List<ChunkMetadata> group = new ArrayList<>();
+    while (prefetchedChunkMetadata.size() < prefetchNum && !pendingChunkMetadata.isEmpty()) {
+      ChunkMetadata chunkMetadata = pendingChunkMetadata.poll();
+      prefetchedChunkMetadata.add(chunkMetadata);
+      if (!group.isEmpty() && !canCoalesce(group.get(0), chunkMetadata)) {
+        submit(group);
+        group = new ArrayList<>();
+      }
+      group.add(chunkMetadata);
+    }
+    if (!group.isEmpty()) {
+      submit(group);
+    }
+  }
+
+  private boolean canCoalesce(ChunkMetadata first, ChunkMetadata chunkMetadata) {
+    return ((DiskChunkLoader) first.getChunkLoader()).getResource()
+        == ((DiskChunkLoader) chunkMetadata.getChunkLoader()).getResource()
+        && Math.abs(chunkMetadata.getOffsetOfChunkHeader() - first.getOffsetOfChunkHeader())
+        <= coalesceSize;
+  }
+
+  private void submit(List<ChunkMetadata> group) {
+    group.sort(Comparator.comparingLong(ChunkMetadata::getOffsetOfChunkHeader));
+    DiskChunkLoader chunkLoader = (DiskChunkLoader) group.get(0).getChunkLoader();
+    prefetchTasks.removeIf(Future::isDone);
+    prefetchTasks.add(ChunkPrefetchPoolManager.getInstance().submit(() -> {
+      try {
+        chunkLoader.prefetchChunks(group);
+      } catch (IOException e) {
+        // reading ahead is best-effort, the chunks will be read again when they are consumed
+        logger.debug("Failed to read {} chunks of {} ahead", group.size(),
+            chunkLoader.getResource().getTsFilePath(), e);
+      }
+    }));
+  }
+}
@@ -20,6 +20,7 @@
 package org.apache.iotdb.db.query.reader.chunk;
 
 import java.io.IOException;
+import java.util.List;
 import org.apache.iotdb.db.engine.cache.ChunkCache;
 import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
 import org.apache.iotdb.db.query.control.FileReaderManager;
@@ -46,6 +47,21 @@ public class DiskChunkLoader implements IChunkLoader {
     return ChunkCache.getInstance().get(chunkMetaData, tsFileSequenceReader);
   }
 
+  /**
+   * Read the given chunks of this file into ChunkCache ahead of loadChunk().
+   *
+   * @param chunkMetaDataList chunk meta data sorted by the offset of chunk header
+   */
+  public void prefetchChunks(List<ChunkMetadata> chunkMetaDataList) throws IOException {
+    TsFileSequenceReader tsFileSequenceReader =
+        FileReaderManager.getInstance().get(resource.getTsFilePath(), resource.isClosed());
+    ChunkCache.getInstance().prefetch(chunkMetaDataList, tsFileSequenceReader);
+  }
+
+  public TsFileResource getResource() {
+    return resource;
+  }
+
   @Override
   public void close() throws IOException {
     // do nothing
@@ -52,7 +52,7 @@ public class DiskChunkMetadataLoader implements IChunkMetadataLoader {
   public List<ChunkMetadata> loadChunkMetadataList(TimeseriesMetadata timeseriesMetadata)
       throws IOException {
     List<ChunkMetadata> chunkMetadataList = ChunkMetadataCache
-        .getInstance().get(resource.getTsFilePath(), seriesPath, timeseriesMetadata);
+        .getInstance().get(resource.getTsFilePath(), seriesPath, timeseriesMetadata, filter);
 
     setDiskChunkLoader(chunkMetadataList, resource, seriesPath, context);
 
@@ -20,6 +20,8 @@ package org.apache.iotdb.db.query.reader.series;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
@@ -28,13 +30,16 @@ import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
+import org.apache.iotdb.db.conf.IoTDBConfig;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.engine.querycontext.QueryDataSource;
 import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
 import org.apache.iotdb.db.metadata.PartialPath;
 import org.apache.iotdb.db.query.context.QueryContext;
 import org.apache.iotdb.db.query.control.QueryResourceManager;
+import org.apache.iotdb.db.query.externalsort.SimpleExternalSortEngine;
 import org.apache.iotdb.db.query.filter.TsFileFilter;
+import org.apache.iotdb.db.query.reader.chunk.ChunkPrefetcher;
 import org.apache.iotdb.db.query.reader.universal.DescPriorityMergeReader;
 import org.apache.iotdb.db.query.reader.universal.PriorityMergeReader;
 import org.apache.iotdb.db.utils.FileLoaderUtils;
@@ -50,6 +55,7 @@ import org.apache.iotdb.tsfile.read.common.BatchDataFactory;
 import org.apache.iotdb.tsfile.read.filter.basic.Filter;
 import org.apache.iotdb.tsfile.read.filter.basic.UnaryFilter;
 import org.apache.iotdb.tsfile.read.reader.IPageReader;
+import org.apache.iotdb.tsfile.read.reader.IPointReader;
 
 public class SeriesReader {
 
@@ -91,6 +97,11 @@ public class SeriesReader {
   private ChunkMetadata firstChunkMetadata;
   private final PriorityQueue<ChunkMetadata> cachedChunkMetadata;
 
+  /*
+   * reads the upcoming chunks of sequence files ahead, null if chunk prefetch is disabled
+   */
+  private final ChunkPrefetcher chunkPrefetcher;
+
   /*
    * page cache
    */
@@ -117,6 +128,7 @@ public class SeriesReader {
     this.allSensors = allSensors;
     this.dataType = dataType;
     this.context = context;
+    this.chunkPrefetcher = createChunkPrefetcher(context);
     QueryUtils.filterQueryDataSource(dataSource, fileFilter);
     this.timeFilter = timeFilter;
     this.valueFilter = valueFilter;
@@ -148,6 +160,7 @@ public class SeriesReader {
     this.allSensors = allSensors;
     this.dataType = dataType;
     this.context = context;
+    this.chunkPrefetcher = createChunkPrefetcher(context);
     this.timeFilter = timeFilter;
     this.valueFilter = valueFilter;
     if (ascending) {
@@ -168,6 +181,23 @@ public class SeriesReader {
         versionPageReader -> orderUtils.getOrderTime(versionPageReader.getStatistics())));
   }
 
+  private static ChunkPrefetcher createChunkPrefetcher(QueryContext context) {
+    IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+    if (!config.isEnableChunkPrefetch() || !config.isMetaDataCacheEnable()) {
+      return null;
+    }
+    ChunkPrefetcher chunkPrefetcher = new ChunkPrefetcher(config.getChunkPrefetchNum(),
+        config.getChunkPrefetchCoalesceSize());
+    QueryResourceManager.getInstance().registerChunkPrefetcher(context.getQueryId(),
+        chunkPrefetcher);
+    return chunkPrefetcher;
+  }
+
+  @TestOnly
+  ChunkPrefetcher getChunkPrefetcher() {
+    return chunkPrefetcher;
+  }
+
   public boolean isEmpty() throws IOException {
     return !(hasNextPage() || hasNextChunk() || hasNextFile());
   }
@@ -317,6 +347,17 @@ public class SeriesReader {
     }
 
     cachedChunkMetadata.addAll(chunkMetadataList);
+
+    // chunks of a sequence file are consumed one by one in time order
+    if (chunkPrefetcher != null && timeSeriesMetadata.isSeq()) {
+      if (orderUtils.getAscending()) {
+        chunkPrefetcher.addChunkMetadata(chunkMetadataList);
+      } else {
+        List<ChunkMetadata> reversedChunkMetadataList = new ArrayList<>(chunkMetadataList);
+        Collections.reverse(reversedChunkMetadataList);
+        chunkPrefetcher.addChunkMetadata(reversedChunkMetadataList);
+      }
+    }
   }
 
   boolean isChunkOverlapped() throws IOException {
@@ -341,6 +382,9 @@ public class SeriesReader {
   }
 
   void skipCurrentChunk() {
+    if (chunkPrefetcher != null && firstChunkMetadata.isSeq()) {
+      chunkPrefetcher.consume(firstChunkMetadata);
+    }
     firstChunkMetadata = null;
   }
 
@@ -462,6 +506,9 @@ public class SeriesReader {
 
   private void unpackOneChunkMetaData(ChunkMetadata chunkMetaData)
       throws IOException {
+    if (chunkPrefetcher != null && chunkMetaData.isSeq()) {
+      chunkPrefetcher.consume(chunkMetaData);
+    }
     FileLoaderUtils.loadPageReaderList(chunkMetaData, timeFilter).forEach(
         pageReader -> {
           if (chunkMetaData.isSeq()) {
@@ -613,10 +660,8 @@ public class SeriesReader {
               hasCachedNextOverlappedPage = cachedBatchData.hasCurrent();
               return hasCachedNextOverlappedPage;
             } else {
-              mergeReader
-                  .addReader(firstPageReader.getAllSatisfiedPageData(orderUtils.getAscending())
-                          .getBatchDataIterator(), firstPageReader.version,
-                      orderUtils.getOverlapCheckTime(firstPageReader.getStatistics()));
+              mergeReader.addReader(getPointReader(firstPageReader), firstPageReader.version,
+                  orderUtils.getOverlapCheckTime(firstPageReader.getStatistics()));
               currentPageEndPointTime = updateEndPointTime(currentPageEndPointTime, firstPageReader);
               firstPageReader = null;
             }
@@ -631,8 +676,7 @@ public class SeriesReader {
               return hasCachedNextOverlappedPage;
             } else {
               VersionPageReader pageReader = seqPageReaders.remove(0);
-              mergeReader.addReader(pageReader.getAllSatisfiedPageData(orderUtils.getAscending())
-                      .getBatchDataIterator(), pageReader.version,
+              mergeReader.addReader(getPointReader(pageReader), pageReader.version,
                   orderUtils.getOverlapCheckTime(pageReader.getStatistics()));
               currentPageEndPointTime = updateEndPointTime(currentPageEndPointTime, pageReader);
             }
@@ -731,12 +775,33 @@ public class SeriesReader {
   }
 
   private void putPageReaderToMergeReader(VersionPageReader pageReader) throws IOException {
-    mergeReader.addReader(
-        pageReader.getAllSatisfiedPageData(orderUtils.getAscending()).getBatchDataIterator(),
-        pageReader.version,
+    mergeReader.addReader(getPointReader(pageReader), pageReader.version,
         orderUtils.getOverlapCheckTime(pageReader.getStatistics()));
   }
 
+  /**
+   * The points of a page put into mergeReader are accounted in the memory of the query until
+   * mergeReader closes the reader of the page. If the memory for reading is exhausted, the points
+   * are written into a temporary file by the external sort engine and read back while merging.
+   */
+  private IPointReader getPointReader(VersionPageReader pageReader) throws IOException {
+    BatchData batchData = pageReader.getAllSatisfiedPageData(orderUtils.getAscending());
+    if (batchData.isEmpty()) {
+      return batchData.getBatchDataIterator();
+    }
+    QueryResourceManager queryResourceManager = QueryResourceManager.getInstance();
+    long memory = batchData.length() * QueryResourceManager.POINT_ESTIMATED_SIZE;
+    if (!queryResourceManager.allocateMemory(context.getQueryId(), memory)
+        && !queryResourceManager.hasFreeMemory()
+        && IoTDBDescriptor.getInstance().getConfig().isEnableExternalSort()) {
+      queryResourceManager.releaseMemory(context.getQueryId(), memory);
+      return SimpleExternalSortEngine.getInstance()
+          .spill(context.getQueryId(), batchData.getBatchDataIterator());
+    }
+    return new MemoryReleasingPointReader(batchData.getBatchDataIterator(), context.getQueryId(),
+        memory);
+  }
+
   private BatchData nextOverlappedPage() throws IOException {
     if (hasCachedNextOverlappedPage || hasNextOverlappedPage()) {
       hasCachedNextOverlappedPage = false;
@@ -871,6 +936,46 @@ public class SeriesReader {
     return timeFilter;
   }
 
+  /**
+   * puts back the memory of the points of a page to the query when it is closed.
+   */
+  private static class MemoryReleasingPointReader implements IPointReader {
+
+    private final IPointReader reader;
+    private final long queryId;
+    private long memory;
+
+    MemoryReleasingPointReader(IPointReader reader, long queryId, long memory) {
+      this.reader = reader;
+      this.queryId = queryId;
+      this.memory = memory;
+    }
+
+    @Override
+    public boolean hasNextTimeValuePair() throws IOException {
+      return reader.hasNextTimeValuePair();
+    }
+
+    @Override
+    public TimeValuePair nextTimeValuePair() throws IOException {
+      return reader.nextTimeValuePair();
+    }
+
+    @Override
+    public TimeValuePair currentTimeValuePair() throws IOException {
+      return reader.currentTimeValuePair();
+    }
+
+    @Override
+    public void close() throws IOException {
+      reader.close();
+      if (memory != 0) {
+        QueryResourceManager.getInstance().releaseMemory(queryId, memory);
+        memory = 0;
+      }
+    }
+  }
+
   private class VersionPageReader {
 
     protected long version;
@@ -35,7 +35,8 @@ public class CachedPriorityMergeReader extends PriorityMergeReader {
   private int cacheLimit = 0;
   private int cacheIdx = 0;
 
-  private Long lastTimestamp = null;
+  private boolean hasLastTimestamp = false;
+  private long lastTimestamp;
 
   public CachedPriorityMergeReader(TSDataType dataType) {
     for (int i = 0; i < CACHE_SIZE; i++) {
@@ -45,27 +46,22 @@ public class CachedPriorityMergeReader extends PriorityMergeReader {
 
   @Override
   public boolean hasNextTimeValuePair() {
-    return cacheIdx < cacheLimit || !heap.isEmpty();
+    return cacheIdx < cacheLimit || super.hasNextTimeValuePair();
   }
 
   private void fetch() throws IOException {
     cacheLimit = 0;
     cacheIdx = 0;
-    while (!heap.isEmpty() && cacheLimit < CACHE_SIZE) {
-      Element top = heap.peek();
-      if (lastTimestamp == null || top.currTime() != lastTimestamp) {
+    Element top;
+    while ((top = peekElement()) != null && cacheLimit < CACHE_SIZE) {
+      if (!hasLastTimestamp || top.currTime() != lastTimestamp) {
         TimeValuePairUtils.setTimeValuePair(top.timeValuePair, timeValuePairCache[cacheLimit++]);
         lastTimestamp = top.currTime();
+        hasLastTimestamp = true;
       }
       // remove duplicates
-      while (heap.peek() != null && heap.peek().currTime() == lastTimestamp) {
-        top = heap.poll();
-        if (top.hasNext()) {
-          top.next();
-          heap.add(top);
-        } else {
-          top.close();
-        }
+      while ((top = peekElement()) != null && top.currTime() == lastTimestamp) {
+        advanceTopElement();
       }
     }
   }
@@ -19,38 +19,52 @@
 package org.apache.iotdb.db.query.reader.universal;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
-import java.util.PriorityQueue;
 import org.apache.iotdb.tsfile.read.TimeValuePair;
 import org.apache.iotdb.tsfile.read.reader.IPointReader;
 
 /**
  * This class implements {@link IPointReader} for data sources with different priorities.
+ * <p>
+ * The sources are merged by a winner tree: the element with the smallest (or largest in
+ * DescPriorityMergeReader) current time wins, and the higher priority wins if the times are equal.
+ * Replacing the winner or adding a reader during the merge replays only the matches on the path
+ * of its leaf, which costs log(n) comparisons of primitive times.
  */
 public class PriorityMergeReader implements IPointReader {
 
+  private static final int INITIAL_CAPACITY = 8;
+
   // max time of all added readers in PriorityMergeReader
   // or min time of all added readers in DescPriorityMergeReader
   protected long currentReadStopTime;
 
-  protected PriorityQueue<Element> heap;
+  private final boolean ascending;
+
+  // leaves of the tree, a leaf is set to null when its reader is exhausted
+  private Element[] elements = new Element[INITIAL_CAPACITY];
+  // number of used leaves, including the exhausted ones
+  private int elementNum = 0;
+  // number of leaves whose reader is not exhausted
+  private int activeElementNum = 0;
+  // winners[n] is the leaf which wins the match at node n, the root is node 1 and the leaves are
+  // nodes [elements.length, 2 * elements.length)
+  private int[] winners = new int[INITIAL_CAPACITY * 2];
 
   public PriorityMergeReader() {
-    heap = new PriorityQueue<>((o1, o2) -> {
-      int timeCompare = Long.compare(o1.timeValuePair.getTimestamp(),
-          o2.timeValuePair.getTimestamp());
-      return timeCompare != 0 ? timeCompare : Long.compare(o2.priority, o1.priority);
-    });
+    this(true);
+  }
+
+  protected PriorityMergeReader(boolean ascending) {
+    this.ascending = ascending;
+    rebuild();
   }
 
   // only used in external sort, need to refactor later
   public PriorityMergeReader(List<IPointReader> prioritySeriesReaders, int startPriority)
       throws IOException {
-    heap = new PriorityQueue<>((o1, o2) -> {
-      int timeCompare = Long.compare(o1.timeValuePair.getTimestamp(),
-          o2.timeValuePair.getTimestamp());
-      return timeCompare != 0 ? timeCompare : Long.compare(o2.priority, o1.priority);
-    });
+    this(true);
     for (IPointReader reader : prioritySeriesReaders) {
       addReader(reader, startPriority++);
     }
@@ -58,7 +72,7 @@ public class PriorityMergeReader implements IPointReader {
 
   public void addReader(IPointReader reader, long priority) throws IOException {
     if (reader.hasNextTimeValuePair()) {
-      heap.add(new Element(reader, reader.nextTimeValuePair(), priority));
+      addElement(new Element(reader, reader.nextTimeValuePair(), priority));
     } else {
       reader.close();
     }
@@ -66,8 +80,9 @@ public class PriorityMergeReader implements IPointReader {
 
   public void addReader(IPointReader reader, long priority, long endTime) throws IOException {
     if (reader.hasNextTimeValuePair()) {
-      heap.add(new Element(reader, reader.nextTimeValuePair(), priority));
-      currentReadStopTime = Math.max(currentReadStopTime, endTime);
+      addElement(new Element(reader, reader.nextTimeValuePair(), priority));
+      currentReadStopTime = ascending ? Math.max(currentReadStopTime, endTime)
+          : Math.min(currentReadStopTime, endTime);
     } else {
       reader.close();
     }
@@ -79,37 +94,27 @@ public class PriorityMergeReader implements IPointReader {
 
   @Override
   public boolean hasNextTimeValuePair() {
-    return !heap.isEmpty();
+    return activeElementNum > 0;
   }
 
   @Override
   public TimeValuePair nextTimeValuePair() throws IOException {
-    Element top = heap.poll();
+    Element top = peekElement();
     TimeValuePair ret = top.timeValuePair;
-    TimeValuePair topNext = null;
+    long topTime = top.currTime();
+    long topNextTime = Long.MAX_VALUE;
     if (top.hasNext()) {
       top.next();
-      topNext = top.currPair();
-    }
-    long topNextTime = topNext == null ? Long.MAX_VALUE : topNext.getTimestamp();
-    updateHeap(ret.getTimestamp(), topNextTime);
-    if (topNext != null) {
-      top.timeValuePair = topNext;
-      heap.add(top);
+      topNextTime = top.currTime();
+      replaceWinner();
+    } else {
+      removeWinner();
     }
-    return ret;
-  }
-
-  @Override
-  public TimeValuePair currentTimeValuePair() throws IOException {
-    return heap.peek().timeValuePair;
-  }
-
-  private void updateHeap(long topTime, long topNextTime) throws IOException {
-    while (!heap.isEmpty() && heap.peek().currTime() == topTime) {
-      Element e = heap.poll();
+    // the top is now behind the elements whose current time is topTime, skip them
+    Element e;
+    while ((e = peekElement()) != null && e.currTime() == topTime) {
       if (!e.hasNext()) {
-        e.reader.close();
+        removeWinner();
         continue;
       }
 
@@ -118,22 +123,143 @@ public class PriorityMergeReader implements IPointReader {
         // if the next value of the peek will be overwritten by the next of the top, skip it
         if (e.hasNext()) {
           e.next();
-          heap.add(e);
+          replaceWinner();
         } else {
           // the chunk is end
-          e.close();
+          removeWinner();
         }
       } else {
-        heap.add(e);
+        replaceWinner();
       }
     }
+    return ret;
+  }
+
+  @Override
+  public TimeValuePair currentTimeValuePair() throws IOException {
+    return peekElement().timeValuePair;
   }
 
   @Override
   public void close() throws IOException {
-    while (!heap.isEmpty()) {
-      Element e = heap.poll();
-      e.close();
+    for (int i = 0; i < elementNum; i++) {
+      if (elements[i] != null) {
+        elements[i].close();
+        elements[i] = null;
+      }
+    }
+    elementNum = 0;
+    activeElementNum = 0;
+    rebuild();
+  }
+
+  protected void addElement(Element element) {
+    if (elementNum == elements.length) {
+      // the leaves are moved, so the tree is rebuilt, which is amortized by the doubled capacity
+      compact();
+      if (elementNum * 2 > elements.length) {
+        elements = Arrays.copyOf(elements, elements.length * 2);
+        winners = new int[elements.length * 2];
+      }
+      elements[elementNum++] = element;
+      activeElementNum++;
+      rebuild();
+      return;
+    }
+    elements[elementNum] = element;
+    activeElementNum++;
+    replay(elementNum++);
+  }
+
+  /**
+   * @return the element with the smallest (or largest in DescPriorityMergeReader) current time and
+   * the highest priority, or null if all readers are exhausted
+   */
+  protected Element peekElement() {
+    if (activeElementNum == 0) {
+      return null;
+    }
+    return elements[winners[1]];
+  }
+
+  /**
+   * Move the top element to its next point, or remove it if its reader is exhausted.
+   */
+  protected void advanceTopElement() throws IOException {
+    Element top = peekElement();
+    if (top.hasNext()) {
+      top.next();
+      replaceWinner();
+    } else {
+      removeWinner();
+    }
+  }
+
+  /**
+   * Replay the matches on the path of the winner after its current time is changed.
+   */
+  private void replaceWinner() {
+    replay(winners[1]);
+  }
+
+  private void removeWinner() throws IOException {
+    int winner = winners[1];
+    elements[winner].close();
+    elements[winner] = null;
+    activeElementNum--;
+    replay(winner);
+  }
+
+  /**
+   * Replay the matches on the path from a leaf to the root after the leaf is changed.
+   */
+  private void replay(int leaf) {
+    for (int node = (leaf + elements.length) >> 1; node > 0; node >>= 1) {
+      int left = winners[node * 2];
+      int right = winners[node * 2 + 1];
+      winners[node] = beats(right, left) ? right : left;
+    }
+  }
+
+  /**
+   * @return true if the element at leaf a wins the element at leaf b, an exhausted or unused leaf
+   * never wins
+   */
+  private boolean beats(int a, int b) {
+    Element ea = elements[a];
+    Element eb = elements[b];
+    if (ea == null || eb == null) {
+      return eb == null && ea != null;
+    }
+    if (ea.currTime() != eb.currTime()) {
+      return ascending == (ea.currTime() < eb.currTime());
+    }
+    return ea.priority > eb.priority;
+  }
+
+  /**
+   * Move all active elements to the front.
+   */
+  private void compact() {
+    int newElementNum = 0;
+    for (int i = 0; i < elementNum; i++) {
+      if (elements[i] != null) {
+        elements[newElementNum++] = elements[i];
+      }
+    }
+    Arrays.fill(elements, newElementNum, elementNum, null);
+    elementNum = newElementNum;
+  }
+
+  private void rebuild() {
+    int leafNum = elements.length;
+    for (int i = 0; i < leafNum; i++) {
+      winners[leafNum + i] = i;
+    }
+    for (int node = leafNum - 1; node > 0; node--) {
+      int left = winners[node * 2];
+      int right = winners[node * 2 + 1];
+      winners[node] = beats(right, left) ? right : left;
     }
   }
 
@@ -141,16 +267,18 @@ public class PriorityMergeReader implements IPointReader {
 
     IPointReader reader;
     TimeValuePair timeValuePair;
+    long time;
     long priority;
 
     Element(IPointReader reader, TimeValuePair timeValuePair, long priority) {
       this.reader = reader;
       this.timeValuePair = timeValuePair;
+      this.time = timeValuePair.getTimestamp();
       this.priority = priority;
     }
 
     long currTime() {
-      return timeValuePair.getTimestamp();
+      return time;
     }
 
     TimeValuePair currPair() {
@@ -163,10 +291,11 @@ public class PriorityMergeReader implements IPointReader {
 
     void next() throws IOException {
       timeValuePair = reader.nextTimeValuePair();
+      time = timeValuePair.getTimestamp();
     }
 
     void close() throws IOException {
       reader.close();
     }
   }
-}
\ No newline at end of file
+}
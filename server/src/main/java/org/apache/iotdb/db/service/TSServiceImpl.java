@@ -20,6 +20,7 @@ package org.apache.iotdb.db.service;
 
 import static org.apache.iotdb.db.qp.physical.sys.ShowPlan.ShowContentType.TIMESERIES;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.sql.SQLException;
@@ -33,7 +34,9 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -82,6 +85,7 @@ import org.apache.iotdb.db.qp.physical.sys.CreateMultiTimeSeriesPlan;
 import org.apache.iotdb.db.qp.physical.sys.CreateTimeSeriesPlan;
 import org.apache.iotdb.db.qp.physical.sys.DeleteStorageGroupPlan;
 import org.apache.iotdb.db.qp.physical.sys.DeleteTimeSeriesPlan;
+import org.apache.iotdb.db.qp.physical.sys.OperateFilePlan;
 import org.apache.iotdb.db.qp.physical.sys.SetStorageGroupPlan;
 import org.apache.iotdb.db.qp.physical.sys.ShowPlan;
 import org.apache.iotdb.db.qp.physical.sys.ShowTimeSeriesPlan;
@@ -91,6 +95,7 @@ import org.apache.iotdb.db.query.control.TracingManager;
 import org.apache.iotdb.db.query.dataset.AlignByDeviceDataSet;
 import org.apache.iotdb.db.query.dataset.NonAlignEngineDataSet;
 import org.apache.iotdb.db.query.dataset.RawQueryDataSetWithoutValueFilter;
+import org.apache.iotdb.db.query.pool.ResultReadAheadPoolManager;
 import org.apache.iotdb.db.tools.watermark.GroupedLSBWatermarkEncoder;
 import org.apache.iotdb.db.tools.watermark.WatermarkEncoder;
 import org.apache.iotdb.db.utils.FilePathUtils;
@@ -99,12 +104,14 @@ import org.apache.iotdb.db.utils.SchemaUtils;
 import org.apache.iotdb.rpc.RpcUtils;
 import org.apache.iotdb.rpc.TSStatusCode;
 import org.apache.iotdb.service.rpc.thrift.ServerProperties;
+import org.apache.iotdb.service.rpc.thrift.TSAbortLoadFileReq;
 import org.apache.iotdb.service.rpc.thrift.TSCancelOperationReq;
 import org.apache.iotdb.service.rpc.thrift.TSCloseOperationReq;
 import org.apache.iotdb.service.rpc.thrift.TSCloseSessionReq;
 import org.apache.iotdb.service.rpc.thrift.TSCreateMultiTimeseriesReq;
 import org.apache.iotdb.service.rpc.thrift.TSCreateTimeseriesReq;
 import org.apache.iotdb.service.rpc.thrift.TSDeleteDataReq;
+import org.apache.iotdb.service.rpc.thrift.TSEndLoadFileReq;
 import org.apache.iotdb.service.rpc.thrift.TSExecuteBatchStatementReq;
 import org.apache.iotdb.service.rpc.thrift.TSExecuteStatementReq;
 import org.apache.iotdb.service.rpc.thrift.TSExecuteStatementResp;
@@ -120,6 +127,7 @@ import org.apache.iotdb.service.rpc.thrift.TSInsertStringRecordReq;
 import org.apache.iotdb.service.rpc.thrift.TSInsertStringRecordsReq;
 import org.apache.iotdb.service.rpc.thrift.TSInsertTabletReq;
 import org.apache.iotdb.service.rpc.thrift.TSInsertTabletsReq;
+import org.apache.iotdb.service.rpc.thrift.TSLoadFileDataReq;
 import org.apache.iotdb.service.rpc.thrift.TSOpenSessionReq;
 import org.apache.iotdb.service.rpc.thrift.TSOpenSessionResp;
 import org.apache.iotdb.service.rpc.thrift.TSProtocolVersion;
@@ -127,6 +135,7 @@ import org.apache.iotdb.service.rpc.thrift.TSQueryDataSet;
 import org.apache.iotdb.service.rpc.thrift.TSQueryNonAlignDataSet;
 import org.apache.iotdb.service.rpc.thrift.TSRawDataQueryReq;
 import org.apache.iotdb.service.rpc.thrift.TSSetTimeZoneReq;
+import org.apache.iotdb.service.rpc.thrift.TSStartLoadFileReq;
 import org.apache.iotdb.service.rpc.thrift.TSStatus;
 import org.apache.iotdb.tsfile.exception.filter.QueryFilterOptimizationException;
 import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
@@ -182,6 +191,11 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
   // (queryId -> QueryDataSet)
   private Map<Long, QueryDataSet> queryId2DataSet = new ConcurrentHashMap<>();
 
+  // (queryId -> the next result block being produced in the background)
+  private Map<Long, Future<TSQueryDataSet>> queryId2ReadAhead = new ConcurrentHashMap<>();
+
+  private TsFileUploadManager tsFileUploadManager = new TsFileUploadManager();
+
   private IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
 
   // When the client abnormally exits, we can still know who to disconnect
@@ -282,6 +296,7 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
     }
 
     sessionIdZoneIdMap.remove(sessionId);
+    tsFileUploadManager.releaseSession(sessionId);
     List<Exception> exceptions = new ArrayList<>();
     Set<Long> statementIds = sessionId2StatementId.getOrDefault(sessionId, Collections.emptySet());
     for (long statementId : statementIds) {
@@ -351,6 +366,8 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
    * release single operation resource
    */
   protected void releaseQueryResource(long queryId) throws StorageEngineException {
+    // the block being read ahead still uses the resources of the query
+    waitReadAhead(queryId);
     // remove the corresponding Physical Plan
     queryId2DataSet.remove(queryId);
     QueryResourceManager.getInstance().endQuery(queryId);
@@ -990,11 +1007,17 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
 
       QueryDataSet queryDataSet = queryId2DataSet.get(req.queryId);
       if (req.isAlign) {
-        TSQueryDataSet result =
-            fillRpcReturnData(req.fetchSize, queryDataSet, sessionIdUsernameMap.get(req.sessionId));
+        String userName = sessionIdUsernameMap.get(req.sessionId);
+        TSQueryDataSet result = getReadAheadResult(req.queryId);
+        if (result == null) {
+          result = fillRpcReturnData(req.fetchSize, queryDataSet, userName);
+        }
         boolean hasResultSet = result.bufferForTime().limit() != 0;
         if (!hasResultSet) {
           releaseQueryResource(req.queryId);
+        } else if (req.isSetReadAhead() && req.isReadAhead()) {
+          queryId2ReadAhead.put(req.queryId, ResultReadAheadPoolManager.getInstance()
+              .submit(() -> fillRpcReturnData(req.fetchSize, queryDataSet, userName)));
         }
         TSFetchResultsResp resp = RpcUtils.getTSFetchResultsResp(TSStatusCode.SUCCESS_STATUS);
         resp.setHasResultSet(hasResultSet);
@@ -1032,6 +1055,34 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
     }
   }
 
+  /**
+   * @return the block read ahead for the query, or null if no block is read ahead
+   */
+  private TSQueryDataSet getReadAheadResult(long queryId) throws IOException, InterruptedException {
+    Future<TSQueryDataSet> readAhead = queryId2ReadAhead.remove(queryId);
+    if (readAhead == null) {
+      return null;
+    }
+    try {
+      return readAhead.get();
+    } catch (ExecutionException e) {
+      throw new IOException("Cannot read ahead the results of query " + queryId, e.getCause());
+    }
+  }
+
+  /**
+   * wait for the block being read ahead for the query and discard it.
+   */
+  private void waitReadAhead(long queryId) {
+    try {
+      getReadAheadResult(queryId);
+    } catch (IOException e) {
+      logger.debug("Discard the failed read ahead of query {}", queryId, e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
   private TSQueryDataSet fillRpcReturnData(
       int fetchSize, QueryDataSet queryDataSet, String userName)
       throws TException, AuthException, IOException, InterruptedException {
@@ -1458,6 +1509,86 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
     return RpcUtils.getStatus(TSStatusCode.EXECUTE_STATEMENT_ERROR);
   }
 
+  @Override
+  public TSStatus startLoadFile(TSStartLoadFileReq req) {
+    if (!checkLogin(req.getSessionId())) {
+      logger.info(INFO_NOT_LOGIN, IoTDBConstant.GLOBAL_DB_NAME);
+      return RpcUtils.getStatus(TSStatusCode.NOT_LOGIN_ERROR);
+    }
+    TSStatus status = checkAuthority(new OperateFilePlan(new File(req.getFileName()),
+        OperatorType.LOAD_FILES), req.getSessionId());
+    if (status != null) {
+      return new TSStatus(status);
+    }
+    try {
+      tsFileUploadManager.start(req.getSessionId(), req.getFileName());
+      return RpcUtils.getStatus(TSStatusCode.SUCCESS_STATUS);
+    } catch (IOException e) {
+      logger.error("meet error when start to upload {}", req.getFileName(), e);
+      return RpcUtils.getStatus(TSStatusCode.LOAD_FILE_ERROR, e.getMessage());
+    }
+  }
+
+  @Override
+  public TSStatus loadFileData(TSLoadFileDataReq req) {
+    if (!checkLogin(req.getSessionId())) {
+      logger.info(INFO_NOT_LOGIN, IoTDBConstant.GLOBAL_DB_NAME);
+      return RpcUtils.getStatus(TSStatusCode.NOT_LOGIN_ERROR);
+    }
+    try {
+      tsFileUploadManager.write(req.getSessionId(), req.getFileName(), req.isIsResource(),
+          req.getOffset(), req.bufferForData());
+      return RpcUtils.getStatus(TSStatusCode.SUCCESS_STATUS);
+    } catch (IOException e) {
+      logger.error("meet error when upload {}", req.getFileName(), e);
+      tsFileUploadManager.remove(req.getSessionId(), req.getFileName());
+      return RpcUtils.getStatus(TSStatusCode.LOAD_FILE_ERROR, e.getMessage());
+    }
+  }
+
+  /**
+   * check the uploaded TsFile and load it as the "load" statement does, the uploaded files are
+   * moved into the data folder if the file is loaded, otherwise they are deleted.
+   */
+  @Override
+  public TSStatus endLoadFile(TSEndLoadFileReq req) {
+    if (!checkLogin(req.getSessionId())) {
+      logger.info(INFO_NOT_LOGIN, IoTDBConstant.GLOBAL_DB_NAME);
+      return RpcUtils.getStatus(TSStatusCode.NOT_LOGIN_ERROR);
+    }
+    try {
+      File tsFile = tsFileUploadManager.end(req.getSessionId(), req.getFileName(), req.getMd5(),
+          req.isSetResourceMd5() ? req.getResourceMd5() : null);
+      OperateFilePlan plan = new OperateFilePlan(tsFile, OperatorType.LOAD_FILES,
+          !req.isSetAutoCreateSchema() || req.isAutoCreateSchema(),
+          req.isSetSgLevel() ? req.getSgLevel()
+              : IoTDBDescriptor.getInstance().getConfig().getDefaultStorageGroupLevel());
+      TSStatus status = checkAuthority(plan, req.getSessionId());
+      if (status != null) {
+        return new TSStatus(status);
+      }
+      return new TSStatus(executeNonQueryPlan(plan));
+    } catch (IOException e) {
+      logger.error("meet error when end the upload of {}", req.getFileName(), e);
+      return RpcUtils.getStatus(TSStatusCode.LOAD_FILE_ERROR, e.getMessage());
+    } finally {
+      tsFileUploadManager.remove(req.getSessionId(), req.getFileName());
+    }
+  }
+
+  /**
+   * discard an upload that the client fails to finish.
+   */
+  @Override
+  public TSStatus abortLoadFile(TSAbortLoadFileReq req) {
+    if (!checkLogin(req.getSessionId())) {
+      logger.info(INFO_NOT_LOGIN, IoTDBConstant.GLOBAL_DB_NAME);
+      return RpcUtils.getStatus(TSStatusCode.NOT_LOGIN_ERROR);
+    }
+    tsFileUploadManager.remove(req.getSessionId(), req.getFileName());
+    return RpcUtils.getStatus(TSStatusCode.SUCCESS_STATUS);
+  }
+
   @Override
   public TSStatus insertTablet(TSInsertTabletReq req) {
     long t1 = System.currentTimeMillis();
@@ -1473,6 +1604,13 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
       insertTabletPlan.setColumns(
           QueryDataSetUtils.readValuesFromBuffer(
               req.values, req.types, req.measurements.size(), req.size));
+      if (req.isSetBitmaps()) {
+        insertTabletPlan.setBitMaps(QueryDataSetUtils
+            .readBitMapsFromBuffer(req.bitmaps, req.measurements.size(), req.size));
+      }
+      if (req.isSetIsAligned()) {
+        insertTabletPlan.setAligned(req.isIsAligned());
+      }
       insertTabletPlan.setRowCount(req.size);
       insertTabletPlan.setDataTypes(req.types);
 
@@ -1512,6 +1650,10 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
             QueryDataSetUtils.readValuesFromBuffer(
                 req.valuesList.get(i), req.typesList.get(i), req.measurementsList.get(i).size(),
                 req.sizeList.get(i)));
+        if (req.isSetBitmapsList() && req.bitmapsList.get(i).hasRemaining()) {
+          insertTabletPlan.setBitMaps(QueryDataSetUtils.readBitMapsFromBuffer(
+              req.bitmapsList.get(i), req.measurementsList.get(i).size(), req.sizeList.get(i)));
+        }
         insertTabletPlan.setRowCount(req.sizeList.get(i));
         insertTabletPlan.setDataTypes(req.typesList.get(i));
 
@@ -0,0 +1,267 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.service;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.io.FileUtils;
+import org.apache.iotdb.db.conf.IoTDBConstant;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
+import org.apache.iotdb.tsfile.common.constant.TsFileConstant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Receives the TsFiles uploaded by clients in chunks. A TsFile, and its .resource file if there
+ * is one, are written into the upload folder of the session, and when the upload ends, they are
+ * checked by MD5 and loaded as the "load" statement does. The uploaded files are named like the
+ * TsFiles of IoTDB whatever their names on the client are, as the version of a loaded file is
+ * parsed from its name.
+ */
+public class TsFileUploadManager {
+
+  private static final Logger logger = LoggerFactory.getLogger(TsFileUploadManager.class);
+  private static final String MD5 = "MD5";
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final File uploadDir;
+  private final AtomicLong version = new AtomicLong();
+  /**
+   * sessionId -> (name of the file on the client -> upload)
+   */
+  private final Map<Long, Map<String, Upload>> sessionUploads = new ConcurrentHashMap<>();
+
+  public TsFileUploadManager() {
+    this(new File(IoTDBDescriptor.getInstance().getConfig().getSystemDir(),
+        IoTDBConstant.UPLOAD_FOLDER_NAME));
+  }
+
+  TsFileUploadManager(File uploadDir) {
+    this.uploadDir = uploadDir;
+    deleteStaleUploads();
+  }
+
+  /**
+   * the uploads left by a crash or a restart can never be ended, as their sessions are gone.
+   */
+  private void deleteStaleUploads() {
+    if (!uploadDir.exists()) {
+      return;
+    }
+    try {
+      FileUtils.deleteDirectory(uploadDir);
+    } catch (IOException e) {
+      logger.warn("Cannot delete the stale uploads in {}", uploadDir.getAbsolutePath(), e);
+    }
+  }
+
+  private static class Upload {
+
+    private final File tsFile;
+    private final File resourceFile;
+    private FileChannel tsFileChannel;
+    private FileChannel resourceChannel;
+
+    private Upload(File tsFile) {
+      this.tsFile = tsFile;
+      this.resourceFile = new File(tsFile.getPath() + TsFileResource.RESOURCE_SUFFIX);
+    }
+
+    private synchronized void write(boolean isResource, long offset, ByteBuffer data)
+        throws IOException {
+      if (isResource) {
+        if (resourceChannel == null) {
+          resourceChannel = FileChannel.open(resourceFile.toPath(), StandardOpenOption.CREATE,
+              StandardOpenOption.WRITE);
+        }
+        write(resourceChannel, offset, data);
+      } else {
+        if (tsFileChannel == null) {
+          tsFileChannel = FileChannel.open(tsFile.toPath(), StandardOpenOption.CREATE,
+              StandardOpenOption.WRITE);
+        }
+        write(tsFileChannel, offset, data);
+      }
+    }
+
+    private static void write(FileChannel channel, long offset, ByteBuffer data)
+        throws IOException {
+      long position = offset;
+      while (data.hasRemaining()) {
+        position += channel.write(data, position);
+      }
+    }
+
+    private synchronized void closeChannels() throws IOException {
+      try {
+        if (tsFileChannel != null) {
+          tsFileChannel.force(true);
+          tsFileChannel.close();
+          tsFileChannel = null;
+        }
+      } finally {
+        if (resourceChannel != null) {
+          resourceChannel.close();
+          resourceChannel = null;
+        }
+      }
+    }
+  }
+
+  /**
+   * start to upload a file, an unfinished upload of the same file in the session is discarded.
+   */
+  public void start(long sessionId, String fileName) throws IOException {
+    File sessionDir = new File(uploadDir, String.valueOf(sessionId));
+    if (!sessionDir.exists() && !sessionDir.mkdirs()) {
+      throw new IOException("Cannot create the upload folder " + sessionDir.getAbsolutePath());
+    }
+    File tsFile = new File(sessionDir, System.currentTimeMillis()
+        + IoTDBConstant.FILE_NAME_SEPARATOR + version.incrementAndGet()
+        + IoTDBConstant.FILE_NAME_SEPARATOR + 0 + TsFileConstant.TSFILE_SUFFIX);
+    Upload previous = sessionUploads.computeIfAbsent(sessionId, k -> new ConcurrentHashMap<>())
+        .put(fileName, new Upload(tsFile));
+    if (previous != null) {
+      discard(previous);
+    }
+  }
+
+  /**
+   * write a chunk of the file or of its .resource file, the chunks may arrive in any order.
+   */
+  public void write(long sessionId, String fileName, boolean isResource, long offset,
+      ByteBuffer data) throws IOException {
+    getUpload(sessionId, fileName).write(isResource, offset, data);
+  }
+
+  /**
+   * finish an upload and check the files by MD5. If the check fails, the upload is discarded.
+   *
+   * @param resourceMd5 null if the .resource file is not uploaded
+   * @return the uploaded TsFile, which should be removed by remove() after it is loaded
+   */
+  public File end(long sessionId, String fileName, String md5, String resourceMd5)
+      throws IOException {
+    Upload upload = getUpload(sessionId, fileName);
+    try {
+      upload.closeChannels();
+      checkMd5(upload.tsFile, md5);
+      if (resourceMd5 != null) {
+        checkMd5(upload.resourceFile, resourceMd5);
+      } else if (upload.resourceFile.exists()) {
+        throw new IOException("The MD5 of the .resource file of " + fileName + " is not given");
+      }
+    } catch (IOException e) {
+      remove(sessionId, fileName);
+      throw e;
+    }
+    return upload.tsFile;
+  }
+
+  /**
+   * discard an upload and delete what is left of its files.
+   */
+  public void remove(long sessionId, String fileName) {
+    Map<String, Upload> uploads = sessionUploads.get(sessionId);
+    Upload upload = uploads == null ? null : uploads.remove(fileName);
+    if (upload != null) {
+      discard(upload);
+    }
+  }
+
+  /**
+   * discard all the uploads of a closed session.
+   */
+  public void releaseSession(long sessionId) {
+    Map<String, Upload> uploads = sessionUploads.remove(sessionId);
+    if (uploads == null) {
+      return;
+    }
+    for (Upload upload : uploads.values()) {
+      discard(upload);
+    }
+    File sessionDir = new File(uploadDir, String.valueOf(sessionId));
+    String[] files = sessionDir.list();
+    if (files != null && files.length == 0 && !sessionDir.delete()) {
+      logger.warn("Cannot delete the upload folder {}", sessionDir.getAbsolutePath());
+    }
+  }
+
+  private Upload getUpload(long sessionId, String fileName) throws IOException {
+    Map<String, Upload> uploads = sessionUploads.get(sessionId);
+    Upload upload = uploads == null ? null : uploads.get(fileName);
+    if (upload == null) {
+      throw new IOException("The upload of " + fileName + " is not started");
+    }
+    return upload;
+  }
+
+  private void discard(Upload upload) {
+    try {
+      upload.closeChannels();
+    } catch (IOException e) {
+      logger.warn("Cannot close the uploaded file {}", upload.tsFile.getAbsolutePath(), e);
+    }
+    deleteIfExists(upload.tsFile);
+    deleteIfExists(upload.resourceFile);
+  }
+
+  private void deleteIfExists(File file) {
+    if (file.exists() && !file.delete()) {
+      logger.warn("Cannot delete the uploaded file {}", file.getAbsolutePath());
+    }
+  }
+
+  private static void checkMd5(File file, String expectedMd5) throws IOException {
+    String md5 = md5(file);
+    if (!md5.equals(expectedMd5)) {
+      throw new IOException(String.format("The MD5 of the uploaded file %s is %s rather than %s",
+          file.getName(), md5, expectedMd5));
+    }
+  }
+
+  static String md5(File file) throws IOException {
+    MessageDigest messageDigest;
+    try {
+      messageDigest = MessageDigest.getInstance(MD5);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
+    byte[] buffer = new byte[BUFFER_SIZE];
+    try (InputStream inputStream = new FileInputStream(file)) {
+      int length;
+      while ((length = inputStream.read(buffer)) != -1) {
+        messageDigest.update(buffer, 0, length);
+      }
+    }
+    return new BigInteger(1, messageDigest.digest()).toString(16);
+  }
+}
@@ -70,6 +70,17 @@ public class SyncConstant {
 
   public static final String RECEIVER_DATA_FOLDER_NAME = "data";
 
+  /**
+   * The folder of the files being received in chunks, which is kept by the recovery, so that the
+   * chunks received before are not sent again.
+   */
+  public static final String RECEIVER_PARTIAL_FOLDER_NAME = "partial";
+
+  /**
+   * The msg of initSyncFile if the chunks of the file received before are kept.
+   */
+  public static final String FILE_RESUMED = "resumed";
+
   public static final String LOAD_LOG_NAME = "load.log";
 
   public static final String DEVICE_OWNER_FILE_NAME = "device_owner";
@@ -21,6 +21,7 @@ package org.apache.iotdb.db.sync.conf;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
 
 public class SyncSenderConfig {
 
@@ -41,6 +42,26 @@ public class SyncSenderConfig {
    */
   private int maxNumOfSyncFileRetry = 5;
 
+  /**
+   * The number of connections through which the chunks of tsfiles are sent concurrently.
+   */
+  private int syncConnectionNum = 4;
+
+  /**
+   * The size of a chunk of a tsfile, which is the unit of the concurrent transfer and resumption.
+   */
+  private int syncChunkSizeInByte = 4 * 1024 * 1024;
+
+  /**
+   * The compressor of the chunks on the wire.
+   */
+  private CompressionType syncCompressor = CompressionType.UNCOMPRESSED;
+
+  /**
+   * The max throughput of sending the chunks, 0 means no limit.
+   */
+  private double syncMaxThroughputMbPerSec = 0;
+
   /**
    * Storage groups which participate in sync process
    */
@@ -127,4 +148,36 @@ public class SyncSenderConfig {
   public void setMaxNumOfSyncFileRetry(int maxNumOfSyncFileRetry) {
     this.maxNumOfSyncFileRetry = maxNumOfSyncFileRetry;
   }
+
+  public int getSyncConnectionNum() {
+    return syncConnectionNum;
+  }
+
+  public void setSyncConnectionNum(int syncConnectionNum) {
+    this.syncConnectionNum = syncConnectionNum;
+  }
+
+  public int getSyncChunkSizeInByte() {
+    return syncChunkSizeInByte;
+  }
+
+  public void setSyncChunkSizeInByte(int syncChunkSizeInByte) {
+    this.syncChunkSizeInByte = syncChunkSizeInByte;
+  }
+
+  public CompressionType getSyncCompressor() {
+    return syncCompressor;
+  }
+
+  public void setSyncCompressor(CompressionType syncCompressor) {
+    this.syncCompressor = syncCompressor;
+  }
+
+  public double getSyncMaxThroughputMbPerSec() {
+    return syncMaxThroughputMbPerSec;
+  }
+
+  public void setSyncMaxThroughputMbPerSec(double syncMaxThroughputMbPerSec) {
+    this.syncMaxThroughputMbPerSec = syncMaxThroughputMbPerSec;
+  }
 }
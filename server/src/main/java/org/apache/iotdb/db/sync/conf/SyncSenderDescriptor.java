@@ -28,6 +28,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
 import org.apache.iotdb.db.conf.IoTDBConstant;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -101,6 +102,16 @@ public class SyncSenderDescriptor {
       conf.setMaxNumOfSyncFileRetry(Integer
           .parseInt(properties.getProperty("max_number_of_sync_file_retry",
               Integer.toString(conf.getMaxNumOfSyncFileRetry()))));
+      conf.setSyncConnectionNum(Integer.parseInt(properties
+          .getProperty("sync_connection_num", Integer.toString(conf.getSyncConnectionNum()))));
+      conf.setSyncChunkSizeInByte(Integer.parseInt(properties
+          .getProperty("sync_chunk_size_in_byte",
+              Integer.toString(conf.getSyncChunkSizeInByte()))));
+      conf.setSyncCompressor(CompressionType.valueOf(properties
+          .getProperty("sync_compressor", conf.getSyncCompressor().toString()).trim()));
+      conf.setSyncMaxThroughputMbPerSec(Double.parseDouble(properties
+          .getProperty("sync_max_throughput_mb_per_sec",
+              Double.toString(conf.getSyncMaxThroughputMbPerSec()))));
     } catch (IOException e) {
       logger.warn("Cannot load sync config file, use default sync configuration.", e);
     } catch (Exception e) {
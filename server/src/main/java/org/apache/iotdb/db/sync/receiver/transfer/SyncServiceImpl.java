@@ -22,11 +22,18 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.iotdb.db.concurrent.ThreadName;
 import org.apache.iotdb.db.conf.IoTDBConfig;
 import org.apache.iotdb.db.conf.IoTDBConstant;
@@ -49,6 +56,8 @@ import org.apache.iotdb.db.utils.SyncUtils;
 import org.apache.iotdb.service.sync.thrift.ConfirmInfo;
 import org.apache.iotdb.service.sync.thrift.SyncService;
 import org.apache.iotdb.service.sync.thrift.SyncStatus;
+import org.apache.iotdb.tsfile.compress.IUnCompressor;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
 import org.apache.thrift.TException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -73,13 +82,43 @@ public class SyncServiceImpl implements SyncService.Iface {
 
   private ThreadLocal<MessageDigest> messageDigest = new ThreadLocal<>();
 
+  /**
+   * The sync folders and sync logs of the senders whose sync processes are started, so that the
+   * connections attached to a sync process share them.
+   */
+  private Map<String, String> senderSyncFolderPaths = new ConcurrentHashMap<>();
+
+  private Map<String, SyncReceiverLogger> senderSyncLogs = new ConcurrentHashMap<>();
+
+  /**
+   * The partial files initialized in the sync processes of the senders, the other partial files of
+   * a sender are abandoned and they are deleted when its sync process ends.
+   */
+  private Map<String, Set<File>> senderPartialFiles = new ConcurrentHashMap<>();
+
   /**
    * Verify IP address of sender
    */
   @Override
   public SyncStatus check(ConfirmInfo info) {
-    String ipAddress = info.address, uuid = info.uuid;
     Thread.currentThread().setName(ThreadName.SYNC_SERVER.getName());
+    SyncStatus status = confirm(info);
+    if (status.code != SyncConstant.SUCCESS_CODE) {
+      return status;
+    }
+    if (checkRecovery()) {
+      logger.info("Start to sync with sender {}", senderName.get());
+      return getSuccessResult();
+    } else {
+      return getErrorResult("Receiver is processing data from previous sync tasks");
+    }
+  }
+
+  /**
+   * Verify the sender and set the sender name of the connection.
+   */
+  private SyncStatus confirm(ConfirmInfo info) {
+    String ipAddress = info.address, uuid = info.uuid;
     if (!info.version.equals(IoTDBConstant.VERSION)) {
       return getErrorResult(String.format("Version mismatch: the sender <%s>, the receiver <%s>",
           info.version, IoTDBConstant.VERSION));
@@ -93,18 +132,34 @@ public class SyncServiceImpl implements SyncService.Iface {
     }
     if (SyncUtils.verifyIPSegment(config.getIpWhiteList(), ipAddress)) {
       senderName.set(ipAddress + SyncConstant.SYNC_DIR_NAME_SEPARATOR + uuid);
-      if (checkRecovery()) {
-        logger.info("Start to sync with sender {}", senderName.get());
-        return getSuccessResult();
-      } else {
-        return getErrorResult("Receiver is processing data from previous sync tasks");
-      }
+      return getSuccessResult();
     } else {
       return getErrorResult(
           "Sender IP is not in the white list of receiver IP and synchronization tasks are not allowed.");
     }
   }
 
+  /**
+   * Attach the connection to the sync process started by another connection of the sender, the
+   * recovery is not checked as the sync process is running.
+   */
+  @Override
+  public SyncStatus attach(ConfirmInfo info) {
+    Thread.currentThread().setName(ThreadName.SYNC_SERVER.getName());
+    SyncStatus status = confirm(info);
+    if (status.code != SyncConstant.SUCCESS_CODE) {
+      return status;
+    }
+    String folderPath = senderSyncFolderPaths.get(senderName.get());
+    if (folderPath == null) {
+      return getErrorResult(
+          String.format("The sync process of sender %s is not started", senderName.get()));
+    }
+    syncFolderPath.set(folderPath);
+    syncLog.set(senderSyncLogs.get(senderName.get()));
+    return getSuccessResult();
+  }
+
   private boolean checkRecovery() {
     try {
       if (currentFileWriter.get() != null && currentFileWriter.get().isOpen()) {
@@ -128,6 +183,9 @@ public class SyncServiceImpl implements SyncService.Iface {
       FileLoader.createFileLoader(senderName.get(), syncFolderPath.get());
       syncLog
           .set(new SyncReceiverLogger(new File(syncFolderPath.get(), SyncConstant.SYNC_LOG_NAME)));
+      senderSyncFolderPaths.put(senderName.get(), syncFolderPath.get());
+      senderSyncLogs.put(senderName.get(), syncLog.get());
+      senderPartialFiles.put(senderName.get(), ConcurrentHashMap.newKeySet());
       return getSuccessResult();
     } catch (DiskSpaceInsufficientException | IOException e) {
       logger.error("Can not receiver data from sender", e);
@@ -136,9 +194,18 @@ public class SyncServiceImpl implements SyncService.Iface {
   }
 
   /**
-   * Init file path.
+   * Init file path. The folder used by the sender before is preferred, so that the chunks received
+   * before in its partial folder can be resumed.
    */
   private void initPath() throws DiskSpaceInsufficientException {
+    for (String dataDir : config.getDataDirs()) {
+      String folderPath = FilePathUtils.regularizePath(dataDir) + SyncConstant.SYNC_RECEIVER
+          + File.separatorChar + senderName.get();
+      if (new File(folderPath).exists()) {
+        syncFolderPath.set(folderPath);
+        return;
+      }
+    }
     String dataDir = new File(DirectoryManager.getInstance().getNextFolderForSequenceFile())
         .getParentFile().getAbsolutePath();
     syncFolderPath
@@ -266,6 +333,165 @@ public class SyncServiceImpl implements SyncService.Iface {
     return new SyncStatus(SyncConstant.SUCCESS_CODE, md5OfReceiver);
   }
 
+  /**
+   * Prepare the partial file of a tsfile to be received in chunks. The partial file is kept if it
+   * has the same length, which means the chunks received before are resumed.
+   */
+  @Override
+  public SyncStatus initSyncFile(String storageGroupName, String fileName, long length) {
+    File partialFile = getPartialFile(storageGroupName, fileName);
+    Set<File> partialFiles = senderPartialFiles.get(senderName.get());
+    if (partialFiles != null) {
+      partialFiles.add(partialFile);
+    }
+    try {
+      if (partialFile.exists() && partialFile.length() == length) {
+        logger.info("Resume receiving file {}", partialFile);
+        return new SyncStatus(SyncConstant.SUCCESS_CODE, SyncConstant.FILE_RESUMED);
+      }
+      Files.deleteIfExists(partialFile.toPath());
+      if (!partialFile.getParentFile().exists()) {
+        partialFile.getParentFile().mkdirs();
+      }
+      try (RandomAccessFile raf = new RandomAccessFile(partialFile, "rw")) {
+        raf.setLength(length);
+      }
+    } catch (IOException e) {
+      logger.error("Can not init sync resource for file {}", partialFile, e);
+      return getErrorResult(
+          String.format("Can not init sync resource for file %s because %s", fileName,
+              e.getMessage()));
+    }
+    return getSuccessResult();
+  }
+
+  /**
+   * Write a chunk at its offset of the partial file, the chunks of a file may be written by
+   * several connections concurrently.
+   */
+  @Override
+  public SyncStatus syncFileChunk(String storageGroupName, String fileName, long offset,
+      ByteBuffer data, byte compressionType, String md5) {
+    File partialFile = getPartialFile(storageGroupName, fileName);
+    try {
+      byte[] bytes = new byte[data.remaining()];
+      data.get(bytes);
+      CompressionType type = CompressionType.deserialize(compressionType);
+      if (type != CompressionType.UNCOMPRESSED) {
+        bytes = IUnCompressor.getUnCompressor(type).uncompress(bytes);
+      }
+      MessageDigest md = MessageDigest.getInstance(SyncConstant.MESSAGE_DIGIT_NAME);
+      String md5OfReceiver = (new BigInteger(1, md.digest(bytes))).toString(16);
+      if (!md5OfReceiver.equals(md5)) {
+        return getErrorResult(String
+            .format("MD5 of the sender is differ from MD5 of the receiver of the chunk at %d of %s.",
+                offset, fileName));
+      }
+      try (FileChannel channel = FileChannel
+          .open(partialFile.toPath(), StandardOpenOption.WRITE)) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long position = offset;
+        while (buffer.hasRemaining()) {
+          position += channel.write(buffer, position);
+        }
+        // the sender never sends an acknowledged chunk again, so it must survive a crash
+        channel.force(false);
+      }
+    } catch (IOException | NoSuchAlgorithmException e) {
+      logger.error("Can not sync data for file {}", partialFile.getAbsoluteFile(), e);
+      return getErrorResult(String
+          .format("Can not sync data for file %s because %s", fileName, e.getMessage()));
+    }
+    return getSuccessResult();
+  }
+
+  /**
+   * Move the partial file, all of whose chunks are received, to the data folder, and load it if
+   * it is a tsfile. The .resource file of a tsfile must be ended before the tsfile. If the MD5 of
+   * the partial file differs from that of the sender, it is deleted and received again next time.
+   */
+  @Override
+  public SyncStatus endSyncFile(String storageGroupName, String fileName, String md5) {
+    File partialFile = getPartialFile(storageGroupName, fileName);
+    File file = new File(getSyncDataPath(), storageGroupName + File.separatorChar + fileName);
+    try {
+      if (!file.getParentFile().exists()) {
+        file.getParentFile().mkdirs();
+      }
+      try (FileChannel channel = FileChannel
+          .open(partialFile.toPath(), StandardOpenOption.WRITE)) {
+        channel.force(true);
+      }
+      String md5OfReceiver = SyncUtils.md5(partialFile);
+      if (!md5OfReceiver.equals(md5)) {
+        Files.deleteIfExists(partialFile.toPath());
+        return getErrorResult(String
+            .format("MD5 of the sender is differ from MD5 of the receiver of the file %s.",
+                fileName));
+      }
+      Files.move(partialFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      if (!fileName.endsWith(TsFileResource.RESOURCE_SUFFIX)) {
+        logger.info("Receiver has received {} successfully.", file);
+        FileLoaderManager.getInstance().checkAndUpdateDeviceOwner(
+            new TsFileResource(new File(file + TsFileResource.RESOURCE_SUFFIX)));
+        SyncReceiverLogger log = syncLog.get();
+        synchronized (log) {
+          log.startSyncTsFiles();
+          log.finishSyncTsfile(file);
+        }
+        FileLoaderManager.getInstance().getFileLoader(senderName.get()).addTsfile(file);
+      }
+    } catch (IOException | NoSuchAlgorithmException e) {
+      logger.error("Can not end sync for file {}", file.getAbsoluteFile(), e);
+      return getErrorResult(String
+          .format("Can not end sync for file %s because %s", fileName, e.getMessage()));
+    } catch (SyncDeviceOwnerConflictException e) {
+      logger.error("Device owner has conflicts, skip all other tsfiles in the sg {}.",
+          storageGroupName);
+      return new SyncStatus(SyncConstant.CONFLICT_CODE, String
+          .format("Device owner has conflicts, skip all other tsfiles in the same sg %s because %s",
+              storageGroupName, e.getMessage()));
+    }
+    return getSuccessResult();
+  }
+
+  private File getPartialFile(String storageGroupName, String fileName) {
+    return new File(getPartialFolder(), storageGroupName + File.separatorChar + fileName);
+  }
+
+  private File getPartialFolder() {
+    return new File(syncFolderPath.get(), SyncConstant.RECEIVER_PARTIAL_FOLDER_NAME);
+  }
+
+  /**
+   * Delete the partial files of the sender that are not initialized in this sync process, as the
+   * sender initializes all the tsfiles not synced yet in every sync process, their tsfiles are
+   * deleted or merged by the sender.
+   */
+  private void deleteAbandonedPartialFiles() {
+    Set<File> partialFiles = senderPartialFiles.get(senderName.get());
+    File[] sgFolders = getPartialFolder().listFiles();
+    if (partialFiles == null || sgFolders == null) {
+      return;
+    }
+    for (File sgFolder : sgFolders) {
+      File[] files = sgFolder.listFiles();
+      if (files == null) {
+        continue;
+      }
+      for (File file : files) {
+        if (!partialFiles.contains(getPartialFile(sgFolder.getName(), file.getName()))) {
+          logger.info("Delete the abandoned partial file {}", file);
+          try {
+            Files.deleteIfExists(file.toPath());
+          } catch (IOException e) {
+            logger.warn("Can not delete the abandoned partial file {}", file, e);
+          }
+        }
+      }
+    }
+  }
+
   private void loadMetadata() {
     logger.info("Start to load metadata in sync process.");
     if (currentFile.get().exists()) {
@@ -294,6 +520,7 @@ public class SyncServiceImpl implements SyncService.Iface {
       IFileLoader loader = FileLoaderManager.getInstance().getFileLoader(senderName.get());
       if (loader != null) {
         loader.endSync();
+        deleteAbandonedPartialFiles();
       } else {
         return getErrorResult(
             String.format("File Loader of the storage group %s is null", currentSG.get()));
@@ -303,6 +530,11 @@ public class SyncServiceImpl implements SyncService.Iface {
       logger.error("Can not end sync", e);
       return getErrorResult(String.format("Can not end sync because %s", e.getMessage()));
     } finally {
+      if (senderName.get() != null) {
+        senderSyncFolderPaths.remove(senderName.get());
+        senderSyncLogs.remove(senderName.get());
+        senderPartialFiles.remove(senderName.get());
+      }
       syncFolderPath.remove();
       currentSG.remove();
       syncLog.remove();
@@ -19,6 +19,7 @@
 package org.apache.iotdb.db.sync.sender.recover;
 
 import java.io.IOException;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -49,4 +50,18 @@ public interface ISyncSenderLogAnalyzer {
    */
   void updateLastLocalFile(Set<String> currentLocalFiles) throws IOException;
 
+  /**
+   * Load the offsets of the synced chunks of the tsfiles that are not completely synced.
+   *
+   * @return tsfile path -> offset of a synced chunk -> length of the chunk
+   */
+  Map<String, Map<Long, Integer>> loadSyncedChunks();
+
+  /**
+   * Rewrite the sync log with only the synced chunks of the tsfiles that are not completely
+   * synced and still exist, or delete it if there are none, so that the next task does not sync
+   * them again.
+   */
+  void retainSyncedChunks() throws IOException;
+
 }
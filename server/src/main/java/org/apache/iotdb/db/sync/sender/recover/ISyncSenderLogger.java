@@ -32,6 +32,11 @@ public interface ISyncSenderLogger {
 
   String SYNC_DELETED_FILE_NAME_START = "sync deleted file names start";
   String SYNC_TSFILE_START = "sync tsfile start";
+  /**
+   * A synced chunk is logged as the prefix, the offset and the length of the chunk and the tsfile
+   * path, separated by spaces.
+   */
+  String SYNC_CHUNK_PREFIX = "sync chunk ";
 
   /**
    * Start to sync deleted files name
@@ -60,6 +65,16 @@ public interface ISyncSenderLogger {
    */
   void finishSyncTsfile(File file) throws IOException;
 
+  /**
+   * After a chunk of a new tsfile is synced to the receiver end, record it in sync log, so that
+   * the chunk is not synced again if the sync task is interrupted before the tsfile is synced.
+   * @param file new tsfile
+   * @param offset the offset of the chunk in the tsfile
+   * @param length the length of the chunk
+   * @throws IOException
+   */
+  void finishSyncChunk(File file, long offset, int length) throws IOException;
+
   void close() throws IOException;
 
 }
@@ -24,7 +24,10 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import org.apache.commons.io.FileUtils;
 import org.apache.iotdb.db.sync.conf.SyncConstant;
@@ -61,7 +64,7 @@ public class SyncSenderLogAnalyzer implements ISyncSenderLogAnalyzer {
       updateLastLocalFile(lastLocalFiles);
     }
     FileUtils.deleteDirectory(new File(senderPath, SyncConstant.DATA_SNAPSHOT_NAME));
-    syncLogFile.delete();
+    retainSyncedChunks();
   }
 
   @Override
@@ -92,6 +95,9 @@ public class SyncSenderLogAnalyzer implements ISyncSenderLogAnalyzer {
       String line;
       int mode = 0;
       while ((line = br.readLine()) != null) {
+        if (line.startsWith(SyncSenderLogger.SYNC_CHUNK_PREFIX)) {
+          continue;
+        }
         if (line.equals(SyncSenderLogger.SYNC_DELETED_FILE_NAME_START)) {
           mode = -1;
         } else if (line.equals(SyncSenderLogger.SYNC_TSFILE_START)) {
@@ -111,6 +117,57 @@ public class SyncSenderLogAnalyzer implements ISyncSenderLogAnalyzer {
     }
   }
 
+  @Override
+  public Map<String, Map<Long, Integer>> loadSyncedChunks() {
+    Map<String, Map<Long, Integer>> syncedChunks = new HashMap<>();
+    if (!syncLogFile.exists()) {
+      return syncedChunks;
+    }
+    Set<String> newFiles = new HashSet<>();
+    try (BufferedReader br = new BufferedReader(new FileReader(syncLogFile))) {
+      String line;
+      int mode = 0;
+      while ((line = br.readLine()) != null) {
+        if (line.startsWith(SyncSenderLogger.SYNC_CHUNK_PREFIX)) {
+          String[] chunk = line.substring(SyncSenderLogger.SYNC_CHUNK_PREFIX.length())
+              .split(" ", 3);
+          syncedChunks.computeIfAbsent(chunk[2], k -> new HashMap<>())
+              .put(Long.parseLong(chunk[0]), Integer.parseInt(chunk[1]));
+        } else if (line.equals(SyncSenderLogger.SYNC_DELETED_FILE_NAME_START)) {
+          mode = -1;
+        } else if (line.equals(SyncSenderLogger.SYNC_TSFILE_START)) {
+          mode = 1;
+        } else if (mode == 1) {
+          newFiles.add(line);
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      LOGGER.error("Can not load synced chunks from file {}", syncLogFile.getAbsoluteFile(), e);
+    }
+    syncedChunks.keySet().removeAll(newFiles);
+    return syncedChunks;
+  }
+
+  @Override
+  public void retainSyncedChunks() throws IOException {
+    Map<String, Map<Long, Integer>> syncedChunks = loadSyncedChunks();
+    // tsfiles merged or deleted since they were partly synced will never be synced again
+    syncedChunks.keySet().removeIf(tsFilePath -> !new File(tsFilePath).exists());
+    syncLogFile.delete();
+    if (syncedChunks.isEmpty()) {
+      return;
+    }
+    try (BufferedWriter bw = new BufferedWriter(new FileWriter(syncLogFile))) {
+      for (Entry<String, Map<Long, Integer>> entry : syncedChunks.entrySet()) {
+        for (Entry<Long, Integer> chunk : entry.getValue().entrySet()) {
+          bw.write(SyncSenderLogger.SYNC_CHUNK_PREFIX + chunk.getKey() + " " + chunk.getValue()
+              + " " + entry.getKey());
+          bw.newLine();
+        }
+      }
+    }
+  }
+
   @Override
   public void updateLastLocalFile(Set<String> currentLocalFiles) throws IOException {
     try (BufferedWriter bw = new BufferedWriter(new FileWriter(currentLocalFile))) {
@@ -27,11 +27,15 @@ public class SyncSenderLogger implements ISyncSenderLogger {
 
   private BufferedWriter bw;
 
+  /**
+   * The log is appended to, as the synced chunks of the tsfiles that are not completely synced are
+   * kept in it by the last sync task.
+   */
   public SyncSenderLogger(File file) throws IOException {
     if (!file.getParentFile().exists()) {
       file.getParentFile().mkdirs();
     }
-    this.bw = new BufferedWriter(new FileWriter(file.getAbsolutePath()));
+    this.bw = new BufferedWriter(new FileWriter(file.getAbsolutePath(), true));
   }
 
   @Override
@@ -62,6 +66,13 @@ public class SyncSenderLogger implements ISyncSenderLogger {
     bw.flush();
   }
 
+  @Override
+  public void finishSyncChunk(File file, long offset, int length) throws IOException {
+    bw.write(SYNC_CHUNK_PREFIX + offset + " " + length + " " + file.getAbsolutePath());
+    bw.newLine();
+    bw.flush();
+  }
+
   @Override
   public void close() throws IOException {
     if(bw != null) {
@@ -0,0 +1,442 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.sync.sender.transfer;
+
+import static org.apache.iotdb.db.sync.conf.SyncConstant.CONFLICT_CODE;
+import static org.apache.iotdb.db.sync.conf.SyncConstant.SUCCESS_CODE;
+
+import com.google.common.util.concurrent.RateLimiter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.iotdb.db.concurrent.IoTDBThreadPoolFactory;
+import org.apache.iotdb.db.concurrent.ThreadName;
+import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
+import org.apache.iotdb.db.exception.SyncConnectionException;
+import org.apache.iotdb.db.exception.SyncDeviceOwnerConflictException;
+import org.apache.iotdb.db.sync.conf.SyncConstant;
+import org.apache.iotdb.db.sync.conf.SyncSenderConfig;
+import org.apache.iotdb.db.sync.sender.recover.ISyncSenderLogger;
+import org.apache.iotdb.db.utils.SyncUtils;
+import org.apache.iotdb.service.sync.thrift.ConfirmInfo;
+import org.apache.iotdb.service.sync.thrift.SyncService;
+import org.apache.iotdb.service.sync.thrift.SyncStatus;
+import org.apache.iotdb.tsfile.compress.ICompressor;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.transport.TFastFramedTransport;
+import org.apache.thrift.transport.TSocket;
+import org.apache.thrift.transport.TTransport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * ParallelFileSender sends tsfiles and their .resource files to the receiver in chunks, through
+ * several connections attached to the sync process concurrently. The receiver verifies the MD5 of
+ * every chunk and writes it at its offset, and the synced chunks of a tsfile are logged, so after a
+ * disconnection only the chunks not synced yet are sent again, by the retry or by the next sync
+ * task. A tsfile that fails does not stop the others, it is synced by the next sync task.
+ */
+public class ParallelFileSender implements Closeable {
+
+  private static final Logger logger = LoggerFactory.getLogger(ParallelFileSender.class);
+
+  /**
+   * a chunk may take a while to be written by the receiver, so the timeout is longer than that of
+   * the other requests.
+   */
+  private static final int TIMEOUT_MS = 60 * 1000;
+
+  private final SyncSenderConfig config;
+
+  private final ConfirmInfo confirmInfo;
+
+  private final ICompressor compressor;
+
+  private final RateLimiter rateLimiter;
+
+  private final List<Connection> connections = new ArrayList<>();
+
+  private final BlockingQueue<Connection> idleConnections;
+
+  private final ExecutorService transferPool;
+
+  public ParallelFileSender(SyncSenderConfig config, ConfirmInfo confirmInfo)
+      throws SyncConnectionException {
+    this.config = config;
+    this.confirmInfo = confirmInfo;
+    this.compressor = ICompressor.getCompressor(config.getSyncCompressor());
+    double throughput = config.getSyncMaxThroughputMbPerSec() * 1024.0 * 1024.0;
+    // if throughput = 0, disable rate limiting
+    this.rateLimiter = RateLimiter.create(throughput <= 0 ? Double.MAX_VALUE : throughput);
+    int connectionNum = Math.max(1, config.getSyncConnectionNum());
+    this.idleConnections = new ArrayBlockingQueue<>(connectionNum);
+    this.transferPool = IoTDBThreadPoolFactory
+        .newFixedThreadPool(connectionNum, ThreadName.SYNC_FILE_TRANSFER.getName());
+    try {
+      for (int i = 0; i < connectionNum; i++) {
+        Connection connection = new Connection();
+        connection.open();
+        connections.add(connection);
+        idleConnections.add(connection);
+      }
+    } catch (SyncConnectionException e) {
+      close();
+      throw e;
+    }
+  }
+
+  /**
+   * Sync the new tsfiles of a storage group with their .resource files, and wait until all of them
+   * are synced or failed.
+   *
+   * @param snapshots tsfile -> the snapshot of the tsfile, the .resource file of the snapshot is
+   * synced before the snapshot
+   * @param syncedChunks tsfile path -> offset -> length of the chunks synced by the last sync tasks
+   * @param syncedFiles the tsfiles synced successfully are added into it
+   * @throws SyncDeviceOwnerConflictException if the devices of a tsfile are owned by another
+   * sender, the tsfiles not synced yet are skipped.
+   */
+  public void syncFiles(String sgName, Map<File, File> snapshots,
+      Map<String, Map<Long, Integer>> syncedChunks, ISyncSenderLogger syncLog,
+      Set<File> syncedFiles) throws SyncDeviceOwnerConflictException {
+    AtomicReference<String> conflict = new AtomicReference<>();
+    List<FileTransfer> transfers = new ArrayList<>();
+    for (Entry<File, File> entry : snapshots.entrySet()) {
+      FileTransfer transfer = new FileTransfer(sgName, entry.getKey(), entry.getValue(),
+          syncedChunks.getOrDefault(entry.getKey().getAbsolutePath(), Collections.emptyMap()),
+          syncLog, conflict);
+      transfers.add(transfer);
+      transferPool.submit(transfer::start);
+    }
+    int cnt = 0;
+    for (FileTransfer transfer : transfers) {
+      try {
+        if (Boolean.TRUE.equals(transfer.done.get())) {
+          syncedFiles.add(transfer.tsFile);
+          logger.info("Task of synchronization has completed {}/{}.", ++cnt, transfers.size());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        logger.error("Interrupted when waiting for the tsfiles of {} to be synced", sgName);
+        break;
+      } catch (ExecutionException e) {
+        logger.error("Can not sync tsfile {}", transfer.tsFile, e);
+      }
+    }
+    if (conflict.get() != null) {
+      throw new SyncDeviceOwnerConflictException(conflict.get());
+    }
+  }
+
+  /**
+   * Make a call through an idle connection. If the connection is broken, it is reopened and the
+   * call is retried.
+   */
+  private SyncStatus call(SyncCall syncCall) throws SyncConnectionException, InterruptedException {
+    Connection connection = idleConnections.take();
+    try {
+      for (int retryCount = 0; ; retryCount++) {
+        try {
+          if (!connection.isOpen()) {
+            connection.open();
+          }
+          return syncCall.call(connection.client);
+        } catch (TException | SyncConnectionException e) {
+          connection.close();
+          if (retryCount >= config.getMaxNumOfSyncFileRetry()) {
+            throw new SyncConnectionException(String
+                .format("Can not connect to the receiver after %s retries.", retryCount), e);
+          }
+          logger.warn("The connection to the receiver is broken, reconnect and retry.", e);
+        }
+      }
+    } finally {
+      idleConnections.add(connection);
+    }
+  }
+
+  @Override
+  public void close() {
+    transferPool.shutdownNow();
+    for (Connection connection : connections) {
+      connection.close();
+    }
+  }
+
+  @FunctionalInterface
+  private interface SyncCall {
+
+    SyncStatus call(SyncService.Client client) throws TException;
+  }
+
+  private class Connection {
+
+    private TTransport transport;
+
+    private SyncService.Client client;
+
+    private void open() throws SyncConnectionException {
+      transport = new TFastFramedTransport(
+          new TSocket(config.getServerIp(), config.getServerPort(), TIMEOUT_MS));
+      client = new SyncService.Client(new TBinaryProtocol(transport));
+      try {
+        transport.open();
+        SyncStatus status = client.attach(confirmInfo);
+        if (status.code != SUCCESS_CODE) {
+          throw new SyncConnectionException(
+              "The receiver rejected the connection because " + status.msg);
+        }
+      } catch (TException e) {
+        throw new SyncConnectionException("Cannot connect to the receiver.", e);
+      }
+    }
+
+    private boolean isOpen() {
+      return transport != null && transport.isOpen();
+    }
+
+    private void close() {
+      if (transport != null) {
+        transport.close();
+      }
+    }
+  }
+
+  /**
+   * The transfer of a tsfile and its .resource file. Their chunks are sent by the transfer pool,
+   * and the task sending the last chunk ends the files, the .resource file first.
+   */
+  private class FileTransfer {
+
+    private final String sgName;
+
+    /**
+     * the original tsfile, by which the synced chunks are logged
+     */
+    private final File tsFile;
+
+    private final File snapshot;
+
+    private final File resourceSnapshot;
+
+    private final Map<Long, Integer> syncedChunks;
+
+    private final ISyncSenderLogger syncLog;
+
+    /**
+     * the message of the device owner conflict of the storage group
+     */
+    private final AtomicReference<String> conflict;
+
+    private final AtomicInteger remainingChunks = new AtomicInteger();
+
+    private final AtomicBoolean failed = new AtomicBoolean();
+
+    private final CompletableFuture<Boolean> done = new CompletableFuture<>();
+
+    private FileTransfer(String sgName, File tsFile, File snapshot,
+        Map<Long, Integer> syncedChunks, ISyncSenderLogger syncLog,
+        AtomicReference<String> conflict) {
+      this.sgName = sgName;
+      this.tsFile = tsFile;
+      this.snapshot = snapshot;
+      this.resourceSnapshot = new File(
+          snapshot.getAbsolutePath() + TsFileResource.RESOURCE_SUFFIX);
+      this.syncedChunks = syncedChunks;
+      this.syncLog = syncLog;
+      this.conflict = conflict;
+    }
+
+    private void start() {
+      if (conflict.get() != null) {
+        done.complete(false);
+        return;
+      }
+      try {
+        SyncStatus status = call(client -> client
+            .initSyncFile(sgName, resourceSnapshot.getName(), resourceSnapshot.length()));
+        if (status.code == SUCCESS_CODE) {
+          status = call(client -> client
+              .initSyncFile(sgName, snapshot.getName(), snapshot.length()));
+        }
+        if (status.code != SUCCESS_CODE) {
+          fail("the receiver can not init it because " + status.msg, null);
+          done.complete(false);
+          return;
+        }
+        // the chunks synced before are kept only if the receiver still has them
+        Map<Long, Integer> resumedChunks = SyncConstant.FILE_RESUMED.equals(status.msg)
+            ? syncedChunks : Collections.emptyMap();
+        List<Runnable> chunkTasks = new ArrayList<>();
+        addChunkTasks(chunkTasks, resourceSnapshot, false, Collections.emptyMap());
+        addChunkTasks(chunkTasks, snapshot, true, resumedChunks);
+        if (chunkTasks.isEmpty()) {
+          end();
+          return;
+        }
+        remainingChunks.set(chunkTasks.size());
+        chunkTasks.forEach(transferPool::submit);
+      } catch (SyncConnectionException e) {
+        fail("the receiver can not be connected", e);
+        done.complete(false);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        done.complete(false);
+      }
+    }
+
+    private void addChunkTasks(List<Runnable> chunkTasks, File file, boolean logged,
+        Map<Long, Integer> resumedChunks) {
+      long fileLength = file.length();
+      int chunkSize = config.getSyncChunkSizeInByte();
+      for (long offset = 0; offset < fileLength; offset += chunkSize) {
+        int length = (int) Math.min(chunkSize, fileLength - offset);
+        Integer resumedLength = resumedChunks.get(offset);
+        if (resumedLength != null && resumedLength == length) {
+          continue;
+        }
+        long chunkOffset = offset;
+        chunkTasks.add(() -> sendChunk(file, chunkOffset, length, logged));
+      }
+    }
+
+    private void sendChunk(File file, long offset, int length, boolean logged) {
+      try {
+        if (!failed.get() && conflict.get() == null) {
+          byte[] data = read(file, offset, length);
+          String md5 = new BigInteger(1,
+              MessageDigest.getInstance(SyncConstant.MESSAGE_DIGIT_NAME).digest(data))
+              .toString(16);
+          byte[] compressed = compressor.getType() == CompressionType.UNCOMPRESSED ? data
+              : compressor.compress(data);
+          byte compressionType = (byte) compressor.getType().serialize();
+          rateLimiter.acquire(compressed.length);
+          SyncStatus status = null;
+          for (int retryCount = 0; retryCount <= config.getMaxNumOfSyncFileRetry(); retryCount++) {
+            status = call(client -> client.syncFileChunk(sgName, file.getName(), offset,
+                ByteBuffer.wrap(compressed), compressionType, md5));
+            if (status.code == SUCCESS_CODE) {
+              break;
+            }
+            logger.info("Receiver failed to receive the chunk at {} of {} because {}, retry.",
+                offset, file.getAbsoluteFile(), status.msg);
+          }
+          if (status.code != SUCCESS_CODE) {
+            fail("the receiver can not receive its chunk at " + offset, null);
+          } else if (logged) {
+            synchronized (syncLog) {
+              syncLog.finishSyncChunk(tsFile, offset, length);
+            }
+          }
+        }
+      } catch (IOException | NoSuchAlgorithmException | SyncConnectionException e) {
+        fail("its chunk at " + offset + " can not be sent", e);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        fail("the transfer is interrupted", e);
+      } finally {
+        if (remainingChunks.decrementAndGet() == 0) {
+          end();
+        }
+      }
+    }
+
+    /**
+     * End the .resource file and then the tsfile, after all their chunks are sent.
+     */
+    private void end() {
+      if (failed.get() || conflict.get() != null) {
+        done.complete(false);
+        return;
+      }
+      try {
+        String resourceMd5 = SyncUtils.md5(resourceSnapshot);
+        SyncStatus status = call(
+            client -> client.endSyncFile(sgName, resourceSnapshot.getName(), resourceMd5));
+        if (status.code == SUCCESS_CODE) {
+          String md5 = SyncUtils.md5(snapshot);
+          status = call(client -> client.endSyncFile(sgName, snapshot.getName(), md5));
+        }
+        if (status.code == CONFLICT_CODE) {
+          conflict.compareAndSet(null, status.msg);
+          done.complete(false);
+          return;
+        }
+        if (status.code != SUCCESS_CODE) {
+          fail("the receiver can not end it because " + status.msg, null);
+          done.complete(false);
+          return;
+        }
+        synchronized (syncLog) {
+          syncLog.finishSyncTsfile(tsFile);
+        }
+        logger.info("Receiver has received {} successfully.", snapshot.getAbsoluteFile());
+        done.complete(true);
+      } catch (IOException | NoSuchAlgorithmException | SyncConnectionException e) {
+        fail("it can not be ended", e);
+        done.complete(false);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        done.complete(false);
+      }
+    }
+
+    private void fail(String reason, Exception e) {
+      if (failed.compareAndSet(false, true)) {
+        logger.error("Can not sync tsfile {} because {}, it will be synced by the next sync task.",
+            tsFile, reason, e);
+      }
+    }
+  }
+
+  private static byte[] read(File file, long offset, int length) throws IOException {
+    byte[] data = new byte[length];
+    ByteBuffer buffer = ByteBuffer.wrap(data);
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer, offset + buffer.position()) < 0) {
+          throw new IOException(String.format("%s ends before %d", file, offset + length));
+        }
+      }
+    }
+    return data;
+  }
+}
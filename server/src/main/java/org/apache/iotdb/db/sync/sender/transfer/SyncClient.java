@@ -18,14 +18,12 @@
  */
 package org.apache.iotdb.db.sync.sender.transfer;
 
-import static org.apache.iotdb.db.sync.conf.SyncConstant.CONFLICT_CODE;
 import static org.apache.iotdb.db.sync.conf.SyncConstant.SUCCESS_CODE;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
@@ -43,6 +41,7 @@ import java.security.NoSuchAlgorithmException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -126,6 +125,23 @@ public class SyncClient implements ISyncClient {
 
   private ScheduledExecutorService executorService;
 
+  /**
+   * The identity of the sender confirmed by the receiver, with which the connections of the
+   * fileSender attach to the sync process.
+   */
+  private ConfirmInfo confirmInfo;
+
+  /**
+   * Sends the tsfiles through several connections, it is open during a sync process.
+   */
+  private ParallelFileSender fileSender;
+
+  /**
+   * The chunks of tsfiles synced by the last sync task but not finished, tsfile path -> offset ->
+   * length.
+   */
+  private Map<String, Map<Long, Integer>> syncedChunks = Collections.emptyMap();
+
   private SyncClient() {
     init();
   }
@@ -232,28 +248,34 @@ public class SyncClient implements ISyncClient {
     syncSchema();
 
     // 3. Sync all data
-    String[] dataDirs = IoTDBDescriptor.getInstance().getConfig().getDataDirs();
-    logger.info("There are {} data dirs to be synced.", dataDirs.length);
-    for (int i = 0 ; i < dataDirs.length; i++) {
-      String dataDir = dataDirs[i];
-      logger.info("Start to sync data in data dir {}, the process is {}/{}", dataDir, i + 1,
-          dataDirs.length);
-
-      config.update(dataDir);
-      syncFileManager.getValidFiles(dataDir);
-      allSG = syncFileManager.getAllSGs();
-      lastLocalFilesMap = syncFileManager.getLastLocalFilesMap();
-      deletedFilesMap = syncFileManager.getDeletedFilesMap();
-      toBeSyncedFilesMap = syncFileManager.getToBeSyncedFilesMap();
-      checkRecovery();
-      if (SyncUtils.isEmpty(deletedFilesMap) && SyncUtils.isEmpty(toBeSyncedFilesMap)) {
-        logger.info("There has no data to sync in data dir {}", dataDir);
-        continue;
+    fileSender = new ParallelFileSender(config, confirmInfo);
+    try {
+      String[] dataDirs = IoTDBDescriptor.getInstance().getConfig().getDataDirs();
+      logger.info("There are {} data dirs to be synced.", dataDirs.length);
+      for (int i = 0; i < dataDirs.length; i++) {
+        String dataDir = dataDirs[i];
+        logger.info("Start to sync data in data dir {}, the process is {}/{}", dataDir, i + 1,
+            dataDirs.length);
+
+        config.update(dataDir);
+        syncFileManager.getValidFiles(dataDir);
+        allSG = syncFileManager.getAllSGs();
+        lastLocalFilesMap = syncFileManager.getLastLocalFilesMap();
+        deletedFilesMap = syncFileManager.getDeletedFilesMap();
+        toBeSyncedFilesMap = syncFileManager.getToBeSyncedFilesMap();
+        checkRecovery();
+        if (SyncUtils.isEmpty(deletedFilesMap) && SyncUtils.isEmpty(toBeSyncedFilesMap)) {
+          logger.info("There has no data to sync in data dir {}", dataDir);
+          continue;
+        }
+        sync();
+        endSync();
+        logger.info("Finish to sync data in data dir {}, the process is {}/{}", dataDir, i + 1,
+            dataDirs.length);
       }
-      sync();
-      endSync();
-      logger.info("Finish to sync data in data dir {}, the process is {}/{}", dataDir, i + 1,
-          dataDirs.length);
+    } finally {
+      fileSender.close();
+      fileSender = null;
     }
 
     // 4. notify receiver that synchronization finish
@@ -268,7 +290,9 @@ public class SyncClient implements ISyncClient {
   }
 
   private void checkRecovery() throws IOException {
-    new SyncSenderLogAnalyzer(config.getSenderFolderPath()).recover();
+    SyncSenderLogAnalyzer analyzer = new SyncSenderLogAnalyzer(config.getSenderFolderPath());
+    analyzer.recover();
+    syncedChunks = analyzer.loadSyncedChunks();
   }
 
   @Override
@@ -298,6 +322,7 @@ public class SyncClient implements ISyncClient {
         throw new SyncConnectionException(
             "The receiver rejected the synchronization task because " + status.msg);
       }
+      confirmInfo = info;
     } catch (Exception e) {
       logger.error("Cannot confirm identity with the receiver.");
       throw new SyncConnectionException(e);
@@ -539,24 +564,26 @@ public class SyncClient implements ISyncClient {
     }
     syncLog.startSyncTsFiles();
     logger.info("Sync process starts to transfer data of storage group {}", sgName);
-    int cnt = 0;
+    Map<File, File> snapshots = new LinkedHashMap<>();
     for (File tsfile : toBeSyncFiles) {
-      cnt++;
       try {
-        File snapshotFile = makeFileSnapshot(tsfile);
-        // firstly sync .resource file, then sync tsfile
-        syncSingleFile(new File(snapshotFile.getAbsolutePath() + TsFileResource.RESOURCE_SUFFIX));
-        syncSingleFile(snapshotFile);
-        lastLocalFilesMap.get(sgName).get(timeRangeId).add(tsfile);
-        syncLog.finishSyncTsfile(tsfile);
-        logger.info("Task of synchronization has completed {}/{}.", cnt, toBeSyncFiles.size());
+        snapshots.put(tsfile, makeFileSnapshot(tsfile));
       } catch (IOException e) {
         logger.info(
             "Tsfile {} can not make snapshot, so skip the tsfile and continue to sync other tsfiles",
             tsfile, e);
       }
     }
-    logger.info("Sync process has finished storage group {}.", sgName);
+    // the .resource file of a tsfile is ended before the tsfile, and the tsfiles are sent
+    // concurrently, a tsfile failed is synced by the next sync task
+    Set<File> syncedFiles = new HashSet<>();
+    try {
+      fileSender.syncFiles(sgName, snapshots, syncedChunks, syncLog, syncedFiles);
+    } finally {
+      lastLocalFilesMap.get(sgName).get(timeRangeId).addAll(syncedFiles);
+    }
+    logger.info("Sync process has finished storage group {}, {}/{} tsfiles are synced.", sgName,
+        syncedFiles.size(), toBeSyncFiles.size());
   }
 
   /**
@@ -580,61 +607,6 @@ public class SyncClient implements ISyncClient {
     return snapshotFile;
   }
 
-  /**
-   * Transfer data of a tsfile to the receiver.
-   */
-  @SuppressWarnings("squid:S3776") // Suppress high Cognitive Complexity warning
-  private void syncSingleFile(File snapshotFile)
-      throws SyncConnectionException, SyncDeviceOwnerConflictException {
-    try {
-      int retryCount = 0;
-      MessageDigest md = MessageDigest.getInstance(SyncConstant.MESSAGE_DIGIT_NAME);
-      serviceClient.initSyncData(snapshotFile.getName());
-      outer:
-      while (true) {
-        retryCount++;
-        if (retryCount > config.getMaxNumOfSyncFileRetry()) {
-          throw new SyncConnectionException(String
-              .format("Can not sync file %s after %s tries.", snapshotFile.getAbsoluteFile(),
-                  config.getMaxNumOfSyncFileRetry()));
-        }
-        md.reset();
-        byte[] buffer = new byte[SyncConstant.DATA_CHUNK_SIZE];
-        int dataLength;
-        try (FileInputStream fis = new FileInputStream(snapshotFile);
-            ByteArrayOutputStream bos = new ByteArrayOutputStream(SyncConstant.DATA_CHUNK_SIZE)) {
-          while ((dataLength = fis.read(buffer)) != -1) { // cut the file into pieces to send
-            bos.write(buffer, 0, dataLength);
-            md.update(buffer, 0, dataLength);
-            ByteBuffer buffToSend = ByteBuffer.wrap(bos.toByteArray());
-            bos.reset();
-            SyncStatus status = serviceClient.syncData(buffToSend);
-            if(status.code == CONFLICT_CODE){
-              throw new SyncDeviceOwnerConflictException(status.msg);
-            }
-            if (status.code != SUCCESS_CODE) {
-              logger.info("Receiver failed to receive data from {} because {}, retry.",
-                  status.msg, snapshotFile.getAbsoluteFile());
-              continue outer;
-            }
-          }
-        }
-
-        // the file is sent successfully
-        String md5OfSender = (new BigInteger(1, md.digest())).toString(16);
-        SyncStatus status = serviceClient.checkDataMD5(md5OfSender);
-        if (status.code == SUCCESS_CODE && md5OfSender.equals(status.msg)) {
-          logger.info("Receiver has received {} successfully.", snapshotFile.getAbsoluteFile());
-          break;
-        } else {
-          logger.error("MD5 check of tsfile {} failed, retry", snapshotFile.getAbsoluteFile());
-        }
-      }
-    } catch (IOException | TException | NoSuchAlgorithmException e) {
-      throw new SyncConnectionException("Cannot sync data with receiver.", e);
-    }
-  }
-
   private void endSync() throws IOException {
     File currentLocalFile = getCurrentLogFile();
     File lastLocalFile = new File(config.getLastFileInfoPath());
@@ -665,8 +637,8 @@ public class SyncClient implements ISyncClient {
       logger.error("Can not clear snapshot directory {}", config.getSnapshotPath(), e);
     }
 
-    // 4. delete sync log file
-    getSyncLogFile().delete();
+    // 4. clean sync log file, the chunks of the tsfiles not finished are kept to be resumed
+    new SyncSenderLogAnalyzer(config.getSenderFolderPath()).retainSyncedChunks();
   }
 
 
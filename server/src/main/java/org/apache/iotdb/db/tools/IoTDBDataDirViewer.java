@@ -138,7 +138,7 @@ public class IoTDBDataDirViewer {
     TsFileResource resource = new TsFileResource(SystemFileFactory.INSTANCE.getFile(filename));
     resource.deserialize();
     // sort device strings
-    SortedSet<String> keys = new TreeSet<>(resource.getDeviceToIndexMap().keySet());
+    SortedSet<String> keys = new TreeSet<>(resource.getDevices());
     for (String device : keys) {
       printlnBoth(pw,
           String.format("|  |  |  |  |--device %s, start time %d (%s), end time %d (%s)", device,
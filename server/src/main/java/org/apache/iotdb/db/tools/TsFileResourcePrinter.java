@@ -69,7 +69,7 @@ public class TsFileResourcePrinter {
 
     System.out.println("HistoricalVersions: " + resource.getHistoricalVersions());
 
-    for (String device : resource.getDeviceToIndexMap().keySet()) {
+    for (String device : resource.getDevices()) {
       System.out.println(String.format(
           "device %s, "
               + "start time %d (%s), "
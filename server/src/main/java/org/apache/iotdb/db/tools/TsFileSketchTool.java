@@ -153,6 +153,13 @@ public class TsFileSketchTool {
                           + ", tsDataType:" + entry.getValue().right.getTSDataType());
           printlnBoth(pw,
                   String.format("%20s", "") + "|\t[" + entry.getValue().right.getStatistics() + "] ");
+          TimeseriesMetadata seriesMetadata = entry.getValue().right;
+          if (seriesMetadata.hasChunkMetadataIndex()) {
+            printlnBoth(pw, String.format("%20s", entry.getKey()
+                    + seriesMetadata.getDataSizeOfChunkMetaDataList())
+                    + "|\t[ChunkMetadataIndex] of " + entry.getValue().left
+                    + ", size:" + seriesMetadata.getChunkMetadataIndexSize());
+          }
         }
 
         for (MetadataIndexEntry metadataIndex : tsFileMetaData.getMetadataIndex().getChildren()) {
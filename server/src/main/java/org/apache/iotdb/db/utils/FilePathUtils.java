@@ -54,7 +54,11 @@ public class FilePathUtils {
   }
 
   public static String[] splitTsFilePath(TsFileResource resource) {
-    return resource.getTsFile().getAbsolutePath().split(PATH_SPLIT_STRING);
+    return splitTsFilePath(resource.getTsFile().getAbsolutePath());
+  }
+
+  public static String[] splitTsFilePath(String tsFileAbsolutePath) {
+    return tsFileAbsolutePath.split(PATH_SPLIT_STRING);
   }
 
   /**
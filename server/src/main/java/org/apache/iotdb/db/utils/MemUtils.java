@@ -77,7 +77,10 @@ public class MemUtils {
     long memSize = 0;
     memSize += (end-start) * RamUsageEstimator.NUM_BYTES_OBJECT_HEADER;
     for (int i = start; i < end; i++) {
-      memSize += RamUsageEstimator.sizeOf(column[i].getValues());
+      // the values of a column may be null if they are marked as null in the bitmap
+      if (column[i] != null) {
+        memSize += RamUsageEstimator.sizeOf(column[i].getValues());
+      }
     }
     return memSize;
   }
@@ -110,8 +113,11 @@ public class MemUtils {
         case TEXT:
           memSize += (end - start) * 8L;
           if (addingTextDataSize) {
+            Binary[] column = (Binary[]) insertTabletPlan.getColumns()[i];
             for (int j = start; j < end; j++) {
-              memSize += getBinarySize(((Binary[]) insertTabletPlan.getColumns()[i])[j]);
+              if (column[j] != null) {
+                memSize += getBinarySize(column[j]);
+              }
             }
           }
           break;
@@ -32,6 +32,7 @@ import org.apache.iotdb.tsfile.read.common.Field;
 import org.apache.iotdb.tsfile.read.common.RowRecord;
 import org.apache.iotdb.tsfile.read.query.dataset.QueryDataSet;
 import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.BitMap;
 import org.apache.iotdb.tsfile.utils.BytesUtils;
 
 /**
@@ -257,4 +258,25 @@ public class QueryDataSetUtils {
     }
     return values;
   }
+
+  /**
+   * read the bitmaps of null values written as, for every column, a byte that is 1 if some of its
+   * values are null, followed by the bitmap of ceil(size / 8) bytes in that case.
+   *
+   * @param columns column number
+   * @param size    value count in each column
+   * @return the bitmap of every column, which is null if no value of the column is null
+   */
+  public static BitMap[] readBitMapsFromBuffer(ByteBuffer buffer, int columns, int size) {
+    BitMap[] bitMaps = new BitMap[columns];
+    for (int i = 0; i < columns; i++) {
+      boolean hasNullValues = BytesUtils.byteToBool(buffer.get());
+      if (hasNullValues) {
+        byte[] bits = new byte[BitMap.getSizeOfBytes(size)];
+        buffer.get(bits);
+        bitMaps[i] = new BitMap(size, bits);
+      }
+    }
+    return bitMaps;
+  }
 }
@@ -19,16 +19,26 @@
 package org.apache.iotdb.db.utils;
 
 import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.DecimalFormat;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import org.apache.iotdb.db.sync.conf.SyncConstant;
 import org.apache.iotdb.db.sync.conf.SyncSenderDescriptor;
 
 public class SyncUtils {
 
   private static final String IP_SEPARATOR = "\\.";
 
+  private static final int MD5_BUFFER_SIZE = 64 * 1024;
+
   private SyncUtils() {
   }
 
@@ -46,6 +56,23 @@ public class SyncUtils {
     return new File(snapshotDir, relativeFilePath);
   }
 
+  /**
+   * Compute the MD5 of a whole file, which is checked by the receiver before the file is loaded.
+   * It's used by both sync sender and sync receiver.
+   */
+  public static String md5(File file) throws IOException, NoSuchAlgorithmException {
+    MessageDigest md = MessageDigest.getInstance(SyncConstant.MESSAGE_DIGIT_NAME);
+    ByteBuffer buffer = ByteBuffer.allocate(MD5_BUFFER_SIZE);
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      while (channel.read(buffer) != -1) {
+        buffer.flip();
+        md.update(buffer);
+        buffer.clear();
+      }
+    }
+    return new BigInteger(1, md.digest()).toString(16);
+  }
+
   /**
    * Verify sending list is empty or not It's used by sync sender.
    */
@@ -0,0 +1,473 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.utils.datastructure;
+
+import static org.apache.iotdb.db.rescon.PrimitiveArrayManager.ARRAY_SIZE;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.iotdb.db.rescon.PrimitiveArrayManager;
+import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.read.TimeValuePair;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.BitMap;
+
+/**
+ * AlignedTVList keeps the rows of an aligned device, whose measurements share one time column.
+ * The time of a row is kept once for all the columns, and each column keeps its values in the
+ * order the rows are put, with a bitmap of the null values. The value of a position in this list
+ * is the index of its row in the columns, so sorting only moves the times and the row indices.
+ */
+public class AlignedTVList extends TVList {
+
+  private List<TSDataType> dataTypes = new ArrayList<>();
+
+  /**
+   * values.get(column).get(i) is the i-th primitive array of the column.
+   */
+  private List<List<Object>> values = new ArrayList<>();
+
+  /**
+   * bitMaps.get(column).get(i) marks the null values of the i-th array of the column, or it is
+   * null if none of them is null.
+   */
+  private List<List<BitMap>> bitMaps = new ArrayList<>();
+
+  private List<int[]> indices = new ArrayList<>();
+
+  private int[][] sortedIndices;
+
+  private int pivotIndex;
+
+  public AlignedTVList() {
+    super();
+  }
+
+  public int getColumnNum() {
+    return dataTypes.size();
+  }
+
+  public TSDataType getDataType(int column) {
+    return dataTypes.get(column);
+  }
+
+  /**
+   * add a column whose values of the rows already put are null.
+   *
+   * @return the index of the column
+   */
+  public int addColumn(TSDataType dataType) {
+    List<Object> columnValues = new ArrayList<>();
+    List<BitMap> columnBitMaps = new ArrayList<>();
+    for (int i = 0; i < indices.size(); i++) {
+      columnValues.add(getPrimitiveArraysByType(dataType));
+      BitMap bitMap = new BitMap(ARRAY_SIZE);
+      for (int j = 0; j < ARRAY_SIZE; j++) {
+        bitMap.mark(j);
+      }
+      columnBitMaps.add(bitMap);
+    }
+    dataTypes.add(dataType);
+    values.add(columnValues);
+    bitMaps.add(columnBitMaps);
+    return dataTypes.size() - 1;
+  }
+
+  /**
+   * put a row.
+   *
+   * @param rowValues the value of every column, null if the value of a column is null
+   */
+  public void putAlignedValue(long time, Object[] rowValues) {
+    checkExpansion();
+    int arrayIndex = size / ARRAY_SIZE;
+    int elementIndex = size % ARRAY_SIZE;
+    minTime = Math.min(minTime, time);
+    timestamps.get(arrayIndex)[elementIndex] = time;
+    indices.get(arrayIndex)[elementIndex] = size;
+    for (int column = 0; column < dataTypes.size(); column++) {
+      Object value = rowValues[column];
+      if (value != null) {
+        setValue(column, values.get(column).get(arrayIndex), elementIndex, value);
+      }
+      setNull(column, arrayIndex, elementIndex, value == null);
+    }
+    size++;
+    if (sorted && size > 1 && time < getTime(size - 2)) {
+      sorted = false;
+    }
+  }
+
+  private void setValue(int column, Object array, int elementIndex, Object value) {
+    switch (dataTypes.get(column)) {
+      case BOOLEAN:
+        ((boolean[]) array)[elementIndex] = (boolean) value;
+        break;
+      case INT32:
+        ((int[]) array)[elementIndex] = (int) value;
+        break;
+      case INT64:
+        ((long[]) array)[elementIndex] = (long) value;
+        break;
+      case FLOAT:
+        ((float[]) array)[elementIndex] = (float) value;
+        break;
+      case DOUBLE:
+        ((double[]) array)[elementIndex] = (double) value;
+        break;
+      case TEXT:
+        ((Binary[]) array)[elementIndex] = (Binary) value;
+        break;
+      default:
+        throw new UnSupportedDataTypeException(dataTypes.get(column).toString());
+    }
+  }
+
+  /**
+   * put the rows in [start, end) of a tablet, the values of each column are copied with array
+   * copies.
+   *
+   * @param columns the values of every column, an array of the data type of the column, or null
+   * if all the values of a column are null
+   * @param columnBitMaps the null values of every column, or null if no value of a column is null
+   */
+  public void putAlignedValues(long[] time, Object[] columns, BitMap[] columnBitMaps, int start,
+      int end) {
+    updateMinTimeAndSorted(time, start, end);
+    int idx = start;
+    while (idx < end) {
+      checkExpansion();
+      int arrayIndex = size / ARRAY_SIZE;
+      int elementIndex = size % ARRAY_SIZE;
+      int length = Math.min(end - idx, ARRAY_SIZE - elementIndex);
+      System.arraycopy(time, idx, timestamps.get(arrayIndex), elementIndex, length);
+      int[] indexArray = indices.get(arrayIndex);
+      for (int i = 0; i < length; i++) {
+        indexArray[elementIndex + i] = size + i;
+      }
+      for (int column = 0; column < dataTypes.size(); column++) {
+        if (columns[column] != null) {
+          System.arraycopy(columns[column], idx, values.get(column).get(arrayIndex),
+              elementIndex, length);
+        }
+        if (columns[column] == null || columnBitMaps[column] != null
+            || bitMaps.get(column).get(arrayIndex) != null) {
+          for (int i = 0; i < length; i++) {
+            setNull(column, arrayIndex, elementIndex + i, columns[column] == null
+                || (columnBitMaps[column] != null && columnBitMaps[column].isMarked(idx + i)));
+          }
+        }
+      }
+      idx += length;
+      size += length;
+    }
+  }
+
+  private void setNull(int column, int arrayIndex, int elementIndex, boolean isNull) {
+    BitMap bitMap = bitMaps.get(column).get(arrayIndex);
+    if (isNull) {
+      if (bitMap == null) {
+        bitMap = new BitMap(ARRAY_SIZE);
+        bitMaps.get(column).set(arrayIndex, bitMap);
+      }
+      bitMap.mark(elementIndex);
+    } else if (bitMap != null) {
+      bitMap.unmark(elementIndex);
+    }
+  }
+
+  /**
+   * @return the index in the columns of the row at the given position of this list
+   */
+  public int getRowIndex(int index) {
+    if (index >= size) {
+      throw new ArrayIndexOutOfBoundsException(index);
+    }
+    return indices.get(index / ARRAY_SIZE)[index % ARRAY_SIZE];
+  }
+
+  public boolean isNull(int column, int rowIndex) {
+    BitMap bitMap = bitMaps.get(column).get(rowIndex / ARRAY_SIZE);
+    return bitMap != null && bitMap.isMarked(rowIndex % ARRAY_SIZE);
+  }
+
+  /**
+   * @return the value of a row in a column, which must not be null
+   */
+  public Object getValue(int column, int rowIndex) {
+    Object array = values.get(column).get(rowIndex / ARRAY_SIZE);
+    int elementIndex = rowIndex % ARRAY_SIZE;
+    switch (dataTypes.get(column)) {
+      case BOOLEAN:
+        return ((boolean[]) array)[elementIndex];
+      case INT32:
+        return ((int[]) array)[elementIndex];
+      case INT64:
+        return ((long[]) array)[elementIndex];
+      case FLOAT:
+        return ((float[]) array)[elementIndex];
+      case DOUBLE:
+        return ((double[]) array)[elementIndex];
+      case TEXT:
+        return ((Binary[]) array)[elementIndex];
+      default:
+        throw new UnSupportedDataTypeException(dataTypes.get(column).toString());
+    }
+  }
+
+  /**
+   * @return the number of values of a column that are not null
+   */
+  public int getValueCount(int column) {
+    int count = 0;
+    for (int i = 0; i < size; i++) {
+      if (!isNull(column, i)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * copy the values of a column that are not null into a TVList of its data type, in the order of
+   * this list.
+   */
+  public TVList getColumnTVList(int column) {
+    TSDataType dataType = dataTypes.get(column);
+    TVList columnList = TVList.newList(dataType);
+    for (int i = 0; i < size; i++) {
+      int rowIndex = getRowIndex(i);
+      if (isNull(column, rowIndex)) {
+        continue;
+      }
+      Object value = getValue(column, rowIndex);
+      switch (dataType) {
+        case BOOLEAN:
+          columnList.putBoolean(getTime(i), (boolean) value);
+          break;
+        case INT32:
+          columnList.putInt(getTime(i), (int) value);
+          break;
+        case INT64:
+          columnList.putLong(getTime(i), (long) value);
+          break;
+        case FLOAT:
+          columnList.putFloat(getTime(i), (float) value);
+          break;
+        case DOUBLE:
+          columnList.putDouble(getTime(i), (double) value);
+          break;
+        case TEXT:
+          columnList.putBinary(getTime(i), (Binary) value);
+          break;
+        default:
+          throw new UnSupportedDataTypeException(dataType.toString());
+      }
+    }
+    // the arrays of the copy are not from PrimitiveArrayManager, as nobody releases the copy
+    TVList copy = columnList.clone();
+    columnList.clear();
+    return copy;
+  }
+
+  /**
+   * set the values of a column in [lowerBound, upperBound] to null, the rows are kept for the
+   * other columns.
+   *
+   * @return the number of values that are deleted
+   */
+  public int delete(int column, long lowerBound, long upperBound) {
+    int deletedNumber = 0;
+    for (int i = 0; i < size; i++) {
+      long time = getTime(i);
+      int rowIndex = getRowIndex(i);
+      if (time >= lowerBound && time <= upperBound && !isNull(column, rowIndex)) {
+        setNull(column, rowIndex / ARRAY_SIZE, rowIndex % ARRAY_SIZE, true);
+        deletedNumber++;
+      }
+    }
+    return deletedNumber;
+  }
+
+  @Override
+  public int delete(long lowerBound, long upperBound) {
+    int deletedNumber = 0;
+    for (int column = 0; column < dataTypes.size(); column++) {
+      deletedNumber += delete(column, lowerBound, upperBound);
+    }
+    return deletedNumber;
+  }
+
+  protected void set(int index, long timestamp, int rowIndex) {
+    if (index >= size) {
+      throw new ArrayIndexOutOfBoundsException(index);
+    }
+    int arrayIndex = index / ARRAY_SIZE;
+    int elementIndex = index % ARRAY_SIZE;
+    timestamps.get(arrayIndex)[elementIndex] = timestamp;
+    indices.get(arrayIndex)[elementIndex] = rowIndex;
+  }
+
+  @Override
+  public AlignedTVList clone() {
+    AlignedTVList cloneList = new AlignedTVList();
+    cloneAs(cloneList);
+    cloneList.dataTypes.addAll(dataTypes);
+    for (int[] indexArray : indices) {
+      cloneList.indices.add(indexArray.clone());
+    }
+    for (int column = 0; column < dataTypes.size(); column++) {
+      List<Object> columnValues = new ArrayList<>();
+      for (Object valueArray : values.get(column)) {
+        columnValues.add(cloneValue(valueArray));
+      }
+      cloneList.values.add(columnValues);
+      List<BitMap> columnBitMaps = new ArrayList<>();
+      for (BitMap bitMap : bitMaps.get(column)) {
+        columnBitMaps.add(bitMap == null ? null
+            : new BitMap(bitMap.getSize(), bitMap.getByteArray().clone()));
+      }
+      cloneList.bitMaps.add(columnBitMaps);
+    }
+    return cloneList;
+  }
+
+  private Object cloneValue(Object array) {
+    int length = Array.getLength(array);
+    Object cloneArray = Array.newInstance(array.getClass().getComponentType(), length);
+    System.arraycopy(array, 0, cloneArray, 0, length);
+    return cloneArray;
+  }
+
+  @Override
+  public void sort() {
+    if (sortedTimestamps == null || sortedTimestamps.length < size) {
+      sortedTimestamps = (long[][]) PrimitiveArrayManager
+          .createDataListsByType(TSDataType.INT64, size);
+    }
+    if (sortedIndices == null || sortedIndices.length < size) {
+      sortedIndices = (int[][]) PrimitiveArrayManager.createDataListsByType(TSDataType.INT32, size);
+    }
+    sort(0, size);
+    clearSortedValue();
+    clearSortedTime();
+    sorted = true;
+  }
+
+  @Override
+  void clearValue() {
+    for (int[] indexArray : indices) {
+      PrimitiveArrayManager.release(indexArray);
+    }
+    indices.clear();
+    for (List<Object> columnValues : values) {
+      for (Object valueArray : columnValues) {
+        PrimitiveArrayManager.release(valueArray);
+      }
+      columnValues.clear();
+    }
+    for (List<BitMap> columnBitMaps : bitMaps) {
+      columnBitMaps.clear();
+    }
+  }
+
+  @Override
+  void clearSortedValue() {
+    if (sortedIndices != null) {
+      sortedIndices = null;
+    }
+  }
+
+  @Override
+  protected void setFromSorted(int src, int dest) {
+    set(dest, sortedTimestamps[src / ARRAY_SIZE][src % ARRAY_SIZE],
+        sortedIndices[src / ARRAY_SIZE][src % ARRAY_SIZE]);
+  }
+
+  @Override
+  protected void set(int src, int dest) {
+    long srcT = getTime(src);
+    int srcV = getRowIndex(src);
+    set(dest, srcT, srcV);
+  }
+
+  @Override
+  protected void setToSorted(int src, int dest) {
+    sortedTimestamps[dest / ARRAY_SIZE][dest % ARRAY_SIZE] = getTime(src);
+    sortedIndices[dest / ARRAY_SIZE][dest % ARRAY_SIZE] = getRowIndex(src);
+  }
+
+  @Override
+  protected void reverseRange(int lo, int hi) {
+    hi--;
+    while (lo < hi) {
+      long loT = getTime(lo);
+      int loV = getRowIndex(lo);
+      long hiT = getTime(hi);
+      int hiV = getRowIndex(hi);
+      set(lo++, hiT, hiV);
+      set(hi--, loT, loV);
+    }
+  }
+
+  @Override
+  protected void expandValues() {
+    indices.add((int[]) getPrimitiveArraysByType(TSDataType.INT32));
+    for (int column = 0; column < dataTypes.size(); column++) {
+      values.get(column).add(getPrimitiveArraysByType(dataTypes.get(column)));
+      bitMaps.get(column).add(null);
+    }
+  }
+
+  @Override
+  protected void saveAsPivot(int pos) {
+    pivotTime = getTime(pos);
+    pivotIndex = getRowIndex(pos);
+  }
+
+  @Override
+  protected void setPivotTo(int pos) {
+    set(pos, pivotTime, pivotIndex);
+  }
+
+  @Override
+  public TimeValuePair getTimeValuePair(int index) {
+    throw new UnsupportedOperationException("A row of an aligned device has several values");
+  }
+
+  @Override
+  protected TimeValuePair getTimeValuePair(int index, long time, Integer floatPrecision,
+      TSEncoding encoding) {
+    throw new UnsupportedOperationException("A row of an aligned device has several values");
+  }
+
+  @Override
+  protected void releaseLastValueArray() {
+    PrimitiveArrayManager.release(indices.remove(indices.size() - 1));
+    for (int column = 0; column < dataTypes.size(); column++) {
+      List<Object> columnValues = values.get(column);
+      PrimitiveArrayManager.release(columnValues.remove(columnValues.size() - 1));
+      List<BitMap> columnBitMaps = bitMaps.get(column);
+      columnBitMaps.remove(columnBitMaps.size() - 1);
+    }
+  }
+}
@@ -26,14 +26,16 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.iotdb.db.rescon.PrimitiveArrayManager;
+import org.apache.iotdb.tsfile.encoding.encoder.EncodingSelector.Values;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
 import org.apache.iotdb.tsfile.read.TimeValuePair;
 import org.apache.iotdb.tsfile.read.common.TimeRange;
 import org.apache.iotdb.tsfile.read.reader.IPointReader;
 import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.BitMap;
 
-public abstract class TVList {
+public abstract class TVList implements Values {
 
   private static final String ERR_DATATYPE_NOT_CONSISTENT = "DataType not consistent";
 
@@ -62,6 +64,7 @@ public abstract class TVList {
     minTime = Long.MAX_VALUE;
   }
 
+  @Override
   public int size() {
     return size;
   }
@@ -123,26 +126,92 @@ public abstract class TVList {
     throw new UnsupportedOperationException(ERR_DATATYPE_NOT_CONSISTENT);
   }
 
+  /**
+   * put the rows in [start, end) except the ones marked as null in bitMap
+   *
+   * @param bitMap the null values of the rows, or null if no value is null
+   */
+  public void putLongs(long[] time, long[] value, BitMap bitMap, int start, int end) {
+    putNonNullRanges(bitMap, start, end, (from, to) -> putLongs(time, value, from, to));
+  }
+
+  public void putInts(long[] time, int[] value, BitMap bitMap, int start, int end) {
+    putNonNullRanges(bitMap, start, end, (from, to) -> putInts(time, value, from, to));
+  }
+
+  public void putFloats(long[] time, float[] value, BitMap bitMap, int start, int end) {
+    putNonNullRanges(bitMap, start, end, (from, to) -> putFloats(time, value, from, to));
+  }
+
+  public void putDoubles(long[] time, double[] value, BitMap bitMap, int start, int end) {
+    putNonNullRanges(bitMap, start, end, (from, to) -> putDoubles(time, value, from, to));
+  }
+
+  public void putBinaries(long[] time, Binary[] value, BitMap bitMap, int start, int end) {
+    putNonNullRanges(bitMap, start, end, (from, to) -> putBinaries(time, value, from, to));
+  }
+
+  public void putBooleans(long[] time, boolean[] value, BitMap bitMap, int start, int end) {
+    putNonNullRanges(bitMap, start, end, (from, to) -> putBooleans(time, value, from, to));
+  }
+
+  /**
+   * split [start, end) into the ranges of consecutive rows that are not null, so that each range
+   * is still put with array copies.
+   */
+  private void putNonNullRanges(BitMap bitMap, int start, int end, RangePutter putter) {
+    if (bitMap == null) {
+      putter.put(start, end);
+      return;
+    }
+    int rangeStart = start;
+    while (rangeStart < end) {
+      while (rangeStart < end && bitMap.isMarked(rangeStart)) {
+        rangeStart++;
+      }
+      int rangeEnd = rangeStart;
+      while (rangeEnd < end && !bitMap.isMarked(rangeEnd)) {
+        rangeEnd++;
+      }
+      if (rangeStart < rangeEnd) {
+        putter.put(rangeStart, rangeEnd);
+      }
+      rangeStart = rangeEnd;
+    }
+  }
+
+  @FunctionalInterface
+  private interface RangePutter {
+
+    void put(int start, int end);
+  }
+
+  @Override
   public long getLong(int index) {
     throw new UnsupportedOperationException(ERR_DATATYPE_NOT_CONSISTENT);
   }
 
+  @Override
   public int getInt(int index) {
     throw new UnsupportedOperationException(ERR_DATATYPE_NOT_CONSISTENT);
   }
 
+  @Override
   public float getFloat(int index) {
     throw new UnsupportedOperationException(ERR_DATATYPE_NOT_CONSISTENT);
   }
 
+  @Override
   public double getDouble(int index) {
     throw new UnsupportedOperationException(ERR_DATATYPE_NOT_CONSISTENT);
   }
 
+  @Override
   public Binary getBinary(int index) {
     throw new UnsupportedOperationException(ERR_DATATYPE_NOT_CONSISTENT);
   }
 
+  @Override
   public boolean getBoolean(int index) {
     throw new UnsupportedOperationException(ERR_DATATYPE_NOT_CONSISTENT);
   }
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.cache;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.iotdb.db.engine.cache.GroupByResultCache.BucketResult;
+import org.apache.iotdb.db.engine.querycontext.QueryDataSource;
+import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
+import org.apache.iotdb.db.exception.metadata.IllegalPathException;
+import org.apache.iotdb.db.metadata.PartialPath;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GroupByResultCacheTest {
+
+  private static final String DEVICE = "root.sg.d1";
+
+  private GroupByResultCache cache = GroupByResultCache.getInstance();
+  private PartialPath path;
+
+  @Before
+  public void setUp() throws IllegalPathException {
+    cache.clear();
+    path = new PartialPath(DEVICE + ".s1");
+  }
+
+  @After
+  public void tearDown() {
+    cache.clear();
+  }
+
+  @Test
+  public void testGetSealedFiles() throws IllegalPathException {
+    TsFileResource seq1 = createResource("1-1-0.tsfile", 0, 99, true);
+    TsFileResource seq2 = createResource("2-2-0.tsfile", 100, 199, true);
+    TsFileResource unseq = createResource("3-3-0.tsfile", 150, 250, false);
+    List<TsFileResource> seqResources = new ArrayList<>();
+    seqResources.add(seq1);
+    seqResources.add(seq2);
+    QueryDataSource dataSource = new QueryDataSource(path, seqResources,
+        Collections.singletonList(unseq));
+
+    Assert.assertArrayEquals(new String[]{seq1.getTsFilePath()},
+        GroupByResultCache.getSealedFiles(dataSource, DEVICE, 0, 100));
+    Assert.assertArrayEquals(new String[]{seq1.getTsFilePath(), seq2.getTsFilePath()},
+        GroupByResultCache.getSealedFiles(dataSource, DEVICE, 50, 150));
+    // overlaps the unsealed file
+    Assert.assertNull(GroupByResultCache.getSealedFiles(dataSource, DEVICE, 100, 200));
+    // no file of the device
+    Assert.assertArrayEquals(new String[0],
+        GroupByResultCache.getSealedFiles(dataSource, "root.sg.d2", 0, 100));
+  }
+
+  @Test
+  public void testSealedFileIndex() {
+    List<TsFileResource> seqResources = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      seqResources.add(createResource(i + "-" + i + "-0.tsfile", i * 100L, i * 100L + 99, true));
+    }
+    List<TsFileResource> unseqResources = new ArrayList<>();
+    unseqResources.add(createResource("10-10-0.tsfile", 150, 420, true));
+    unseqResources.add(createResource("11-11-0.tsfile", 50, 60, true));
+    unseqResources.add(createResource("12-12-0.tsfile", 700, 950, true));
+    unseqResources.add(createResource("13-13-0.tsfile", 880, 900, false));
+    QueryDataSource dataSource = new QueryDataSource(path, seqResources, unseqResources);
+
+    // the index gives the same files as scanning all the TsFiles for every interval
+    GroupByResultCache.SealedFileIndex index = GroupByResultCache
+        .indexSealedFiles(dataSource, DEVICE);
+    for (long startTime = -30; startTime < 1100; startTime += 30) {
+      long endTime = startTime + 45;
+      Assert.assertArrayEquals(scanSealedFiles(dataSource, startTime, endTime),
+          index.getFiles(startTime, endTime));
+    }
+    // sequence files first
+    Assert.assertArrayEquals(new String[]{"4-4-0.tsfile", "10-10-0.tsfile"},
+        index.getFiles(400, 450));
+    // overlaps the unsealed file
+    Assert.assertNull(index.getFiles(850, 881));
+  }
+
+  private String[] scanSealedFiles(QueryDataSource dataSource, long startTime, long endTime) {
+    List<TsFileResource> resources = new ArrayList<>(dataSource.getSeqResources());
+    resources.addAll(dataSource.getUnseqResources());
+    List<String> files = new ArrayList<>();
+    for (TsFileResource resource : resources) {
+      if (resource.getStartTime(DEVICE) >= endTime) {
+        continue;
+      }
+      if (!resource.isClosed()) {
+        return null;
+      }
+      if (resource.getEndTime(DEVICE) >= startTime) {
+        files.add(resource.getTsFilePath());
+      }
+    }
+    return files.toArray(new String[0]);
+  }
+
+  @Test
+  public void testGetAndPut() {
+    String[] files = {"1-1-0.tsfile"};
+    Assert.assertNull(cache.get(path, "count", 0, 100, files));
+
+    cache.put(path, "count", 0, 100, files, 10L, cache.getVersion());
+    cache.put(path, "max_value", 0, 100, files, null, cache.getVersion());
+    BucketResult result = cache.get(path, "count", 0, 100, files);
+    Assert.assertNotNull(result);
+    Assert.assertEquals(10L, result.getResult());
+    // an interval without data is cached too
+    result = cache.get(path, "max_value", 0, 100, files);
+    Assert.assertNotNull(result);
+    Assert.assertNull(result.getResult());
+    Assert.assertNull(cache.get(path, "count", 100, 200, files));
+
+    // a new unsequence file makes the result stale
+    Assert.assertNull(cache.get(path, "count", 0, 100, new String[]{"1-1-0.tsfile",
+        "3-3-0.tsfile"}));
+    Assert.assertNull(cache.get(path, "count", 0, 100, files));
+    Assert.assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void testRemove() throws IllegalPathException {
+    String[] files = {"1-1-0.tsfile"};
+    PartialPath otherPath = new PartialPath(DEVICE + ".s2");
+    cache.put(path, "count", 0, 100, files, 10L, cache.getVersion());
+    cache.put(path, "count", 100, 200, files, 20L, cache.getVersion());
+    cache.put(otherPath, "count", 0, 100, files, 30L, cache.getVersion());
+
+    cache.remove(new PartialPath(DEVICE), path, 50, 60);
+    Assert.assertNull(cache.get(path, "count", 0, 100, files));
+    Assert.assertNotNull(cache.get(path, "count", 100, 200, files));
+    Assert.assertNotNull(cache.get(otherPath, "count", 0, 100, files));
+
+    // results read before a deletion are not cached
+    long version = cache.getVersion();
+    cache.remove(new PartialPath(DEVICE), new PartialPath(DEVICE + ".*"), 0, 1000);
+    Assert.assertEquals(0, cache.size());
+    cache.put(path, "count", 0, 100, files, 10L, version);
+    Assert.assertNull(cache.get(path, "count", 0, 100, files));
+    Assert.assertEquals(0, cache.getUsedMemory());
+  }
+
+  private TsFileResource createResource(String name, long startTime, long endTime,
+      boolean closed) {
+    TsFileResource resource = new TsFileResource(new File(name));
+    resource.putStartTime(DEVICE, startTime);
+    resource.putEndTime(DEVICE, endTime);
+    resource.setClosed(closed);
+    return resource;
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.compaction.utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.read.TimeValuePair;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.TsPrimitiveType.TsBinary;
+import org.apache.iotdb.tsfile.utils.TsPrimitiveType.TsDouble;
+import org.apache.iotdb.tsfile.utils.TsPrimitiveType.TsInt;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompactionUtilsTest {
+
+  @Test
+  public void testSelectEncodingOfIncreasingInts() throws IOException {
+    List<TimeValuePair> points = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      points.add(new TimeValuePair(i, new TsInt(i * 10)));
+    }
+    Assert.assertEquals(TSEncoding.TS_2DIFF,
+        CompactionUtils.selectEncoding(TSDataType.INT32, points));
+
+    // GORILLA is skipped for the min value
+    points.add(new TimeValuePair(1000, new TsInt(Integer.MIN_VALUE)));
+    Assert.assertNotEquals(TSEncoding.GORILLA,
+        CompactionUtils.selectEncoding(TSDataType.INT32, points));
+  }
+
+  @Test
+  public void testSelectEncodingOfDoubles() throws IOException {
+    List<TimeValuePair> points = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      points.add(new TimeValuePair(i, new TsDouble(1.5)));
+    }
+    Assert.assertEquals(TSEncoding.GORILLA,
+        CompactionUtils.selectEncoding(TSDataType.DOUBLE, points));
+  }
+
+  @Test
+  public void testSelectEncodingOfText() throws IOException {
+    List<TimeValuePair> points = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      points.add(new TimeValuePair(i, new TsBinary(new Binary(i % 2 == 0 ? "ON" : "OFF"))));
+    }
+    Assert.assertEquals(TSEncoding.PLAIN_DICTIONARY,
+        CompactionUtils.selectEncoding(TSDataType.TEXT, points));
+  }
+}
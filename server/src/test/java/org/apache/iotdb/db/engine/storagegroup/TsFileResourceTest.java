@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.db.engine.storagegroup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.constant.TestConstant;
+import org.apache.iotdb.db.engine.cache.DeviceTimeIndexCache;
+import org.apache.iotdb.db.engine.storagegroup.timeindex.TimeIndexLevel;
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TsFileResourceTest {
+
+  private static final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+  private static final int DEVICE_NUM = 100;
+
+  private TimeIndexLevel prevTimeIndexLevel;
+  private File file = new File(TestConstant.OUTPUT_DATA_DIR,
+      "root.sg" + File.separator + "0" + File.separator + "1-1-0.tsfile");
+  private TsFileResource resource;
+
+  @Before
+  public void setUp() throws IOException {
+    prevTimeIndexLevel = config.getTimeIndexLevel();
+    config.setTimeIndexLevel(TimeIndexLevel.FILE_TIME_INDEX);
+    DeviceTimeIndexCache.getInstance().clear();
+    file.getParentFile().mkdirs();
+
+    resource = new TsFileResource(file);
+    for (int i = 0; i < DEVICE_NUM; i++) {
+      resource.putStartTime("root.sg.d" + i, i * 10L);
+      resource.putEndTime("root.sg.d" + i, i * 10L + 5);
+    }
+    resource.serialize();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    config.setTimeIndexLevel(prevTimeIndexLevel);
+    DeviceTimeIndexCache.getInstance().clear();
+    EnvironmentUtils.cleanDir(TestConstant.OUTPUT_DATA_DIR);
+  }
+
+  @Test
+  public void testDegradeTimeIndex() throws IOException {
+    resource.close();
+    assertTrue(resource.hasFileTimeIndex());
+    assertEquals(0, resource.getFileStartTime());
+    assertEquals((DEVICE_NUM - 1) * 10L + 5, resource.getFileEndTime());
+    assertTrue(resource.stillLives((DEVICE_NUM - 1) * 10L + 5));
+    assertFalse(resource.stillLives((DEVICE_NUM - 1) * 10L + 6));
+
+    // the times of the devices are loaded from the .resource file after they are evicted
+    DeviceTimeIndexCache.getInstance().clear();
+    assertEquals(DEVICE_NUM, resource.getDevices().size());
+    for (int i = 0; i < DEVICE_NUM; i++) {
+      assertEquals(i * 10L, resource.getStartTime("root.sg.d" + i));
+      assertEquals(i * 10L + 5, resource.getEndTime("root.sg.d" + i));
+    }
+    assertFalse(resource.containsDevice("root.sg.d" + DEVICE_NUM));
+    assertEquals(1, DeviceTimeIndexCache.getInstance().size());
+  }
+
+  @Test
+  public void testDegradedTimeIndexLoadFailure() throws IOException {
+    resource.close();
+    assertTrue(resource.hasFileTimeIndex());
+
+    // the devices must not silently disappear when the .resource file cannot be read
+    DeviceTimeIndexCache.getInstance().clear();
+    String resourcePath = file.getPath() + TsFileResource.RESOURCE_SUFFIX;
+    assertTrue(new File(resourcePath).delete());
+    try {
+      resource.getDevices();
+      fail();
+    } catch (UncheckedIOException e) {
+      assertTrue(e.getCause().getMessage().contains(resourcePath));
+    }
+  }
+
+  @Test
+  public void testUpdateDegradedTimeIndex() throws IOException {
+    resource.close();
+    assertTrue(resource.hasFileTimeIndex());
+
+    // the times of the devices are kept in memory again once they are changed
+    resource.updateEndTime("root.sg.d0", 1000);
+    assertFalse(resource.hasFileTimeIndex());
+    assertEquals(0, DeviceTimeIndexCache.getInstance().size());
+    assertEquals(1000, resource.getEndTime("root.sg.d0"));
+    assertEquals(15, resource.getEndTime("root.sg.d1"));
+
+    resource.serialize();
+    TsFileResource deserialized = new TsFileResource(file);
+    deserialized.deserialize();
+    assertEquals(1000, deserialized.getEndTime("root.sg.d0"));
+  }
+
+  @Test
+  public void testDeviceTimeIndexLevel() throws IOException {
+    config.setTimeIndexLevel(TimeIndexLevel.DEVICE_TIME_INDEX);
+    resource.close();
+    assertFalse(resource.hasFileTimeIndex());
+    assertEquals(0, DeviceTimeIndexCache.getInstance().size());
+    assertEquals(DEVICE_NUM, resource.getDevices().size());
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.integration;
+
+import static org.apache.iotdb.db.constant.TestConstant.count;
+import static org.apache.iotdb.db.constant.TestConstant.first_value;
+import static org.apache.iotdb.db.constant.TestConstant.last_value;
+import static org.apache.iotdb.db.constant.TestConstant.max_value;
+import static org.apache.iotdb.db.constant.TestConstant.min_time;
+import static org.apache.iotdb.db.constant.TestConstant.sum;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.jdbc.Config;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Aggregations over a device whose TsFiles are partly aggregated from the statistics of sealed,
+ * not overlapped files and partly read, because of unsequence data, deletions, time filters and
+ * memtables.
+ */
+public class IoTDBAggregationStatisticsIT {
+
+  private static final String D1 = "root.sg1.d1";
+  private static final String D2 = "root.sg1.d2";
+
+  @Before
+  public void setUp() throws Exception {
+    EnvironmentUtils.closeStatMonitor();
+    EnvironmentUtils.envSetUp();
+    Class.forName(Config.JDBC_DRIVER_NAME);
+    prepareData();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    EnvironmentUtils.cleanEnv();
+  }
+
+  @Test
+  public void aggregateWithoutFilterTest() {
+    try (Connection connection = DriverManager
+        .getConnection(Config.IOTDB_URL_PREFIX + "127.0.0.1:6667/", "root", "root");
+        Statement statement = connection.createStatement()) {
+      boolean hasResultSet = statement.execute("select count(s1), sum(s1), first_value(s1), "
+          + "last_value(s1), max_value(s1), min_time(s2), count(s2) from root.sg1.d1");
+      assertTrue(hasResultSet);
+      try (ResultSet resultSet = statement.getResultSet()) {
+        assertTrue(resultSet.next());
+        assertEquals("32", resultSet.getString(count(D1 + ".s1")));
+        // the value of time 15 is overwritten by the unsequence data
+        assertEquals("663.0", resultSet.getString(sum(D1 + ".s1")));
+        assertEquals("1", resultSet.getString(first_value(D1 + ".s1")));
+        assertEquals("32", resultSet.getString(last_value(D1 + ".s1")));
+        assertEquals("150", resultSet.getString(max_value(D1 + ".s1")));
+        // time 1 ~ 3 of s2 are deleted
+        assertEquals("4", resultSet.getString(min_time(D1 + ".s2")));
+        assertEquals("29", resultSet.getString(count(D1 + ".s2")));
+      }
+    } catch (SQLException e) {
+      e.printStackTrace();
+      fail(e.getMessage());
+    }
+  }
+
+  @Test
+  public void aggregateWithTimeFilterTest() {
+    try (Connection connection = DriverManager
+        .getConnection(Config.IOTDB_URL_PREFIX + "127.0.0.1:6667/", "root", "root");
+        Statement statement = connection.createStatement()) {
+      boolean hasResultSet = statement.execute("select count(s1), sum(s1), first_value(s1), "
+          + "last_value(s1), min_time(s2), count(s2) from root.sg1.d1 "
+          + "where time >= 5 and time <= 25");
+      assertTrue(hasResultSet);
+      try (ResultSet resultSet = statement.getResultSet()) {
+        assertTrue(resultSet.next());
+        assertEquals("21", resultSet.getString(count(D1 + ".s1")));
+        assertEquals("450.0", resultSet.getString(sum(D1 + ".s1")));
+        assertEquals("5", resultSet.getString(first_value(D1 + ".s1")));
+        assertEquals("25", resultSet.getString(last_value(D1 + ".s1")));
+        assertEquals("5", resultSet.getString(min_time(D1 + ".s2")));
+        assertEquals("21", resultSet.getString(count(D1 + ".s2")));
+      }
+    } catch (SQLException e) {
+      e.printStackTrace();
+      fail(e.getMessage());
+    }
+  }
+
+  @Test
+  public void aggregateAlignByDeviceTest() {
+    try (Connection connection = DriverManager
+        .getConnection(Config.IOTDB_URL_PREFIX + "127.0.0.1:6667/", "root", "root");
+        Statement statement = connection.createStatement()) {
+      boolean hasResultSet = statement
+          .execute("select count(s1), sum(s1) from root.sg1.* align by device");
+      assertTrue(hasResultSet);
+      try (ResultSet resultSet = statement.getResultSet()) {
+        int cnt = 0;
+        while (resultSet.next()) {
+          String device = resultSet.getString("Device");
+          if (D1.equals(device)) {
+            assertEquals("32", resultSet.getString("count(s1)"));
+            assertEquals("663.0", resultSet.getString("sum(s1)"));
+          } else {
+            assertEquals(D2, device);
+            assertEquals("20", resultSet.getString("count(s1)"));
+            assertEquals("210.0", resultSet.getString("sum(s1)"));
+          }
+          cnt++;
+        }
+        assertEquals(2, cnt);
+      }
+    } catch (SQLException e) {
+      e.printStackTrace();
+      fail(e.getMessage());
+    }
+  }
+
+  private void prepareData() {
+    try (Connection connection = DriverManager
+        .getConnection(Config.IOTDB_URL_PREFIX + "127.0.0.1:6667/", "root", "root");
+        Statement statement = connection.createStatement()) {
+      statement.execute("SET STORAGE GROUP TO root.sg1");
+      // three sequence files of time 1 ~ 10, 11 ~ 20 and 21 ~ 30
+      for (int file = 0; file < 3; file++) {
+        for (int time = file * 10 + 1; time <= file * 10 + 10; time++) {
+          statement.execute(String.format(
+              "INSERT INTO %s(timestamp,s1,s2) values(%d,%d,%d)", D1, time, time, time * 10));
+          if (file < 2) {
+            statement.execute(String.format(
+                "INSERT INTO %s(timestamp,s1) values(%d,%d)", D2, time, time));
+          }
+        }
+        statement.execute("flush");
+      }
+      // an unsequence file overlapping the second file
+      statement.execute(String.format("INSERT INTO %s(timestamp,s1) values(15,150)", D1));
+      statement.execute("flush");
+      statement.execute(String.format("delete from %s.s2 where time <= 3", D1));
+      // data in memtable
+      statement.execute(String.format("INSERT INTO %s(timestamp,s1,s2) values(31,31,310)", D1));
+      statement.execute(String.format("INSERT INTO %s(timestamp,s1,s2) values(32,32,320)", D1));
+    } catch (Exception e) {
+      e.printStackTrace();
+      fail(e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.mqtt;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class BinaryPayloadFormatterTest {
+
+    @Test
+    public void formatBinary() {
+        ByteBuf buf = Unpooled.buffer();
+        // device block of root.sg.d1 with two rows
+        writeString(buf, "root.sg.d1");
+        buf.writeShort(2);
+        writeString(buf, "s1");
+        buf.writeByte(TSDataType.DOUBLE.serialize());
+        writeString(buf, "s2");
+        buf.writeByte(TSDataType.TEXT.serialize());
+        buf.writeInt(2);
+        buf.writeLong(1586076045524L);
+        buf.writeByte(0);
+        buf.writeDouble(0.530635D);
+        byte[] text = "on".getBytes(StandardCharsets.UTF_8);
+        buf.writeInt(text.length);
+        buf.writeBytes(text);
+        buf.writeLong(1586076065526L);
+        // s2 is null
+        buf.writeByte(2);
+        buf.writeDouble(0.530695D);
+        // device block of root.sg.d2 with one row
+        writeString(buf, "root.sg.d2");
+        buf.writeShort(1);
+        writeString(buf, "s1");
+        buf.writeByte(TSDataType.INT64.serialize());
+        buf.writeInt(1);
+        buf.writeLong(1586076045524L);
+        buf.writeByte(0);
+        buf.writeLong(100L);
+
+        BinaryPayloadFormatter formatter = new BinaryPayloadFormatter();
+        List<Message> messages = formatter.format(buf);
+        assertEquals(3, messages.size());
+
+        Message message = messages.get(0);
+        assertEquals("root.sg.d1", message.getDevice());
+        assertEquals(Long.valueOf(1586076045524L), message.getTimestamp());
+        assertEquals("s2", message.getMeasurements().get(1));
+        assertEquals(TSDataType.TEXT, message.getDataTypes().get(1));
+        assertEquals(0.530635D, (double) message.getTypedValues().get(0), 0);
+        assertEquals(new Binary("on"), message.getTypedValues().get(1));
+
+        message = messages.get(1);
+        assertEquals(Long.valueOf(1586076065526L), message.getTimestamp());
+        assertEquals(0.530695D, (double) message.getTypedValues().get(0), 0);
+        assertNull(message.getTypedValues().get(1));
+
+        message = messages.get(2);
+        assertEquals("root.sg.d2", message.getDevice());
+        assertEquals(TSDataType.INT64, message.getDataTypes().get(0));
+        assertEquals(100L, message.getTypedValues().get(0));
+    }
+
+    @Test
+    public void formatLongNames() {
+        // the lengths and the measurement number are unsigned
+        StringBuilder builder = new StringBuilder("root.sg.d");
+        while (builder.length() <= Short.MAX_VALUE) {
+            builder.append('d');
+        }
+        String device = builder.toString();
+        int measurementNum = Short.MAX_VALUE + 1;
+        ByteBuf buf = Unpooled.buffer();
+        writeString(buf, device);
+        buf.writeShort(measurementNum);
+        for (int i = 0; i < measurementNum; i++) {
+            writeString(buf, "s" + i);
+            buf.writeByte(TSDataType.INT32.serialize());
+        }
+        buf.writeInt(1);
+        buf.writeLong(1L);
+        byte[] nullBits = new byte[(measurementNum + 7) / 8];
+        Arrays.fill(nullBits, (byte) 0xFF);
+        // only the last measurement has a value
+        nullBits[nullBits.length - 1] = 0x7F;
+        buf.writeBytes(nullBits);
+        buf.writeInt(10);
+
+        List<Message> messages = new BinaryPayloadFormatter().format(buf);
+        assertEquals(1, messages.size());
+        Message message = messages.get(0);
+        assertEquals(device, message.getDevice());
+        assertEquals(measurementNum, message.getMeasurements().size());
+        assertEquals("s" + (measurementNum - 1), message.getMeasurements().get(measurementNum - 1));
+        assertNull(message.getTypedValues().get(0));
+        assertEquals(10, message.getTypedValues().get(measurementNum - 1));
+    }
+
+    @Test
+    public void rejectBadLengths() {
+        // the device name is longer than the payload
+        ByteBuf buf = Unpooled.buffer();
+        buf.writeShort(100);
+        buf.writeBytes("root.sg.d1".getBytes(StandardCharsets.UTF_8));
+        assertRejected(buf);
+
+        // the text is longer than the payload
+        buf = Unpooled.buffer();
+        writeString(buf, "root.sg.d1");
+        buf.writeShort(1);
+        writeString(buf, "s1");
+        buf.writeByte(TSDataType.TEXT.serialize());
+        buf.writeInt(1);
+        buf.writeLong(1L);
+        buf.writeByte(0);
+        buf.writeInt(Integer.MAX_VALUE);
+        buf.writeBytes("on".getBytes(StandardCharsets.UTF_8));
+        assertRejected(buf);
+
+        // there are fewer rows than the row number
+        buf = Unpooled.buffer();
+        writeString(buf, "root.sg.d1");
+        buf.writeShort(1);
+        writeString(buf, "s1");
+        buf.writeByte(TSDataType.INT64.serialize());
+        buf.writeInt(1000);
+        buf.writeLong(1L);
+        buf.writeByte(0);
+        buf.writeLong(100L);
+        assertRejected(buf);
+
+        buf = Unpooled.buffer();
+        writeString(buf, "root.sg.d1");
+        buf.writeShort(1);
+        writeString(buf, "s1");
+        buf.writeByte(TSDataType.INT64.serialize());
+        buf.writeInt(-1);
+        assertRejected(buf);
+    }
+
+    private void assertRejected(ByteBuf buf) {
+        try {
+            new BinaryPayloadFormatter().format(buf);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void getBinaryPayloadFormat() {
+        assertEquals("binary", PayloadFormatManager.getPayloadFormat("binary").getName());
+    }
+
+    private void writeString(ByteBuf buf, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buf.writeShort(bytes.length);
+        buf.writeBytes(bytes);
+    }
+}
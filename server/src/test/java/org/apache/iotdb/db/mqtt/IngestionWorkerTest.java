@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.mqtt;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class IngestionWorkerTest {
+
+    private static final long BAD_PAYLOAD = -1;
+    private static final long HOUR_MS = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * a payload is a timestamp, which is formatted to a message of that timestamp.
+     */
+    private final PayloadFormatter formatter = new PayloadFormatter() {
+        @Override
+        public List<Message> format(ByteBuf payload) {
+            long timestamp = payload.readLong();
+            if (timestamp == BAD_PAYLOAD) {
+                throw new IllegalArgumentException("bad payload");
+            }
+            Message message = new Message();
+            message.setTimestamp(timestamp);
+            return Collections.singletonList(message);
+        }
+
+        @Override
+        public String getName() {
+            return "test";
+        }
+    };
+
+    /**
+     * the timestamps of the inserted batches.
+     */
+    private final BlockingQueue<List<Long>> batches = new LinkedBlockingQueue<>();
+
+    private final MessageInserter inserter = new MessageInserter(null) {
+        @Override
+        public void insert(List<Message> messages) {
+            List<Long> batch = new ArrayList<>(messages.size());
+            for (Message message : messages) {
+                batch.add(message.getTimestamp());
+            }
+            batches.add(batch);
+        }
+    };
+
+    private Thread thread;
+
+    @After
+    public void tearDown() throws InterruptedException {
+        if (thread != null) {
+            thread.interrupt();
+            thread.join();
+        }
+    }
+
+    @Test
+    public void insertFullBatches() throws InterruptedException {
+        IngestionWorker worker = new IngestionWorker(formatter, inserter, 100, 3, HOUR_MS);
+        for (long i = 1; i <= 7; i++) {
+            worker.submit(Unpooled.copyLong(i));
+        }
+        start(worker);
+
+        assertEquals(Arrays.asList(1L, 2L, 3L), batches.poll(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(4L, 5L, 6L), batches.poll(10, TimeUnit.SECONDS));
+        // the last message waits for more messages
+        assertNull(batches.poll(100, TimeUnit.MILLISECONDS));
+        worker.stop();
+        thread.join(10_000);
+        assertFalse(thread.isAlive());
+        assertEquals(Collections.singletonList(7L), batches.poll());
+    }
+
+    @Test
+    public void insertAfterLinger() throws InterruptedException {
+        long lingerMs = 100;
+        IngestionWorker worker = new IngestionWorker(formatter, inserter, 100, 100, lingerMs);
+        long startTime = System.currentTimeMillis();
+        start(worker);
+        worker.submit(Unpooled.copyLong(1));
+        worker.submit(Unpooled.copyLong(2));
+
+        assertEquals(Arrays.asList(1L, 2L), batches.poll(10, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() - startTime >= lingerMs);
+        // a new batch waits for its own linger
+        worker.submit(Unpooled.copyLong(3));
+        assertEquals(Collections.singletonList(3L), batches.poll(10, TimeUnit.SECONDS));
+        assertTrue(batches.isEmpty());
+    }
+
+    @Test
+    public void drainWhenStopped() throws InterruptedException {
+        IngestionWorker worker = new IngestionWorker(formatter, inserter, 100, 100, HOUR_MS);
+        worker.submit(Unpooled.copyLong(1));
+        // a payload that cannot be formatted is skipped
+        worker.submit(Unpooled.copyLong(BAD_PAYLOAD));
+        worker.submit(Unpooled.copyLong(2));
+        worker.stop();
+
+        // the worker exits after inserting the payloads submitted before stop()
+        worker.run();
+        assertEquals(Arrays.asList(1L, 2L), batches.poll());
+        assertTrue(batches.isEmpty());
+    }
+
+    private void start(IngestionWorker worker) {
+        thread = new Thread(worker, "IngestionWorkerTest");
+        thread.start();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.mqtt;
+
+import org.apache.iotdb.db.qp.executor.IPlanExecutor;
+import org.apache.iotdb.db.qp.physical.PhysicalPlan;
+import org.apache.iotdb.db.qp.physical.crud.InsertRowPlan;
+import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MessageInserterTest {
+
+    @Test
+    public void insertTabletAndRow() throws Exception {
+        IPlanExecutor executor = mock(IPlanExecutor.class);
+        when(executor.processNonQuery(any())).thenReturn(true);
+        MessageInserter inserter = new MessageInserter(executor);
+
+        List<Message> messages = new ArrayList<>();
+        messages.add(message("root.sg.d1", 3L, "3.0", "30"));
+        messages.add(message("root.sg.d1", 1L, "1.0", null));
+        messages.add(message("root.sg.d2", 1L, "1.0", "10"));
+        messages.add(message("root.sg.d1", 2L, "2.0", "20"));
+        inserter.insert(messages);
+
+        ArgumentCaptor<PhysicalPlan> captor = ArgumentCaptor.forClass(PhysicalPlan.class);
+        verify(executor, times(2)).processNonQuery(captor.capture());
+        List<PhysicalPlan> plans = captor.getAllValues();
+
+        assertTrue(plans.get(0) instanceof InsertTabletPlan);
+        InsertTabletPlan tabletPlan = (InsertTabletPlan) plans.get(0);
+        assertEquals("root.sg.d1", tabletPlan.getDeviceId().getFullPath());
+        assertEquals(3, tabletPlan.getRowCount());
+        assertArrayEquals(new long[]{1L, 2L, 3L}, tabletPlan.getTimes());
+        assertArrayEquals(new TSDataType[]{TSDataType.FLOAT, TSDataType.INT32},
+                tabletPlan.getDataTypes());
+        assertArrayEquals(new float[]{1.0f, 2.0f, 3.0f}, (float[]) tabletPlan.getColumns()[0], 0);
+        assertTrue(tabletPlan.getBitMaps()[1].isMarked(0));
+        assertEquals(20, ((int[]) tabletPlan.getColumns()[1])[1]);
+
+        assertTrue(plans.get(1) instanceof InsertRowPlan);
+        assertEquals("root.sg.d2", ((InsertRowPlan) plans.get(1)).getDeviceId().getFullPath());
+    }
+
+    @Test
+    public void insertRowsOfInconsistentTypes() throws Exception {
+        IPlanExecutor executor = mock(IPlanExecutor.class);
+        when(executor.processNonQuery(any())).thenReturn(true);
+        MessageInserter inserter = new MessageInserter(executor);
+
+        inserter.insert(Arrays.asList(message("root.sg.d1", 1L, "1.0", "10"),
+                message("root.sg.d1", 2L, "2.0", "on")));
+
+        verify(executor, times(2)).processNonQuery(any(InsertRowPlan.class));
+    }
+
+    private Message message(String device, long timestamp, String... values) {
+        Message message = new Message();
+        message.setDevice(device);
+        message.setTimestamp(timestamp);
+        message.setMeasurements(Arrays.asList("s1", "s2"));
+        message.setValues(Arrays.asList(values));
+        return message;
+    }
+}
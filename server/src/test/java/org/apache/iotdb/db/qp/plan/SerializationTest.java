@@ -20,12 +20,16 @@
 package org.apache.iotdb.db.qp.plan;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,12 +40,15 @@ import org.apache.iotdb.db.exception.query.QueryProcessException;
 import org.apache.iotdb.db.metadata.PartialPath;
 import org.apache.iotdb.db.qp.Planner;
 import org.apache.iotdb.db.qp.physical.PhysicalPlan;
+import org.apache.iotdb.db.qp.physical.PhysicalPlan.PhysicalPlanType;
+import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
 import org.apache.iotdb.db.qp.physical.sys.FlushPlan;
 import org.apache.iotdb.db.service.IoTDB;
 import org.apache.iotdb.db.utils.EnvironmentUtils;
 import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.utils.BitMap;
 import org.apache.iotdb.tsfile.utils.Pair;
 import org.junit.After;
 import org.junit.Before;
@@ -94,6 +101,62 @@ public class SerializationTest {
     assertEquals(plan, planB);
   }
 
+  @Test
+  public void testInsertTablet() throws IOException, IllegalPathException {
+    InsertTabletPlan plan = createInsertTabletPlan();
+    ByteBuffer buffer = ByteBuffer.allocate(4096);
+    plan.serialize(buffer);
+    buffer.flip();
+    // a plan without bitmaps keeps the layout of older versions
+    assertEquals(PhysicalPlanType.BATCHINSERT.ordinal(), buffer.get(0));
+    InsertTabletPlan planB = (InsertTabletPlan) PhysicalPlan.Factory.create(buffer);
+    assertEquals(plan, planB);
+    assertNull(planB.getBitMaps());
+    assertFalse(buffer.hasRemaining());
+
+    BitMap bitMap = new BitMap(3);
+    bitMap.mark(1);
+    plan.setBitMaps(new BitMap[]{null, bitMap});
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    try (DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream)) {
+      plan.serialize(dataOutputStream);
+      buffer = ByteBuffer.wrap(byteArrayOutputStream.toByteArray());
+      assertEquals(PhysicalPlanType.BATCHINSERT_WITH_BITMAPS.ordinal(), buffer.get(0));
+      planB = (InsertTabletPlan) PhysicalPlan.Factory.create(buffer);
+      assertEquals(plan, planB);
+      assertNull(planB.getBitMaps()[0]);
+      assertEquals(bitMap, planB.getBitMaps()[1]);
+      assertFalse(buffer.hasRemaining());
+    }
+  }
+
+  @Test
+  public void testAlignedInsertTablet() throws IOException, IllegalPathException {
+    InsertTabletPlan plan = createInsertTabletPlan();
+    plan.setAligned(true);
+    ByteBuffer buffer = ByteBuffer.allocate(4096);
+    plan.serialize(buffer);
+    buffer.flip();
+    assertEquals(PhysicalPlanType.ALIGNED_BATCHINSERT.ordinal(), buffer.get(0));
+    InsertTabletPlan planB = (InsertTabletPlan) PhysicalPlan.Factory.create(buffer);
+    assertEquals(plan, planB);
+    assertTrue(planB.isAligned());
+    assertNull(planB.getBitMaps()[0]);
+    assertNull(planB.getBitMaps()[1]);
+    assertFalse(buffer.hasRemaining());
+  }
+
+  private InsertTabletPlan createInsertTabletPlan() throws IllegalPathException {
+    InsertTabletPlan plan = new InsertTabletPlan(new PartialPath("root.vehicle.d1"),
+        new String[]{"s1", "s2"}, Arrays.asList(TSDataType.FLOAT.ordinal(),
+        TSDataType.INT64.ordinal()));
+    plan.setTimes(new long[]{1, 2, 3});
+    plan.setColumns(new Object[]{new float[]{1.0f, 2.0f, 3.0f}, new long[]{1, 0, 3}});
+    plan.setRowCount(3);
+    plan.setIndex(5);
+    return plan;
+  }
+
   @Test
   public void testFlush() throws IOException, IllegalPathException {
     Map<PartialPath, List<Pair<Long, Boolean>>> storageGroupPartitionIds = new HashMap<>();
@@ -18,12 +18,61 @@
  */
 package org.apache.iotdb.db.query.control;
 
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.exception.StorageEngineException;
 import org.junit.Test;
 
 public class QueryResourceManagerTest {
 
+  private final QueryResourceManager manager = QueryResourceManager.getInstance();
+
+  @Test
+  public void testAllocateAndReleaseMemory() throws StorageEngineException {
+    long queryId = manager.assignQueryId(true, 1024, 1);
+    try {
+      assertTrue(manager.allocateMemory(queryId, 1024));
+      assertTrue(manager.hasFreeMemory());
+      manager.releaseMemory(queryId, 1024);
+      assertTrue(manager.hasFreeMemory());
+    } finally {
+      manager.endQuery(queryId);
+    }
+  }
+
+  @Test
+  public void testMemoryExhausted() throws StorageEngineException {
+    long totalMemory = IoTDBDescriptor.getInstance().getConfig()
+        .getAllocateMemoryForReadWithoutCache();
+    long queryId = manager.assignQueryId(true, 1024, 1);
+    try {
+      // the memory is accounted even if it exceeds the free memory
+      assertFalse(manager.allocateMemory(queryId, totalMemory + 1));
+      assertFalse(manager.hasFreeMemory());
+    } finally {
+      // all memory held by the query is put back when it ends
+      manager.endQuery(queryId);
+    }
+    assertTrue(manager.hasFreeMemory());
+  }
+
   @Test
-  public void test() {
-    //TODO
+  public void testAllocateAfterQueryEnd() throws StorageEngineException {
+    long totalMemory = IoTDBDescriptor.getInstance().getConfig()
+        .getAllocateMemoryForReadWithoutCache();
+    long queryId = manager.assignQueryId(true, 1024, 1);
+    manager.endQuery(queryId);
+    assertFalse(manager.allocateMemory(queryId, totalMemory + 1));
+    assertTrue(manager.hasFreeMemory());
+    // releasing memory of an ended query does not change the free memory
+    manager.releaseMemory(queryId, totalMemory + 1);
+    long anotherQueryId = manager.assignQueryId(true, 1024, 1);
+    try {
+      assertFalse(manager.allocateMemory(anotherQueryId, totalMemory + 1));
+    } finally {
+      manager.endQuery(anotherQueryId);
+    }
   }
 }
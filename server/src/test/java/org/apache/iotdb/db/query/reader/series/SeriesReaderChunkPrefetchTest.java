@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.query.reader.series;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.engine.cache.ChunkCache;
+import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
+import org.apache.iotdb.db.exception.StorageEngineException;
+import org.apache.iotdb.db.exception.metadata.IllegalPathException;
+import org.apache.iotdb.db.exception.metadata.MetadataException;
+import org.apache.iotdb.db.metadata.PartialPath;
+import org.apache.iotdb.db.query.context.QueryContext;
+import org.apache.iotdb.db.query.control.QueryResourceManager;
+import org.apache.iotdb.tsfile.exception.write.WriteProcessException;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.TimeValuePair;
+import org.apache.iotdb.tsfile.read.reader.IPointReader;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SeriesReaderChunkPrefetchTest {
+
+  private static final String SERIES_READER_TEST_SG = "root.seriesReaderTest";
+  private static final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+
+  private List<String> deviceIds = new ArrayList<>();
+  private List<MeasurementSchema> measurementSchemas = new ArrayList<>();
+
+  private List<TsFileResource> seqResources = new ArrayList<>();
+  private List<TsFileResource> unseqResources = new ArrayList<>();
+
+  private boolean prevEnableChunkPrefetch;
+  private int prevChunkPrefetchNum;
+  private int prevChunkPrefetchCoalesceSize;
+
+  @Before
+  public void setUp() throws MetadataException, IOException, WriteProcessException {
+    prevEnableChunkPrefetch = config.isEnableChunkPrefetch();
+    prevChunkPrefetchNum = config.getChunkPrefetchNum();
+    prevChunkPrefetchCoalesceSize = config.getChunkPrefetchCoalesceSize();
+    // each sequence file has 5 chunks of the series, read 2 of them ahead one by one
+    config.setChunkPrefetchNum(2);
+    config.setChunkPrefetchCoalesceSize(0);
+    SeriesReaderTestUtil.setUp(measurementSchemas, deviceIds, seqResources, unseqResources);
+  }
+
+  @After
+  public void tearDown() throws IOException, StorageEngineException {
+    config.setEnableChunkPrefetch(prevEnableChunkPrefetch);
+    config.setChunkPrefetchNum(prevChunkPrefetchNum);
+    config.setChunkPrefetchCoalesceSize(prevChunkPrefetchCoalesceSize);
+    SeriesReaderTestUtil.tearDown(seqResources, unseqResources);
+  }
+
+  @Test
+  public void testSameResultsAsSyncRead() throws IOException, IllegalPathException {
+    for (boolean ascending : new boolean[]{true, false}) {
+      for (String sensor : new String[]{"sensor0", "sensor5"}) {
+        List<TimeValuePair> expected = readAll(sensor, ascending, false);
+        assertEquals(500, expected.size());
+        ChunkCache.getInstance().clear();
+
+        config.setEnableChunkPrefetch(true);
+        SeriesReader seriesReader = createSeriesReader(sensor, new QueryContext(), ascending);
+        assertNotNull(seriesReader.getChunkPrefetcher());
+        assertEquals(expected, read(seriesReader, Integer.MAX_VALUE));
+        config.setEnableChunkPrefetch(false);
+        ChunkCache.getInstance().clear();
+      }
+    }
+  }
+
+  @Test
+  public void testCancelWhenQueryReleased()
+      throws IOException, IllegalPathException, StorageEngineException {
+    List<TimeValuePair> expected = readAll("sensor0", true, false);
+    ChunkCache.getInstance().clear();
+
+    config.setEnableChunkPrefetch(true);
+    QueryResourceManager queryResourceManager = QueryResourceManager.getInstance();
+    long queryId = queryResourceManager.assignQueryId(true, 1024, 1);
+    long otherQueryId = queryResourceManager.assignQueryId(true, 1024, 1);
+    try {
+      SeriesReader seriesReader = createSeriesReader("sensor0", new QueryContext(queryId), true);
+      SeriesReader otherSeriesReader = createSeriesReader("sensor0",
+          new QueryContext(otherQueryId), true);
+      IPointReader pointReader = new SeriesRawDataPointReader(seriesReader);
+      // some chunks have been consumed and the following ones are being read ahead
+      List<TimeValuePair> results = read(pointReader, 150);
+
+      queryResourceManager.endQuery(queryId);
+      assertTrue(seriesReader.getChunkPrefetcher().isCancelled());
+      // only the prefetchers of the released query are cancelled
+      assertFalse(otherSeriesReader.getChunkPrefetcher().isCancelled());
+
+      // the remaining chunks are read synchronously
+      results.addAll(read(pointReader, Integer.MAX_VALUE));
+      assertEquals(expected, results);
+      assertEquals(expected, read(otherSeriesReader, Integer.MAX_VALUE));
+    } finally {
+      queryResourceManager.endQuery(queryId);
+      queryResourceManager.endQuery(otherQueryId);
+    }
+  }
+
+  @Test
+  public void testDisabled() throws IllegalPathException {
+    config.setEnableChunkPrefetch(false);
+    assertNull(createSeriesReader("sensor0", new QueryContext(), true).getChunkPrefetcher());
+  }
+
+  private List<TimeValuePair> readAll(String sensor, boolean ascending, boolean prefetch)
+      throws IOException, IllegalPathException {
+    config.setEnableChunkPrefetch(prefetch);
+    return read(createSeriesReader(sensor, new QueryContext(), ascending), Integer.MAX_VALUE);
+  }
+
+  private SeriesReader createSeriesReader(String sensor, QueryContext context, boolean ascending)
+      throws IllegalPathException {
+    return new SeriesReader(
+        new PartialPath(SERIES_READER_TEST_SG + ".device0." + sensor),
+        Collections.singleton(sensor), TSDataType.INT32, context, seqResources, unseqResources,
+        null, null, ascending);
+  }
+
+  private List<TimeValuePair> read(SeriesReader seriesReader, int limit) throws IOException {
+    return read(new SeriesRawDataPointReader(seriesReader), limit);
+  }
+
+  private List<TimeValuePair> read(IPointReader pointReader, int limit) throws IOException {
+    List<TimeValuePair> results = new ArrayList<>();
+    while (results.size() < limit && pointReader.hasNextTimeValuePair()) {
+      results.add(pointReader.nextTimeValuePair());
+    }
+    return results;
+  }
+}
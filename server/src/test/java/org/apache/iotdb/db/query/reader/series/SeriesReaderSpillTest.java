@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.query.reader.series;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
+import org.apache.iotdb.db.exception.StorageEngineException;
+import org.apache.iotdb.db.exception.metadata.IllegalPathException;
+import org.apache.iotdb.db.exception.metadata.MetadataException;
+import org.apache.iotdb.db.metadata.PartialPath;
+import org.apache.iotdb.db.query.context.QueryContext;
+import org.apache.iotdb.db.query.control.QueryResourceManager;
+import org.apache.iotdb.tsfile.exception.write.WriteProcessException;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.TimeValuePair;
+import org.apache.iotdb.tsfile.read.reader.IPointReader;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SeriesReaderSpillTest {
+
+  private static final String SERIES_READER_TEST_SG = "root.seriesReaderTest";
+  private static final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+
+  private List<String> deviceIds = new ArrayList<>();
+  private List<MeasurementSchema> measurementSchemas = new ArrayList<>();
+
+  private List<TsFileResource> seqResources = new ArrayList<>();
+  private List<TsFileResource> unseqResources = new ArrayList<>();
+
+  @Before
+  public void setUp() throws MetadataException, IOException, WriteProcessException {
+    SeriesReaderTestUtil.setUp(measurementSchemas, deviceIds, seqResources, unseqResources);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    SeriesReaderTestUtil.tearDown(seqResources, unseqResources);
+  }
+
+  @Test
+  public void testSpillWhenMemoryExhausted()
+      throws IOException, IllegalPathException, StorageEngineException {
+    List<TimeValuePair> expected = read(createSeriesReader(new QueryContext()),
+        Integer.MAX_VALUE);
+
+    QueryResourceManager queryResourceManager = QueryResourceManager.getInstance();
+    long queryId = queryResourceManager.assignQueryId(true, 1024, 1);
+    long otherQueryId = queryResourceManager.assignQueryId(true, 1024, 1);
+    try {
+      // the other query takes all the memory for reading
+      queryResourceManager
+          .allocateMemory(otherQueryId, config.getAllocateMemoryForReadWithoutCache());
+      assertFalse(queryResourceManager.hasFreeMemory());
+
+      IPointReader pointReader = new SeriesRawDataPointReader(
+          createSeriesReader(new QueryContext(queryId)));
+      // the overlapped unseq pages are merged from temporary files
+      List<TimeValuePair> results = read(pointReader, 10);
+      assertTrue(countSpillFiles() > 0);
+
+      results.addAll(read(pointReader, Integer.MAX_VALUE));
+      assertEquals(expected, results);
+    } finally {
+      queryResourceManager.endQuery(queryId);
+      queryResourceManager.endQuery(otherQueryId);
+    }
+    assertEquals(0, countSpillFiles());
+    assertTrue(queryResourceManager.hasFreeMemory());
+  }
+
+  private int countSpillFiles() {
+    File[] files = new File(config.getQueryDir())
+        .listFiles((dir, name) -> name.endsWith("_spill"));
+    return files == null ? 0 : files.length;
+  }
+
+  private SeriesReader createSeriesReader(QueryContext context) throws IllegalPathException {
+    return new SeriesReader(
+        new PartialPath(SERIES_READER_TEST_SG + ".device0.sensor0"),
+        Collections.singleton("sensor0"), TSDataType.INT32, context, seqResources,
+        unseqResources, null, null, true);
+  }
+
+  private List<TimeValuePair> read(SeriesReader seriesReader, int limit) throws IOException {
+    return read(new SeriesRawDataPointReader(seriesReader), limit);
+  }
+
+  private List<TimeValuePair> read(IPointReader pointReader, int limit) throws IOException {
+    List<TimeValuePair> results = new ArrayList<>();
+    while (results.size() < limit && pointReader.hasNextTimeValuePair()) {
+      results.add(pointReader.nextTimeValuePair());
+    }
+    return results;
+  }
+}
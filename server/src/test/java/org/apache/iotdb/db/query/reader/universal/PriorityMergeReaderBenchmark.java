@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.query.reader.universal;
+
+import java.io.IOException;
+
+/**
+ * PriorityMergeReader benchmark. Merges 10/100/1000 overlapping sources, which is what a series
+ * with many overlapped unsequence files looks like to the merge reader.
+ */
+public class PriorityMergeReaderBenchmark {
+
+  private static int[] numOfSources = {10, 100, 1000};
+  private static int totalPoints = 10_000_000;
+  private static int rounds = 3;
+
+  public static void main(String[] args) throws IOException {
+    for (int sourceNum : numOfSources) {
+      for (int round = 0; round < rounds; round++) {
+        bench(sourceNum);
+      }
+    }
+  }
+
+  private static void bench(int sourceNum) throws IOException {
+    int pointsPerSource = totalPoints / sourceNum;
+    PriorityMergeReader reader = new PriorityMergeReader();
+    for (int i = 0; i < sourceNum; i++) {
+      // every source starts at a different offset and steps over the same range, so all of
+      // them overlap each other and some timestamps collide
+      reader.addReader(new FakedSeriesReader(i, pointsPerSource, sourceNum - 1, 100), i);
+    }
+
+    final long startTime = System.currentTimeMillis();
+    long count = 0;
+    while (reader.hasNextTimeValuePair()) {
+      reader.nextTimeValuePair();
+      count++;
+    }
+    final long endTime = System.currentTimeMillis();
+    reader.close();
+    System.out.println(String.format(
+        "Num of sources: %d, " + "Num of merged points: %d, " + "The total time: %d ms. ",
+        sourceNum, count, endTime - startTime));
+  }
+}
@@ -20,6 +20,10 @@
 package org.apache.iotdb.db.query.reader.universal;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
 import org.apache.iotdb.tsfile.read.TimeValuePair;
 import org.junit.Assert;
 import org.junit.Test;
@@ -49,6 +53,79 @@ public class PriorityMergeReaderTest {
         new long[]{4, 6});
   }
 
+  @Test
+  public void testDesc() throws IOException {
+    DescPriorityMergeReader reader = new DescPriorityMergeReader();
+    reader.addReader(new FakedSeriesReader(new long[]{5, 3, 1}, 1), 1);
+    reader.addReader(new FakedSeriesReader(new long[]{6, 5, 2}, 2), 2);
+    reader.addReader(new FakedSeriesReader(new long[]{5, 4}, 3), 0);
+
+    long[] retTimestamp = new long[]{6, 5, 4, 3, 2, 1};
+    long[] retValue = new long[]{2, 2, 3, 1, 2, 1};
+    int i = 0;
+    while (reader.hasNextTimeValuePair()) {
+      TimeValuePair timeValuePair = reader.nextTimeValuePair();
+      Assert.assertEquals(retTimestamp[i], timeValuePair.getTimestamp());
+      Assert.assertEquals(retValue[i], timeValuePair.getValue().getValue());
+      i++;
+    }
+    Assert.assertEquals(retTimestamp.length, i);
+  }
+
+  @Test
+  public void testManySources() throws IOException {
+    // more sources than the initial capacity of the tree
+    PriorityMergeReader reader = new PriorityMergeReader();
+    int sourceNum = 37;
+    for (int i = 0; i < sourceNum; i++) {
+      reader.addReader(new FakedSeriesReader(i % 5, 20, 5, 1000), i);
+    }
+    long expectedTime = 0;
+    while (reader.hasNextTimeValuePair()) {
+      Assert.assertEquals(expectedTime++, reader.nextTimeValuePair().getTimestamp());
+    }
+    Assert.assertEquals(100, expectedTime);
+  }
+
+  @Test
+  public void testAddDuringMerge() throws IOException {
+    // readers are added while the merge is going on, as SeriesReader does for overlapped files
+    Random random = new Random(0);
+    PriorityMergeReader reader = new PriorityMergeReader();
+    TreeMap<Long, Long> expected = new TreeMap<>();
+    List<Long> results = new ArrayList<>();
+    long lastTime = -1;
+    int priority = 0;
+    for (int round = 0; round < 200; round++) {
+      int addNum = random.nextInt(3);
+      for (int i = 0; i < addNum; i++) {
+        priority++;
+        long[] times = new long[1 + random.nextInt(20)];
+        long time = lastTime + 1 + random.nextInt(10);
+        for (int j = 0; j < times.length; j++) {
+          times[j] = time;
+          // the highest priority overwrites the value of the same time
+          expected.put(time, (long) priority);
+          time += 1 + random.nextInt(5);
+        }
+        reader.addReader(new FakedSeriesReader(times, priority), priority);
+      }
+      for (int i = random.nextInt(5); i > 0 && reader.hasNextTimeValuePair(); i--) {
+        TimeValuePair pair = reader.nextTimeValuePair();
+        lastTime = pair.getTimestamp();
+        results.add(lastTime);
+        Assert.assertEquals(expected.get(lastTime).longValue(), pair.getValue().getLong());
+      }
+    }
+    while (reader.hasNextTimeValuePair()) {
+      TimeValuePair pair = reader.nextTimeValuePair();
+      results.add(pair.getTimestamp());
+      Assert.assertEquals(expected.get(pair.getTimestamp()).longValue(),
+          pair.getValue().getLong());
+    }
+    Assert.assertEquals(new ArrayList<>(expected.keySet()), results);
+  }
+
   private void test(long[] retTimestamp, long[] retValue, long[]... sources) throws IOException {
     PriorityMergeReader priorityMergeReader = new PriorityMergeReader();
     for (int i = 0; i < sources.length; i++) {
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TsFileUploadManagerTest {
+
+  private static final long SESSION_ID = 1;
+
+  private final File uploadDir = new File("target" + File.separator + "upload");
+  private final File sourceDir = new File("target" + File.separator + "upload-source");
+  private TsFileUploadManager manager;
+
+  @Before
+  public void setUp() throws IOException {
+    FileUtils.deleteDirectory(uploadDir);
+    FileUtils.deleteDirectory(sourceDir);
+    assertTrue(sourceDir.mkdirs());
+    manager = new TsFileUploadManager(uploadDir);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(uploadDir);
+    FileUtils.deleteDirectory(sourceDir);
+  }
+
+  @Test
+  public void testUpload() throws IOException {
+    byte[] content = new byte[10000];
+    for (int i = 0; i < content.length; i++) {
+      content[i] = (byte) i;
+    }
+    byte[] resource = "resource".getBytes();
+    File source = new File(sourceDir, "a.tsfile");
+    Files.write(source.toPath(), content);
+    File sourceResource = new File(sourceDir, "a.tsfile.resource");
+    Files.write(sourceResource.toPath(), resource);
+
+    manager.start(SESSION_ID, "a.tsfile");
+    // the chunks arrive out of order
+    manager.write(SESSION_ID, "a.tsfile", false, 6000, ByteBuffer.wrap(content, 6000, 4000));
+    manager.write(SESSION_ID, "a.tsfile", true, 0, ByteBuffer.wrap(resource));
+    manager.write(SESSION_ID, "a.tsfile", false, 0, ByteBuffer.wrap(content, 0, 6000));
+    File tsFile = manager.end(SESSION_ID, "a.tsfile", TsFileUploadManager.md5(source),
+        TsFileUploadManager.md5(sourceResource));
+
+    // named like the TsFiles of IoTDB, so that the version can be parsed when it is loaded
+    assertTrue(tsFile.getName().matches("\\d+-1-0\\.tsfile"));
+    assertArrayEquals(content, Files.readAllBytes(tsFile.toPath()));
+    File resourceFile = new File(tsFile.getPath() + ".resource");
+    assertArrayEquals(resource, Files.readAllBytes(resourceFile.toPath()));
+
+    manager.remove(SESSION_ID, "a.tsfile");
+    assertFalse(tsFile.exists());
+    assertFalse(resourceFile.exists());
+  }
+
+  @Test
+  public void testWrongMd5() throws IOException {
+    manager.start(SESSION_ID, "a.tsfile");
+    manager.write(SESSION_ID, "a.tsfile", false, 0, ByteBuffer.wrap(new byte[]{1, 2, 3}));
+    try {
+      manager.end(SESSION_ID, "a.tsfile", "123", null);
+      fail();
+    } catch (IOException e) {
+      assertTrue(e.getMessage().contains("MD5"));
+    }
+    // the upload is discarded
+    String[] files = new File(uploadDir, String.valueOf(SESSION_ID)).list();
+    assertEquals(0, files == null ? 0 : files.length);
+    try {
+      manager.write(SESSION_ID, "a.tsfile", false, 3, ByteBuffer.wrap(new byte[]{4}));
+      fail();
+    } catch (IOException e) {
+      assertTrue(e.getMessage().contains("not started"));
+    }
+  }
+
+  @Test
+  public void testReleaseSession() throws IOException {
+    manager.start(SESSION_ID, "a.tsfile");
+    manager.write(SESSION_ID, "a.tsfile", false, 0, ByteBuffer.wrap(new byte[]{1, 2, 3}));
+    manager.start(SESSION_ID, "b.tsfile");
+    manager.releaseSession(SESSION_ID);
+    assertFalse(new File(uploadDir, String.valueOf(SESSION_ID)).exists());
+  }
+
+  @Test
+  public void testDeleteStaleUploads() throws IOException {
+    manager.start(SESSION_ID, "a.tsfile");
+    manager.write(SESSION_ID, "a.tsfile", false, 0, ByteBuffer.wrap(new byte[]{1, 2, 3}));
+    File sessionDir = new File(uploadDir, String.valueOf(SESSION_ID));
+    assertTrue(sessionDir.exists());
+
+    // the uploads left by the last run are deleted when the server restarts
+    manager = new TsFileUploadManager(uploadDir);
+    assertFalse(sessionDir.exists());
+    manager.start(SESSION_ID, "a.tsfile");
+    manager.write(SESSION_ID, "a.tsfile", false, 0, ByteBuffer.wrap(new byte[]{1, 2, 3}));
+    assertEquals(1, sessionDir.list().length);
+  }
+}
@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.sync.receiver.transfer;
+
+import static org.apache.iotdb.db.sync.conf.SyncConstant.ERROR_CODE;
+import static org.apache.iotdb.db.sync.conf.SyncConstant.SUCCESS_CODE;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.iotdb.db.conf.IoTDBConstant;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
+import org.apache.iotdb.db.exception.StorageEngineException;
+import org.apache.iotdb.db.exception.StartupException;
+import org.apache.iotdb.db.sync.conf.SyncConstant;
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.db.utils.FilePathUtils;
+import org.apache.iotdb.service.sync.thrift.ConfirmInfo;
+import org.apache.iotdb.service.sync.thrift.SyncStatus;
+import org.apache.iotdb.tsfile.compress.ICompressor;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.thrift.TException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SyncServiceImplTest {
+
+  private static final String SG_NAME = "root.sg";
+  private static final String UUID = "sender";
+  /**
+   * the files are .resource files, so that they are not loaded when they are ended
+   */
+  private static final String FILE_NAME = "1-1-0.tsfile" + TsFileResource.RESOURCE_SUFFIX;
+  private static final String OTHER_FILE_NAME = "2-2-0.tsfile" + TsFileResource.RESOURCE_SUFFIX;
+  private static final int CHUNK_SIZE = 1000;
+
+  private final byte[] content = new byte[3 * CHUNK_SIZE];
+  private SyncServiceImpl service;
+  private ConfirmInfo confirmInfo;
+
+  @Before
+  public void setUp() throws IOException, StartupException, InterruptedException {
+    IoTDBDescriptor.getInstance().getConfig().setSyncEnable(true);
+    EnvironmentUtils.closeStatMonitor();
+    EnvironmentUtils.envSetUp();
+    new Random(0).nextBytes(content);
+    service = new SyncServiceImpl();
+    confirmInfo = new ConfirmInfo("127.0.0.1", UUID,
+        IoTDBDescriptor.getInstance().getConfig().getPartitionInterval(), IoTDBConstant.VERSION);
+    startSyncProcess();
+  }
+
+  @After
+  public void tearDown() throws InterruptedException, IOException, StorageEngineException {
+    EnvironmentUtils.cleanEnv();
+    IoTDBDescriptor.getInstance().getConfig().setSyncEnable(false);
+  }
+
+  @Test
+  public void testSyncFileInChunks()
+      throws IOException, NoSuchAlgorithmException, InterruptedException, ExecutionException {
+    SyncStatus status = service.initSyncFile(SG_NAME, FILE_NAME, content.length);
+    assertEquals(SUCCESS_CODE, status.code);
+    assertFalse(SyncConstant.FILE_RESUMED.equals(status.msg));
+
+    // the chunks are sent out of order, and through another connection attached to the process
+    ExecutorService connection = Executors.newSingleThreadExecutor();
+    try {
+      assertEquals(SUCCESS_CODE, connection.submit(() -> {
+        assertEquals(SUCCESS_CODE, service.attach(confirmInfo).code);
+        return sendChunk(2, CompressionType.UNCOMPRESSED);
+      }).get().code);
+    } finally {
+      connection.shutdownNow();
+    }
+    assertEquals(SUCCESS_CODE, sendChunk(0, CompressionType.SNAPPY).code);
+    assertEquals(SUCCESS_CODE, sendChunk(1, CompressionType.UNCOMPRESSED).code);
+    // a chunk whose MD5 differs is rejected
+    assertEquals(ERROR_CODE, service.syncFileChunk(SG_NAME, FILE_NAME, 0,
+        ByteBuffer.wrap(content, 0, CHUNK_SIZE), (byte) CompressionType.UNCOMPRESSED.serialize(),
+        "123").code);
+
+    assertEquals(SUCCESS_CODE, service.endSyncFile(SG_NAME, FILE_NAME, md5(content)).code);
+    File file = new File(getSyncFolder(),
+        SyncConstant.RECEIVER_DATA_FOLDER_NAME + File.separator + SG_NAME + File.separator
+            + FILE_NAME);
+    assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+    assertFalse(getPartialFile(FILE_NAME).exists());
+  }
+
+  @Test
+  public void testResume() throws IOException, NoSuchAlgorithmException {
+    assertEquals(SUCCESS_CODE, service.initSyncFile(SG_NAME, FILE_NAME, content.length).code);
+    assertEquals(SUCCESS_CODE, sendChunk(0, CompressionType.UNCOMPRESSED).code);
+
+    // the partial file of the same length is kept
+    SyncStatus status = service.initSyncFile(SG_NAME, FILE_NAME, content.length);
+    assertEquals(SUCCESS_CODE, status.code);
+    assertEquals(SyncConstant.FILE_RESUMED, status.msg);
+    // but not if the length differs
+    status = service.initSyncFile(SG_NAME, FILE_NAME, content.length + 1);
+    assertEquals(SUCCESS_CODE, status.code);
+    assertFalse(SyncConstant.FILE_RESUMED.equals(status.msg));
+  }
+
+  @Test
+  public void testWholeFileMd5Mismatch() throws IOException, NoSuchAlgorithmException {
+    assertEquals(SUCCESS_CODE, service.initSyncFile(SG_NAME, FILE_NAME, content.length).code);
+    // the other chunks are lost, e.g., they are not on the disk when the receiver crashes, so the
+    // file has holes of zeros
+    assertEquals(SUCCESS_CODE, sendChunk(0, CompressionType.UNCOMPRESSED).code);
+
+    assertEquals(ERROR_CODE, service.endSyncFile(SG_NAME, FILE_NAME, md5(content)).code);
+    // the partial file is deleted, so the file is received from scratch next time
+    assertFalse(getPartialFile(FILE_NAME).exists());
+    SyncStatus status = service.initSyncFile(SG_NAME, FILE_NAME, content.length);
+    assertEquals(SUCCESS_CODE, status.code);
+    assertFalse(SyncConstant.FILE_RESUMED.equals(status.msg));
+  }
+
+  @Test
+  public void testDeleteAbandonedPartialFiles()
+      throws TException, IOException, NoSuchAlgorithmException, InterruptedException {
+    assertEquals(SUCCESS_CODE, service.initSyncFile(SG_NAME, FILE_NAME, content.length).code);
+    assertEquals(SUCCESS_CODE, sendChunk(0, CompressionType.UNCOMPRESSED).code);
+    assertEquals(SUCCESS_CODE,
+        service.initSyncFile(SG_NAME, OTHER_FILE_NAME, content.length).code);
+    assertEquals(SUCCESS_CODE, service.endSync().code);
+    // the partial files initialized in the sync process are kept to be resumed
+    assertTrue(getPartialFile(FILE_NAME).exists());
+    assertTrue(getPartialFile(OTHER_FILE_NAME).exists());
+
+    startSyncProcess();
+    SyncStatus status = service.initSyncFile(SG_NAME, FILE_NAME, content.length);
+    assertEquals(SyncConstant.FILE_RESUMED, status.msg);
+    assertEquals(SUCCESS_CODE, service.endSync().code);
+    // the sender does not sync the other file any more
+    assertTrue(getPartialFile(FILE_NAME).exists());
+    assertFalse(getPartialFile(OTHER_FILE_NAME).exists());
+  }
+
+  private void startSyncProcess() throws InterruptedException {
+    // the file loader of the last sync process may be still cleaning up
+    long deadline = System.currentTimeMillis() + 10_000;
+    SyncStatus status;
+    while ((status = service.check(confirmInfo)).code != SUCCESS_CODE
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(100);
+    }
+    assertEquals(status.msg, SUCCESS_CODE, status.code);
+    assertEquals(SUCCESS_CODE, service.startSync().code);
+  }
+
+  private SyncStatus sendChunk(int index, CompressionType compressionType)
+      throws IOException, NoSuchAlgorithmException {
+    byte[] chunk = Arrays.copyOfRange(content, index * CHUNK_SIZE, (index + 1) * CHUNK_SIZE);
+    byte[] data = ICompressor.getCompressor(compressionType).compress(chunk);
+    return service.syncFileChunk(SG_NAME, FILE_NAME, (long) index * CHUNK_SIZE,
+        ByteBuffer.wrap(data), (byte) compressionType.serialize(), md5(chunk));
+  }
+
+  private File getSyncFolder() {
+    for (String dataDir : IoTDBDescriptor.getInstance().getConfig().getDataDirs()) {
+      File folder = new File(FilePathUtils.regularizePath(dataDir) + SyncConstant.SYNC_RECEIVER,
+          "127.0.0.1" + SyncConstant.SYNC_DIR_NAME_SEPARATOR + UUID);
+      if (folder.exists()) {
+        return folder;
+      }
+    }
+    throw new IllegalStateException("The sync folder of the sender does not exist");
+  }
+
+  private File getPartialFile(String fileName) {
+    return new File(getSyncFolder(), SyncConstant.RECEIVER_PARTIAL_FOLDER_NAME + File.separator
+        + SG_NAME + File.separator + fileName);
+  }
+
+  private static String md5(byte[] data) throws NoSuchAlgorithmException {
+    return new BigInteger(1,
+        MessageDigest.getInstance(SyncConstant.MESSAGE_DIGIT_NAME).digest(data)).toString(16);
+  }
+}
@@ -48,6 +48,7 @@ import java.util.*;
 import java.util.Map.Entry;
 
 import static org.apache.iotdb.tsfile.common.constant.TsFileConstant.TSFILE_SUFFIX;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -148,6 +149,55 @@ public class SyncSenderLogAnalyzerTest {
     assertFileMap(allFileList, toBeSyncedFilesMap);
   }
 
+  @Test
+  public void resumeChunks() throws IOException {
+    File finishedFile = new File(dataDir, "1" + TSFILE_SUFFIX);
+    File unfinishedFile = new File(dataDir, "2" + TSFILE_SUFFIX);
+    File deletedFile = new File(dataDir, "3" + TSFILE_SUFFIX);
+    unfinishedFile.getParentFile().mkdirs();
+    assertTrue(unfinishedFile.createNewFile());
+    senderLogger.startSyncTsFiles();
+    senderLogger.finishSyncChunk(finishedFile, 0, 100);
+    senderLogger.finishSyncChunk(unfinishedFile, 0, 100);
+    senderLogger.finishSyncChunk(finishedFile, 100, 20);
+    senderLogger.finishSyncChunk(unfinishedFile, 200, 50);
+    senderLogger.finishSyncChunk(deletedFile, 0, 100);
+    senderLogger.finishSyncTsfile(finishedFile);
+    senderLogger.close();
+
+    Map<String, Map<Long, Integer>> syncedChunks = senderLogAnalyzer.loadSyncedChunks();
+    assertEquals(2, syncedChunks.size());
+    syncedChunks.remove(deletedFile.getAbsolutePath());
+    Map<Long, Integer> chunks = syncedChunks.get(unfinishedFile.getAbsolutePath());
+    assertEquals(2, chunks.size());
+    assertEquals(100, (int) chunks.get(0L));
+    assertEquals(50, (int) chunks.get(200L));
+
+    // only the chunks of the unfinished tsfile are kept after recovery, the chunks of a tsfile
+    // that no longer exists are dropped
+    senderLogAnalyzer.recover();
+    assertTrue(new File(config.getSenderFolderPath(), SyncConstant.SYNC_LOG_NAME).exists());
+    assertEquals(syncedChunks, senderLogAnalyzer.loadSyncedChunks());
+
+    // chunks logged by the next sync task are appended to the kept ones
+    senderLogger = new SyncSenderLogger(
+        new File(config.getSenderFolderPath(), SyncConstant.SYNC_LOG_NAME));
+    senderLogger.startSyncTsFiles();
+    senderLogger.finishSyncChunk(unfinishedFile, 100, 100);
+    senderLogger.close();
+    assertEquals(3, senderLogAnalyzer.loadSyncedChunks().get(unfinishedFile.getAbsolutePath())
+        .size());
+
+    senderLogger = new SyncSenderLogger(
+        new File(config.getSenderFolderPath(), SyncConstant.SYNC_LOG_NAME));
+    senderLogger.startSyncTsFiles();
+    senderLogger.finishSyncTsfile(unfinishedFile);
+    senderLogger.close();
+    senderLogAnalyzer.retainSyncedChunks();
+    assertTrue(senderLogAnalyzer.loadSyncedChunks().isEmpty());
+    assertFalse(new File(config.getSenderFolderPath(), SyncConstant.SYNC_LOG_NAME).exists());
+  }
+
   private void assertFileMap(Map<String, Map<Long, Set<File>>> correctMap,
       Map<String, Map<Long, Set<File>>> curMap) {
     for (Entry<String, Map<Long, Set<File>>> entry : correctMap.entrySet()) {
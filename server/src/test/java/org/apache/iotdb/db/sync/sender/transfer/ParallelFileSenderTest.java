@@ -0,0 +1,355 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.sync.sender.transfer;
+
+import static org.apache.iotdb.db.sync.conf.SyncConstant.ERROR_CODE;
+import static org.apache.iotdb.db.sync.conf.SyncConstant.SUCCESS_CODE;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.commons.io.FileUtils;
+import org.apache.iotdb.db.conf.IoTDBConstant;
+import org.apache.iotdb.db.constant.TestConstant;
+import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
+import org.apache.iotdb.db.exception.SyncConnectionException;
+import org.apache.iotdb.db.exception.SyncDeviceOwnerConflictException;
+import org.apache.iotdb.db.sync.conf.SyncConstant;
+import org.apache.iotdb.db.sync.conf.SyncSenderConfig;
+import org.apache.iotdb.db.sync.sender.recover.ISyncSenderLogger;
+import org.apache.iotdb.service.sync.thrift.ConfirmInfo;
+import org.apache.iotdb.service.sync.thrift.SyncService;
+import org.apache.iotdb.service.sync.thrift.SyncStatus;
+import org.apache.iotdb.tsfile.compress.IUnCompressor;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.server.TServer;
+import org.apache.thrift.server.TThreadPoolServer;
+import org.apache.thrift.transport.TFastFramedTransport;
+import org.apache.thrift.transport.TServerSocket;
+import org.apache.thrift.transport.TTransportException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelFileSenderTest {
+
+  private static final String SG_NAME = "root.sg";
+  private static final int CHUNK_SIZE = 1000;
+
+  private final File folder = new File(TestConstant.BASE_OUTPUT_PATH.concat("parallelSender"));
+  private final StubReceiver receiver = new StubReceiver();
+  private final RecordingLogger syncLog = new RecordingLogger();
+  private TServer server;
+  private Thread serverThread;
+  private ParallelFileSender sender;
+
+  @Before
+  public void setUp() throws TTransportException, SyncConnectionException, InterruptedException {
+    TServerSocket serverSocket = new TServerSocket(new InetSocketAddress("127.0.0.1", 0));
+    server = new TThreadPoolServer(new TThreadPoolServer.Args(serverSocket)
+        .processor(new SyncService.Processor<>(receiver))
+        .transportFactory(new TFastFramedTransport.Factory())
+        .protocolFactory(new TBinaryProtocol.Factory()));
+    serverThread = new Thread(server::serve);
+    serverThread.start();
+    while (!server.isServing()) {
+      Thread.sleep(10);
+    }
+
+    SyncSenderConfig config = new SyncSenderConfig();
+    config.setServerIp("127.0.0.1");
+    config.setServerPort(serverSocket.getServerSocket().getLocalPort());
+    config.setSyncConnectionNum(3);
+    config.setSyncChunkSizeInByte(CHUNK_SIZE);
+    config.setMaxNumOfSyncFileRetry(2);
+    config.setSyncCompressor(CompressionType.SNAPPY);
+    sender = new ParallelFileSender(config,
+        new ConfirmInfo("127.0.0.1", "sender", 0, IoTDBConstant.VERSION));
+  }
+
+  @After
+  public void tearDown() throws InterruptedException, IOException {
+    if (sender != null) {
+      sender.close();
+    }
+    server.stop();
+    serverThread.join();
+    FileUtils.deleteDirectory(folder);
+  }
+
+  @Test
+  public void testSyncFiles() throws IOException, SyncDeviceOwnerConflictException {
+    Map<File, File> snapshots = new LinkedHashMap<>();
+    File tsFile1 = createSnapshot(snapshots, "1-1-0.tsfile", 3 * CHUNK_SIZE + 10, 1);
+    File tsFile2 = createSnapshot(snapshots, "2-2-0.tsfile", CHUNK_SIZE / 2, 2);
+
+    Set<File> syncedFiles = new HashSet<>();
+    sender.syncFiles(SG_NAME, snapshots, Collections.emptyMap(), syncLog, syncedFiles);
+
+    assertEquals(snapshots.keySet(), syncedFiles);
+    assertEquals(snapshots.keySet(), syncLog.finishedFiles);
+    for (File snapshot : snapshots.values()) {
+      assertArrayEquals(Files.readAllBytes(snapshot.toPath()),
+          receiver.endedFiles.get(snapshot.getName()));
+      File resource = new File(snapshot.getAbsolutePath() + TsFileResource.RESOURCE_SUFFIX);
+      assertArrayEquals(Files.readAllBytes(resource.toPath()),
+          receiver.endedFiles.get(resource.getName()));
+    }
+    // only the chunks of the tsfiles are logged
+    assertEquals(4, syncLog.finishedChunks.get(tsFile1).size());
+    assertEquals(1, syncLog.finishedChunks.get(tsFile2).size());
+  }
+
+  @Test
+  public void testResume() throws IOException, SyncDeviceOwnerConflictException {
+    Map<File, File> snapshots = new LinkedHashMap<>();
+    File tsFile = createSnapshot(snapshots, "1-1-0.tsfile", 3 * CHUNK_SIZE, 1);
+    byte[] content = Files.readAllBytes(snapshots.get(tsFile).toPath());
+
+    // the receiver kept the first two chunks synced by the last sync task
+    byte[] partial = new byte[content.length];
+    System.arraycopy(content, 0, partial, 0, 2 * CHUNK_SIZE);
+    receiver.partialFiles.put(snapshots.get(tsFile).getName(), partial);
+    Map<Long, Integer> synced = new HashMap<>();
+    synced.put(0L, CHUNK_SIZE);
+    synced.put((long) CHUNK_SIZE, CHUNK_SIZE);
+
+    Set<File> syncedFiles = new HashSet<>();
+    sender.syncFiles(SG_NAME, snapshots,
+        Collections.singletonMap(tsFile.getAbsolutePath(), synced), syncLog, syncedFiles);
+
+    assertTrue(syncedFiles.contains(tsFile));
+    assertEquals(Collections.singleton((long) 2 * CHUNK_SIZE),
+        receiver.receivedOffsets.get(snapshots.get(tsFile).getName()));
+    assertArrayEquals(content, receiver.endedFiles.get(snapshots.get(tsFile).getName()));
+  }
+
+  @Test
+  public void testWholeFileMd5Mismatch() throws IOException, SyncDeviceOwnerConflictException {
+    Map<File, File> snapshots = new LinkedHashMap<>();
+    File tsFile = createSnapshot(snapshots, "1-1-0.tsfile", 2 * CHUNK_SIZE, 1);
+    String name = snapshots.get(tsFile).getName();
+
+    // the receiver lost the first chunk the sender thinks synced, and left a hole of zeros
+    receiver.partialFiles.put(name, new byte[2 * CHUNK_SIZE]);
+    Set<File> syncedFiles = new HashSet<>();
+    sender.syncFiles(SG_NAME, snapshots,
+        Collections.singletonMap(tsFile.getAbsolutePath(),
+            Collections.singletonMap(0L, CHUNK_SIZE)), syncLog, syncedFiles);
+
+    assertFalse(syncedFiles.contains(tsFile));
+    assertFalse(syncLog.finishedFiles.contains(tsFile));
+    assertFalse(receiver.endedFiles.containsKey(name));
+    // the receiver dropped the partial file, so the next sync task sends the whole file
+    assertFalse(receiver.partialFiles.containsKey(name));
+  }
+
+  /**
+   * Create a snapshot of a tsfile with its .resource file.
+   *
+   * @return the original tsfile, which is not created
+   */
+  private File createSnapshot(Map<File, File> snapshots, String name, int length, long seed)
+      throws IOException {
+    byte[] content = new byte[length];
+    Random random = new Random(seed);
+    random.nextBytes(content);
+    File snapshot = new File(folder, "snapshot" + File.separator + name);
+    snapshot.getParentFile().mkdirs();
+    Files.write(snapshot.toPath(), content);
+    byte[] resource = new byte[100];
+    random.nextBytes(resource);
+    Files.write(new File(snapshot.getAbsolutePath() + TsFileResource.RESOURCE_SUFFIX).toPath(),
+        resource);
+    File tsFile = new File(folder, "data" + File.separator + name);
+    snapshots.put(tsFile, snapshot);
+    return tsFile;
+  }
+
+  private static String md5(byte[] data) {
+    try {
+      return new BigInteger(1,
+          MessageDigest.getInstance(SyncConstant.MESSAGE_DIGIT_NAME).digest(data)).toString(16);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * A receiver keeping the files in memory, which verifies the chunks and the whole files as
+   * SyncServiceImpl does.
+   */
+  private static class StubReceiver implements SyncService.Iface {
+
+    private final Map<String, byte[]> partialFiles = new ConcurrentHashMap<>();
+
+    private final Map<String, byte[]> endedFiles = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<Long>> receivedOffsets = new ConcurrentHashMap<>();
+
+    @Override
+    public SyncStatus check(ConfirmInfo info) {
+      return unsupported();
+    }
+
+    @Override
+    public SyncStatus startSync() {
+      return unsupported();
+    }
+
+    @Override
+    public SyncStatus init(String storageGroupName) {
+      return unsupported();
+    }
+
+    @Override
+    public SyncStatus syncDeletedFileName(String fileName) {
+      return unsupported();
+    }
+
+    @Override
+    public SyncStatus initSyncData(String filename) {
+      return unsupported();
+    }
+
+    @Override
+    public SyncStatus syncData(ByteBuffer buff) {
+      return unsupported();
+    }
+
+    @Override
+    public SyncStatus checkDataMD5(String md5) {
+      return unsupported();
+    }
+
+    @Override
+    public SyncStatus endSync() {
+      return unsupported();
+    }
+
+    @Override
+    public SyncStatus attach(ConfirmInfo info) {
+      return new SyncStatus(SUCCESS_CODE, "");
+    }
+
+    @Override
+    public synchronized SyncStatus initSyncFile(String storageGroupName, String fileName,
+        long length) {
+      byte[] partial = partialFiles.get(fileName);
+      if (partial != null && partial.length == length) {
+        return new SyncStatus(SUCCESS_CODE, SyncConstant.FILE_RESUMED);
+      }
+      partialFiles.put(fileName, new byte[(int) length]);
+      return new SyncStatus(SUCCESS_CODE, "");
+    }
+
+    @Override
+    public SyncStatus syncFileChunk(String storageGroupName, String fileName, long offset,
+        ByteBuffer data, byte compressionType, String md5) {
+      byte[] compressed = new byte[data.remaining()];
+      data.get(compressed);
+      byte[] chunk;
+      try {
+        chunk = IUnCompressor.getUnCompressor(CompressionType.deserialize(compressionType))
+            .uncompress(compressed);
+      } catch (IOException e) {
+        return new SyncStatus(ERROR_CODE, e.getMessage());
+      }
+      if (!md5(chunk).equals(md5)) {
+        return new SyncStatus(ERROR_CODE, "the md5 of the chunk differs");
+      }
+      synchronized (this) {
+        byte[] partial = partialFiles.get(fileName);
+        System.arraycopy(chunk, 0, partial, (int) offset, chunk.length);
+        receivedOffsets.computeIfAbsent(fileName, k -> new HashSet<>()).add(offset);
+      }
+      return new SyncStatus(SUCCESS_CODE, "");
+    }
+
+    @Override
+    public synchronized SyncStatus endSyncFile(String storageGroupName, String fileName,
+        String md5) {
+      byte[] partial = partialFiles.remove(fileName);
+      if (partial == null || !md5(partial).equals(md5)) {
+        return new SyncStatus(ERROR_CODE, "the md5 of the file differs");
+      }
+      endedFiles.put(fileName, partial);
+      return new SyncStatus(SUCCESS_CODE, "");
+    }
+
+    private SyncStatus unsupported() {
+      return new SyncStatus(ERROR_CODE, "unsupported");
+    }
+  }
+
+  private static class RecordingLogger implements ISyncSenderLogger {
+
+    private final Set<File> finishedFiles = new HashSet<>();
+
+    private final Map<File, Set<Long>> finishedChunks = new HashMap<>();
+
+    @Override
+    public void startSyncDeletedFilesName() {
+      // not used by the sender
+    }
+
+    @Override
+    public void finishSyncDeletedFileName(File file) {
+      // not used by the sender
+    }
+
+    @Override
+    public void startSyncTsFiles() {
+      // not used by the sender
+    }
+
+    @Override
+    public void finishSyncTsfile(File file) {
+      finishedFiles.add(file);
+    }
+
+    @Override
+    public void finishSyncChunk(File file, long offset, int length) {
+      finishedChunks.computeIfAbsent(file, k -> new HashSet<>()).add(offset);
+    }
+
+    @Override
+    public void close() {
+      // nothing to close
+    }
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.utils.datastructure;
+
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.BitMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AlignedTVListTest {
+
+  @Test
+  public void testPutAlignedValues() {
+    AlignedTVList tvList = new AlignedTVList();
+    tvList.addColumn(TSDataType.INT64);
+    tvList.addColumn(TSDataType.DOUBLE);
+    int rowCount = 1000;
+    long[] times = new long[rowCount];
+    long[] longValues = new long[rowCount];
+    double[] doubleValues = new double[rowCount];
+    BitMap bitMap = new BitMap(rowCount);
+    for (int i = 0; i < rowCount; i++) {
+      times[i] = rowCount - i;
+      longValues[i] = rowCount - i;
+      doubleValues[i] = rowCount - i;
+      if (i % 3 == 0) {
+        bitMap.mark(i);
+      }
+    }
+    tvList.putAlignedValues(times, new Object[]{longValues, doubleValues},
+        new BitMap[]{null, bitMap}, 0, rowCount);
+    tvList.sort();
+
+    Assert.assertEquals(rowCount, tvList.size());
+    Assert.assertEquals(rowCount, tvList.getValueCount(0));
+    Assert.assertEquals(rowCount - (rowCount + 2) / 3, tvList.getValueCount(1));
+    for (int i = 0; i < rowCount; i++) {
+      Assert.assertEquals(i + 1, tvList.getTime(i));
+      int rowIndex = tvList.getRowIndex(i);
+      Assert.assertEquals((long) (i + 1), tvList.getValue(0, rowIndex));
+      // the row of time t is the (rowCount - t)-th row of the tablet
+      boolean isNull = (rowCount - (i + 1)) % 3 == 0;
+      Assert.assertEquals(isNull, tvList.isNull(1, rowIndex));
+      if (!isNull) {
+        Assert.assertEquals((double) (i + 1), (double) tvList.getValue(1, rowIndex), 0);
+      }
+    }
+
+    TVList doubleList = tvList.getColumnTVList(1);
+    Assert.assertEquals(tvList.getValueCount(1), doubleList.size());
+    for (int i = 0; i < doubleList.size(); i++) {
+      Assert.assertEquals(doubleList.getTime(i), doubleList.getDouble(i), 0);
+    }
+  }
+
+  @Test
+  public void testAddColumnAndDelete() {
+    AlignedTVList tvList = new AlignedTVList();
+    tvList.addColumn(TSDataType.INT32);
+    for (int i = 0; i < 10; i++) {
+      tvList.putAlignedValue(i, new Object[]{i});
+    }
+    // the rows put before the column is added have null values of it
+    tvList.addColumn(TSDataType.TEXT);
+    for (int i = 10; i < 20; i++) {
+      tvList.putAlignedValue(i, new Object[]{i, null});
+    }
+    tvList.putAlignedValue(20, new Object[]{null, null});
+    Assert.assertEquals(21, tvList.size());
+    Assert.assertEquals(20, tvList.getValueCount(0));
+    Assert.assertEquals(0, tvList.getValueCount(1));
+
+    Assert.assertEquals(5, tvList.delete(0, 5, 9));
+    Assert.assertEquals(15, tvList.getValueCount(0));
+    TVList intList = tvList.getColumnTVList(0);
+    Assert.assertEquals(15, intList.size());
+    for (int i = 0; i < intList.size(); i++) {
+      Assert.assertTrue(intList.getTime(i) < 5 || intList.getTime(i) > 9);
+      Assert.assertEquals(intList.getTime(i), intList.getInt(i));
+    }
+  }
+}
@@ -23,6 +23,7 @@ import java.util.List;
 import java.util.Random;
 
 import org.apache.iotdb.tsfile.read.TimeValuePair;
+import org.apache.iotdb.tsfile.utils.BitMap;
 import org.apache.iotdb.tsfile.utils.TsPrimitiveType.TsLong;
 import org.junit.Assert;
 import org.junit.Test;
@@ -74,4 +75,31 @@ public class LongTVListTest {
       Assert.assertEquals(inputs.get((int)i).getValue().getLong(), tvList.getLong((int)i));
     }
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testPutLongsWithBitMap() {
+    LongTVList tvList = new LongTVList();
+    long[] times = new long[1000];
+    long[] values = new long[1000];
+    BitMap bitMap = new BitMap(1000);
+    for (int i = 0; i < 1000; i++) {
+      times[i] = i;
+      values[i] = i;
+      if (i % 3 == 0) {
+        bitMap.mark(i);
+      }
+    }
+    tvList.putLongs(times, values, bitMap, 10, 990);
+    tvList.sort();
+    int index = 0;
+    for (long i = 10; i < 990; i++) {
+      if (i % 3 == 0) {
+        continue;
+      }
+      Assert.assertEquals(i, tvList.getTime(index));
+      Assert.assertEquals(i, tvList.getLong(index));
+      index++;
+    }
+    Assert.assertEquals(index, tvList.size);
+  }
+}
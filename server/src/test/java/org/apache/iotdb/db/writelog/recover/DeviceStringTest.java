@@ -111,8 +111,8 @@ public class DeviceStringTest {
   public void testDeviceString() throws IOException, IllegalPathException {
     resource = new TsFileResource(tsF);
     resource.deserialize();
-    assertFalse(resource.getDeviceToIndexMap().keySet().isEmpty());
-    for (String device : resource.getDeviceToIndexMap().keySet()) {
+    assertFalse(resource.getDevices().isEmpty());
+    for (String device : resource.getDevices()) {
       assertSame(device, mManager.getDeviceId(new PartialPath(device)));
     }
   }
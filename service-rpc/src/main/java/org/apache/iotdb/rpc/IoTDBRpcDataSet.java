@@ -26,6 +26,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import org.apache.iotdb.service.rpc.thrift.TSCloseOperationReq;
 import org.apache.iotdb.service.rpc.thrift.TSFetchResultsReq;
 import org.apache.iotdb.service.rpc.thrift.TSFetchResultsResp;
@@ -34,6 +38,8 @@ import org.apache.iotdb.service.rpc.thrift.TSQueryDataSet;
 import org.apache.iotdb.service.rpc.thrift.TSStatus;
 import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.BitMap;
 import org.apache.iotdb.tsfile.utils.BytesUtils;
 import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
 import org.apache.thrift.TException;
@@ -72,11 +78,36 @@ public class IoTDBRpcDataSet {
   public byte[] currentBitmap; // used to cache the current bitmap for every column
   public static final int FLAG = 0x80; // used to do `and` operation with bitmap to judge whether the value is null
 
-  @SuppressWarnings("squid:S3776") // Suppress high Cognitive Complexity warning
+  /**
+   * runs the fetches in the background, it is owned by the session of the result set.
+   */
+  private final ExecutorService prefetchExecutor;
+
+  /**
+   * whether the next block is fetched in the background while the current one is consumed, and
+   * the server is asked to read ahead the block after it.
+   */
+  private boolean prefetch = false;
+  private Future<TSFetchResultsResp> nextFetch;
+
   public IoTDBRpcDataSet(String sql, List<String> columnNameList, List<String> columnTypeList,
       Map<String, Integer> columnNameIndex, boolean ignoreTimeStamp,
       long queryId, TSIService.Iface client, long sessionId, TSQueryDataSet queryDataSet,
       int fetchSize) {
+    this(sql, columnNameList, columnTypeList, columnNameIndex, ignoreTimeStamp, queryId, client,
+        sessionId, queryDataSet, fetchSize, null);
+  }
+
+  /**
+   * @param prefetchExecutor runs the fetches in the prefetch mode, the result set cannot be
+   *                         prefetched if it is null
+   */
+  @SuppressWarnings({"squid:S3776", "squid:S107"}) // Suppress high Cognitive Complexity warning
+  public IoTDBRpcDataSet(String sql, List<String> columnNameList, List<String> columnTypeList,
+      Map<String, Integer> columnNameIndex, boolean ignoreTimeStamp,
+      long queryId, TSIService.Iface client, long sessionId, TSQueryDataSet queryDataSet,
+      int fetchSize, ExecutorService prefetchExecutor) {
+    this.prefetchExecutor = prefetchExecutor;
     this.sessionId = sessionId;
     this.ignoreTimeStamp = ignoreTimeStamp;
     this.sql = sql;
@@ -164,6 +195,7 @@ public class IoTDBRpcDataSet {
     if (isClosed) {
       return;
     }
+    discardNextFetch();
     if (client != null) {
       try {
         TSCloseOperationReq closeReq = new TSCloseOperationReq(sessionId);
@@ -198,21 +230,91 @@ public class IoTDBRpcDataSet {
 
   public boolean fetchResults() throws StatementExecutionException, IoTDBConnectionException {
     rowsIndex = 0;
-    TSFetchResultsReq req = new TSFetchResultsReq(sessionId, sql, fetchSize, queryId, true);
+    TSFetchResultsResp resp;
     try {
-      TSFetchResultsResp resp = client.fetchResults(req);
-
-      RpcUtils.verifySuccess(resp.getStatus());
-      if (!resp.hasResultSet) {
-        emptyResultSet = true;
-      } else {
-        tsQueryDataSet = resp.getQueryDataSet();
-      }
-      return resp.hasResultSet;
+      resp = nextFetch != null ? takeNextFetch() : sendFetchRequest();
     } catch (TException e) {
       throw new IoTDBConnectionException(
           "Cannot fetch result from server, because of network connection: {} ", e);
     }
+
+    RpcUtils.verifySuccess(resp.getStatus());
+    if (!resp.hasResultSet) {
+      emptyResultSet = true;
+    } else {
+      tsQueryDataSet = resp.getQueryDataSet();
+      if (prefetch) {
+        submitNextFetch();
+      }
+    }
+    return resp.hasResultSet;
+  }
+
+  private TSFetchResultsResp sendFetchRequest() throws TException {
+    TSFetchResultsReq req = new TSFetchResultsReq(sessionId, sql, fetchSize, queryId, true);
+    if (prefetch) {
+      req.setReadAhead(true);
+    }
+    return client.fetchResults(req);
+  }
+
+  private TSFetchResultsResp takeNextFetch() throws TException, IoTDBConnectionException {
+    Future<TSFetchResultsResp> future = nextFetch;
+    nextFetch = null;
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IoTDBConnectionException("Interrupted when fetching results", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof TException) {
+        throw (TException) e.getCause();
+      }
+      throw new IoTDBConnectionException(e.getCause());
+    }
+  }
+
+  /**
+   * wait for the fetch in the background so that the connection is not used by it any more, its
+   * result is useless if the result set is closed.
+   */
+  private void discardNextFetch() {
+    if (nextFetch == null) {
+      return;
+    }
+    try {
+      takeNextFetch();
+    } catch (TException | IoTDBConnectionException e) {
+      // the query is closed anyway
+    }
+  }
+
+  public boolean isPrefetch() {
+    return prefetch;
+  }
+
+  /**
+   * in the prefetch mode, the next block of the result set is fetched in the background when a
+   * block is received, and the server produces the block after it in the background too, so that
+   * the client and the server work at the same time.
+   */
+  public void setPrefetch(boolean prefetch) {
+    if (prefetch && prefetchExecutor == null) {
+      throw new IllegalStateException("The result set cannot be prefetched without an executor");
+    }
+    this.prefetch = prefetch;
+    if (prefetch && nextFetch == null && !emptyResultSet && !isClosed && client != null) {
+      submitNextFetch();
+    }
+  }
+
+  private void submitNextFetch() {
+    try {
+      nextFetch = prefetchExecutor.submit(this::sendFetchRequest);
+    } catch (RejectedExecutionException e) {
+      // the session is closed, and the next fetch fails when it is sent
+      nextFetch = null;
+    }
   }
 
   public boolean hasCachedResults() {
@@ -253,6 +355,99 @@ public class IoTDBRpcDataSet {
     hasCachedRecord = true;
   }
 
+  /**
+   * @return the number of the rows that can be read by readBlock() without fetching, including
+   * the row read by next() but not consumed
+   */
+  public int getBlockRowNum() {
+    int rowNum = hasCachedRecord ? 1 : 0;
+    if (tsQueryDataSet != null) {
+      rowNum += tsQueryDataSet.time.remaining() / Long.BYTES;
+    }
+    return rowNum;
+  }
+
+  /**
+   * read the rows that can be read without fetching column by column.
+   *
+   * @param timestamps the array to hold the timestamps, whose length is at least getBlockRowNum()
+   * @param columns    columns[i] is filled with the values of the i-th deduplicated column, it is an
+   *                   array of the data type of the column, i.e., boolean[], int[], long[], float[],
+   *                   double[] or Binary[]
+   * @param nullMarks  nullMarks[i] is marked at the rows whose values of the i-th deduplicated
+   *                   column are null
+   */
+  public void readBlock(long[] timestamps, Object[] columns, BitMap[] nullMarks) {
+    int startRow = 0;
+    if (hasCachedRecord) {
+      timestamps[0] = BytesUtils.bytesToLong(time);
+      for (int i = 0; i < columns.length; i++) {
+        if (isNull(i, rowsIndex - 1)) {
+          nullMarks[i].mark(0);
+        } else {
+          setColumnValue(columns[i], 0, columnTypeDeduplicatedList.get(i),
+              ByteBuffer.wrap(values[i]), values[i].length);
+        }
+      }
+      hasCachedRecord = false;
+      startRow = 1;
+    }
+    if (tsQueryDataSet == null) {
+      return;
+    }
+
+    int endRow = startRow;
+    while (tsQueryDataSet.time.hasRemaining()) {
+      timestamps[endRow++] = tsQueryDataSet.time.getLong();
+    }
+    for (int i = 0; i < columns.length; i++) {
+      ByteBuffer bitmapBuffer = tsQueryDataSet.bitmapList.get(i);
+      ByteBuffer valueBuffer = tsQueryDataSet.valueList.get(i);
+      TSDataType dataType = columnTypeDeduplicatedList.get(i);
+      int index = rowsIndex;
+      for (int row = startRow; row < endRow; row++, index++) {
+        // another new 8 row, should move the bitmap buffer position to next byte
+        if (index % 8 == 0) {
+          currentBitmap[i] = bitmapBuffer.get();
+        }
+        if (isNull(i, index)) {
+          nullMarks[i].mark(row);
+        } else {
+          int length = dataType == TSDataType.TEXT ? valueBuffer.getInt() : 0;
+          setColumnValue(columns[i], row, dataType, valueBuffer, length);
+        }
+      }
+    }
+    rowsIndex += endRow - startRow;
+  }
+
+  private static void setColumnValue(Object column, int row, TSDataType dataType,
+      ByteBuffer valueBuffer, int textLength) {
+    switch (dataType) {
+      case BOOLEAN:
+        ((boolean[]) column)[row] = valueBuffer.get() != 0;
+        break;
+      case INT32:
+        ((int[]) column)[row] = valueBuffer.getInt();
+        break;
+      case INT64:
+        ((long[]) column)[row] = valueBuffer.getLong();
+        break;
+      case FLOAT:
+        ((float[]) column)[row] = valueBuffer.getFloat();
+        break;
+      case DOUBLE:
+        ((double[]) column)[row] = valueBuffer.getDouble();
+        break;
+      case TEXT:
+        ((Binary[]) column)[row] = new Binary(ReadWriteIOUtils.readBytes(valueBuffer, textLength));
+        break;
+      default:
+        throw new UnSupportedDataTypeException(
+            String.format("Data type %s is not supported.", dataType));
+    }
+  }
+
   public boolean isNull(int columnIndex) throws StatementExecutionException {
     int index = columnOrdinalMap.get(findColumnNameByIndex(columnIndex)) - START_INDEX;
     // time column will never be null
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.session;
+
+import java.util.concurrent.CompletableFuture;
+import org.apache.iotdb.rpc.IoTDBConnectionException;
+import org.apache.iotdb.service.rpc.thrift.TSInsertRecordReq;
+import org.apache.iotdb.service.rpc.thrift.TSInsertRecordsReq;
+import org.apache.iotdb.service.rpc.thrift.TSInsertStringRecordReq;
+import org.apache.iotdb.service.rpc.thrift.TSInsertStringRecordsReq;
+import org.apache.iotdb.service.rpc.thrift.TSInsertTabletReq;
+import org.apache.iotdb.service.rpc.thrift.TSInsertTabletsReq;
+
+/**
+ * A connection of an AsyncSession, whose insertions return a future completed when the response
+ * is received.
+ */
+interface AsyncConnection {
+
+  CompletableFuture<Void> insertTablet(TSInsertTabletReq request);
+
+  CompletableFuture<Void> insertTablets(TSInsertTabletsReq request);
+
+  CompletableFuture<Void> insertRecord(TSInsertRecordReq request);
+
+  CompletableFuture<Void> insertStringRecord(TSInsertStringRecordReq request);
+
+  CompletableFuture<Void> insertRecords(TSInsertRecordsReq request);
+
+  CompletableFuture<Void> insertStringRecords(TSInsertStringRecordsReq request);
+
+  /**
+   * @return true if the connection has failed, all the following requests of it fail at once
+   */
+  boolean isBroken();
+
+  /**
+   * wait for the responses of all the sent requests and close the connection.
+   */
+  void close() throws IoTDBConnectionException;
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.session;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.apache.iotdb.rpc.IoTDBConnectionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The connections of an AsyncSession, which are picked in turn. A connection that has failed is
+ * replaced by a new one when it is picked, and the next connection is picked instead if the new
+ * one cannot be opened, so a network failure only fails the requests in flight.
+ */
+class AsyncConnectionGroup {
+
+  private static final Logger logger = LoggerFactory.getLogger(AsyncConnectionGroup.class);
+
+  private final Connector connector;
+  private final AtomicReferenceArray<AsyncConnection> connections;
+  private final AtomicInteger nextConnection = new AtomicInteger();
+  private boolean isClosed = false;
+
+  AsyncConnectionGroup(int connectionNum, Connector connector) throws IoTDBConnectionException {
+    this.connector = connector;
+    this.connections = new AtomicReferenceArray<>(connectionNum);
+    try {
+      for (int i = 0; i < connectionNum; i++) {
+        connections.set(i, connector.connect());
+      }
+    } catch (IoTDBConnectionException e) {
+      for (int i = 0; i < connectionNum; i++) {
+        AsyncConnection connection = connections.get(i);
+        if (connection != null) {
+          try {
+            connection.close();
+          } catch (IoTDBConnectionException closeException) {
+            e.addSuppressed(closeException);
+          }
+        }
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * @return the next connection that is not broken
+   * @throws IoTDBConnectionException if none of the broken connections can be reopened
+   */
+  AsyncConnection next() throws IoTDBConnectionException {
+    IoTDBConnectionException lastException = null;
+    for (int i = 0; i < connections.length(); i++) {
+      int index = Math.floorMod(nextConnection.getAndIncrement(), connections.length());
+      AsyncConnection connection = connections.get(index);
+      if (!connection.isBroken()) {
+        return connection;
+      }
+      try {
+        return reconnect(index, connection);
+      } catch (IoTDBConnectionException e) {
+        logger.warn("Cannot reopen the broken connection {} of AsyncSession", index, e);
+        lastException = e;
+      }
+    }
+    throw new IoTDBConnectionException("All the connections of AsyncSession are broken",
+        lastException);
+  }
+
+  private synchronized AsyncConnection reconnect(int index, AsyncConnection broken)
+      throws IoTDBConnectionException {
+    if (isClosed) {
+      throw new IoTDBConnectionException("AsyncSession is closed");
+    }
+    AsyncConnection connection = connections.get(index);
+    // another caller may have replaced it
+    if (connection == broken) {
+      connection = connector.connect();
+      connections.set(index, connection);
+    }
+    return connection;
+  }
+
+  /**
+   * wait for the responses of all the sent requests and close the connections.
+   */
+  synchronized void close() throws IoTDBConnectionException {
+    isClosed = true;
+    IoTDBConnectionException exception = null;
+    for (int i = 0; i < connections.length(); i++) {
+      try {
+        connections.get(i).close();
+      } catch (IoTDBConnectionException e) {
+        if (exception == null) {
+          exception = e;
+        } else {
+          exception.addSuppressed(e);
+        }
+      }
+    }
+    if (exception != null) {
+      throw exception;
+    }
+  }
+
+  @FunctionalInterface
+  interface Connector {
+
+    AsyncConnection connect() throws IoTDBConnectionException;
+  }
+}
@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.session;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import org.apache.iotdb.rpc.IoTDBConnectionException;
+import org.apache.iotdb.rpc.StatementExecutionException;
+import org.apache.iotdb.service.rpc.thrift.TSInsertRecordReq;
+import org.apache.iotdb.service.rpc.thrift.TSInsertRecordsReq;
+import org.apache.iotdb.service.rpc.thrift.TSInsertStringRecordReq;
+import org.apache.iotdb.service.rpc.thrift.TSInsertStringRecordsReq;
+import org.apache.iotdb.service.rpc.thrift.TSInsertTabletReq;
+import org.apache.iotdb.service.rpc.thrift.TSInsertTabletsReq;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.write.record.Tablet;
+
+/**
+ * A Session whose insertions can be sent without waiting for the previous ones to be responded.
+ * Besides the connection of the Session, which serves all the methods inherited from Session, an
+ * AsyncSession opens some pipelined connections, and every *Async method sends its request to one
+ * of them in turn and returns a future completed when the response is received. A connection
+ * that fails is reopened when it is picked next time, the requests in flight on it fail.
+ * <p>
+ * At most maxInFlightRequests requests are sent but not responded, an *Async method blocks until
+ * one of them is responded if the limit is reached, so a fast producer is slowed down to the speed
+ * of the server instead of piling up requests.
+ * <p>
+ * The request is built before an *Async method returns, so the Tablet or the lists can be reused
+ * once it returns. The futures are completed by the receiver threads of the connections, so
+ * callbacks that block or call *Async methods should be attached with the *Async methods of
+ * CompletableFuture.
+ */
+public class AsyncSession extends Session {
+
+  private final String host;
+  private final int rpcPort;
+  private final String username;
+  private final String password;
+  private final int connectionNum;
+  private final int maxInFlightRequests;
+
+  private volatile AsyncConnectionGroup connections;
+  private final Semaphore inFlightRequests;
+
+  public AsyncSession(String host, int rpcPort, String username, String password) {
+    this(host, rpcPort, username, password, Config.DEFAULT_PIPELINED_CONNECTION_NUM,
+        Config.DEFAULT_MAX_IN_FLIGHT_REQUESTS);
+  }
+
+  public AsyncSession(String host, int rpcPort, String username, String password,
+      int connectionNum, int maxInFlightRequests) {
+    super(host, rpcPort, username, password);
+    this.host = host;
+    this.rpcPort = rpcPort;
+    this.username = username;
+    this.password = password;
+    this.connectionNum = connectionNum;
+    this.maxInFlightRequests = maxInFlightRequests;
+    this.inFlightRequests = new Semaphore(maxInFlightRequests);
+  }
+
+  @Override
+  public synchronized void open() throws IoTDBConnectionException {
+    open(false);
+  }
+
+  @Override
+  public synchronized void open(boolean enableRPCCompression) throws IoTDBConnectionException {
+    super.open(enableRPCCompression);
+    if (connections != null) {
+      return;
+    }
+
+    try {
+      connections = new AsyncConnectionGroup(connectionNum,
+          () -> new PipelinedConnection(host, rpcPort, username, password, getTimeZone(),
+              enableRPCCompression, Config.DEFAULT_TIMEOUT_MS));
+    } catch (IoTDBConnectionException e) {
+      try {
+        super.close();
+      } catch (IoTDBConnectionException closeException) {
+        e.addSuppressed(closeException);
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * wait for the responses of all the sent requests and close the session.
+   */
+  @Override
+  public synchronized void close() throws IoTDBConnectionException {
+    try {
+      if (connections != null) {
+        AsyncConnectionGroup currConnections = connections;
+        connections = null;
+        currConnections.close();
+      }
+    } finally {
+      super.close();
+    }
+  }
+
+  /**
+   * @see Session#insertTablet(Tablet)
+   */
+  public CompletableFuture<Void> insertTabletAsync(Tablet tablet)
+      throws IoTDBConnectionException, StatementExecutionException {
+    return insertTabletAsync(tablet, false);
+  }
+
+  /**
+   * @see Session#insertTablet(Tablet, boolean)
+   */
+  public CompletableFuture<Void> insertTabletAsync(Tablet tablet, boolean sorted)
+      throws IoTDBConnectionException, StatementExecutionException {
+    TSInsertTabletReq request = genTSInsertTabletReq(tablet, sorted);
+    return submit(connection -> connection.insertTablet(request));
+  }
+
+  /**
+   * @see Session#insertTablets(Map)
+   */
+  public CompletableFuture<Void> insertTabletsAsync(Map<String, Tablet> tablets)
+      throws IoTDBConnectionException, StatementExecutionException {
+    return insertTabletsAsync(tablets, false);
+  }
+
+  /**
+   * @see Session#insertTablets(Map, boolean)
+   */
+  public CompletableFuture<Void> insertTabletsAsync(Map<String, Tablet> tablets, boolean sorted)
+      throws IoTDBConnectionException, StatementExecutionException {
+    TSInsertTabletsReq request = genTSInsertTabletsReq(tablets, sorted);
+    return submit(connection -> connection.insertTablets(request));
+  }
+
+  /**
+   * @see Session#insertRecords(List, List, List, List, List)
+   */
+  public CompletableFuture<Void> insertRecordsAsync(List<String> deviceIds, List<Long> times,
+      List<List<String>> measurementsList, List<List<TSDataType>> typesList,
+      List<List<Object>> valuesList) throws IoTDBConnectionException {
+    TSInsertRecordsReq request = genTSInsertRecordsReq(deviceIds, times, measurementsList,
+        typesList, valuesList);
+    return submit(connection -> connection.insertRecords(request));
+  }
+
+  /**
+   * @see Session#insertRecords(List, List, List, List)
+   */
+  public CompletableFuture<Void> insertRecordsAsync(List<String> deviceIds, List<Long> times,
+      List<List<String>> measurementsList, List<List<String>> valuesList)
+      throws IoTDBConnectionException {
+    TSInsertStringRecordsReq request = genTSInsertStringRecordsReq(deviceIds, times,
+        measurementsList, valuesList);
+    return submit(connection -> connection.insertStringRecords(request));
+  }
+
+  /**
+   * @see Session#insertRecord(String, long, List, List, List)
+   */
+  public CompletableFuture<Void> insertRecordAsync(String deviceId, long time,
+      List<String> measurements, List<TSDataType> types, List<Object> values)
+      throws IoTDBConnectionException {
+    TSInsertRecordReq request = genTSInsertRecordReq(deviceId, time, measurements, types,
+        values);
+    return submit(connection -> connection.insertRecord(request));
+  }
+
+  /**
+   * @see Session#insertRecord(String, long, List, List)
+   */
+  public CompletableFuture<Void> insertRecordAsync(String deviceId, long time,
+      List<String> measurements, List<String> values) throws IoTDBConnectionException {
+    TSInsertStringRecordReq request = genTSInsertStringRecordReq(deviceId, time, measurements,
+        values);
+    return submit(connection -> connection.insertStringRecord(request));
+  }
+
+  /**
+   * @return the number of requests that are sent but not responded
+   */
+  public int getInFlightRequestNum() {
+    return maxInFlightRequests - inFlightRequests.availablePermits();
+  }
+
+  /**
+   * wait until the in-flight window has room for the request, and send it by the next connection
+   * that is not broken.
+   */
+  private CompletableFuture<Void> submit(Function<AsyncConnection, CompletableFuture<Void>> call)
+      throws IoTDBConnectionException {
+    AsyncConnectionGroup currConnections = connections;
+    if (currConnections == null) {
+      throw new IoTDBConnectionException("AsyncSession is not opened");
+    }
+    try {
+      inFlightRequests.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IoTDBConnectionException("Interrupted when waiting for the in-flight requests",
+          e);
+    }
+    AsyncConnection connection;
+    try {
+      connection = currConnections.next();
+    } catch (IoTDBConnectionException e) {
+      inFlightRequests.release();
+      throw e;
+    }
+    CompletableFuture<Void> future = call.apply(connection);
+    future.whenComplete((result, throwable) -> inFlightRequests.release());
+    return future;
+  }
+}
@@ -0,0 +1,554 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.session;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.iotdb.rpc.IoTDBConnectionException;
+import org.apache.iotdb.rpc.StatementExecutionException;
+import org.apache.iotdb.session.pool.SessionPool;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.write.record.Tablet;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * BatchingWriter accepts single rows or points, and buffers them in a Tablet per device, so that
+ * they are sent by insertTablets instead of one insertRecord per row.
+ * <p>
+ * The buffered rows are sealed into a batch when there are maxRowsPerBatch of them, or when the
+ * first of them has been buffered for lingerMs, and a background thread sends the batches one by
+ * one. At most maxPendingBatches batches wait to be sent, write() blocks when there are more, so
+ * the writers are slowed down to the speed of the server.
+ * <p>
+ * A batch is retried with an exponential backoff if the connection fails, and is dropped if it
+ * still fails after Config.RETRY_NUM retries or if the server rejects it. The first failure is
+ * thrown by the next flush() or close().
+ * <p>
+ * The points of a device with the same timestamp written one after another are put into the same
+ * row, and a row has null values for the measurements of the Tablet that it does not have.
+ */
+public class BatchingWriter implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(BatchingWriter.class);
+
+  private final TabletsInserter inserter;
+  private final int maxRowsPerTablet;
+  private final int maxRowsPerBatch;
+  private final long lingerMs;
+
+  /**
+   * deviceId -> the Tablet being filled of the device.
+   */
+  private final Map<String, DeviceBuffer> deviceBuffers = new HashMap<>();
+  /**
+   * the Tablets that are full or replaced because of new measurements, in the order they are
+   * sealed.
+   */
+  private List<Tablet> sealedTablets = new ArrayList<>();
+  private int bufferedRowNum = 0;
+  private long firstBufferedTime;
+
+  private final BlockingQueue<Batch> pendingBatches;
+  /**
+   * held from sealing a batch until it is put into pendingBatches, so that the batches are put in
+   * the order they are sealed. It is taken before the lock of this, which is never held when
+   * waiting for pendingBatches, so that the sender can always seal a lingering batch.
+   */
+  private final Lock putLock = new ReentrantLock();
+  private final Thread sender;
+  private boolean isClosed = false;
+  private final AtomicReference<Exception> failure = new AtomicReference<>();
+
+  private final AtomicLong pendingRowNum = new AtomicLong();
+  private final AtomicLong sentRowNum = new AtomicLong();
+  private final AtomicLong failedRowNum = new AtomicLong();
+  private final AtomicLong sentBatchNum = new AtomicLong();
+  private final AtomicLong totalBatchLatencyMs = new AtomicLong();
+  private final AtomicLong maxBatchLatencyMs = new AtomicLong();
+
+  public BatchingWriter(Session session) {
+    this(session::insertTablets, Config.DEFAULT_BATCHING_TABLET_SIZE,
+        Config.DEFAULT_BATCHING_BATCH_SIZE, Config.DEFAULT_BATCHING_LINGER_MS,
+        Config.DEFAULT_BATCHING_MAX_PENDING_BATCHES);
+  }
+
+  public BatchingWriter(SessionPool sessionPool) {
+    this(sessionPool::insertTablets, Config.DEFAULT_BATCHING_TABLET_SIZE,
+        Config.DEFAULT_BATCHING_BATCH_SIZE, Config.DEFAULT_BATCHING_LINGER_MS,
+        Config.DEFAULT_BATCHING_MAX_PENDING_BATCHES);
+  }
+
+  /**
+   * @param inserter          sends the Tablets of different devices by one request, e.g.,
+   *                          Session::insertTablets
+   * @param maxRowsPerTablet  the max number of rows of a Tablet
+   * @param maxRowsPerBatch   the number of buffered rows that seals a batch
+   * @param lingerMs          the max time a row is buffered before its batch is sealed
+   * @param maxPendingBatches the max number of sealed batches waiting to be sent
+   */
+  public BatchingWriter(TabletsInserter inserter, int maxRowsPerTablet, int maxRowsPerBatch,
+      long lingerMs, int maxPendingBatches) {
+    this.inserter = inserter;
+    this.maxRowsPerTablet = maxRowsPerTablet;
+    this.maxRowsPerBatch = maxRowsPerBatch;
+    this.lingerMs = lingerMs;
+    this.pendingBatches = new ArrayBlockingQueue<>(maxPendingBatches);
+    this.sender = new Thread(this::sendBatches, "BatchingWriter-sender");
+    sender.setDaemon(true);
+    sender.start();
+  }
+
+  /**
+   * write a point.
+   *
+   * @param value the value of the point, a String or a Binary if the type is TEXT
+   */
+  public void write(String deviceId, long time, String measurement, TSDataType type,
+      Object value) throws IoTDBConnectionException {
+    write(deviceId, time, Collections.singletonList(measurement),
+        Collections.singletonList(type), Collections.singletonList(value));
+  }
+
+  /**
+   * write a row of a device.
+   *
+   * @param values the values of the measurements, a String or a Binary for a TEXT measurement
+   */
+  public void write(String deviceId, long time, List<String> measurements,
+      List<TSDataType> types, List<Object> values) throws IoTDBConnectionException {
+    if (measurements.size() != types.size() || measurements.size() != values.size()) {
+      throw new IllegalArgumentException(
+          "measurements, types and values should have the same size");
+    }
+
+    putLock.lock();
+    try {
+      Batch batch = bufferRow(deviceId, time, measurements, types, values);
+      if (batch != null) {
+        putBatch(batch);
+      }
+    } finally {
+      putLock.unlock();
+    }
+  }
+
+  /**
+   * @return the sealed batch if there are maxRowsPerBatch buffered rows after the row is added
+   */
+  private synchronized Batch bufferRow(String deviceId, long time, List<String> measurements,
+      List<TSDataType> types, List<Object> values) throws IoTDBConnectionException {
+    if (isClosed) {
+      throw new IoTDBConnectionException("BatchingWriter is closed");
+    }
+    DeviceBuffer buffer = deviceBuffers.get(deviceId);
+    if (buffer == null || !buffer.contains(measurements, types)) {
+      buffer = newDeviceBuffer(deviceId, buffer, measurements, types);
+    }
+    Tablet tablet = buffer.tablet;
+
+    if (tablet.rowSize > 0 && tablet.timestamps[tablet.rowSize - 1] == time) {
+      // the same row as the previous point of the device
+      for (int i = 0; i < measurements.size(); i++) {
+        tablet.addValue(measurements.get(i), tablet.rowSize - 1, toTabletValue(values.get(i)));
+      }
+      return null;
+    }
+
+    int rowIndex = tablet.rowSize++;
+    tablet.addTimestamp(rowIndex, time);
+    for (MeasurementSchema schema : tablet.getSchemas()) {
+      if (!measurements.contains(schema.getMeasurementId())) {
+        tablet.addValue(schema.getMeasurementId(), rowIndex, null);
+      }
+    }
+    for (int i = 0; i < measurements.size(); i++) {
+      tablet.addValue(measurements.get(i), rowIndex, toTabletValue(values.get(i)));
+    }
+
+    if (bufferedRowNum++ == 0) {
+      firstBufferedTime = System.currentTimeMillis();
+    }
+    if (tablet.rowSize == maxRowsPerTablet) {
+      sealedTablets.add(tablet);
+      deviceBuffers.remove(deviceId);
+    }
+    return bufferedRowNum >= maxRowsPerBatch ? sealBatch() : null;
+  }
+
+  /**
+   * create a Tablet that has the measurements of the current Tablet of the device and the given
+   * ones. The rows of the current Tablet are copied into the new one, or the current Tablet is
+   * sealed if the type of a measurement changes.
+   */
+  private DeviceBuffer newDeviceBuffer(String deviceId, DeviceBuffer oldBuffer,
+      List<String> measurements, List<TSDataType> types) {
+    Map<String, TSDataType> schemaMap = new LinkedHashMap<>();
+    boolean typeChanged = false;
+    if (oldBuffer != null) {
+      schemaMap.putAll(oldBuffer.schemaMap);
+    }
+    for (int i = 0; i < measurements.size(); i++) {
+      TSDataType oldType = schemaMap.put(measurements.get(i), types.get(i));
+      typeChanged = typeChanged || (oldType != null && oldType != types.get(i));
+    }
+
+    List<MeasurementSchema> schemas = new ArrayList<>(schemaMap.size());
+    for (Map.Entry<String, TSDataType> entry : schemaMap.entrySet()) {
+      schemas.add(new MeasurementSchema(entry.getKey(), entry.getValue()));
+    }
+    Tablet tablet = new Tablet(deviceId, schemas, maxRowsPerTablet);
+    if (oldBuffer != null && oldBuffer.tablet.rowSize > 0) {
+      if (typeChanged) {
+        sealedTablets.add(oldBuffer.tablet);
+      } else {
+        copyRows(oldBuffer.tablet, tablet);
+      }
+    }
+    DeviceBuffer buffer = new DeviceBuffer(tablet, schemaMap);
+    deviceBuffers.put(deviceId, buffer);
+    return buffer;
+  }
+
+  /**
+   * copy the rows of a Tablet into a Tablet that has more measurements, whose values are null in
+   * the copied rows.
+   */
+  private void copyRows(Tablet from, Tablet to) {
+    List<MeasurementSchema> fromSchemas = from.getSchemas();
+    for (int row = 0; row < from.rowSize; row++) {
+      to.addTimestamp(row, from.timestamps[row]);
+      for (MeasurementSchema schema : to.getSchemas()) {
+        to.addValue(schema.getMeasurementId(), row, null);
+      }
+      for (int column = 0; column < fromSchemas.size(); column++) {
+        if (!from.isNull(column, row)) {
+          to.addValue(fromSchemas.get(column).getMeasurementId(), row,
+              Array.get(from.values[column], row));
+        }
+      }
+    }
+    to.rowSize = from.rowSize;
+  }
+
+  private Object toTabletValue(Object value) {
+    return value instanceof String ? new Binary((String) value) : value;
+  }
+
+  /**
+   * move all the buffered Tablets into a batch. The Tablets of a device are put into successive
+   * groups, so that they are sent in the order they are written.
+   */
+  private Batch sealBatch() {
+    for (DeviceBuffer buffer : deviceBuffers.values()) {
+      if (buffer.tablet.rowSize > 0) {
+        sealedTablets.add(buffer.tablet);
+      }
+    }
+    deviceBuffers.clear();
+
+    List<Map<String, Tablet>> tabletGroups = new ArrayList<>();
+    Map<String, Integer> lastGroupOfDevice = new HashMap<>();
+    for (Tablet tablet : sealedTablets) {
+      int groupIndex = lastGroupOfDevice.getOrDefault(tablet.deviceId, -1) + 1;
+      if (groupIndex == tabletGroups.size()) {
+        tabletGroups.add(new HashMap<>());
+      }
+      tabletGroups.get(groupIndex).put(tablet.deviceId, tablet);
+      lastGroupOfDevice.put(tablet.deviceId, groupIndex);
+    }
+
+    Batch batch = new Batch(tabletGroups, bufferedRowNum);
+    pendingRowNum.addAndGet(bufferedRowNum);
+    sealedTablets = new ArrayList<>();
+    bufferedRowNum = 0;
+    return batch;
+  }
+
+  /**
+   * called with putLock held but not the lock of this, so that the batches are sent in the order
+   * they are sealed, and the sender can seal lingering batches while the writer waits.
+   */
+  private void putBatch(Batch batch) throws IoTDBConnectionException {
+    try {
+      pendingBatches.put(batch);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      pendingRowNum.addAndGet(-batch.rowNum);
+      failedRowNum.addAndGet(batch.rowNum);
+      throw new IoTDBConnectionException("Interrupted when waiting for the pending batches", e);
+    }
+  }
+
+  /**
+   * seal the buffered rows into a batch and wait until all the batches are sent.
+   *
+   * @throws IoTDBConnectionException    if a batch fails because of the connection since the last
+   *                                     flush
+   * @throws StatementExecutionException if a batch is rejected by the server since the last flush
+   */
+  public void flush() throws IoTDBConnectionException, StatementExecutionException {
+    Batch batch;
+    putLock.lock();
+    try {
+      synchronized (this) {
+        if (isClosed) {
+          throw new IoTDBConnectionException("BatchingWriter is closed");
+        }
+        batch = sealBatch();
+      }
+      putBatch(batch);
+    } finally {
+      putLock.unlock();
+    }
+    waitAndCheckFailure(batch);
+  }
+
+  /**
+   * send all the buffered rows and stop the sender.
+   */
+  @Override
+  public void close() throws IoTDBConnectionException, StatementExecutionException {
+    Batch batch;
+    putLock.lock();
+    try {
+      synchronized (this) {
+        if (isClosed) {
+          return;
+        }
+        batch = sealBatch();
+        batch.isLast = true;
+      }
+      putBatch(batch);
+      synchronized (this) {
+        isClosed = true;
+      }
+    } finally {
+      putLock.unlock();
+    }
+    waitAndCheckFailure(batch);
+  }
+
+  private void waitAndCheckFailure(Batch batch)
+      throws IoTDBConnectionException, StatementExecutionException {
+    try {
+      batch.sent.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IoTDBConnectionException("Interrupted when waiting for the batches to be sent", e);
+    }
+    Exception e = failure.getAndSet(null);
+    if (e instanceof IoTDBConnectionException) {
+      throw (IoTDBConnectionException) e;
+    } else if (e != null) {
+      throw (StatementExecutionException) e;
+    }
+  }
+
+  private void sendBatches() {
+    while (true) {
+      Batch batch;
+      try {
+        batch = pendingBatches.poll(lingerMs, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      if (batch == null) {
+        batch = sealLingeringBatch();
+        if (batch == null) {
+          continue;
+        }
+      }
+      send(batch);
+      if (batch.isLast) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * @return a batch of the buffered rows if the first of them has been buffered for lingerMs
+   */
+  private Batch sealLingeringBatch() {
+    // a writer holding putLock may be waiting for the sender to take a pending batch, so the
+    // sender never waits for putLock. The pending batches are sealed before the buffered rows, so
+    // they are sent first.
+    if (!putLock.tryLock()) {
+      return null;
+    }
+    try {
+      synchronized (this) {
+        if (!pendingBatches.isEmpty() || bufferedRowNum == 0
+            || System.currentTimeMillis() - firstBufferedTime < lingerMs) {
+          return null;
+        }
+        return sealBatch();
+      }
+    } finally {
+      putLock.unlock();
+    }
+  }
+
+  private void send(Batch batch) {
+    try {
+      for (Map<String, Tablet> tablets : batch.tabletGroups) {
+        insertWithRetry(tablets);
+      }
+      sentRowNum.addAndGet(batch.rowNum);
+    } catch (IoTDBConnectionException | StatementExecutionException e) {
+      logger.error("Fail to send a batch of {} rows", batch.rowNum, e);
+      failedRowNum.addAndGet(batch.rowNum);
+      failure.compareAndSet(null, e);
+    } finally {
+      pendingRowNum.addAndGet(-batch.rowNum);
+      if (batch.rowNum > 0) {
+        long latency = System.currentTimeMillis() - batch.createTime;
+        sentBatchNum.incrementAndGet();
+        totalBatchLatencyMs.addAndGet(latency);
+        maxBatchLatencyMs.accumulateAndGet(latency, Math::max);
+      }
+      batch.sent.countDown();
+    }
+  }
+
+  private void insertWithRetry(Map<String, Tablet> tablets)
+      throws IoTDBConnectionException, StatementExecutionException {
+    long retryInterval = Config.RETRY_INTERVAL_MS;
+    for (int i = 0; ; i++) {
+      try {
+        inserter.insertTablets(tablets);
+        return;
+      } catch (IoTDBConnectionException e) {
+        if (i == Config.RETRY_NUM) {
+          throw e;
+        }
+        logger.warn("Fail to insert tablets, retry after {} ms", retryInterval, e);
+        try {
+          Thread.sleep(retryInterval);
+        } catch (InterruptedException e1) {
+          Thread.currentThread().interrupt();
+          throw e;
+        }
+        retryInterval *= 2;
+      }
+    }
+  }
+
+  /**
+   * @return the number of rows buffered in Tablets and not sealed into batches
+   */
+  public synchronized int getBufferedRowNum() {
+    return bufferedRowNum;
+  }
+
+  /**
+   * @return the number of rows in the batches that are sealed but not sent
+   */
+  public long getPendingRowNum() {
+    return pendingRowNum.get();
+  }
+
+  /**
+   * @return the number of batches that are sealed but not sent
+   */
+  public int getPendingBatchNum() {
+    return pendingBatches.size();
+  }
+
+  public long getSentRowNum() {
+    return sentRowNum.get();
+  }
+
+  public long getFailedRowNum() {
+    return failedRowNum.get();
+  }
+
+  /**
+   * @return the average time from a batch being sealed to it being sent or dropped
+   */
+  public long getAverageBatchLatencyMs() {
+    long batchNum = sentBatchNum.get();
+    return batchNum == 0 ? 0 : totalBatchLatencyMs.get() / batchNum;
+  }
+
+  public long getMaxBatchLatencyMs() {
+    return maxBatchLatencyMs.get();
+  }
+
+  /**
+   * sends the Tablets of different devices by one request.
+   */
+  @FunctionalInterface
+  public interface TabletsInserter {
+
+    void insertTablets(Map<String, Tablet> tablets)
+        throws IoTDBConnectionException, StatementExecutionException;
+  }
+
+  private static class DeviceBuffer {
+
+    private final Tablet tablet;
+    private final Map<String, TSDataType> schemaMap;
+
+    private DeviceBuffer(Tablet tablet, Map<String, TSDataType> schemaMap) {
+      this.tablet = tablet;
+      this.schemaMap = schemaMap;
+    }
+
+    private boolean contains(List<String> measurements, List<TSDataType> types) {
+      for (int i = 0; i < measurements.size(); i++) {
+        if (schemaMap.get(measurements.get(i)) != types.get(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  private static class Batch {
+
+    private final List<Map<String, Tablet>> tabletGroups;
+    private final int rowNum;
+    private final long createTime = System.currentTimeMillis();
+    private final CountDownLatch sent = new CountDownLatch(1);
+    private boolean isLast = false;
+
+    private Batch(List<Map<String, Tablet>> tabletGroups, int rowNum) {
+      this.tabletGroups = tabletGroups;
+      this.rowNum = rowNum;
+    }
+  }
+}
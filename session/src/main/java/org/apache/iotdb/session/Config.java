@@ -26,4 +26,40 @@ public class Config {
   public static final int DEFAULT_TIMEOUT_MS = 0;
   public static final int RETRY_NUM = 3;
   public static final long RETRY_INTERVAL_MS = 1000;
+
+  /**
+   * the number of pipelined connections of an AsyncSession
+   */
+  public static final int DEFAULT_PIPELINED_CONNECTION_NUM = 4;
+  /**
+   * the max number of requests of an AsyncSession that are sent but not responded
+   */
+  public static final int DEFAULT_MAX_IN_FLIGHT_REQUESTS = 32;
+
+  /**
+   * the max number of rows of a Tablet of a BatchingWriter
+   */
+  public static final int DEFAULT_BATCHING_TABLET_SIZE = 256;
+  /**
+   * the number of rows buffered by a BatchingWriter that are sent together
+   */
+  public static final int DEFAULT_BATCHING_BATCH_SIZE = 10000;
+  /**
+   * the max time in ms a row is buffered by a BatchingWriter before it is sent
+   */
+  public static final long DEFAULT_BATCHING_LINGER_MS = 100;
+  /**
+   * the max number of batches of a BatchingWriter waiting to be sent
+   */
+  public static final int DEFAULT_BATCHING_MAX_PENDING_BATCHES = 4;
+
+  /**
+   * the interval in ms to check the idle sessions of a SessionPool
+   */
+  public static final long DEFAULT_SESSION_POOL_KEEP_ALIVE_INTERVAL_MS = 30_000;
+
+  /**
+   * the size in bytes of a chunk of a TsFile uploaded by Session.loadTsFile()
+   */
+  public static final int DEFAULT_LOAD_FILE_CHUNK_SIZE = 1024 * 1024;
 }
@@ -0,0 +1,318 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.session;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import org.apache.iotdb.rpc.IoTDBConnectionException;
+import org.apache.iotdb.rpc.RpcUtils;
+import org.apache.iotdb.rpc.StatementExecutionException;
+import org.apache.iotdb.service.rpc.thrift.TSCloseSessionReq;
+import org.apache.iotdb.service.rpc.thrift.TSIService;
+import org.apache.iotdb.service.rpc.thrift.TSInsertRecordReq;
+import org.apache.iotdb.service.rpc.thrift.TSInsertRecordsReq;
+import org.apache.iotdb.service.rpc.thrift.TSInsertStringRecordReq;
+import org.apache.iotdb.service.rpc.thrift.TSInsertStringRecordsReq;
+import org.apache.iotdb.service.rpc.thrift.TSInsertTabletReq;
+import org.apache.iotdb.service.rpc.thrift.TSInsertTabletsReq;
+import org.apache.iotdb.service.rpc.thrift.TSOpenSessionReq;
+import org.apache.iotdb.service.rpc.thrift.TSOpenSessionResp;
+import org.apache.iotdb.service.rpc.thrift.TSStatus;
+import org.apache.thrift.TApplicationException;
+import org.apache.thrift.TBase;
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.apache.thrift.protocol.TMessage;
+import org.apache.thrift.protocol.TMessageType;
+import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.transport.TFastFramedTransport;
+import org.apache.thrift.transport.TSocket;
+import org.apache.thrift.transport.TTransport;
+import org.apache.thrift.transport.TTransportException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A connection that sends requests without waiting for the responses of the previous ones. The
+ * server handles the requests of a connection one by one and responds in the same order, so the
+ * requests are written by the callers and a receiver thread reads the responses in the order of
+ * the requests and completes their futures.
+ * <p>
+ * Once the connection fails, all the pending requests and the following ones fail with an
+ * IoTDBConnectionException, the connection is not reconnected but replaced by
+ * {@link AsyncConnectionGroup}.
+ */
+class PipelinedConnection implements AsyncConnection {
+
+  private static final Logger logger = LoggerFactory.getLogger(PipelinedConnection.class);
+
+  /**
+   * put after the last request when the connection is closed, so that the receiver stops after
+   * the responses of all the requests are received.
+   */
+  private static final PendingCall CLOSE_MARK = new PendingCall(null, null);
+
+  private final TTransport transport;
+  private final PipelinedClient client;
+  private long sessionId;
+
+  /**
+   * the requests that are sent but not responded, in the order they are sent.
+   */
+  private final BlockingQueue<PendingCall> pendingCalls = new LinkedBlockingQueue<>();
+  private final Thread receiver;
+  private boolean isClosed = false;
+  private volatile boolean isBroken = false;
+
+  PipelinedConnection(String host, int rpcPort, String username, String password, String zoneId,
+      boolean enableRPCCompression, int connectionTimeoutInMs) throws IoTDBConnectionException {
+    transport = new TFastFramedTransport(new TSocket(host, rpcPort, connectionTimeoutInMs));
+    try {
+      transport.open();
+    } catch (TTransportException e) {
+      throw new IoTDBConnectionException(e);
+    }
+
+    // the receiver reads while the callers write, so they do not share a protocol
+    if (enableRPCCompression) {
+      client = new PipelinedClient(new TCompactProtocol(transport),
+          new TCompactProtocol(transport));
+    } else {
+      client = new PipelinedClient(new TBinaryProtocol(transport), new TBinaryProtocol(transport));
+    }
+
+    TSOpenSessionReq openReq = new TSOpenSessionReq();
+    openReq.setUsername(username);
+    openReq.setPassword(password);
+    openReq.setZoneId(zoneId);
+    try {
+      TSOpenSessionResp openResp = client.openSession(openReq);
+      RpcUtils.verifySuccess(openResp.getStatus());
+      sessionId = openResp.getSessionId();
+    } catch (Exception e) {
+      transport.close();
+      throw new IoTDBConnectionException(e);
+    }
+
+    receiver = new Thread(this::receive, "PipelinedConnection-" + sessionId);
+    receiver.setDaemon(true);
+    receiver.start();
+  }
+
+  @Override
+  public CompletableFuture<Void> insertTablet(TSInsertTabletReq request) {
+    request.setSessionId(sessionId);
+    return call(() -> client.send_insertTablet(request), client::recv_insertTablet);
+  }
+
+  @Override
+  public CompletableFuture<Void> insertTablets(TSInsertTabletsReq request) {
+    request.setSessionId(sessionId);
+    return call(() -> client.send_insertTablets(request), client::recv_insertTablets);
+  }
+
+  @Override
+  public CompletableFuture<Void> insertRecord(TSInsertRecordReq request) {
+    request.setSessionId(sessionId);
+    return call(() -> client.send_insertRecord(request), client::recv_insertRecord);
+  }
+
+  @Override
+  public CompletableFuture<Void> insertStringRecord(TSInsertStringRecordReq request) {
+    request.setSessionId(sessionId);
+    return call(() -> client.send_insertStringRecord(request), client::recv_insertStringRecord);
+  }
+
+  @Override
+  public CompletableFuture<Void> insertRecords(TSInsertRecordsReq request) {
+    request.setSessionId(sessionId);
+    return call(() -> client.send_insertRecords(request), client::recv_insertRecords);
+  }
+
+  @Override
+  public CompletableFuture<Void> insertStringRecords(TSInsertStringRecordsReq request) {
+    request.setSessionId(sessionId);
+    return call(() -> client.send_insertStringRecords(request),
+        client::recv_insertStringRecords);
+  }
+
+  private CompletableFuture<Void> call(Sender sender, Receiver receiver) {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    synchronized (this) {
+      if (isClosed) {
+        future.completeExceptionally(new IoTDBConnectionException("Connection is closed"));
+        return future;
+      }
+      try {
+        sender.send();
+      } catch (TException e) {
+        future.completeExceptionally(new IoTDBConnectionException(e));
+        fail(e);
+        return future;
+      }
+      pendingCalls.add(new PendingCall(receiver, future));
+    }
+    return future;
+  }
+
+  private void receive() {
+    while (true) {
+      PendingCall call;
+      try {
+        call = pendingCalls.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        fail(e);
+        return;
+      }
+      if (call == CLOSE_MARK) {
+        return;
+      }
+
+      TSStatus status;
+      try {
+        status = call.receiver.receive();
+      } catch (TException e) {
+        call.future.completeExceptionally(new IoTDBConnectionException(e));
+        fail(e);
+        return;
+      }
+      try {
+        RpcUtils.verifySuccess(status);
+        call.future.complete(null);
+      } catch (StatementExecutionException e) {
+        call.future.completeExceptionally(e);
+      }
+    }
+  }
+
+  /**
+   * close the transport and fail all the pending requests, the receiver stops after that.
+   */
+  private void fail(Exception cause) {
+    synchronized (this) {
+      isClosed = true;
+    }
+    isBroken = true;
+    logger.warn("Pipelined connection of session {} fails", sessionId, cause);
+    transport.close();
+    PendingCall call;
+    while ((call = pendingCalls.poll()) != null) {
+      if (call != CLOSE_MARK) {
+        call.future.completeExceptionally(new IoTDBConnectionException(cause));
+      }
+    }
+    pendingCalls.add(CLOSE_MARK);
+  }
+
+  @Override
+  public boolean isBroken() {
+    return isBroken;
+  }
+
+  /**
+   * wait for the responses of all the sent requests and close the session.
+   */
+  @Override
+  public void close() throws IoTDBConnectionException {
+    synchronized (this) {
+      if (isClosed) {
+        return;
+      }
+      isClosed = true;
+      pendingCalls.add(CLOSE_MARK);
+    }
+    try {
+      receiver.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      transport.close();
+      throw new IoTDBConnectionException(e);
+    }
+
+    try {
+      if (transport.isOpen()) {
+        client.closeSession(new TSCloseSessionReq(sessionId));
+      }
+    } catch (TException e) {
+      throw new IoTDBConnectionException(
+          "Error occurs when closing session at server. Maybe server is down.", e);
+    } finally {
+      transport.close();
+    }
+  }
+
+  @FunctionalInterface
+  private interface Sender {
+
+    void send() throws TException;
+  }
+
+  @FunctionalInterface
+  private interface Receiver {
+
+    TSStatus receive() throws TException;
+  }
+
+  private static class PendingCall {
+
+    private final Receiver receiver;
+    private final CompletableFuture<Void> future;
+
+    PendingCall(Receiver receiver, CompletableFuture<Void> future) {
+      this.receiver = receiver;
+      this.future = future;
+    }
+  }
+
+  /**
+   * When a response is received, seqid_ has been increased by the requests sent after it, so the
+   * sequence id of a response is checked against the number of received responses instead.
+   */
+  private static class PipelinedClient extends TSIService.Client {
+
+    private int receivedSeqId = 0;
+
+    PipelinedClient(TProtocol iprot, TProtocol oprot) {
+      super(iprot, oprot);
+    }
+
+    @Override
+    protected void receiveBase(TBase<?, ?> result, String methodName) throws TException {
+      TMessage msg = iprot_.readMessageBegin();
+      receivedSeqId++;
+      if (msg.type == TMessageType.EXCEPTION) {
+        TApplicationException x = new TApplicationException();
+        x.read(iprot_);
+        iprot_.readMessageEnd();
+        throw x;
+      }
+      if (msg.seqid != receivedSeqId) {
+        throw new TApplicationException(TApplicationException.BAD_SEQUENCE_ID, String
+            .format("%s failed: out of sequence response: expected %d but got %d", methodName,
+                receivedSeqId, msg.seqid));
+      }
+      result.read(iprot_);
+      iprot_.readMessageEnd();
+    }
+  }
+}
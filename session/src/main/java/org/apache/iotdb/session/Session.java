@@ -18,23 +18,37 @@
  */
 package org.apache.iotdb.session;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
 import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import org.apache.iotdb.rpc.BatchExecutionException;
 import org.apache.iotdb.rpc.IoTDBConnectionException;
 import org.apache.iotdb.rpc.RpcUtils;
 import org.apache.iotdb.rpc.StatementExecutionException;
+import org.apache.iotdb.service.rpc.thrift.TSAbortLoadFileReq;
 import org.apache.iotdb.service.rpc.thrift.TSCloseSessionReq;
 import org.apache.iotdb.service.rpc.thrift.TSCreateMultiTimeseriesReq;
 import org.apache.iotdb.service.rpc.thrift.TSCreateTimeseriesReq;
 import org.apache.iotdb.service.rpc.thrift.TSDeleteDataReq;
+import org.apache.iotdb.service.rpc.thrift.TSEndLoadFileReq;
 import org.apache.iotdb.service.rpc.thrift.TSExecuteStatementReq;
 import org.apache.iotdb.service.rpc.thrift.TSExecuteStatementResp;
+import org.apache.iotdb.service.rpc.thrift.TSGetTimeZoneResp;
 import org.apache.iotdb.service.rpc.thrift.TSIService;
 import org.apache.iotdb.service.rpc.thrift.TSInsertRecordReq;
 import org.apache.iotdb.service.rpc.thrift.TSInsertRecordsReq;
@@ -42,11 +56,13 @@ import org.apache.iotdb.service.rpc.thrift.TSInsertStringRecordReq;
 import org.apache.iotdb.service.rpc.thrift.TSInsertStringRecordsReq;
 import org.apache.iotdb.service.rpc.thrift.TSInsertTabletReq;
 import org.apache.iotdb.service.rpc.thrift.TSInsertTabletsReq;
+import org.apache.iotdb.service.rpc.thrift.TSLoadFileDataReq;
 import org.apache.iotdb.service.rpc.thrift.TSOpenSessionReq;
 import org.apache.iotdb.service.rpc.thrift.TSOpenSessionResp;
 import org.apache.iotdb.service.rpc.thrift.TSProtocolVersion;
 import org.apache.iotdb.service.rpc.thrift.TSRawDataQueryReq;
 import org.apache.iotdb.service.rpc.thrift.TSSetTimeZoneReq;
+import org.apache.iotdb.service.rpc.thrift.TSStartLoadFileReq;
 import org.apache.iotdb.service.rpc.thrift.TSStatus;
 import org.apache.iotdb.tsfile.common.conf.TSFileConfig;
 import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
@@ -54,6 +70,7 @@ import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
 import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.BitMap;
 import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
 import org.apache.iotdb.tsfile.write.record.Tablet;
 import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
@@ -70,6 +87,7 @@ import org.slf4j.LoggerFactory;
 public class Session {
 
   private static final Logger logger = LoggerFactory.getLogger(Session.class);
+  private static final String RESOURCE_SUFFIX = ".resource";
   private final TSProtocolVersion protocolVersion = TSProtocolVersion.IOTDB_SERVICE_PROTOCOL_V3;
   private String host;
   private int rpcPort;
@@ -84,6 +102,10 @@ public class Session {
   private int fetchSize;
   private boolean enableRPCCompression;
   private int connectionTimeoutInMs;
+  /**
+   * runs the fetches of the result sets in the prefetch mode.
+   */
+  private ExecutorService prefetchExecutor;
 
   public Session(String host, int rpcPort) {
     this(host, rpcPort, Config.DEFAULT_USER, Config.DEFAULT_PASSWORD, Config.DEFAULT_FETCH_SIZE, null);
@@ -175,6 +197,7 @@ public class Session {
       transport.close();
       throw new IoTDBConnectionException(e);
     }
+    prefetchExecutor = newPrefetchExecutor();
     isClosed = false;
 
     client = RpcUtils.newSynchronizedClient(client);
@@ -195,9 +218,28 @@ public class Session {
       if (transport != null) {
         transport.close();
       }
+      if (prefetchExecutor != null) {
+        prefetchExecutor.shutdown();
+        prefetchExecutor = null;
+      }
     }
   }
 
+  /**
+   * the fetches in the background share the connection of the session, so one thread is enough,
+   * and it exits when no result set is prefetched for a while.
+   */
+  private static ExecutorService newPrefetchExecutor() {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(), r -> {
+      Thread thread = new Thread(r, "Session-prefetch");
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
   /**
    * insert data in one row, if you want to improve your performance, please use insertRecords
    * method or insertTablet method
@@ -238,7 +280,35 @@ public class Session {
    */
   public void insertTablet(Tablet tablet, boolean sorted)
       throws IoTDBConnectionException, StatementExecutionException {
+    insertTablet(genTSInsertTabletReq(tablet, sorted));
+  }
+
+  /**
+   * insert the data of an aligned device, whose measurements share one time column in the memtable
+   * of the server. Times in Tablet may be not in ascending order
+   *
+   * @param tablet data batch
+   */
+  public void insertAlignedTablet(Tablet tablet)
+      throws StatementExecutionException, IoTDBConnectionException {
+    insertAlignedTablet(tablet, false);
+  }
+
+  /**
+   * insert a Tablet of an aligned device
+   *
+   * @param tablet data batch
+   * @param sorted whether times in Tablet are in ascending order
+   */
+  public void insertAlignedTablet(Tablet tablet, boolean sorted)
+      throws IoTDBConnectionException, StatementExecutionException {
     TSInsertTabletReq request = genTSInsertTabletReq(tablet, sorted);
+    request.setIsAligned(true);
+    insertTablet(request);
+  }
+
+  private void insertTablet(TSInsertTabletReq request)
+      throws IoTDBConnectionException, StatementExecutionException {
     try {
       RpcUtils.verifySuccess(client.insertTablet(request));
     } catch (TException e) {
@@ -255,7 +325,7 @@ public class Session {
     }
   }
 
-  private TSInsertTabletReq genTSInsertTabletReq(Tablet tablet, boolean sorted)
+  TSInsertTabletReq genTSInsertTabletReq(Tablet tablet, boolean sorted)
       throws BatchExecutionException {
     if (sorted) {
       if (!checkSorted(tablet)) {
@@ -274,6 +344,10 @@ public class Session {
     }
     request.setTimestamps(SessionUtils.getTimeBuffer(tablet));
     request.setValues(SessionUtils.getValueBuffer(tablet));
+    ByteBuffer bitMapBuffer = SessionUtils.getBitMapBuffer(tablet);
+    if (bitMapBuffer != null) {
+      request.setBitmaps(bitMapBuffer);
+    }
     request.setSize(tablet.rowSize);
     return request;
   }
@@ -318,10 +392,12 @@ public class Session {
     }
   }
 
-  private TSInsertTabletsReq genTSInsertTabletsReq(Map<String, Tablet> tablets, boolean sorted)
+  TSInsertTabletsReq genTSInsertTabletsReq(Map<String, Tablet> tablets, boolean sorted)
       throws BatchExecutionException {
     TSInsertTabletsReq request = new TSInsertTabletsReq();
     request.setSessionId(sessionId);
+    List<ByteBuffer> bitMapBuffers = new ArrayList<>();
+    boolean hasNullValues = false;
 
     for (Tablet tablet : tablets.values()) {
       if (sorted) {
@@ -344,6 +420,12 @@ public class Session {
       request.addToTimestampsList(SessionUtils.getTimeBuffer(tablet));
       request.addToValuesList(SessionUtils.getValueBuffer(tablet));
       request.addToSizeList(tablet.rowSize);
+      ByteBuffer bitMapBuffer = SessionUtils.getBitMapBuffer(tablet);
+      hasNullValues = hasNullValues || bitMapBuffer != null;
+      bitMapBuffers.add(bitMapBuffer == null ? ByteBuffer.allocate(0) : bitMapBuffer);
+    }
+    if (hasNullValues) {
+      request.setBitmapsList(bitMapBuffers);
     }
     return request;
   }
@@ -379,7 +461,7 @@ public class Session {
     }
   }
 
-  private TSInsertRecordsReq genTSInsertRecordsReq(List<String> deviceIds, List<Long> times,
+  TSInsertRecordsReq genTSInsertRecordsReq(List<String> deviceIds, List<Long> times,
       List<List<String>> measurementsList, List<List<TSDataType>> typesList,
       List<List<Object>> valuesList) throws IoTDBConnectionException {
     // check params size
@@ -436,7 +518,7 @@ public class Session {
     }
   }
 
-  private TSInsertStringRecordsReq genTSInsertStringRecordsReq(List<String> deviceIds,
+  TSInsertStringRecordsReq genTSInsertStringRecordsReq(List<String> deviceIds,
       List<Long> times,
       List<List<String>> measurementsList, List<List<String>> valuesList) {
     // check params size
@@ -482,7 +564,7 @@ public class Session {
     }
   }
 
-  private TSInsertRecordReq genTSInsertRecordReq(String deviceId, long time,
+  TSInsertRecordReq genTSInsertRecordReq(String deviceId, long time,
       List<String> measurements,
       List<TSDataType> types,
       List<Object> values) throws IoTDBConnectionException {
@@ -526,7 +608,7 @@ public class Session {
     }
   }
 
-  private TSInsertStringRecordReq genTSInsertStringRecordReq(String deviceId, long time,
+  TSInsertStringRecordReq genTSInsertStringRecordReq(String deviceId, long time,
       List<String> measurements, List<String> values) {
     TSInsertStringRecordReq request = new TSInsertStringRecordReq();
     request.setSessionId(sessionId);
@@ -818,6 +900,100 @@ public class Session {
     }
   }
 
+  /**
+   * upload a TsFile generated elsewhere, e.g., by TsFileWriter or spark-tsfile, and load it as the
+   * "load" statement does, the schemas of its timeseries are created automatically. Its .resource
+   * file is uploaded too if it is beside the TsFile, otherwise the server generates one.
+   */
+  public void loadTsFile(File tsFile)
+      throws IoTDBConnectionException, StatementExecutionException, IOException {
+    uploadAndLoadTsFile(tsFile, null, null);
+  }
+
+  /**
+   * @param autoCreateSchema whether to create the schemas of the timeseries in the TsFile
+   * @param sgLevel          the level of the storage groups of the created timeseries
+   * @see #loadTsFile(File)
+   */
+  public void loadTsFile(File tsFile, boolean autoCreateSchema, int sgLevel)
+      throws IoTDBConnectionException, StatementExecutionException, IOException {
+    uploadAndLoadTsFile(tsFile, autoCreateSchema, sgLevel);
+  }
+
+  private void uploadAndLoadTsFile(File tsFile, Boolean autoCreateSchema, Integer sgLevel)
+      throws IoTDBConnectionException, StatementExecutionException, IOException {
+    String fileName = tsFile.getName();
+    File resourceFile = new File(tsFile.getPath() + RESOURCE_SUFFIX);
+    try {
+      RpcUtils.verifySuccess(client.startLoadFile(new TSStartLoadFileReq(sessionId, fileName)));
+      TSEndLoadFileReq request = new TSEndLoadFileReq();
+      request.setSessionId(sessionId);
+      request.setFileName(fileName);
+      try {
+        request.setMd5(uploadFile(tsFile, fileName, false));
+        if (resourceFile.exists()) {
+          request.setResourceMd5(uploadFile(resourceFile, fileName, true));
+        }
+      } catch (IOException | TException | StatementExecutionException e) {
+        abortUpload(fileName, e);
+        throw e;
+      }
+      if (autoCreateSchema != null) {
+        request.setAutoCreateSchema(autoCreateSchema);
+      }
+      if (sgLevel != null) {
+        request.setSgLevel(sgLevel);
+      }
+      RpcUtils.verifySuccess(client.endLoadFile(request));
+    } catch (TException e) {
+      throw new IoTDBConnectionException(e);
+    }
+  }
+
+  /**
+   * tell the server to discard the files uploaded so far, the upload is discarded when the session
+   * is closed anyway if the server cannot be told.
+   */
+  private void abortUpload(String fileName, Exception cause) {
+    try {
+      RpcUtils.verifySuccess(client.abortLoadFile(new TSAbortLoadFileReq(sessionId, fileName)));
+    } catch (TException | StatementExecutionException e) {
+      cause.addSuppressed(e);
+    }
+  }
+
+  /**
+   * send a file in chunks.
+   *
+   * @return the MD5 of the file
+   */
+  private String uploadFile(File file, String fileName, boolean isResource)
+      throws IOException, TException, StatementExecutionException {
+    MessageDigest messageDigest;
+    try {
+      messageDigest = MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
+    byte[] buffer = new byte[Config.DEFAULT_LOAD_FILE_CHUNK_SIZE];
+    long offset = 0;
+    try (InputStream inputStream = new FileInputStream(file)) {
+      int length;
+      while ((length = inputStream.read(buffer)) != -1) {
+        messageDigest.update(buffer, 0, length);
+        TSLoadFileDataReq request = new TSLoadFileDataReq();
+        request.setSessionId(sessionId);
+        request.setFileName(fileName);
+        request.setIsResource(isResource);
+        request.setOffset(offset);
+        request.setData(ByteBuffer.wrap(buffer, 0, length));
+        RpcUtils.verifySuccess(client.loadFileData(request));
+        offset += length;
+      }
+    }
+    return new BigInteger(1, messageDigest.digest()).toString(16);
+  }
+
   public void setStorageGroup(String storageGroupId)
       throws IoTDBConnectionException, StatementExecutionException {
     try {
@@ -920,6 +1096,20 @@ public class Session {
     return result;
   }
 
+  /**
+   * check whether the connection and the session at the server are still valid, by fetching the
+   * time zone of the session from the server.
+   */
+  public void checkConnection() throws IoTDBConnectionException, StatementExecutionException {
+    TSGetTimeZoneResp resp;
+    try {
+      resp = client.getTimeZone(sessionId);
+    } catch (TException e) {
+      throw new IoTDBConnectionException(e);
+    }
+    RpcUtils.verifySuccess(resp.getStatus());
+  }
+
   public synchronized String getTimeZone() {
     if (zoneId == null) {
       zoneId = ZoneId.systemDefault();
@@ -975,7 +1165,7 @@ public class Session {
     return new SessionDataSet(sql, execResp.getColumns(), execResp.getDataTypeList(),
         execResp.columnNameIndexMap,
         execResp.getQueryId(), client, sessionId, execResp.queryDataSet,
-        execResp.isIgnoreTimeStamp());
+        execResp.isIgnoreTimeStamp(), prefetchExecutor);
   }
 
   /**
@@ -1046,7 +1236,7 @@ public class Session {
     return new SessionDataSet("", execResp.getColumns(), execResp.getDataTypeList(),
         execResp.columnNameIndexMap,
         execResp.getQueryId(), client, sessionId, execResp.queryDataSet,
-        execResp.isIgnoreTimeStamp());
+        execResp.isIgnoreTimeStamp(), prefetchExecutor);
   }
 
   /**
@@ -1079,7 +1269,27 @@ public class Session {
     for (int i = 0; i < tablet.getSchemas().size(); i++) {
       tablet.values[i] =
           sortList(tablet.values[i], tablet.getSchemas().get(i).getType(), index);
+      if (tablet.bitMaps != null && tablet.bitMaps[i] != null) {
+        tablet.bitMaps[i] = sortBitMap(tablet.bitMaps[i], index);
+      }
+    }
+  }
+
+  /**
+   * sort the bitmap of null values by index
+   *
+   * @param bitMap bitmap
+   * @param index  index
+   * @return sorted bitmap
+   */
+  private BitMap sortBitMap(BitMap bitMap, Integer[] index) {
+    BitMap sortedBitMap = new BitMap(bitMap.getSize());
+    for (int i = 0; i < index.length; i++) {
+      if (bitMap.isMarked(index[i])) {
+        sortedBitMap.mark(i);
+      }
     }
+    return sortedBitMap;
   }
 
   /**
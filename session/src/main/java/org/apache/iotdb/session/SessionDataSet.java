@@ -24,6 +24,7 @@ import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import org.apache.iotdb.rpc.IoTDBRpcDataSet;
 import org.apache.iotdb.rpc.IoTDBConnectionException;
 import org.apache.iotdb.rpc.StatementExecutionException;
@@ -34,6 +35,7 @@ import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.read.common.Field;
 import org.apache.iotdb.tsfile.read.common.RowRecord;
 import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.BitMap;
 import org.apache.iotdb.tsfile.utils.BytesUtils;
 import org.apache.thrift.TException;
 
@@ -45,8 +47,21 @@ public class SessionDataSet {
       Map<String, Integer> columnNameIndex,
       long queryId, TSIService.Iface client, long sessionId, TSQueryDataSet queryDataSet,
       boolean ignoreTimeStamp) {
+    this(sql, columnNameList, columnTypeList, columnNameIndex, queryId, client, sessionId,
+        queryDataSet, ignoreTimeStamp, null);
+  }
+
+  /**
+   * @param prefetchExecutor runs the fetches in the prefetch mode, which is owned by the session
+   */
+  @SuppressWarnings("squid:S107")
+  public SessionDataSet(String sql, List<String> columnNameList, List<String> columnTypeList,
+      Map<String, Integer> columnNameIndex,
+      long queryId, TSIService.Iface client, long sessionId, TSQueryDataSet queryDataSet,
+      boolean ignoreTimeStamp, ExecutorService prefetchExecutor) {
     this.ioTDBRpcDataSet = new IoTDBRpcDataSet(sql, columnNameList, columnTypeList, columnNameIndex,
-        ignoreTimeStamp, queryId, client, sessionId, queryDataSet, Config.DEFAULT_FETCH_SIZE);
+        ignoreTimeStamp, queryId, client, sessionId, queryDataSet, Config.DEFAULT_FETCH_SIZE,
+        prefetchExecutor);
   }
 
   public int getFetchSize() {
@@ -57,6 +72,20 @@ public class SessionDataSet {
     ioTDBRpcDataSet.fetchSize = fetchSize;
   }
 
+  public boolean isPrefetch() {
+    return ioTDBRpcDataSet.isPrefetch();
+  }
+
+  /**
+   * in the prefetch mode, the next block of fetchSize rows is fetched in the background while the
+   * current one is consumed, and the server produces the block after it in the background too.
+   * The connection of the session is shared by the fetches in the background, which run in a
+   * thread of the session.
+   */
+  public void setPrefetch(boolean prefetch) {
+    ioTDBRpcDataSet.setPrefetch(prefetch);
+  }
+
   public List<String> getColumnNames() {
     return new ArrayList<>(ioTDBRpcDataSet.columnNameList);
   }
@@ -137,6 +166,67 @@ public class SessionDataSet {
     return constructRowRecordFromValueArray();
   }
 
+  /**
+   * get the rows of the current block that are not consumed in columns, or the next block if they
+   * are all consumed. It can be mixed with next(), and a row read by hasNext() but not by next() is
+   * the first row of the block.
+   *
+   * @return the rows, or null if there are no more rows
+   */
+  public DataBlock nextBlock() throws StatementExecutionException, IoTDBConnectionException {
+    if (ioTDBRpcDataSet.getBlockRowNum() == 0
+        && (ioTDBRpcDataSet.emptyResultSet || !ioTDBRpcDataSet.fetchResults())) {
+      return null;
+    }
+
+    int rowNum = ioTDBRpcDataSet.getBlockRowNum();
+    List<TSDataType> deduplicatedTypes = ioTDBRpcDataSet.columnTypeDeduplicatedList;
+    long[] timestamps = new long[rowNum];
+    Object[] deduplicatedColumns = new Object[deduplicatedTypes.size()];
+    BitMap[] deduplicatedNullMarks = new BitMap[deduplicatedTypes.size()];
+    for (int i = 0; i < deduplicatedColumns.length; i++) {
+      deduplicatedColumns[i] = createColumn(deduplicatedTypes.get(i), rowNum);
+      deduplicatedNullMarks[i] = new BitMap(rowNum);
+    }
+    ioTDBRpcDataSet.readBlock(timestamps, deduplicatedColumns, deduplicatedNullMarks);
+
+    // the duplicated columns share the same arrays
+    List<String> columnNames = new ArrayList<>(ioTDBRpcDataSet.columnSize);
+    List<TSDataType> columnTypes = new ArrayList<>(ioTDBRpcDataSet.columnSize);
+    Object[] columns = new Object[ioTDBRpcDataSet.columnSize];
+    BitMap[] nullMarks = new BitMap[ioTDBRpcDataSet.columnSize];
+    for (int i = 0; i < ioTDBRpcDataSet.columnSize; i++) {
+      int index = ioTDBRpcDataSet.ignoreTimeStamp ? i : i + 1;
+      String columnName = ioTDBRpcDataSet.columnNameList.get(index);
+      int loc = ioTDBRpcDataSet.columnOrdinalMap.get(columnName) - START_INDEX;
+      columnNames.add(columnName);
+      columnTypes.add(deduplicatedTypes.get(loc));
+      columns[i] = deduplicatedColumns[loc];
+      nullMarks[i] = deduplicatedNullMarks[loc];
+    }
+    return new DataBlock(timestamps, columnNames, columnTypes, columns, nullMarks);
+  }
+
+  private static Object createColumn(TSDataType dataType, int rowNum) {
+    switch (dataType) {
+      case BOOLEAN:
+        return new boolean[rowNum];
+      case INT32:
+        return new int[rowNum];
+      case INT64:
+        return new long[rowNum];
+      case FLOAT:
+        return new float[rowNum];
+      case DOUBLE:
+        return new double[rowNum];
+      case TEXT:
+        return new Binary[rowNum];
+      default:
+        throw new UnSupportedDataTypeException(
+            String.format("Data type %s is not supported.", dataType));
+    }
+  }
+
   public void closeOperationHandle() throws StatementExecutionException, IoTDBConnectionException {
     try {
       ioTDBRpcDataSet.close();
@@ -231,4 +321,54 @@ public class SessionDataSet {
       return ioTDBRpcDataSet.findColumn(columnName);
     }
   }
+
+  /**
+   * A block of rows in columns. The values of the i-th column are in getColumn(i), which is an
+   * array of the data type of the column, i.e., boolean[], int[], long[], float[], double[] or
+   * Binary[], and the value of a row is meaningless if isNull(i, row).
+   */
+  public static class DataBlock {
+
+    private final long[] timestamps;
+    private final List<String> columnNames;
+    private final List<TSDataType> columnTypes;
+    private final Object[] columns;
+    private final BitMap[] nullMarks;
+
+    DataBlock(long[] timestamps, List<String> columnNames, List<TSDataType> columnTypes,
+        Object[] columns, BitMap[] nullMarks) {
+      this.timestamps = timestamps;
+      this.columnNames = columnNames;
+      this.columnTypes = columnTypes;
+      this.columns = columns;
+      this.nullMarks = nullMarks;
+    }
+
+    public int getRowSize() {
+      return timestamps.length;
+    }
+
+    public long[] getTimestamps() {
+      return timestamps;
+    }
+
+    /**
+     * @return the names of the columns, without the time column
+     */
+    public List<String> getColumnNames() {
+      return columnNames;
+    }
+
+    public List<TSDataType> getColumnTypes() {
+      return columnTypes;
+    }
+
+    public Object getColumn(int columnIndex) {
+      return columns[columnIndex];
+    }
+
+    public boolean isNull(int columnIndex, int row) {
+      return nullMarks[columnIndex].isMarked(row);
+    }
+  }
 }
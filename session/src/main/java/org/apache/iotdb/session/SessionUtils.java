@@ -21,6 +21,7 @@ package org.apache.iotdb.session;
 import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.BitMap;
 import org.apache.iotdb.tsfile.utils.BytesUtils;
 import org.apache.iotdb.tsfile.write.record.Tablet;
 
@@ -76,6 +77,11 @@ public class SessionUtils {
         case TEXT:
           Binary[] binaryValues = (Binary[]) tablet.values[i];
           for (int index = 0; index < tablet.rowSize; index++) {
+            if (binaryValues[index] == null || tablet.isNull(i, index)) {
+              // a null value is sent as an empty binary
+              valueBuffer.putInt(0);
+              continue;
+            }
             valueBuffer.putInt(binaryValues[index].getLength());
             valueBuffer.put(binaryValues[index].getValues());
           }
@@ -88,4 +94,27 @@ public class SessionUtils {
     valueBuffer.flip();
     return valueBuffer;
   }
+
+  /**
+   * @return for every measurement of the tablet, a byte that is 1 if some of its values are null,
+   * followed by the bitmap of the null values in that case, or null if no value of the tablet is
+   * null
+   */
+  public static ByteBuffer getBitMapBuffer(Tablet tablet) {
+    if (!tablet.hasNullValues()) {
+      return null;
+    }
+    ByteBuffer bitMapBuffer = ByteBuffer.allocate(tablet.getBitMapBytesSize());
+    int bitMapBytes = BitMap.getSizeOfBytes(tablet.rowSize);
+    for (BitMap bitMap : tablet.bitMaps) {
+      if (bitMap == null || bitMap.isAllUnmarked(0, tablet.rowSize)) {
+        bitMapBuffer.put(BytesUtils.boolToByte(false));
+      } else {
+        bitMapBuffer.put(BytesUtils.boolToByte(true));
+        bitMapBuffer.put(bitMap.getRegion(0, tablet.rowSize).getByteArray(), 0, bitMapBytes);
+      }
+    }
+    bitMapBuffer.flip();
+    return bitMapBuffer;
+  }
 }
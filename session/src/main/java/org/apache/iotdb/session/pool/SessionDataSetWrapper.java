@@ -23,6 +23,7 @@ import org.apache.iotdb.rpc.IoTDBConnectionException;
 import org.apache.iotdb.rpc.StatementExecutionException;
 import org.apache.iotdb.session.Session;
 import org.apache.iotdb.session.SessionDataSet;
+import org.apache.iotdb.session.SessionDataSet.DataBlock;
 import org.apache.iotdb.session.SessionDataSet.DataIterator;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.read.common.RowRecord;
@@ -77,6 +78,23 @@ public class SessionDataSetWrapper implements AutoCloseable{
     return sessionDataSet.next();
   }
 
+  /**
+   * If there is an Exception, and you do not want to use the resultset anymore,
+   * you have to release the resultset manually by calling closeResultSet
+   * @return the rows in columns, or null if there are no more rows
+   */
+  public DataBlock nextBlock() throws IoTDBConnectionException, StatementExecutionException {
+    DataBlock block = sessionDataSet.nextBlock();
+    if (block == null) {
+      pool.closeResultSet(this);
+    }
+    return block;
+  }
+
+  public void setPrefetch(boolean prefetch) {
+    sessionDataSet.setPrefetch(prefetch);
+  }
+
   /**
    * retrieve data set like jdbc
    */
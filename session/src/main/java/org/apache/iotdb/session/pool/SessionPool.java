@@ -18,12 +18,28 @@
  */
 package org.apache.iotdb.session.pool;
 
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.management.JMException;
+import javax.management.ObjectName;
 import org.apache.iotdb.rpc.IoTDBConnectionException;
 import org.apache.iotdb.rpc.StatementExecutionException;
 import org.apache.iotdb.session.Config;
@@ -46,6 +62,11 @@ import org.slf4j.LoggerFactory;
  * <p>
  * If a user has waited for a session for more than 60 seconds, a warn log will be printed.
  * <p>
+ * The sessions may connect to several servers, a session is taken from or created on the server
+ * with the fewest sessions in use, and a server whose session is broken is avoided for a while if
+ * there are other servers. The idle sessions are checked in the background every
+ * keepAliveIntervalMs, and the broken ones are removed before users get them.
+ * <p>
  * The only thing you have to remember is that:
  * <p>
  * For a query, if you have get all data, i.e., SessionDataSetWrapper.hasNext() == false, it is ok.
@@ -56,19 +77,37 @@ import org.slf4j.LoggerFactory;
  * Another case that you have to manually call closeResultSet() is that when there is exception when
  * you call SessionDataSetWrapper.hasNext() or next()
  */
-public class SessionPool {
+public class SessionPool implements SessionPoolMBean {
 
   private static final Logger logger = LoggerFactory.getLogger(SessionPool.class);
   public static final String SESSION_POOL_IS_CLOSED = "Session pool is closed";
   public static final String CLOSE_THE_SESSION_FAILED = "close the session failed.";
   private static int RETRY = 3;
-  private ConcurrentLinkedDeque<Session> queue = new ConcurrentLinkedDeque<>();
+  private static final long WAIT_WARN_INTERVAL_MS = 60_000;
+  private static final AtomicInteger POOL_ID = new AtomicInteger();
+
+  private final List<Endpoint> endpoints;
+  private final ConcurrentMap<Session, Endpoint> endpointOfSession = new ConcurrentHashMap<>();
   //for session whose resultSet is not released.
   private ConcurrentMap<Session, Session> occupied = new ConcurrentHashMap<>();
-  private int size = 0;
+  /**
+   * a permit is held by every session in use, so a thread waits here if maxSize sessions are in
+   * use, and the idle sessions are polled without locks.
+   */
+  private final Semaphore permits;
+  /**
+   * signaled when a session becomes idle or is removed, for the threads that hold a permit but
+   * find the pool full while a session is being put back or checked. It is only signaled if there
+   * are waiters, so the sessions are put back without taking it.
+   */
+  private final ReentrantLock idleLock = new ReentrantLock();
+  private final Condition idleChanged = idleLock.newCondition();
+  private final AtomicInteger idleWaiterNum = new AtomicInteger();
+  /**
+   * the number of sessions opened or being opened.
+   */
+  private final AtomicInteger size = new AtomicInteger();
   private int maxSize = 0;
-  private String ip;
-  private int port;
   private String user;
   private String password;
   private int fetchSize;
@@ -76,8 +115,18 @@ public class SessionPool {
   private static int FINAL_RETRY = RETRY - 1;
   private boolean enableCompression = false;
   private ZoneId zoneId;
+  private final long keepAliveIntervalMs;
+  private final ScheduledExecutorService keepAliveService;
+
+  private volatile boolean closed;//whether the queue is closed.
+  private ObjectName mBeanName;
 
-  private boolean closed;//whether the queue is closed.
+  private final AtomicLong acquireCount = new AtomicLong();
+  private final AtomicLong exhaustedCount = new AtomicLong();
+  private final AtomicLong timeoutCount = new AtomicLong();
+  private final AtomicLong totalWaitTimeMs = new AtomicLong();
+  private final AtomicLong maxWaitTimeMs = new AtomicLong();
+  private final AtomicLong brokenSessionCount = new AtomicLong();
 
   public SessionPool(String ip, int port, String user, String password, int maxSize) {
     this(ip, port, user, password, maxSize, Config.DEFAULT_FETCH_SIZE, 60_000, false, null);
@@ -97,155 +146,370 @@ public class SessionPool {
   @SuppressWarnings("squid:S107")
   public SessionPool(String ip, int port, String user, String password, int maxSize, int fetchSize,
       long timeout, boolean enableCompression, ZoneId zoneId) {
+    this(Collections.singletonList(ip + ":" + port), user, password, maxSize, fetchSize, timeout,
+        enableCompression, zoneId, Config.DEFAULT_SESSION_POOL_KEEP_ALIVE_INTERVAL_MS);
+  }
+
+  /**
+   * @param nodeUrls the servers in the form of ip:port
+   */
+  public SessionPool(List<String> nodeUrls, String user, String password, int maxSize) {
+    this(nodeUrls, user, password, maxSize, Config.DEFAULT_FETCH_SIZE, 60_000, false, null,
+        Config.DEFAULT_SESSION_POOL_KEEP_ALIVE_INTERVAL_MS);
+  }
+
+  /**
+   * @param nodeUrls            the servers in the form of ip:port
+   * @param keepAliveIntervalMs the interval to check the idle sessions, no check if it is not
+   *                            positive
+   */
+  @SuppressWarnings("squid:S107")
+  public SessionPool(List<String> nodeUrls, String user, String password, int maxSize,
+      int fetchSize, long timeout, boolean enableCompression, ZoneId zoneId,
+      long keepAliveIntervalMs) {
+    this.endpoints = new ArrayList<>(nodeUrls.size());
+    for (String nodeUrl : nodeUrls) {
+      int index = nodeUrl.lastIndexOf(':');
+      if (index < 0) {
+        throw new IllegalArgumentException("Node url should be ip:port, but is " + nodeUrl);
+      }
+      endpoints.add(new Endpoint(nodeUrl.substring(0, index),
+          Integer.parseInt(nodeUrl.substring(index + 1))));
+    }
+    if (endpoints.isEmpty()) {
+      throw new IllegalArgumentException("No node url is given");
+    }
     this.maxSize = maxSize;
-    this.ip = ip;
-    this.port = port;
+    this.permits = new Semaphore(maxSize);
     this.user = user;
     this.password = password;
     this.fetchSize = fetchSize;
     this.timeout = timeout;
     this.enableCompression = enableCompression;
     this.zoneId = zoneId;
+    this.keepAliveIntervalMs = keepAliveIntervalMs;
+    if (keepAliveIntervalMs > 0) {
+      keepAliveService = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "SessionPool-keep-alive");
+        thread.setDaemon(true);
+        return thread;
+      });
+      keepAliveService.scheduleWithFixedDelay(this::checkIdleSessions, keepAliveIntervalMs,
+          keepAliveIntervalMs, TimeUnit.MILLISECONDS);
+    } else {
+      keepAliveService = null;
+    }
   }
 
   //if this method throws an exception, either the server is broken, or the ip/port/user/password is incorrect.
-
-  @SuppressWarnings({"squid:S3776","squid:S2446"}) // Suppress high Cognitive Complexity warning
   private Session getSession() throws IoTDBConnectionException {
-    Session session = queue.poll();
     if (closed) {
       throw new IoTDBConnectionException(SESSION_POOL_IS_CLOSED);
     }
-    if (session != null) {
-      return session;
-    } else {
-      long start = System.currentTimeMillis();
-      boolean canCreate = false;
-      synchronized (this) {
-        if (size < maxSize) {
-          //we can create more session
-          size++;
-          canCreate = true;
-          //but we do it after skip synchronized block because connection a session is time consuming.
+    acquirePermit();
+    Session session;
+    try {
+      session = pollOrCreateSession();
+    } catch (IoTDBConnectionException | RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+    //avoid someone has called close() the session pool
+    if (closed) {
+      //have to release the connection...
+      putBack(session);
+      throw new IoTDBConnectionException(SESSION_POOL_IS_CLOSED);
+    }
+    return session;
+  }
+
+  private void acquirePermit() throws IoTDBConnectionException {
+    acquireCount.incrementAndGet();
+    if (permits.tryAcquire()) {
+      return;
+    }
+
+    exhaustedCount.incrementAndGet();
+    long start = System.currentTimeMillis();
+    boolean acquired = false;
+    try {
+      while (!acquired && !closed) {
+        long waited = System.currentTimeMillis() - start;
+        if (waited >= timeout) {
+          break;
+        }
+        acquired = permits.tryAcquire(Math.min(timeout - waited, WAIT_WARN_INTERVAL_MS),
+            TimeUnit.MILLISECONDS);
+        if (!acquired && System.currentTimeMillis() - start >= WAIT_WARN_INTERVAL_MS) {
+          logger.warn(
+              "the SessionPool has wait for {} seconds to get a new connection: {} with {}",
+              (System.currentTimeMillis() - start) / 1000, endpoints, user);
+          logger.warn("current occupied size {}, queue size {}, considered size {} ",
+              occupied.size(), currentAvailableSize(), size.get());
         }
       }
-      if (canCreate) {
-        //create a new one.
-        if (logger.isDebugEnabled()) {
-          logger.debug("Create a new Session {}, {}, {}, {}", ip, port, user, password);
+    } catch (InterruptedException e) {
+      logger.error("the SessionPool is damaged", e);
+      Thread.currentThread().interrupt();
+    } finally {
+      long waitTime = System.currentTimeMillis() - start;
+      totalWaitTimeMs.addAndGet(waitTime);
+      maxWaitTimeMs.accumulateAndGet(waitTime, Math::max);
+    }
+
+    if (closed) {
+      if (acquired) {
+        permits.release();
+      }
+      throw new IoTDBConnectionException(SESSION_POOL_IS_CLOSED);
+    }
+    if (!acquired) {
+      timeoutCount.incrementAndGet();
+      throw new IoTDBConnectionException(
+          String.format("timeout to get a connection from %s", endpoints));
+    }
+  }
+
+  /**
+   * called with a permit held, take an idle session of the least loaded server, or create one if
+   * there is none and the pool is not full.
+   */
+  private Session pollOrCreateSession() throws IoTDBConnectionException {
+    long deadline = System.currentTimeMillis() + timeout;
+    while (true) {
+      if (closed) {
+        throw new IoTDBConnectionException(SESSION_POOL_IS_CLOSED);
+      }
+      List<Endpoint> candidates = getEndpointsByLoad();
+      Endpoint best = candidates.get(0);
+      Session session = best.idleSessions.poll();
+      if (session != null) {
+        return lease(best, session);
+      }
+
+      int currentSize = size.get();
+      if (currentSize < maxSize) {
+        if (size.compareAndSet(currentSize, currentSize + 1)) {
+          return createSession(candidates);
         }
-        session = new Session(ip, port, user, password, fetchSize, zoneId);
-        try {
-          session.open(enableCompression);
-          //avoid someone has called close() the session pool
-          synchronized (this) {
-            if (closed) {
-              //have to release the connection...
-              session.close();
-              throw new IoTDBConnectionException(SESSION_POOL_IS_CLOSED);
-            } else {
-              return session;
-            }
-          }
-        } catch (IoTDBConnectionException e) {
-          //if exception, we will throw the exception.
-          //Meanwhile, we have to set size--
-          synchronized (this) {
-            size--;
-            //we do not need to notifyAll as any waited thread can continue to work after waked up.
-            this.notify();
-            if (logger.isDebugEnabled()) {
-              logger.debug("open session failed, reduce the count and notify others...");
-            }
-          }
-          throw e;
+        continue;
+      }
+
+      // the pool is full, so some idle session must be on another server
+      for (Endpoint endpoint : candidates) {
+        session = endpoint.idleSessions.poll();
+        if (session != null) {
+          return lease(endpoint, session);
         }
       }
-      else {
-        while (session == null) {
-          synchronized (this) {
-            if (closed) {
-              throw new IoTDBConnectionException(SESSION_POOL_IS_CLOSED);
-            }
-            //we have to wait for someone returns a session.
-            try {
-              if (logger.isDebugEnabled()) {
-                logger.debug("no more sessions can be created, wait... queue.size={}", queue.size());
-              }
-              this.wait(1000);
-              long time = timeout < 60_000 ? timeout : 60_000;
-              if (System.currentTimeMillis() - start > time) {
-                logger.warn(
-                    "the SessionPool has wait for {} seconds to get a new connection: {}:{} with {}, {}",
-                    (System.currentTimeMillis() - start) / 1000, ip, port, user, password);
-                logger.warn("current occupied size {}, queue size {}, considered size {} ",
-                    occupied.size(), queue.size(), size);
-                if (System.currentTimeMillis() - start > timeout) {
-                  throw new IoTDBConnectionException(
-                      String.format("timeout to get a connection from %s:%s", ip, port));
-                }
-              }
-            } catch (InterruptedException e) {
-              logger.error("the SessionPool is damaged", e);
-              Thread.currentThread().interrupt();
-            }
-            session = queue.poll();
-          }
+      // an idle session is being checked or put back
+      awaitIdleChanged(deadline);
+    }
+  }
+
+  /**
+   * wait until a session becomes idle or is removed, unless it happened since the pool was found
+   * full.
+   */
+  private void awaitIdleChanged(long deadline) throws IoTDBConnectionException {
+    idleLock.lock();
+    idleWaiterNum.incrementAndGet();
+    try {
+      // the sessions put back after this check see the waiter and signal it
+      if (currentAvailableSize() == 0 && size.get() >= maxSize && !closed) {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0 || !idleChanged.await(remaining, TimeUnit.MILLISECONDS)) {
+          timeoutCount.incrementAndGet();
+          throw new IoTDBConnectionException(
+              String.format("timeout to get a connection from %s", endpoints));
         }
-        return session;
       }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IoTDBConnectionException("Interrupted when waiting for an idle session", e);
+    } finally {
+      idleWaiterNum.decrementAndGet();
+      idleLock.unlock();
     }
   }
 
+  private void signalIdleChanged() {
+    if (idleWaiterNum.get() > 0) {
+      idleLock.lock();
+      try {
+        idleChanged.signalAll();
+      } finally {
+        idleLock.unlock();
+      }
+    }
+  }
+
+  /**
+   * put an idle session back as the most recently used one unless the pool is closed. It is done
+   * without locks: the session is pushed before closed is checked, and close() sets closed before
+   * it polls the idle sessions, so the session is either polled by close() or taken back here.
+   *
+   * @return false if the pool is closed and the session is not put back
+   */
+  private boolean offerIdleSession(Endpoint endpoint, Session session) {
+    endpoint.idleSessions.push(session);
+    // if the session can not be taken back, it has been polled by close() or by another thread
+    return !closed || !endpoint.idleSessions.removeFirstOccurrence(session);
+  }
+
+  /**
+   * close a session that is no longer in the pool.
+   */
+  private void discardSession(Session session) {
+    endpointOfSession.remove(session);
+    size.decrementAndGet();
+    closeSession(session);
+  }
+
+  /**
+   * create a session on the first server that can be connected, the size has been increased for
+   * it.
+   */
+  private Session createSession(List<Endpoint> candidates) throws IoTDBConnectionException {
+    IoTDBConnectionException lastException = null;
+    for (Endpoint endpoint : candidates) {
+      //create a new one.
+      if (logger.isDebugEnabled()) {
+        logger.debug("Create a new Session {}, {}, {}", endpoint, user, password);
+      }
+      Session session = constructSession(endpoint.ip, endpoint.port);
+      try {
+        session.open(enableCompression);
+        endpointOfSession.put(session, endpoint);
+        endpoint.markAvailable();
+        return lease(endpoint, session);
+      } catch (IoTDBConnectionException e) {
+        logger.warn("open session on {} failed", endpoint, e);
+        endpoint.markUnavailable(keepAliveIntervalMs);
+        lastException = e;
+      }
+    }
+    //if exception, we will throw the exception.
+    //Meanwhile, we have to set size--
+    size.decrementAndGet();
+    signalIdleChanged();
+    if (logger.isDebugEnabled()) {
+      logger.debug("open session failed, reduce the count...");
+    }
+    throw lastException;
+  }
+
+  /**
+   * @return a session to the server that is not opened yet
+   */
+  Session constructSession(String ip, int port) {
+    return new Session(ip, port, user, password, fetchSize, zoneId);
+  }
+
+  private Session lease(Endpoint endpoint, Session session) {
+    endpoint.inFlight.incrementAndGet();
+    return session;
+  }
+
+  /**
+   * @return the servers in the ascending order of their sessions in use, the servers that failed
+   * recently are put at last
+   */
+  private List<Endpoint> getEndpointsByLoad() {
+    if (endpoints.size() == 1) {
+      return endpoints;
+    }
+    List<Endpoint> sorted = new ArrayList<>(endpoints);
+    long now = System.currentTimeMillis();
+    sorted.sort(Comparator.comparing((Endpoint e) -> !e.isAvailable(now))
+        .thenComparingInt(e -> e.inFlight.get()));
+    return sorted;
+  }
+
   public int currentAvailableSize() {
-    return queue.size();
+    int availableSize = 0;
+    for (Endpoint endpoint : endpoints) {
+      availableSize += endpoint.idleSessions.size();
+    }
+    return availableSize;
   }
 
   public int currentOccupiedSize() {
     return occupied.size();
   }
 
-  @SuppressWarnings({"squid:S2446"})
   private void putBack(Session session) {
-    queue.push(session);
-    synchronized (this) {
-      //we do not need to notifyAll as any waited thread can continue to work after waked up.
-      this.notify();
-      //comment the following codes as putBack is too frequently called.
-//      if (logger.isTraceEnabled()) {
-//        logger.trace("put a session back and notify others..., queue.size = {}", queue.size());
-//      }
+    Endpoint endpoint = endpointOfSession.get(session);
+    if (endpoint != null) {
+      endpoint.inFlight.decrementAndGet();
+      if (!offerIdleSession(endpoint, session)) {
+        discardSession(session);
+      }
     }
+    permits.release();
+    signalIdleChanged();
   }
 
   private void occupy(Session session) {
     occupied.put(session, session);
   }
 
+  /**
+   * check the idle sessions from the least recently used one, a permit is held while a session is
+   * checked, and the check stops if the pool is busy.
+   */
+  private void checkIdleSessions() {
+    for (Endpoint endpoint : endpoints) {
+      int idleNum = endpoint.idleSessions.size();
+      for (int i = 0; i < idleNum && !closed; i++) {
+        if (!permits.tryAcquire()) {
+          return;
+        }
+        Session session = endpoint.idleSessions.pollLast();
+        if (session == null) {
+          permits.release();
+          break;
+        }
+        try {
+          session.checkConnection();
+          // the pool may be closed while the session is checked
+          if (!offerIdleSession(endpoint, session)) {
+            discardSession(session);
+          }
+        } catch (IoTDBConnectionException | StatementExecutionException | RuntimeException e) {
+          logger.warn("Remove a broken idle Session on {}", endpoint, e);
+          discardSession(session);
+          brokenSessionCount.incrementAndGet();
+          endpoint.markUnavailable(keepAliveIntervalMs);
+        } finally {
+          permits.release();
+          signalIdleChanged();
+        }
+      }
+    }
+  }
+
   /**
    * close all connections in the pool
    */
   public synchronized void close() {
-    for (Session session : queue) {
-      try {
-        session.close();
-      } catch (IoTDBConnectionException e) {
-        //do nothing
-        logger.warn(CLOSE_THE_SESSION_FAILED, e);
+    this.closed = true;
+    if (keepAliveService != null) {
+      keepAliveService.shutdownNow();
+    }
+    for (Endpoint endpoint : endpoints) {
+      Session session;
+      while ((session = endpoint.idleSessions.poll()) != null) {
+        discardSession(session);
       }
     }
     for (Session session : occupied.keySet()) {
-      try {
-        session.close();
-      } catch (IoTDBConnectionException e) {
-        //do nothing
-        logger.warn(CLOSE_THE_SESSION_FAILED, e);
-      }
+      closeSession(session);
     }
     logger.info("closing the session pool, cleaning queues...");
-    this.closed = true;
-    queue.clear();
     occupied.clear();
+    unregisterMBean();
+    signalIdleChanged();
   }
 
   public void closeResultSet(SessionDataSetWrapper wrapper) {
@@ -253,7 +517,7 @@ public class SessionPool {
     try {
       wrapper.sessionDataSet.closeOperationHandle();
     } catch (IoTDBConnectionException | StatementExecutionException e) {
-      removeSession();
+      removeSession(wrapper.session);
       putback = false;
     } finally {
       Session session = occupied.remove(wrapper.session);
@@ -263,15 +527,17 @@ public class SessionPool {
     }
   }
 
-  @SuppressWarnings({"squid:S2446"})
-  private synchronized void removeSession() {
-    logger.warn("Remove a broken Session {}, {}, {}", ip, port, user);
-    size--;
-    //we do not need to notifyAll as any waited thread can continue to work after waked up.
-    this.notify();
-    if (logger.isDebugEnabled()) {
-        logger.debug("remove a broken session and notify others..., queue.size = {}", queue.size());
+  private void removeSession(Session session) {
+    Endpoint endpoint = endpointOfSession.remove(session);
+    logger.warn("Remove a broken Session {}, {}", endpoint, user);
+    if (endpoint != null) {
+      endpoint.inFlight.decrementAndGet();
+      endpoint.markUnavailable(keepAliveIntervalMs);
     }
+    size.decrementAndGet();
+    brokenSessionCount.incrementAndGet();
+    permits.release();
+    signalIdleChanged();
   }
 
   private void closeSession(Session session) {
@@ -287,15 +553,152 @@ public class SessionPool {
 
   private void cleanSessionAndMayThrowConnectionException(Session session, int times,
       IoTDBConnectionException e) throws IoTDBConnectionException {
+    Endpoint endpoint = endpointOfSession.get(session);
     closeSession(session);
-    removeSession();
+    removeSession(session);
     if (times == FINAL_RETRY) {
       throw new IoTDBConnectionException(
-          String.format("retry to execute statement on %s:%s failed %d times: %s", ip, port,
+          String.format("retry to execute statement on %s failed %d times: %s", endpoint,
               RETRY, e.getMessage()), e);
     }
   }
 
+  /**
+   * register the pool as an MBean named org.apache.iotdb.session:type=SessionPool,name=?, it is
+   * unregistered when the pool is closed.
+   */
+  public synchronized void registerMBean() {
+    if (mBeanName != null) {
+      return;
+    }
+    try {
+      ObjectName name = new ObjectName(String.format("org.apache.iotdb.session:type=SessionPool,"
+          + "name=%s", ObjectName.quote(user + "@" + endpoints + "#" + POOL_ID.incrementAndGet())));
+      ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+      mBeanName = name;
+    } catch (JMException e) {
+      logger.warn("Cannot register the SessionPool as an MBean", e);
+    }
+  }
+
+  private void unregisterMBean() {
+    if (mBeanName == null) {
+      return;
+    }
+    try {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(mBeanName);
+    } catch (JMException e) {
+      logger.warn("Cannot unregister the MBean {}", mBeanName, e);
+    }
+    mBeanName = null;
+  }
+
+  @Override
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  @Override
+  public int getSessionNum() {
+    return size.get();
+  }
+
+  @Override
+  public int getIdleSessionNum() {
+    return currentAvailableSize();
+  }
+
+  @Override
+  public int getActiveSessionNum() {
+    return maxSize - permits.availablePermits();
+  }
+
+  @Override
+  public int getWaitingThreadNum() {
+    return permits.getQueueLength();
+  }
+
+  @Override
+  public long getAcquireCount() {
+    return acquireCount.get();
+  }
+
+  @Override
+  public long getExhaustedCount() {
+    return exhaustedCount.get();
+  }
+
+  @Override
+  public long getTimeoutCount() {
+    return timeoutCount.get();
+  }
+
+  @Override
+  public long getAverageWaitTimeMs() {
+    long count = exhaustedCount.get();
+    return count == 0 ? 0 : totalWaitTimeMs.get() / count;
+  }
+
+  @Override
+  public long getMaxWaitTimeMs() {
+    return maxWaitTimeMs.get();
+  }
+
+  @Override
+  public long getBrokenSessionCount() {
+    return brokenSessionCount.get();
+  }
+
+  @Override
+  public String[] getEndpointStatus() {
+    long now = System.currentTimeMillis();
+    String[] status = new String[endpoints.size()];
+    for (int i = 0; i < status.length; i++) {
+      Endpoint endpoint = endpoints.get(i);
+      status[i] = String.format("%s inUse=%d idle=%d available=%b", endpoint,
+          endpoint.inFlight.get(), endpoint.idleSessions.size(), endpoint.isAvailable(now));
+    }
+    return status;
+  }
+
+  private static class Endpoint {
+
+    private final String ip;
+    private final int port;
+    private final ConcurrentLinkedDeque<Session> idleSessions = new ConcurrentLinkedDeque<>();
+    /**
+     * the number of sessions of the server in use, including the occupied ones.
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+    /**
+     * the server is chosen after the others until this time since a session of it fails.
+     */
+    private volatile long unavailableUntil = 0;
+
+    private Endpoint(String ip, int port) {
+      this.ip = ip;
+      this.port = port;
+    }
+
+    private boolean isAvailable(long now) {
+      return now >= unavailableUntil;
+    }
+
+    private void markUnavailable(long intervalMs) {
+      unavailableUntil = System.currentTimeMillis() + Math.max(intervalMs, 0);
+    }
+
+    private void markAvailable() {
+      unavailableUntil = 0;
+    }
+
+    @Override
+    public String toString() {
+      return ip + ":" + port;
+    }
+  }
+
+
   /**
    * insert the data of a device. For each timestamp, the number of measurements is the same.
    *
@@ -908,6 +1311,54 @@ public class SessionPool {
     return null;
   }
 
+  /**
+   * upload a TsFile and load it, see Session.loadTsFile(File)
+   */
+  public void loadTsFile(File tsFile)
+      throws IoTDBConnectionException, StatementExecutionException, IOException {
+    for (int i = 0; i < RETRY; i++) {
+      Session session = getSession();
+      try {
+        session.loadTsFile(tsFile);
+        putBack(session);
+        return;
+      } catch (IoTDBConnectionException e) {
+        // TException means the connection is broken, remove it and get a new one.
+        logger.warn("loadTsFile failed", e);
+        cleanSessionAndMayThrowConnectionException(session, i, e);
+      } catch (StatementExecutionException | IOException e) {
+        putBack(session);
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * query the raw data of the paths in [startTime, endTime), users must call
+   * closeResultSet(SessionDataSetWrapper) if they do not use the SessionDataSet any more.
+   */
+  public SessionDataSetWrapper executeRawDataQuery(List<String> paths, long startTime,
+      long endTime) throws IoTDBConnectionException, StatementExecutionException {
+    for (int i = 0; i < RETRY; i++) {
+      Session session = getSession();
+      try {
+        SessionDataSet resp = session.executeRawDataQuery(paths, startTime, endTime);
+        SessionDataSetWrapper wrapper = new SessionDataSetWrapper(resp, session, this);
+        occupy(session);
+        return wrapper;
+      } catch (IoTDBConnectionException e) {
+        // TException means the connection is broken, remove it and get a new one.
+        logger.warn("executeRawDataQuery failed", e);
+        cleanSessionAndMayThrowConnectionException(session, i, e);
+      } catch (StatementExecutionException e) {
+        putBack(session);
+        throw e;
+      }
+    }
+    // never go here
+    return null;
+  }
+
   /**
    * execute non query statement
    *
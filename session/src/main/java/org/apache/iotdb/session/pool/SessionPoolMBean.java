@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.session.pool;
+
+/**
+ * The metrics of a SessionPool exposed by JMX, see SessionPool.registerMBean().
+ */
+public interface SessionPoolMBean {
+
+  int getMaxSize();
+
+  /**
+   * @return the number of sessions opened or being opened
+   */
+  int getSessionNum();
+
+  int getIdleSessionNum();
+
+  int getActiveSessionNum();
+
+  /**
+   * @return the number of threads waiting for a session because the pool is exhausted
+   */
+  int getWaitingThreadNum();
+
+  long getAcquireCount();
+
+  /**
+   * @return how many times a thread has to wait for a session because the pool is exhausted
+   */
+  long getExhaustedCount();
+
+  /**
+   * @return how many times a thread fails to get a session in time
+   */
+  long getTimeoutCount();
+
+  /**
+   * @return the average time of waiting for a session when the pool is exhausted
+   */
+  long getAverageWaitTimeMs();
+
+  long getMaxWaitTimeMs();
+
+  long getBrokenSessionCount();
+
+  /**
+   * @return the sessions in use and idle of each server, and whether the server has failed recently
+   */
+  String[] getEndpointStatus();
+}
@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.apache.iotdb.rpc.IoTDBConnectionException;
+import org.apache.iotdb.service.rpc.thrift.TSInsertRecordReq;
+import org.apache.iotdb.service.rpc.thrift.TSInsertRecordsReq;
+import org.apache.iotdb.service.rpc.thrift.TSInsertStringRecordReq;
+import org.apache.iotdb.service.rpc.thrift.TSInsertStringRecordsReq;
+import org.apache.iotdb.service.rpc.thrift.TSInsertTabletReq;
+import org.apache.iotdb.service.rpc.thrift.TSInsertTabletsReq;
+import org.junit.Test;
+
+public class AsyncConnectionGroupTest {
+
+  private final List<FakeConnection> opened = new ArrayList<>();
+  private boolean unreachable = false;
+
+  private AsyncConnection connect() throws IoTDBConnectionException {
+    if (unreachable) {
+      throw new IoTDBConnectionException("unreachable");
+    }
+    FakeConnection connection = new FakeConnection();
+    opened.add(connection);
+    return connection;
+  }
+
+  @Test
+  public void testRoundRobin() throws IoTDBConnectionException {
+    AsyncConnectionGroup group = new AsyncConnectionGroup(3, this::connect);
+    for (int i = 0; i < 6; i++) {
+      assertSame(opened.get(i % 3), group.next());
+    }
+    group.close();
+    for (FakeConnection connection : opened) {
+      assertTrue(connection.closed);
+    }
+  }
+
+  @Test
+  public void testReconnectBrokenConnection() throws IoTDBConnectionException {
+    AsyncConnectionGroup group = new AsyncConnectionGroup(2, this::connect);
+    FakeConnection broken = opened.get(0);
+    broken.broken = true;
+
+    AsyncConnection reopened = group.next();
+    assertEquals(3, opened.size());
+    assertSame(opened.get(2), reopened);
+    assertSame(opened.get(1), group.next());
+    // the broken connection is not picked any more
+    for (int i = 0; i < 4; i++) {
+      assertNotSame(broken, group.next());
+    }
+    assertEquals(3, opened.size());
+  }
+
+  @Test
+  public void testSkipUnreachableConnection() throws IoTDBConnectionException {
+    AsyncConnectionGroup group = new AsyncConnectionGroup(2, this::connect);
+    opened.get(0).broken = true;
+    unreachable = true;
+    for (int i = 0; i < 4; i++) {
+      assertSame(opened.get(1), group.next());
+    }
+
+    // reopened once the server is reachable again
+    unreachable = false;
+    AsyncConnection reopened = group.next();
+    assertEquals(3, opened.size());
+    assertSame(opened.get(2), reopened);
+    assertSame(opened.get(1), group.next());
+  }
+
+  @Test
+  public void testAllBroken() throws IoTDBConnectionException {
+    AsyncConnectionGroup group = new AsyncConnectionGroup(2, this::connect);
+    opened.get(0).broken = true;
+    opened.get(1).broken = true;
+    unreachable = true;
+    try {
+      group.next();
+      fail();
+    } catch (IoTDBConnectionException e) {
+      assertEquals("unreachable", e.getCause().getMessage());
+    }
+  }
+
+  @Test
+  public void testNoReconnectAfterClose() throws IoTDBConnectionException {
+    AsyncConnectionGroup group = new AsyncConnectionGroup(1, this::connect);
+    group.close();
+    opened.get(0).broken = true;
+    try {
+      group.next();
+      fail();
+    } catch (IoTDBConnectionException e) {
+      assertEquals(1, opened.size());
+    }
+  }
+
+  @Test
+  public void testOpenFailure() {
+    AsyncConnectionGroup.Connector connector = () -> {
+      if (opened.size() == 2) {
+        throw new IoTDBConnectionException("unreachable");
+      }
+      FakeConnection connection = new FakeConnection();
+      connection.closeException = new IoTDBConnectionException("close " + opened.size());
+      opened.add(connection);
+      return connection;
+    };
+    try {
+      new AsyncConnectionGroup(3, connector);
+      fail();
+    } catch (IoTDBConnectionException e) {
+      // the opened connections are closed and their failures do not hide the cause
+      assertEquals("unreachable", e.getMessage());
+      assertEquals(2, e.getSuppressed().length);
+      assertTrue(opened.get(0).closed);
+      assertTrue(opened.get(1).closed);
+    }
+  }
+
+  private static class FakeConnection implements AsyncConnection {
+
+    private volatile boolean broken = false;
+    private boolean closed = false;
+    private IoTDBConnectionException closeException;
+
+    @Override
+    public CompletableFuture<Void> insertTablet(TSInsertTabletReq request) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> insertTablets(TSInsertTabletsReq request) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> insertRecord(TSInsertRecordReq request) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> insertStringRecord(TSInsertStringRecordReq request) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> insertRecords(TSInsertRecordsReq request) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> insertStringRecords(TSInsertStringRecordsReq request) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public boolean isBroken() {
+      return broken;
+    }
+
+    @Override
+    public void close() throws IoTDBConnectionException {
+      closed = true;
+      if (closeException != null) {
+        throw closeException;
+      }
+    }
+  }
+}
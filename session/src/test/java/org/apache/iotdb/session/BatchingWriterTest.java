@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.session;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.iotdb.rpc.IoTDBConnectionException;
+import org.apache.iotdb.rpc.StatementExecutionException;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.write.record.Tablet;
+import org.junit.Test;
+
+public class BatchingWriterTest {
+
+  /**
+   * the Tablets received by each call of insertTablets
+   */
+  private final List<Map<String, Tablet>> received = new ArrayList<>();
+
+  private BatchingWriter.TabletsInserter recordingInserter() {
+    return tablets -> {
+      synchronized (received) {
+        received.add(new HashMap<>(tablets));
+      }
+    };
+  }
+
+  /**
+   * @return the timestamps received of the device, in the order they are sent
+   */
+  private List<Long> receivedTimes(String deviceId) {
+    List<Long> times = new ArrayList<>();
+    synchronized (received) {
+      for (Map<String, Tablet> tablets : received) {
+        Tablet tablet = tablets.get(deviceId);
+        for (int i = 0; tablet != null && i < tablet.rowSize; i++) {
+          times.add(tablet.timestamps[i]);
+        }
+      }
+    }
+    return times;
+  }
+
+  @Test
+  public void testBatchBySize() throws IoTDBConnectionException, StatementExecutionException {
+    BatchingWriter writer = new BatchingWriter(recordingInserter(), 10, 25, 60_000, 2);
+    List<String> measurements = Arrays.asList("s1", "s2");
+    List<TSDataType> types = Arrays.asList(TSDataType.INT64, TSDataType.TEXT);
+    for (long time = 0; time < 100; time++) {
+      for (int d = 0; d < 3; d++) {
+        writer.write("root.sg.d" + d, time, measurements, types,
+            Arrays.asList(time, String.valueOf(time)));
+      }
+    }
+    // 300 rows are sealed into 12 batches without waiting for the linger
+    assertEquals(0, writer.getBufferedRowNum());
+    writer.close();
+
+    assertEquals(300, writer.getSentRowNum());
+    assertEquals(0, writer.getPendingRowNum());
+    List<Long> expectedTimes = new ArrayList<>();
+    for (long time = 0; time < 100; time++) {
+      expectedTimes.add(time);
+    }
+    for (int d = 0; d < 3; d++) {
+      assertEquals(expectedTimes, receivedTimes("root.sg.d" + d));
+    }
+    for (Map<String, Tablet> tablets : received) {
+      for (Tablet tablet : tablets.values()) {
+        assertTrue(tablet.rowSize <= 10);
+        for (int i = 0; i < tablet.rowSize; i++) {
+          assertEquals(tablet.timestamps[i], ((long[]) tablet.values[0])[i]);
+          assertEquals(new Binary(String.valueOf(tablet.timestamps[i])),
+              ((Binary[]) tablet.values[1])[i]);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testMergePointsAndNewMeasurement()
+      throws IoTDBConnectionException, StatementExecutionException {
+    BatchingWriter writer = new BatchingWriter(recordingInserter(), 10, 100, 60_000, 2);
+    // s1 and s2 of time 1 are in the same row
+    writer.write("root.sg.d1", 1, "s1", TSDataType.INT32, 1);
+    writer.write("root.sg.d1", 1, "s2", TSDataType.DOUBLE, 1.5);
+    writer.write("root.sg.d1", 2, "s2", TSDataType.DOUBLE, 2.5);
+    writer.write("root.sg.d1", 3, "s1", TSDataType.INT32, 3);
+    writer.flush();
+    assertEquals(3, writer.getSentRowNum());
+
+    // the Tablet of s1 is widened when s2 arrives
+    assertEquals(1, received.size());
+    Tablet tablet = received.get(0).get("root.sg.d1");
+    assertEquals(3, tablet.rowSize);
+    assertArrayEquals(new long[]{1, 2, 3}, Arrays.copyOf(tablet.timestamps, 3));
+    assertEquals(1, ((int[]) tablet.values[0])[0]);
+    assertEquals(1.5, ((double[]) tablet.values[1])[0], 0);
+    assertTrue(tablet.isNull(0, 1));
+    assertEquals(2.5, ((double[]) tablet.values[1])[1], 0);
+    assertTrue(tablet.isNull(1, 2));
+    assertEquals(3, ((int[]) tablet.values[0])[2]);
+
+    // the Tablet is sealed if the type of a measurement changes
+    writer.write("root.sg.d1", 4, Arrays.asList("s1", "s2"),
+        Arrays.asList(TSDataType.INT32, TSDataType.DOUBLE), Arrays.asList(4, 4.5));
+    writer.write("root.sg.d1", 5, "s1", TSDataType.INT64, 5L);
+    writer.close();
+    assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L), receivedTimes("root.sg.d1"));
+    assertEquals(3, received.size());
+    assertEquals(TSDataType.INT64, received.get(2).get("root.sg.d1").getSchemas().get(0).getType());
+  }
+
+  @Test
+  public void testLinger() throws IoTDBConnectionException, InterruptedException,
+      StatementExecutionException {
+    BatchingWriter writer = new BatchingWriter(recordingInserter(), 10, 100, 50, 2);
+    for (long time = 0; time < 5; time++) {
+      writer.write("root.sg.d1", time, "s1", TSDataType.INT64, time);
+    }
+    for (int i = 0; i < 100 && writer.getSentRowNum() < 5; i++) {
+      Thread.sleep(50);
+    }
+    assertEquals(5, writer.getSentRowNum());
+    assertEquals(Arrays.asList(0L, 1L, 2L, 3L, 4L), receivedTimes("root.sg.d1"));
+    writer.close();
+  }
+
+  @Test
+  public void testRetryAndFailure() throws IoTDBConnectionException,
+      StatementExecutionException {
+    int[] calls = new int[1];
+    BatchingWriter writer = new BatchingWriter(tablets -> {
+      calls[0]++;
+      if (calls[0] == 1) {
+        throw new IoTDBConnectionException("connection is broken");
+      } else if (calls[0] == 3) {
+        throw new StatementExecutionException("rejected");
+      }
+    }, 10, 100, 60_000, 2);
+
+    // the first call fails and the retry succeeds
+    writer.write("root.sg.d1", 1, "s1", TSDataType.BOOLEAN, true);
+    writer.flush();
+    assertEquals(2, calls[0]);
+    assertEquals(1, writer.getSentRowNum());
+
+    // a rejected batch is not retried, and the failure is thrown by flush
+    writer.write("root.sg.d1", 2, "s1", TSDataType.BOOLEAN, false);
+    try {
+      writer.flush();
+      fail();
+    } catch (StatementExecutionException e) {
+      assertEquals(3, calls[0]);
+      assertEquals(1, writer.getFailedRowNum());
+    }
+    writer.close();
+  }
+
+  @Test
+  public void testConcurrentWritersWithOnePendingBatch()
+      throws InterruptedException, ExecutionException, TimeoutException,
+      IoTDBConnectionException, StatementExecutionException {
+    // with one pending batch and a short linger, the queue is often full when the sender seals a
+    // lingering batch
+    BatchingWriter writer = new BatchingWriter(recordingInserter(), 10, 1, 1, 1);
+    int writerNum = 8;
+    int rowNum = 500;
+    ExecutorService writers = Executors.newFixedThreadPool(writerNum);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < writerNum; i++) {
+        String deviceId = "root.sg.d" + i;
+        futures.add(writers.submit(() -> {
+          for (long time = 0; time < rowNum; time++) {
+            writer.write(deviceId, time, "s1", TSDataType.INT64, time);
+            if (time % 10 == 9) {
+              // let the sender time out on an empty queue
+              Thread.sleep(2);
+            }
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(60, TimeUnit.SECONDS);
+      }
+    } finally {
+      writers.shutdownNow();
+    }
+    writer.close();
+
+    assertEquals((long) writerNum * rowNum, writer.getSentRowNum());
+    for (int i = 0; i < writerNum; i++) {
+      List<Long> times = receivedTimes("root.sg.d" + i);
+      assertEquals(rowNum, times.size());
+      for (int j = 0; j < rowNum; j++) {
+        assertEquals(j, (long) times.get(j));
+      }
+    }
+  }
+}
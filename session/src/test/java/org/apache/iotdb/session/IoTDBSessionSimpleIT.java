@@ -23,12 +23,17 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import org.apache.iotdb.db.conf.IoTDBConstant;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.exception.metadata.MetadataException;
@@ -40,9 +45,16 @@ import org.apache.iotdb.rpc.BatchExecutionException;
 import org.apache.iotdb.rpc.IoTDBConnectionException;
 import org.apache.iotdb.rpc.StatementExecutionException;
 import org.apache.iotdb.tsfile.common.constant.TsFileConstant;
+import org.apache.iotdb.tsfile.exception.write.WriteProcessException;
 import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.read.common.Field;
+import org.apache.iotdb.tsfile.read.common.Path;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.write.TsFileWriter;
+import org.apache.iotdb.tsfile.write.record.Tablet;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
@@ -341,4 +353,130 @@ public class IoTDBSessionSimpleIT {
     session.deleteStorageGroup(storageGroup);
     session.close();
   }
+
+  @Test
+  public void testAsyncInsertTablet()
+      throws IoTDBConnectionException, StatementExecutionException, InterruptedException,
+      ExecutionException {
+    // a window smaller than the number of tablets, so the producer has to wait for the responses
+    AsyncSession asyncSession = new AsyncSession("127.0.0.1", 6667, "root", "root", 2, 3);
+    session = asyncSession;
+    session.open();
+
+    List<MeasurementSchema> schemaList = new ArrayList<>();
+    schemaList.add(new MeasurementSchema("s1", TSDataType.INT64, TSEncoding.RLE));
+    schemaList.add(new MeasurementSchema("s2", TSDataType.INT64, TSEncoding.RLE));
+    Tablet tablet = new Tablet("root.sg1.d1", schemaList, 10);
+
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (long time = 0; time < 200; time++) {
+      int rowIndex = tablet.rowSize++;
+      tablet.addTimestamp(rowIndex, time);
+      tablet.addValue("s1", rowIndex, time);
+      tablet.addValue("s2", rowIndex, time * 2);
+      if (tablet.rowSize == tablet.getMaxRowNumber()) {
+        futures.add(asyncSession.insertTabletAsync(tablet, true));
+        assertTrue(asyncSession.getInFlightRequestNum() <= 3);
+        tablet.reset();
+      }
+    }
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+    assertEquals(0, asyncSession.getInFlightRequestNum());
+
+    SessionDataSet dataSet = session
+        .executeQueryStatement("select count(s1), sum(s2) from root.sg1.d1");
+    assertTrue(dataSet.hasNext());
+    List<Field> fields = dataSet.next().getFields();
+    assertEquals(200L, fields.get(0).getLongV());
+    assertEquals(39800.0, fields.get(1).getDoubleV(), 0.0);
+    dataSet.closeOperationHandle();
+
+    session.close();
+  }
+
+  @Test
+  public void testPrefetchAndNextBlock()
+      throws IoTDBConnectionException, StatementExecutionException {
+    session = new Session("127.0.0.1", 6667, "root", "root", 10);
+    session.open();
+
+    List<String> measurements = new ArrayList<>();
+    measurements.add("s1");
+    measurements.add("s2");
+    List<TSDataType> types = new ArrayList<>();
+    types.add(TSDataType.INT64);
+    types.add(TSDataType.TEXT);
+    for (long time = 0; time < 95; time++) {
+      // s2 is null at odd times
+      if (time % 2 == 0) {
+        session.insertRecord("root.sg1.d1", time, measurements, types, time, "v" + time);
+      } else {
+        session.insertRecord("root.sg1.d1", time, measurements.subList(0, 1),
+            types.subList(0, 1), time);
+      }
+    }
+
+    SessionDataSet dataSet = session.executeQueryStatement("select s1, s2 from root.sg1.d1");
+    dataSet.setFetchSize(10);
+    dataSet.setPrefetch(true);
+    long expected = 0;
+    // mix the row and the block interfaces
+    while (dataSet.hasNext()) {
+      List<Field> fields = dataSet.next().getFields();
+      assertEquals(expected, fields.get(0).getLongV());
+      expected++;
+
+      SessionDataSet.DataBlock block = dataSet.nextBlock();
+      if (block == null) {
+        break;
+      }
+      assertEquals(2, block.getColumnNames().size());
+      long[] s1 = (long[]) block.getColumn(0);
+      Binary[] s2 = (Binary[]) block.getColumn(1);
+      for (int row = 0; row < block.getRowSize(); row++) {
+        assertEquals(expected, block.getTimestamps()[row]);
+        assertEquals(expected, s1[row]);
+        assertEquals(expected % 2 == 1, block.isNull(1, row));
+        if (expected % 2 == 0) {
+          assertEquals("v" + expected, s2[row].getStringValue());
+        }
+        expected++;
+      }
+    }
+    assertEquals(95, expected);
+    dataSet.closeOperationHandle();
+
+    session.close();
+  }
+
+  @Test
+  public void testLoadTsFile()
+      throws IoTDBConnectionException, StatementExecutionException, IOException,
+      WriteProcessException {
+    File tsFile = new File("target" + File.separator + "upload-test.tsfile");
+    MeasurementSchema schema = new MeasurementSchema("s1", TSDataType.INT64, TSEncoding.RLE);
+    try (TsFileWriter writer = new TsFileWriter(tsFile)) {
+      writer.registerTimeseries(new Path("root.sg1.d1", "s1"), schema);
+      Tablet tablet = new Tablet("root.sg1.d1", Collections.singletonList(schema), 1000);
+      for (long time = 0; time < 1000; time++) {
+        tablet.addTimestamp(tablet.rowSize, time);
+        tablet.addValue("s1", tablet.rowSize++, time);
+      }
+      writer.write(tablet);
+    }
+
+    session = new Session("127.0.0.1", 6667, "root", "root");
+    session.open();
+    try {
+      // the timeseries are created when the TsFile is loaded
+      session.loadTsFile(tsFile);
+      SessionDataSet dataSet = session.executeQueryStatement("select count(s1) from root.sg1.d1");
+      assertTrue(dataSet.hasNext());
+      assertEquals(1000, dataSet.next().getFields().get(0).getLongV());
+      dataSet.closeOperationHandle();
+    } finally {
+      session.close();
+      assertTrue(tsFile.delete());
+    }
+  }
 }
@@ -0,0 +1,368 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.session.pool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import org.apache.iotdb.rpc.IoTDBConnectionException;
+import org.apache.iotdb.rpc.StatementExecutionException;
+import org.apache.iotdb.session.Session;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * tests the pooling of SessionPool with sessions that do not connect to a server.
+ */
+public class SessionPoolLifecycleTest {
+
+  private static final String SERVER1 = "127.0.0.1";
+  private static final String SERVER2 = "127.0.0.2";
+
+  private final List<FakeSession> sessions = Collections.synchronizedList(new ArrayList<>());
+  private final Set<String> downServers = Collections.synchronizedSet(new HashSet<>());
+  /**
+   * the next insertion holds its session until the session is released.
+   */
+  private final AtomicBoolean holdNext = new AtomicBoolean();
+  private volatile CountDownLatch holding;
+  private volatile FakeSession held;
+  private SessionPool pool;
+
+  @After
+  public void tearDown() {
+    if (pool != null) {
+      pool.close();
+    }
+  }
+
+  private SessionPool createPool(List<String> servers, int maxSize, long timeout,
+      long keepAliveIntervalMs) {
+    List<String> nodeUrls = new ArrayList<>();
+    for (String server : servers) {
+      nodeUrls.add(server + ":6667");
+    }
+    return new SessionPool(nodeUrls, "root", "root", maxSize, 1000, timeout, false, null,
+        keepAliveIntervalMs) {
+      @Override
+      Session constructSession(String ip, int port) {
+        FakeSession session = new FakeSession(ip, port);
+        sessions.add(session);
+        return session;
+      }
+    };
+  }
+
+  private void insert() throws IoTDBConnectionException, StatementExecutionException {
+    pool.insertRecord("root.sg.d1", 1, Collections.singletonList("s1"),
+        Collections.singletonList("1"));
+  }
+
+  /**
+   * start an insertion in another thread, which holds its session until the session is released.
+   */
+  private FakeSession holdSession() throws InterruptedException {
+    holding = new CountDownLatch(1);
+    holdNext.set(true);
+    Thread thread = new Thread(() -> {
+      try {
+        insert();
+      } catch (IoTDBConnectionException | StatementExecutionException e) {
+        // the pool is closed
+      }
+    });
+    thread.setDaemon(true);
+    thread.start();
+    assertTrue(holding.await(5, TimeUnit.SECONDS));
+    return held;
+  }
+
+  private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+  }
+
+  @Test
+  public void testExhaustionTimeout() throws Exception {
+    pool = createPool(Collections.singletonList(SERVER1), 1, 200, 0);
+    FakeSession session = holdSession();
+    try {
+      insert();
+      fail();
+    } catch (IoTDBConnectionException e) {
+      assertTrue(e.getMessage().startsWith("timeout to get a connection"));
+    }
+    assertEquals(1, pool.getExhaustedCount());
+    assertEquals(1, pool.getTimeoutCount());
+
+    session.release.countDown();
+    waitUntil(() -> pool.getActiveSessionNum() == 0);
+    insert();
+    assertEquals(1, sessions.size());
+  }
+
+  @Test
+  public void testWaitForPutBack() throws Exception {
+    pool = createPool(Collections.singletonList(SERVER1), 1, 10_000, 0);
+    FakeSession session = holdSession();
+    ExecutorService service = Executors.newSingleThreadExecutor();
+    Future<?> waiting = service.submit(() -> {
+      insert();
+      return null;
+    });
+    Thread.sleep(100);
+    assertFalse(waiting.isDone());
+    assertEquals(1, pool.getWaitingThreadNum());
+
+    // the waiting thread takes the session once it is put back
+    session.release.countDown();
+    waiting.get(5, TimeUnit.SECONDS);
+    service.shutdown();
+    assertEquals(1, sessions.size());
+    assertEquals(1, pool.getIdleSessionNum());
+  }
+
+  @Test
+  public void testConcurrentExhaustion() throws Exception {
+    pool = createPool(Arrays.asList(SERVER1, SERVER2), 2, 10_000, 0);
+    ExecutorService service = Executors.newFixedThreadPool(8);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      futures.add(service.submit(() -> {
+        for (int j = 0; j < 200; j++) {
+          insert();
+        }
+        return null;
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get(30, TimeUnit.SECONDS);
+    }
+    service.shutdown();
+    assertTrue(sessions.size() <= 2);
+    assertEquals(sessions.size(), pool.getIdleSessionNum());
+    assertEquals(0, pool.getActiveSessionNum());
+  }
+
+  @Test
+  public void testFailover() throws Exception {
+    pool = createPool(Arrays.asList(SERVER1, SERVER2), 2, 1000, 60_000);
+    downServers.add(SERVER1);
+    insert();
+    // the first server cannot be connected, so the session is created on the second one
+    assertEquals(2, sessions.size());
+    assertFalse(sessions.get(0).opened);
+    assertTrue(sessions.get(1).opened);
+    assertEquals(SERVER2, sessions.get(1).ip);
+
+    // a broken session is removed and the statement is retried on a new session
+    sessions.get(1).broken = true;
+    downServers.clear();
+    insert();
+    assertTrue(sessions.get(1).closed);
+    assertEquals(1, pool.getBrokenSessionCount());
+    assertEquals(1, pool.getSessionNum());
+    assertEquals(SERVER1, sessions.get(2).ip);
+  }
+
+  @Test
+  public void testKeepAliveEviction() throws Exception {
+    pool = createPool(Collections.singletonList(SERVER1), 2, 1000, 50);
+    insert();
+    FakeSession session = sessions.get(0);
+    assertEquals(1, pool.getIdleSessionNum());
+
+    session.broken = true;
+    waitUntil(() -> pool.getSessionNum() == 0);
+    assertEquals(0, pool.getIdleSessionNum());
+    assertEquals(1, pool.getBrokenSessionCount());
+    assertTrue(session.closed);
+
+    insert();
+    assertEquals(2, sessions.size());
+  }
+
+  @Test
+  public void testClose() throws Exception {
+    pool = createPool(Collections.singletonList(SERVER1), 2, 1000, 0);
+    FakeSession inUse = holdSession();
+    insert();
+    FakeSession idle = sessions.get(1);
+
+    pool.close();
+    assertTrue(idle.closed);
+    try {
+      insert();
+      fail();
+    } catch (IoTDBConnectionException e) {
+      assertEquals(SessionPool.SESSION_POOL_IS_CLOSED, e.getMessage());
+    }
+
+    // the session in use is closed instead of being put back
+    assertFalse(inUse.closed);
+    inUse.release.countDown();
+    waitUntil(() -> pool.getActiveSessionNum() == 0);
+    assertTrue(inUse.closed);
+    assertEquals(0, pool.getIdleSessionNum());
+    assertEquals(0, pool.getSessionNum());
+  }
+
+  @Test
+  public void testCloseWhileCheckingIdleSession() throws Exception {
+    pool = createPool(Collections.singletonList(SERVER1), 1, 1000, 20);
+    insert();
+    FakeSession session = sessions.get(0);
+    session.checkRelease = new CountDownLatch(1);
+    session.checking = new CountDownLatch(1);
+    assertTrue(session.checking.await(5, TimeUnit.SECONDS));
+
+    pool.close();
+    session.checkRelease.countDown();
+    waitUntil(() -> session.closed);
+    // the checked session is not put back into the closed pool
+    assertTrue(session.closed);
+    assertEquals(0, pool.getIdleSessionNum());
+    assertEquals(0, pool.getSessionNum());
+  }
+
+  @Test
+  public void testCloseWhilePuttingBack() throws Exception {
+    for (int round = 0; round < 20; round++) {
+      sessions.clear();
+      pool = createPool(Collections.singletonList(SERVER1), 4, 1000, 0);
+      List<Thread> threads = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        Thread thread = new Thread(() -> {
+          try {
+            while (true) {
+              insert();
+            }
+          } catch (IoTDBConnectionException | StatementExecutionException e) {
+            // the pool is closed
+          }
+        });
+        thread.start();
+        threads.add(thread);
+      }
+      Thread.sleep(5);
+      pool.close();
+      for (Thread thread : threads) {
+        thread.join(5000);
+        assertFalse(thread.isAlive());
+      }
+      // no session is left in the closed pool
+      for (FakeSession session : sessions) {
+        assertTrue(session.closed);
+      }
+      assertEquals(0, pool.getIdleSessionNum());
+      assertEquals(0, pool.getSessionNum());
+    }
+  }
+
+  /**
+   * the keep-alive thread is interrupted when the pool is closed, which a real check ignores.
+   */
+  private static void awaitUninterruptibly(CountDownLatch latch) {
+    boolean interrupted = false;
+    while (true) {
+      try {
+        latch.await();
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private class FakeSession extends Session {
+
+    private final String ip;
+    private final CountDownLatch release = new CountDownLatch(1);
+    private volatile boolean opened = false;
+    private volatile boolean closed = false;
+    private volatile boolean broken = false;
+    private volatile CountDownLatch checking;
+    private volatile CountDownLatch checkRelease;
+
+    private FakeSession(String ip, int port) {
+      super(ip, port, "root", "root");
+      this.ip = ip;
+    }
+
+    @Override
+    public synchronized void open(boolean enableRPCCompression)
+        throws IoTDBConnectionException {
+      if (downServers.contains(ip)) {
+        throw new IoTDBConnectionException("Connection refused");
+      }
+      opened = true;
+    }
+
+    @Override
+    public synchronized void close() {
+      closed = true;
+    }
+
+    @Override
+    public void checkConnection() throws IoTDBConnectionException {
+      CountDownLatch currChecking = checking;
+      if (currChecking != null) {
+        currChecking.countDown();
+        awaitUninterruptibly(checkRelease);
+      }
+      if (broken) {
+        throw new IoTDBConnectionException("Broken pipe");
+      }
+    }
+
+    @Override
+    public void insertRecord(String deviceId, long time, List<String> measurements,
+        List<String> values) throws IoTDBConnectionException {
+      if (broken) {
+        throw new IoTDBConnectionException("Broken pipe");
+      }
+      if (holdNext.compareAndSet(true, false)) {
+        held = this;
+        holding.countDown();
+        awaitUninterruptibly(release);
+      }
+    }
+  }
+}
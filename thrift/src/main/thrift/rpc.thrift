@@ -146,6 +146,9 @@ struct TSFetchResultsReq{
 	3: required i32 fetchSize
 	4: required i64 queryId
 	5: required bool isAlign
+	// whether the server produces the next block of an aligned result set in the background after
+	// returning this one, so that it is ready when it is fetched
+	6: optional bool readAhead
 }
 
 struct TSFetchResultsResp{
@@ -204,6 +207,11 @@ struct TSInsertTabletReq {
     5: required binary timestamps
     6: required list<i32> types
     7: required i32 size
+    // for every measurement, a byte that is 1 if some of its values are null, followed by a
+    // bitmap of ceil(size / 8) bytes marking the null values in that case; absent if no value is null
+    8: optional binary bitmaps
+    // whether the measurements of the device share one time column in the memtable
+    9: optional bool isAligned
 }
 
 struct TSInsertTabletsReq {
@@ -214,6 +222,9 @@ struct TSInsertTabletsReq {
     5: required list<binary> timestampsList
     6: required list<list<i32>> typesList
     7: required list<i32> sizeList
+    // the bitmaps of every tablet in the format of TSInsertTabletReq.bitmaps, an empty binary if
+    // no value of the tablet is null
+    8: optional list<binary> bitmapsList
 }
 
 struct TSInsertRecordsReq {
@@ -239,6 +250,38 @@ struct TSDeleteDataReq {
     4: required i64 endTime
 }
 
+struct TSStartLoadFileReq {
+    1: required i64 sessionId
+    // the name of the TsFile on the client, which identifies the upload in the session
+    2: required string fileName
+}
+
+struct TSLoadFileDataReq {
+    1: required i64 sessionId
+    2: required string fileName
+    // whether the data belongs to the .resource file of the TsFile rather than the TsFile
+    3: required bool isResource
+    // the position of the data in the file
+    4: required i64 offset
+    5: required binary data
+}
+
+struct TSEndLoadFileReq {
+    1: required i64 sessionId
+    2: required string fileName
+    // the MD5 of the TsFile
+    3: required string md5
+    // the MD5 of the .resource file, it is not set if the .resource file is not uploaded
+    4: optional string resourceMd5
+    5: optional bool autoCreateSchema
+    6: optional i32 sgLevel
+}
+
+struct TSAbortLoadFileReq {
+    1: required i64 sessionId
+    2: required string fileName
+}
+
 struct TSCreateTimeseriesReq {
   1: required i64 sessionId
   2: required string path
@@ -343,5 +386,13 @@ service TSIService {
 
 	TSExecuteStatementResp executeRawDataQuery(1:TSRawDataQueryReq req);
 
+	TSStatus startLoadFile(1:TSStartLoadFileReq req);
+
+	TSStatus loadFileData(1:TSLoadFileDataReq req);
+
+	TSStatus endLoadFile(1:TSEndLoadFileReq req);
+
+	TSStatus abortLoadFile(1:TSAbortLoadFileReq req);
+
 	i64 requestStatementId(1:i64 sessionId);
 }
@@ -47,4 +47,18 @@ service SyncService{
 	SyncStatus syncData(1:binary buff)
 	SyncStatus checkDataMD5(1:string md5)
 	SyncStatus endSync()
-}
\ No newline at end of file
+
+	// A tsfile is synced in chunks, which are written at their offsets by the receiver, so the
+	// chunks can be sent concurrently through several connections, and the chunks received before
+	// a disconnection do not need to be sent again.
+
+	// Attach a new connection to the sync process started by another connection of the sender.
+	SyncStatus attach(1:ConfirmInfo info)
+	// The msg of the returned status is "resumed" if the chunks received before are kept.
+	SyncStatus initSyncFile(1:string storageGroupName, 2:string fileName, 3:i64 length)
+	// The md5 is of the data before compression, the compressionType is a serialized CompressionType.
+	SyncStatus syncFileChunk(1:string storageGroupName, 2:string fileName, 3:i64 offset,
+	    4:binary data, 5:byte compressionType, 6:string md5)
+	// The file is loaded only if the md5 of the whole file is the same as that of the receiver.
+	SyncStatus endSyncFile(1:string storageGroupName, 2:string fileName, 3:string md5)
+}
\ No newline at end of file
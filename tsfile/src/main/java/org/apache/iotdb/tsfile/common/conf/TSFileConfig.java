@@ -139,9 +139,17 @@ public class TSFileConfig implements Serializable {
    */
   private double dftSatisfyRate = 0.1;
   /**
-   * Data compression method, TsFile supports UNCOMPRESSED, SNAPPY or LZ4.
+   * Data compression method, TsFile supports UNCOMPRESSED, SNAPPY, LZ4, GZIP or ZSTD.
    */
   private CompressionType compressor = CompressionType.SNAPPY;
+  /**
+   * Compression level of GZIP, from 1 (fastest) to 9 (smallest).
+   */
+  private int gzipCompressionLevel = 6;
+  /**
+   * Compression level of ZSTD, from 1 (fastest) to 22 (smallest).
+   */
+  private int zstdCompressionLevel = 3;
   /**
    * Line count threshold for checking page memory occupied size.
    */
@@ -348,6 +356,22 @@ public class TSFileConfig implements Serializable {
     this.compressor = CompressionType.valueOf(compressor);
   }
 
+  public int getGzipCompressionLevel() {
+    return gzipCompressionLevel;
+  }
+
+  public void setGzipCompressionLevel(int gzipCompressionLevel) {
+    this.gzipCompressionLevel = gzipCompressionLevel;
+  }
+
+  public int getZstdCompressionLevel() {
+    return zstdCompressionLevel;
+  }
+
+  public void setZstdCompressionLevel(int zstdCompressionLevel) {
+    this.zstdCompressionLevel = zstdCompressionLevel;
+  }
+
   public int getPageCheckSizeThreshold() {
     return pageCheckSizeThreshold;
   }
@@ -130,6 +130,10 @@ public class TSFileDescriptor {
       conf.setTimeEncoder(properties.getProperty("time_encoder", conf.getTimeEncoder()));
       conf.setValueEncoder(properties.getProperty("value_encoder", conf.getValueEncoder()));
       conf.setCompressor(properties.getProperty("compressor", conf.getCompressor().toString()));
+      conf.setGzipCompressionLevel(Integer.parseInt(properties.getProperty(
+          "gzip_compression_level", Integer.toString(conf.getGzipCompressionLevel()))));
+      conf.setZstdCompressionLevel(Integer.parseInt(properties.getProperty(
+          "zstd_compression_level", Integer.toString(conf.getZstdCompressionLevel()))));
       conf.setBatchSize(Integer.parseInt(properties.getProperty("batch_size",
           Integer.toString(conf.getBatchSize()))));
     } catch (IOException e) {
@@ -19,11 +19,16 @@
 
 package org.apache.iotdb.tsfile.compress;
 
+import com.github.luben.zstd.Zstd;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.nio.ByteBuffer;
+import java.util.zip.GZIPOutputStream;
 import net.jpountz.lz4.LZ4Compressor;
 import net.jpountz.lz4.LZ4Factory;
+import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
 import org.apache.iotdb.tsfile.exception.compress.CompressionTypeNotSupportedException;
 import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
 import org.xerial.snappy.Snappy;
@@ -54,6 +59,12 @@ public interface ICompressor extends Serializable {
         return new SnappyCompressor();
       case LZ4:
         return new IOTDBLZ4Compressor();
+      case GZIP:
+        return new GZIPCompressor(
+            TSFileDescriptor.getInstance().getConfig().getGzipCompressionLevel());
+      case ZSTD:
+        return new ZstdCompressor(
+            TSFileDescriptor.getInstance().getConfig().getZstdCompressionLevel());
       default:
         throw new CompressionTypeNotSupportedException(name.toString());
     }
@@ -181,4 +192,143 @@ public interface ICompressor extends Serializable {
       return CompressionType.LZ4;
     }
   }
+
+  /**
+   * GZIPCompressor compresses data into the GZIP format with the given deflate level, which is
+   * from 1 (fastest) to 9 (smallest).
+   */
+  class GZIPCompressor implements ICompressor {
+
+    /**
+     * the header and the trailer of the GZIP format
+     */
+    private static final int GZIP_OVERHEAD = 18;
+
+    private final int level;
+
+    public GZIPCompressor(int level) {
+      this.level = level;
+    }
+
+    @Override
+    public byte[] compress(byte[] data) throws IOException {
+      if (data == null) {
+        return new byte[0];
+      }
+      return compress(data, 0, data.length).toByteArray();
+    }
+
+    @Override
+    public int compress(byte[] data, int offset, int length, byte[] compressed) throws IOException {
+      ByteArrayOutputStream out = compress(data, offset, length);
+      if (out.size() > compressed.length) {
+        throw new IOException(String.format(
+            "tsfile-compression GZIPCompressor: compressed size %d exceeds the buffer size %d",
+            out.size(), compressed.length));
+      }
+      System.arraycopy(out.toByteArray(), 0, compressed, 0, out.size());
+      return out.size();
+    }
+
+    @Override
+    public int compress(ByteBuffer data, ByteBuffer compressed) throws IOException {
+      int length = data.remaining();
+      byte[] bytes = new byte[length];
+      data.get(bytes);
+      byte[] result = compress(bytes, 0, length).toByteArray();
+      compressed.put(result);
+      return result.length;
+    }
+
+    private ByteArrayOutputStream compress(byte[] data, int offset, int length)
+        throws IOException {
+      ByteArrayOutputStream out = new ByteArrayOutputStream(length / 2 + GZIP_OVERHEAD);
+      try (GZIPOutputStream gzip = new LeveledGZIPOutputStream(out, level)) {
+        gzip.write(data, offset, length);
+      }
+      return out;
+    }
+
+    @Override
+    public int getMaxBytesForCompression(int uncompressedDataSize) {
+      // the bound of deflate in zlib
+      return uncompressedDataSize + (uncompressedDataSize >> 12) + (uncompressedDataSize >> 14)
+          + (uncompressedDataSize >> 25) + 13 + GZIP_OVERHEAD;
+    }
+
+    @Override
+    public CompressionType getType() {
+      return CompressionType.GZIP;
+    }
+
+    private static class LeveledGZIPOutputStream extends GZIPOutputStream {
+
+      private LeveledGZIPOutputStream(OutputStream out, int level) throws IOException {
+        super(out);
+        def.setLevel(level);
+      }
+    }
+  }
+
+  /**
+   * ZstdCompressor compresses data by Zstandard with the given level, which is from 1 (fastest)
+   * to 22 (smallest).
+   */
+  class ZstdCompressor implements ICompressor {
+
+    private final int level;
+
+    public ZstdCompressor(int level) {
+      this.level = level;
+    }
+
+    @Override
+    public byte[] compress(byte[] data) throws IOException {
+      if (data == null) {
+        return new byte[0];
+      }
+      return Zstd.compress(data, level);
+    }
+
+    @Override
+    public int compress(byte[] data, int offset, int length, byte[] compressed) throws IOException {
+      long size = Zstd.compressByteArray(compressed, 0, compressed.length, data, offset, length,
+          level);
+      if (Zstd.isError(size)) {
+        throw new IOException(
+            "tsfile-compression ZstdCompressor: " + Zstd.getErrorName(size));
+      }
+      return (int) size;
+    }
+
+    /**
+     * zstd-jni compresses ByteBuffers only if both of them are direct, heap buffers are compressed
+     * through byte arrays.
+     */
+    @Override
+    public int compress(ByteBuffer data, ByteBuffer compressed) throws IOException {
+      if (!data.isDirect() || !compressed.isDirect()) {
+        byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        byte[] result = compress(bytes);
+        compressed.put(result);
+        return result.length;
+      }
+      try {
+        return Zstd.compress(compressed, data, level);
+      } catch (RuntimeException e) {
+        throw new IOException(e);
+      }
+    }
+
+    @Override
+    public int getMaxBytesForCompression(int uncompressedDataSize) {
+      return (int) Zstd.compressBound(uncompressedDataSize);
+    }
+
+    @Override
+    public CompressionType getType() {
+      return CompressionType.ZSTD;
+    }
+  }
 }
@@ -19,8 +19,13 @@
 
 package org.apache.iotdb.tsfile.compress;
 
+import com.github.luben.zstd.Zstd;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.GZIPInputStream;
 import net.jpountz.lz4.LZ4Compressor;
 import net.jpountz.lz4.LZ4Factory;
 import net.jpountz.lz4.LZ4SafeDecompressor;
@@ -53,6 +58,10 @@ public interface IUnCompressor {
         return new SnappyUnCompressor();
       case LZ4:
         return new LZ4UnCompressor();
+      case GZIP:
+        return new GZIPUnCompressor();
+      case ZSTD:
+        return new ZstdUnCompressor();
       default:
         throw new CompressionTypeNotSupportedException(name.toString());
     }
@@ -267,4 +276,147 @@ public interface IUnCompressor {
       return CompressionType.LZ4;
     }
   }
+
+  class GZIPUnCompressor implements IUnCompressor {
+
+    /**
+     * the size of the uncompressed data modulo 2^32, which is the last 4 bytes of the GZIP format
+     * in little endian
+     */
+    private static final int ISIZE_BYTES = 4;
+
+    @Override
+    public int getUncompressedLength(byte[] array, int offset, int length) {
+      return ByteBuffer.wrap(array, offset + length - ISIZE_BYTES, ISIZE_BYTES)
+          .order(ByteOrder.LITTLE_ENDIAN).getInt();
+    }
+
+    @Override
+    public int getUncompressedLength(ByteBuffer buffer) {
+      return buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN)
+          .getInt(buffer.limit() - ISIZE_BYTES);
+    }
+
+    @Override
+    public byte[] uncompress(byte[] byteArray) throws IOException {
+      if (byteArray == null) {
+        return new byte[0];
+      }
+      ByteArrayOutputStream out = new ByteArrayOutputStream(
+          getUncompressedLength(byteArray, 0, byteArray.length));
+      byte[] buffer = new byte[4096];
+      try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(byteArray))) {
+        int readSize;
+        while ((readSize = in.read(buffer)) != -1) {
+          out.write(buffer, 0, readSize);
+        }
+      }
+      return out.toByteArray();
+    }
+
+    @Override
+    public int uncompress(byte[] byteArray, int offset, int length, byte[] output, int outOffset)
+        throws IOException {
+      int uncompressedSize = 0;
+      try (GZIPInputStream in = new GZIPInputStream(
+          new ByteArrayInputStream(byteArray, offset, length))) {
+        int readSize;
+        while ((readSize = in.read(output, outOffset + uncompressedSize,
+            output.length - outOffset - uncompressedSize)) > 0) {
+          uncompressedSize += readSize;
+        }
+      }
+      return uncompressedSize;
+    }
+
+    @Override
+    public int uncompress(ByteBuffer compressed, ByteBuffer uncompressed) throws IOException {
+      if (compressed == null || !compressed.hasRemaining()) {
+        return 0;
+      }
+      byte[] bytes = new byte[compressed.remaining()];
+      compressed.get(bytes);
+      byte[] result = uncompress(bytes);
+      uncompressed.put(result);
+      return result.length;
+    }
+
+    @Override
+    public CompressionType getCodecName() {
+      return CompressionType.GZIP;
+    }
+  }
+
+  class ZstdUnCompressor implements IUnCompressor {
+
+    private static final String UNCOMPRESS_INPUT_ERROR = "tsfile-compression ZstdUnCompressor: errors occurs when uncompress input byte, ";
+
+    @Override
+    public int getUncompressedLength(byte[] array, int offset, int length) {
+      return (int) Zstd.decompressedSize(array, offset, length);
+    }
+
+    @Override
+    public int getUncompressedLength(ByteBuffer buffer) throws IOException {
+      try {
+        if (!buffer.isDirect()) {
+          // zstd-jni reads only direct ByteBuffers
+          byte[] bytes = new byte[buffer.remaining()];
+          buffer.duplicate().get(bytes);
+          return (int) Zstd.decompressedSize(bytes);
+        }
+        return (int) Zstd.decompressedSize(buffer);
+      } catch (RuntimeException e) {
+        throw new IOException(UNCOMPRESS_INPUT_ERROR + e.getMessage(), e);
+      }
+    }
+
+    @Override
+    public byte[] uncompress(byte[] byteArray) throws IOException {
+      if (byteArray == null) {
+        return new byte[0];
+      }
+      try {
+        return Zstd.decompress(byteArray, (int) Zstd.decompressedSize(byteArray));
+      } catch (RuntimeException e) {
+        throw new IOException(UNCOMPRESS_INPUT_ERROR + e.getMessage(), e);
+      }
+    }
+
+    @Override
+    public int uncompress(byte[] byteArray, int offset, int length, byte[] output, int outOffset)
+        throws IOException {
+      long size = Zstd.decompressByteArray(output, outOffset, output.length - outOffset,
+          byteArray, offset, length);
+      if (Zstd.isError(size)) {
+        throw new IOException(UNCOMPRESS_INPUT_ERROR + Zstd.getErrorName(size));
+      }
+      return (int) size;
+    }
+
+    @Override
+    public int uncompress(ByteBuffer compressed, ByteBuffer uncompressed) throws IOException {
+      if (compressed == null || !compressed.hasRemaining()) {
+        return 0;
+      }
+      if (!compressed.isDirect() || !uncompressed.isDirect()) {
+        // zstd-jni decompresses ByteBuffers only if both of them are direct
+        byte[] bytes = new byte[compressed.remaining()];
+        compressed.get(bytes);
+        byte[] result = uncompress(bytes);
+        uncompressed.put(result);
+        return result.length;
+      }
+      try {
+        return Zstd.decompress(uncompressed, compressed);
+      } catch (RuntimeException e) {
+        throw new IOException(UNCOMPRESS_INPUT_ERROR + e.getMessage(), e);
+      }
+    }
+
+    @Override
+    public CompressionType getCodecName() {
+      return CompressionType.ZSTD;
+    }
+  }
 }
@@ -51,6 +51,11 @@ public abstract class Decoder {
     switch (encoding) {
       case PLAIN:
         return new PlainDecoder(EndianType.BIG_ENDIAN);
+      case PLAIN_DICTIONARY:
+        if (dataType == TSDataType.TEXT) {
+          return new DictionaryDecoder();
+        }
+        throw new TsFileDecodingException(String.format(ERROR_MSG, encoding, dataType));
       case RLE:
         switch (dataType) {
           case BOOLEAN:
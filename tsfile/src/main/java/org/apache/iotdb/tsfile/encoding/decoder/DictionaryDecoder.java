@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.tsfile.encoding.decoder;
+
+import java.nio.ByteBuffer;
+
+import org.apache.iotdb.tsfile.encoding.common.EndianType;
+import org.apache.iotdb.tsfile.encoding.encoder.DictionaryEncoder;
+import org.apache.iotdb.tsfile.exception.encoding.TsFileDecodingException;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.read.filter.basic.Filter;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.ReadWriteForEncodingUtils;
+
+/**
+ * Decoder for values encoded by {@linkplain DictionaryEncoder DictionaryEncoder}.
+ */
+public class DictionaryDecoder extends Decoder {
+
+  private static final byte NOT_EVALUATED = 0;
+  private static final byte SATISFIED = 1;
+  private static final byte NOT_SATISFIED = 2;
+
+  private byte mode;
+  /**
+   * the number of values not read in the current page.
+   */
+  private int remainingCount;
+  private Binary[] dictionary;
+  private IntRleDecoder indexDecoder = new IntRleDecoder(EndianType.BIG_ENDIAN);
+  /**
+   * the dictionary index of the value read last, or -1 if it is plain encoded.
+   */
+  private int lastIndex = -1;
+
+  /**
+   * the filter evaluated on the entries of the current dictionary and the results.
+   */
+  private Filter evaluatedFilter;
+  private byte[] filterResults;
+
+  public DictionaryDecoder() {
+    super(TSEncoding.PLAIN_DICTIONARY);
+  }
+
+  @Override
+  public Binary readBinary(ByteBuffer buffer) {
+    if (remainingCount == 0) {
+      readHeader(buffer);
+    }
+    remainingCount--;
+    if (mode == DictionaryEncoder.DICTIONARY_MODE) {
+      lastIndex = indexDecoder.readInt(buffer);
+      return dictionary[lastIndex];
+    }
+    lastIndex = -1;
+    int length = ReadWriteForEncodingUtils.readUnsignedVarInt(buffer);
+    byte[] bytes = new byte[length];
+    buffer.get(bytes, 0, length);
+    return new Binary(bytes);
+  }
+
+  private void readHeader(ByteBuffer buffer) {
+    mode = buffer.get();
+    remainingCount = ReadWriteForEncodingUtils.readUnsignedVarInt(buffer);
+    switch (mode) {
+      case DictionaryEncoder.DICTIONARY_MODE:
+        int size = ReadWriteForEncodingUtils.readUnsignedVarInt(buffer);
+        dictionary = new Binary[size];
+        for (int i = 0; i < size; i++) {
+          byte[] bytes = new byte[ReadWriteForEncodingUtils.readUnsignedVarInt(buffer)];
+          buffer.get(bytes);
+          dictionary[i] = new Binary(bytes);
+        }
+        indexDecoder.reset();
+        evaluatedFilter = null;
+        break;
+      case DictionaryEncoder.PLAIN_MODE:
+        dictionary = null;
+        break;
+      default:
+        throw new TsFileDecodingException(
+            String.format("tsfile-encoding DictionaryDecoder: unknown mode %s", mode));
+    }
+  }
+
+  /**
+   * Whether the value read last satisfies a filter which only depends on values. If the value is
+   * dictionary encoded, the filter is evaluated only once for every entry of the dictionary.
+   *
+   * @param valueFilter a filter that does not depend on the time
+   * @param time the time of the value read last
+   * @param value the value read last
+   */
+  public boolean satisfy(Filter valueFilter, long time, Binary value) {
+    if (lastIndex < 0) {
+      return valueFilter.satisfy(time, value);
+    }
+    if (evaluatedFilter != valueFilter) {
+      evaluatedFilter = valueFilter;
+      filterResults = new byte[dictionary.length];
+    }
+    if (filterResults[lastIndex] == NOT_EVALUATED) {
+      filterResults[lastIndex] = valueFilter.satisfy(time, value) ? SATISFIED : NOT_SATISFIED;
+    }
+    return filterResults[lastIndex] == SATISFIED;
+  }
+
+  @Override
+  public boolean hasNext(ByteBuffer buffer) {
+    return remainingCount > 0 || buffer.hasRemaining();
+  }
+
+  @Override
+  public void reset() {
+    remainingCount = 0;
+    dictionary = null;
+    lastIndex = -1;
+    evaluatedFilter = null;
+    filterResults = null;
+    indexDecoder.reset();
+  }
+}
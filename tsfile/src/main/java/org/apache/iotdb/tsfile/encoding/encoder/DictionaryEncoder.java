@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.tsfile.encoding.encoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.iotdb.tsfile.common.conf.TSFileConfig;
+import org.apache.iotdb.tsfile.encoding.common.EndianType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.ReadWriteForEncodingUtils;
+
+/**
+ * <p>
+ * DictionaryEncoder is used to encode TEXT values with a low cardinality. The distinct values of
+ * a page are written once as a dictionary and every value is written as its index in the
+ * dictionary, and the indexes are encoded by {@linkplain IntRleEncoder IntRleEncoder}. If a page
+ * is not smaller when encoded by the dictionary, the cardinality of the series is considered too
+ * high, so the page and all the following pages of this encoder are written as plain values.
+ * </p>
+ * <p>
+ * Encoding format of a page: {@code <mode> <count> <dictionary> <indexes>} if dictionary encoded
+ * and {@code <mode> <count> <values>} if plain encoded.
+ * <ul>
+ * <li>mode: one byte, {@code DICTIONARY_MODE} or {@code PLAIN_MODE}</li>
+ * <li>count: unsigned var int, the number of values in the page</li>
+ * <li>dictionary: unsigned var int size, then every entry as unsigned var int length + bytes</li>
+ * <li>indexes: the dictionary indexes of the values, encoded by IntRleEncoder</li>
+ * <li>values: every value as unsigned var int length + bytes</li>
+ * </ul>
+ * </p>
+ */
+public class DictionaryEncoder extends Encoder {
+
+  public static final byte DICTIONARY_MODE = 0;
+  public static final byte PLAIN_MODE = 1;
+
+  /**
+   * mode + count + dictionary size.
+   */
+  private static final int MAX_HEADER_SIZE = 11;
+
+  private int maxStringLength;
+
+  private Map<Binary, Integer> entryIndexMap = new HashMap<>();
+  private List<Binary> entries = new ArrayList<>();
+  private List<Integer> indexes = new ArrayList<>();
+  /**
+   * the encoded size of the dictionary entries.
+   */
+  private long dictionarySize;
+  /**
+   * the encoded size of the values in plain.
+   */
+  private long plainSize;
+
+  /**
+   * true if the cardinality is too high for a dictionary, then values are written to plainBuffer
+   * directly.
+   */
+  private boolean fallBackToPlain;
+  private ByteArrayOutputStream plainBuffer = new ByteArrayOutputStream();
+  private int plainCount;
+
+  private IntRleEncoder indexEncoder = new IntRleEncoder(EndianType.BIG_ENDIAN);
+
+  public DictionaryEncoder(int maxStringLength) {
+    super(TSEncoding.PLAIN_DICTIONARY);
+    this.maxStringLength = maxStringLength;
+  }
+
+  @Override
+  public void encode(Binary value, ByteArrayOutputStream out) {
+    if (fallBackToPlain) {
+      writeBinary(value, plainBuffer);
+      plainCount++;
+      return;
+    }
+    Integer index = entryIndexMap.get(value);
+    if (index == null) {
+      index = entries.size();
+      entries.add(value);
+      entryIndexMap.put(value, index);
+      dictionarySize += encodedSize(value);
+    }
+    indexes.add(index);
+    plainSize += encodedSize(value);
+  }
+
+  @Override
+  public void flush(ByteArrayOutputStream out) throws IOException {
+    if (fallBackToPlain) {
+      if (plainCount > 0) {
+        out.write(PLAIN_MODE);
+        ReadWriteForEncodingUtils.writeUnsignedVarInt(plainCount, out);
+        plainBuffer.writeTo(out);
+        plainBuffer.reset();
+        plainCount = 0;
+      }
+      return;
+    }
+    if (indexes.isEmpty()) {
+      return;
+    }
+
+    int bitWidth = 32 - Integer.numberOfLeadingZeros(entries.size() - 1);
+    long indexSize = ((long) indexes.size() * bitWidth + 7) / 8;
+    if (dictionarySize + indexSize < plainSize) {
+      out.write(DICTIONARY_MODE);
+      ReadWriteForEncodingUtils.writeUnsignedVarInt(indexes.size(), out);
+      ReadWriteForEncodingUtils.writeUnsignedVarInt(entries.size(), out);
+      for (Binary entry : entries) {
+        writeBinary(entry, out);
+      }
+      for (int index : indexes) {
+        indexEncoder.encode(index, out);
+      }
+      indexEncoder.flush(out);
+    } else {
+      fallBackToPlain = true;
+      out.write(PLAIN_MODE);
+      ReadWriteForEncodingUtils.writeUnsignedVarInt(indexes.size(), out);
+      for (int index : indexes) {
+        writeBinary(entries.get(index), out);
+      }
+      // the dictionary will not be used any more
+      entryIndexMap = null;
+      entries = null;
+      indexes = null;
+      return;
+    }
+    reset();
+  }
+
+  private void reset() {
+    entryIndexMap.clear();
+    entries.clear();
+    indexes.clear();
+    dictionarySize = 0;
+    plainSize = 0;
+  }
+
+  private static void writeBinary(Binary value, ByteArrayOutputStream out) {
+    ReadWriteForEncodingUtils.writeUnsignedVarInt(value.getLength(), out);
+    out.write(value.getValues(), 0, value.getLength());
+  }
+
+  private static int encodedSize(Binary value) {
+    int varIntSize = 1;
+    for (int length = value.getLength() >>> 7; length != 0; length >>>= 7) {
+      varIntSize++;
+    }
+    return varIntSize + value.getLength();
+  }
+
+  @Override
+  public int getOneItemMaxSize() {
+    // var int length + value + the index of the value
+    return 5 + TSFileConfig.BYTE_SIZE_PER_CHAR * maxStringLength + 4;
+  }
+
+  @Override
+  public long getMaxByteSize() {
+    // a page is never written larger than its plain values
+    if (fallBackToPlain) {
+      return MAX_HEADER_SIZE + (long) plainBuffer.size();
+    }
+    return MAX_HEADER_SIZE + plainSize;
+  }
+}
@@ -0,0 +1,265 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.tsfile.encoding.encoder;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.PublicBAOS;
+
+/**
+ * EncodingSelector selects the encoding of a chunk before it is written. The first values of the
+ * chunk are encoded by every lossless encoding of the data type, and the encoding that takes the
+ * least space is selected. The encoding is recorded in the chunk header, so readers decode every
+ * chunk by its own encoding.
+ */
+public class EncodingSelector {
+
+  /**
+   * the candidate encodings of each data type, RLE and TS_2DIFF are not candidates of FLOAT and
+   * DOUBLE because they lose precision.
+   */
+  private static final Map<TSDataType, TSEncoding[]> CANDIDATES = new EnumMap<>(TSDataType.class);
+
+  static {
+    CANDIDATES.put(TSDataType.BOOLEAN, new TSEncoding[]{TSEncoding.RLE, TSEncoding.PLAIN});
+    TSEncoding[] integerEncodings = {TSEncoding.TS_2DIFF, TSEncoding.GORILLA, TSEncoding.RLE,
+        TSEncoding.REGULAR, TSEncoding.PLAIN};
+    CANDIDATES.put(TSDataType.INT32, integerEncodings);
+    CANDIDATES.put(TSDataType.INT64, integerEncodings);
+    TSEncoding[] floatEncodings = {TSEncoding.GORILLA, TSEncoding.PLAIN};
+    CANDIDATES.put(TSDataType.FLOAT, floatEncodings);
+    CANDIDATES.put(TSDataType.DOUBLE, floatEncodings);
+    CANDIDATES.put(TSDataType.TEXT, new TSEncoding[]{TSEncoding.PLAIN_DICTIONARY,
+        TSEncoding.PLAIN});
+  }
+
+  private EncodingSelector() {
+    throw new IllegalStateException("Utility class");
+  }
+
+  /**
+   * @param dataType the data type of the values
+   * @param values all values of the chunk
+   * @param sampleSize the number of values that are encoded by each candidate
+   * @return the encoding that takes the least space for the sampled values
+   */
+  public static TSEncoding select(TSDataType dataType, Values values, int sampleSize)
+      throws IOException {
+    Sampler sampler = new Sampler(dataType, sampleSize);
+    for (int i = 0; i < values.size(); i++) {
+      switch (dataType) {
+        case BOOLEAN:
+          sampler.put(values.getBoolean(i));
+          break;
+        case INT32:
+          sampler.put(values.getInt(i));
+          break;
+        case INT64:
+          sampler.put(values.getLong(i));
+          break;
+        case FLOAT:
+          sampler.put(values.getFloat(i));
+          break;
+        case DOUBLE:
+          sampler.put(values.getDouble(i));
+          break;
+        case TEXT:
+          sampler.put(values.getBinary(i));
+          break;
+        default:
+          throw new UnSupportedDataTypeException(dataType.toString());
+      }
+    }
+    return sampler.select();
+  }
+
+  /**
+   * The values of a chunk in time order, only the getter of the data type is called.
+   */
+  public interface Values {
+
+    int size();
+
+    boolean getBoolean(int index);
+
+    int getInt(int index);
+
+    long getLong(int index);
+
+    float getFloat(int index);
+
+    double getDouble(int index);
+
+    Binary getBinary(int index);
+  }
+
+  /**
+   * Sampler selects the encoding of values that are put one by one, so the values of a chunk do not
+   * have to be kept in memory. The first sampleSize values are encoded by every candidate when
+   * they are put, and all values are checked for GORILLA and REGULAR, which cannot encode every
+   * chunk: GORILLA uses the min value of integers and NaN as the end of a page, and REGULAR only
+   * keeps the first value and the delta of regular data. A candidate stops sampling once it is
+   * known not to encode the chunk.
+   */
+  public static class Sampler {
+
+    private final int sampleSize;
+    private final TSEncoding[] candidates;
+    private final Encoder[] encoders;
+    private final PublicBAOS[] outputs;
+
+    private int count = 0;
+    private boolean hasGorillaEnding = false;
+    private boolean isRegular = true;
+    private long previous;
+    private long delta;
+
+    public Sampler(TSDataType dataType, int sampleSize) {
+      this.sampleSize = sampleSize;
+      candidates = CANDIDATES.get(dataType);
+      if (candidates == null) {
+        throw new UnSupportedDataTypeException(dataType.toString());
+      }
+      encoders = new Encoder[candidates.length];
+      outputs = new PublicBAOS[candidates.length];
+      for (int i = 0; i < candidates.length; i++) {
+        encoders[i] = TSEncodingBuilder.getEncodingBuilder(candidates[i]).getEncoder(dataType);
+        outputs[i] = new PublicBAOS();
+      }
+    }
+
+    public void put(boolean value) {
+      if (count < sampleSize) {
+        for (int i = 0; i < encoders.length; i++) {
+          if (canEncode(candidates[i])) {
+            encoders[i].encode(value, outputs[i]);
+          }
+        }
+      }
+      count++;
+    }
+
+    public void put(int value) {
+      hasGorillaEnding |= value == Integer.MIN_VALUE;
+      if (count == 1) {
+        delta = value - (int) previous;
+      } else if (count > 1 && value - (int) previous != (int) delta) {
+        isRegular = false;
+      }
+      previous = value;
+      if (count < sampleSize) {
+        for (int i = 0; i < encoders.length; i++) {
+          if (canEncode(candidates[i])) {
+            encoders[i].encode(value, outputs[i]);
+          }
+        }
+      }
+      count++;
+    }
+
+    public void put(long value) {
+      hasGorillaEnding |= value == Long.MIN_VALUE;
+      if (count == 1) {
+        delta = value - previous;
+      } else if (count > 1 && value - previous != delta) {
+        isRegular = false;
+      }
+      previous = value;
+      if (count < sampleSize) {
+        for (int i = 0; i < encoders.length; i++) {
+          if (canEncode(candidates[i])) {
+            encoders[i].encode(value, outputs[i]);
+          }
+        }
+      }
+      count++;
+    }
+
+    public void put(float value) {
+      hasGorillaEnding |= Float.isNaN(value);
+      if (count < sampleSize) {
+        for (int i = 0; i < encoders.length; i++) {
+          if (canEncode(candidates[i])) {
+            encoders[i].encode(value, outputs[i]);
+          }
+        }
+      }
+      count++;
+    }
+
+    public void put(double value) {
+      hasGorillaEnding |= Double.isNaN(value);
+      if (count < sampleSize) {
+        for (int i = 0; i < encoders.length; i++) {
+          if (canEncode(candidates[i])) {
+            encoders[i].encode(value, outputs[i]);
+          }
+        }
+      }
+      count++;
+    }
+
+    public void put(Binary value) {
+      if (count < sampleSize) {
+        for (int i = 0; i < encoders.length; i++) {
+          if (canEncode(candidates[i])) {
+            encoders[i].encode(value, outputs[i]);
+          }
+        }
+      }
+      count++;
+    }
+
+    /**
+     * @return the encoding that takes the least space for the sampled values among the candidates
+     * that can encode all put values
+     */
+    public TSEncoding select() throws IOException {
+      TSEncoding selectedEncoding = TSEncoding.PLAIN;
+      long minSize = Long.MAX_VALUE;
+      for (int i = 0; i < candidates.length; i++) {
+        if (!canEncode(candidates[i]) || (candidates[i] == TSEncoding.REGULAR && count < 2)) {
+          continue;
+        }
+        encoders[i].flush(outputs[i]);
+        if (outputs[i].size() < minSize) {
+          minSize = outputs[i].size();
+          selectedEncoding = candidates[i];
+        }
+      }
+      return selectedEncoding;
+    }
+
+    private boolean canEncode(TSEncoding encoding) {
+      if (encoding == TSEncoding.GORILLA) {
+        return !hasGorillaEnding;
+      } else if (encoding == TSEncoding.REGULAR) {
+        return isRegular;
+      }
+      return true;
+    }
+  }
+}
@@ -58,6 +58,8 @@ public abstract class TSEncodingBuilder {
     switch (type) {
       case PLAIN:
         return new Plain();
+      case PLAIN_DICTIONARY:
+        return new Dictionary();
       case RLE:
         return new Rle();
       case TS_2DIFF:
@@ -294,4 +296,36 @@ public abstract class TSEncodingBuilder {
       // allowed do nothing
     }
   }
+
+  /**
+   * for TEXT.
+   */
+  public static class Dictionary extends TSEncodingBuilder {
+
+    private int maxStringLength = TSFileDescriptor.getInstance().getConfig().getMaxStringLength();
+
+    @Override
+    public Encoder getEncoder(TSDataType type) {
+      if (type == TSDataType.TEXT) {
+        return new DictionaryEncoder(maxStringLength);
+      }
+      throw new UnSupportedDataTypeException(
+          "PLAIN_DICTIONARY doesn't support data type: " + type);
+    }
+
+    @Override
+    public void initFromProps(Map<String, String> props) {
+      if (props == null || !props.containsKey(Encoder.MAX_STRING_LENGTH)) {
+        maxStringLength = TSFileDescriptor.getInstance().getConfig().getMaxStringLength();
+      } else {
+        maxStringLength = Integer.valueOf(props.get(Encoder.MAX_STRING_LENGTH));
+        if (maxStringLength < 0) {
+          maxStringLength = TSFileDescriptor.getInstance().getConfig().getMaxStringLength();
+          logger.warn(
+              "cannot set max string length to negative value, replaced with default value:{}",
+              maxStringLength);
+        }
+      }
+    }
+  }
 }
@@ -30,10 +30,22 @@ public class MetaMarker {
   public static final byte CHUNK_HEADER = 1;
   public static final byte SEPARATOR = 2;
   public static final byte VERSION = 3;
+  /**
+   * the header of the time chunk shared by the value chunks of an aligned device.
+   */
+  public static final byte TIME_CHUNK_HEADER = 4;
+  /**
+   * the header of a value chunk of an aligned device.
+   */
+  public static final byte VALUE_CHUNK_HEADER = 5;
 
   private MetaMarker() {
   }
 
+  public static boolean isChunkHeader(byte marker) {
+    return marker == CHUNK_HEADER || marker == TIME_CHUNK_HEADER || marker == VALUE_CHUNK_HEADER;
+  }
+
   public static void handleUnexpectedMarker(byte marker) throws IOException {
     throw new IOException("Unexpected marker " + marker);
   }
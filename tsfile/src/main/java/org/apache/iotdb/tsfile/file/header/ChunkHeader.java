@@ -33,6 +33,11 @@ import java.nio.ByteBuffer;
 
 public class ChunkHeader {
 
+  /**
+   * the marker of this header, CHUNK_HEADER, or TIME_CHUNK_HEADER and VALUE_CHUNK_HEADER for the
+   * chunks of an aligned device.
+   */
+  private byte chunkType;
   private String measurementID;
   private int dataSize;
   private TSDataType dataType;
@@ -46,12 +51,19 @@ public class ChunkHeader {
   public ChunkHeader(String measurementID, int dataSize, TSDataType dataType,
       CompressionType compressionType,
       TSEncoding encoding, int numOfPages) {
-    this(measurementID, dataSize, getSerializedSize(measurementID), dataType, compressionType,
-        encoding, numOfPages);
+    this(MetaMarker.CHUNK_HEADER, measurementID, dataSize, dataType, compressionType, encoding,
+        numOfPages);
   }
 
-  private ChunkHeader(String measurementID, int dataSize, int headerSize, TSDataType dataType,
+  public ChunkHeader(byte chunkType, String measurementID, int dataSize, TSDataType dataType,
       CompressionType compressionType, TSEncoding encoding, int numOfPages) {
+    this(chunkType, measurementID, dataSize, getSerializedSize(measurementID), dataType,
+        compressionType, encoding, numOfPages);
+  }
+
+  private ChunkHeader(byte chunkType, String measurementID, int dataSize, int headerSize,
+      TSDataType dataType, CompressionType compressionType, TSEncoding encoding, int numOfPages) {
+    this.chunkType = chunkType;
     this.measurementID = measurementID;
     this.dataSize = dataSize;
     this.dataType = dataType;
@@ -79,20 +91,31 @@ public class ChunkHeader {
    */
   public static ChunkHeader deserializeFrom(InputStream inputStream, boolean markerRead)
       throws IOException {
+    byte marker = MetaMarker.CHUNK_HEADER;
     if (!markerRead) {
-      byte marker = (byte) inputStream.read();
-      if (marker != MetaMarker.CHUNK_HEADER) {
+      marker = (byte) inputStream.read();
+      if (!MetaMarker.isChunkHeader(marker)) {
         MetaMarker.handleUnexpectedMarker(marker);
       }
     }
+    return deserializeFrom(inputStream, marker);
+  }
 
+  /**
+   * deserialize from inputStream whose marker has been read.
+   *
+   * @param chunkType the marker that has been read
+   */
+  public static ChunkHeader deserializeFrom(InputStream inputStream, byte chunkType)
+      throws IOException {
     String measurementID = ReadWriteIOUtils.readString(inputStream);
     int dataSize = ReadWriteIOUtils.readInt(inputStream);
     TSDataType dataType = TSDataType.deserialize(ReadWriteIOUtils.readShort(inputStream));
     int numOfPages = ReadWriteIOUtils.readInt(inputStream);
     CompressionType type = ReadWriteIOUtils.readCompressionType(inputStream);
     TSEncoding encoding = ReadWriteIOUtils.readEncoding(inputStream);
-    return new ChunkHeader(measurementID, dataSize, dataType, type, encoding, numOfPages);
+    return new ChunkHeader(chunkType, measurementID, dataSize, dataType, type, encoding,
+        numOfPages);
   }
 
   /**
@@ -108,16 +131,19 @@ public class ChunkHeader {
   public static ChunkHeader deserializeFrom(TsFileInput input, long offset, int chunkHeaderSize,
       boolean markerRead)
       throws IOException {
-    long offsetVar = offset;
-    if (!markerRead) {
-      offsetVar++;
-    }
-
     // read chunk header from input to buffer
     ByteBuffer buffer = ByteBuffer.allocate(chunkHeaderSize);
-    input.read(buffer, offsetVar);
+    input.read(buffer, offset);
     buffer.flip();
 
+    byte chunkType = MetaMarker.CHUNK_HEADER;
+    if (!markerRead) {
+      chunkType = buffer.get();
+      if (!MetaMarker.isChunkHeader(chunkType)) {
+        MetaMarker.handleUnexpectedMarker(chunkType);
+      }
+    }
+
     // read measurementID
     int size = buffer.getInt();
     String measurementID = ReadWriteIOUtils.readStringWithLength(buffer, size);
@@ -126,14 +152,51 @@ public class ChunkHeader {
     int numOfPages = ReadWriteIOUtils.readInt(buffer);
     CompressionType type = ReadWriteIOUtils.readCompressionType(buffer);
     TSEncoding encoding = ReadWriteIOUtils.readEncoding(buffer);
-    return new ChunkHeader(measurementID, dataSize, chunkHeaderSize, dataType, type, encoding,
-        numOfPages);
+    return new ChunkHeader(chunkType, measurementID, dataSize, chunkHeaderSize, dataType, type,
+        encoding, numOfPages);
+  }
+
+  /**
+   * deserialize from a ByteBuffer whose position is at the marker of the CHUNK_HEADER. The
+   * position of the buffer is moved to the end of the header.
+   *
+   * @param buffer ByteBuffer
+   * @return CHUNK_HEADER object
+   * @throws IOException if the marker is not a chunk header
+   */
+  public static ChunkHeader deserializeFrom(ByteBuffer buffer) throws IOException {
+    int startPosition = buffer.position();
+    byte marker = buffer.get();
+    if (!MetaMarker.isChunkHeader(marker)) {
+      MetaMarker.handleUnexpectedMarker(marker);
+    }
+
+    String measurementID = ReadWriteIOUtils.readString(buffer);
+    int dataSize = ReadWriteIOUtils.readInt(buffer);
+    TSDataType dataType = TSDataType.deserialize(ReadWriteIOUtils.readShort(buffer));
+    int numOfPages = ReadWriteIOUtils.readInt(buffer);
+    CompressionType type = ReadWriteIOUtils.readCompressionType(buffer);
+    TSEncoding encoding = ReadWriteIOUtils.readEncoding(buffer);
+    return new ChunkHeader(marker, measurementID, dataSize, buffer.position() - startPosition,
+        dataType, type, encoding, numOfPages);
   }
 
   public int getSerializedSize() {
     return serializedSize;
   }
 
+  public byte getChunkType() {
+    return chunkType;
+  }
+
+  /**
+   * @return true if this is a value chunk of an aligned device, whose data starts with the offset
+   * of the time chunk header
+   */
+  public boolean isValueChunk() {
+    return chunkType == MetaMarker.VALUE_CHUNK_HEADER;
+  }
+
   public String getMeasurementID() {
     return measurementID;
   }
@@ -155,7 +218,7 @@ public class ChunkHeader {
    */
   public int serializeTo(OutputStream outputStream) throws IOException {
     int length = 0;
-    length += ReadWriteIOUtils.write(MetaMarker.CHUNK_HEADER, outputStream);
+    length += ReadWriteIOUtils.write(chunkType, outputStream);
     length += ReadWriteIOUtils.write(measurementID, outputStream);
     length += ReadWriteIOUtils.write(dataSize, outputStream);
     length += ReadWriteIOUtils.write(dataType, outputStream);
@@ -173,7 +236,7 @@ public class ChunkHeader {
    */
   public int serializeTo(ByteBuffer buffer) {
     int length = 0;
-    length += ReadWriteIOUtils.write(MetaMarker.CHUNK_HEADER, buffer);
+    length += ReadWriteIOUtils.write(chunkType, buffer);
     length += ReadWriteIOUtils.write(measurementID, buffer);
     length += ReadWriteIOUtils.write(dataSize, buffer);
     length += ReadWriteIOUtils.write(dataType, buffer);
@@ -197,8 +260,8 @@ public class ChunkHeader {
 
   @Override
   public String toString() {
-    return "CHUNK_HEADER{" + "measurementID='" + measurementID + '\'' + ", dataSize=" + dataSize
-        + ", dataType="
+    return "CHUNK_HEADER{" + "chunkType=" + chunkType + ", measurementID='" + measurementID
+        + '\'' + ", dataSize=" + dataSize + ", dataType="
         + dataType + ", compressionType=" + compressionType + ", encodingType=" + encodingType
         + ", numOfPages="
         + numOfPages + ", serializedSize=" + serializedSize + '}';
@@ -19,6 +19,7 @@
 package org.apache.iotdb.tsfile.file.metadata;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
@@ -170,6 +171,24 @@ public class ChunkMetadata implements Accountable {
     return chunkMetaData;
   }
 
+  /**
+   * deserialize from InputStream.
+   *
+   * @param inputStream InputStream
+   * @return ChunkMetaData object
+   */
+  public static ChunkMetadata deserializeFrom(InputStream inputStream) throws IOException {
+    ChunkMetadata chunkMetaData = new ChunkMetadata();
+
+    chunkMetaData.measurementUid = ReadWriteIOUtils.readString(inputStream);
+    chunkMetaData.offsetOfChunkHeader = ReadWriteIOUtils.readLong(inputStream);
+    chunkMetaData.tsDataType = ReadWriteIOUtils.readDataType(inputStream);
+
+    chunkMetaData.statistics = Statistics.deserialize(inputStream, chunkMetaData.tsDataType);
+
+    return chunkMetaData;
+  }
+
   public long getVersion() {
     return version;
   }
@@ -0,0 +1,282 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.tsfile.file.metadata;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import org.apache.iotdb.tsfile.read.filter.GroupByFilter;
+import org.apache.iotdb.tsfile.read.filter.basic.BinaryFilter;
+import org.apache.iotdb.tsfile.read.filter.basic.Filter;
+import org.apache.iotdb.tsfile.read.filter.basic.UnaryFilter;
+import org.apache.iotdb.tsfile.read.filter.factory.FilterType;
+import org.apache.iotdb.tsfile.read.filter.operator.AndFilter;
+import org.apache.iotdb.tsfile.read.filter.operator.Eq;
+import org.apache.iotdb.tsfile.read.filter.operator.Gt;
+import org.apache.iotdb.tsfile.read.filter.operator.GtEq;
+import org.apache.iotdb.tsfile.read.filter.operator.Lt;
+import org.apache.iotdb.tsfile.read.filter.operator.LtEq;
+import org.apache.iotdb.tsfile.read.filter.operator.OrFilter;
+import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
+
+/**
+ * A sparse index over the ChunkMetadata list of a timeseries, it is written right after the list
+ * when the series has more than GROUP_SIZE chunks. Every GROUP_SIZE consecutive ChunkMetadata form
+ * a group, and an entry of the index records the min start time, the max end time and the offset
+ * (relative to the start of the list) of a group. With the index, a reader only reads and
+ * deserializes the groups overlapping the time range of a query instead of the whole list.
+ */
+public class ChunkMetadataIndex {
+
+  /**
+   * number of ChunkMetadata in one group of the index.
+   */
+  public static final int GROUP_SIZE = 32;
+
+  private final long[] startTimes;
+  private final long[] endTimes;
+  private final int[] offsets;
+
+  /**
+   * maxEndTimes[i] is the max end time of group 0 to i, and minStartTimes[i] is the min start time
+   * of group i to the last one. Both are non-decreasing even if the chunks are out of order, so the
+   * first and the last group overlapping a time range can be found by binary search.
+   */
+  private long[] maxEndTimes;
+  private long[] minStartTimes;
+
+  private ChunkMetadataIndex(long[] startTimes, long[] endTimes, int[] offsets) {
+    this.startTimes = startTimes;
+    this.endTimes = endTimes;
+    this.offsets = offsets;
+  }
+
+  /**
+   * @param chunkMetadataList the ChunkMetadata of a series, in the order they are serialized
+   * @param serializedSizes the serialized size of each ChunkMetadata
+   * @return the index, or null if the series has no more than GROUP_SIZE chunks
+   */
+  public static ChunkMetadataIndex build(List<ChunkMetadata> chunkMetadataList,
+      List<Integer> serializedSizes) {
+    int chunkNum = chunkMetadataList.size();
+    if (chunkNum <= GROUP_SIZE) {
+      return null;
+    }
+    int groupNum = (chunkNum + GROUP_SIZE - 1) / GROUP_SIZE;
+    long[] startTimes = new long[groupNum];
+    long[] endTimes = new long[groupNum];
+    int[] offsets = new int[groupNum];
+    int offset = 0;
+    for (int i = 0; i < chunkNum; i++) {
+      ChunkMetadata chunkMetadata = chunkMetadataList.get(i);
+      int group = i / GROUP_SIZE;
+      if (i % GROUP_SIZE == 0) {
+        startTimes[group] = chunkMetadata.getStartTime();
+        endTimes[group] = chunkMetadata.getEndTime();
+        offsets[group] = offset;
+      } else {
+        startTimes[group] = Math.min(startTimes[group], chunkMetadata.getStartTime());
+        endTimes[group] = Math.max(endTimes[group], chunkMetadata.getEndTime());
+      }
+      offset += serializedSizes.get(i);
+    }
+    return new ChunkMetadataIndex(startTimes, endTimes, offsets);
+  }
+
+  public int serializeTo(OutputStream outputStream) throws IOException {
+    int byteLen = ReadWriteIOUtils.write(offsets.length, outputStream);
+    for (int i = 0; i < offsets.length; i++) {
+      byteLen += ReadWriteIOUtils.write(startTimes[i], outputStream);
+      byteLen += ReadWriteIOUtils.write(endTimes[i], outputStream);
+      byteLen += ReadWriteIOUtils.write(offsets[i], outputStream);
+    }
+    return byteLen;
+  }
+
+  public static ChunkMetadataIndex deserializeFrom(ByteBuffer buffer) {
+    int groupNum = ReadWriteIOUtils.readInt(buffer);
+    long[] startTimes = new long[groupNum];
+    long[] endTimes = new long[groupNum];
+    int[] offsets = new int[groupNum];
+    for (int i = 0; i < groupNum; i++) {
+      startTimes[i] = ReadWriteIOUtils.readLong(buffer);
+      endTimes[i] = ReadWriteIOUtils.readLong(buffer);
+      offsets[i] = ReadWriteIOUtils.readInt(buffer);
+    }
+    return new ChunkMetadataIndex(startTimes, endTimes, offsets);
+  }
+
+  public int getGroupNum() {
+    return offsets.length;
+  }
+
+  /**
+   * find the groups that may contain data satisfying the time filter, the adjacent ones are merged.
+   *
+   * @param timeFilter the filter of the query, only the time conditions of it are used
+   * @param listDataSize the serialized size of the whole ChunkMetadata list
+   * @return [start, end) byte ranges relative to the start of the ChunkMetadata list, in order
+   */
+  public List<int[]> getOverlappedRanges(Filter timeFilter, int listDataSize) {
+    buildBinarySearchArrays();
+    boolean[] overlapped = new boolean[offsets.length];
+    for (long[] timeRange : getTimeRanges(timeFilter)) {
+      int last = lastGroupStartingAtOrBefore(timeRange[1]);
+      for (int i = firstGroupEndingAtOrAfter(timeRange[0]); i <= last; i++) {
+        if (endTimes[i] >= timeRange[0] && startTimes[i] <= timeRange[1]) {
+          overlapped[i] = true;
+        }
+      }
+    }
+    List<int[]> ranges = new ArrayList<>();
+    int[] current = null;
+    for (int i = 0; i < offsets.length; i++) {
+      if (!overlapped[i]) {
+        continue;
+      }
+      int end = i + 1 < offsets.length ? offsets[i + 1] : listDataSize;
+      if (current != null && current[1] == offsets[i]) {
+        current[1] = end;
+      } else {
+        current = new int[]{offsets[i], end};
+        ranges.add(current);
+      }
+    }
+    return ranges;
+  }
+
+  private void buildBinarySearchArrays() {
+    if (maxEndTimes != null) {
+      return;
+    }
+    int groupNum = offsets.length;
+    long[] maxEnds = new long[groupNum];
+    long[] minStarts = new long[groupNum];
+    for (int i = 0; i < groupNum; i++) {
+      maxEnds[i] = i == 0 ? endTimes[0] : Math.max(maxEnds[i - 1], endTimes[i]);
+    }
+    for (int i = groupNum - 1; i >= 0; i--) {
+      minStarts[i] = i == groupNum - 1 ? startTimes[i] : Math.min(minStarts[i + 1], startTimes[i]);
+    }
+    minStartTimes = minStarts;
+    maxEndTimes = maxEnds;
+  }
+
+  /**
+   * @return the first group i whose maxEndTimes[i] >= time, or the number of groups if none
+   */
+  private int firstGroupEndingAtOrAfter(long time) {
+    int low = 0;
+    int high = maxEndTimes.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (maxEndTimes[mid] < time) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * @return the last group i whose minStartTimes[i] <= time, or -1 if none
+   */
+  private int lastGroupStartingAtOrBefore(long time) {
+    int low = 0;
+    int high = minStartTimes.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (minStartTimes[mid] <= time) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low - 1;
+  }
+
+  /**
+   * get disjoint time ranges covering all the timestamps the filter may accept. A filter whose
+   * time range cannot be told, e.g., a NotFilter or a value filter, is regarded as accepting any
+   * timestamp.
+   *
+   * @return {min, max} pairs sorted by min, empty if the filter accepts no timestamp
+   */
+  static List<long[]> getTimeRanges(Filter filter) {
+    List<long[]> ranges = new ArrayList<>();
+    if (filter instanceof AndFilter) {
+      List<long[]> left = getTimeRanges(((BinaryFilter) filter).getLeft());
+      List<long[]> right = getTimeRanges(((BinaryFilter) filter).getRight());
+      for (long[] l : left) {
+        for (long[] r : right) {
+          long min = Math.max(l[0], r[0]);
+          long max = Math.min(l[1], r[1]);
+          if (min <= max) {
+            ranges.add(new long[]{min, max});
+          }
+        }
+      }
+      ranges.sort(Comparator.comparingLong(r -> r[0]));
+      return ranges;
+    }
+    if (filter instanceof OrFilter) {
+      ranges.addAll(getTimeRanges(((BinaryFilter) filter).getLeft()));
+      ranges.addAll(getTimeRanges(((BinaryFilter) filter).getRight()));
+      ranges.sort(Comparator.comparingLong(r -> r[0]));
+      List<long[]> merged = new ArrayList<>();
+      for (long[] range : ranges) {
+        long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+        if (last != null && range[0] <= last[1]) {
+          last[1] = Math.max(last[1], range[1]);
+        } else {
+          merged.add(new long[]{range[0], range[1]});
+        }
+      }
+      return merged;
+    }
+    if (filter instanceof GroupByFilter) {
+      GroupByFilter groupByFilter = (GroupByFilter) filter;
+      ranges.add(new long[]{groupByFilter.getStartTime(), groupByFilter.getEndTime()});
+      return ranges;
+    }
+    if (filter instanceof UnaryFilter
+        && ((UnaryFilter<?>) filter).getFilterType() == FilterType.TIME_FILTER) {
+      long time = (Long) ((UnaryFilter<?>) filter).getValue();
+      if (filter instanceof Gt || filter instanceof GtEq) {
+        ranges.add(new long[]{time, Long.MAX_VALUE});
+        return ranges;
+      }
+      if (filter instanceof Lt || filter instanceof LtEq) {
+        ranges.add(new long[]{Long.MIN_VALUE, time});
+        return ranges;
+      }
+      if (filter instanceof Eq) {
+        ranges.add(new long[]{time, time});
+        return ranges;
+      }
+    }
+    ranges.add(new long[]{Long.MIN_VALUE, Long.MAX_VALUE});
+    return ranges;
+  }
+}
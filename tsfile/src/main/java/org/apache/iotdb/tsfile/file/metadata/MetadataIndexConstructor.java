@@ -45,7 +45,6 @@ public class MetadataIndexConstructor {
    * @param deviceTimeseriesMetadataMap device - >List<TimeseriesMetadata>
    * @param out tsfile output
    */
-  @SuppressWarnings("squid:S3776") // Suppress high Cognitive Complexity warning
   public static MetadataIndexNode constructMetadataIndex(Map<String, List<TimeseriesMetadata>>
       deviceTimeseriesMetadataMap, TsFileOutput out) throws IOException {
     Map<String, MetadataIndexNode> deviceMetadataIndexMap = new TreeMap<>();
@@ -55,28 +54,52 @@ public class MetadataIndexConstructor {
       if (entry.getValue().isEmpty()) {
         continue;
       }
-      Queue<MetadataIndexNode> measurementMetadataIndexQueue = new ArrayDeque<>();
-      TimeseriesMetadata timeseriesMetadata;
-      MetadataIndexNode currentIndexNode = new MetadataIndexNode(
-          MetadataIndexNodeType.LEAF_MEASUREMENT);
-      for (int i = 0; i < entry.getValue().size(); i++) {
-        timeseriesMetadata = entry.getValue().get(i);
-        // when constructing from leaf node, every "degree number of nodes" are related to an entry
-        if (i % MAX_DEGREE_OF_INDEX_NODE == 0) {
-          if (currentIndexNode.isFull()) {
-            addCurrentIndexNodeToQueue(currentIndexNode, measurementMetadataIndexQueue, out);
-            currentIndexNode = new MetadataIndexNode(MetadataIndexNodeType.LEAF_MEASUREMENT);
-          }
-          currentIndexNode.addEntry(new MetadataIndexEntry(timeseriesMetadata.getMeasurementId(),
-              out.getPosition()));
+      deviceMetadataIndexMap
+          .put(entry.getKey(), constructMeasurementIndex(entry.getValue(), out));
+    }
+    return constructDeviceIndex(deviceMetadataIndexMap, out);
+  }
+
+  /**
+   * Serialize the TimeseriesMetadata of a device and construct the measurement index level of it.
+   *
+   * @param timeseriesMetadataList TimeseriesMetadata of a device sorted by measurement, not empty
+   * @param out tsfile output
+   * @return root node of the measurement index level of the device
+   */
+  public static MetadataIndexNode constructMeasurementIndex(
+      List<TimeseriesMetadata> timeseriesMetadataList, TsFileOutput out) throws IOException {
+    Queue<MetadataIndexNode> measurementMetadataIndexQueue = new ArrayDeque<>();
+    TimeseriesMetadata timeseriesMetadata;
+    MetadataIndexNode currentIndexNode = new MetadataIndexNode(
+        MetadataIndexNodeType.LEAF_MEASUREMENT);
+    for (int i = 0; i < timeseriesMetadataList.size(); i++) {
+      timeseriesMetadata = timeseriesMetadataList.get(i);
+      // when constructing from leaf node, every "degree number of nodes" are related to an entry
+      if (i % MAX_DEGREE_OF_INDEX_NODE == 0) {
+        if (currentIndexNode.isFull()) {
+          addCurrentIndexNodeToQueue(currentIndexNode, measurementMetadataIndexQueue, out);
+          currentIndexNode = new MetadataIndexNode(MetadataIndexNodeType.LEAF_MEASUREMENT);
         }
-        timeseriesMetadata.serializeTo(out.wrapAsStream());
+        currentIndexNode.addEntry(new MetadataIndexEntry(timeseriesMetadata.getMeasurementId(),
+            out.getPosition()));
       }
-      addCurrentIndexNodeToQueue(currentIndexNode, measurementMetadataIndexQueue, out);
-      deviceMetadataIndexMap.put(entry.getKey(), generateRootNode(measurementMetadataIndexQueue,
-          out, MetadataIndexNodeType.INTERNAL_MEASUREMENT));
+      timeseriesMetadata.serializeTo(out.wrapAsStream());
     }
+    addCurrentIndexNodeToQueue(currentIndexNode, measurementMetadataIndexQueue, out);
+    return generateRootNode(measurementMetadataIndexQueue, out,
+        MetadataIndexNodeType.INTERNAL_MEASUREMENT);
+  }
 
+  /**
+   * Construct the device index level upon the measurement index level of each device.
+   *
+   * @param deviceMetadataIndexMap device -> root node of the measurement index level of it
+   * @param out tsfile output
+   * @return root node of the metadata index tree
+   */
+  public static MetadataIndexNode constructDeviceIndex(
+      Map<String, MetadataIndexNode> deviceMetadataIndexMap, TsFileOutput out) throws IOException {
     // if not exceed the max child nodes num, ignore the device index and directly point to the measurement
     if (deviceMetadataIndexMap.size() <= MAX_DEGREE_OF_INDEX_NODE) {
       MetadataIndexNode metadataIndexNode = new MetadataIndexNode(
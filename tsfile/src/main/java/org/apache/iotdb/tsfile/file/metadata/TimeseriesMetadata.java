@@ -31,9 +31,18 @@ import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
 
 public class TimeseriesMetadata implements Accountable {
 
+  /**
+   * set in the serialized data type if a ChunkMetadataIndex follows the ChunkMetadata list, so
+   * that an old reader fails on an unknown data type instead of ignoring the index size.
+   */
+  private static final short CHUNK_METADATA_INDEX_FLAG = 0x100;
+
   private long startOffsetOfChunkMetaDataList;
   private int chunkMetaDataListDataSize;
 
+  // serialized size of the ChunkMetadataIndex after the ChunkMetadata list, 0 if there is no index
+  private int chunkMetadataIndexSize;
+
   private String measurementId;
   private TSDataType dataType;
 
@@ -64,6 +73,7 @@ public class TimeseriesMetadata implements Accountable {
   public TimeseriesMetadata(TimeseriesMetadata timeseriesMetadata) {
     this.startOffsetOfChunkMetaDataList = timeseriesMetadata.startOffsetOfChunkMetaDataList;
     this.chunkMetaDataListDataSize = timeseriesMetadata.chunkMetaDataListDataSize;
+    this.chunkMetadataIndexSize = timeseriesMetadata.chunkMetadataIndexSize;
     this.measurementId = timeseriesMetadata.measurementId;
     this.dataType = timeseriesMetadata.dataType;
     this.statistics = timeseriesMetadata.statistics;
@@ -73,9 +83,14 @@ public class TimeseriesMetadata implements Accountable {
   public static TimeseriesMetadata deserializeFrom(ByteBuffer buffer) {
     TimeseriesMetadata timeseriesMetaData = new TimeseriesMetadata();
     timeseriesMetaData.setMeasurementId(ReadWriteIOUtils.readString(buffer));
-    timeseriesMetaData.setTSDataType(ReadWriteIOUtils.readDataType(buffer));
+    short dataType = ReadWriteIOUtils.readShort(buffer);
+    timeseriesMetaData.setTSDataType(
+        TSDataType.deserialize((short) (dataType & ~CHUNK_METADATA_INDEX_FLAG)));
     timeseriesMetaData.setOffsetOfChunkMetaDataList(ReadWriteIOUtils.readLong(buffer));
     timeseriesMetaData.setDataSizeOfChunkMetaDataList(ReadWriteIOUtils.readInt(buffer));
+    if ((dataType & CHUNK_METADATA_INDEX_FLAG) != 0) {
+      timeseriesMetaData.setChunkMetadataIndexSize(ReadWriteIOUtils.readInt(buffer));
+    }
     timeseriesMetaData.setStatistics(Statistics.deserialize(buffer, timeseriesMetaData.dataType));
     return timeseriesMetaData;
   }
@@ -90,9 +105,17 @@ public class TimeseriesMetadata implements Accountable {
   public int serializeTo(OutputStream outputStream) throws IOException {
     int byteLen = 0;
     byteLen += ReadWriteIOUtils.write(measurementId, outputStream);
-    byteLen += ReadWriteIOUtils.write(dataType, outputStream);
+    if (hasChunkMetadataIndex()) {
+      byteLen += ReadWriteIOUtils
+          .write((short) (dataType.serialize() | CHUNK_METADATA_INDEX_FLAG), outputStream);
+    } else {
+      byteLen += ReadWriteIOUtils.write(dataType, outputStream);
+    }
     byteLen += ReadWriteIOUtils.write(startOffsetOfChunkMetaDataList, outputStream);
     byteLen += ReadWriteIOUtils.write(chunkMetaDataListDataSize, outputStream);
+    if (hasChunkMetadataIndex()) {
+      byteLen += ReadWriteIOUtils.write(chunkMetadataIndexSize, outputStream);
+    }
     byteLen += statistics.serialize(outputStream);
     return byteLen;
   }
@@ -121,6 +144,18 @@ public class TimeseriesMetadata implements Accountable {
     this.chunkMetaDataListDataSize = size;
   }
 
+  public int getChunkMetadataIndexSize() {
+    return chunkMetadataIndexSize;
+  }
+
+  public void setChunkMetadataIndexSize(int size) {
+    this.chunkMetadataIndexSize = size;
+  }
+
+  public boolean hasChunkMetadataIndex() {
+    return chunkMetadataIndexSize > 0;
+  }
+
   public TSDataType getTSDataType() {
     return dataType;
   }
@@ -139,15 +139,27 @@ public class TsFileMetadata {
    */
   public int serializeBloomFilter(OutputStream outputStream, Set<Path> paths)
       throws IOException {
+    return serializeBloomFilter(outputStream, buildBloomFilter(paths));
+  }
+
+  /**
+   * use the given bloom filter instead of building one from all the paths, so that the paths need
+   * not be in memory at the same time.
+   *
+   * @param outputStream -output stream to determine byte length
+   * @param filter the bloom filter of all the paths in the file
+   * @return -byte length
+   */
+  public int serializeBloomFilter(OutputStream outputStream, BloomFilter filter)
+      throws IOException {
     int byteLen = 0;
-    BloomFilter filter = buildBloomFilter(paths);
 
     byte[] bytes = filter.serialize();
     byteLen += ReadWriteIOUtils.write(bytes.length, outputStream);
     outputStream.write(bytes);
     byteLen += bytes.length;
     byteLen += ReadWriteIOUtils.write(filter.getSize(), outputStream);
-    byteLen += ReadWriteIOUtils.write(filter.getHashFunctionSize(), outputStream);
+    byteLen += ReadWriteIOUtils.write(filter.getSerializedHashFunctionSize(), outputStream);
     return byteLen;
   }
 
@@ -19,7 +19,7 @@
 package org.apache.iotdb.tsfile.file.metadata.enums;
 
 public enum CompressionType {
-  UNCOMPRESSED, SNAPPY, GZIP, LZO, SDT, PAA, PLA, LZ4;
+  UNCOMPRESSED, SNAPPY, GZIP, LZO, SDT, PAA, PLA, LZ4, ZSTD;
 
   /**
    * deserialize short number.
@@ -32,7 +32,7 @@ public enum CompressionType {
   }
 
   public static byte deserializeToByte(short compressor) {
-    if (compressor >= 8 || compressor < 0) {
+    if (compressor >= 9 || compressor < 0) {
       throw new IllegalArgumentException("Invalid input: " + compressor);
     }
     return (byte) compressor;
@@ -40,7 +40,7 @@ public enum CompressionType {
 
 
   private static CompressionType getCompressionType(short compressor) {
-    if (compressor >= 8 || compressor < 0) {
+    if (compressor >= 9 || compressor < 0) {
       throw new IllegalArgumentException("Invalid input: " + compressor);
     }
     switch (compressor) {
@@ -58,6 +58,8 @@ public enum CompressionType {
         return PLA;
       case 7:
         return LZ4;
+      case 8:
+        return ZSTD;
       default:
         return UNCOMPRESSED;
     }
@@ -105,6 +107,8 @@ public enum CompressionType {
         return 6;
       case LZ4:
         return 7;
+      case ZSTD:
+        return 8;
       default:
         return 0;
     }
@@ -131,6 +135,8 @@ public enum CompressionType {
         return ".pla";
       case LZ4:
         return ".lz4";
+      case ZSTD:
+        return ".zst";
       default:
         return "";
     }
@@ -44,6 +44,7 @@ import org.apache.iotdb.tsfile.file.header.ChunkHeader;
 import org.apache.iotdb.tsfile.file.header.PageHeader;
 import org.apache.iotdb.tsfile.file.metadata.ChunkGroupMetadata;
 import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
+import org.apache.iotdb.tsfile.file.metadata.ChunkMetadataIndex;
 import org.apache.iotdb.tsfile.file.metadata.MetadataIndexEntry;
 import org.apache.iotdb.tsfile.file.metadata.MetadataIndexNode;
 import org.apache.iotdb.tsfile.file.metadata.TimeseriesMetadata;
@@ -56,6 +57,7 @@ import org.apache.iotdb.tsfile.fileSystem.FSFactoryProducer;
 import org.apache.iotdb.tsfile.read.common.Chunk;
 import org.apache.iotdb.tsfile.read.common.Path;
 import org.apache.iotdb.tsfile.read.controller.MetadataQuerierByFileImpl;
+import org.apache.iotdb.tsfile.read.filter.basic.Filter;
 import org.apache.iotdb.tsfile.read.reader.TsFileInput;
 import org.apache.iotdb.tsfile.utils.BloomFilter;
 import org.apache.iotdb.tsfile.utils.Pair;
@@ -495,22 +497,30 @@ public class TsFileSequenceReader implements AutoCloseable {
       readFileMetadata();
     }
 
-    long start = 0;
-    int size = 0;
+    long start = Long.MAX_VALUE;
+    long end = 0;
     List<TimeseriesMetadata> timeseriesMetadataMap = getDeviceTimeseriesMetadata(device);
+    if (timeseriesMetadataMap.isEmpty()) {
+      return new HashMap<>();
+    }
     for (TimeseriesMetadata timeseriesMetadata : timeseriesMetadataMap) {
-      if (start == 0) {
-        start = timeseriesMetadata.getOffsetOfChunkMetaDataList();
-      }
-      size += timeseriesMetadata.getDataSizeOfChunkMetaDataList();
+      start = Math.min(start, timeseriesMetadata.getOffsetOfChunkMetaDataList());
+      end = Math.max(end, timeseriesMetadata.getOffsetOfChunkMetaDataList()
+          + timeseriesMetadata.getDataSizeOfChunkMetaDataList());
     }
-    // read buffer of all ChunkMetadatas of this device
-    ByteBuffer buffer = readData(start, size);
+    // read buffer of all ChunkMetadatas of this device, including the ChunkMetadataIndex between
+    // the lists of the series, which are skipped
+    ByteBuffer buffer = readData(start, (int) (end - start));
     Map<String, List<ChunkMetadata>> seriesMetadata = new HashMap<>();
-    while (buffer.hasRemaining()) {
-      ChunkMetadata chunkMetadata = ChunkMetadata.deserializeFrom(buffer);
-      seriesMetadata.computeIfAbsent(chunkMetadata.getMeasurementUid(), key -> new ArrayList<>())
-          .add(chunkMetadata);
+    for (TimeseriesMetadata timeseriesMetadata : timeseriesMetadataMap) {
+      int listStart = (int) (timeseriesMetadata.getOffsetOfChunkMetaDataList() - start);
+      buffer.limit(listStart + timeseriesMetadata.getDataSizeOfChunkMetaDataList());
+      buffer.position(listStart);
+      while (buffer.hasRemaining()) {
+        ChunkMetadata chunkMetadata = ChunkMetadata.deserializeFrom(buffer);
+        seriesMetadata.computeIfAbsent(chunkMetadata.getMeasurementUid(), key -> new ArrayList<>())
+            .add(chunkMetadata);
+      }
     }
 
     // set version in ChunkMetadata
@@ -691,6 +701,18 @@ public class TsFileSequenceReader implements AutoCloseable {
     return ChunkHeader.deserializeFrom(tsFileInput.wrapAsInputStream(), true);
   }
 
+  /**
+   * read data from current position of the input whose marker has been read, and deserialize it
+   * to a CHUNK_HEADER. <br> This method is not threadsafe.
+   *
+   * @param chunkType the marker that has been read
+   * @return a CHUNK_HEADER
+   * @throws IOException io error
+   */
+  public ChunkHeader readChunkHeader(byte chunkType) throws IOException {
+    return ChunkHeader.deserializeFrom(tsFileInput.wrapAsInputStream(), chunkType);
+  }
+
   /**
    * read the chunk's header.
    *
@@ -725,7 +747,69 @@ public class TsFileSequenceReader implements AutoCloseable {
     ChunkHeader header = readChunkHeader(metaData.getOffsetOfChunkHeader(), chunkHeadSize, false);
     ByteBuffer buffer = readChunk(metaData.getOffsetOfChunkHeader() + header.getSerializedSize(),
         header.getDataSize());
-    return new Chunk(header, buffer, metaData.getDeleteIntervalList());
+    return constructChunk(header, buffer, metaData, new HashMap<>());
+  }
+
+  /**
+   * a value chunk of an aligned device starts with the offset of its time chunk, which is read
+   * and attached to the chunk.
+   *
+   * @param timeChunks the time chunks that have been read by their offsets, so that the value
+   *                   chunks of the same device share one time chunk
+   */
+  private Chunk constructChunk(ChunkHeader header, ByteBuffer buffer, ChunkMetadata metaData,
+      Map<Long, Chunk> timeChunks) throws IOException {
+    if (!header.isValueChunk()) {
+      return new Chunk(header, buffer, metaData.getDeleteIntervalList());
+    }
+    long timeChunkOffset = buffer.getLong();
+    Chunk timeChunk = timeChunks.get(timeChunkOffset);
+    if (timeChunk == null) {
+      ChunkHeader timeChunkHeader = readChunkHeader(timeChunkOffset,
+          ChunkHeader.getSerializedSize(MeasurementSchema.TIME_SCHEMA.getMeasurementId()), false);
+      ByteBuffer timeChunkBuffer = readChunk(
+          timeChunkOffset + timeChunkHeader.getSerializedSize(), timeChunkHeader.getDataSize());
+      timeChunk = new Chunk(timeChunkHeader, timeChunkBuffer, null);
+      timeChunks.put(timeChunkOffset, timeChunk);
+    }
+    return new Chunk(header, buffer.slice(), metaData.getDeleteIntervalList(), timeChunk);
+  }
+
+  /**
+   * read memory chunks of this file with one read. The chunks are read as a whole range from the
+   * header of the first chunk to the end of the last chunk, so the caller should make sure that
+   * the chunks are close to each other in the file, otherwise the data between them is read in
+   * vain.
+   *
+   * @param metaDataList chunk meta data sorted by the offset of chunk header
+   * @return chunks in the same order as metaDataList
+   */
+  public List<Chunk> readMemChunks(List<ChunkMetadata> metaDataList) throws IOException {
+    if (metaDataList.size() == 1) {
+      return Collections.singletonList(readMemChunk(metaDataList.get(0)));
+    }
+    ChunkMetadata lastMetaData = metaDataList.get(metaDataList.size() - 1);
+    ChunkHeader lastHeader = readChunkHeader(lastMetaData.getOffsetOfChunkHeader(),
+        ChunkHeader.getSerializedSize(lastMetaData.getMeasurementUid()), false);
+    long startOffset = metaDataList.get(0).getOffsetOfChunkHeader();
+    long endOffset = lastMetaData.getOffsetOfChunkHeader() + lastHeader.getSerializedSize()
+        + lastHeader.getDataSize();
+    ByteBuffer buffer = readData(startOffset, endOffset);
+
+    List<Chunk> chunks = new ArrayList<>(metaDataList.size());
+    Map<Long, Chunk> timeChunks = new HashMap<>();
+    for (ChunkMetadata metaData : metaDataList) {
+      buffer.position((int) (metaData.getOffsetOfChunkHeader() - startOffset));
+      ChunkHeader header = ChunkHeader.deserializeFrom(buffer);
+      // copy the data so that a cached chunk does not retain the whole range
+      ByteBuffer chunkBuffer = ByteBuffer.allocate(header.getDataSize());
+      buffer.limit(buffer.position() + header.getDataSize());
+      chunkBuffer.put(buffer);
+      chunkBuffer.flip();
+      buffer.limit(buffer.capacity());
+      chunks.add(constructChunk(header, chunkBuffer, metaData, timeChunks));
+    }
+    return chunks;
   }
 
   /**
@@ -931,7 +1015,17 @@ public class TsFileSequenceReader implements AutoCloseable {
     try {
       while ((marker = this.readMarker()) != MetaMarker.SEPARATOR) {
         switch (marker) {
+          case MetaMarker.TIME_CHUNK_HEADER:
+            if (newChunkGroup) {
+              newChunkGroup = false;
+              chunkMetadataList = new ArrayList<>();
+            }
+            // the time chunk has no ChunkMetadata, it is read through the value chunks
+            ChunkHeader timeChunkHeader = this.readChunkHeader(marker);
+            this.position(this.position() + timeChunkHeader.getDataSize());
+            break;
           case MetaMarker.CHUNK_HEADER:
+          case MetaMarker.VALUE_CHUNK_HEADER:
             // this is the first chunk of a new ChunkGroup.
             if (newChunkGroup) {
               newChunkGroup = false;
@@ -941,7 +1035,11 @@ public class TsFileSequenceReader implements AutoCloseable {
             // if there is something wrong with a chunk, we will drop the whole ChunkGroup
             // as different chunks may be created by the same insertions(sqls), and partial
             // insertion is not tolerable
-            ChunkHeader chunkHeader = this.readChunkHeader();
+            ChunkHeader chunkHeader = this.readChunkHeader(marker);
+            if (chunkHeader.isValueChunk()) {
+              // skip the offset of the time chunk
+              this.position(this.position() + Long.BYTES);
+            }
             measurementID = chunkHeader.getMeasurementID();
             MeasurementSchema measurementSchema = new MeasurementSchema(measurementID,
                 chunkHeader.getDataType(),
@@ -952,7 +1050,10 @@ public class TsFileSequenceReader implements AutoCloseable {
             for (int j = 0; j < chunkHeader.getNumOfPages(); j++) {
               // a new Page
               PageHeader pageHeader = this.readPageHeader(chunkHeader.getDataType());
-              chunkStatistics.mergeStatistics(pageHeader.getStatistics());
+              // a page of a value chunk is empty if all the values of its rows are null
+              if (pageHeader.getNumOfValues() > 0) {
+                chunkStatistics.mergeStatistics(pageHeader.getStatistics());
+              }
               this.skipPageData(pageHeader);
             }
             currentChunk = new ChunkMetadata(measurementID, dataType, fileOffsetOfChunk,
@@ -1046,6 +1147,43 @@ public class TsFileSequenceReader implements AutoCloseable {
     return chunkMetadataList;
   }
 
+  /**
+   * get the ChunkMetaDatas in given TimeseriesMetaData that may satisfy the time filter. If the
+   * series has a ChunkMetadataIndex, only the groups of ChunkMetadata overlapping the time range of
+   * the filter are read, otherwise the whole list is read. The result may contain ChunkMetadata
+   * that do not satisfy the filter, so the caller should still check each of them.
+   *
+   * @param timeFilter the filter of the query, only the time conditions of it are used
+   * @return List of ChunkMetaData
+   */
+  public List<ChunkMetadata> readChunkMetaDataList(TimeseriesMetadata timeseriesMetaData,
+      Filter timeFilter) throws IOException {
+    if (timeFilter == null || !timeseriesMetaData.hasChunkMetadataIndex()) {
+      return readChunkMetaDataList(timeseriesMetaData);
+    }
+    readFileMetadata();
+    List<Pair<Long, Long>> versionInfo = tsFileMetaData.getVersionInfo();
+    ArrayList<ChunkMetadata> chunkMetadataList = new ArrayList<>();
+    long startOffsetOfChunkMetadataList = timeseriesMetaData.getOffsetOfChunkMetaDataList();
+    int dataSizeOfChunkMetadataList = timeseriesMetaData.getDataSizeOfChunkMetaDataList();
+
+    ChunkMetadataIndex chunkMetadataIndex = ChunkMetadataIndex.deserializeFrom(
+        readData(startOffsetOfChunkMetadataList + dataSizeOfChunkMetadataList,
+            timeseriesMetaData.getChunkMetadataIndexSize()));
+    for (int[] range : chunkMetadataIndex
+        .getOverlappedRanges(timeFilter, dataSizeOfChunkMetadataList)) {
+      ByteBuffer buffer = readData(startOffsetOfChunkMetadataList + range[0], range[1] - range[0]);
+      while (buffer.hasRemaining()) {
+        chunkMetadataList.add(ChunkMetadata.deserializeFrom(buffer));
+      }
+    }
+
+    VersionUtils.applyVersion(chunkMetadataList, versionInfo);
+
+    chunkMetadataList.trimToSize();
+    return chunkMetadataList;
+  }
+
   /**
    * get all measurements in this file
    *
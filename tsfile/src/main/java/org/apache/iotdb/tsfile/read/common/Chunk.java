@@ -35,13 +35,24 @@ public class Chunk implements Accountable {
    * A list of deleted intervals.
    */
   private List<TimeRange> deleteIntervalList;
+  /**
+   * the time chunk shared by the value chunks of an aligned device, null if this is not a value
+   * chunk.
+   */
+  private Chunk timeChunk;
 
   private long ramSize;
 
   public Chunk(ChunkHeader header, ByteBuffer buffer, List<TimeRange> deleteIntervalList) {
+    this(header, buffer, deleteIntervalList, null);
+  }
+
+  public Chunk(ChunkHeader header, ByteBuffer buffer, List<TimeRange> deleteIntervalList,
+      Chunk timeChunk) {
     this.chunkHeader = header;
     this.chunkData = buffer;
     this.deleteIntervalList = deleteIntervalList;
+    this.timeChunk = timeChunk;
   }
 
   public ChunkHeader getHeader() {
@@ -60,6 +71,10 @@ public class Chunk implements Accountable {
     this.deleteIntervalList = list;
   }
 
+  public Chunk getTimeChunk() {
+    return timeChunk;
+  }
+
   public void mergeChunk(Chunk chunk) {
     chunkHeader.mergeChunkHeader(chunk.chunkHeader);
     ByteBuffer newChunkData = ByteBuffer
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tsfile.read.reader.chunk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.iotdb.tsfile.compress.IUnCompressor;
+import org.apache.iotdb.tsfile.encoding.decoder.Decoder;
+import org.apache.iotdb.tsfile.file.header.ChunkHeader;
+import org.apache.iotdb.tsfile.file.header.PageHeader;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.common.BatchData;
+import org.apache.iotdb.tsfile.read.common.BatchDataFactory;
+import org.apache.iotdb.tsfile.read.common.Chunk;
+import org.apache.iotdb.tsfile.read.filter.basic.Filter;
+import org.apache.iotdb.tsfile.read.reader.page.PageReader;
+
+/**
+ * AlignedChunkReader reads several value chunks of an aligned device that share one time chunk.
+ * Every time page is decoded only once for all the value chunks, and the data of a page is
+ * returned as one BatchData per value chunk, in the order of the value chunks.
+ */
+public class AlignedChunkReader {
+
+  private Chunk timeChunk;
+  private List<Chunk> valueChunks;
+  private Filter filter;
+
+  private ByteBuffer timeChunkDataBuffer;
+  private List<ByteBuffer> valueChunkDataBuffers = new ArrayList<>();
+  private IUnCompressor timeUnCompressor;
+  private Decoder timeDecoder;
+
+  private List<BatchData> nextPageData;
+
+  /**
+   * @param valueChunks the value chunks of the same chunk group, which are read by {@code
+   * TsFileSequenceReader.readMemChunks()} so that they share the time chunk
+   * @param filter filter applied to the time and to the values of every value chunk
+   */
+  public AlignedChunkReader(List<Chunk> valueChunks, Filter filter) throws IOException {
+    this.timeChunk = valueChunks.get(0).getTimeChunk();
+    if (timeChunk == null) {
+      throw new IOException(
+          valueChunks.get(0).getHeader().getMeasurementID() + " is not a value chunk");
+    }
+    for (Chunk valueChunk : valueChunks) {
+      if (valueChunk.getHeader().getNumOfPages() != timeChunk.getHeader().getNumOfPages()) {
+        throw new IOException(valueChunk.getHeader().getMeasurementID()
+            + " is not aligned with the time chunk");
+      }
+      valueChunkDataBuffers.add(valueChunk.getData().duplicate());
+    }
+    this.valueChunks = valueChunks;
+    this.filter = filter;
+
+    ChunkHeader timeChunkHeader = timeChunk.getHeader();
+    this.timeChunkDataBuffer = timeChunk.getData().duplicate();
+    this.timeUnCompressor = IUnCompressor.getUnCompressor(timeChunkHeader.getCompressionType());
+    this.timeDecoder = Decoder
+        .getDecoderByType(timeChunkHeader.getEncodingType(), TSDataType.INT64);
+  }
+
+  public boolean hasNextSatisfiedPage() throws IOException {
+    while (nextPageData == null && timeChunkDataBuffer.hasRemaining()) {
+      PageHeader timePageHeader = PageHeader.deserializeFrom(timeChunkDataBuffer, TSDataType.INT64);
+      if (filter != null && !filter
+          .satisfyStartEndTime(timePageHeader.getStartTime(), timePageHeader.getEndTime())) {
+        skip(timeChunkDataBuffer, timePageHeader);
+        for (int i = 0; i < valueChunks.size(); i++) {
+          skip(valueChunkDataBuffers.get(i), PageHeader.deserializeFrom(
+              valueChunkDataBuffers.get(i), valueChunks.get(i).getHeader().getDataType()));
+        }
+        continue;
+      }
+
+      long[] timeData = readTimePage(timePageHeader, timeChunkDataBuffer, timeUnCompressor,
+          timeDecoder);
+      nextPageData = new ArrayList<>(valueChunks.size());
+      for (int i = 0; i < valueChunks.size(); i++) {
+        nextPageData.add(readValuePage(valueChunks.get(i), valueChunkDataBuffers.get(i), timeData));
+      }
+    }
+    return nextPageData != null;
+  }
+
+  /**
+   * @return the data of the next page of every value chunk, the data of a value chunk is empty if
+   * none of its values in the page are satisfied
+   */
+  public List<BatchData> nextPageData() throws IOException {
+    if (!hasNextSatisfiedPage()) {
+      throw new IOException("No more page");
+    }
+    List<BatchData> pageData = nextPageData;
+    nextPageData = null;
+    return pageData;
+  }
+
+  private BatchData readValuePage(Chunk valueChunk, ByteBuffer valueChunkDataBuffer,
+      long[] timeData) throws IOException {
+    ChunkHeader header = valueChunk.getHeader();
+    PageHeader pageHeader = PageHeader.deserializeFrom(valueChunkDataBuffer, header.getDataType());
+    if (pageHeader.getNumOfValues() == 0 || (filter != null && !filter
+        .satisfy(pageHeader.getStatistics()))) {
+      skip(valueChunkDataBuffer, pageHeader);
+      return BatchDataFactory.createBatchData(header.getDataType());
+    }
+    ByteBuffer pageData = uncompress(pageHeader, valueChunkDataBuffer,
+        IUnCompressor.getUnCompressor(header.getCompressionType()));
+    PageReader pageReader = new PageReader(pageHeader, timeData, pageData, header.getDataType(),
+        Decoder.getDecoderByType(header.getEncodingType(), header.getDataType()), filter);
+    pageReader.setDeleteIntervalList(valueChunk.getDeleteIntervalList());
+    return pageReader.getAllSatisfiedPageData();
+  }
+
+  /**
+   * read the body of a time page from the time chunk and decode all the timestamps of it.
+   */
+  static long[] readTimePage(PageHeader timePageHeader, ByteBuffer timeChunkDataBuffer,
+      IUnCompressor unCompressor, Decoder timeDecoder) throws IOException {
+    ByteBuffer pageData = uncompress(timePageHeader, timeChunkDataBuffer, unCompressor);
+    long[] timeData = new long[(int) timePageHeader.getNumOfValues()];
+    timeDecoder.reset();
+    for (int i = 0; i < timeData.length; i++) {
+      timeData[i] = timeDecoder.readLong(pageData);
+    }
+    return timeData;
+  }
+
+  private static ByteBuffer uncompress(PageHeader pageHeader, ByteBuffer chunkDataBuffer,
+      IUnCompressor unCompressor) throws IOException {
+    int compressedPageBodyLength = pageHeader.getCompressedSize();
+    if (compressedPageBodyLength > chunkDataBuffer.remaining()) {
+      throw new IOException("do not has a complete page body. Expected:" + compressedPageBodyLength
+          + ". Actual:" + chunkDataBuffer.remaining());
+    }
+    byte[] compressedPageBody = new byte[compressedPageBodyLength];
+    chunkDataBuffer.get(compressedPageBody);
+    byte[] uncompressedPageData = new byte[pageHeader.getUncompressedSize()];
+    unCompressor.uncompress(compressedPageBody, 0, compressedPageBodyLength,
+        uncompressedPageData, 0);
+    return ByteBuffer.wrap(uncompressedPageData);
+  }
+
+  private static void skip(ByteBuffer chunkDataBuffer, PageHeader pageHeader) {
+    chunkDataBuffer.position(chunkDataBuffer.position() + pageHeader.getCompressedSize());
+  }
+}
@@ -55,6 +55,11 @@ public class ChunkReader implements IChunkReader {
   
   private boolean isFromOldTsFile = false;
 
+  /**
+   * the time chunk shared by the value chunk of an aligned device, null for other chunks.
+   */
+  private Chunk timeChunk;
+
   /**
    * A list of deleted intervals.
    */
@@ -72,7 +77,7 @@ public class ChunkReader implements IChunkReader {
     this.deleteIntervalList = chunk.getDeleteIntervalList();
     chunkHeader = chunk.getHeader();
     this.unCompressor = IUnCompressor.getUnCompressor(chunkHeader.getCompressionType());
-
+    this.timeChunk = chunk.getTimeChunk();
 
     initAllPageReaders();
   }
@@ -89,6 +94,10 @@ public class ChunkReader implements IChunkReader {
   }
 
   private void initAllPageReaders() throws IOException {
+    if (timeChunk != null) {
+      initAllAlignedPageReaders();
+      return;
+    }
     // construct next satisfied page header
     while (chunkDataBuffer.remaining() > 0) {
       // deserialize a PageHeader from chunkDataBuffer
@@ -105,6 +114,38 @@ public class ChunkReader implements IChunkReader {
 
 
 
+  /**
+   * the pages of a value chunk are aligned with the pages of its time chunk, so they are read in
+   * pairs, and a time page is decoded only if its value page is read.
+   */
+  private void initAllAlignedPageReaders() throws IOException {
+    ByteBuffer timeChunkDataBuffer = timeChunk.getData().duplicate();
+    ChunkHeader timeChunkHeader = timeChunk.getHeader();
+    IUnCompressor timeUnCompressor = IUnCompressor
+        .getUnCompressor(timeChunkHeader.getCompressionType());
+    Decoder alignedTimeDecoder = Decoder
+        .getDecoderByType(timeChunkHeader.getEncodingType(), TSDataType.INT64);
+    while (chunkDataBuffer.remaining() > 0) {
+      PageHeader timePageHeader = PageHeader.deserializeFrom(timeChunkDataBuffer, TSDataType.INT64);
+      PageHeader pageHeader = PageHeader.deserializeFrom(chunkDataBuffer, chunkHeader.getDataType());
+      // the value page is empty if all the values of its rows are null
+      if (pageHeader.getNumOfValues() > 0 && pageSatisfied(pageHeader)) {
+        long[] timeData = AlignedChunkReader.readTimePage(timePageHeader, timeChunkDataBuffer,
+            timeUnCompressor, alignedTimeDecoder);
+        PageReader reader = new PageReader(pageHeader, timeData, readPageData(pageHeader),
+            chunkHeader.getDataType(),
+            Decoder.getDecoderByType(chunkHeader.getEncodingType(), chunkHeader.getDataType()),
+            filter);
+        reader.setDeleteIntervalList(deleteIntervalList);
+        pageReaderList.add(reader);
+      } else {
+        timeChunkDataBuffer
+            .position(timeChunkDataBuffer.position() + timePageHeader.getCompressedSize());
+        skipBytesInStreamByLength(pageHeader.getCompressedSize());
+      }
+    }
+  }
+
   /**
    * judge if has next page whose page header satisfies the filter.
    */
@@ -147,6 +188,19 @@ public class ChunkReader implements IChunkReader {
 
   private PageReader constructPageReaderForNextPage(PageHeader pageHeader)
       throws IOException {
+    ByteBuffer pageData = readPageData(pageHeader);
+    Decoder valueDecoder = Decoder
+            .getDecoderByType(chunkHeader.getEncodingType(), chunkHeader.getDataType());
+    PageReader reader = new PageReader(pageHeader, pageData, chunkHeader.getDataType(),
+        valueDecoder, timeDecoder, filter);
+    reader.setDeleteIntervalList(deleteIntervalList);
+    return reader;
+  }
+
+  /**
+   * read the body of the page from chunkDataBuffer and uncompress it.
+   */
+  private ByteBuffer readPageData(PageHeader pageHeader) throws IOException {
     int compressedPageBodyLength = pageHeader.getCompressedSize();
     byte[] compressedPageBody = new byte[compressedPageBodyLength];
 
@@ -157,16 +211,10 @@ public class ChunkReader implements IChunkReader {
     }
 
     chunkDataBuffer.get(compressedPageBody);
-    Decoder valueDecoder = Decoder
-            .getDecoderByType(chunkHeader.getEncodingType(), chunkHeader.getDataType());
     byte[] uncompressedPageData = new byte[pageHeader.getUncompressedSize()];
     unCompressor.uncompress(compressedPageBody,0, compressedPageBodyLength,
         uncompressedPageData, 0);
-    ByteBuffer pageData = ByteBuffer.wrap(uncompressedPageData);
-    PageReader reader = new PageReader(pageHeader, pageData, chunkHeader.getDataType(),
-        valueDecoder, timeDecoder, filter);
-    reader.setDeleteIntervalList(deleteIntervalList);
-    return reader;
+    return ByteBuffer.wrap(uncompressedPageData);
   }
 
   @Override
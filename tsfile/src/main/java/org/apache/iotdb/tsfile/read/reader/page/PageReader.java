@@ -20,6 +20,7 @@ package org.apache.iotdb.tsfile.read.reader.page;
 
 import java.util.List;
 import org.apache.iotdb.tsfile.encoding.decoder.Decoder;
+import org.apache.iotdb.tsfile.encoding.decoder.DictionaryDecoder;
 import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
 import org.apache.iotdb.tsfile.file.header.PageHeader;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
@@ -28,7 +29,12 @@ import org.apache.iotdb.tsfile.read.common.BatchData;
 import org.apache.iotdb.tsfile.read.common.BatchDataFactory;
 import org.apache.iotdb.tsfile.read.common.TimeRange;
 import org.apache.iotdb.tsfile.read.reader.IPageReader;
+import org.apache.iotdb.tsfile.read.filter.ValueFilter.ValueIn;
+import org.apache.iotdb.tsfile.read.filter.basic.BinaryFilter;
 import org.apache.iotdb.tsfile.read.filter.basic.Filter;
+import org.apache.iotdb.tsfile.read.filter.basic.UnaryFilter;
+import org.apache.iotdb.tsfile.read.filter.factory.FilterType;
+import org.apache.iotdb.tsfile.read.filter.operator.NotFilter;
 import org.apache.iotdb.tsfile.utils.Binary;
 import org.apache.iotdb.tsfile.utils.ReadWriteForEncodingUtils;
 
@@ -61,6 +67,17 @@ public class PageReader implements IPageReader {
    */
   private ByteBuffer valueBuffer;
 
+  /**
+   * the decoded time column shared by the value pages of an aligned device, null if the time
+   * column is in timeBuffer
+   */
+  private long[] timeData;
+
+  /**
+   * the rows of an aligned page whose values are not null
+   */
+  private byte[] bitmap;
+
   private Filter filter;
 
   /**
@@ -85,6 +102,24 @@ public class PageReader implements IPageReader {
     splitDataToTimeStampAndValue(pageData);
   }
 
+  /**
+   * construct a reader of a value page of an aligned device.
+   *
+   * @param timeData the decoded time page that the value page is aligned with
+   * @param pageData uncompressed bitmap of the rows whose values are not null, value column
+   */
+  public PageReader(PageHeader pageHeader, long[] timeData, ByteBuffer pageData,
+      TSDataType dataType, Decoder valueDecoder, Filter filter) {
+    this.dataType = dataType;
+    this.valueDecoder = valueDecoder;
+    this.filter = filter;
+    this.pageHeader = pageHeader;
+    this.timeData = timeData;
+    this.bitmap = new byte[(timeData.length + 7) / 8];
+    pageData.get(bitmap);
+    this.valueBuffer = pageData.slice();
+  }
+
   /**
    * split pageContent into two stream: time and value
    *
@@ -108,9 +143,22 @@ public class PageReader implements IPageReader {
   public BatchData getAllSatisfiedPageData(boolean ascending) throws IOException {
 
     BatchData pageData = BatchDataFactory.createBatchData(dataType, ascending);
+    // a value filter is evaluated once for every dictionary entry instead of every value
+    boolean dictionaryFilter = valueDecoder instanceof DictionaryDecoder && isValueFilter(filter);
 
-    while (timeDecoder.hasNext(timeBuffer)) {
-      long timestamp = timeDecoder.readLong(timeBuffer);
+    int row = 0;
+    while (timeData != null ? row < timeData.length : timeDecoder.hasNext(timeBuffer)) {
+      long timestamp;
+      if (timeData != null) {
+        timestamp = timeData[row];
+        boolean isNull = (bitmap[row >>> 3] & (1 << (row & 7))) == 0;
+        row++;
+        if (isNull) {
+          continue;
+        }
+      } else {
+        timestamp = timeDecoder.readLong(timeBuffer);
+      }
       switch (dataType) {
         case BOOLEAN:
           boolean aBoolean = valueDecoder.readBoolean(valueBuffer);
@@ -144,7 +192,9 @@ public class PageReader implements IPageReader {
           break;
         case TEXT:
           Binary aBinary = valueDecoder.readBinary(valueBuffer);
-          if (!isDeleted(timestamp) && (filter == null || filter.satisfy(timestamp, aBinary))) {
+          if (!isDeleted(timestamp) && (filter == null || (dictionaryFilter
+              ? ((DictionaryDecoder) valueDecoder).satisfy(filter, timestamp, aBinary)
+              : filter.satisfy(timestamp, aBinary)))) {
             pageData.putBinary(timestamp, aBinary);
           }
           break;
@@ -178,6 +228,20 @@ public class PageReader implements IPageReader {
     return pageHeader.isModified();
   }
 
+  private static boolean isValueFilter(Filter filter) {
+    if (filter instanceof UnaryFilter) {
+      return ((UnaryFilter<?>) filter).getFilterType() == FilterType.VALUE_FILTER;
+    } else if (filter instanceof ValueIn) {
+      return true;
+    } else if (filter instanceof NotFilter) {
+      return isValueFilter(((NotFilter) filter).getFilter());
+    } else if (filter instanceof BinaryFilter) {
+      return isValueFilter(((BinaryFilter) filter).getLeft())
+          && isValueFilter(((BinaryFilter) filter).getRight());
+    }
+    return false;
+  }
+
   private boolean isDeleted(long timestamp) {
     while (deleteIntervalList != null && deleteCursor < deleteIntervalList.size()) {
       if (deleteIntervalList.get(deleteCursor).contains(timestamp)) {
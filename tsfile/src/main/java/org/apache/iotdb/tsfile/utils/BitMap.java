@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tsfile.utils;
+
+import java.util.Arrays;
+
+/**
+ * A fixed size bitmap, bit i is stored as bit (i % 8) of byte (i / 8). It is used to mark the
+ * null values of a column, e.g., a column of a Tablet.
+ */
+public class BitMap {
+
+  private static final byte[] BIT_UTIL = new byte[]{1, 2, 4, 8, 16, 32, 64, -128};
+  private static final byte[] UNMARK_BIT_UTIL = new byte[]{
+      (byte) 0XFE, (byte) 0XFD, (byte) 0XFB, (byte) 0XF7,
+      (byte) 0XEF, (byte) 0XDF, (byte) 0XBF, (byte) 0X7F};
+
+  private byte[] bits;
+  private int size;
+
+  /**
+   * @param size the number of bits, all of them are unmarked
+   */
+  public BitMap(int size) {
+    this.size = size;
+    bits = new byte[getSizeOfBytes(size)];
+  }
+
+  /**
+   * @param size the number of bits
+   * @param bits the bytes of the bitmap, whose length must be at least getSizeOfBytes(size)
+   */
+  public BitMap(int size, byte[] bits) {
+    this.size = size;
+    this.bits = bits;
+  }
+
+  /**
+   * @return the number of bytes needed by a bitmap of the given number of bits
+   */
+  public static int getSizeOfBytes(int size) {
+    return (size + 7) / 8;
+  }
+
+  public byte[] getByteArray() {
+    return bits;
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  public boolean isMarked(int position) {
+    return (bits[position >>> 3] & BIT_UTIL[position & 7]) != 0;
+  }
+
+  public void mark(int position) {
+    bits[position >>> 3] |= BIT_UTIL[position & 7];
+  }
+
+  public void unmark(int position) {
+    bits[position >>> 3] &= UNMARK_BIT_UTIL[position & 7];
+  }
+
+  /**
+   * unmark all the bits.
+   */
+  public void reset() {
+    Arrays.fill(bits, (byte) 0);
+  }
+
+  public boolean isAllUnmarked() {
+    for (int i = 0; i < getSizeOfBytes(size); i++) {
+      if (bits[i] != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return whether all the bits in [start, end) are unmarked
+   */
+  public boolean isAllUnmarked(int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (isMarked(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return whether all the bits in [start, end) are marked
+   */
+  public boolean isAllMarked(int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (!isMarked(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return a new bitmap of the bits in [start, end)
+   */
+  public BitMap getRegion(int start, int end) {
+    BitMap region = new BitMap(end - start);
+    if ((start & 7) == 0) {
+      System.arraycopy(bits, start >>> 3, region.bits, 0, region.bits.length);
+      // clear the bits after end that are copied with the last byte
+      for (int i = end - start; i < region.bits.length << 3; i++) {
+        region.unmark(i);
+      }
+      return region;
+    }
+    for (int i = start; i < end; i++) {
+      if (isMarked(i)) {
+        region.mark(i - start);
+      }
+    }
+    return region;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof BitMap)) {
+      return false;
+    }
+    BitMap that = (BitMap) o;
+    if (size != that.size) {
+      return false;
+    }
+    for (int i = 0; i < size; i++) {
+      if (isMarked(i) != that.isMarked(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    int result = size;
+    for (int i = 0; i < size; i++) {
+      result = 31 * result + (isMarked(i) ? 1 : 0);
+    }
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder(size);
+    for (int i = 0; i < size; i++) {
+      builder.append(isMarked(i) ? '1' : '0');
+    }
+    return builder.toString();
+  }
+}
@@ -18,17 +18,45 @@
  */
 package org.apache.iotdb.tsfile.utils;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.BitSet;
 
 import org.apache.iotdb.tsfile.common.conf.TSFileConfig;
 
+/**
+ * BloomFilter of the paths in a TsFile.
+ * <p>
+ * The bits of a filter are split into blocks of 512 bits, i.e., a cache line, and all the bits of
+ * a value are set in the one block chosen by its hash, so a lookup touches only one cache line.
+ * The bits are derived from one 64-bit hash of the value by double hashing, so the hash can be
+ * computed once by {@link #hash(String)} and used to check the filters of many files.
+ * <p>
+ * Filters written by older versions spread the bits of a value over the whole filter, with one
+ * hash of the value per hash function. They are still read and checked in that way.
+ */
 public class BloomFilter {
 
   private static final int MINIMAL_SIZE = 256;
   private static final int MAXIMAL_HASH_FUNCTION_SIZE = 8;
   private static final int[] SEEDS = new int[]{5, 7, 11, 19, 31, 37, 43, 59};
+
+  /**
+   * set in the serialized hash function size of a blocked filter, so that older versions fail to
+   * read the filter instead of checking it in the old layout.
+   */
+  private static final int BLOCKED_LAYOUT_FLAG = Integer.MIN_VALUE;
+  private static final int BLOCK_SIZE_IN_BITS = 512;
+  private static final int LONGS_PER_BLOCK = BLOCK_SIZE_IN_BITS / Long.SIZE;
+
   private int size;
   private int hashFunctionSize;
+
+  // bits of a blocked filter, block i is in [i * LONGS_PER_BLOCK, (i + 1) * LONGS_PER_BLOCK)
+  private long[] blocks;
+  private int numOfBlocks;
+
+  // bits and hash functions of a filter in the old layout
   private BitSet bits;
   private HashFunction[] func;
 
@@ -44,15 +72,11 @@ public class BloomFilter {
     bits = BitSet.valueOf(bytes);
   }
 
-  private BloomFilter(int size, int hashFunctionSize) {
-    this.size = size;
+  private BloomFilter(long[] blocks, int hashFunctionSize) {
+    this.blocks = blocks;
+    this.numOfBlocks = blocks.length / LONGS_PER_BLOCK;
+    this.size = numOfBlocks * BLOCK_SIZE_IN_BITS;
     this.hashFunctionSize = hashFunctionSize;
-    func = new HashFunction[hashFunctionSize];
-    for (int i = 0; i < hashFunctionSize; i++) {
-      func[i] = new HashFunction(size, SEEDS[i]);
-    }
-
-    bits = new BitSet(size);
   }
 
   /**
@@ -69,7 +93,8 @@ public class BloomFilter {
     double ln2 = Math.log(2);
     int size = (int) (-numOfString * Math.log(errorPercent) / ln2 / ln2) + 1;
     int hashFunctionSize = (int) (-Math.log(errorPercent) / ln2) + 1;
-    return new BloomFilter(Math.max(MINIMAL_SIZE, size),
+    int numOfBlocks = (Math.max(MINIMAL_SIZE, size) + BLOCK_SIZE_IN_BITS - 1) / BLOCK_SIZE_IN_BITS;
+    return new BloomFilter(new long[numOfBlocks * LONGS_PER_BLOCK],
         Math.min(MAXIMAL_HASH_FUNCTION_SIZE, hashFunctionSize));
   }
 
@@ -77,16 +102,40 @@ public class BloomFilter {
    * build bloom filter by bytes
    *
    * @param bytes bytes of bits
+   * @param hashFunctionSize the serialized hash function size, which tells the layout of the
+   * filter, see {@link #getSerializedHashFunctionSize()}
    * @return bloom filter
    */
   public static BloomFilter buildBloomFilter(byte[] bytes, int size, int hashFunctionSize) {
+    if ((hashFunctionSize & BLOCKED_LAYOUT_FLAG) != 0) {
+      long[] blocks = new long[size / Long.SIZE];
+      ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().get(blocks);
+      return new BloomFilter(blocks,
+          Math.min(MAXIMAL_HASH_FUNCTION_SIZE, hashFunctionSize & ~BLOCKED_LAYOUT_FLAG));
+    }
     return new BloomFilter(bytes, size, Math.min(MAXIMAL_HASH_FUNCTION_SIZE, hashFunctionSize));
   }
 
+  /**
+   * @return the 64-bit hash of the value used by blocked filters, which can be computed once and
+   * passed to {@link #contains(String, long)} of many filters
+   */
+  public static long hash(String value) {
+    return Murmur128Hash.hash64(value);
+  }
+
   public int getHashFunctionSize() {
     return hashFunctionSize;
   }
 
+  /**
+   * @return the hash function size to be serialized, which also tells the layout of the filter to
+   * {@link #buildBloomFilter(byte[], int, int)}
+   */
+  public int getSerializedHashFunctionSize() {
+    return blocks != null ? hashFunctionSize | BLOCKED_LAYOUT_FLAG : hashFunctionSize;
+  }
+
   public int getSize() {
     return size;
   }
@@ -96,15 +145,32 @@ public class BloomFilter {
   }
 
   public void add(String value) {
+    if (blocks != null) {
+      add(hash(value));
+      return;
+    }
     for (HashFunction f : func) {
       bits.set(f.hash(value), true);
     }
   }
 
+  private void add(long hash) {
+    int blockOffset = getBlockIndex(hash) * LONGS_PER_BLOCK;
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32) | 1;
+    for (int i = 0; i < hashFunctionSize; i++) {
+      int bit = (h1 + i * h2) & (BLOCK_SIZE_IN_BITS - 1);
+      blocks[blockOffset + (bit >>> 6)] |= 1L << bit;
+    }
+  }
+
   public boolean contains(String value) {
     if (value == null) {
       return false;
     }
+    if (blocks != null) {
+      return contains(hash(value));
+    }
     boolean ret = true;
     int index = 0;
     while (ret && index < hashFunctionSize) {
@@ -114,8 +180,42 @@ public class BloomFilter {
     return ret;
   }
 
+  /**
+   * @param value the value, only used if the filter is in the old layout
+   * @param hash the hash of the value computed by {@link #hash(String)}
+   */
+  public boolean contains(String value, long hash) {
+    return blocks != null ? contains(hash) : contains(value);
+  }
+
+  private boolean contains(long hash) {
+    int blockOffset = getBlockIndex(hash) * LONGS_PER_BLOCK;
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32) | 1;
+    for (int i = 0; i < hashFunctionSize; i++) {
+      int bit = (h1 + i * h2) & (BLOCK_SIZE_IN_BITS - 1);
+      if ((blocks[blockOffset + (bit >>> 6)] & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * map the high 32 bits of the hash to [0, numOfBlocks) without a division.
+   */
+  private int getBlockIndex(long hash) {
+    return (int) (((hash >>> 32) * numOfBlocks) >>> 32);
+  }
+
   public int getBitCount() {
     int res = 0;
+    if (blocks != null) {
+      for (long word : blocks) {
+        res += Long.bitCount(word);
+      }
+      return res;
+    }
     for (int i = 0; i < size; i++) {
       res += bits.get(i) ? 1 : 0;
     }
@@ -124,6 +224,12 @@ public class BloomFilter {
   }
 
   public byte[] serialize() {
+    if (blocks != null) {
+      ByteBuffer buffer = ByteBuffer.allocate(blocks.length * Long.BYTES)
+          .order(ByteOrder.LITTLE_ENDIAN);
+      buffer.asLongBuffer().put(blocks);
+      return buffer.array();
+    }
     return bits.toByteArray();
   }
 
@@ -141,4 +247,4 @@ public class BloomFilter {
       return Math.abs(Murmur128Hash.hash(value, seed)) % cap;
     }
   }
-}
\ No newline at end of file
+}
@@ -18,6 +18,8 @@
  */
 package org.apache.iotdb.tsfile.utils;
 
+import org.apache.iotdb.tsfile.common.conf.TSFileConfig;
+
 public class Murmur128Hash {
 
   private Murmur128Hash() {
@@ -35,6 +37,18 @@ public class Murmur128Hash {
     return (int) innerHash(value.getBytes(), 0, value.getBytes().length, seed);
   }
 
+  /**
+   * get a 64-bit hashcode of value, which is the sum of the two halves of its 128-bit hashcode. The
+   * value is encoded in UTF-8, so the hashcode does not depend on the platform.
+   *
+   * @param value value
+   * @return hashcode of value
+   */
+  public static long hash64(String value) {
+    byte[] bytes = value.getBytes(TSFileConfig.STRING_CHARSET);
+    return innerHash(bytes, 0, bytes.length, 0);
+  }
+
   /**
    * get hashcode of two values by seed
    *
@@ -23,6 +23,7 @@ import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
 import org.apache.iotdb.tsfile.exception.write.NoMeasurementException;
 import org.apache.iotdb.tsfile.exception.write.WriteProcessException;
 import org.apache.iotdb.tsfile.read.common.Path;
+import org.apache.iotdb.tsfile.write.chunk.AlignedChunkGroupWriterImpl;
 import org.apache.iotdb.tsfile.write.chunk.ChunkGroupWriterImpl;
 import org.apache.iotdb.tsfile.write.chunk.IChunkGroupWriter;
 import org.apache.iotdb.tsfile.write.record.Tablet;
@@ -38,6 +39,7 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -64,6 +66,11 @@ public class TsFileWriter implements AutoCloseable {
 
   private Map<String, IChunkGroupWriter> groupWriters = new HashMap<>();
 
+  /**
+   * the measurements of every aligned device, which share a time column.
+   */
+  private Map<String, List<MeasurementSchema>> alignedDevices = new HashMap<>();
+
   /**
    * min value of threshold of data points num check.
    **/
@@ -165,9 +172,56 @@ public class TsFileWriter implements AutoCloseable {
     if (schema.containsTimeseries(path)) {
       throw new WriteProcessException("given timeseries has exists! " + path.toString());
     }
+    if (alignedDevices.containsKey(path.getDevice())) {
+      throw new WriteProcessException(
+          "cannot add a timeseries to the aligned device " + path.getDevice());
+    }
     schema.registerTimeseries(path, measurementSchema);
   }
 
+  /**
+   * register all the measurements of an aligned device, whose measurements share one time column
+   * in the file. The measurements cannot be changed after registered.
+   *
+   * @param deviceId the device
+   * @param measurementSchemas all the measurements of the device
+   */
+  public void registerAlignedTimeseries(String deviceId, List<MeasurementSchema> measurementSchemas)
+      throws WriteProcessException {
+    if (alignedDevices.containsKey(deviceId)) {
+      throw new WriteProcessException("given aligned device has exists! " + deviceId);
+    }
+    for (MeasurementSchema measurementSchema : measurementSchemas) {
+      Path path = new Path(deviceId, measurementSchema.getMeasurementId());
+      if (schema.containsTimeseries(path)) {
+        throw new WriteProcessException("given timeseries has exists! " + path.toString());
+      }
+    }
+    for (MeasurementSchema measurementSchema : measurementSchemas) {
+      schema.registerTimeseries(new Path(deviceId, measurementSchema.getMeasurementId()),
+          measurementSchema);
+    }
+    alignedDevices.put(deviceId, measurementSchemas);
+  }
+
+  private IChunkGroupWriter getOrCreateGroupWriter(String deviceId) {
+    IChunkGroupWriter groupWriter = groupWriters.get(deviceId);
+    if (groupWriter == null) {
+      List<MeasurementSchema> alignedSchemas = alignedDevices.get(deviceId);
+      if (alignedSchemas == null) {
+        groupWriter = new ChunkGroupWriterImpl(deviceId);
+      } else {
+        groupWriter = new AlignedChunkGroupWriterImpl(deviceId);
+        // every row is written to all the measurements of an aligned device
+        for (MeasurementSchema measurementSchema : alignedSchemas) {
+          groupWriter.tryToAddSeriesWriter(measurementSchema, pageSize);
+        }
+      }
+      groupWriters.put(deviceId, groupWriter);
+    }
+    return groupWriter;
+  }
+
   /**
    * Confirm whether the record is legal. If legal, add it into this RecordWriter.
    *
@@ -176,13 +230,7 @@ public class TsFileWriter implements AutoCloseable {
    * @throws WriteProcessException exception
    */
   private boolean checkIsTimeSeriesExist(TSRecord record) throws WriteProcessException {
-    IChunkGroupWriter groupWriter;
-    if (!groupWriters.containsKey(record.deviceId)) {
-      groupWriter = new ChunkGroupWriterImpl(record.deviceId);
-      groupWriters.put(record.deviceId, groupWriter);
-    } else {
-      groupWriter = groupWriters.get(record.deviceId);
-    }
+    IChunkGroupWriter groupWriter = getOrCreateGroupWriter(record.deviceId);
 
     // add all SeriesWriter of measurements in this TSRecord to this ChunkGroupWriter
     for (DataPoint dp : record.dataPointList) {
@@ -213,13 +261,7 @@ public class TsFileWriter implements AutoCloseable {
    * @throws WriteProcessException exception
    */
   private void checkIsTimeSeriesExist(Tablet tablet) throws WriteProcessException {
-    IChunkGroupWriter groupWriter;
-    if (!groupWriters.containsKey(tablet.deviceId)) {
-      groupWriter = new ChunkGroupWriterImpl(tablet.deviceId);
-      groupWriters.put(tablet.deviceId, groupWriter);
-    } else {
-      groupWriter = groupWriters.get(tablet.deviceId);
-    }
+    IChunkGroupWriter groupWriter = getOrCreateGroupWriter(tablet.deviceId);
     String deviceId = tablet.deviceId;
 
     // add all SeriesWriter of measurements in this Tablet to this ChunkGroupWriter
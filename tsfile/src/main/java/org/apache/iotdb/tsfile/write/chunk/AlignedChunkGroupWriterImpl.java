@@ -0,0 +1,270 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tsfile.write.chunk;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
+import org.apache.iotdb.tsfile.compress.ICompressor;
+import org.apache.iotdb.tsfile.exception.write.NoMeasurementException;
+import org.apache.iotdb.tsfile.exception.write.WriteProcessException;
+import org.apache.iotdb.tsfile.file.header.PageHeader;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.statistics.Statistics;
+import org.apache.iotdb.tsfile.utils.PublicBAOS;
+import org.apache.iotdb.tsfile.write.record.Tablet;
+import org.apache.iotdb.tsfile.write.record.datapoint.DataPoint;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+import org.apache.iotdb.tsfile.write.writer.TsFileIOWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * a implementation of IChunkGroupWriter for an aligned device, whose measurements share one time
+ * column. The timestamps are written once into a time chunk, and every measurement is written
+ * into a value chunk that refers to the time chunk, with a null for every row that has no value
+ * of the measurement. The pages of all the chunks are sealed together, so the i-th page of every
+ * chunk holds the same rows.
+ */
+public class AlignedChunkGroupWriterImpl implements IChunkGroupWriter {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AlignedChunkGroupWriterImpl.class);
+
+  // initial value for valueCountInOnePageForNextCheck
+  private static final int MINIMUM_RECORD_COUNT_FOR_CHECK = 1500;
+
+  private final String deviceId;
+
+  private TimeChunkWriter timeChunkWriter = new TimeChunkWriter();
+
+  /**
+   * Map(measurementID, ValueChunkWriter), in the order the measurements are added.
+   */
+  private Map<String, ValueChunkWriter> valueChunkWriters = new LinkedHashMap<>();
+
+  private final long pageSizeThreshold;
+
+  private final int maxNumberOfPointsInPage;
+
+  private int valueCountInOnePageForNextCheck = MINIMUM_RECORD_COUNT_FOR_CHECK;
+
+  public AlignedChunkGroupWriterImpl(String deviceId) {
+    this.deviceId = deviceId;
+    this.pageSizeThreshold = TSFileDescriptor.getInstance().getConfig().getPageSizeInByte();
+    this.maxNumberOfPointsInPage = TSFileDescriptor.getInstance().getConfig()
+        .getMaxNumberOfPointsInPage();
+  }
+
+  /**
+   * all the measurements of the device should be added before any row is written, a measurement
+   * added later would not have a value chunk aligned with the rows written before.
+   */
+  @Override
+  public void tryToAddSeriesWriter(MeasurementSchema schema, int pageSizeThreshold) {
+    if (!valueChunkWriters.containsKey(schema.getMeasurementId())) {
+      if (timeChunkWriter.getPointNumber() > 0 || timeChunkWriter.getNumOfPages() > 0) {
+        throw new IllegalStateException(String.format(
+            "cannot add %s to the aligned device %s after rows are written",
+            schema.getMeasurementId(), deviceId));
+      }
+      valueChunkWriters.put(schema.getMeasurementId(), new ValueChunkWriter(schema));
+    }
+  }
+
+  @Override
+  public void write(long time, List<DataPoint> data) throws WriteProcessException, IOException {
+    Map<String, DataPoint> row = new HashMap<>();
+    for (DataPoint point : data) {
+      if (!valueChunkWriters.containsKey(point.getMeasurementId())) {
+        throw new NoMeasurementException(
+            "time " + time + ", measurement id " + point.getMeasurementId() + " not found!");
+      }
+      row.put(point.getMeasurementId(), point);
+    }
+    timeChunkWriter.write(time);
+    for (Map.Entry<String, ValueChunkWriter> entry : valueChunkWriters.entrySet()) {
+      DataPoint point = row.get(entry.getKey());
+      if (point == null) {
+        entry.getValue().writeNull();
+      } else {
+        entry.getValue().write(time, point.getValue());
+      }
+    }
+    checkPageSizeAndMayOpenANewPage();
+  }
+
+  /**
+   * write a row whose values are in the order the measurements are added, a null value is written
+   * as null.
+   */
+  public void write(long time, Object[] values) throws IOException {
+    if (values.length != valueChunkWriters.size()) {
+      throw new IllegalArgumentException(String.format(
+          "the aligned device %s has %d measurements but the row has %d values", deviceId,
+          valueChunkWriters.size(), values.length));
+    }
+    timeChunkWriter.write(time);
+    int i = 0;
+    for (ValueChunkWriter writer : valueChunkWriters.values()) {
+      if (values[i] == null) {
+        writer.writeNull();
+      } else {
+        writer.write(time, values[i]);
+      }
+      i++;
+    }
+    checkPageSizeAndMayOpenANewPage();
+  }
+
+  @Override
+  public void write(Tablet tablet) throws WriteProcessException, IOException {
+    // the column of the tablet for every value chunk, or -1 if the measurement is not in it
+    int[] columns = new int[valueChunkWriters.size()];
+    Arrays.fill(columns, -1);
+    List<String> measurementIds = new ArrayList<>(valueChunkWriters.keySet());
+    List<MeasurementSchema> timeseries = tablet.getSchemas();
+    for (int i = 0; i < timeseries.size(); i++) {
+      int index = measurementIds.indexOf(timeseries.get(i).getMeasurementId());
+      if (index < 0) {
+        throw new NoMeasurementException(
+            "measurement id" + timeseries.get(i).getMeasurementId() + " not found!");
+      }
+      columns[index] = i;
+    }
+    List<ValueChunkWriter> writers = new ArrayList<>(valueChunkWriters.values());
+    for (int row = 0; row < tablet.rowSize; row++) {
+      long time = tablet.timestamps[row];
+      timeChunkWriter.write(time);
+      for (int i = 0; i < columns.length; i++) {
+        if (columns[i] < 0 || tablet.isNull(columns[i], row)) {
+          writers.get(i).writeNull();
+        } else {
+          writers.get(i).write(time, tablet.values[columns[i]], row);
+        }
+      }
+      checkPageSizeAndMayOpenANewPage();
+    }
+  }
+
+  private void checkPageSizeAndMayOpenANewPage() throws IOException {
+    long pointNumber = timeChunkWriter.getPointNumber();
+    if (pointNumber == maxNumberOfPointsInPage) {
+      LOG.debug("current line count reaches the upper bound, write page of {}", deviceId);
+      sealAllPages();
+    } else if (pointNumber >= valueCountInOnePageForNextCheck) {
+      // a page is sealed if any chunk of the device exceeds the page size
+      long currentPageSize = timeChunkWriter.estimateMaxPageMemSize();
+      for (ValueChunkWriter writer : valueChunkWriters.values()) {
+        currentPageSize = Math.max(currentPageSize, writer.estimateMaxPageMemSize());
+      }
+      if (currentPageSize > pageSizeThreshold) {
+        LOG.debug("enough size, write page of {}, pageSizeThreshold:{}, currentPageSize:{}",
+            deviceId, pageSizeThreshold, currentPageSize);
+        sealAllPages();
+        valueCountInOnePageForNextCheck = MINIMUM_RECORD_COUNT_FOR_CHECK;
+      } else {
+        // reset the valueCountInOnePageForNextCheck for the next page
+        valueCountInOnePageForNextCheck = (int) (((float) pageSizeThreshold / currentPageSize)
+            * pointNumber);
+      }
+    }
+  }
+
+  private void sealAllPages() throws IOException {
+    timeChunkWriter.sealCurrentPage();
+    for (ValueChunkWriter writer : valueChunkWriters.values()) {
+      writer.sealCurrentPage();
+    }
+  }
+
+  @Override
+  public long flushToFileWriter(TsFileIOWriter fileWriter) throws IOException {
+    LOG.debug("start flush aligned device id:{}", deviceId);
+    // make sure all the pages have been compressed into buffers, so that we can get correct
+    // groupWriter.getCurrentChunkGroupSize().
+    sealAllPages();
+    long currentChunkGroupSize = getCurrentChunkGroupSize();
+    if (currentChunkGroupSize == 0) {
+      // all the values are null, so neither the time chunk is written
+      timeChunkWriter.reset();
+      for (ValueChunkWriter writer : valueChunkWriters.values()) {
+        writer.writeToFileWriter(fileWriter, -1);
+      }
+      return 0;
+    }
+    long timeChunkOffset = timeChunkWriter.writeToFileWriter(fileWriter);
+    for (ValueChunkWriter writer : valueChunkWriters.values()) {
+      writer.writeToFileWriter(fileWriter, timeChunkOffset);
+    }
+    return currentChunkGroupSize;
+  }
+
+  @Override
+  public long updateMaxGroupMemSize() {
+    long bufferSize = timeChunkWriter.estimateMaxSeriesMemSize();
+    for (ValueChunkWriter writer : valueChunkWriters.values()) {
+      bufferSize += writer.estimateMaxSeriesMemSize();
+    }
+    return bufferSize;
+  }
+
+  @Override
+  public long getCurrentChunkGroupSize() {
+    long size = 0;
+    for (ValueChunkWriter writer : valueChunkWriters.values()) {
+      size += writer.getCurrentChunkSize();
+    }
+    if (size == 0) {
+      return 0;
+    }
+    return timeChunkWriter.getCurrentChunkSize() + size;
+  }
+
+  @Override
+  public int getSeriesNumber() {
+    return valueChunkWriters.size();
+  }
+
+  /**
+   * compress a page and write it with its header into the page buffer of a chunk.
+   *
+   * @param pageContent the uncompressed page
+   * @param statistics the statistics of the page
+   */
+  static void writePageIntoBuff(PublicBAOS pageContent, Statistics<?> statistics,
+      ICompressor compressor, PublicBAOS pageBuffer) throws IOException {
+    int uncompressedSize = pageContent.size();
+    if (compressor.getType().equals(CompressionType.UNCOMPRESSED)) {
+      new PageHeader(uncompressedSize, uncompressedSize, statistics).serializeTo(pageBuffer);
+      pageContent.writeTo(pageBuffer);
+      return;
+    }
+    byte[] compressedBytes = new byte[compressor.getMaxBytesForCompression(uncompressedSize)];
+    int compressedSize = compressor
+        .compress(pageContent.getBuf(), 0, uncompressedSize, compressedBytes);
+    new PageHeader(uncompressedSize, compressedSize, statistics).serializeTo(pageBuffer);
+    pageBuffer.write(compressedBytes, 0, compressedSize);
+  }
+}
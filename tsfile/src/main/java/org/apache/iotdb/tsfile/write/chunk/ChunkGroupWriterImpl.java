@@ -28,6 +28,7 @@ import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
 import org.apache.iotdb.tsfile.exception.write.WriteProcessException;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.BitMap;
 import org.apache.iotdb.tsfile.write.record.Tablet;
 import org.apache.iotdb.tsfile.write.record.datapoint.DataPoint;
 import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
@@ -83,7 +84,50 @@ public class ChunkGroupWriterImpl implements IChunkGroupWriter {
       if (!chunkWriters.containsKey(measurementId)) {
         throw new NoMeasurementException("measurement id" + measurementId + " not found!");
       }
-      writeByDataType(tablet, measurementId, dataType, i);
+      if (tablet.bitMaps != null && tablet.bitMaps[i] != null && !tablet.bitMaps[i]
+          .isAllUnmarked(0, tablet.rowSize)) {
+        writeNonNullValues(tablet, measurementId, dataType, i);
+      } else {
+        writeByDataType(tablet, measurementId, dataType, i);
+      }
+    }
+  }
+
+  /**
+   * write the values of a column of the tablet one by one, skipping the null values.
+   */
+  private void writeNonNullValues(Tablet tablet, String measurementId, TSDataType dataType,
+      int index) {
+    IChunkWriter chunkWriter = chunkWriters.get(measurementId);
+    BitMap bitMap = tablet.bitMaps[index];
+    for (int row = 0; row < tablet.rowSize; row++) {
+      if (bitMap.isMarked(row)) {
+        continue;
+      }
+      long time = tablet.timestamps[row];
+      switch (dataType) {
+        case INT32:
+          chunkWriter.write(time, ((int[]) tablet.values[index])[row]);
+          break;
+        case INT64:
+          chunkWriter.write(time, ((long[]) tablet.values[index])[row]);
+          break;
+        case FLOAT:
+          chunkWriter.write(time, ((float[]) tablet.values[index])[row]);
+          break;
+        case DOUBLE:
+          chunkWriter.write(time, ((double[]) tablet.values[index])[row]);
+          break;
+        case BOOLEAN:
+          chunkWriter.write(time, ((boolean[]) tablet.values[index])[row]);
+          break;
+        case TEXT:
+          chunkWriter.write(time, ((Binary[]) tablet.values[index])[row]);
+          break;
+        default:
+          throw new UnSupportedDataTypeException(
+              String.format("Data type %s is not supported.", dataType));
+      }
     }
   }
 
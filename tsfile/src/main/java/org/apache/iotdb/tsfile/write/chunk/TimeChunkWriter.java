@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tsfile.write.chunk;
+
+import java.io.IOException;
+
+import org.apache.iotdb.tsfile.compress.ICompressor;
+import org.apache.iotdb.tsfile.encoding.encoder.Encoder;
+import org.apache.iotdb.tsfile.file.header.ChunkHeader;
+import org.apache.iotdb.tsfile.file.header.PageHeader;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.statistics.Statistics;
+import org.apache.iotdb.tsfile.utils.PublicBAOS;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+import org.apache.iotdb.tsfile.write.writer.TsFileIOWriter;
+
+/**
+ * TimeChunkWriter writes the time column shared by the value chunks of an aligned device. The page
+ * boundaries are decided by {@linkplain AlignedChunkGroupWriterImpl AlignedChunkGroupWriterImpl}
+ * so that the pages of the time chunk and the value chunks hold the same rows. A time page only
+ * contains the encoded timestamps.
+ */
+public class TimeChunkWriter {
+
+  private static final MeasurementSchema TIME_SCHEMA = MeasurementSchema.TIME_SCHEMA;
+
+  private ICompressor compressor;
+  private Encoder timeEncoder;
+  private PublicBAOS timeOut = new PublicBAOS();
+
+  /**
+   * statistic of current page, only the count, start time and end time are used.
+   */
+  private Statistics<?> pageStatistics = Statistics.getStatsByType(TSDataType.INT64);
+
+  private PublicBAOS pageBuffer = new PublicBAOS();
+  private int numOfPages;
+
+  public TimeChunkWriter() {
+    this.compressor = ICompressor.getCompressor(TIME_SCHEMA.getCompressor());
+    this.timeEncoder = TIME_SCHEMA.getTimeEncoder();
+  }
+
+  public void write(long time) {
+    timeEncoder.encode(time, timeOut);
+    pageStatistics.update(time, time);
+  }
+
+  /**
+   * @return the number of rows in the current page
+   */
+  public long getPointNumber() {
+    return pageStatistics.getCount();
+  }
+
+  public void sealCurrentPage() throws IOException {
+    if (pageStatistics.getCount() == 0) {
+      return;
+    }
+    timeEncoder.flush(timeOut);
+    AlignedChunkGroupWriterImpl.writePageIntoBuff(timeOut, pageStatistics, compressor, pageBuffer);
+    numOfPages++;
+    timeOut.reset();
+    pageStatistics = Statistics.getStatsByType(TSDataType.INT64);
+  }
+
+  /**
+   * write the header and the sealed pages of the time chunk.
+   *
+   * @return the offset of the time chunk header
+   */
+  public long writeToFileWriter(TsFileIOWriter writer) throws IOException {
+    long timeChunkOffset = writer.startFlushTimeChunk(compressor.getType(),
+        TIME_SCHEMA.getEncodingType(), pageBuffer.size(), numOfPages);
+    writer.writeBytesToStream(pageBuffer);
+    reset();
+    return timeChunkOffset;
+  }
+
+  public void reset() {
+    pageBuffer.reset();
+    numOfPages = 0;
+  }
+
+  public int getNumOfPages() {
+    return numOfPages;
+  }
+
+  public long estimateMaxPageMemSize() {
+    return timeOut.size() + timeEncoder.getMaxByteSize();
+  }
+
+  public long estimateMaxSeriesMemSize() {
+    return estimateMaxPageMemSize() + pageBuffer.size()
+        + PageHeader.calculatePageHeaderSizeWithoutStatistics()
+        + pageStatistics.getSerializedSize();
+  }
+
+  /**
+   * @return the serialized size of the chunk header and the sealed pages
+   */
+  public long getCurrentChunkSize() {
+    return ChunkHeader.getSerializedSize(TIME_SCHEMA.getMeasurementId())
+        + (long) pageBuffer.size();
+  }
+}
@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tsfile.write.chunk;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.iotdb.tsfile.compress.ICompressor;
+import org.apache.iotdb.tsfile.encoding.encoder.Encoder;
+import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
+import org.apache.iotdb.tsfile.file.header.ChunkHeader;
+import org.apache.iotdb.tsfile.file.header.PageHeader;
+import org.apache.iotdb.tsfile.file.metadata.statistics.Statistics;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.PublicBAOS;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+import org.apache.iotdb.tsfile.write.writer.TsFileIOWriter;
+
+/**
+ * ValueChunkWriter writes a value column of an aligned device. Every row of the device is written
+ * to every value column, either as a value or as a null, and a page is written as a bitmap of the
+ * rows whose values are not null followed by the encoded values. A page whose values are all null
+ * is still written, so that the pages stay aligned with the pages of the time chunk.
+ */
+public class ValueChunkWriter {
+
+  private static final int INITIAL_BITMAP_SIZE = 64;
+
+  private MeasurementSchema measurementSchema;
+  private ICompressor compressor;
+  private Encoder valueEncoder;
+  private PublicBAOS valueOut = new PublicBAOS();
+
+  /**
+   * bit i is set if the value of row i of the current page is not null.
+   */
+  private byte[] bitmap = new byte[INITIAL_BITMAP_SIZE];
+  private int rowCount;
+
+  /**
+   * statistic of current page, it only covers the values that are not null.
+   */
+  private Statistics<?> pageStatistics;
+  private Statistics<?> statistics;
+
+  private PublicBAOS pageBuffer = new PublicBAOS();
+  private int numOfPages;
+
+  public ValueChunkWriter(MeasurementSchema measurementSchema) {
+    this.measurementSchema = measurementSchema;
+    this.compressor = ICompressor.getCompressor(measurementSchema.getCompressor());
+    this.valueEncoder = measurementSchema.getValueEncoder();
+    this.pageStatistics = Statistics.getStatsByType(measurementSchema.getType());
+    this.statistics = Statistics.getStatsByType(measurementSchema.getType());
+  }
+
+  /**
+   * write the value of a row, whose type must be the data type of this column.
+   */
+  public void write(long time, Object value) {
+    switch (measurementSchema.getType()) {
+      case BOOLEAN:
+        valueEncoder.encode((boolean) value, valueOut);
+        pageStatistics.update(time, (boolean) value);
+        break;
+      case INT32:
+        valueEncoder.encode((int) value, valueOut);
+        pageStatistics.update(time, (int) value);
+        break;
+      case INT64:
+        valueEncoder.encode((long) value, valueOut);
+        pageStatistics.update(time, (long) value);
+        break;
+      case FLOAT:
+        valueEncoder.encode((float) value, valueOut);
+        pageStatistics.update(time, (float) value);
+        break;
+      case DOUBLE:
+        valueEncoder.encode((double) value, valueOut);
+        pageStatistics.update(time, (double) value);
+        break;
+      case TEXT:
+        valueEncoder.encode((Binary) value, valueOut);
+        pageStatistics.update(time, (Binary) value);
+        break;
+      default:
+        throw new UnSupportedDataTypeException(
+            String.format("Data type %s is not supported.", measurementSchema.getType()));
+    }
+    ensureBitmapCapacity();
+    bitmap[rowCount >>> 3] |= 1 << (rowCount & 7);
+    rowCount++;
+  }
+
+  /**
+   * write the value of a row in a column of a tablet.
+   *
+   * @param values the column of the tablet, an array of the data type of this column
+   * @param index the index of the row in the tablet
+   */
+  public void write(long time, Object values, int index) {
+    switch (measurementSchema.getType()) {
+      case BOOLEAN:
+        write(time, ((boolean[]) values)[index]);
+        break;
+      case INT32:
+        write(time, ((int[]) values)[index]);
+        break;
+      case INT64:
+        write(time, ((long[]) values)[index]);
+        break;
+      case FLOAT:
+        write(time, ((float[]) values)[index]);
+        break;
+      case DOUBLE:
+        write(time, ((double[]) values)[index]);
+        break;
+      case TEXT:
+        write(time, ((Binary[]) values)[index]);
+        break;
+      default:
+        throw new UnSupportedDataTypeException(
+            String.format("Data type %s is not supported.", measurementSchema.getType()));
+    }
+  }
+
+  /**
+   * write a row whose value of this column is null.
+   */
+  public void writeNull() {
+    ensureBitmapCapacity();
+    rowCount++;
+  }
+
+  private void ensureBitmapCapacity() {
+    if ((rowCount >>> 3) == bitmap.length) {
+      bitmap = Arrays.copyOf(bitmap, bitmap.length * 2);
+    }
+  }
+
+  /**
+   * seal the current page, it is called whenever the time page is sealed.
+   */
+  public void sealCurrentPage() throws IOException {
+    if (rowCount == 0) {
+      return;
+    }
+    if (pageStatistics.getCount() > 0) {
+      valueEncoder.flush(valueOut);
+    }
+    PublicBAOS pageContent = new PublicBAOS();
+    pageContent.write(bitmap, 0, (rowCount + 7) / 8);
+    valueOut.writeTo(pageContent);
+    AlignedChunkGroupWriterImpl
+        .writePageIntoBuff(pageContent, pageStatistics, compressor, pageBuffer);
+    numOfPages++;
+    if (pageStatistics.getCount() > 0) {
+      statistics.mergeStatistics(pageStatistics);
+    }
+
+    valueOut.reset();
+    Arrays.fill(bitmap, 0, (rowCount + 7) / 8, (byte) 0);
+    rowCount = 0;
+    pageStatistics = Statistics.getStatsByType(measurementSchema.getType());
+  }
+
+  /**
+   * write the header and the sealed pages of the value chunk, nothing is written if all the
+   * values of the chunk are null.
+   *
+   * @param timeChunkOffset the offset of the time chunk header
+   */
+  public void writeToFileWriter(TsFileIOWriter writer, long timeChunkOffset) throws IOException {
+    if (statistics.getCount() > 0) {
+      writer.startFlushValueChunk(measurementSchema, compressor.getType(),
+          measurementSchema.getType(), measurementSchema.getEncodingType(), statistics,
+          pageBuffer.size(), numOfPages, timeChunkOffset);
+      writer.writeBytesToStream(pageBuffer);
+      writer.endCurrentChunk();
+    }
+
+    pageBuffer.reset();
+    numOfPages = 0;
+    statistics = Statistics.getStatsByType(measurementSchema.getType());
+  }
+
+  public long estimateMaxPageMemSize() {
+    return valueOut.size() + valueEncoder.getMaxByteSize() + (rowCount + 7) / 8;
+  }
+
+  public long estimateMaxSeriesMemSize() {
+    return estimateMaxPageMemSize() + pageBuffer.size()
+        + PageHeader.calculatePageHeaderSizeWithoutStatistics()
+        + pageStatistics.getSerializedSize();
+  }
+
+  /**
+   * @return the serialized size of the chunk header, the offset of the time chunk and the sealed
+   * pages, or 0 if all the values of the chunk are null
+   */
+  public long getCurrentChunkSize() {
+    if (statistics.getCount() == 0) {
+      return 0;
+    }
+    return ChunkHeader.getSerializedSize(measurementSchema.getMeasurementId()) + Long.BYTES
+        + (long) pageBuffer.size();
+  }
+
+  public MeasurementSchema getMeasurementSchema() {
+    return measurementSchema;
+  }
+}
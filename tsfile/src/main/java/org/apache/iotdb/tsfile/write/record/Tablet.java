@@ -24,6 +24,7 @@ import java.util.Map;
 import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.BitMap;
 import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
 
 /**
@@ -34,7 +35,7 @@ import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
  * <p>
  * time, m1, m2, m3 1,  1,  2,  3 2,  1,  2,  3 3,  1,  2,  3
  * <p>
- * Notice: The tablet should not have empty cell
+ * A cell is empty if it is marked in the bitmap of its column, see {@link #bitMaps}.
  */
 public class Tablet {
 
@@ -64,6 +65,11 @@ public class Tablet {
    * each object is a primitive type array, which represents values of one measurement
    */
   public Object[] values;
+  /**
+   * each bitmap marks the rows whose values of a measurement are null, the bitmaps are null if no
+   * value of the tablet is null
+   */
+  public BitMap[] bitMaps;
   /**
    * the number of rows to include in this tablet
    */
@@ -113,9 +119,23 @@ public class Tablet {
     timestamps[rowIndex] = timestamp;
   }
 
+  /**
+   * @param value the value of the measurement in the row, or null if the row has no value of the
+   *              measurement
+   */
   public void addValue(String measurementId, int rowIndex, Object value) {
     int indexOfValue = measurementIndex.get(measurementId);
     MeasurementSchema measurementSchema = schemas.get(indexOfValue);
+    if (value == null) {
+      if (bitMaps == null) {
+        initBitMaps();
+      }
+      bitMaps[indexOfValue].mark(rowIndex);
+      return;
+    }
+    if (bitMaps != null) {
+      bitMaps[indexOfValue].unmark(rowIndex);
+    }
 
     switch (measurementSchema.getType()) {
       case TEXT: {
@@ -166,10 +186,53 @@ public class Tablet {
   }
 
   /**
-   * Reset Tablet to the default state - set the rowSize to 0
+   * create a bitmap for every measurement with no value marked as null, it is called by {@link
+   * #addValue} for the first null value, or by users who fill {@link #values} directly and mark the
+   * null values in {@link #bitMaps} by themselves.
+   */
+  public void initBitMaps() {
+    bitMaps = new BitMap[schemas.size()];
+    for (int i = 0; i < schemas.size(); i++) {
+      bitMaps[i] = new BitMap(maxRowNumber);
+    }
+  }
+
+  /**
+   * @return whether the value of the measurement at the given index of the schemas is null in the
+   * row
+   */
+  public boolean isNull(int columnIndex, int rowIndex) {
+    return bitMaps != null && bitMaps[columnIndex] != null && bitMaps[columnIndex]
+        .isMarked(rowIndex);
+  }
+
+  /**
+   * @return whether any value in the first rowSize rows is null
+   */
+  public boolean hasNullValues() {
+    if (bitMaps == null) {
+      return false;
+    }
+    for (BitMap bitMap : bitMaps) {
+      if (bitMap != null && !bitMap.isAllUnmarked(0, rowSize)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Reset Tablet to the default state - set the rowSize to 0 and unmark all the null values
    */
   public void reset() {
     rowSize = 0;
+    if (bitMaps != null) {
+      for (BitMap bitMap : bitMaps) {
+        if (bitMap != null) {
+          bitMap.reset();
+        }
+      }
+    }
   }
 
   private void createColumns() {
@@ -235,8 +298,12 @@ public class Tablet {
           break;
         case TEXT:
           valueOccupation += rowSize * 4;
-          for (Binary value : (Binary[]) values[i]) {
-            valueOccupation += value.getLength();
+          Binary[] binaries = (Binary[]) values[i];
+          for (int rowIndex = 0; rowIndex < rowSize; rowIndex++) {
+            // a null value is sent as an empty binary
+            if (binaries[rowIndex] != null && !isNull(i, rowIndex)) {
+              valueOccupation += binaries[rowIndex].getLength();
+            }
           }
           break;
         default:
@@ -246,4 +313,21 @@ public class Tablet {
     }
     return valueOccupation;
   }
+
+  /**
+   * @return total bytes of the bitmaps sent with the values, 0 if no value is null
+   */
+  public int getBitMapBytesSize() {
+    if (!hasNullValues()) {
+      return 0;
+    }
+    // a flag for every column and the bytes of the bitmap of a column having null values
+    int bitMapOccupation = schemas.size();
+    for (int i = 0; i < schemas.size(); i++) {
+      if (bitMaps[i] != null && !bitMaps[i].isAllUnmarked(0, rowSize)) {
+        bitMapOccupation += BitMap.getSizeOfBytes(rowSize);
+      }
+    }
+    return bitMapOccupation;
+  }
 }
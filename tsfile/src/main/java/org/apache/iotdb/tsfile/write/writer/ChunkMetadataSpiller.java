@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.tsfile.write.writer;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import org.apache.iotdb.tsfile.file.metadata.ChunkGroupMetadata;
+import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
+import org.apache.iotdb.tsfile.fileSystem.FSFactoryProducer;
+import org.apache.iotdb.tsfile.utils.Pair;
+import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
+
+/**
+ * ChunkMetadataSpiller moves the ChunkMetadata of a TsFileIOWriter out of memory into a temp file.
+ * Each spill writes a run of the ChunkMetadata sorted by device and measurement, the ChunkMetadata
+ * of the same series keep the order they are written. When the TsFile is ended, the runs are
+ * merged so that the ChunkMetadata of the series are read one series after another, and only the
+ * ChunkMetadata of one series are in memory at the same time.
+ */
+public class ChunkMetadataSpiller implements AutoCloseable {
+
+  private static final Comparator<Pair<String, ChunkMetadata>> SERIES_COMPARATOR =
+      Comparator.<Pair<String, ChunkMetadata>, String>comparing(p -> p.left)
+          .thenComparing(p -> p.right.getMeasurementUid());
+
+  private final File spillFile;
+  private OutputStream outputStream;
+  private long position;
+
+  /**
+   * the start offset and the number of ChunkMetadata of each run, in the order they are spilled.
+   */
+  private final List<long[]> runs = new ArrayList<>();
+
+  public ChunkMetadataSpiller(File spillFile) {
+    this.spillFile = spillFile;
+  }
+
+  /**
+   * write the ChunkMetadata of the chunk groups as a new run.
+   */
+  public void spill(List<ChunkGroupMetadata> chunkGroupMetadataList) throws IOException {
+    List<Pair<String, ChunkMetadata>> run = new ArrayList<>();
+    for (ChunkGroupMetadata chunkGroupMetadata : chunkGroupMetadataList) {
+      for (ChunkMetadata chunkMetadata : chunkGroupMetadata.getChunkMetadataList()) {
+        run.add(new Pair<>(chunkGroupMetadata.getDevice(), chunkMetadata));
+      }
+    }
+    if (run.isEmpty()) {
+      return;
+    }
+    // the sort is stable, so the chunks of a series are still in the order they are written
+    run.sort(SERIES_COMPARATOR);
+    if (outputStream == null) {
+      outputStream = TsFileIOWriter.checkOpened(
+          FSFactoryProducer.getFSFactory().getBufferedOutputStream(spillFile.getPath()), spillFile);
+    }
+    runs.add(new long[]{position, run.size()});
+    for (Pair<String, ChunkMetadata> pair : run) {
+      position += ReadWriteIOUtils.write(pair.left, outputStream);
+      position += pair.right.serializeTo(outputStream);
+    }
+  }
+
+  public boolean isEmpty() {
+    return runs.isEmpty();
+  }
+
+  /**
+   * @return an iterator over the series of all the runs, sorted by device and measurement
+   */
+  public SeriesIterator iterator() throws IOException {
+    if (outputStream != null) {
+      outputStream.flush();
+    }
+    return new SeriesIterator();
+  }
+
+  /**
+   * close the temp file and remove it.
+   */
+  @Override
+  public void close() throws IOException {
+    if (outputStream != null) {
+      outputStream.close();
+      outputStream = null;
+    }
+    Files.deleteIfExists(spillFile.toPath());
+  }
+
+  /**
+   * merges the runs, ties are broken by the order of the runs so that the ChunkMetadata of a
+   * series are returned in the order they are written.
+   */
+  public class SeriesIterator implements AutoCloseable {
+
+    private final PriorityQueue<RunReader> queue = new PriorityQueue<>(
+        Comparator.comparing((RunReader r) -> r.device)
+            .thenComparing(r -> r.current.getMeasurementUid())
+            .thenComparingInt(r -> r.index));
+
+    private final List<RunReader> readers = new ArrayList<>();
+
+    private SeriesIterator() throws IOException {
+      try {
+        for (int i = 0; i < runs.size(); i++) {
+          RunReader reader = new RunReader(i, runs.get(i)[0], runs.get(i)[1]);
+          readers.add(reader);
+          if (reader.advance()) {
+            queue.add(reader);
+          }
+        }
+      } catch (IOException | RuntimeException e) {
+        // the caller gets no iterator to close, so the runs opened so far are closed here
+        closeReaders(e);
+        throw e;
+      }
+    }
+
+    public boolean hasNext() {
+      return !queue.isEmpty();
+    }
+
+    /**
+     * @return the device and the ChunkMetadata list of the next series
+     */
+    public Pair<String, List<ChunkMetadata>> next() throws IOException {
+      RunReader head = queue.peek();
+      String device = head.device;
+      String measurement = head.current.getMeasurementUid();
+      List<ChunkMetadata> chunkMetadataList = new ArrayList<>();
+      while (!queue.isEmpty() && queue.peek().device.equals(device)
+          && queue.peek().current.getMeasurementUid().equals(measurement)) {
+        RunReader reader = queue.poll();
+        boolean hasMore;
+        do {
+          chunkMetadataList.add(reader.current);
+          hasMore = reader.advance();
+        } while (hasMore && reader.device.equals(device)
+            && reader.current.getMeasurementUid().equals(measurement));
+        if (hasMore) {
+          queue.add(reader);
+        }
+      }
+      return new Pair<>(device, chunkMetadataList);
+    }
+
+    @Override
+    public void close() throws IOException {
+      IOException e = new IOException("Failed to close the runs of " + spillFile);
+      closeReaders(e);
+      if (e.getSuppressed().length > 0) {
+        throw e;
+      }
+    }
+
+    /**
+     * close all the opened runs, the failures are added to the given exception as suppressed ones.
+     */
+    private void closeReaders(Exception e) {
+      for (RunReader reader : readers) {
+        try {
+          reader.close();
+        } catch (IOException closeException) {
+          e.addSuppressed(closeException);
+        }
+      }
+    }
+  }
+
+  private class RunReader {
+
+    private final int index;
+    private final InputStream inputStream;
+    private long remaining;
+
+    private String device;
+    private ChunkMetadata current;
+
+    private RunReader(int index, long offset, long count) throws IOException {
+      this.index = index;
+      this.remaining = count;
+      this.inputStream = TsFileIOWriter.checkOpened(
+          FSFactoryProducer.getFSFactory().getBufferedInputStream(spillFile.getPath()), spillFile);
+      long skipped = 0;
+      while (skipped < offset) {
+        long n = inputStream.skip(offset - skipped);
+        if (n <= 0) {
+          inputStream.close();
+          throw new EOFException("The run at " + offset + " is beyond the end of " + spillFile);
+        }
+        skipped += n;
+      }
+    }
+
+    /**
+     * @return false if the run is exhausted
+     */
+    private boolean advance() throws IOException {
+      if (remaining == 0) {
+        device = null;
+        current = null;
+        return false;
+      }
+      remaining--;
+      device = ReadWriteIOUtils.readString(inputStream);
+      current = ChunkMetadata.deserializeFrom(inputStream);
+      return true;
+    }
+
+    private void close() throws IOException {
+      inputStream.close();
+    }
+  }
+}
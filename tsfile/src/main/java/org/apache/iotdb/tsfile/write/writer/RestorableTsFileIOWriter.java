@@ -77,6 +77,8 @@ public class RestorableTsFileIOWriter extends TsFileIOWriter {
       logger.debug("{} is opened.", file.getName());
     }
     this.file = file;
+    // the metadata temp files of a writer that crashed are useless, as the metadata is rebuilt
+    deleteMetadataTempFiles(file);
     this.out = FSFactoryProducer.getFileOutputFactory().getTsFileOutput(file.getPath(), true);
 
     // file doesn't exist
@@ -18,8 +18,13 @@
  */
 package org.apache.iotdb.tsfile.write.writer;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -34,6 +39,7 @@ import org.apache.iotdb.tsfile.file.footer.ChunkGroupFooter;
 import org.apache.iotdb.tsfile.file.header.ChunkHeader;
 import org.apache.iotdb.tsfile.file.metadata.ChunkGroupMetadata;
 import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
+import org.apache.iotdb.tsfile.file.metadata.ChunkMetadataIndex;
 import org.apache.iotdb.tsfile.file.metadata.MetadataIndexConstructor;
 import org.apache.iotdb.tsfile.file.metadata.MetadataIndexNode;
 import org.apache.iotdb.tsfile.file.metadata.TimeseriesMetadata;
@@ -43,13 +49,20 @@ import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
 import org.apache.iotdb.tsfile.file.metadata.statistics.Statistics;
 import org.apache.iotdb.tsfile.fileSystem.FSFactoryProducer;
+import org.apache.iotdb.tsfile.fileSystem.fsFactory.FSFactory;
+import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
+import org.apache.iotdb.tsfile.read.common.BatchData;
 import org.apache.iotdb.tsfile.read.common.Chunk;
 import org.apache.iotdb.tsfile.read.common.Path;
+import org.apache.iotdb.tsfile.read.reader.chunk.ChunkReader;
+import org.apache.iotdb.tsfile.utils.BloomFilter;
 import org.apache.iotdb.tsfile.utils.BytesUtils;
 import org.apache.iotdb.tsfile.utils.Pair;
 import org.apache.iotdb.tsfile.utils.PublicBAOS;
 import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
 import org.apache.iotdb.tsfile.utils.VersionUtils;
+import org.apache.iotdb.tsfile.write.chunk.ChunkWriterImpl;
+import org.apache.iotdb.tsfile.write.chunk.IChunkWriter;
 import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -65,6 +78,17 @@ public class TsFileIOWriter {
   private static final Logger logger = LoggerFactory.getLogger(TsFileIOWriter.class);
   private static final Logger resourceLogger = LoggerFactory.getLogger("FileMonitor");
 
+  /**
+   * suffix of the temp file that the ChunkMetadata are spilled to.
+   */
+  public static final String CHUNK_METADATA_TEMP_FILE_SUFFIX = ".cmt";
+
+  /**
+   * suffix of the temp file that the TimeseriesMetadata are written to before the metadata index
+   * is constructed when the ChunkMetadata are spilled.
+   */
+  public static final String TIMESERIES_METADATA_TEMP_FILE_SUFFIX = ".tmt";
+
   static {
     magicStringBytes = BytesUtils.stringToBytes(TSFileConfig.MAGIC_STRING);
     versionNumberBytes = TSFileConfig.VERSION_NUMBER.getBytes();
@@ -91,6 +115,11 @@ public class TsFileIOWriter {
   // for upgrade tool
   Map<String, List<TimeseriesMetadata>> deviceTimeseriesMetadataMap;
 
+  // the ChunkMetadata in chunkGroupMetadataList are spilled when their number reaches this
+  private int chunkMetadataSpillThreshold;
+  private int chunkMetadataNumInMemory;
+  private ChunkMetadataSpiller chunkMetadataSpiller;
+
   /**
    * empty construct function.
    */
@@ -161,9 +190,43 @@ public class TsFileIOWriter {
     chunkGroupFooter.serializeTo(out.wrapAsStream());
     chunkGroupMetadataList
         .add(new ChunkGroupMetadata(currentChunkGroupDeviceId, chunkMetadataList));
+    chunkMetadataNumInMemory += chunkMetadataList.size();
     currentChunkGroupDeviceId = null;
     chunkMetadataList = null;
     out.flush();
+    if (chunkMetadataSpillThreshold > 0
+        && chunkMetadataNumInMemory >= chunkMetadataSpillThreshold) {
+      spillChunkMetadata();
+    }
+  }
+
+  /**
+   * Keep no more than the given number of ChunkMetadata in memory, the others are spilled to a
+   * temp file beside the TsFile, and the metadata index is constructed from the temp file when the
+   * file is ended. The ChunkMetadata that have been spilled are no longer in
+   * chunkGroupMetadataList, so it should only be enabled for a writer whose chunk metadata are not
+   * read before the file is ended, e.g., the writer of a compaction.
+   *
+   * @param threshold max number of ChunkMetadata in memory, <= 0 to never spill
+   */
+  public void enableChunkMetadataSpill(int threshold) {
+    if (file == null) {
+      throw new IllegalStateException("ChunkMetadata can only be spilled when writing a file");
+    }
+    this.chunkMetadataSpillThreshold = threshold;
+  }
+
+  private void spillChunkMetadata() throws IOException {
+    if (chunkMetadataSpiller == null) {
+      chunkMetadataSpiller = new ChunkMetadataSpiller(FSFactoryProducer.getFSFactory()
+          .getFile(file.getPath() + CHUNK_METADATA_TEMP_FILE_SUFFIX));
+    }
+    chunkMetadataSpiller.spill(chunkGroupMetadataList);
+    if (logger.isDebugEnabled()) {
+      logger.debug("{} ChunkMetadata of {} are spilled", chunkMetadataNumInMemory, file.getName());
+    }
+    chunkGroupMetadataList.clear();
+    chunkMetadataNumInMemory = 0;
   }
 
   /**
@@ -189,10 +252,63 @@ public class TsFileIOWriter {
 
   }
 
+  /**
+   * start the time chunk of an aligned device. The time chunk has no ChunkMetadata, it is found
+   * through the value chunks that refer to it, so it must be followed by its value chunks in the
+   * same chunk group.
+   *
+   * @param compressionCodecName - compression name of the time column
+   * @param encodingType - encoding of the time column
+   * @param dataSize - the serialized size of all pages
+   * @return the offset of the time chunk header
+   * @throws IOException if I/O error occurs
+   */
+  public long startFlushTimeChunk(CompressionType compressionCodecName, TSEncoding encodingType,
+      int dataSize, int numOfPages) throws IOException {
+    long timeChunkOffset = out.getPosition();
+    ChunkHeader header = new ChunkHeader(MetaMarker.TIME_CHUNK_HEADER,
+        MeasurementSchema.TIME_SCHEMA.getMeasurementId(), dataSize, TSDataType.INT64,
+        compressionCodecName, encodingType, numOfPages);
+    header.serializeTo(out.wrapAsStream());
+    return timeChunkOffset;
+  }
+
+  /**
+   * start a value chunk of an aligned device, the offset of its time chunk is written before the
+   * pages.
+   *
+   * @param measurementSchema - schema of this time series
+   * @param compressionCodecName - compression name of this time series
+   * @param tsDataType - data type
+   * @param statistics - Chunk statistics
+   * @param dataSize - the serialized size of all pages
+   * @param timeChunkOffset - the offset returned by {@code startFlushTimeChunk()}
+   * @throws IOException if I/O error occurs
+   */
+  public void startFlushValueChunk(MeasurementSchema measurementSchema,
+      CompressionType compressionCodecName, TSDataType tsDataType, TSEncoding encodingType,
+      Statistics<?> statistics, int dataSize, int numOfPages, long timeChunkOffset)
+      throws IOException {
+
+    currentChunkMetadata = new ChunkMetadata(measurementSchema.getMeasurementId(), tsDataType,
+        out.getPosition(), statistics);
+
+    ChunkHeader header = new ChunkHeader(MetaMarker.VALUE_CHUNK_HEADER,
+        measurementSchema.getMeasurementId(), Long.BYTES + dataSize, tsDataType,
+        compressionCodecName, encodingType, numOfPages);
+    header.serializeTo(out.wrapAsStream());
+    ReadWriteIOUtils.write(timeChunkOffset, out.wrapAsStream());
+  }
+
   /**
    * Write a whole chunk in another file into this file. Providing fast merge for IoTDB.
    */
   public void writeChunk(Chunk chunk, ChunkMetadata chunkMetadata) throws IOException {
+    if (chunk.getTimeChunk() != null) {
+      // the value chunk refers to the time chunk of another file, so it cannot be copied
+      writeValueChunkAsChunk(chunk);
+      return;
+    }
     ChunkHeader chunkHeader = chunk.getHeader();
     currentChunkMetadata = new ChunkMetadata(chunkHeader.getMeasurementID(),
         chunkHeader.getDataType(),
@@ -206,6 +322,48 @@ public class TsFileIOWriter {
     }
   }
 
+  /**
+   * decode a value chunk of an aligned device with its time chunk and write it as a normal chunk.
+   * Deletions are not applied, just like the chunks that are copied directly.
+   */
+  private void writeValueChunkAsChunk(Chunk chunk) throws IOException {
+    ChunkHeader chunkHeader = chunk.getHeader();
+    IChunkWriter chunkWriter = new ChunkWriterImpl(new MeasurementSchema(
+        chunkHeader.getMeasurementID(), chunkHeader.getDataType(), chunkHeader.getEncodingType(),
+        chunkHeader.getCompressionType()));
+    ChunkReader chunkReader = new ChunkReader(new Chunk(chunkHeader, chunk.getData().duplicate(),
+        null, chunk.getTimeChunk()), null);
+    while (chunkReader.hasNextSatisfiedPage()) {
+      BatchData batchData = chunkReader.nextPageData();
+      for (; batchData.hasCurrent(); batchData.next()) {
+        long time = batchData.currentTime();
+        switch (chunkHeader.getDataType()) {
+          case BOOLEAN:
+            chunkWriter.write(time, batchData.getBoolean());
+            break;
+          case INT32:
+            chunkWriter.write(time, batchData.getInt());
+            break;
+          case INT64:
+            chunkWriter.write(time, batchData.getLong());
+            break;
+          case FLOAT:
+            chunkWriter.write(time, batchData.getFloat());
+            break;
+          case DOUBLE:
+            chunkWriter.write(time, batchData.getDouble());
+            break;
+          case TEXT:
+            chunkWriter.write(time, batchData.getBinary());
+            break;
+          default:
+            throw new UnSupportedDataTypeException(chunkHeader.getDataType().toString());
+        }
+      }
+    }
+    chunkWriter.writeToFileWriter(this);
+  }
+
   /**
    * end chunk and write some log.
    */
@@ -226,16 +384,29 @@ public class TsFileIOWriter {
     // serialize the SEPARATOR of MetaData
     ReadWriteIOUtils.write(MetaMarker.SEPARATOR, out.wrapAsStream());
 
-    // group ChunkMetadata by series
-    Map<Path, List<ChunkMetadata>> chunkMetadataListMap = new TreeMap<>();
-    for (ChunkGroupMetadata chunkGroupMetadata : chunkGroupMetadataList) {
-      for (ChunkMetadata chunkMetadata : chunkGroupMetadata.getChunkMetadataList()) {
-        Path series = new Path(chunkGroupMetadata.getDevice(), chunkMetadata.getMeasurementUid());
-        chunkMetadataListMap.computeIfAbsent(series, k -> new ArrayList<>()).add(chunkMetadata);
+    MetadataIndexNode metadataIndex;
+    BloomFilter bloomFilter;
+    if (chunkMetadataSpiller == null) {
+      // group ChunkMetadata by series
+      Map<Path, List<ChunkMetadata>> chunkMetadataListMap = new TreeMap<>();
+      for (ChunkGroupMetadata chunkGroupMetadata : chunkGroupMetadataList) {
+        for (ChunkMetadata chunkMetadata : chunkGroupMetadata.getChunkMetadataList()) {
+          Path series = new Path(chunkGroupMetadata.getDevice(), chunkMetadata.getMeasurementUid());
+          chunkMetadataListMap.computeIfAbsent(series, k -> new ArrayList<>()).add(chunkMetadata);
+        }
       }
+      metadataIndex = flushMetadataIndex(chunkMetadataListMap);
+      bloomFilter = buildBloomFilter(chunkMetadataListMap.size());
+      for (Path path : chunkMetadataListMap.keySet()) {
+        bloomFilter.add(path.toString());
+      }
+    } else {
+      spillChunkMetadata();
+      Pair<MetadataIndexNode, BloomFilter> indexAndBloomFilter = flushSpilledMetadataIndex();
+      metadataIndex = indexAndBloomFilter.left;
+      bloomFilter = indexAndBloomFilter.right;
     }
 
-    MetadataIndexNode metadataIndex = flushMetadataIndex(chunkMetadataListMap);
     TsFileMetadata tsFileMetaData = new TsFileMetadata();
     tsFileMetaData.setMetadataIndex(metadataIndex);
     tsFileMetaData.setVersionInfo(versionInfo);
@@ -255,7 +426,7 @@ public class TsFileIOWriter {
     }
 
     // write bloom filter
-    size += tsFileMetaData.serializeBloomFilter(out.wrapAsStream(), chunkMetadataListMap.keySet());
+    size += tsFileMetaData.serializeBloomFilter(out.wrapAsStream(), bloomFilter);
     if (logger.isDebugEnabled()) {
       logger.debug("finish flushing the bloom filter file pos:{}", out.getPosition());
     }
@@ -287,25 +458,9 @@ public class TsFileIOWriter {
     // create device -> TimeseriesMetaDataList Map
     for (Map.Entry<Path, List<ChunkMetadata>> entry : chunkMetadataListMap.entrySet()) {
       Path path = entry.getKey();
-      String device = path.getDevice();
-
-      // create TimeseriesMetaData
-      TSDataType dataType = entry.getValue().get(entry.getValue().size() - 1).getDataType();
-      long offsetOfChunkMetadataList = out.getPosition();
-      Statistics seriesStatistics = Statistics.getStatsByType(dataType);
-
-      int chunkMetadataListLength = 0;
-      // flush chunkMetadataList one by one
-      for (ChunkMetadata chunkMetadata : entry.getValue()) {
-        if (!chunkMetadata.getDataType().equals(dataType)) {
-          continue;
-        }
-        chunkMetadataListLength += chunkMetadata.serializeTo(out.wrapAsStream());
-        seriesStatistics.mergeStatistics(chunkMetadata.getStatistics());
-      }
-      TimeseriesMetadata timeseriesMetadata = new TimeseriesMetadata(offsetOfChunkMetadataList,
-          chunkMetadataListLength, path.getMeasurement(), dataType, seriesStatistics);
-      deviceTimeseriesMetadataMap.computeIfAbsent(device, k -> new ArrayList<>())
+      TimeseriesMetadata timeseriesMetadata = flushChunkMetadataList(path.getMeasurement(),
+          entry.getValue());
+      deviceTimeseriesMetadataMap.computeIfAbsent(path.getDevice(), k -> new ArrayList<>())
           .add(timeseriesMetadata);
     }
 
@@ -313,6 +468,135 @@ public class TsFileIOWriter {
     return MetadataIndexConstructor.constructMetadataIndex(deviceTimeseriesMetadataMap, out);
   }
 
+  /**
+   * Flush the ChunkMetadataList and TimeseriesMetaData from the spilled ChunkMetadata. Only the
+   * ChunkMetadata of one series, the TimeseriesMetaData of one device and the measurement index
+   * root node of each device are in memory at the same time. The TimeseriesMetaData are written
+   * to a temp file first, as they are placed after all the ChunkMetadataList.
+   *
+   * @return MetadataIndexEntry list in TsFileMetadata and the bloom filter of all the series
+   */
+  private Pair<MetadataIndexNode, BloomFilter> flushSpilledMetadataIndex() throws IOException {
+    FSFactory fsFactory = FSFactoryProducer.getFSFactory();
+    File timeseriesMetadataFile = fsFactory
+        .getFile(file.getPath() + TIMESERIES_METADATA_TEMP_FILE_SUFFIX);
+    // device -> serialized size of its TimeseriesMetaData, in the order of the devices
+    List<Pair<String, Integer>> deviceTimeseriesMetadataSizes = new ArrayList<>();
+    int seriesNum = 0;
+    try {
+      try (OutputStream timeseriesMetadataOutput = checkOpened(
+          fsFactory.getBufferedOutputStream(timeseriesMetadataFile.getPath()),
+          timeseriesMetadataFile);
+          ChunkMetadataSpiller.SeriesIterator iterator = chunkMetadataSpiller.iterator()) {
+        while (iterator.hasNext()) {
+          Pair<String, List<ChunkMetadata>> series = iterator.next();
+          TimeseriesMetadata timeseriesMetadata = flushChunkMetadataList(
+              series.right.get(0).getMeasurementUid(), series.right);
+          int size = timeseriesMetadata.serializeTo(timeseriesMetadataOutput);
+          Pair<String, Integer> last = deviceTimeseriesMetadataSizes.isEmpty() ? null
+              : deviceTimeseriesMetadataSizes.get(deviceTimeseriesMetadataSizes.size() - 1);
+          if (last != null && last.left.equals(series.left)) {
+            last.right += size;
+          } else {
+            deviceTimeseriesMetadataSizes.add(new Pair<>(series.left, size));
+          }
+          seriesNum++;
+        }
+      }
+
+      BloomFilter bloomFilter = buildBloomFilter(seriesNum);
+      Map<String, MetadataIndexNode> deviceMetadataIndexMap = new TreeMap<>();
+      try (InputStream timeseriesMetadataInput = checkOpened(
+          fsFactory.getBufferedInputStream(timeseriesMetadataFile.getPath()),
+          timeseriesMetadataFile)) {
+        for (Pair<String, Integer> deviceSize : deviceTimeseriesMetadataSizes) {
+          ByteBuffer buffer = ByteBuffer
+              .wrap(ReadWriteIOUtils.readBytes(timeseriesMetadataInput, deviceSize.right));
+          List<TimeseriesMetadata> timeseriesMetadataList = new ArrayList<>();
+          while (buffer.hasRemaining()) {
+            TimeseriesMetadata timeseriesMetadata = TimeseriesMetadata.deserializeFrom(buffer);
+            timeseriesMetadataList.add(timeseriesMetadata);
+            bloomFilter.add(
+                new Path(deviceSize.left, timeseriesMetadata.getMeasurementId()).toString());
+          }
+          deviceMetadataIndexMap.put(deviceSize.left,
+              MetadataIndexConstructor.constructMeasurementIndex(timeseriesMetadataList, out));
+        }
+      }
+      return new Pair<>(MetadataIndexConstructor.constructDeviceIndex(deviceMetadataIndexMap, out),
+          bloomFilter);
+    } finally {
+      chunkMetadataSpiller.close();
+      chunkMetadataSpiller = null;
+      Files.deleteIfExists(timeseriesMetadataFile.toPath());
+    }
+  }
+
+  /**
+   * FSFactory returns null instead of throwing when a stream cannot be opened.
+   */
+  static <T extends Closeable> T checkOpened(T stream, File file) throws IOException {
+    if (stream == null) {
+      throw new IOException("Cannot open the temp file " + file);
+    }
+    return stream;
+  }
+
+  /**
+   * Remove the temp files of the metadata that a writer of the TsFile leaves when it crashes
+   * before the TsFile is ended.
+   */
+  public static void deleteMetadataTempFiles(File tsFile) throws IOException {
+    FSFactory fsFactory = FSFactoryProducer.getFSFactory();
+    Files.deleteIfExists(
+        fsFactory.getFile(tsFile.getPath() + CHUNK_METADATA_TEMP_FILE_SUFFIX).toPath());
+    Files.deleteIfExists(
+        fsFactory.getFile(tsFile.getPath() + TIMESERIES_METADATA_TEMP_FILE_SUFFIX).toPath());
+  }
+
+  /**
+   * Flush the ChunkMetadataList of a series, and a ChunkMetadataIndex after it if the series has
+   * many chunks.
+   *
+   * @return TimeseriesMetaData of the series
+   */
+  private TimeseriesMetadata flushChunkMetadataList(String measurement,
+      List<ChunkMetadata> chunkMetadataList) throws IOException {
+    // create TimeseriesMetaData
+    TSDataType dataType = chunkMetadataList.get(chunkMetadataList.size() - 1).getDataType();
+    long offsetOfChunkMetadataList = out.getPosition();
+    Statistics seriesStatistics = Statistics.getStatsByType(dataType);
+
+    int chunkMetadataListLength = 0;
+    List<ChunkMetadata> serializedChunkMetadata = new ArrayList<>();
+    List<Integer> serializedSizes = new ArrayList<>();
+    // flush chunkMetadataList one by one
+    for (ChunkMetadata chunkMetadata : chunkMetadataList) {
+      if (!chunkMetadata.getDataType().equals(dataType)) {
+        continue;
+      }
+      int serializedSize = chunkMetadata.serializeTo(out.wrapAsStream());
+      chunkMetadataListLength += serializedSize;
+      serializedChunkMetadata.add(chunkMetadata);
+      serializedSizes.add(serializedSize);
+      seriesStatistics.mergeStatistics(chunkMetadata.getStatistics());
+    }
+    TimeseriesMetadata timeseriesMetadata = new TimeseriesMetadata(offsetOfChunkMetadataList,
+        chunkMetadataListLength, measurement, dataType, seriesStatistics);
+    // a series with many chunks gets an index of its chunk metadata right after the list
+    ChunkMetadataIndex chunkMetadataIndex = ChunkMetadataIndex
+        .build(serializedChunkMetadata, serializedSizes);
+    if (chunkMetadataIndex != null) {
+      timeseriesMetadata
+          .setChunkMetadataIndexSize(chunkMetadataIndex.serializeTo(out.wrapAsStream()));
+    }
+    return timeseriesMetadata;
+  }
+
+  private BloomFilter buildBloomFilter(int seriesNum) {
+    return BloomFilter.getEmptyBloomFilter(config.getBloomFilterErrorRate(), seriesNum);
+  }
+
   /**
    * get the length of normal OutputStream.
    *
@@ -354,6 +638,10 @@ public class TsFileIOWriter {
   public void close() throws IOException {
     canWrite = false;
     out.close();
+    if (chunkMetadataSpiller != null) {
+      chunkMetadataSpiller.close();
+      chunkMetadataSpiller = null;
+    }
   }
 
   void writeSeparatorMaskForTest() throws IOException {
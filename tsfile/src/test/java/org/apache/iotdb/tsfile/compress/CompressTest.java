@@ -21,8 +21,10 @@ package org.apache.iotdb.tsfile.compress;
 import static org.junit.Assert.assertEquals;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
 import org.apache.iotdb.tsfile.utils.PublicBAOS;
 import org.junit.After;
 import org.junit.Before;
@@ -103,4 +105,92 @@ public class CompressTest {
     String result = new String(uncompressed, StandardCharsets.UTF_8);
     assertEquals(inputString, result);
   }
+
+  @Test
+  public void gzipCompressorTest1() throws IOException {
+    PublicBAOS out = new PublicBAOS();
+    out.write(inputString.getBytes(StandardCharsets.UTF_8));
+    ICompressor compressor = ICompressor.getCompressor(CompressionType.GZIP);
+    IUnCompressor unCompressor = IUnCompressor.getUnCompressor(CompressionType.GZIP);
+    byte[] compressed = compressor.compress(out.getBuf());
+    assertEquals(out.size(), unCompressor.getUncompressedLength(compressed, 0, compressed.length));
+    byte[] uncompressed = unCompressor.uncompress(compressed);
+    String result = new String(uncompressed, StandardCharsets.UTF_8);
+    assertEquals(inputString, result);
+  }
+
+  @Test
+  public void gzipCompressorTest2() throws IOException {
+    PublicBAOS out = new PublicBAOS();
+    out.write(inputString.getBytes(StandardCharsets.UTF_8));
+    for (int level = 1; level <= 9; level++) {
+      ICompressor compressor = new ICompressor.GZIPCompressor(level);
+      IUnCompressor unCompressor = new IUnCompressor.GZIPUnCompressor();
+      byte[] compressed = new byte[compressor.getMaxBytesForCompression(out.size())];
+      int size = compressor.compress(out.getBuf(), 0, out.size(), compressed);
+      byte[] uncompressed = new byte[out.size()];
+      assertEquals(out.size(), unCompressor.uncompress(compressed, 0, size, uncompressed, 0));
+      String result = new String(uncompressed, StandardCharsets.UTF_8);
+      assertEquals(inputString, result);
+    }
+  }
+
+  @Test
+  public void zstdCompressorTest1() throws IOException {
+    PublicBAOS out = new PublicBAOS();
+    out.write(inputString.getBytes(StandardCharsets.UTF_8));
+    ICompressor compressor = ICompressor.getCompressor(CompressionType.ZSTD);
+    IUnCompressor unCompressor = IUnCompressor.getUnCompressor(CompressionType.ZSTD);
+    byte[] compressed = compressor.compress(out.getBuf());
+    assertEquals(out.size(), unCompressor.getUncompressedLength(compressed, 0, compressed.length));
+    byte[] uncompressed = unCompressor.uncompress(compressed);
+    String result = new String(uncompressed, StandardCharsets.UTF_8);
+    assertEquals(inputString, result);
+  }
+
+  @Test
+  public void zstdCompressorTest2() throws IOException {
+    PublicBAOS out = new PublicBAOS();
+    out.write(inputString.getBytes(StandardCharsets.UTF_8));
+    ICompressor compressor = new ICompressor.ZstdCompressor(19);
+    IUnCompressor unCompressor = new IUnCompressor.ZstdUnCompressor();
+    byte[] compressed = new byte[compressor.getMaxBytesForCompression(out.size())];
+    int size = compressor.compress(out.getBuf(), 0, out.size(), compressed);
+    byte[] uncompressed = new byte[out.size()];
+    assertEquals(out.size(), unCompressor.uncompress(compressed, 0, size, uncompressed, 0));
+    String result = new String(uncompressed, StandardCharsets.UTF_8);
+    assertEquals(inputString, result);
+  }
+
+  @Test
+  public void zstdByteBufferTest() throws IOException {
+    byte[] input = inputString.getBytes(StandardCharsets.UTF_8);
+    ICompressor compressor = new ICompressor.ZstdCompressor(3);
+    IUnCompressor unCompressor = new IUnCompressor.ZstdUnCompressor();
+    // heap buffers go through byte arrays, direct buffers go through zstd-jni directly
+    for (boolean direct : new boolean[]{false, true}) {
+      ByteBuffer data = allocate(input.length, direct);
+      data.put(input);
+      data.flip();
+      ByteBuffer compressed = allocate(compressor.getMaxBytesForCompression(input.length),
+          direct);
+      int size = compressor.compress(data, compressed);
+      compressed.flip();
+      assertEquals(size, compressed.remaining());
+      assertEquals(input.length, unCompressor.getUncompressedLength(compressed));
+      // getUncompressedLength does not consume the buffer
+      assertEquals(size, compressed.remaining());
+
+      ByteBuffer uncompressed = allocate(input.length, direct);
+      assertEquals(input.length, unCompressor.uncompress(compressed, uncompressed));
+      uncompressed.flip();
+      byte[] result = new byte[uncompressed.remaining()];
+      uncompressed.get(result);
+      assertEquals(inputString, new String(result, StandardCharsets.UTF_8));
+    }
+  }
+
+  private ByteBuffer allocate(int capacity, boolean direct) {
+    return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+  }
 }
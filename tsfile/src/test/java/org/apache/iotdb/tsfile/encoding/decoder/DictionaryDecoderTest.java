@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tsfile.encoding.decoder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.apache.iotdb.tsfile.encoding.encoder.DictionaryEncoder;
+import org.apache.iotdb.tsfile.encoding.encoder.Encoder;
+import org.apache.iotdb.tsfile.encoding.encoder.TSEncodingBuilder;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.file.metadata.statistics.Statistics;
+import org.apache.iotdb.tsfile.read.filter.ValueFilter;
+import org.apache.iotdb.tsfile.read.filter.basic.Filter;
+import org.apache.iotdb.tsfile.read.filter.factory.FilterSerializeId;
+import org.apache.iotdb.tsfile.utils.Binary;
+
+public class DictionaryDecoderTest {
+
+  private static final String[] STATUS = {"OK", "WARN", "ERROR", "", "OFFLINE"};
+
+  @Test
+  public void testLowCardinality() throws IOException {
+    List<Binary> page = new ArrayList<>();
+    int plainSize = 0;
+    for (int i = 0; i < 10000; i++) {
+      page.add(new Binary(STATUS[(i / 7) % STATUS.length]));
+      plainSize += 1 + page.get(i).getLength();
+    }
+    byte[] encoded = testPages(page, page);
+    // the dictionary is written once, then every value takes 3 bits
+    assertTrue(encoded.length < 2 * plainSize / 10);
+  }
+
+  @Test
+  public void testFallBackToPlain() throws IOException {
+    List<Binary> distinct = new ArrayList<>();
+    List<Binary> repeated = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      distinct.add(new Binary("value" + i));
+      repeated.add(new Binary(STATUS[i % STATUS.length]));
+    }
+    // the second page is written as plain too once the encoder falls back
+    testPages(distinct, repeated);
+  }
+
+  @Test
+  public void testFilter() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Encoder encoder = TSEncodingBuilder.getEncodingBuilder(TSEncoding.PLAIN_DICTIONARY)
+        .getEncoder(TSDataType.TEXT);
+    for (int i = 0; i < 100; i++) {
+      encoder.encode(new Binary(STATUS[i % STATUS.length]), out);
+    }
+    encoder.flush(out);
+
+    ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+    DictionaryDecoder decoder = (DictionaryDecoder) Decoder
+        .getDecoderByType(TSEncoding.PLAIN_DICTIONARY, TSDataType.TEXT);
+    CountingFilter filter = new CountingFilter(ValueFilter.eq(new Binary("ERROR")));
+    int satisfied = 0;
+    for (int i = 0; decoder.hasNext(buffer); i++) {
+      Binary value = decoder.readBinary(buffer);
+      if (decoder.satisfy(filter, i, value)) {
+        assertEquals("ERROR", value.getStringValue());
+        satisfied++;
+      }
+    }
+    assertEquals(20, satisfied);
+    assertEquals(STATUS.length, filter.count);
+  }
+
+  private byte[] testPages(List<Binary>... pages) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Encoder encoder = new DictionaryEncoder(128);
+    for (List<Binary> page : pages) {
+      for (Binary value : page) {
+        encoder.encode(value, out);
+      }
+      encoder.flush(out);
+    }
+
+    ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+    Decoder decoder = new DictionaryDecoder();
+    for (List<Binary> page : pages) {
+      for (Binary value : page) {
+        assertTrue(decoder.hasNext(buffer));
+        assertEquals(value, decoder.readBinary(buffer));
+      }
+    }
+    assertFalse(decoder.hasNext(buffer));
+    return out.toByteArray();
+  }
+
+  private static class CountingFilter implements Filter {
+
+    private Filter filter;
+    private int count;
+
+    private CountingFilter(Filter filter) {
+      this.filter = filter;
+    }
+
+    @Override
+    public boolean satisfy(long time, Object value) {
+      count++;
+      return filter.satisfy(time, value);
+    }
+
+    @Override
+    public boolean satisfy(Statistics statistics) {
+      return filter.satisfy(statistics);
+    }
+
+    @Override
+    public boolean satisfyStartEndTime(long startTime, long endTime) {
+      return filter.satisfyStartEndTime(startTime, endTime);
+    }
+
+    @Override
+    public boolean containStartEndTime(long startTime, long endTime) {
+      return filter.containStartEndTime(startTime, endTime);
+    }
+
+    @Override
+    public Filter copy() {
+      return new CountingFilter(filter.copy());
+    }
+
+    @Override
+    public void serialize(DataOutputStream outputStream) {
+      filter.serialize(outputStream);
+    }
+
+    @Override
+    public void deserialize(ByteBuffer buffer) {
+      filter.deserialize(buffer);
+    }
+
+    @Override
+    public FilterSerializeId getSerializeId() {
+      return filter.getSerializeId();
+    }
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tsfile.encoding.encoder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Test;
+
+import org.apache.iotdb.tsfile.encoding.decoder.Decoder;
+import org.apache.iotdb.tsfile.encoding.encoder.EncodingSelector.Values;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.utils.Binary;
+
+public class EncodingSelectorTest {
+
+  private static final int SAMPLE_SIZE = 1024;
+
+  @Test
+  public void testRegularLongs() throws IOException {
+    long[] values = new long[3000];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = 1000L + i * 7;
+    }
+    TSEncoding encoding = EncodingSelector
+        .select(TSDataType.INT64, new ArrayValues(values), SAMPLE_SIZE);
+    assertEquals(TSEncoding.REGULAR, encoding);
+    checkLongs(encoding, values);
+
+    // REGULAR cannot encode a chunk that is regular only in the sampled values
+    values[2000] += 1;
+    encoding = EncodingSelector.select(TSDataType.INT64, new ArrayValues(values), SAMPLE_SIZE);
+    assertNotEquals(TSEncoding.REGULAR, encoding);
+    checkLongs(encoding, values);
+  }
+
+  @Test
+  public void testConstantAndNoisyInts() throws IOException {
+    int[] constant = new int[2000];
+    for (int i = 0; i < constant.length; i++) {
+      constant[i] = i < 1000 ? 5 : 6;
+    }
+    assertEquals(TSEncoding.RLE,
+        EncodingSelector.select(TSDataType.INT32, new ArrayValues(constant), SAMPLE_SIZE));
+
+    Random random = new Random(0);
+    int[] noisy = new int[2000];
+    for (int i = 0; i < noisy.length; i++) {
+      noisy[i] = random.nextInt();
+    }
+    noisy[1500] = Integer.MIN_VALUE;
+    TSEncoding encoding = EncodingSelector
+        .select(TSDataType.INT32, new ArrayValues(noisy), SAMPLE_SIZE);
+    // GORILLA cannot encode the min value
+    assertNotEquals(TSEncoding.GORILLA, encoding);
+  }
+
+  @Test
+  public void testDoubles() throws IOException {
+    double[] values = new double[2000];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = 20.5 + (i / 100) * 0.1;
+    }
+    assertEquals(TSEncoding.GORILLA,
+        EncodingSelector.select(TSDataType.DOUBLE, new ArrayValues(values), SAMPLE_SIZE));
+
+    // NaN ends a page of GORILLA
+    values[1999] = Double.NaN;
+    assertEquals(TSEncoding.PLAIN,
+        EncodingSelector.select(TSDataType.DOUBLE, new ArrayValues(values), SAMPLE_SIZE));
+  }
+
+  @Test
+  public void testText() throws IOException {
+    Binary[] values = new Binary[2000];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = new Binary(i % 3 == 0 ? "RUNNING" : "STOPPED");
+    }
+    assertEquals(TSEncoding.PLAIN_DICTIONARY,
+        EncodingSelector.select(TSDataType.TEXT, new ArrayValues(values), SAMPLE_SIZE));
+  }
+
+  @Test
+  public void testSamplerChecksValuesAfterSample() throws IOException {
+    // the values after the sample are not encoded, but still rule out REGULAR and GORILLA
+    EncodingSelector.Sampler sampler = new EncodingSelector.Sampler(TSDataType.INT64, 16);
+    for (int i = 0; i < 1000; i++) {
+      sampler.put(1000L + i * 7);
+    }
+    assertEquals(TSEncoding.REGULAR, sampler.select());
+
+    sampler = new EncodingSelector.Sampler(TSDataType.INT64, 16);
+    for (int i = 0; i < 1000; i++) {
+      sampler.put(i == 999 ? 0L : 1000L + i * 7);
+    }
+    assertNotEquals(TSEncoding.REGULAR, sampler.select());
+
+    sampler = new EncodingSelector.Sampler(TSDataType.FLOAT, 16);
+    for (int i = 0; i < 1000; i++) {
+      sampler.put(i == 500 ? Float.NaN : 1.5f);
+    }
+    assertEquals(TSEncoding.PLAIN, sampler.select());
+  }
+
+  private void checkLongs(TSEncoding encoding, long[] values) throws IOException {
+    Encoder encoder = TSEncodingBuilder.getEncodingBuilder(encoding).getEncoder(TSDataType.INT64);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (long value : values) {
+      encoder.encode(value, out);
+    }
+    encoder.flush(out);
+    Decoder decoder = Decoder.getDecoderByType(encoding, TSDataType.INT64);
+    ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+    for (long value : values) {
+      assertEquals(value, decoder.readLong(buffer));
+    }
+    assertFalse(decoder.hasNext(buffer));
+  }
+
+  private static class ArrayValues implements Values {
+
+    private Object array;
+
+    private ArrayValues(Object array) {
+      this.array = array;
+    }
+
+    @Override
+    public int size() {
+      return Array.getLength(array);
+    }
+
+    @Override
+    public boolean getBoolean(int index) {
+      return ((boolean[]) array)[index];
+    }
+
+    @Override
+    public int getInt(int index) {
+      return ((int[]) array)[index];
+    }
+
+    @Override
+    public long getLong(int index) {
+      return ((long[]) array)[index];
+    }
+
+    @Override
+    public float getFloat(int index) {
+      return ((float[]) array)[index];
+    }
+
+    @Override
+    public double getDouble(int index) {
+      return ((double[]) array)[index];
+    }
+
+    @Override
+    public Binary getBinary(int index) {
+      return ((Binary[]) array)[index];
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.tsfile.file.metadata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.apache.iotdb.tsfile.constant.TestConstant;
+import org.apache.iotdb.tsfile.exception.write.WriteProcessException;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
+import org.apache.iotdb.tsfile.read.common.Path;
+import org.apache.iotdb.tsfile.read.filter.TimeFilter;
+import org.apache.iotdb.tsfile.read.filter.basic.Filter;
+import org.apache.iotdb.tsfile.read.filter.factory.FilterFactory;
+import org.apache.iotdb.tsfile.write.TsFileWriter;
+import org.apache.iotdb.tsfile.write.record.TSRecord;
+import org.apache.iotdb.tsfile.write.record.datapoint.LongDataPoint;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ChunkMetadataIndexTest {
+
+  private static final String DEVICE = "root.sg.d1";
+  private static final int CHUNK_NUM = 100;
+  private static final int POINT_NUM_IN_CHUNK = 10;
+
+  private final String path = TestConstant.BASE_OUTPUT_PATH.concat("chunkMetadataIndex.tsfile");
+  private File file;
+
+  @Before
+  public void setUp() throws IOException, WriteProcessException {
+    file = new File(path);
+    if (file.exists()) {
+      assertTrue(file.delete());
+    }
+    // s1 has a chunk in every chunk group while s2 only has a few, so that only s1 is indexed
+    try (TsFileWriter writer = new TsFileWriter(file)) {
+      writer.registerTimeseries(new Path(DEVICE, "s1"),
+          new MeasurementSchema("s1", TSDataType.INT64, TSEncoding.RLE));
+      writer.registerTimeseries(new Path(DEVICE, "s2"),
+          new MeasurementSchema("s2", TSDataType.INT64, TSEncoding.RLE));
+      for (int chunk = 0; chunk < CHUNK_NUM; chunk++) {
+        for (int i = 0; i < POINT_NUM_IN_CHUNK; i++) {
+          long time = (long) chunk * POINT_NUM_IN_CHUNK + i;
+          TSRecord record = new TSRecord(time, DEVICE);
+          record.addTuple(new LongDataPoint("s1", time));
+          if (chunk % 10 == 0) {
+            record.addTuple(new LongDataPoint("s2", time));
+          }
+          writer.write(record);
+        }
+        writer.flushAllChunkGroups();
+      }
+    }
+  }
+
+  @After
+  public void tearDown() {
+    if (file.exists()) {
+      assertTrue(file.delete());
+    }
+  }
+
+  @Test
+  public void testWriteIndex() throws IOException {
+    try (TsFileSequenceReader reader = new TsFileSequenceReader(path)) {
+      TimeseriesMetadata s1 = reader.readTimeseriesMetadata(new Path(DEVICE, "s1"));
+      TimeseriesMetadata s2 = reader.readTimeseriesMetadata(new Path(DEVICE, "s2"));
+      assertTrue(s1.hasChunkMetadataIndex());
+      assertFalse(s2.hasChunkMetadataIndex());
+      assertEquals(TSDataType.INT64, s1.getTSDataType());
+      assertEquals(CHUNK_NUM, reader.readChunkMetaDataList(s1).size());
+      assertEquals(CHUNK_NUM / 10, reader.readChunkMetaDataList(s2).size());
+
+      // the index between the lists of s1 and s2 should be skipped
+      Map<String, List<ChunkMetadata>> deviceChunkMetadata = reader
+          .readChunkMetadataInDevice(DEVICE);
+      assertEquals(CHUNK_NUM, deviceChunkMetadata.get("s1").size());
+      assertEquals(CHUNK_NUM / 10, deviceChunkMetadata.get("s2").size());
+    }
+  }
+
+  @Test
+  public void testReadWithTimeFilter() throws IOException {
+    try (TsFileSequenceReader reader = new TsFileSequenceReader(path)) {
+      TimeseriesMetadata s1 = reader.readTimeseriesMetadata(new Path(DEVICE, "s1"));
+
+      // chunk 50 to 52 are in the second group
+      Filter filter = FilterFactory.and(TimeFilter.gtEq(505L), TimeFilter.ltEq(520L));
+      List<ChunkMetadata> chunkMetadataList = reader.readChunkMetaDataList(s1, filter);
+      assertEquals(ChunkMetadataIndex.GROUP_SIZE, chunkMetadataList.size());
+      List<ChunkMetadata> satisfied = chunkMetadataList.stream()
+          .filter(c -> filter.satisfyStartEndTime(c.getStartTime(), c.getEndTime()))
+          .collect(Collectors.toList());
+      assertEquals(3, satisfied.size());
+      assertEquals(500, satisfied.get(0).getStartTime());
+      assertEquals(529, satisfied.get(2).getEndTime());
+
+      // the last group has less chunks than the others
+      assertEquals(CHUNK_NUM % ChunkMetadataIndex.GROUP_SIZE,
+          reader.readChunkMetaDataList(s1, TimeFilter.gt(990L)).size());
+      // the first and the last groups are not adjacent
+      assertEquals(ChunkMetadataIndex.GROUP_SIZE + CHUNK_NUM % ChunkMetadataIndex.GROUP_SIZE,
+          reader.readChunkMetaDataList(s1,
+              FilterFactory.or(TimeFilter.lt(5L), TimeFilter.eq(995L))).size());
+      assertTrue(reader.readChunkMetaDataList(s1, TimeFilter.gt(10000L)).isEmpty());
+      // the time range of a NotFilter is unknown, so all the chunks are read
+      assertEquals(CHUNK_NUM,
+          reader.readChunkMetaDataList(s1, TimeFilter.not(TimeFilter.lt(500L))).size());
+      assertEquals(CHUNK_NUM, reader.readChunkMetaDataList(s1, null).size());
+    }
+  }
+}
@@ -21,6 +21,7 @@ package org.apache.iotdb.tsfile.read;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -145,4 +146,29 @@ public class TsFileSequenceReaderTest {
 
     reader.close();
   }
+
+  @Test
+  public void readMemChunks() throws IOException {
+    TsFileSequenceReader reader = new TsFileSequenceReader(FILE_PATH);
+
+    for (String device : reader.getAllDevices()) {
+      List<ChunkMetadata> chunkMetadataList = new ArrayList<>();
+      reader.readChunkMetadataInDevice(device).values().forEach(chunkMetadataList::addAll);
+      chunkMetadataList.sort(Comparator.comparingLong(ChunkMetadata::getOffsetOfChunkHeader));
+
+      List<Chunk> actualChunks = reader.readMemChunks(chunkMetadataList);
+      Assert.assertEquals(chunkMetadataList.size(), actualChunks.size());
+      for (int i = 0; i < chunkMetadataList.size(); i++) {
+        Chunk expectedChunk = reader.readMemChunk(chunkMetadataList.get(i));
+        Chunk actualChunk = actualChunks.get(i);
+        Assert.assertEquals(expectedChunk.getHeader().toString(),
+            actualChunk.getHeader().toString());
+        Assert.assertEquals(expectedChunk.getHeader().getSerializedSize(),
+            actualChunk.getHeader().getSerializedSize());
+        Assert.assertEquals(expectedChunk.getData(), actualChunk.getData());
+      }
+    }
+
+    reader.close();
+  }
 }
@@ -25,12 +25,14 @@ import java.util.List;
 import org.apache.iotdb.tsfile.encoding.common.EndianType;
 import org.apache.iotdb.tsfile.encoding.decoder.Decoder;
 import org.apache.iotdb.tsfile.encoding.decoder.DeltaBinaryDecoder;
+import org.apache.iotdb.tsfile.encoding.decoder.DictionaryDecoder;
 import org.apache.iotdb.tsfile.encoding.decoder.DoublePrecisionDecoderV1;
 import org.apache.iotdb.tsfile.encoding.decoder.IntRleDecoder;
 import org.apache.iotdb.tsfile.encoding.decoder.LongRleDecoder;
 import org.apache.iotdb.tsfile.encoding.decoder.PlainDecoder;
 import org.apache.iotdb.tsfile.encoding.decoder.SinglePrecisionDecoderV1;
 import org.apache.iotdb.tsfile.encoding.encoder.DeltaBinaryEncoder;
+import org.apache.iotdb.tsfile.encoding.encoder.DictionaryEncoder;
 import org.apache.iotdb.tsfile.encoding.encoder.DoublePrecisionEncoderV1;
 import org.apache.iotdb.tsfile.encoding.encoder.Encoder;
 import org.apache.iotdb.tsfile.encoding.encoder.IntRleEncoder;
@@ -40,6 +42,10 @@ import org.apache.iotdb.tsfile.encoding.encoder.SinglePrecisionEncoderV1;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.read.common.BatchData;
 import org.apache.iotdb.tsfile.read.common.TimeRange;
+import org.apache.iotdb.tsfile.read.filter.TimeFilter;
+import org.apache.iotdb.tsfile.read.filter.ValueFilter;
+import org.apache.iotdb.tsfile.read.filter.basic.Filter;
+import org.apache.iotdb.tsfile.read.filter.factory.FilterFactory;
 import org.apache.iotdb.tsfile.read.reader.page.PageReader;
 import org.apache.iotdb.tsfile.utils.Binary;
 import org.apache.iotdb.tsfile.write.page.PageWriter;
@@ -145,6 +151,49 @@ public class PageReaderTest {
     test.test(TSDataType.TEXT);
   }
 
+  @Test
+  public void testDictionaryBinary() {
+    LoopWriteReadTest test = new LoopWriteReadTest("Test Dictionary",
+        new DictionaryEncoder(1000), new DictionaryDecoder(), TSDataType.TEXT,
+        POINTS_COUNT_IN_ONE_PAGE) {
+      @Override
+      public Object generateValueByIndex(int i) {
+        return new Binary(new StringBuilder("TEST TEXT").append(i % 10).toString());
+      }
+    };
+    test.test(TSDataType.TEXT);
+  }
+
+  @Test
+  public void testDictionaryBinaryWithFilter() throws IOException {
+    PageWriter pageWriter = new PageWriter();
+    pageWriter.setTimeEncoder(new DeltaBinaryEncoder.LongDeltaEncoder());
+    pageWriter.setValueEncoder(new DictionaryEncoder(1000));
+    pageWriter.initStatistics(TSDataType.TEXT);
+    for (int i = 0; i < 1000; i++) {
+      pageWriter.write(i, new Binary("TEST TEXT" + i % 10));
+    }
+    ByteBuffer page = ByteBuffer.wrap(pageWriter.getUncompressedBytes().array());
+
+    Filter[] filters = {ValueFilter.eq(new Binary("TEST TEXT3")),
+        FilterFactory.and(TimeFilter.gtEq(500L), ValueFilter.eq(new Binary("TEST TEXT3")))};
+    int[] expectedCounts = {100, 50};
+    for (int i = 0; i < filters.length; i++) {
+      page.position(0);
+      PageReader pageReader = new PageReader(page, TSDataType.TEXT, new DictionaryDecoder(),
+          new DeltaBinaryDecoder.LongDeltaDecoder(), filters[i]);
+      BatchData data = pageReader.getAllSatisfiedPageData();
+      int count = 0;
+      while (data.hasCurrent()) {
+        Assert.assertEquals(3, data.currentTime() % 10);
+        Assert.assertEquals(new Binary("TEST TEXT3"), data.currentValue());
+        data.next();
+        count++;
+      }
+      Assert.assertEquals(expectedCounts[i], count);
+    }
+  }
+
   private abstract static class LoopWriteReadTest {
 
     private Encoder encoder;
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tsfile.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class BitMapTest {
+
+  @Test
+  public void testMarkAndUnmark() {
+    BitMap bitMap = new BitMap(20);
+    assertEquals(3, bitMap.getByteArray().length);
+    assertTrue(bitMap.isAllUnmarked());
+    for (int i = 0; i < 20; i += 3) {
+      bitMap.mark(i);
+    }
+    for (int i = 0; i < 20; i++) {
+      assertEquals(i % 3 == 0, bitMap.isMarked(i));
+    }
+    assertFalse(bitMap.isAllUnmarked());
+    assertTrue(bitMap.isAllUnmarked(1, 3));
+    assertFalse(bitMap.isAllMarked(0, 2));
+
+    bitMap.unmark(0);
+    assertFalse(bitMap.isMarked(0));
+    assertTrue(bitMap.isMarked(3));
+    bitMap.reset();
+    assertTrue(bitMap.isAllUnmarked());
+  }
+
+  @Test
+  public void testGetRegion() {
+    BitMap bitMap = new BitMap(30);
+    for (int i = 0; i < 30; i += 2) {
+      bitMap.mark(i);
+    }
+    // aligned with bytes
+    BitMap region = bitMap.getRegion(8, 13);
+    assertEquals("10101", region.toString());
+    assertEquals(1, region.getByteArray().length);
+    assertEquals(0b10101, region.getByteArray()[0]);
+    // not aligned with bytes
+    region = bitMap.getRegion(11, 29);
+    assertEquals(18, region.getSize());
+    for (int i = 0; i < 18; i++) {
+      assertEquals(i % 2 == 1, region.isMarked(i));
+    }
+    assertEquals(new BitMap(18, region.getByteArray()), region);
+    assertEquals(region.hashCode(), new BitMap(18, region.getByteArray()).hashCode());
+  }
+}
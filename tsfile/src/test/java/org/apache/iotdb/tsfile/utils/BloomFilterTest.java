@@ -18,8 +18,11 @@
  */
 package org.apache.iotdb.tsfile.utils;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.BitSet;
 import org.junit.Test;
 
 import org.apache.iotdb.tsfile.utils.BloomFilter;
@@ -59,9 +62,54 @@ public class BloomFilterTest {
     filter.add(value3);
 
     BloomFilter filter1 = BloomFilter.buildBloomFilter(filter.serialize(), filter.getSize(),
-        filter.getHashFunctionSize());
+        filter.getSerializedHashFunctionSize());
     assertTrue(filter1.contains(value1));
     assertTrue(filter1.contains(value2));
     assertTrue(filter1.contains(value3));
+    assertEquals(filter.getHashFunctionSize(), filter1.getHashFunctionSize());
+    assertEquals(filter.getBitCount(), filter1.getBitCount());
+  }
+
+  @Test
+  public void testContainsWithHash() {
+    BloomFilter filter = BloomFilter.getEmptyBloomFilter(0.05, 1000);
+    for (int i = 0; i < 1000; i++) {
+      filter.add("root.sg.d" + i + ".s1");
+    }
+    int falsePositives = 0;
+    for (int i = 0; i < 1000; i++) {
+      String value = "root.sg.d" + i + ".s1";
+      assertTrue(filter.contains(value, BloomFilter.hash(value)));
+      String absent = "root.sg.d" + i + ".s2";
+      if (filter.contains(absent, BloomFilter.hash(absent))) {
+        falsePositives++;
+      }
+    }
+    // the expected number is 50, the bound is loose to keep the test stable
+    assertTrue(falsePositives < 150);
+  }
+
+  @Test
+  public void testReadOldLayout() {
+    // a filter in the layout written by older versions, one murmur hash per hash function
+    int[] seeds = new int[]{5, 7, 11, 19, 31, 37, 43, 59};
+    int size = 256;
+    int hashFunctionSize = 5;
+    String[] values = new String[]{"device1.s1", "device1.s2", "device1.s3"};
+    BitSet bits = new BitSet(size);
+    for (String value : values) {
+      for (int i = 0; i < hashFunctionSize; i++) {
+        bits.set(Math.abs(Murmur128Hash.hash(value, seeds[i])) % size);
+      }
+    }
+
+    BloomFilter filter = BloomFilter.buildBloomFilter(bits.toByteArray(), size, hashFunctionSize);
+    assertEquals(hashFunctionSize, filter.getSerializedHashFunctionSize());
+    for (String value : values) {
+      assertTrue(filter.contains(value));
+      assertTrue(filter.contains(value, BloomFilter.hash(value)));
+    }
+    assertEquals(bits.cardinality(), filter.getBitCount());
+    assertFalse(filter.contains(null));
   }
 }
@@ -0,0 +1,275 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tsfile.write;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.iotdb.tsfile.common.conf.TSFileConfig;
+import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
+import org.apache.iotdb.tsfile.constant.TestConstant;
+import org.apache.iotdb.tsfile.exception.write.WriteProcessException;
+import org.apache.iotdb.tsfile.file.metadata.ChunkGroupMetadata;
+import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.read.ReadOnlyTsFile;
+import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
+import org.apache.iotdb.tsfile.read.common.BatchData;
+import org.apache.iotdb.tsfile.read.common.Chunk;
+import org.apache.iotdb.tsfile.read.common.Path;
+import org.apache.iotdb.tsfile.read.common.RowRecord;
+import org.apache.iotdb.tsfile.read.expression.QueryExpression;
+import org.apache.iotdb.tsfile.read.expression.impl.GlobalTimeExpression;
+import org.apache.iotdb.tsfile.read.filter.TimeFilter;
+import org.apache.iotdb.tsfile.read.query.dataset.QueryDataSet;
+import org.apache.iotdb.tsfile.read.reader.chunk.AlignedChunkReader;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.Pair;
+import org.apache.iotdb.tsfile.write.record.TSRecord;
+import org.apache.iotdb.tsfile.write.record.Tablet;
+import org.apache.iotdb.tsfile.write.record.datapoint.DoubleDataPoint;
+import org.apache.iotdb.tsfile.write.record.datapoint.IntDataPoint;
+import org.apache.iotdb.tsfile.write.record.datapoint.StringDataPoint;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+import org.apache.iotdb.tsfile.write.writer.TsFileIOWriter;
+
+public class AlignedTsFileReadWriteTest {
+
+  private static final String DEVICE = "root.sg.d1";
+  private static final int ROW_NUM = 10000;
+
+  private final TSFileConfig config = TSFileDescriptor.getInstance().getConfig();
+  private int maxNumberOfPointsInPage;
+  private String path = TestConstant.BASE_OUTPUT_PATH.concat("aligned.tsfile");
+  private File f;
+
+  private List<MeasurementSchema> schemas = Arrays.asList(
+      new MeasurementSchema("s1", TSDataType.INT32, TSEncoding.TS_2DIFF),
+      new MeasurementSchema("s2", TSDataType.DOUBLE, TSEncoding.GORILLA),
+      new MeasurementSchema("s3", TSDataType.TEXT, TSEncoding.PLAIN),
+      new MeasurementSchema("s4", TSDataType.INT64, TSEncoding.RLE));
+
+  @Before
+  public void setUp() {
+    maxNumberOfPointsInPage = config.getMaxNumberOfPointsInPage();
+    config.setMaxNumberOfPointsInPage(1000);
+    f = new File(path);
+    if (f.exists()) {
+      assertTrue(f.delete());
+    }
+  }
+
+  @After
+  public void tearDown() {
+    config.setMaxNumberOfPointsInPage(maxNumberOfPointsInPage);
+    if (f.exists()) {
+      assertTrue(f.delete());
+    }
+  }
+
+  @Test
+  public void testRecords() throws IOException, WriteProcessException {
+    try (TsFileWriter writer = new TsFileWriter(f)) {
+      writer.registerAlignedTimeseries(DEVICE, schemas);
+      for (int i = 0; i < ROW_NUM; i++) {
+        TSRecord record = new TSRecord(i, DEVICE);
+        record.addTuple(new IntDataPoint("s1", i));
+        if (i % 3 != 0) {
+          record.addTuple(new DoubleDataPoint("s2", i * 0.5));
+        }
+        // all the values of some pages of s3 are null
+        if (i % 100 == 0 && i < 3000) {
+          record.addTuple(new StringDataPoint("s3", new Binary("v" + i)));
+        }
+        writer.write(record);
+      }
+    }
+
+    try (TsFileSequenceReader reader = new TsFileSequenceReader(path)) {
+      // the time column is written only once
+      assertEquals(3, reader.readFileMetadata().getTotalChunkNum());
+      assertTrue(reader.getChunkMetadataList(new Path(DEVICE, "s4")).isEmpty());
+
+      ReadOnlyTsFile readTsFile = new ReadOnlyTsFile(reader);
+      checkSeries(readTsFile, "s1", i -> true, (i, record) -> assertEquals(i,
+          record.getFields().get(0).getIntV()));
+      checkSeries(readTsFile, "s2", i -> i % 3 != 0, (i, record) -> assertEquals(i * 0.5,
+          record.getFields().get(0).getDoubleV(), 0));
+      checkSeries(readTsFile, "s3", i -> i % 100 == 0 && i < 3000, (i, record) -> assertEquals(
+          "v" + i, record.getFields().get(0).getStringValue()));
+
+      // the time pages are decoded once for all the value chunks
+      List<ChunkMetadata> chunkMetadataList = new ArrayList<>();
+      for (String measurement : Arrays.asList("s1", "s2", "s3")) {
+        chunkMetadataList.addAll(reader.getChunkMetadataList(new Path(DEVICE, measurement)));
+      }
+      chunkMetadataList.sort(Comparator.comparingLong(ChunkMetadata::getOffsetOfChunkHeader));
+      List<Chunk> chunks = reader.readMemChunks(chunkMetadataList);
+      assertTrue(chunks.get(0).getTimeChunk() == chunks.get(2).getTimeChunk());
+      AlignedChunkReader chunkReader = new AlignedChunkReader(chunks,
+          TimeFilter.gtEq(5500L));
+      int pageNum = 0;
+      long nextTime = 5500;
+      while (chunkReader.hasNextSatisfiedPage()) {
+        List<BatchData> pageData = chunkReader.nextPageData();
+        assertEquals(3, pageData.size());
+        BatchData s1 = pageData.get(0);
+        for (; s1.hasCurrent(); s1.next()) {
+          assertEquals(nextTime, s1.currentTime());
+          assertEquals(nextTime++, s1.getInt());
+        }
+        assertTrue(pageData.get(2).isEmpty());
+        pageNum++;
+      }
+      assertEquals(ROW_NUM, nextTime);
+      // the pages before 5000 are skipped
+      assertEquals(5, pageNum);
+    }
+  }
+
+  @Test
+  public void testTablets() throws IOException, WriteProcessException {
+    try (TsFileWriter writer = new TsFileWriter(f)) {
+      writer.registerAlignedTimeseries(DEVICE, schemas);
+      Tablet tablet = new Tablet(DEVICE, Arrays.asList(schemas.get(3), schemas.get(0)), 100);
+      for (int i = 0; i < ROW_NUM; i++) {
+        tablet.addTimestamp(tablet.rowSize, i);
+        tablet.addValue("s1", tablet.rowSize, i);
+        tablet.addValue("s4", tablet.rowSize, (long) i * 2);
+        if (++tablet.rowSize == tablet.getMaxRowNumber()) {
+          writer.write(tablet);
+          tablet.reset();
+        }
+        if (i == ROW_NUM / 2) {
+          // the device is flushed into two chunk groups
+          writer.flushAllChunkGroups();
+        }
+      }
+      writer.write(tablet);
+    }
+
+    try (TsFileSequenceReader reader = new TsFileSequenceReader(path)) {
+      assertEquals(2, reader.getChunkMetadataList(new Path(DEVICE, "s4")).size());
+      ReadOnlyTsFile readTsFile = new ReadOnlyTsFile(reader);
+      checkSeries(readTsFile, "s4", i -> true, (i, record) -> assertEquals(i * 2,
+          record.getFields().get(0).getLongV()));
+
+      QueryExpression expression = QueryExpression
+          .create(Collections.singletonList(new Path(DEVICE, "s1")),
+              new GlobalTimeExpression(TimeFilter.lt(10L)));
+      QueryDataSet dataSet = readTsFile.query(expression);
+      int count = 0;
+      while (dataSet.hasNext()) {
+        assertEquals(count, dataSet.next().getFields().get(0).getIntV());
+        count++;
+      }
+      assertEquals(10, count);
+    }
+  }
+
+  @Test
+  public void testSelfCheckAndAppendMerge() throws IOException, WriteProcessException {
+    try (TsFileWriter writer = new TsFileWriter(f)) {
+      writer.registerAlignedTimeseries(DEVICE, schemas.subList(0, 2));
+      for (int i = 0; i < 3000; i++) {
+        TSRecord record = new TSRecord(i, DEVICE);
+        record.addTuple(i % 2 == 0 ? new IntDataPoint("s1", i) : new DoubleDataPoint("s2", i));
+        writer.write(record);
+      }
+    }
+
+    try (TsFileSequenceReader reader = new TsFileSequenceReader(path)) {
+      List<ChunkGroupMetadata> chunkGroupMetadataList = new ArrayList<>();
+      reader.selfCheck(new HashMap<>(), chunkGroupMetadataList, new ArrayList<>(), false);
+      assertEquals(1, chunkGroupMetadataList.size());
+      Map<String, ChunkMetadata> chunkMetadataMap = new HashMap<>();
+      for (ChunkMetadata chunkMetadata : chunkGroupMetadataList.get(0).getChunkMetadataList()) {
+        chunkMetadataMap.put(chunkMetadata.getMeasurementUid(), chunkMetadata);
+      }
+      assertEquals(1500, chunkMetadataMap.get("s1").getNumOfPoints());
+      assertEquals(2998, chunkMetadataMap.get("s1").getEndTime());
+      assertEquals(1, chunkMetadataMap.get("s2").getStartTime());
+
+      // a value chunk is written as a normal chunk when it is copied to another file
+      File copy = new File(path + ".copy");
+      TsFileIOWriter ioWriter = new TsFileIOWriter(copy);
+      ioWriter.startChunkGroup(DEVICE);
+      ChunkMetadata s2 = reader.getChunkMetadataList(new Path(DEVICE, "s2")).get(0);
+      ioWriter.writeChunk(reader.readMemChunk(s2), s2);
+      ioWriter.endChunkGroup();
+      ioWriter.endFile();
+      try (TsFileSequenceReader copyReader = new TsFileSequenceReader(copy.getPath())) {
+        ReadOnlyTsFile readTsFile = new ReadOnlyTsFile(copyReader);
+        checkSeries(readTsFile, "s2", i -> i % 2 != 0 && i < 3000, (i, record) -> assertEquals(i,
+            record.getFields().get(0).getDoubleV(), 0));
+        ChunkMetadata copied = copyReader.getChunkMetadataList(new Path(DEVICE, "s2")).get(0);
+        assertFalse(copyReader.readMemChunk(copied).getHeader().isValueChunk());
+      } finally {
+        assertTrue(copy.delete());
+      }
+    }
+  }
+
+  private void checkSeries(ReadOnlyTsFile readTsFile, String measurement, RowFilter exists,
+      RowChecker checker) throws IOException {
+    QueryExpression expression = QueryExpression
+        .create(Collections.singletonList(new Path(DEVICE, measurement)), null);
+    QueryDataSet dataSet = readTsFile.query(expression);
+    List<Pair<Integer, RowRecord>> records = new ArrayList<>();
+    while (dataSet.hasNext()) {
+      RowRecord record = dataSet.next();
+      records.add(new Pair<>((int) record.getTimestamp(), record));
+    }
+    int index = 0;
+    for (int i = 0; i < ROW_NUM; i++) {
+      if (exists.test(i)) {
+        assertEquals(i, (int) records.get(index).left);
+        checker.check(i, records.get(index).right);
+        index++;
+      }
+    }
+    assertEquals(index, records.size());
+  }
+
+  private interface RowFilter {
+
+    boolean test(int i);
+  }
+
+  private interface RowChecker {
+
+    void check(int i, RowRecord record);
+  }
+}
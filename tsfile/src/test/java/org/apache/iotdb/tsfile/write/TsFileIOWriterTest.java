@@ -20,13 +20,17 @@ package org.apache.iotdb.tsfile.write;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import org.apache.iotdb.tsfile.common.conf.TSFileConfig;
 import org.apache.iotdb.tsfile.constant.TestConstant;
 import org.apache.iotdb.tsfile.file.MetaMarker;
 import org.apache.iotdb.tsfile.file.footer.ChunkGroupFooter;
 import org.apache.iotdb.tsfile.file.header.ChunkHeader;
 import org.apache.iotdb.tsfile.file.metadata.TimeSeriesMetadataTest;
+import org.apache.iotdb.tsfile.file.metadata.TimeseriesMetadata;
 import org.apache.iotdb.tsfile.file.metadata.TsFileMetadata;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
 import org.apache.iotdb.tsfile.file.metadata.statistics.Statistics;
 import org.apache.iotdb.tsfile.file.metadata.utils.TestHelper;
 import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
@@ -110,4 +114,61 @@ public class TsFileIOWriterTest {
     TsFileMetadata metaData = reader.readFileMetadata();
     Assert.assertEquals(1, metaData.getMetadataIndex().getChildren().size());
   }
+
+  @Test
+  public void spillChunkMetadataTest() throws IOException {
+    String spilledTsfile = TestConstant.BASE_OUTPUT_PATH.concat("tsfileIOWriterSpillTest.tsfile");
+    File file = new File(tsfile);
+    File spilledFile = new File(spilledTsfile);
+    try {
+      writeManyChunks(new TsFileIOWriter(file));
+      TsFileIOWriter writer = new TsFileIOWriter(spilledFile);
+      writer.enableChunkMetadataSpill(100);
+      writeManyChunks(writer);
+
+      // spilling the chunk metadata changes nothing in the file
+      Assert.assertArrayEquals(Files.readAllBytes(file.toPath()),
+          Files.readAllBytes(spilledFile.toPath()));
+      Assert.assertFalse(
+          new File(spilledTsfile + TsFileIOWriter.CHUNK_METADATA_TEMP_FILE_SUFFIX).exists());
+      Assert.assertFalse(
+          new File(spilledTsfile + TsFileIOWriter.TIMESERIES_METADATA_TEMP_FILE_SUFFIX).exists());
+
+      try (TsFileSequenceReader reader = new TsFileSequenceReader(spilledTsfile)) {
+        Assert.assertEquals(15, reader.getAllDevices().size());
+        TimeseriesMetadata timeseriesMetadata = reader
+            .readTimeseriesMetadata(new Path("device14", "s2"));
+        Assert.assertEquals(40, reader.readChunkMetaDataList(timeseriesMetadata).size());
+        Assert.assertEquals(0, timeseriesMetadata.getStatistics().getStartTime());
+        Assert.assertEquals(39, timeseriesMetadata.getStatistics().getEndTime());
+      }
+    } finally {
+      if (spilledFile.exists()) {
+        spilledFile.delete();
+      }
+    }
+  }
+
+  /**
+   * write 40 chunk groups for each of 15 devices with 3 measurements.
+   */
+  private void writeManyChunks(TsFileIOWriter writer) throws IOException {
+    for (int time = 0; time < 40; time++) {
+      for (int device = 0; device < 15; device++) {
+        writer.startChunkGroup("device" + device);
+        for (int measurement = 0; measurement < 3; measurement++) {
+          MeasurementSchema measurementSchema = new MeasurementSchema("s" + measurement,
+              TSDataType.INT64, TSEncoding.RLE);
+          Statistics statistics = Statistics.getStatsByType(measurementSchema.getType());
+          statistics.update(time, (long) time);
+          writer.startFlushChunk(measurementSchema, measurementSchema.getCompressor(),
+              measurementSchema.getType(), measurementSchema.getEncodingType(), statistics, 0, 0);
+          writer.endCurrentChunk();
+        }
+        writer.endChunkGroup();
+        writer.writeVersion(time);
+      }
+    }
+    writer.endFile();
+  }
 }
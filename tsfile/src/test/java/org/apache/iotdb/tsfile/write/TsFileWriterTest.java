@@ -218,6 +218,44 @@ public class TsFileWriterTest {
     readOneRow(0);
   }
 
+  @Test
+  public void writeTabletWithNullValues() throws IOException, WriteProcessException {
+    Tablet tablet = new Tablet("d1", Arrays.asList(
+        new MeasurementSchema("s1", TSDataType.FLOAT, TSEncoding.RLE, CompressionType.SNAPPY),
+        new MeasurementSchema("s2", TSDataType.INT32, TSEncoding.RLE, CompressionType.SNAPPY)));
+    tablet.addTimestamp(0, 10000);
+    tablet.addValue("s1", 0, 5.0f);
+    tablet.addValue("s2", 0, 5);
+    tablet.addTimestamp(1, 10001);
+    tablet.addValue("s1", 1, 6.0f);
+    tablet.addValue("s2", 1, null);
+    tablet.rowSize = 2;
+    assertTrue(tablet.hasNullValues());
+    writer.write(tablet);
+    closeFile();
+
+    ReadOnlyTsFile readOnlyTsFile = new ReadOnlyTsFile(
+        new TsFileSequenceReader("target/tsfileWriter-" + fileName));
+    QueryDataSet dataSet = readOnlyTsFile.query(QueryExpression.create()
+        .addSelectedPath(new Path("d1", "s2")));
+    // s2 has no value at time 10001
+    assertTrue(dataSet.hasNext());
+    RowRecord result = dataSet.next();
+    assertEquals(10000, result.getTimestamp());
+    assertEquals(5, result.getFields().get(0).getIntV());
+    assertFalse(dataSet.hasNext());
+
+    dataSet = readOnlyTsFile.query(QueryExpression.create()
+        .addSelectedPath(new Path("d1", "s1")));
+    int count = 0;
+    while (dataSet.hasNext()) {
+      dataSet.next();
+      count++;
+    }
+    assertEquals(2, count);
+    readOnlyTsFile.close();
+  }
+
   @Test
   public void getIOWriter() throws IOException {
     //The interface is just for test
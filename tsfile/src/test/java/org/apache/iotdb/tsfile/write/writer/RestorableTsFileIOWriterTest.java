@@ -95,6 +95,26 @@ public class RestorableTsFileIOWriterTest {
     assertTrue(file.delete());
   }
 
+  @Test
+  public void testDeleteMetadataTempFiles() throws Exception {
+    File file = fsFactory.getFile(FILE_NAME);
+    TsFileWriter writer = new TsFileWriter(file);
+    writer.getIOWriter().close();
+    // the temp files left by a writer that crashed while ending the file
+    File chunkMetadataFile = fsFactory
+        .getFile(FILE_NAME + TsFileIOWriter.CHUNK_METADATA_TEMP_FILE_SUFFIX);
+    File timeseriesMetadataFile = fsFactory
+        .getFile(FILE_NAME + TsFileIOWriter.TIMESERIES_METADATA_TEMP_FILE_SUFFIX);
+    assertTrue(chunkMetadataFile.createNewFile());
+    assertTrue(timeseriesMetadataFile.createNewFile());
+
+    RestorableTsFileIOWriter rWriter = new RestorableTsFileIOWriter(file);
+    assertFalse(chunkMetadataFile.exists());
+    assertFalse(timeseriesMetadataFile.exists());
+    rWriter.close();
+    assertTrue(file.delete());
+  }
+
   @Test
   public void testOnlyFirstMask() throws Exception {
     File file = fsFactory.getFile(FILE_NAME);